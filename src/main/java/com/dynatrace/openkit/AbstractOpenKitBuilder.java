@@ -28,6 +28,11 @@ import com.dynatrace.openkit.core.util.DefaultLogger;
 import com.dynatrace.openkit.core.util.StringUtil;
 import com.dynatrace.openkit.protocol.ssl.SSLStrictTrustManager;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Deflater;
+
 /**
  * Abstract base class for concrete builder. Using the builder a OpenKit instance can be created
  */
@@ -51,6 +56,19 @@ public abstract class AbstractOpenKitBuilder {
     private long beaconCacheUpperMemoryBoundary = ConfigurationDefaults.DEFAULT_UPPER_MEMORY_BOUNDARY_IN_BYTES;
     private DataCollectionLevel dataCollectionLevel = ConfigurationDefaults.DEFAULT_DATA_COLLECTION_LEVEL;
     private CrashReportingLevel crashReportLevel = ConfigurationDefaults.DEFAULT_CRASH_REPORTING_LEVEL;
+    private int compressionLevel = ConfigurationDefaults.DEFAULT_COMPRESSION_LEVEL;
+    private int compressionStrategy = ConfigurationDefaults.DEFAULT_COMPRESSION_STRATEGY;
+    private int compressionThreshold = ConfigurationDefaults.DEFAULT_COMPRESSION_THRESHOLD_IN_BYTES;
+    private int beaconSendingWorkers = ConfigurationDefaults.DEFAULT_BEACON_SENDING_WORKERS;
+    private String beaconOutboxDirectory = null;
+    private long beaconOutboxMaxSize = ConfigurationDefaults.DEFAULT_BEACON_OUTBOX_MAX_SIZE_IN_BYTES;
+    private long beaconOutboxMaxRecordAge = ConfigurationDefaults.DEFAULT_BEACON_OUTBOX_MAX_RECORD_AGE_IN_MILLIS;
+    private String serverConfigurationStoreDirectory = null;
+    private long serverConfigurationStoreMaxAge = ConfigurationDefaults.DEFAULT_SERVER_CONFIGURATION_STORE_MAX_AGE_IN_MILLIS;
+    private final List<String> additionalEndpointURLs = new ArrayList<String>();
+    private int asyncCaptureBufferCapacity = 0;
+    private AsyncCaptureOverflowPolicy asyncCaptureOverflowPolicy = ConfigurationDefaults.DEFAULT_ASYNC_CAPTURE_OVERFLOW_POLICY;
+    private long maxActionLifetime = 0;
 
     /**
      * Creates a new instance of type AbstractOpenKitBuilder
@@ -281,6 +299,280 @@ public abstract class AbstractOpenKitBuilder {
         return this;
     }
 
+    /**
+     * Sets the compression level used for gzipping beacon data.
+     *
+     * <p>
+     *     Lower levels trade bandwidth for CPU, higher levels trade CPU for bandwidth.
+     *     The value is only set if it is either {@link Deflater#DEFAULT_COMPRESSION} or in the range
+     *     [{@link Deflater#NO_COMPRESSION}, {@link Deflater#BEST_COMPRESSION}].
+     * </p>
+     *
+     * Default value: {@link Deflater#DEFAULT_COMPRESSION}
+     *
+     * @param compressionLevel The compression level to apply.
+     * @return {@code this}
+     */
+    public AbstractOpenKitBuilder withCompressionLevel(int compressionLevel) {
+        if (compressionLevel == Deflater.DEFAULT_COMPRESSION
+                || (compressionLevel >= Deflater.NO_COMPRESSION && compressionLevel <= Deflater.BEST_COMPRESSION)) {
+            this.compressionLevel = compressionLevel;
+        }
+        return this;
+    }
+
+    /**
+     * Sets the compression strategy used for gzipping beacon data.
+     *
+     * <p>
+     *     The value is only set if it is one of {@link Deflater#DEFAULT_STRATEGY}, {@link Deflater#FILTERED}
+     *     or {@link Deflater#HUFFMAN_ONLY}.
+     * </p>
+     *
+     * Default value: {@link Deflater#DEFAULT_STRATEGY}
+     *
+     * @param compressionStrategy The compression strategy to apply.
+     * @return {@code this}
+     */
+    public AbstractOpenKitBuilder withCompressionStrategy(int compressionStrategy) {
+        if (compressionStrategy == Deflater.DEFAULT_STRATEGY
+                || compressionStrategy == Deflater.FILTERED
+                || compressionStrategy == Deflater.HUFFMAN_ONLY) {
+            this.compressionStrategy = compressionStrategy;
+        }
+        return this;
+    }
+
+    /**
+     * Sets the minimum payload size in bytes, from which on beacon data is compressed.
+     *
+     * <p>
+     *     Payloads smaller than the given threshold are sent uncompressed, since compressing tiny payloads
+     *     costs more CPU than it saves bandwidth. The value is only set if it is not negative.
+     * </p>
+     *
+     * Default value: {@link ConfigurationDefaults#DEFAULT_COMPRESSION_THRESHOLD_IN_BYTES}
+     *
+     * @param compressionThresholdInBytes The minimum payload size in bytes to compress.
+     * @return {@code this}
+     */
+    public AbstractOpenKitBuilder withCompressionThreshold(int compressionThresholdInBytes) {
+        if (compressionThresholdInBytes >= 0) {
+            this.compressionThreshold = compressionThresholdInBytes;
+        }
+        return this;
+    }
+
+    /**
+     * Sets the number of workers sending beacons of different sessions concurrently.
+     *
+     * <p>
+     *     Using more than one worker avoids that a slow upload of one session delays the uploads of all other sessions.
+     *     The data of a single session is always sent by the same worker, to keep the order of the data.
+     *     The value is only set if it is greater than or equal to {@code 1}.
+     * </p>
+     *
+     * Default value: {@link ConfigurationDefaults#DEFAULT_BEACON_SENDING_WORKERS}
+     *
+     * @param numWorkers The number of workers sending beacons.
+     * @return {@code this}
+     */
+    public AbstractOpenKitBuilder withBeaconSendingWorkers(int numWorkers) {
+        if (numWorkers >= 1) {
+            this.beaconSendingWorkers = numWorkers;
+        }
+        return this;
+    }
+
+    /**
+     * Enables the beacon outbox, which persists beacon data that could not be sent in the given directory.
+     *
+     * <p>
+     *     Data is moved into the outbox instead of being dropped, when the server is not reachable or overloaded,
+     *     and when it could not be sent before the shutdown timeout expired.
+     *     The outbox is sent again once the server is reachable, also after the application has been restarted.
+     *     The value is only set if it is neither {@code null} nor an empty string.
+     * </p>
+     *
+     * By default the beacon outbox is disabled.
+     *
+     * @param directory The directory in which to store the beacon outbox.
+     * @return {@code this}
+     */
+    public AbstractOpenKitBuilder withBeaconOutboxDirectory(String directory) {
+        if (directory != null && !directory.isEmpty()) {
+            this.beaconOutboxDirectory = directory;
+        }
+        return this;
+    }
+
+    /**
+     * Sets the maximum size in bytes of the beacon outbox.
+     *
+     * <p>
+     *     When the outbox exceeds this size, the oldest data is dropped.
+     *     The value is only set if it is greater than {@code 0}.
+     * </p>
+     *
+     * Default value: {@link ConfigurationDefaults#DEFAULT_BEACON_OUTBOX_MAX_SIZE_IN_BYTES}
+     *
+     * @param maxSizeInBytes The maximum size of the beacon outbox in bytes.
+     * @return {@code this}
+     */
+    public AbstractOpenKitBuilder withBeaconOutboxMaxSize(long maxSizeInBytes) {
+        if (maxSizeInBytes > 0) {
+            this.beaconOutboxMaxSize = maxSizeInBytes;
+        }
+        return this;
+    }
+
+    /**
+     * Sets the maximum age of data in the beacon outbox.
+     *
+     * <p>
+     *     Older data is dropped from the outbox instead of being sent.
+     *     The value is only set if it is greater than {@code 0}.
+     * </p>
+     *
+     * Default value: {@link ConfigurationDefaults#DEFAULT_BEACON_OUTBOX_MAX_RECORD_AGE_IN_MILLIS}
+     *
+     * @param maxRecordAgeInMilliseconds The maximum age of data in the beacon outbox in milliseconds.
+     * @return {@code this}
+     */
+    public AbstractOpenKitBuilder withBeaconOutboxMaxRecordAge(long maxRecordAgeInMilliseconds) {
+        if (maxRecordAgeInMilliseconds > 0) {
+            this.beaconOutboxMaxRecordAge = maxRecordAgeInMilliseconds;
+        }
+        return this;
+    }
+
+    /**
+     * Enables storing the last server configuration in the given directory.
+     *
+     * <p>
+     *     The configuration is stored per endpoint URL and application ID. After restarting the application,
+     *     a stored configuration is used right away, instead of waiting for the server's initial response.
+     *     It is replaced as soon as a response is received from the server.
+     *     The value is only set if it is neither {@code null} nor an empty string.
+     * </p>
+     *
+     * By default the server configuration is not stored.
+     *
+     * @param directory The directory in which to store the server configuration.
+     * @return {@code this}
+     */
+    public AbstractOpenKitBuilder withServerConfigurationStoreDirectory(String directory) {
+        if (directory != null && !directory.isEmpty()) {
+            this.serverConfigurationStoreDirectory = directory;
+        }
+        return this;
+    }
+
+    /**
+     * Sets the maximum age of a stored server configuration.
+     *
+     * <p>
+     *     Older server configurations are not used for starting up.
+     *     The value is only set if it is greater than {@code 0}.
+     * </p>
+     *
+     * Default value: {@link ConfigurationDefaults#DEFAULT_SERVER_CONFIGURATION_STORE_MAX_AGE_IN_MILLIS}
+     *
+     * @param maxAgeInMilliseconds The maximum age of a stored server configuration in milliseconds.
+     * @return {@code this}
+     */
+    public AbstractOpenKitBuilder withServerConfigurationStoreMaxAge(long maxAgeInMilliseconds) {
+        if (maxAgeInMilliseconds > 0) {
+            this.serverConfigurationStoreMaxAge = maxAgeInMilliseconds;
+        }
+        return this;
+    }
+
+    /**
+     * Adds an additional beacon endpoint URL.
+     *
+     * <p>
+     *     Sessions are distributed across the endpoint URL given in the constructor and all additional
+     *     endpoint URLs. If an endpoint is unhealthy, data is sent to the next healthy endpoint instead.
+     *     The URL is only added if it is neither {@code null} nor an empty string and if it has not been added before.
+     * </p>
+     *
+     * By default no additional endpoint URLs are used.
+     *
+     * @param endpointURL An additional endpoint URL to send beacon data to.
+     * @return {@code this}
+     */
+    public AbstractOpenKitBuilder withAdditionalEndpointURL(String endpointURL) {
+        if (endpointURL != null && !endpointURL.isEmpty()
+            && !endpointURL.equals(this.endpointURL) && !additionalEndpointURLs.contains(endpointURL)) {
+            additionalEndpointURLs.add(endpointURL);
+        }
+        return this;
+    }
+
+    /**
+     * Enables asynchronous capturing of actions, events and values with a buffer for the given number of entries.
+     *
+     * <p>
+     *     Instead of serializing the data on the calling thread, a fixed size descriptor is written into
+     *     a pre-allocated buffer, which is processed by a background thread.
+     *     The capacity is rounded up to the next power of two.
+     *     The value is only set if it is greater than {@code 0}.
+     * </p>
+     *
+     * By default asynchronous capturing is disabled.
+     *
+     * @param bufferCapacity The number of entries the capture buffer can hold.
+     * @return {@code this}
+     */
+    public AbstractOpenKitBuilder withAsyncCapture(int bufferCapacity) {
+        if (bufferCapacity > 0) {
+            this.asyncCaptureBufferCapacity = bufferCapacity;
+        }
+        return this;
+    }
+
+    /**
+     * Sets what happens when data is captured asynchronously while the capture buffer is full.
+     *
+     * <p>
+     *     The value is only set if it is not {@code null}.
+     * </p>
+     *
+     * Default value: {@link ConfigurationDefaults#DEFAULT_ASYNC_CAPTURE_OVERFLOW_POLICY}
+     *
+     * @param overflowPolicy The policy to apply when the capture buffer is full.
+     * @return {@code this}
+     */
+    public AbstractOpenKitBuilder withAsyncCaptureOverflowPolicy(AsyncCaptureOverflowPolicy overflowPolicy) {
+        if (overflowPolicy != null) {
+            this.asyncCaptureOverflowPolicy = overflowPolicy;
+        }
+        return this;
+    }
+
+    /**
+     * Sets the maximum lifetime of actions and web request tracers in milliseconds.
+     *
+     * <p>
+     *     Actions which are not left and web request tracers which are not stopped within this time
+     *     are closed forcefully, so that objects the application forgot to close do not leak.
+     *     Sessions which have neither been used nor ended within this time are ended.
+     *     The value is only set if it is greater than {@code 0}.
+     * </p>
+     *
+     * By default leaked objects are not reclaimed.
+     *
+     * @param lifetimeInMillis The maximum lifetime in milliseconds.
+     * @return {@code this}
+     */
+    public AbstractOpenKitBuilder withMaxActionLifetime(long lifetimeInMillis) {
+        if (lifetimeInMillis > 0) {
+            this.maxActionLifetime = lifetimeInMillis;
+        }
+        return this;
+    }
+
     /**
      * Builds a new {@code OpenKit} instance
      *
@@ -482,6 +774,135 @@ public abstract class AbstractOpenKitBuilder {
         return crashReportLevel;
     }
 
+    /**
+     * Get compression level that has been set with {@link #withCompressionLevel(int)}.
+     *
+     * @return Previously set compression level or {@link ConfigurationDefaults#DEFAULT_COMPRESSION_LEVEL}
+     *         if nothing has been set.
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Get compression strategy that has been set with {@link #withCompressionStrategy(int)}.
+     *
+     * @return Previously set compression strategy or {@link ConfigurationDefaults#DEFAULT_COMPRESSION_STRATEGY}
+     *         if nothing has been set.
+     */
+    public int getCompressionStrategy() {
+        return compressionStrategy;
+    }
+
+    /**
+     * Get compression threshold that has been set with {@link #withCompressionThreshold(int)}.
+     *
+     * @return Previously set compression threshold or
+     *         {@link ConfigurationDefaults#DEFAULT_COMPRESSION_THRESHOLD_IN_BYTES} if nothing has been set.
+     */
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * Get the number of beacon sending workers that has been set with {@link #withBeaconSendingWorkers(int)}.
+     *
+     * @return Previously set number of workers or {@link ConfigurationDefaults#DEFAULT_BEACON_SENDING_WORKERS}
+     *         if nothing has been set.
+     */
+    public int getBeaconSendingWorkers() {
+        return beaconSendingWorkers;
+    }
+
+    /**
+     * Get the beacon outbox directory that has been set with {@link #withBeaconOutboxDirectory(String)}.
+     *
+     * @return Previously set directory or {@code null} if nothing has been set.
+     */
+    public String getBeaconOutboxDirectory() {
+        return beaconOutboxDirectory;
+    }
+
+    /**
+     * Get the maximum beacon outbox size that has been set with {@link #withBeaconOutboxMaxSize(long)}.
+     *
+     * @return Previously set maximum size or {@link ConfigurationDefaults#DEFAULT_BEACON_OUTBOX_MAX_SIZE_IN_BYTES}
+     *         if nothing has been set.
+     */
+    public long getBeaconOutboxMaxSize() {
+        return beaconOutboxMaxSize;
+    }
+
+    /**
+     * Get the maximum beacon outbox record age that has been set with {@link #withBeaconOutboxMaxRecordAge(long)}.
+     *
+     * @return Previously set maximum record age or
+     *         {@link ConfigurationDefaults#DEFAULT_BEACON_OUTBOX_MAX_RECORD_AGE_IN_MILLIS} if nothing has been set.
+     */
+    public long getBeaconOutboxMaxRecordAge() {
+        return beaconOutboxMaxRecordAge;
+    }
+
+    /**
+     * Get the server configuration store directory that has been set with
+     * {@link #withServerConfigurationStoreDirectory(String)}.
+     *
+     * @return Previously set directory or {@code null} if nothing has been set.
+     */
+    public String getServerConfigurationStoreDirectory() {
+        return serverConfigurationStoreDirectory;
+    }
+
+    /**
+     * Get the maximum age of a stored server configuration that has been set with
+     * {@link #withServerConfigurationStoreMaxAge(long)}.
+     *
+     * @return Previously set maximum age or
+     *         {@link ConfigurationDefaults#DEFAULT_SERVER_CONFIGURATION_STORE_MAX_AGE_IN_MILLIS} if nothing has been set.
+     */
+    public long getServerConfigurationStoreMaxAge() {
+        return serverConfigurationStoreMaxAge;
+    }
+
+    /**
+     * Get the additional endpoint URLs that have been added with {@link #withAdditionalEndpointURL(String)}.
+     *
+     * @return Unmodifiable list of previously added endpoint URLs, which is empty if nothing has been added.
+     */
+    public List<String> getAdditionalEndpointURLs() {
+        return Collections.unmodifiableList(additionalEndpointURLs);
+    }
+
+    /**
+     * Get the capacity of the asynchronous capture buffer that has been set with {@link #withAsyncCapture(int)}.
+     *
+     * @return Previously set capacity or {@code 0} if nothing has been set, which means asynchronous capturing is disabled.
+     */
+    public int getAsyncCaptureBufferCapacity() {
+        return asyncCaptureBufferCapacity;
+    }
+
+    /**
+     * Get the asynchronous capture overflow policy that has been set with
+     * {@link #withAsyncCaptureOverflowPolicy(AsyncCaptureOverflowPolicy)}.
+     *
+     * @return Previously set policy or {@link ConfigurationDefaults#DEFAULT_ASYNC_CAPTURE_OVERFLOW_POLICY}
+     *         if nothing has been set.
+     */
+    public AsyncCaptureOverflowPolicy getAsyncCaptureOverflowPolicy() {
+        return asyncCaptureOverflowPolicy;
+    }
+
+    /**
+     * Get the maximum lifetime of actions and web request tracers that has been set with
+     * {@link #withMaxActionLifetime(long)}.
+     *
+     * @return Previously set maximum lifetime in milliseconds or {@code 0} if nothing has been set.
+     */
+    public long getMaxActionLifetime() {
+        return maxActionLifetime;
+    }
+
     /**
      * Get {@link Logger} that has been set with {@link #withLogger(Logger)}.
      *
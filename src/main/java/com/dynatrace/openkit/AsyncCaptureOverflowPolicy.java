@@ -0,0 +1,43 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit;
+
+/**
+ * Specifies what happens, when an event is captured asynchronously while the capture buffer is full.
+ *
+ * <p>
+ *     See {@link AbstractOpenKitBuilder#withAsyncCapture(int)}.
+ * </p>
+ */
+public enum AsyncCaptureOverflowPolicy {
+    /**
+     * The event which is captured is dropped, the buffered events are kept
+     */
+    DROP_NEWEST,
+    /**
+     * The oldest buffered event is dropped to make room for the event which is captured
+     */
+    DROP_OLDEST,
+    /**
+     * The capturing thread waits until the background thread has made room in the buffer
+     */
+    BLOCK;
+
+    public static AsyncCaptureOverflowPolicy defaultValue() {
+        return DROP_NEWEST;
+    }
+}
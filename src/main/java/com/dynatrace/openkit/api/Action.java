@@ -73,6 +73,19 @@ public interface Action extends Closeable {
      */
     Action reportError(String errorName, int errorCode, String reason);
 
+    /**
+     * Creates a batch for reporting multiple events and values on this Action at once.
+     *
+     * <p>
+     *     Recording on an {@link ActionBatch} is cheaper than reporting each event or value on its own,
+     *     since validation against the Action's state, sequence number allocation and caching are done
+     *     once per {@link ActionBatch#commit()}.
+     * </p>
+     *
+     * @return a new ActionBatch for this Action
+     */
+    ActionBatch batch();
+
     /**
      * Traces a web request - which is provided as a URLConnection - and allows adding timing information to this request.
      * If the web request is continued on a server-side Agent (e.g. Java, .NET, ...) this Session will be correlated to
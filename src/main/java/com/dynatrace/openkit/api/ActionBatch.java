@@ -0,0 +1,78 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.api;
+
+/**
+ * This interface provides functionality to collect events and values of an {@link Action} and report them together.
+ *
+ * <p>
+ *     Events and values are only recorded by this batch and reported on {@link #commit()}.
+ *     All of them are reported with the time of the commit and get consecutive sequence numbers.
+ *     After committing the batch is empty and can be reused.
+ * </p>
+ *
+ * <p>
+ *     A batch is not thread safe and is intended to be used by a single thread.
+ *     Data which was not committed, when the {@link Action} is left, is discarded.
+ * </p>
+ */
+public interface ActionBatch {
+
+    /**
+     * Records an event with a specified name (but without any value).
+     *
+     * <p>
+     *     If given {@code eventName} is {@code null} or an empty string then no event is recorded.
+     * </p>
+     *
+     * @param eventName name of the event
+     * @return this ActionBatch (for usage as fluent API)
+     */
+    ActionBatch reportEvent(String eventName);
+
+    /**
+     * Records an int value with a specified name.
+     *
+     * @param valueName name of this value
+     * @param value     value itself
+     * @return this ActionBatch (for usage as fluent API)
+     */
+    ActionBatch reportValue(String valueName, int value);
+
+    /**
+     * Records a double value with a specified name.
+     *
+     * @param valueName name of this value
+     * @param value     value itself
+     * @return this ActionBatch (for usage as fluent API)
+     */
+    ActionBatch reportValue(String valueName, double value);
+
+    /**
+     * Records a String value with a specified name.
+     *
+     * @param valueName name of this value
+     * @param value     value itself
+     * @return this ActionBatch (for usage as fluent API)
+     */
+    ActionBatch reportValue(String valueName, String value);
+
+    /**
+     * Reports all recorded events and values on the {@link Action} and empties this batch.
+     */
+    void commit();
+}
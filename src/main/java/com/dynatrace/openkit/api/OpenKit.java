@@ -86,4 +86,17 @@ public interface OpenKit extends Closeable {
      */
     void shutdown();
 
+    /**
+     * Shuts down OpenKit, ending all open Sessions and waiting at most {@code timeoutMillis} for them to be sent.
+     *
+     * <p>
+     * Sessions containing crashes or errors are sent first, followed by the other sessions in the order they
+     * were finished. Sessions which could not be sent before the timeout expired are not sent any more.
+     * If {@code timeoutMillis} is less than or equal to zero, no data is sent.
+     * </p>
+     *
+     * @param timeoutMillis The maximum number of milliseconds to wait for the data being sent.
+     */
+    void shutdown(long timeoutMillis);
+
 }
@@ -33,4 +33,23 @@ public interface RootAction extends Action {
      * @return Action instance to work with
      */
     Action enterAction(String actionName);
+
+    /**
+     * Reports an already completed (child) Action with a specified name, start time and end time on this Action.
+     *
+     * <p>
+     *     Unlike {@link #enterAction(String)} no {@link Action} object is created, the Action is
+     *     serialized immediately.
+     * </p>
+     *
+     * <p>
+     *     If the given {@code actionName} is {@code null} or an empty string, or if {@code endTimeInMillis}
+     *     is before {@code startTimeInMillis}, no reporting will happen.
+     * </p>
+     *
+     * @param actionName name of the Action
+     * @param startTimeInMillis the time when the Action was started, in milliseconds since the epoch
+     * @param endTimeInMillis the time when the Action was ended, in milliseconds since the epoch
+     */
+    void reportAction(String actionName, long startTimeInMillis, long endTimeInMillis);
 }
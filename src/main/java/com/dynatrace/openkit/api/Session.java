@@ -37,6 +37,26 @@ public interface Session extends Closeable {
      */
     RootAction enterAction(String actionName);
 
+    /**
+     * Reports an already completed Action with a specified name, start time and end time on this Session.
+     *
+     * <p>
+     *     Unlike {@link #enterAction(String)} no {@link RootAction} object is created, the Action is
+     *     serialized immediately. This is intended for Actions, whose timing is known when reporting them,
+     *     e.g. when forwarding measurements taken by another component.
+     * </p>
+     *
+     * <p>
+     *     If the given {@code actionName} is {@code null} or an empty string, or if {@code endTimeInMillis}
+     *     is before {@code startTimeInMillis}, no reporting will happen.
+     * </p>
+     *
+     * @param actionName name of the Action
+     * @param startTimeInMillis the time when the Action was started, in milliseconds since the epoch
+     * @param endTimeInMillis the time when the Action was ended, in milliseconds since the epoch
+     */
+    void reportAction(String actionName, long startTimeInMillis, long endTimeInMillis);
+
     /**
      * Tags a session with the provided {@code userTag}.
      *
@@ -17,14 +17,19 @@
 package com.dynatrace.openkit.core;
 
 import com.dynatrace.openkit.api.Logger;
+import com.dynatrace.openkit.core.caching.BeaconCache;
+import com.dynatrace.openkit.core.caching.BeaconKey;
+import com.dynatrace.openkit.core.caching.PriorityDataListener;
+import com.dynatrace.openkit.core.communication.AdaptiveSendInterval;
 import com.dynatrace.openkit.core.communication.BeaconSendingContext;
-import com.dynatrace.openkit.core.configuration.HTTPClientConfiguration;
+import com.dynatrace.openkit.core.configuration.BeaconSendingConfiguration;
 import com.dynatrace.openkit.core.configuration.ServerConfiguration;
 import com.dynatrace.openkit.core.objects.SessionImpl;
-import com.dynatrace.openkit.providers.HTTPClientProvider;
-import com.dynatrace.openkit.providers.TimingProvider;
 
+import java.util.Observable;
+import java.util.Observer;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The BeaconSender is responsible for asynchronously sending the Beacons to the provided endpoint.
@@ -36,6 +41,10 @@ public class BeaconSender {
 
     private static final String THREAD_NAME = BeaconSender.class.getSimpleName();
     private static final long SHUTDOWN_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+    /**
+     * Time given to the beacon sending thread to hand over unsent data, after the shutdown timeout expired
+     */
+    private static final long SHUTDOWN_GRACE_PERIOD = TimeUnit.SECONDS.toMillis(1);
 
     private final Logger logger;
 
@@ -47,6 +56,14 @@ public class BeaconSender {
      * Context in terms of the State Design Pattern
      */
     private final BeaconSendingContext context;
+    /**
+     * Beacon cache which is observed for exceeding {@link #cacheSizeThreshold} (might be {@code null})
+     */
+    private final BeaconCache beaconCache;
+    /**
+     * Number of bytes in the beacon cache, after which open sessions are sent without waiting for the send interval
+     */
+    private final long cacheSizeThreshold;
 
     /**
      * Create a new BeaconSender.
@@ -54,14 +71,29 @@ public class BeaconSender {
      *     To start the beacon sending the {@link #initialize()} method must be called.
      * </p>
      *
+     * <p>
+     *     The number of workers and the adaptive send interval of the {@link BeaconSendingContext} are configured
+     *     from the given beacon sending configuration. If a beacon cache is given, open sessions are sent as soon as
+     *     the cache exceeds the configured threshold.
+     * </p>
+     *
      * @param logger Logger for logging messages
-     * @param httpClientConfiguration  Initial HTTP client configuration.
-     * @param clientProvider Used for retrieving an {@link com.dynatrace.openkit.protocol.HTTPClient} instance.
-     * @param timingProvider Used for some timing related things.
+     * @param contextBuilder Builder providing the collaborators of the {@link BeaconSendingContext}.
+     * @param beaconCache The beacon cache storing the data of all sessions (might be {@code null}).
+     * @param beaconSendingConfiguration Configuration for sending beacons.
      */
-    public BeaconSender(Logger logger, HTTPClientConfiguration httpClientConfiguration, HTTPClientProvider clientProvider, TimingProvider timingProvider) {
+    public BeaconSender(Logger logger,
+                        BeaconSendingContext.Builder contextBuilder,
+                        BeaconCache beaconCache,
+                        BeaconSendingConfiguration beaconSendingConfiguration) {
         this.logger = logger;
-        this.context = new BeaconSendingContext(logger, httpClientConfiguration, clientProvider, timingProvider);
+        this.context = contextBuilder
+                .withNumWorkers(beaconSendingConfiguration.getNumWorkers())
+                .withAdaptiveSendInterval(new AdaptiveSendInterval(logger, beaconCache,
+                        beaconSendingConfiguration.getCacheSizeUpperBound()))
+                .build();
+        this.beaconCache = beaconCache;
+        this.cacheSizeThreshold = beaconSendingConfiguration.getCacheSizeSendThreshold();
     }
 
     /**
@@ -85,11 +117,21 @@ public class BeaconSender {
                 while (!context.isInTerminalState()) {
                     context.executeCurrentState();
                 }
+                context.shutdownWorkers();
+                context.closeOutbox();
+                context.closeHTTPClientProvider();
             }
         });
         beaconSenderThread.setDaemon(true);
         beaconSenderThread.setName(THREAD_NAME);
         beaconSenderThread.start();
+
+        if (beaconCache != null) {
+            beaconCache.addPriorityDataListener(new PriorityDataSendRequester(context));
+            if (cacheSizeThreshold > 0) {
+                beaconCache.addObserver(new CacheSizeObserver(beaconCache, cacheSizeThreshold, context));
+            }
+        }
     }
 
     /**
@@ -127,15 +169,36 @@ public class BeaconSender {
      * Shutdown the BeaconSender and wait until it's shutdown (at most {@link BeaconSender#SHUTDOWN_TIMEOUT} milliseconds.
      */
     public synchronized void shutdown() {
+        shutdown(SHUTDOWN_TIMEOUT);
+    }
+
+    /**
+     * Shutdown the BeaconSender and wait until it's shutdown.
+     *
+     * <p>
+     *     Remaining data is flushed until {@code timeoutMillis} expires. The beacon sending thread is not interrupted
+     *     before, since it stops flushing by itself when the timeout expires. Afterwards the beacon sending thread is
+     *     interrupted and given at most {@link #SHUTDOWN_GRACE_PERIOD} milliseconds to hand over unsent data.
+     * </p>
+     *
+     * @param timeoutMillis The maximum number of milliseconds to wait for flushing data.
+     */
+    public synchronized void shutdown(long timeoutMillis) {
         if (logger.isDebugEnabled()) {
-            logger.debug(getClass().getSimpleName() + " shutdown() - thread request shutdown");
+            logger.debug(getClass().getSimpleName() + " shutdown(" + timeoutMillis + ") - thread request shutdown");
         }
-        context.requestShutdown();
+        context.requestShutdown(timeoutMillis);
 
         if (beaconSenderThread != null) {
-            beaconSenderThread.interrupt();
             try {
-                beaconSenderThread.join(SHUTDOWN_TIMEOUT);
+                if (timeoutMillis > 0) {
+                    beaconSenderThread.join(timeoutMillis);
+                }
+                if (beaconSenderThread.isAlive()) {
+                    // deadline expired - abort pending requests
+                    beaconSenderThread.interrupt();
+                    beaconSenderThread.join(SHUTDOWN_GRACE_PERIOD);
+                }
                 if (logger.isDebugEnabled()) {
                     logger.debug(getClass().getSimpleName() + " shutdown() - thread stopped");
                 }
@@ -178,4 +241,52 @@ public class BeaconSender {
         }
         context.addSession(session);
     }
+
+    /**
+     * Observer requesting to send open sessions when the beacon cache exceeds a given threshold.
+     *
+     * <p>
+     *     Without this, data exceeding the threshold would be kept until the send interval expires.
+     *     Sending is only requested when the threshold is crossed, not for every insert above it.
+     * </p>
+     */
+    private static final class CacheSizeObserver implements Observer {
+
+        private final BeaconCache beaconCache;
+        private final long cacheSizeThreshold;
+        private final BeaconSendingContext context;
+        private final AtomicBoolean isAboveThreshold = new AtomicBoolean(false);
+
+        private CacheSizeObserver(BeaconCache beaconCache, long cacheSizeThreshold, BeaconSendingContext context) {
+            this.beaconCache = beaconCache;
+            this.cacheSizeThreshold = cacheSizeThreshold;
+            this.context = context;
+        }
+
+        @Override
+        public void update(Observable o, Object arg) {
+            if (beaconCache.getNumBytesInCache() < cacheSizeThreshold) {
+                isAboveThreshold.set(false);
+            } else if (isAboveThreshold.compareAndSet(false, true)) {
+                context.requestOpenSessionsSend();
+            }
+        }
+    }
+
+    /**
+     * Listener requesting to send open sessions' priority data (crashes & errors), when it is added to the beacon cache.
+     */
+    private static final class PriorityDataSendRequester implements PriorityDataListener {
+
+        private final BeaconSendingContext context;
+
+        private PriorityDataSendRequester(BeaconSendingContext context) {
+            this.context = context;
+        }
+
+        @Override
+        public void onPriorityDataAdded(BeaconKey key) {
+            context.requestPriorityDataSend();
+        }
+    }
 }
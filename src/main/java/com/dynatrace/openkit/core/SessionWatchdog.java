@@ -16,6 +16,7 @@
 package com.dynatrace.openkit.core;
 
 import com.dynatrace.openkit.api.Logger;
+import com.dynatrace.openkit.core.objects.ReclamationCounters;
 import com.dynatrace.openkit.core.objects.SessionImpl;
 import com.dynatrace.openkit.core.objects.SessionProxyImpl;
 
@@ -28,6 +29,7 @@ import java.util.concurrent.TimeUnit;
  * <ul>
  *     <li>Sessions which could not be closed after session splitting will be closed after a certain grace period.</li>
  *     <li>Session proxies which require splitting after a maximum session duration or by idle timeout</li>
+ *     <li>Actions, web request tracers and sessions which are not closed within the maximum action lifetime</li>
  * </ul>
  */
 public class SessionWatchdog {
@@ -136,4 +138,30 @@ public class SessionWatchdog {
     public void removeFromSplitByTimeout(SessionProxyImpl sessionProxy) {
         context.removeFromSplitByTimeout(sessionProxy);
     }
+
+    /**
+     * Adds the given session proxy so that its actions, web request tracers and the session proxy itself are closed
+     * forcefully, if they are not closed within the maximum action lifetime.
+     *
+     * @param sessionProxy the session proxy to be added.
+     */
+    public void addToReclamation(SessionProxyImpl sessionProxy) {
+        context.addToReclamation(sessionProxy);
+    }
+
+    /**
+     * Removes the given session proxy from being checked for leaked objects.
+     *
+     * @param sessionProxy the session proxy to be removed.
+     */
+    public void removeFromReclamation(SessionProxyImpl sessionProxy) {
+        context.removeFromReclamation(sessionProxy);
+    }
+
+    /**
+     * Returns the counters of the actions, web request tracers and sessions which have been closed forcefully.
+     */
+    public ReclamationCounters getReclamationCounters() {
+        return context.getReclamationCounters();
+    }
 }
@@ -15,20 +15,34 @@
  */
 package com.dynatrace.openkit.core;
 
+import com.dynatrace.openkit.core.configuration.ReclamationConfiguration;
+import com.dynatrace.openkit.core.objects.ReclamationCounters;
 import com.dynatrace.openkit.core.objects.SessionImpl;
 import com.dynatrace.openkit.core.objects.SessionProxyImpl;
+import com.dynatrace.openkit.core.util.DeadlineSchedule;
 import com.dynatrace.openkit.providers.TimingProvider;
 
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A context keeping track of sessions which could not be finished after session splitting by events and which will
- * be closed after a grace period.
+ * be closed after a grace period, as well as of session proxies which are checked for leaked objects.
+ *
+ * <p>
+ * Sessions to close and session proxies to split are kept in a {@link DeadlineSchedule} ordered by their
+ * deadline, therefore each tick only visits the ones which are due. The scheduled deadline is a lower bound.
+ * Top level events of a session proxy postpone its idle timeout without rescheduling it, instead a due session proxy
+ * reports its actual next split time when asked to split and is rescheduled accordingly.
+ * </p>
+ *
+ * <p>
+ * If a maximum action lifetime is configured, each session proxy is checked when its oldest open action or web request
+ * tracer exceeds this lifetime, or when it has not been used for this time. Objects the application did not close are
+ * closed forcefully, so that they are released from their parents and their data is sent.
+ * </p>
  */
 public class SessionWatchdogContext {
 
@@ -40,75 +54,92 @@ public class SessionWatchdogContext {
     // timing provider for suspending the current thread for a certain amount of time
     private final TimingProvider timingProvider;
     // holds all sessions which are to be closed after a certain grace period
-    private final LinkedBlockingQueue<SessionImpl> sessionsToClose = new LinkedBlockingQueue<SessionImpl>();
+    private final DeadlineSchedule<SessionImpl> sessionsToClose = DeadlineSchedule.synchronizedSchedule();
     // holds all session proxies which are to be split after expiration of either session duration or idle timeout.
-    private final LinkedBlockingQueue<SessionProxyImpl> sessionsToSplitByTimeout = new LinkedBlockingQueue<SessionProxyImpl>();
+    private final DeadlineSchedule<SessionProxyImpl> sessionsToSplitByTimeout =
+            DeadlineSchedule.synchronizedSchedule();
+    // holds all session proxies which are to be checked for actions, web request tracers or themselves not being closed.
+    private final DeadlineSchedule<SessionProxyImpl> sessionsToReclaim =
+            DeadlineSchedule.synchronizedSchedule();
+    // maximum lifetime of actions and web request tracers or 0 if leaked objects are not reclaimed
+    private final long maxActionLifetimeInMillis;
+    // counters of the objects closed forcefully
+    private final ReclamationCounters reclamationCounters = new ReclamationCounters();
 
-    public SessionWatchdogContext(TimingProvider timingProvider) {
+    public SessionWatchdogContext(TimingProvider timingProvider, ReclamationConfiguration reclamationConfiguration) {
         this.timingProvider = timingProvider;
+        this.maxActionLifetimeInMillis = reclamationConfiguration.getMaxActionLifetimeInMillis();
     }
 
     public void execute() {
-        long durationToNextCloseInMillis = closeExpiredSessions();
-        long durationToNextSplitInMillis = splitTimedOutSessions();
+        long nowInMillis = timingProvider.provideTimestampInMilliseconds();
+        closeExpiredSessions(nowInMillis);
+        splitTimedOutSessions(nowInMillis);
+        reclaimLeakedObjects(nowInMillis);
 
         try {
-            long sleepTime = Math.min(durationToNextCloseInMillis, durationToNextSplitInMillis);
-            timingProvider.sleep(sleepTime);
+            timingProvider.sleep(getSleepTime(nowInMillis));
         } catch (InterruptedException e) {
             requestShutdown();
             Thread.currentThread().interrupt();
         }
     }
 
-    private long splitTimedOutSessions() {
-        long sleepTimeInMillis = DEFAULT_SLEEP_TIME_IN_MILLIS;
-        Iterator<SessionProxyImpl> sessionProxyIterator = sessionsToSplitByTimeout.iterator();
-        while (sessionProxyIterator.hasNext()) {
-            SessionProxyImpl sessionProxy = sessionProxyIterator.next();
+    private long getSleepTime(long nowInMillis) {
+        long nextDeadline = Math.min(sessionsToClose.getNextDeadline(), sessionsToSplitByTimeout.getNextDeadline());
+        nextDeadline = Math.min(nextDeadline, sessionsToReclaim.getNextDeadline());
+        if (nextDeadline == Long.MAX_VALUE) {
+            return DEFAULT_SLEEP_TIME_IN_MILLIS;
+        }
+
+        return Math.max(0, Math.min(DEFAULT_SLEEP_TIME_IN_MILLIS, nextDeadline - nowInMillis));
+    }
 
+    private void splitTimedOutSessions(long nowInMillis) {
+        for (SessionProxyImpl sessionProxy : sessionsToSplitByTimeout.takeDue(nowInMillis)) {
             long nextSessionSplitTimeInMillis = sessionProxy.splitSessionByTime();
             if (nextSessionSplitTimeInMillis < 0) {
-                sessionProxyIterator.remove();
                 continue;
             }
 
-            long nowInMillis = timingProvider.provideTimestampInMilliseconds();
-            long durationToNextSplit = nextSessionSplitTimeInMillis - nowInMillis;
-            if (durationToNextSplit < 0) {
+            if (nextSessionSplitTimeInMillis < nowInMillis) {
+                // split time passed without splitting, retry on a later tick
+                nextSessionSplitTimeInMillis = nowInMillis + DEFAULT_SLEEP_TIME_IN_MILLIS;
+            }
+            sessionsToSplitByTimeout.scheduleIfAbsent(sessionProxy, nextSessionSplitTimeInMillis);
+        }
+    }
+
+    private void reclaimLeakedObjects(long nowInMillis) {
+        for (SessionProxyImpl sessionProxy : sessionsToReclaim.takeDue(nowInMillis)) {
+            long nextCheckTimeInMillis = sessionProxy.reclaimLeakedObjects(maxActionLifetimeInMillis, reclamationCounters);
+            if (nextCheckTimeInMillis < 0) {
                 continue;
             }
 
-            sleepTimeInMillis = Math.min(sleepTimeInMillis, durationToNextSplit);
+            if (nextCheckTimeInMillis <= nowInMillis) {
+                // check time passed already, retry on a later tick
+                nextCheckTimeInMillis = nowInMillis + DEFAULT_SLEEP_TIME_IN_MILLIS;
+            }
+            sessionsToReclaim.scheduleIfAbsent(sessionProxy, nextCheckTimeInMillis);
         }
-
-        return sleepTimeInMillis;
     }
 
-    private long closeExpiredSessions() {
-        long sleepTimeInMillis = DEFAULT_SLEEP_TIME_IN_MILLIS;
-        List<SessionImpl> sessionsToEnd = new LinkedList<SessionImpl>();
-        Iterator<SessionImpl> sessionIterator = sessionsToClose.iterator();
-        while (sessionIterator.hasNext()) {
-            SessionImpl session = sessionIterator.next();
-            long nowInMillis = timingProvider.provideTimestampInMilliseconds();
+    private void closeExpiredSessions(long nowInMillis) {
+        List<SessionImpl> sessionsToEnd = new ArrayList<SessionImpl>();
+        for (SessionImpl session : sessionsToClose.takeDue(nowInMillis)) {
             long gracePeriodEndTimeInMillis = session.getSplitByEventsGracePeriodEndTimeInMillis();
             boolean isGracePeriodExpired = gracePeriodEndTimeInMillis <= nowInMillis;
             if (isGracePeriodExpired) {
-                sessionIterator.remove();
                 sessionsToEnd.add(session);
-                continue;
+            } else {
+                sessionsToClose.scheduleIfAbsent(session, gracePeriodEndTimeInMillis);
             }
-
-            long sleepTimeToGracePeriodEndInMillis = gracePeriodEndTimeInMillis - nowInMillis;
-            sleepTimeInMillis = Math.min(sleepTimeInMillis, sleepTimeToGracePeriodEndInMillis);
         }
 
         for (SessionImpl session : sessionsToEnd) {
             session.end();
         }
-
-        return sleepTimeInMillis;
     }
 
     /**
@@ -139,7 +170,7 @@ public class SessionWatchdogContext {
         }
         long closeTime = timingProvider.provideTimestampInMilliseconds() + closeGracePeriodInMillis;
         session.setSplitByEventsGracePeriodEndTimeInMillis(closeTime);
-        sessionsToClose.add(session);
+        sessionsToClose.schedule(session, closeTime);
     }
 
     /**
@@ -150,21 +181,26 @@ public class SessionWatchdogContext {
         sessionsToClose.remove(session);
     }
 
-    LinkedBlockingQueue<SessionImpl> getSessionsToClose() {
-        return sessionsToClose;
+    List<SessionImpl> getSessionsToClose() {
+        return sessionsToClose.getScheduledObjects();
     }
 
     /**
      * Adds the given session proxy so that it will be automatically split the underlying session when the idle timeout
      * or the max session time is reached.
      *
+     * <p>
+     * The session proxy is due immediately, to obtain its next split time on the next tick. Adding an already added
+     * session proxy reschedules it, e.g. after its server configuration was updated.
+     * </p>
+     *
      * @param sessionProxy the session proxy to be added.
      */
     public void addToSplitByTimeout(SessionProxyImpl sessionProxy) {
         if (sessionProxy.isFinished()) {
             return;
         }
-        sessionsToSplitByTimeout.add(sessionProxy);
+        sessionsToSplitByTimeout.schedule(sessionProxy, timingProvider.provideTimestampInMilliseconds());
     }
 
     /**
@@ -176,7 +212,46 @@ public class SessionWatchdogContext {
         sessionsToSplitByTimeout.remove(sessionProxy);
     }
 
-    LinkedBlockingQueue<SessionProxyImpl> getSessionsToSplitByTimeout() {
-        return sessionsToSplitByTimeout;
+    List<SessionProxyImpl> getSessionsToSplitByTimeout() {
+        return sessionsToSplitByTimeout.getScheduledObjects();
+    }
+
+    /**
+     * Adds the given session proxy so that its actions and web request tracers are closed forcefully, when they
+     * are not closed within the maximum action lifetime. The session proxy itself is ended, if it is neither used
+     * nor ended within this time.
+     *
+     * <p>
+     * Nothing is done if no maximum action lifetime is configured.
+     * </p>
+     *
+     * @param sessionProxy the session proxy to be added.
+     */
+    public void addToReclamation(SessionProxyImpl sessionProxy) {
+        if (maxActionLifetimeInMillis <= 0 || sessionProxy.isFinished()) {
+            return;
+        }
+        sessionsToReclaim.schedule(sessionProxy,
+                timingProvider.provideTimestampInMilliseconds() + maxActionLifetimeInMillis);
+    }
+
+    /**
+     * Removes the given session proxy from being checked for leaked objects.
+     *
+     * @param sessionProxy the session proxy to be removed.
+     */
+    public void removeFromReclamation(SessionProxyImpl sessionProxy) {
+        sessionsToReclaim.remove(sessionProxy);
+    }
+
+    List<SessionProxyImpl> getSessionsToReclaim() {
+        return sessionsToReclaim.getScheduledObjects();
+    }
+
+    /**
+     * Returns the counters of the objects which have been closed forcefully.
+     */
+    public ReclamationCounters getReclamationCounters() {
+        return reclamationCounters;
     }
 }
@@ -16,6 +16,7 @@
 
 package com.dynatrace.openkit.core.caching;
 
+import java.util.List;
 import java.util.Observer;
 import java.util.Set;
 
@@ -31,6 +32,13 @@ public interface BeaconCache {
      */
     void addObserver(Observer o);
 
+    /**
+     * Add a {@link PriorityDataListener} which gets notified after priority event data got inserted.
+     *
+     * @param listener Listener to add.
+     */
+    void addPriorityDataListener(PriorityDataListener listener);
+
     /**
      * Add event data for a given {@code key} to this cache.
      *
@@ -44,6 +52,35 @@ public interface BeaconCache {
      */
     void addEventData(BeaconKey key, long timestamp, String data);
 
+    /**
+     * Add multiple event data records for a given {@code key} to this cache.
+     *
+     * <p>
+     * All records are added while holding the beacon's lock once and registered observers are notified once,
+     * after all event data has been added.
+     * </p>
+     *
+     * @param key The key of the beacon (aka Session ID and Session seq. no.) for which to add event data.
+     * @param timestamp The timestamp of all records.
+     * @param data serialized event data to add, one element per record.
+     */
+    void addEventData(BeaconKey key, long timestamp, List<String> data);
+
+    /**
+     * Add priority event data (crashes & errors) for a given {@code key} to this cache.
+     *
+     * <p>
+     * Priority event data is sent before any other data of the beacon and is protected from
+     * {@link #evictLowPriorityRecordsByNumber(BeaconKey, int) low priority eviction}.
+     * All registered observers and priority data listeners are notified, after the event data has been added.
+     * </p>
+     *
+     * @param key The key of the beacon (aka Session ID and Session seq. no.) for which to add event data.
+     * @param timestamp The data's timestamp.
+     * @param data serialized event data to add.
+     */
+    void addPriorityEventData(BeaconKey key, long timestamp, String data);
+
     /**
      * Add action data for a given {@code beaconID} to this cache.
      *
@@ -77,6 +114,29 @@ public interface BeaconCache {
      */
     String getNextBeaconChunk(BeaconKey key, String chunkPrefix, int maxSize, char delimiter);
 
+    /**
+     * Get the next chunk of priority data (crashes & errors) for sending to the backend.
+     *
+     * <p>
+     * Only priority data is included in the chunks, event and action data remain in the cache for the next
+     * {@link #getNextBeaconChunk(BeaconKey, String, int, char) regular send}. Chunked data is removed or reset
+     * the same way as chunks retrieved via {@link #getNextBeaconChunk(BeaconKey, String, int, char)}.
+     * </p>
+     *
+     * <p>
+     * Note: This method must only be invoked from the beacon sending thread.
+     * </p>
+     *
+     * @param key The key of the beacon for which to get the next chunk.
+     * @param chunkPrefix Prefix to append to the beginning of the chunk.
+     * @param maxSize Maximum chunk size. As soon as chunk's size is greater than or equal to maxSize result is returned.
+     * @param delimiter Delimiter between consecutive chunks.
+     *
+     * @return {@code null} if given {@code key} does not exist, an empty string, if there is no more priority data
+     * to send or the next chunk to send.
+     */
+    String getNextPriorityChunk(BeaconKey key, String chunkPrefix, int maxSize, char delimiter);
+
     /**
      * Remove all data that was previously included in chunks.
      *
@@ -130,6 +190,11 @@ public interface BeaconCache {
     /**
      * Evict {@link BeaconCacheRecord beacon cache records} by number for given beacon.
      *
+     * <p>
+     * Low priority records are evicted first, priority records are only evicted if there are no low priority
+     * records left for the given beacon.
+     * </p>
+     *
      * @param key   The key identifying a beacon beacon.
      * @param numRecords The maximum number of records to evict.
      *
@@ -137,6 +202,20 @@ public interface BeaconCache {
      */
     int evictRecordsByNumber(BeaconKey key, int numRecords);
 
+    /**
+     * Evict low priority {@link BeaconCacheRecord beacon cache records} by number for given beacon.
+     *
+     * <p>
+     * Priority records (crashes & errors) are never evicted by this method.
+     * </p>
+     *
+     * @param key   The key identifying a beacon beacon.
+     * @param numRecords The maximum number of records to evict.
+     *
+     * @return Returns the number of evicted cache records.
+     */
+    int evictLowPriorityRecordsByNumber(BeaconKey key, int numRecords);
+
     /**
      * Get number of bytes currently stored in cache.
      *
@@ -151,4 +230,12 @@ public interface BeaconCache {
      * @return {@code true} if the cached entry is empty, {@code false} otherwise.
      */
     boolean isEmpty(BeaconKey key);
+
+    /**
+     * Tests if the cached entry for {@code key} contains priority data, which was not sent so far.
+     *
+     * @param key The key identifying a beacon.
+     * @return {@code true} if the cached entry has priority data, {@code false} otherwise.
+     */
+    boolean hasPriorityData(BeaconKey key);
 }
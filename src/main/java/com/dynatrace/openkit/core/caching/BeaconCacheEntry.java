@@ -33,6 +33,11 @@ import java.util.concurrent.locks.ReentrantLock;
  */
 class BeaconCacheEntry {
 
+    /**
+     * List storing all active priority event data (crashes & errors).
+     */
+    private LinkedList<BeaconCacheRecord> priorityData = new LinkedList<BeaconCacheRecord>();
+
     /**
      * List storing all active event data.
      */
@@ -48,6 +53,10 @@ class BeaconCacheEntry {
      */
     private final Lock lock = new ReentrantLock();
 
+    /**
+     * List storing all priority event data being sent.
+     */
+    private LinkedList<BeaconCacheRecord> priorityDataBeingSent;
     /**
      * List storing all event data being sent.
      */
@@ -83,6 +92,20 @@ class BeaconCacheEntry {
         lock.unlock();
     }
 
+    /**
+     * Add new priority event data record to cache.
+     *
+     * <p>
+     * Priority records are chunked before any other data and are evicted last.
+     * </p>
+     *
+     * @param record The new record to add.
+     */
+    void addPriorityData(BeaconCacheRecord record) {
+        priorityData.add(record);
+        totalNumBytes += record.getDataSizeInBytes();
+    }
+
     /**
      * Add new event data record to cache.
      *
@@ -109,7 +132,7 @@ class BeaconCacheEntry {
      * @return {@code true} if data must be copied, {@code false} otherwise.
      */
     boolean needsDataCopyBeforeChunking() {
-        return actionDataBeingSent == null && eventDataBeingSent == null;
+        return actionDataBeingSent == null && eventDataBeingSent == null && priorityDataBeingSent == null;
     }
 
     /**
@@ -118,11 +141,33 @@ class BeaconCacheEntry {
     void copyDataForChunking() {
         actionDataBeingSent = actionData;
         eventDataBeingSent = eventData;
+        priorityDataBeingSent = priorityData;
         actionData = new LinkedList<BeaconCacheRecord>();
         eventData = new LinkedList<BeaconCacheRecord>();
+        priorityData = new LinkedList<BeaconCacheRecord>();
         totalNumBytes = 0; // data which is being sent is not counted
     }
 
+    /**
+     * Copy priority data for sending, while event and action data remain in the cache.
+     *
+     * @return The number of bytes of the copied priority data.
+     */
+    long copyPriorityDataForChunking() {
+        long numBytes = 0;
+        for (BeaconCacheRecord record : priorityData) {
+            numBytes += record.getDataSizeInBytes();
+        }
+
+        actionDataBeingSent = new LinkedList<BeaconCacheRecord>();
+        eventDataBeingSent = new LinkedList<BeaconCacheRecord>();
+        priorityDataBeingSent = priorityData;
+        priorityData = new LinkedList<BeaconCacheRecord>();
+        totalNumBytes -= numBytes; // data which is being sent is not counted
+
+        return numBytes;
+    }
+
     /**
      * Get next data chunk to send to the Dynatrace backend system.
      *
@@ -140,6 +185,7 @@ class BeaconCacheEntry {
 
         if (!hasDataToSend()) {
             // nothing to send - reset to null, so next time lists get copied again
+            priorityDataBeingSent = null;
             eventDataBeingSent = null;
             actionDataBeingSent = null;
             return "";
@@ -154,8 +200,9 @@ class BeaconCacheEntry {
      */
     private boolean hasDataToSend() {
 
-        return (eventDataBeingSent != null && !eventDataBeingSent.isEmpty()) || (actionDataBeingSent != null && !actionDataBeingSent
-            .isEmpty());
+        return (priorityDataBeingSent != null && !priorityDataBeingSent.isEmpty())
+            || (eventDataBeingSent != null && !eventDataBeingSent.isEmpty())
+            || (actionDataBeingSent != null && !actionDataBeingSent.isEmpty());
     }
 
     /**
@@ -176,7 +223,8 @@ class BeaconCacheEntry {
         beaconBuilder.append(chunkPrefix);
 
         // append data from both lists
-        // note the order is currently important -> event data goes first, then action data
+        // note the order is currently important -> priority data goes first, then event data, then action data
+        chunkifyDataList(beaconBuilder, priorityDataBeingSent, maxSize, delimiter);
         chunkifyDataList(beaconBuilder, eventDataBeingSent, maxSize, delimiter);
         chunkifyDataList(beaconBuilder, actionDataBeingSent, maxSize, delimiter);
 
@@ -207,7 +255,17 @@ class BeaconCacheEntry {
             return;
         }
 
-        Iterator<BeaconCacheRecord> iterator = eventDataBeingSent.iterator();
+        Iterator<BeaconCacheRecord> iterator = priorityDataBeingSent.iterator();
+        while (iterator.hasNext() && iterator.next().isMarkedForSending()) {
+            iterator.remove();
+        }
+
+        if (iterator.hasNext()) {
+            // not all priority data has been sent, therefore no other data was marked
+            return;
+        }
+
+        iterator = eventDataBeingSent.iterator();
         while (iterator.hasNext() && iterator.next().isMarkedForSending()) {
             iterator.remove();
         }
@@ -233,6 +291,11 @@ class BeaconCacheEntry {
 
         // reset the "sending marks" and in the same traversal count the bytes which are added back
         long numBytes = 0;
+        for (BeaconCacheRecord record : priorityDataBeingSent) {
+            record.unsetSending();
+            numBytes += record.getDataSizeInBytes();
+        }
+
         for (BeaconCacheRecord record : eventDataBeingSent) {
             record.unsetSending();
             numBytes += record.getDataSizeInBytes();
@@ -244,10 +307,13 @@ class BeaconCacheEntry {
         }
 
         // merge data
+        priorityDataBeingSent.addAll(priorityData);
         eventDataBeingSent.addAll(eventData);
         actionDataBeingSent.addAll(actionData);
+        priorityData = priorityDataBeingSent;
         eventData = eventDataBeingSent;
         actionData = actionDataBeingSent;
+        priorityDataBeingSent = null;
         eventDataBeingSent = null;
         actionDataBeingSent = null;
 
@@ -272,7 +338,7 @@ class BeaconCacheEntry {
     }
 
     /**
-     * Remove all {@link BeaconCacheRecord beacon cache records} from event and action data
+     * Remove all {@link BeaconCacheRecord beacon cache records} from priority, event and action data
      * which are older than given minTimestamp
      *
      * <p>
@@ -286,7 +352,8 @@ class BeaconCacheEntry {
     int removeRecordsOlderThan(long minTimestamp) {
 
 
-        int numRecordsRemoved = removeRecordsOlderThan(eventData, minTimestamp);
+        int numRecordsRemoved = removeRecordsOlderThan(priorityData, minTimestamp);
+        numRecordsRemoved += removeRecordsOlderThan(eventData, minTimestamp);
         numRecordsRemoved += removeRecordsOlderThan(actionData, minTimestamp);
 
         return numRecordsRemoved;
@@ -299,7 +366,7 @@ class BeaconCacheEntry {
      *
      * @return The number of records removed from {@code records}.
      */
-    private static int removeRecordsOlderThan(List<BeaconCacheRecord> records, long minTimestamp) {
+    private int removeRecordsOlderThan(List<BeaconCacheRecord> records, long minTimestamp) {
 
         int numRecordsRemoved = 0;
 
@@ -308,6 +375,7 @@ class BeaconCacheEntry {
             BeaconCacheRecord record = iterator.next();
             if (record.getTimestamp() < minTimestamp) {
                 iterator.remove();
+                totalNumBytes -= record.getDataSizeInBytes();
                 numRecordsRemoved++;
             }
         }
@@ -315,6 +383,32 @@ class BeaconCacheEntry {
         return numRecordsRemoved;
     }
 
+    /**
+     * Remove up to {@code numRecords} records, compared by their age.
+     *
+     * <p>
+     * Low priority records (event & action data) are removed first, see {@link #removeOldestLowPriorityRecords(int)}.
+     * Priority records are only removed, if there are no more low priority records.
+     * </p>
+     *
+     * @param numRecords The number of records.
+     *
+     * @return Number of actually removed records.
+     */
+    int removeOldestRecords(int numRecords) {
+
+        int numRecordsRemoved = removeOldestLowPriorityRecords(numRecords);
+
+        Iterator<BeaconCacheRecord> priorityIterator = priorityData.iterator();
+        BeaconCacheRecord currentPriorityRecord = priorityIterator.hasNext() ? priorityIterator.next() : null;
+        while (numRecordsRemoved < numRecords && currentPriorityRecord != null) {
+            currentPriorityRecord = removeAndAdvanceIterator(priorityIterator, currentPriorityRecord);
+            numRecordsRemoved++;
+        }
+
+        return numRecordsRemoved;
+    }
+
     /**
      * Remove up to {@code numRecords} records from event & action data, compared by their age.
      *
@@ -322,13 +416,14 @@ class BeaconCacheEntry {
      * Note not all event/action data entries are traversed, only the first action data & first event
      * data is removed and compared against each other, which one to remove first. If the first action's timestamp and
      * first event's timestamp are equal, the first event is removed.
+     * Priority records are never removed by this method.
      * </p>
      *
      * @param numRecords The number of records.
      *
      * @return Number of actually removed records.
      */
-    int removeOldestRecords(int numRecords) {
+    int removeOldestLowPriorityRecords(int numRecords) {
 
         int numRecordsRemoved = 0;
 
@@ -341,18 +436,18 @@ class BeaconCacheEntry {
 
             if (currentEvent == null) {
                 // actions is not null -> remove action
-                currentAction = removeAndAdvanceIterator(actionsIterator);
+                currentAction = removeAndAdvanceIterator(actionsIterator, currentAction);
             } else if (currentAction == null) {
                 // events is not null -> remove event
-                currentEvent = removeAndAdvanceIterator(eventsIterator);
+                currentEvent = removeAndAdvanceIterator(eventsIterator, currentEvent);
             } else {
                 // both are not null -> compare by timestamp and take the older one
                 if (currentAction.getTimestamp() < currentEvent.getTimestamp()) {
                     // first action is older than first event
-                    currentAction = removeAndAdvanceIterator(actionsIterator);
+                    currentAction = removeAndAdvanceIterator(actionsIterator, currentAction);
                 } else {
                     // first event is older than first action
-                    currentEvent = removeAndAdvanceIterator(eventsIterator);
+                    currentEvent = removeAndAdvanceIterator(eventsIterator, currentEvent);
                 }
             }
 
@@ -362,11 +457,32 @@ class BeaconCacheEntry {
         return numRecordsRemoved;
     }
 
-    private static <E> E removeAndAdvanceIterator(Iterator<E> iterator) {
+    private BeaconCacheRecord removeAndAdvanceIterator(Iterator<BeaconCacheRecord> iterator, BeaconCacheRecord current) {
         iterator.remove();
+        totalNumBytes -= current.getDataSizeInBytes();
         return iterator.hasNext() ? iterator.next() : null;
     }
 
+    /**
+     * Test if there is priority data, which has not been sent so far.
+     *
+     * @return {@code true} if there is priority data, {@code false} otherwise.
+     */
+    boolean hasPriorityData() {
+        return !priorityData.isEmpty();
+    }
+
+    /**
+     * Get a shallow copy of priority data.
+     *
+     * <p>
+     * This method shall only be used for testing purposes.
+     * </p>
+     */
+    List<BeaconCacheRecord> getPriorityData() {
+        return new LinkedList<BeaconCacheRecord>(priorityData);
+    }
+
     /**
      * Get a shallow copy of event data.
      *
@@ -389,6 +505,17 @@ class BeaconCacheEntry {
         return new LinkedList<BeaconCacheRecord>(actionData);
     }
 
+    /**
+     * Get a readonly list of priority data being sent.
+     *
+     * <p>
+     * This method shall only be used for testing purposes.
+     * </p>
+     */
+    List<BeaconCacheRecord> getPriorityDataBeingSent() {
+        return priorityDataBeingSent == null ? null : Collections.unmodifiableList(priorityDataBeingSent);
+    }
+
     /**
      * Get a readonly list of event data being sent.
      *
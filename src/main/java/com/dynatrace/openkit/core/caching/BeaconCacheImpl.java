@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Observable;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -46,6 +47,7 @@ public class BeaconCacheImpl extends Observable implements BeaconCache {
     private final ReadWriteLock globalCacheLock;
     private final Map<BeaconKey, BeaconCacheEntry> beacons;
     private final AtomicLong cacheSizeInBytes;
+    private final List<PriorityDataListener> priorityDataListeners;
 
     /**
      * Create BeaconCache.
@@ -57,6 +59,12 @@ public class BeaconCacheImpl extends Observable implements BeaconCache {
         globalCacheLock = new ReentrantReadWriteLock();
         beacons = new HashMap<BeaconKey, BeaconCacheEntry>();
         cacheSizeInBytes = new AtomicLong(0L);
+        priorityDataListeners = new CopyOnWriteArrayList<PriorityDataListener>();
+    }
+
+    @Override
+    public void addPriorityDataListener(PriorityDataListener listener) {
+        priorityDataListeners.add(listener);
     }
 
 
@@ -87,6 +95,66 @@ public class BeaconCacheImpl extends Observable implements BeaconCache {
         onDataAdded();
     }
 
+    @Override
+    public void addEventData(BeaconKey key, long timestamp, List<String> data) {
+        if (data.isEmpty()) {
+            return;
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug(getClass().getSimpleName()
+                    + " addEventData(sn=" + key.beaconId + ", seq=" + key.beaconSeqNo
+                    + ", timestamp=" + timestamp + ", records=" + data.size() + ")");
+        }
+        // get a reference to the cache entry
+        BeaconCacheEntry entry = getCachedEntryOrInsert(key);
+
+        long numBytes = 0;
+        try {
+            // lock once and add all the data
+            entry.lock();
+            for (String recordData : data) {
+                BeaconCacheRecord record = new BeaconCacheRecord(timestamp, recordData);
+                entry.addEventData(record);
+                numBytes += record.getDataSizeInBytes();
+            }
+        } finally {
+            entry.unlock();
+        }
+
+        // update cache stats
+        cacheSizeInBytes.addAndGet(numBytes);
+
+        // notify observers
+        onDataAdded();
+    }
+
+    @Override
+    public void addPriorityEventData(BeaconKey key, long timestamp, String data) {
+        if (logger.isDebugEnabled()) {
+            logger.debug(getClass().getSimpleName()
+                    + " addPriorityEventData(sn=" + key.beaconId + ", seq=" + key.beaconSeqNo
+                    + ", timestamp=" + timestamp + ", data='" + data + "')");
+        }
+        // get a reference to the cache entry
+        BeaconCacheEntry entry = getCachedEntryOrInsert(key);
+
+        BeaconCacheRecord record = new BeaconCacheRecord(timestamp, data);
+
+        try {
+            // lock and add the data
+            entry.lock();
+            entry.addPriorityData(record);
+        } finally {
+            entry.unlock();
+        }
+
+        // update cache stats
+        cacheSizeInBytes.addAndGet(record.getDataSizeInBytes());
+
+        // notify observers, passing the key so that they can send the data immediately
+        onPriorityDataAdded(key);
+    }
+
     @Override
     public void addActionData(BeaconKey key, long timestamp, String data) {
         if (logger.isDebugEnabled()) {
@@ -163,6 +231,32 @@ public class BeaconCacheImpl extends Observable implements BeaconCache {
         return entry.getChunk(chunkPrefix, maxSize, delimiter);
     }
 
+    @Override
+    public String getNextPriorityChunk(BeaconKey key, String chunkPrefix, int maxSize, char delimiter) {
+
+        BeaconCacheEntry entry = getCachedEntry(key);
+        if (entry == null) {
+            // a cache entry for the given key does not exist
+            return null;
+        }
+
+        if (entry.needsDataCopyBeforeChunking()) {
+            // prepare only priority data for sending
+            long numBytes;
+            try {
+                entry.lock();
+                numBytes = entry.copyPriorityDataForChunking();
+            } finally {
+                entry.unlock();
+            }
+            // assumption: sending will work fine, and everything we copied will be removed quite soon
+            cacheSizeInBytes.addAndGet(-1L * numBytes);
+        }
+
+        // data for chunking is available
+        return entry.getChunk(chunkPrefix, maxSize, delimiter);
+    }
+
     @Override
     public void removeChunkedData(BeaconKey key) {
 
@@ -260,6 +354,33 @@ public class BeaconCacheImpl extends Observable implements BeaconCache {
         }
     }
 
+    /**
+     * Get a shallow copy of priority events (crashes & errors) collected so far.
+     *
+     * <p>
+     * Although this method is intended for debugging purposes only, it still does appropriate locking.
+     * </p>
+     *
+     * @param key The key of the beacon for which to retrieve the priority events.
+     *
+     * @return List of priority event data.
+     */
+    public String[] getPriorityEvents(BeaconKey key) {
+
+        BeaconCacheEntry entry = getCachedEntry(key);
+        if (entry == null) {
+            // entry not found
+            return new String[0];
+        }
+
+        try {
+            entry.lock();
+            return extractData(entry.getPriorityData());
+        } finally {
+            entry.unlock();
+        }
+    }
+
     /**
      * Get a shallow copy of events that are about to be sent.
      *
@@ -377,13 +498,18 @@ public class BeaconCacheImpl extends Observable implements BeaconCache {
         }
 
         int numRecordsRemoved;
+        long numBytesRemoved;
         try {
             entry.lock();
+            long oldSize = entry.getTotalNumberOfBytes();
             numRecordsRemoved = entry.removeRecordsOlderThan(minTimestamp);
+            numBytesRemoved = oldSize - entry.getTotalNumberOfBytes();
         } finally {
             entry.unlock();
         }
 
+        cacheSizeInBytes.addAndGet(-1L * numBytesRemoved);
+
         if (logger.isDebugEnabled()) {
             logger.debug(getClass().getSimpleName()
                     + " evictRecordsByAge(sn=" + key.beaconId + "seq=" + key.beaconSeqNo
@@ -403,13 +529,18 @@ public class BeaconCacheImpl extends Observable implements BeaconCache {
         }
 
         int numRecordsRemoved;
+        long numBytesRemoved;
         try {
             entry.lock();
+            long oldSize = entry.getTotalNumberOfBytes();
             numRecordsRemoved = entry.removeOldestRecords(numRecords);
+            numBytesRemoved = oldSize - entry.getTotalNumberOfBytes();
         } finally {
             entry.unlock();
         }
 
+        cacheSizeInBytes.addAndGet(-1L * numBytesRemoved);
+
         if (logger.isDebugEnabled()) {
             logger.debug(getClass().getSimpleName()
                     + " evictRecordsByNumber(sn=" + key.beaconId + ", seq=" + key.beaconSeqNo
@@ -418,6 +549,36 @@ public class BeaconCacheImpl extends Observable implements BeaconCache {
         return numRecordsRemoved;
     }
 
+    @Override
+    public int evictLowPriorityRecordsByNumber(BeaconKey key, int numRecords) {
+
+        BeaconCacheEntry entry = getCachedEntry(key);
+        if (entry == null) {
+            // already removed
+            return 0;
+        }
+
+        int numRecordsRemoved;
+        long numBytesRemoved;
+        try {
+            entry.lock();
+            long oldSize = entry.getTotalNumberOfBytes();
+            numRecordsRemoved = entry.removeOldestLowPriorityRecords(numRecords);
+            numBytesRemoved = oldSize - entry.getTotalNumberOfBytes();
+        } finally {
+            entry.unlock();
+        }
+
+        cacheSizeInBytes.addAndGet(-1L * numBytesRemoved);
+
+        if (logger.isDebugEnabled()) {
+            logger.debug(getClass().getSimpleName()
+                    + " evictLowPriorityRecordsByNumber(sn=" + key.beaconId + ", seq=" + key.beaconSeqNo
+                    + ", numRecords=" + numRecords + ") has evicted " + numRecordsRemoved + " records");
+        }
+        return numRecordsRemoved;
+    }
+
     @Override
     public long getNumBytesInCache() {
         return cacheSizeInBytes.get();
@@ -431,6 +592,23 @@ public class BeaconCacheImpl extends Observable implements BeaconCache {
         notifyObservers();
     }
 
+    /**
+     * Call this method when priority data was added.
+     *
+     * <p>
+     * Priority data listeners are notified separately from the observers, since {@link java.util.Observable}
+     * shares one changed flag, so that a concurrent notification would swallow the priority notification.
+     * </p>
+     *
+     * @param key The key of the beacon for which priority data was added.
+     */
+    private void onPriorityDataAdded(BeaconKey key) {
+        onDataAdded();
+        for (PriorityDataListener listener : priorityDataListeners) {
+            listener.onPriorityDataAdded(key);
+        }
+    }
+
     @Override
     public boolean isEmpty(BeaconKey key) {
 
@@ -450,4 +628,24 @@ public class BeaconCacheImpl extends Observable implements BeaconCache {
 
         return isEmpty;
     }
+
+    @Override
+    public boolean hasPriorityData(BeaconKey key) {
+
+        BeaconCacheEntry entry = getCachedEntry(key);
+        if (entry == null) {
+            // already removed
+            return false;
+        }
+
+        boolean hasPriorityData;
+        try {
+            entry.lock();
+            hasPriorityData = entry.hasPriorityData();
+        } finally {
+            entry.unlock();
+        }
+
+        return hasPriorityData;
+    }
 }
@@ -0,0 +1,523 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.caching;
+
+import com.dynatrace.openkit.api.Logger;
+import com.dynatrace.openkit.core.configuration.BeaconOutboxConfiguration;
+import com.dynatrace.openkit.core.configuration.CompressionConfiguration;
+import com.dynatrace.openkit.protocol.GzipCompressor;
+import com.dynatrace.openkit.providers.TimingProvider;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent outbox for beacon data which could not be sent to the server.
+ *
+ * <p>
+ *     Encoded beacon chunks are gzip compressed and appended to segment files in the configured directory.
+ *     Appended records are synced to disk in batches, either when a number of records has been appended since
+ *     the last sync or when {@link #sync()} is called. When a segment exceeds its maximum size, a new segment is started.
+ *     When the outbox exceeds its maximum size, the oldest segments are deleted.
+ * </p>
+ *
+ * <p>
+ *     Segments found in the directory are reloaded when the outbox is created, so that data is kept across restarts.
+ *     A segment is only deleted after all of its records have been drained, therefore records of a partially drained
+ *     segment are sent again after a restart (at-least-once delivery).
+ * </p>
+ *
+ * <p>
+ *     This class is thread safe.
+ * </p>
+ */
+public class BeaconOutbox {
+
+    /** Prefix of segment file names */
+    static final String SEGMENT_FILE_PREFIX = "beacon-outbox-";
+    /** Suffix of segment file names */
+    static final String SEGMENT_FILE_SUFFIX = ".seg";
+    /** Size in bytes from which on a new segment is started */
+    static final long DEFAULT_MAX_SEGMENT_SIZE_IN_BYTES = 1024L * 1024L;
+    /** Number of appended records after which the current segment is synced to disk */
+    static final int DEFAULT_SYNC_BATCH_SIZE = 16;
+
+    /** Size of the record header (payload length and CRC-32 of the payload) */
+    private static final int RECORD_HEADER_SIZE = 4 + 8;
+
+    /**
+     * Callback for sending records drained from the outbox.
+     */
+    public interface RecordSender {
+
+        /**
+         * Send a record drained from the outbox.
+         *
+         * @param clientIPAddress The client IP address the data was reported with, might be {@code null}.
+         * @param routingKey The key used for choosing an endpoint, which the data's beacon was sent with.
+         * @param compressedData The gzip compressed beacon chunk.
+         * @return {@code true} if the record was sent and can be removed from the outbox, {@code false} if draining
+         *         must stop and the record shall be kept.
+         */
+        boolean send(String clientIPAddress, int routingKey, byte[] compressedData);
+    }
+
+    private final Logger logger;
+    private final File directory;
+    private final long maxSizeInBytes;
+    private final long maxRecordAge;
+    private final long maxSegmentSizeInBytes;
+    private final int syncBatchSize;
+    private final TimingProvider timingProvider;
+    private final GzipCompressor compressor = new GzipCompressor(CompressionConfiguration.DEFAULT);
+
+    /** segments which are not written anymore, oldest first */
+    private final LinkedList<File> sealedSegments = new LinkedList<File>();
+    /** records of the oldest sealed segment, which have not been drained yet */
+    private LinkedList<Record> pendingRecords = null;
+    /** total size of all segments in bytes */
+    private long sizeInBytes = 0;
+    private long nextSegmentNumber = 0;
+
+    private File currentSegment = null;
+    private FileOutputStream currentSegmentStream = null;
+    private DataOutputStream currentSegmentWriter = null;
+    private long currentSegmentSize = 0;
+    private int numUnsyncedRecords = 0;
+
+    private boolean isUsable;
+
+    /**
+     * Create a beacon outbox and reload the segments that are already present in the configured directory.
+     *
+     * @param logger Logger for reporting errors.
+     * @param configuration Configuration of the outbox, which must be enabled.
+     * @param timingProvider Provider for the current time, used to expire old records.
+     */
+    public BeaconOutbox(Logger logger, BeaconOutboxConfiguration configuration, TimingProvider timingProvider) {
+        this(logger, configuration, timingProvider, DEFAULT_MAX_SEGMENT_SIZE_IN_BYTES, DEFAULT_SYNC_BATCH_SIZE);
+    }
+
+    BeaconOutbox(Logger logger,
+                 BeaconOutboxConfiguration configuration,
+                 TimingProvider timingProvider,
+                 long maxSegmentSizeInBytes,
+                 int syncBatchSize) {
+        this.logger = logger;
+        this.directory = new File(configuration.getDirectory());
+        this.maxSizeInBytes = configuration.getMaxSizeInBytes();
+        this.maxRecordAge = configuration.getMaxRecordAge();
+        // keep several segments within the maximum size, so that only a part of the outbox is dropped when exceeding it
+        this.maxSegmentSizeInBytes = Math.max(1, Math.min(maxSegmentSizeInBytes, maxSizeInBytes / 4));
+        this.syncBatchSize = syncBatchSize;
+        this.timingProvider = timingProvider;
+
+        isUsable = reload();
+    }
+
+    /**
+     * Scans the outbox directory for segments of a previous run.
+     *
+     * @return {@code true} if the directory is usable, {@code false} otherwise.
+     */
+    private boolean reload() {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            logger.error(getClass().getSimpleName() + " reload() - Cannot create directory " + directory
+                    + ", outbox is disabled");
+            return false;
+        }
+
+        File[] files = directory.listFiles();
+        if (files == null) {
+            logger.error(getClass().getSimpleName() + " reload() - Cannot list directory " + directory
+                    + ", outbox is disabled");
+            return false;
+        }
+
+        Arrays.sort(files); // segment numbers are zero padded, so the name order is the creation order
+        for (File file : files) {
+            long segmentNumber = parseSegmentNumber(file.getName());
+            if (segmentNumber < 0 || !file.isFile()) {
+                continue;
+            }
+            sealedSegments.add(file);
+            sizeInBytes += file.length();
+            nextSegmentNumber = Math.max(nextSegmentNumber, segmentNumber + 1);
+        }
+
+        if (logger.isDebugEnabled() && !sealedSegments.isEmpty()) {
+            logger.debug(getClass().getSimpleName() + " reload() - Reloaded " + sealedSegments.size()
+                    + " segments with " + sizeInBytes + " bytes");
+        }
+
+        return true;
+    }
+
+    private static long parseSegmentNumber(String fileName) {
+        if (!fileName.startsWith(SEGMENT_FILE_PREFIX) || !fileName.endsWith(SEGMENT_FILE_SUFFIX)) {
+            return -1;
+        }
+        String number = fileName.substring(SEGMENT_FILE_PREFIX.length(), fileName.length() - SEGMENT_FILE_SUFFIX.length());
+        try {
+            return Long.parseLong(number);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Appends an encoded beacon chunk to the outbox.
+     *
+     * <p>
+     *     The chunk is compressed before it is stored. If the outbox exceeds its maximum size afterwards,
+     *     the oldest segments are deleted.
+     * </p>
+     *
+     * @param clientIPAddress The client IP address the chunk was reported with, might be {@code null}.
+     * @param routingKey The key used for choosing an endpoint, when the chunk is sent.
+     * @param encodedChunk The encoded beacon chunk.
+     * @return {@code true} if the chunk was stored, {@code false} otherwise.
+     */
+    public synchronized boolean append(String clientIPAddress, int routingKey, byte[] encodedChunk) {
+        if (!isUsable || encodedChunk == null || encodedChunk.length == 0) {
+            return false;
+        }
+
+        byte[] record;
+        try {
+            record = encodeRecord(timingProvider.provideTimestampInMilliseconds(), clientIPAddress, routingKey,
+                    compressor.compress(encodedChunk));
+        } catch (IOException e) {
+            logger.error(getClass().getSimpleName() + " append() - Failed to encode record", e);
+            return false;
+        }
+        if (record.length > maxSizeInBytes) {
+            if (logger.isWarnEnabled()) {
+                logger.warning(getClass().getSimpleName() + " append() - Record of " + record.length
+                        + " bytes exceeds the maximum outbox size, dropping it");
+            }
+            return false;
+        }
+
+        try {
+            if (currentSegmentWriter == null) {
+                openNewSegment();
+            }
+            currentSegmentWriter.write(record);
+        } catch (IOException e) {
+            logger.error(getClass().getSimpleName() + " append() - Failed to write to " + currentSegment, e);
+            sealCurrentSegment();
+            return false;
+        }
+
+        currentSegmentSize += record.length;
+        sizeInBytes += record.length;
+        numUnsyncedRecords++;
+
+        if (currentSegmentSize >= maxSegmentSizeInBytes) {
+            sealCurrentSegment();
+        } else if (numUnsyncedRecords >= syncBatchSize) {
+            sync();
+        }
+
+        while (sizeInBytes > maxSizeInBytes && !sealedSegments.isEmpty()) {
+            if (logger.isWarnEnabled()) {
+                logger.warning(getClass().getSimpleName() + " append() - Outbox exceeds its maximum size, dropping "
+                        + sealedSegments.getFirst());
+            }
+            deleteOldestSegment();
+        }
+
+        return true;
+    }
+
+    private static byte[] encodeRecord(long timestamp, String clientIPAddress, int routingKey, byte[] compressedData)
+            throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(compressedData.length + 64);
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        payload.writeLong(timestamp);
+        payload.writeInt(routingKey);
+        payload.writeUTF(clientIPAddress == null ? "" : clientIPAddress);
+        payload.write(compressedData);
+        payload.flush();
+
+        byte[] payloadData = payloadBytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payloadData);
+
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(RECORD_HEADER_SIZE + payloadData.length);
+        DataOutputStream record = new DataOutputStream(recordBytes);
+        record.writeInt(payloadData.length);
+        record.writeLong(crc.getValue());
+        record.write(payloadData);
+        record.flush();
+
+        return recordBytes.toByteArray();
+    }
+
+    private void openNewSegment() throws IOException {
+        currentSegment = new File(directory, String.format("%s%020d%s", SEGMENT_FILE_PREFIX, nextSegmentNumber, SEGMENT_FILE_SUFFIX));
+        nextSegmentNumber++;
+        currentSegmentStream = new FileOutputStream(currentSegment, true);
+        currentSegmentWriter = new DataOutputStream(new BufferedOutputStream(currentSegmentStream));
+        currentSegmentSize = 0;
+    }
+
+    /**
+     * Flushes all records appended to the current segment to disk.
+     */
+    public synchronized void sync() {
+        if (currentSegmentWriter == null || numUnsyncedRecords == 0) {
+            return;
+        }
+
+        try {
+            currentSegmentWriter.flush();
+            currentSegmentStream.getFD().sync();
+            numUnsyncedRecords = 0;
+        } catch (IOException e) {
+            logger.error(getClass().getSimpleName() + " sync() - Failed to sync " + currentSegment, e);
+        }
+    }
+
+    /**
+     * Syncs and closes the current segment, so that subsequent records are appended to a new segment.
+     */
+    private void sealCurrentSegment() {
+        if (currentSegmentWriter == null) {
+            return;
+        }
+
+        sync();
+        try {
+            currentSegmentWriter.close();
+        } catch (IOException e) {
+            logger.error(getClass().getSimpleName() + " sealCurrentSegment() - Failed to close " + currentSegment, e);
+        }
+        sealedSegments.add(currentSegment);
+
+        currentSegment = null;
+        currentSegmentStream = null;
+        currentSegmentWriter = null;
+        currentSegmentSize = 0;
+        numUnsyncedRecords = 0;
+    }
+
+    private void deleteOldestSegment() {
+        File segment = sealedSegments.removeFirst();
+        pendingRecords = null;
+        sizeInBytes = Math.max(0, sizeInBytes - segment.length());
+        if (!segment.delete() && segment.exists()) {
+            logger.error(getClass().getSimpleName() + " deleteOldestSegment() - Failed to delete " + segment);
+        }
+    }
+
+    /**
+     * Drains records from the outbox, oldest first.
+     *
+     * <p>
+     *     Records older than the maximum record age are dropped without sending them.
+     *     Draining stops, when the given sender fails to send a record, which is then kept in the outbox.
+     * </p>
+     *
+     * @param sender The sender used to send the drained records.
+     * @param maxRecords The maximum number of records to send.
+     * @return The number of records which have been sent.
+     */
+    public synchronized int drain(RecordSender sender, int maxRecords) {
+        if (!isUsable) {
+            return 0;
+        }
+
+        int numSentRecords = 0;
+        long minTimestamp = timingProvider.provideTimestampInMilliseconds() - maxRecordAge;
+        while (numSentRecords < maxRecords) {
+            if (sealedSegments.isEmpty()) {
+                // continue with the records appended recently
+                sealCurrentSegment();
+                if (sealedSegments.isEmpty()) {
+                    break;
+                }
+            }
+            File segment = sealedSegments.getFirst();
+            if (pendingRecords == null) {
+                if (segment.lastModified() < minTimestamp) {
+                    // segment was last written before the oldest allowed record
+                    deleteOldestSegment();
+                    continue;
+                }
+                pendingRecords = readSegment(segment);
+            }
+
+            while (numSentRecords < maxRecords && !pendingRecords.isEmpty()) {
+                Record record = pendingRecords.getFirst();
+                if (record.timestamp >= minTimestamp) {
+                    if (!sender.send(record.clientIPAddress, record.routingKey, record.compressedData)) {
+                        return numSentRecords;
+                    }
+                    numSentRecords++;
+                }
+                pendingRecords.removeFirst();
+            }
+
+            if (pendingRecords.isEmpty()) {
+                deleteOldestSegment();
+            }
+        }
+
+        return numSentRecords;
+    }
+
+    private LinkedList<Record> readSegment(File segment) {
+        LinkedList<Record> records = new LinkedList<Record>();
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(segment)));
+            long remainingBytes = segment.length();
+            while (remainingBytes >= RECORD_HEADER_SIZE) {
+                int payloadLength = input.readInt();
+                long expectedCrc = input.readLong();
+                if (payloadLength <= 0 || payloadLength > remainingBytes - RECORD_HEADER_SIZE) {
+                    logCorruptedSegment(segment);
+                    break;
+                }
+
+                byte[] payload = new byte[payloadLength];
+                input.readFully(payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if (crc.getValue() != expectedCrc) {
+                    logCorruptedSegment(segment);
+                    break;
+                }
+
+                records.add(decodeRecord(payload));
+                remainingBytes -= RECORD_HEADER_SIZE + payloadLength;
+            }
+        } catch (EOFException e) {
+            logCorruptedSegment(segment);
+        } catch (IOException e) {
+            logger.error(getClass().getSimpleName() + " readSegment() - Failed to read " + segment, e);
+        } finally {
+            closeQuietly(input);
+        }
+
+        return records;
+    }
+
+    private static Record decodeRecord(byte[] payload) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+        long timestamp = input.readLong();
+        int routingKey = input.readInt();
+        String clientIPAddress = input.readUTF();
+        byte[] compressedData = new byte[input.available()];
+        input.readFully(compressedData);
+
+        return new Record(timestamp, clientIPAddress.isEmpty() ? null : clientIPAddress, routingKey, compressedData);
+    }
+
+    private void logCorruptedSegment(File segment) {
+        if (logger.isWarnEnabled()) {
+            logger.warning(getClass().getSimpleName() + " readSegment() - " + segment
+                    + " is corrupted, dropping its remaining records");
+        }
+    }
+
+    private void closeQuietly(DataInputStream input) {
+        if (input == null) {
+            return;
+        }
+        try {
+            input.close();
+        } catch (IOException e) {
+            // nothing to do, the data has already been read
+        }
+    }
+
+    /**
+     * Indicates whether the outbox contains any data.
+     *
+     * @return {@code true} if the outbox is empty, {@code false} otherwise.
+     */
+    public synchronized boolean isEmpty() {
+        return sizeInBytes == 0;
+    }
+
+    /**
+     * Get the total size of all segments in bytes.
+     */
+    public synchronized long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * Get the names of all segment files, oldest first. Intended to be used by unit tests only.
+     */
+    synchronized List<String> getSegmentFileNames() {
+        List<String> names = new ArrayList<String>(sealedSegments.size() + 1);
+        for (File segment : sealedSegments) {
+            names.add(segment.getName());
+        }
+        if (currentSegment != null) {
+            names.add(currentSegment.getName());
+        }
+        return names;
+    }
+
+    /**
+     * Syncs the current segment to disk and releases all resources.
+     *
+     * <p>
+     *     Data appended afterwards is written to a new segment.
+     * </p>
+     */
+    public synchronized void close() {
+        sealCurrentSegment();
+        compressor.close();
+    }
+
+    /**
+     * A single record read from a segment.
+     */
+    private static final class Record {
+        private final long timestamp;
+        private final String clientIPAddress;
+        private final int routingKey;
+        private final byte[] compressedData;
+
+        private Record(long timestamp, String clientIPAddress, int routingKey, byte[] compressedData) {
+            this.timestamp = timestamp;
+            this.clientIPAddress = clientIPAddress;
+            this.routingKey = routingKey;
+            this.compressedData = compressedData;
+        }
+    }
+}
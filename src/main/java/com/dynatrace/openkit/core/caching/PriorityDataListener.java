@@ -0,0 +1,30 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.caching;
+
+/**
+ * Listener which gets notified when priority event data (crashes & errors) is added to the {@link BeaconCache}.
+ */
+public interface PriorityDataListener {
+
+    /**
+     * Called after priority event data was added to the beacon cache.
+     *
+     * @param key The key of the beacon for which priority data was added.
+     */
+    void onPriorityDataAdded(BeaconKey key);
+}
@@ -0,0 +1,355 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.caching;
+
+import com.dynatrace.openkit.api.Logger;
+import com.dynatrace.openkit.core.configuration.ServerConfigurationStoreConfiguration;
+import com.dynatrace.openkit.protocol.ResponseAttribute;
+import com.dynatrace.openkit.protocol.ResponseAttributes;
+import com.dynatrace.openkit.protocol.ResponseAttributesImpl;
+import com.dynatrace.openkit.providers.TimingProvider;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+/**
+ * Persistent store for the last {@link ResponseAttributes} received from the server.
+ *
+ * <p>
+ *     The response attributes are stored in a file per endpoint URL and application ID, together with the
+ *     timestamp when they were stored. After a restart the stored attributes are used as provisional server
+ *     configuration, until the first response from the server is received.
+ * </p>
+ *
+ * <p>
+ *     Unchanged attributes are only rewritten, once half of the maximum age has passed since they were stored,
+ *     so that receiving the same configuration over and over again does not cause disk writes.
+ *     Files are written to a temporary file first and renamed afterwards, so that a crash while writing
+ *     does not leave a truncated file behind.
+ * </p>
+ *
+ * <p>
+ *     This class is thread safe.
+ * </p>
+ */
+public class ServerConfigurationStore {
+
+    /** Prefix of store file names */
+    static final String FILE_PREFIX = "server-configuration-";
+    /** Suffix of store file names */
+    static final String FILE_SUFFIX = ".properties";
+
+    private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+    private static final String KEY_ENDPOINT_URL = "endpointURL";
+    private static final String KEY_APPLICATION_ID = "applicationID";
+    private static final String KEY_STORED_AT = "storedAt";
+    private static final String KEY_ATTRIBUTE_PREFIX = "attribute.";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final Logger logger;
+    private final File directory;
+    private final File file;
+    private final String endpointURL;
+    private final String applicationID;
+    private final long maxAge;
+    private final TimingProvider timingProvider;
+
+    /** attributes which were stored last, {@code null} if nothing has been stored yet */
+    private Properties lastStoredAttributes = null;
+    /** timestamp when {@link #lastStoredAttributes} were stored */
+    private long lastStoredAt = 0;
+
+    /**
+     * Create a server configuration store.
+     *
+     * @param logger Logger for reporting errors.
+     * @param configuration Configuration of the store, which must be enabled.
+     * @param endpointURL The endpoint URL for which the configuration is stored.
+     * @param applicationID The application ID for which the configuration is stored.
+     * @param timingProvider Provider for the current time, used to expire old configurations.
+     */
+    public ServerConfigurationStore(Logger logger,
+                                    ServerConfigurationStoreConfiguration configuration,
+                                    String endpointURL,
+                                    String applicationID,
+                                    TimingProvider timingProvider) {
+        this.logger = logger;
+        this.directory = new File(configuration.getDirectory());
+        this.file = new File(directory, FILE_PREFIX + hash(endpointURL + '\n' + applicationID) + FILE_SUFFIX);
+        this.endpointURL = endpointURL;
+        this.applicationID = applicationID;
+        this.maxAge = configuration.getMaxAge();
+        this.timingProvider = timingProvider;
+    }
+
+    /**
+     * Returns a hex encoded SHA-1 hash of the given key, which is safe to be used as file name.
+     */
+    private static String hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes("UTF-8"));
+            char[] hex = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                hex[2 * i] = HEX_DIGITS[(digest[i] >> 4) & 0x0F];
+                hex[2 * i + 1] = HEX_DIGITS[digest[i] & 0x0F];
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-1 is required to be supported by every Java platform
+            return Integer.toHexString(key.hashCode());
+        } catch (UnsupportedEncodingException e) {
+            // UTF-8 is required to be supported by every Java platform
+            return Integer.toHexString(key.hashCode());
+        }
+    }
+
+    /**
+     * Loads the stored response attributes.
+     *
+     * @return The stored response attributes or {@code null} if nothing was stored, the stored attributes
+     *         belong to a different endpoint or application, are older than the maximum age or cannot be read.
+     */
+    public synchronized ResponseAttributes load() {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        Properties properties = new Properties();
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            properties.load(in);
+        } catch (IOException e) {
+            logger.error(getClass().getSimpleName() + " load() - Failed to read " + file, e);
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+
+        if (!endpointURL.equals(properties.getProperty(KEY_ENDPOINT_URL))
+                || !applicationID.equals(properties.getProperty(KEY_APPLICATION_ID))) {
+            if (logger.isWarnEnabled()) {
+                logger.warning(getClass().getSimpleName() + " load() - " + file
+                        + " belongs to a different endpoint or application");
+            }
+            return null;
+        }
+
+        try {
+            long storedAt = Long.parseLong(properties.getProperty(KEY_STORED_AT));
+            long age = timingProvider.provideTimestampInMilliseconds() - storedAt;
+            if (age > maxAge) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug(getClass().getSimpleName() + " load() - Stored server configuration expired "
+                            + age + "ms ago");
+                }
+                return null;
+            }
+
+            ResponseAttributes attributes = toResponseAttributes(properties);
+            if (logger.isDebugEnabled()) {
+                logger.debug(getClass().getSimpleName() + " load() - Loaded server configuration stored "
+                        + age + "ms ago");
+            }
+            return attributes;
+        } catch (NumberFormatException e) {
+            logger.error(getClass().getSimpleName() + " load() - " + file + " is corrupted", e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the given response attributes.
+     *
+     * @param attributes The response attributes to store.
+     * @return {@code true} if the attributes are stored, {@code false} if writing them failed.
+     */
+    public synchronized boolean store(ResponseAttributes attributes) {
+        Properties properties = toProperties(attributes);
+        long currentTimestamp = timingProvider.provideTimestampInMilliseconds();
+        if (properties.equals(lastStoredAttributes) && currentTimestamp - lastStoredAt < maxAge / 2) {
+            return true;
+        }
+
+        Properties content = new Properties();
+        content.putAll(properties);
+        content.setProperty(KEY_ENDPOINT_URL, endpointURL);
+        content.setProperty(KEY_APPLICATION_ID, applicationID);
+        content.setProperty(KEY_STORED_AT, String.valueOf(currentTimestamp));
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            logger.error(getClass().getSimpleName() + " store() - Cannot create directory " + directory);
+            return false;
+        }
+
+        File temporaryFile = new File(directory, file.getName() + TEMPORARY_FILE_SUFFIX);
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(temporaryFile);
+            content.store(out, "OpenKit server configuration");
+            out.getFD().sync();
+        } catch (IOException e) {
+            logger.error(getClass().getSimpleName() + " store() - Failed to write " + temporaryFile, e);
+            closeQuietly(out);
+            temporaryFile.delete();
+            return false;
+        }
+        closeQuietly(out);
+
+        // renaming onto an existing file fails on some platforms
+        if (!temporaryFile.renameTo(file) && !(file.delete() && temporaryFile.renameTo(file))) {
+            logger.error(getClass().getSimpleName() + " store() - Failed to rename " + temporaryFile + " to " + file);
+            temporaryFile.delete();
+            return false;
+        }
+
+        lastStoredAttributes = properties;
+        lastStoredAt = currentTimestamp;
+        return true;
+    }
+
+    /**
+     * Returns the file in which the response attributes are stored.
+     */
+    File getFile() {
+        return file;
+    }
+
+    private static Properties toProperties(ResponseAttributes attributes) {
+        Properties properties = new Properties();
+        for (ResponseAttribute attribute : ResponseAttribute.values()) {
+            if (attributes.isAttributeSet(attribute)) {
+                properties.setProperty(KEY_ATTRIBUTE_PREFIX + attribute.name(), valueOf(attributes, attribute));
+            }
+        }
+        return properties;
+    }
+
+    private static String valueOf(ResponseAttributes attributes, ResponseAttribute attribute) {
+        switch (attribute) {
+            case MAX_BEACON_SIZE:
+                return String.valueOf(attributes.getMaxBeaconSizeInBytes());
+            case MAX_SESSION_DURATION:
+                return String.valueOf(attributes.getMaxSessionDurationInMilliseconds());
+            case MAX_EVENTS_PER_SESSION:
+                return String.valueOf(attributes.getMaxEventsPerSession());
+            case SESSION_TIMEOUT:
+                return String.valueOf(attributes.getSessionTimeoutInMilliseconds());
+            case SEND_INTERVAL:
+                return String.valueOf(attributes.getSendIntervalInMilliseconds());
+            case VISIT_STORE_VERSION:
+                return String.valueOf(attributes.getVisitStoreVersion());
+            case IS_CAPTURE:
+                return String.valueOf(attributes.isCapture());
+            case IS_CAPTURE_CRASHES:
+                return String.valueOf(attributes.isCaptureCrashes());
+            case IS_CAPTURE_ERRORS:
+                return String.valueOf(attributes.isCaptureErrors());
+            case APPLICATION_ID:
+                return attributes.getApplicationId();
+            case MULTIPLICITY:
+                return String.valueOf(attributes.getMultiplicity());
+            case SERVER_ID:
+                return String.valueOf(attributes.getServerId());
+            case STATUS:
+                return attributes.getStatus();
+            case TIMESTAMP:
+                return String.valueOf(attributes.getTimestampInMilliseconds());
+            default:
+                throw new IllegalArgumentException("Unknown response attribute " + attribute);
+        }
+    }
+
+    private static ResponseAttributes toResponseAttributes(Properties properties) {
+        ResponseAttributesImpl.Builder builder = ResponseAttributesImpl.withUndefinedDefaults();
+        for (ResponseAttribute attribute : ResponseAttribute.values()) {
+            String value = properties.getProperty(KEY_ATTRIBUTE_PREFIX + attribute.name());
+            if (value != null) {
+                apply(builder, attribute, value);
+            }
+        }
+        return builder.build();
+    }
+
+    private static void apply(ResponseAttributesImpl.Builder builder, ResponseAttribute attribute, String value) {
+        switch (attribute) {
+            case MAX_BEACON_SIZE:
+                builder.withMaxBeaconSizeInBytes(Integer.parseInt(value));
+                break;
+            case MAX_SESSION_DURATION:
+                builder.withMaxSessionDurationInMilliseconds(Integer.parseInt(value));
+                break;
+            case MAX_EVENTS_PER_SESSION:
+                builder.withMaxEventsPerSession(Integer.parseInt(value));
+                break;
+            case SESSION_TIMEOUT:
+                builder.withSessionTimeoutInMilliseconds(Integer.parseInt(value));
+                break;
+            case SEND_INTERVAL:
+                builder.withSendIntervalInMilliseconds(Integer.parseInt(value));
+                break;
+            case VISIT_STORE_VERSION:
+                builder.withVisitStoreVersion(Integer.parseInt(value));
+                break;
+            case IS_CAPTURE:
+                builder.withCapture(Boolean.parseBoolean(value));
+                break;
+            case IS_CAPTURE_CRASHES:
+                builder.withCaptureCrashes(Boolean.parseBoolean(value));
+                break;
+            case IS_CAPTURE_ERRORS:
+                builder.withCaptureErrors(Boolean.parseBoolean(value));
+                break;
+            case APPLICATION_ID:
+                builder.withApplicationId(value);
+                break;
+            case MULTIPLICITY:
+                builder.withMultiplicity(Integer.parseInt(value));
+                break;
+            case SERVER_ID:
+                builder.withServerId(Integer.parseInt(value));
+                break;
+            case STATUS:
+                builder.withStatus(value);
+                break;
+            case TIMESTAMP:
+                builder.withTimestampInMilliseconds(Long.parseLong(value));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown response attribute " + attribute);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+}
@@ -105,14 +105,45 @@ class SpaceEvictionStrategy implements BeaconCacheEvictionStrategy {
 
     /**
      * Performs execution of strategy.
+     *
+     * <p>
+     * Low priority records of all beacons are evicted first. Priority records (crashes & errors) are only evicted,
+     * if the cache still exceeds the lower bound after all low priority records have been evicted.
+     * </p>
      */
     private void doExecute() {
 
         Map<BeaconKey, Integer> removedRecordsPerBeacon = new HashMap<BeaconKey, Integer>();
 
+        if (!evictRecords(removedRecordsPerBeacon, true)) {
+            // no more low priority records left
+            evictRecords(removedRecordsPerBeacon, false);
+        }
+
+        if (logger.isDebugEnabled()) {
+            for (Map.Entry<BeaconKey, Integer> entries : removedRecordsPerBeacon.entrySet()) {
+                logger.debug(getClass().getSimpleName() + " doExecute()  - Removed " + entries.getValue() + " records from Beacon with key " + entries.getKey());
+            }
+        }
+    }
+
+    /**
+     * Evict records round robin from all beacons, until the cache size is less than or equal to the lower bound
+     * or no more records can be evicted.
+     *
+     * @param removedRecordsPerBeacon Number of removed records per beacon, which is updated if debug is enabled.
+     * @param lowPriorityOnly {@code true} if only low priority records shall be evicted, {@code false} otherwise.
+     *
+     * @return {@code false} if eviction stopped, because there were no more records to evict, {@code true} otherwise.
+     */
+    private boolean evictRecords(Map<BeaconKey, Integer> removedRecordsPerBeacon, boolean lowPriorityOnly) {
+
+        boolean hasEvictedRecords = true;
         while (!Thread.currentThread().isInterrupted()
+            && hasEvictedRecords
             && beaconCache.getNumBytesInCache() > configuration.getCacheSizeLowerBound()) {
 
+            hasEvictedRecords = false;
             Set<BeaconKey> beaconKeys = beaconCache.getBeaconKeys();
 
             Iterator<BeaconKey> iterator = beaconKeys.iterator();
@@ -124,7 +155,12 @@ class SpaceEvictionStrategy implements BeaconCacheEvictionStrategy {
 
                 // remove 1 record from Beacon cache for given beaconKey
                 // the result is the number of records removed, which might be in range [0, numRecords=1]
-                int numRecordsRemoved = beaconCache.evictRecordsByNumber(beaconKey, 1);
+                int numRecordsRemoved = lowPriorityOnly
+                    ? beaconCache.evictLowPriorityRecordsByNumber(beaconKey, 1)
+                    : beaconCache.evictRecordsByNumber(beaconKey, 1);
+                if (numRecordsRemoved > 0) {
+                    hasEvictedRecords = true;
+                }
 
                 if (logger.isDebugEnabled()) {
                     if (!removedRecordsPerBeacon.containsKey(beaconKey)) {
@@ -136,10 +172,6 @@ class SpaceEvictionStrategy implements BeaconCacheEvictionStrategy {
             }
         }
 
-        if (logger.isDebugEnabled()) {
-            for (Map.Entry<BeaconKey, Integer> entries : removedRecordsPerBeacon.entrySet()) {
-                logger.debug(getClass().getSimpleName() + " doExecute()  - Removed " + entries.getValue() + " records from Beacon with key " + entries.getKey());
-            }
-        }
+        return hasEvictedRecords;
     }
 }
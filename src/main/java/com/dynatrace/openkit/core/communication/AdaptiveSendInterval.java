@@ -0,0 +1,218 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.communication;
+
+import com.dynatrace.openkit.api.Logger;
+import com.dynatrace.openkit.core.caching.BeaconCache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adapts the send interval for open sessions to the beacon cache's fill level and the collector's response latency.
+ *
+ * <p>
+ * The send interval configured by the server is multiplied by a factor, which is
+ * <ul>
+ *     <li>shortened, when the beacon cache fills up towards its upper memory boundary, so that data is sent
+ *     before the cache evictor needs to drop it</li>
+ *     <li>stretched, when the average time needed for sending a session's beacon exceeds
+ *     {@link #LATENCY_THRESHOLD_IN_MILLIS}, so that a slow collector is not put under even more load</li>
+ * </ul>
+ * The factor is bounded by {@link #MIN_INTERVAL_FACTOR} and {@link #MAX_INTERVAL_FACTOR}, so the effective send
+ * interval always stays within the same order of magnitude as the interval configured by the server.
+ * </p>
+ *
+ * <p>
+ * The decisions are exposed as metrics via the getters of this class. Every change of the effective send interval
+ * is counted either as shortened or as stretched.
+ * </p>
+ *
+ * <p>
+ * This class is thread safe, since response latencies are reported by the beacon sending workers.
+ * </p>
+ */
+public class AdaptiveSendInterval {
+
+    /** smallest factor applied to the server's send interval */
+    static final double MIN_INTERVAL_FACTOR = 0.25;
+    /** largest factor applied to the server's send interval */
+    static final double MAX_INTERVAL_FACTOR = 4.0;
+    /** cache fill ratio (relative to the upper memory boundary) from which on the send interval is shortened */
+    static final double CACHE_PRESSURE_START_RATIO = 0.25;
+    /** cache fill ratio (relative to the upper memory boundary) at which the send interval is shortest */
+    static final double CACHE_PRESSURE_FULL_RATIO = 0.75;
+    /** average response latency from which on the send interval is stretched */
+    static final long LATENCY_THRESHOLD_IN_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    /** weight of a new latency sample in the exponentially weighted moving average */
+    static final double LATENCY_SMOOTHING_FACTOR = 0.2;
+
+    private final Logger logger;
+    /** beacon cache whose fill level is observed, might be {@code null} */
+    private final BeaconCache beaconCache;
+    /** number of bytes in the beacon cache, from which on the cache evictor drops data */
+    private final long cacheSizeUpperBound;
+
+    /** exponentially weighted moving average of the response latency, negative if nothing was measured yet */
+    private double averageLatency = -1;
+    /** cache fill ratio of the last calculation */
+    private double cacheFillRatio = 0;
+    /** effective send interval of the last calculation, negative if nothing was calculated yet */
+    private long effectiveSendInterval = -1;
+    /** number of times the effective send interval was shortened */
+    private long numShortenedIntervals = 0;
+    /** number of times the effective send interval was stretched */
+    private long numStretchedIntervals = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param logger Logger for logging changes of the send interval.
+     * @param beaconCache The beacon cache whose fill level is observed or {@code null} to ignore the cache.
+     * @param cacheSizeUpperBound The number of bytes in the beacon cache, from which on the cache evictor drops data.
+     */
+    public AdaptiveSendInterval(Logger logger, BeaconCache beaconCache, long cacheSizeUpperBound) {
+        this.logger = logger;
+        this.beaconCache = beaconCache;
+        this.cacheSizeUpperBound = cacheSizeUpperBound;
+    }
+
+    /**
+     * Records the time it took to send a beacon to the collector.
+     *
+     * @param latencyInMillis The time in milliseconds from sending the request until the response was received.
+     */
+    public synchronized void recordResponseLatency(long latencyInMillis) {
+        long latency = Math.max(0L, latencyInMillis);
+        if (averageLatency < 0) {
+            averageLatency = latency;
+        } else {
+            averageLatency += LATENCY_SMOOTHING_FACTOR * (latency - averageLatency);
+        }
+    }
+
+    /**
+     * Calculates the effective send interval from the send interval configured by the server.
+     *
+     * @param sendInterval The send interval configured by the server in milliseconds.
+     * @return The effective send interval in milliseconds.
+     */
+    public synchronized long calculateSendInterval(long sendInterval) {
+        if (sendInterval <= 0) {
+            return sendInterval;
+        }
+
+        cacheFillRatio = calculateCacheFillRatio();
+        double factor = cachePressureFactor(cacheFillRatio) * latencyFactor(averageLatency);
+        factor = Math.max(MIN_INTERVAL_FACTOR, Math.min(MAX_INTERVAL_FACTOR, factor));
+
+        long newSendInterval = Math.max(1L, Math.round(sendInterval * factor));
+        long previousSendInterval = effectiveSendInterval < 0 ? sendInterval : effectiveSendInterval;
+        if (newSendInterval != previousSendInterval) {
+            if (newSendInterval < previousSendInterval) {
+                numShortenedIntervals++;
+            } else {
+                numStretchedIntervals++;
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug(getClass().getSimpleName() + " calculateSendInterval() - send interval changed from "
+                        + previousSendInterval + "ms to " + newSendInterval + "ms (server: " + sendInterval
+                        + "ms, cache fill ratio: " + cacheFillRatio + ", average latency: " + averageLatency + "ms)");
+            }
+        }
+        effectiveSendInterval = newSendInterval;
+
+        return newSendInterval;
+    }
+
+    private double calculateCacheFillRatio() {
+        if (beaconCache == null || cacheSizeUpperBound <= 0) {
+            return 0;
+        }
+        return (double) beaconCache.getNumBytesInCache() / cacheSizeUpperBound;
+    }
+
+    /**
+     * Returns the factor shortening the send interval for the given cache fill ratio.
+     *
+     * <p>
+     * The factor decreases linearly from {@code 1} at {@link #CACHE_PRESSURE_START_RATIO} down to
+     * {@link #MIN_INTERVAL_FACTOR} at {@link #CACHE_PRESSURE_FULL_RATIO}.
+     * </p>
+     */
+    static double cachePressureFactor(double cacheFillRatio) {
+        if (cacheFillRatio <= CACHE_PRESSURE_START_RATIO) {
+            return 1.0;
+        }
+        if (cacheFillRatio >= CACHE_PRESSURE_FULL_RATIO) {
+            return MIN_INTERVAL_FACTOR;
+        }
+        double pressure = (cacheFillRatio - CACHE_PRESSURE_START_RATIO)
+                / (CACHE_PRESSURE_FULL_RATIO - CACHE_PRESSURE_START_RATIO);
+        return 1.0 - pressure * (1.0 - MIN_INTERVAL_FACTOR);
+    }
+
+    /**
+     * Returns the factor stretching the send interval for the given average latency.
+     *
+     * <p>
+     * The factor is {@code 1} up to {@link #LATENCY_THRESHOLD_IN_MILLIS} and grows proportionally to the latency
+     * above it, at most up to {@link #MAX_INTERVAL_FACTOR}.
+     * </p>
+     */
+    static double latencyFactor(double averageLatency) {
+        if (averageLatency <= LATENCY_THRESHOLD_IN_MILLIS) {
+            return 1.0;
+        }
+        return Math.min(MAX_INTERVAL_FACTOR, averageLatency / LATENCY_THRESHOLD_IN_MILLIS);
+    }
+
+    /**
+     * Returns the effective send interval of the last calculation in milliseconds or {@code -1} if nothing
+     * was calculated yet.
+     */
+    public synchronized long getEffectiveSendInterval() {
+        return effectiveSendInterval;
+    }
+
+    /**
+     * Returns the beacon cache fill ratio, relative to its upper memory boundary, of the last calculation.
+     */
+    public synchronized double getCacheFillRatio() {
+        return cacheFillRatio;
+    }
+
+    /**
+     * Returns the average response latency in milliseconds or {@code -1} if nothing was measured yet.
+     */
+    public synchronized double getAverageResponseLatency() {
+        return averageLatency;
+    }
+
+    /**
+     * Returns how often the effective send interval was shortened.
+     */
+    public synchronized long getNumShortenedIntervals() {
+        return numShortenedIntervals;
+    }
+
+    /**
+     * Returns how often the effective send interval was stretched.
+     */
+    public synchronized long getNumStretchedIntervals() {
+        return numStretchedIntervals;
+    }
+}
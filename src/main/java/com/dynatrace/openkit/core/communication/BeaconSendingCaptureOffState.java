@@ -16,6 +16,7 @@
 
 package com.dynatrace.openkit.core.communication;
 
+import com.dynatrace.openkit.protocol.RetryPolicy;
 import com.dynatrace.openkit.protocol.StatusResponse;
 
 import java.util.concurrent.TimeUnit;
@@ -39,6 +40,7 @@ class BeaconSendingCaptureOffState extends AbstractBeaconSendingState {
      */
     private static final int STATUS_REQUEST_RETRIES = 5;
     private static final long INITIAL_RETRY_SLEEP_TIME_MILLISECONDS = TimeUnit.SECONDS.toMillis(1);
+    private static final long MAX_RETRY_SLEEP_TIME_MILLISECONDS = TimeUnit.MINUTES.toMillis(1);
 
     /**
      * maximum time to wait till next status check
@@ -50,6 +52,11 @@ class BeaconSendingCaptureOffState extends AbstractBeaconSendingState {
      */
     final long sleepTimeInMilliseconds;
 
+    /**
+     * Retry policy for the status request.
+     */
+    private final RetryPolicy statusRequestRetryPolicy;
+
     /**
      * Create CaptureOff state with default sleep behavior.
      */
@@ -63,8 +70,20 @@ class BeaconSendingCaptureOffState extends AbstractBeaconSendingState {
      * @param sleepTimeInMilliseconds The number of milliseconds to sleep.
      */
     BeaconSendingCaptureOffState(long sleepTimeInMilliseconds) {
+        this(sleepTimeInMilliseconds,
+                new RetryPolicy(STATUS_REQUEST_RETRIES, INITIAL_RETRY_SLEEP_TIME_MILLISECONDS, MAX_RETRY_SLEEP_TIME_MILLISECONDS));
+    }
+
+    /**
+     * Create CaptureOff state with explicitly set sleep time and status request retry policy.
+     *
+     * @param sleepTimeInMilliseconds The number of milliseconds to sleep.
+     * @param statusRequestRetryPolicy The retry policy used for the status request.
+     */
+    BeaconSendingCaptureOffState(long sleepTimeInMilliseconds, RetryPolicy statusRequestRetryPolicy) {
         super(false);
         this.sleepTimeInMilliseconds = sleepTimeInMilliseconds;
+        this.statusRequestRetryPolicy = statusRequestRetryPolicy;
     }
 
     @Override
@@ -81,7 +100,7 @@ class BeaconSendingCaptureOffState extends AbstractBeaconSendingState {
         if (delta > 0 && !context.isShutdownRequested()) {
             context.sleep(delta);
         }
-        StatusResponse statusResponse = BeaconSendingRequestUtil.sendStatusRequest(context, STATUS_REQUEST_RETRIES, INITIAL_RETRY_SLEEP_TIME_MILLISECONDS);
+        StatusResponse statusResponse = BeaconSendingRequestUtil.sendStatusRequest(context, statusRequestRetryPolicy);
         handleStatusResponse(context, statusResponse);
 
         // update the last status check time in any case
@@ -16,12 +16,18 @@
 
 package com.dynatrace.openkit.core.communication;
 
+import com.dynatrace.openkit.core.caching.BeaconOutbox;
 import com.dynatrace.openkit.core.configuration.ServerConfiguration;
 import com.dynatrace.openkit.core.objects.SessionImpl;
+import com.dynatrace.openkit.protocol.HTTPClient;
 import com.dynatrace.openkit.protocol.ResponseAttributes;
 import com.dynatrace.openkit.protocol.StatusResponse;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * The sending state, when init is completed and capturing is turned on.
@@ -36,6 +42,11 @@ import java.util.List;
  */
 class BeaconSendingCaptureOnState extends AbstractBeaconSendingState {
 
+    /**
+     * The maximum number of records drained from the {@link BeaconOutbox outbox} per execution
+     */
+    static final int MAX_OUTBOX_RECORDS_PER_EXECUTION = 16;
+
     BeaconSendingCaptureOnState() {
         super(false);
     }
@@ -43,7 +54,8 @@ class BeaconSendingCaptureOnState extends AbstractBeaconSendingState {
     @Override
     void doExecute(BeaconSendingContext context) throws InterruptedException {
 
-        context.sleep();
+        context.waitForWakeUp(calculateSleepTime(context));
+        context.updateEffectiveSendInterval();
 
         // send new session request for all sessions that are new
         StatusResponse newSessionsResponse = sendNewSessionRequests(context);
@@ -53,6 +65,14 @@ class BeaconSendingCaptureOnState extends AbstractBeaconSendingState {
             return;
         }
 
+        // send priority data (crashes & errors) of open sessions, before any other data is sent
+        StatusResponse priorityDataResponse = sendPriorityData(context);
+        if (BeaconSendingResponseUtil.isTooManyRequestsResponse(priorityDataResponse)) {
+            // server is currently overloaded, temporarily switch to capture off
+            context.setNextState(new BeaconSendingCaptureOffState(priorityDataResponse.getRetryAfterInMilliseconds()));
+            return;
+        }
+
         // send all finished sessions
         StatusResponse finishedSessionsResponse = sendFinishedSessions(context);
         if (BeaconSendingResponseUtil.isTooManyRequestsResponse(finishedSessionsResponse)) {
@@ -75,6 +95,22 @@ class BeaconSendingCaptureOnState extends AbstractBeaconSendingState {
             lastStatusResponse = openSessionsResponse;
         } else if (finishedSessionsResponse != null) {
             lastStatusResponse = finishedSessionsResponse;
+        } else if (priorityDataResponse != null) {
+            lastStatusResponse = priorityDataResponse;
+        }
+
+        // retry data from the outbox, as long as the server is healthy
+        if (lastStatusResponse == null || BeaconSendingResponseUtil.isSuccessfulResponse(lastStatusResponse)) {
+            StatusResponse outboxResponse = drainOutbox(context);
+            if (BeaconSendingResponseUtil.isTooManyRequestsResponse(outboxResponse)) {
+                // server is currently overloaded, temporarily switch to capture off
+                context.setNextState(new BeaconSendingCaptureOffState(outboxResponse.getRetryAfterInMilliseconds()));
+                return;
+            }
+            if (BeaconSendingResponseUtil.isSuccessfulResponse(outboxResponse)) {
+                // rejected outbox records are dropped, but do not turn off capturing
+                lastStatusResponse = outboxResponse;
+            }
         }
 
         // handle the last statusResponse received (or null if none was received) from the server
@@ -87,15 +123,47 @@ class BeaconSendingCaptureOnState extends AbstractBeaconSendingState {
     }
 
     /**
-     * Send new session requests for all sessions where we currently don't have a multiplicity configuration.
+     * Calculate how long to wait before the next execution.
+     *
+     * <p>
+     * The beacon sending thread is woken up earlier, when a session is added or finished or when sending open sessions
+     * is requested. If there are sessions which could not be configured or sent, the default sleep time is used
+     * for retrying, which also applies to data remaining in the {@link BeaconOutbox outbox}. If there are only
+     * open sessions, the time until the next open session is due for sending is used.
+     * Without any sessions the beacon sending thread waits until woken up.
+     * </p>
+     *
+     * @param context The state's context
+     * @return The sleep time in milliseconds or {@link BeaconSendingContext#WAIT_INDEFINITELY}.
+     */
+    static long calculateSleepTime(BeaconSendingContext context) {
+        if (context.hasNotConfiguredSessions() || context.hasFinishedAndConfiguredSessions() || hasOutboxData(context)) {
+            return BeaconSendingContext.DEFAULT_SLEEP_TIME_MILLISECONDS;
+        }
+
+        if (context.hasOpenAndConfiguredSessions()) {
+            return Math.max(0L, context.getNextOpenSessionSendTime() - context.getCurrentTimestamp());
+        }
+
+        return BeaconSendingContext.WAIT_INDEFINITELY;
+    }
+
+    /**
+     * Send a new session request for all sessions where we currently don't have a multiplicity configuration.
+     *
+     * <p>
+     * A single new session request is sent per execution, and the received configuration is applied to all
+     * sessions still awaiting a configuration. This avoids one round trip per session, when many sessions
+     * are created in a short period of time.
+     * </p>
      *
      * @param context The state context.
-     * @return The last status response received.
+     * @return The status response received or {@code null} if no request was sent.
      */
     private StatusResponse sendNewSessionRequests(BeaconSendingContext context) {
 
-        StatusResponse statusResponse = null;
         List<SessionImpl> notConfiguredSessions = context.getAllNotConfiguredSessions();
+        List<SessionImpl> pendingSessions = new ArrayList<SessionImpl>(notConfiguredSessions.size());
 
         for (SessionImpl session : notConfiguredSessions) {
             if (!session.canSendNewSessionRequest()) {
@@ -103,17 +171,24 @@ class BeaconSendingCaptureOnState extends AbstractBeaconSendingState {
                 session.disableCapture();
                 continue;
             }
+            pendingSessions.add(session);
+        }
+
+        if (pendingSessions.isEmpty()) {
+            return null;
+        }
 
-            statusResponse = context.getHTTPClient().sendNewSessionRequest(context);
-            if (BeaconSendingResponseUtil.isSuccessfulResponse(statusResponse)) {
-                ResponseAttributes updatedAttributes = context.updateFrom(statusResponse);
-                ServerConfiguration newServerConfig = ServerConfiguration.from(updatedAttributes);
+        StatusResponse statusResponse = context.getHTTPClient().sendNewSessionRequest(context);
+        if (BeaconSendingResponseUtil.isSuccessfulResponse(statusResponse)) {
+            ResponseAttributes updatedAttributes = context.updateFrom(statusResponse);
+            ServerConfiguration newServerConfig = ServerConfiguration.from(updatedAttributes);
+            for (SessionImpl session : pendingSessions) {
                 session.updateServerConfiguration(newServerConfig);
-            } else if (BeaconSendingResponseUtil.isTooManyRequestsResponse(statusResponse)) {
-                // server is currently overloaded, return immediately
-                break;
-            } else {
-                // any other unsuccessful response
+            }
+        } else if (!BeaconSendingResponseUtil.isTooManyRequestsResponse(statusResponse)) {
+            // any other unsuccessful response counts as failed attempt for all sessions
+            // server overload (too many requests) is handled by the caller and does not count as attempt
+            for (SessionImpl session : pendingSessions) {
                 session.decreaseNumRemainingSessionRequests();
             }
         }
@@ -121,71 +196,202 @@ class BeaconSendingCaptureOnState extends AbstractBeaconSendingState {
         return statusResponse;
     }
 
+    /**
+     * Send the priority data (crashes & errors) of all open sessions containing such data, if
+     * {@link BeaconSendingContext#requestPriorityDataSend() requested}.
+     *
+     * <p>
+     * Only the priority data is sent, any other data of the sessions is sent when they are due for sending.
+     * Sessions are sent by the {@link BeaconSendingWorkerPool workers}. Sending stops for all workers, if the server
+     * is overloaded.
+     * </p>
+     *
+     * @param context The state's context
+     * @return The last status response received or {@code null} if nothing was sent.
+     */
+    private StatusResponse sendPriorityData(final BeaconSendingContext context) throws InterruptedException {
+
+        if (!context.takePriorityDataSendRequest()) {
+            return null;
+        }
+
+        List<SessionImpl> prioritySessions = new ArrayList<SessionImpl>();
+        for (SessionImpl session : context.getAllOpenAndConfiguredSessions()) {
+            if (session.isDataSendingAllowed() && session.hasPriorityData()) {
+                prioritySessions.add(session);
+            }
+        }
+
+        final StatusResponseCollector responses = new StatusResponseCollector();
+        context.getWorkerPool().execute(prioritySessions, new BeaconSendingWorkerPool.SessionTask() {
+            @Override
+            public boolean execute(SessionImpl session) {
+                StatusResponse statusResponse = session.sendPriorityData(context.getHTTPClientProvider(), context);
+                responses.add(statusResponse);
+                // server is currently overloaded, stop immediately
+                return !BeaconSendingResponseUtil.isTooManyRequestsResponse(statusResponse);
+            }
+        });
+
+        return responses.getResponse();
+    }
+
     /**
      * Send all sessions which have been finished previously.
      *
+     * <p>
+     * Sessions are sent by the {@link BeaconSendingWorkerPool workers}. Sending stops for all workers, if the server
+     * is overloaded or a session's data could not be sent.
+     * </p>
+     *
      * @param context The state's context
      * @return The last status response received.
      */
-    private StatusResponse sendFinishedSessions(BeaconSendingContext context) {
+    private StatusResponse sendFinishedSessions(final BeaconSendingContext context) throws InterruptedException {
 
-        StatusResponse statusResponse = null;
         // check if there's finished Sessions to be sent -> immediately send beacon(s) of finished Sessions
         List<SessionImpl> finishedSessions = context.getAllFinishedAndConfiguredSessions();
 
-        for (SessionImpl finishedSession : finishedSessions) {
-            if (finishedSession.isDataSendingAllowed()) {
-                statusResponse = finishedSession.sendBeacon(context.getHTTPClientProvider(), context);
-                if (!BeaconSendingResponseUtil.isSuccessfulResponse(statusResponse)) {
-                    // something went wrong,
-                    if (BeaconSendingResponseUtil.isTooManyRequestsResponse(statusResponse) || !finishedSession.isEmpty()) {
-                        break; //  sending did not work, break out for now and retry it later
+        final StatusResponseCollector responses = new StatusResponseCollector();
+        final Set<SessionImpl> processedSessions = Collections.synchronizedSet(new HashSet<SessionImpl>());
+        context.getWorkerPool().execute(finishedSessions, new BeaconSendingWorkerPool.SessionTask() {
+            @Override
+            public boolean execute(SessionImpl finishedSession) {
+                if (finishedSession.isDataSendingAllowed()) {
+                    StatusResponse statusResponse = sendBeacon(context, finishedSession);
+                    responses.add(statusResponse);
+                    if (!BeaconSendingResponseUtil.isSuccessfulResponse(statusResponse)) {
+                        // something went wrong,
+                        if (BeaconSendingResponseUtil.isTooManyRequestsResponse(statusResponse) || !finishedSession.isEmpty()) {
+                            return false; //  sending did not work, break out for now and retry it later
+                        }
                     }
                 }
+                processedSessions.add(finishedSession);
+                return true;
             }
+        });
 
-            // session was sent/is not allowed to be sent - so remove it from beacon cache
-            context.removeSession(finishedSession); // remove the finished session from the cache
-            finishedSession.clearCapturedData();
-            finishedSession.close(); // The session is already closed/ended at this point. This call avoids a static code warning.
+        for (SessionImpl finishedSession : finishedSessions) {
+            if (processedSessions.contains(finishedSession)) {
+                // session was sent/is not allowed to be sent - so remove it from beacon cache
+                context.removeSession(finishedSession); // remove the finished session from the cache
+                finishedSession.clearCapturedData();
+                finishedSession.close(); // The session is already closed/ended at this point. This call avoids a static code warning.
+            }
         }
 
-        return statusResponse;
+        return responses.getResponse();
     }
 
     /**
-     * Check if the send interval (configured by server) has expired and start to send open sessions if it has expired.
+     * Send all open sessions whose send time has been reached, or all open sessions if sending was
+     * {@link BeaconSendingContext#requestOpenSessionsSend() requested}.
+     *
+     * <p>
+     * The send times are spread across the send interval (configured by server), so that each execution only sends
+     * a part of the open sessions, instead of sending all of them at once when the send interval expires.
+     * Sessions are sent by the {@link BeaconSendingWorkerPool workers}. Sending stops for all workers, if the server
+     * is overloaded.
+     * </p>
      *
      * @param context The state's context
      * @return The last status response received.
      */
-    private StatusResponse sendOpenSessions(BeaconSendingContext context) {
-
-        StatusResponse statusResponse = null;
+    private StatusResponse sendOpenSessions(final BeaconSendingContext context) throws InterruptedException {
 
         long currentTimestamp = context.getCurrentTimestamp();
-        if (currentTimestamp <= context.getLastOpenSessionBeaconSendTime() + context.getSendInterval()) {
+        List<SessionImpl> openSessions = context.takeOpenSessionsSendRequest()
+                ? context.takeAllOpenSessionsForSending(currentTimestamp)
+                : context.takeOpenSessionsDueForSending(currentTimestamp);
+        if (openSessions.isEmpty()) {
             return null;
         }
 
-        List<SessionImpl> openSessions = context.getAllOpenAndConfiguredSessions();
-        for (SessionImpl session : openSessions) {
-            if (session.isDataSendingAllowed()) {
-                statusResponse = session.sendBeacon(context.getHTTPClientProvider(), context);
-                if (BeaconSendingResponseUtil.isTooManyRequestsResponse(statusResponse)) {
-                    // server is currently overloaded, return immediately
-                    break;
+        final StatusResponseCollector responses = new StatusResponseCollector();
+        context.getWorkerPool().execute(openSessions, new BeaconSendingWorkerPool.SessionTask() {
+            @Override
+            public boolean execute(SessionImpl session) {
+                if (session.isDataSendingAllowed()) {
+                    StatusResponse statusResponse = sendBeacon(context, session);
+                    responses.add(statusResponse);
+                    // server is currently overloaded, stop immediately
+                    return !BeaconSendingResponseUtil.isTooManyRequestsResponse(statusResponse);
                 }
-            } else {
                 session.clearCapturedData();
+                return true;
             }
-        }
+        });
 
         context.setLastOpenSessionBeaconSendTime(currentTimestamp);
 
+        return responses.getResponse();
+    }
+
+    /**
+     * Send the given session's beacon and record the time it took, for adapting the send interval.
+     *
+     * @param context The state's context
+     * @param session The session to send.
+     * @return The last status response received.
+     */
+    private static StatusResponse sendBeacon(BeaconSendingContext context, SessionImpl session) {
+        long sendStartTime = context.getCurrentTimestamp();
+        StatusResponse statusResponse = session.sendBeacon(context.getHTTPClientProvider(), context);
+        if (statusResponse != null) {
+            context.recordResponseLatency(context.getCurrentTimestamp() - sendStartTime);
+        }
+
         return statusResponse;
     }
 
+    private static boolean hasOutboxData(BeaconSendingContext context) {
+        BeaconOutbox outbox = context.getOutbox();
+        return outbox != null && !outbox.isEmpty();
+    }
+
+    /**
+     * Send up to {@link #MAX_OUTBOX_RECORDS_PER_EXECUTION} records from the {@link BeaconOutbox outbox}.
+     *
+     * <p>
+     * The records are sent from the beacon sending thread itself, oldest first. Each record is routed with the
+     * routing key of the beacon it was created from, so that it reaches the same endpoint. Draining stops, if the server
+     * is overloaded or not reachable. Records rejected by the server for any other reason are dropped, since
+     * sending them again would not succeed either.
+     * </p>
+     *
+     * @param context The state's context
+     * @return The last status response received or {@code null} if nothing was sent.
+     */
+    private static StatusResponse drainOutbox(final BeaconSendingContext context) {
+        if (!hasOutboxData(context)) {
+            return null;
+        }
+
+        final StatusResponseCollector responses = new StatusResponseCollector();
+        context.getOutbox().drain(new BeaconOutbox.RecordSender() {
+
+            // consecutive records usually belong to the same beacon, therefore the client is reused
+            private HTTPClient httpClient = null;
+            private int httpClientRoutingKey = 0;
+
+            @Override
+            public boolean send(String clientIPAddress, int routingKey, byte[] compressedData) {
+                if (httpClient == null || httpClientRoutingKey != routingKey) {
+                    httpClient = context.getHTTPClient(routingKey);
+                    httpClientRoutingKey = routingKey;
+                }
+                StatusResponse statusResponse = httpClient.sendCompressedBeaconRequest(clientIPAddress, compressedData, context);
+                responses.add(statusResponse);
+                return statusResponse != null
+                        && !BeaconSendingResponseUtil.isTooManyRequestsResponse(statusResponse)
+                        && statusResponse.getResponseCode() < 500;
+            }
+        }, MAX_OUTBOX_RECORDS_PER_EXECUTION);
+
+        return responses.getResponse();
+    }
+
     private static void handleStatusResponse(BeaconSendingContext context, StatusResponse statusResponse) {
 
         if (statusResponse == null) {
@@ -203,4 +409,27 @@ class BeaconSendingCaptureOnState extends AbstractBeaconSendingState {
     public String toString() {
         return "CaptureOn";
     }
+
+    /**
+     * Collects the status responses received by concurrently sending workers.
+     *
+     * <p>
+     * A "too many requests" response takes precedence, since all workers are stopped when receiving it.
+     * Otherwise the last received response is kept.
+     * </p>
+     */
+    private static final class StatusResponseCollector {
+
+        private StatusResponse response;
+
+        private synchronized void add(StatusResponse statusResponse) {
+            if (!BeaconSendingResponseUtil.isTooManyRequestsResponse(response)) {
+                response = statusResponse;
+            }
+        }
+
+        private synchronized StatusResponse getResponse() {
+            return response;
+        }
+    }
 }
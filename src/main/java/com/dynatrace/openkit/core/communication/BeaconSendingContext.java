@@ -17,10 +17,13 @@
 package com.dynatrace.openkit.core.communication;
 
 import com.dynatrace.openkit.api.Logger;
+import com.dynatrace.openkit.core.caching.BeaconOutbox;
+import com.dynatrace.openkit.core.caching.ServerConfigurationStore;
 import com.dynatrace.openkit.core.configuration.HTTPClientConfiguration;
 import com.dynatrace.openkit.core.configuration.ServerConfiguration;
 import com.dynatrace.openkit.core.objects.SessionImpl;
 import com.dynatrace.openkit.core.objects.SessionState;
+import com.dynatrace.openkit.core.objects.SessionStateListener;
 import com.dynatrace.openkit.protocol.AdditionalQueryParameters;
 import com.dynatrace.openkit.protocol.HTTPClient;
 import com.dynatrace.openkit.protocol.ResponseAttribute;
@@ -30,11 +33,16 @@ import com.dynatrace.openkit.protocol.StatusResponse;
 import com.dynatrace.openkit.providers.HTTPClientProvider;
 import com.dynatrace.openkit.providers.TimingProvider;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -53,6 +61,10 @@ public class BeaconSendingContext implements AdditionalQueryParameters {
      * Default sleep time in milliseconds (used by {@link #sleep()}).
      */
     static final long DEFAULT_SLEEP_TIME_MILLISECONDS = TimeUnit.SECONDS.toMillis(1);
+    /**
+     * Timeout passed to {@link #waitForWakeUp(long)} for waiting until {@link #wakeUp() woken up}.
+     */
+    static final long WAIT_INDEFINITELY = -1;
 
     private final Logger logger;
 
@@ -75,22 +87,101 @@ public class BeaconSendingContext implements AdditionalQueryParameters {
      */
     private ResponseAttributes lastResponseAttributes;
 
+    /**
+     * Indicates whether {@link #lastResponseAttributes} were loaded from the {@link #serverConfigurationStore}
+     * and no response has been received from the server yet.
+     */
+    private boolean isProvisionallyConfigured = false;
+
     /**
      * Configuration storing last valid HTTP client configuration, independent of a session.
      */
     private HTTPClientConfiguration httpClientConfiguration;
     private final HTTPClientProvider httpClientProvider;
     private final TimingProvider timingProvider;
+    /**
+     * workers sending beacons of different sessions concurrently
+     */
+    private final BeaconSendingWorkerPool workerPool;
+    /**
+     * outbox storing data that could not be sent, {@code null} if disabled
+     */
+    private final BeaconOutbox outbox;
+    /**
+     * adapts the send interval for open sessions to the beacon cache fill level and the response latency
+     */
+    private final AdaptiveSendInterval adaptiveSendInterval;
+    /**
+     * effective send interval of the last {@link #updateEffectiveSendInterval() update}, negative if not updated yet
+     */
+    private volatile long effectiveSendInterval = -1;
+    /**
+     * store for the last response attributes, {@code null} if disabled
+     */
+    private final ServerConfigurationStore serverConfigurationStore;
 
     /**
-     * container storing all sessions
+     * sessions added via {@link #addSession(SessionImpl)}, which have not yet been picked up by the beacon sending thread
      */
-    private final LinkedBlockingQueue<SessionImpl> sessions = new LinkedBlockingQueue<SessionImpl>();
+    private final ConcurrentLinkedQueue<SessionImpl> addedSessions = new ConcurrentLinkedQueue<SessionImpl>();
+    /**
+     * configured sessions which were finished, but have not yet been moved to {@link #finishedSessions}
+     */
+    private final ConcurrentLinkedQueue<SessionImpl> recentlyFinishedSessions = new ConcurrentLinkedQueue<SessionImpl>();
+    /**
+     * listener moving configured sessions from open to finished state
+     */
+    private final SessionStateListener sessionStateListener = new SessionStateListener() {
+        @Override
+        public void onSessionFinished(SessionImpl session) {
+            recentlyFinishedSessions.offer(session);
+            wakeUp();
+        }
+    };
+
+    /*
+     * Sessions indexed by their state. These sets are only accessed from the beacon sending thread.
+     * Each session is contained in exactly one of them.
+     */
+    /** sessions which are not yet configured */
+    private final Set<SessionImpl> newSessions = new LinkedHashSet<SessionImpl>();
+    /** configured sessions which are not yet finished */
+    private final Set<SessionImpl> openSessions = new LinkedHashSet<SessionImpl>();
+    /** configured sessions which are finished */
+    private final Set<SessionImpl> finishedSessions = new LinkedHashSet<SessionImpl>();
+    /** send times of the {@link #openSessions} */
+    private final BeaconSendingSchedule openSessionsSchedule = new BeaconSendingSchedule();
+
+    /**
+     * synchronization object for waking up the beacon sending thread
+     */
+    private final Object wakeUpLock = new Object();
+    /**
+     * Thread currently {@link #sleep(long) sleeping}, which is interrupted when shutdown is requested.
+     * Guarded by {@link #wakeUpLock}.
+     */
+    private Thread sleepingThread = null;
+    /**
+     * boolean indicating whether {@link #wakeUp()} was called since the beacon sending thread last waited
+     */
+    private boolean isWakeUpPending = false;
+    /**
+     * boolean indicating whether open sessions shall be sent, regardless of the send interval
+     */
+    private final AtomicBoolean isOpenSessionsSendRequested = new AtomicBoolean(false);
+    /**
+     * boolean indicating whether priority data (crashes & errors) of open sessions shall be sent immediately
+     */
+    private final AtomicBoolean isPriorityDataSendRequested = new AtomicBoolean(false);
 
     /**
      * boolean indicating whether shutdown was requested or not
      */
     private final AtomicBoolean shutdown = new AtomicBoolean(false);
+    /**
+     * timestamp until which remaining data shall be flushed on shutdown
+     */
+    private volatile long shutdownDeadline = Long.MAX_VALUE;
     /**
      * countdown latch updated when init was done - which can either be success or failure
      */
@@ -120,36 +211,39 @@ public class BeaconSendingContext implements AdditionalQueryParameters {
      * Constructor.
      *
      * <p>
-     * The state is initialized to {@link BeaconSendingInitState},
+     * If the server configuration store contains a server configuration,
+     * it is used provisionally until the first response from the server is received.
      * </p>
-     */
-    public BeaconSendingContext(Logger logger,
-                                HTTPClientConfiguration httpClientConfiguration,
-                                HTTPClientProvider httpClientProvider,
-                                TimingProvider timingProvider) {
-        this(logger, httpClientConfiguration, httpClientProvider, timingProvider, new BeaconSendingInitState());
-    }
-
-    /**
-     * Constructor.
      *
-     * <p>
-     * The initial state is provided. This constructor is intended for unit testing.
-     * </p>
+     * @param builder The builder providing all collaborators.
      */
-    BeaconSendingContext(Logger logger,
-                         HTTPClientConfiguration httpClientConfiguration,
-                         HTTPClientProvider httpClientProvider,
-                         TimingProvider timingProvider,
-                         AbstractBeaconSendingState initialState) {
-        this.logger = logger;
-        this.httpClientConfiguration = httpClientConfiguration;
+    private BeaconSendingContext(Builder builder) {
+        this.logger = builder.logger;
+        this.httpClientConfiguration = builder.httpClientConfiguration;
         this.serverConfiguration = ServerConfiguration.DEFAULT;
-        this.httpClientProvider = httpClientProvider;
-        this.timingProvider = timingProvider;
+        this.httpClientProvider = builder.httpClientProvider;
+        this.timingProvider = builder.timingProvider;
+        this.workerPool = builder.workerPool != null
+                ? builder.workerPool
+                : new BeaconSendingWorkerPool(logger, builder.numWorkers);
+        this.outbox = builder.outbox;
+        this.adaptiveSendInterval = builder.adaptiveSendInterval != null
+                ? builder.adaptiveSendInterval
+                : new AdaptiveSendInterval(logger, null, 0);
+        this.serverConfigurationStore = builder.serverConfigurationStore;
         this.lastResponseAttributes = ResponseAttributesImpl.withUndefinedDefaults().build();
 
-        currentState = initialState;
+        currentState = builder.initialState != null ? builder.initialState : new BeaconSendingInitState();
+
+        if (serverConfigurationStore != null) {
+            ResponseAttributes storedAttributes = serverConfigurationStore.load();
+            if (storedAttributes != null) {
+                synchronized (lockObject) {
+                    applyResponseAttributes(storedAttributes);
+                    isProvisionallyConfigured = true;
+                }
+            }
+        }
     }
 
     /**
@@ -173,9 +267,62 @@ public class BeaconSendingContext implements AdditionalQueryParameters {
 
     /**
      * Requests a shutdown.
+     *
+     * <p>
+     * The beacon sending thread is woken up, if it is {@link #waitForWakeUp(long) waiting}, or interrupted,
+     * if it is {@link #sleep(long) sleeping}. Otherwise it is not interrupted, so that pending requests are completed.
+     * </p>
      */
     public void requestShutdown() {
         shutdown.set(true);
+        synchronized (wakeUpLock) {
+            if (sleepingThread != null) {
+                sleepingThread.interrupt();
+                sleepingThread = null;
+            }
+        }
+        wakeUp();
+    }
+
+    /**
+     * Requests a shutdown, limiting the time for flushing remaining data.
+     *
+     * @param timeoutMillis The maximum number of milliseconds for flushing remaining data.
+     */
+    public void requestShutdown(long timeoutMillis) {
+        long now = getCurrentTimestamp();
+        shutdownDeadline = timeoutMillis > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + Math.max(0L, timeoutMillis);
+        requestShutdown();
+    }
+
+    /**
+     * Gets a boolean flag indicating whether the deadline for flushing data on shutdown is exceeded.
+     *
+     * <p>
+     * Without {@link #requestShutdown(long) a deadline} this method always returns {@code false}.
+     * </p>
+     */
+    boolean isShutdownDeadlineExceeded() {
+        return shutdownDeadline != Long.MAX_VALUE && getCurrentTimestamp() >= shutdownDeadline;
+    }
+
+    /**
+     * Hands over sessions, which could not be sent on shutdown.
+     *
+     * <p>
+     * The sessions' data is moved into the {@link BeaconOutbox outbox}, so that it is sent after the next start.
+     * Without an outbox the data is dropped.
+     * </p>
+     *
+     * @param unsentSessions The sessions, which could not be sent.
+     */
+    void handOverUnsentSessions(List<SessionImpl> unsentSessions) {
+        if (outbox != null) {
+            moveSessionDataToOutbox(unsentSessions);
+        } else if (!unsentSessions.isEmpty() && logger.isWarnEnabled()) {
+            logger.warning(getClass().getSimpleName() + " handOverUnsentSessions() - Dropping data of "
+                + unsentSessions.size() + " sessions, which could not be sent on shutdown");
+        }
     }
 
     /**
@@ -332,6 +479,67 @@ public class BeaconSendingContext implements AdditionalQueryParameters {
         return httpClientProvider.createClient(httpClientConfiguration);
     }
 
+    /**
+     * Convenience method to retrieve an {@link HTTPClient} instance with {@link #httpClientConfiguration},
+     * which routes its requests using the given routing key.
+     *
+     * <p>
+     * This method is only allowed to be called from within the beacon sending thread.
+     * </p>
+     *
+     * @param routingKey The key used for choosing an endpoint, if multiple endpoints are configured.
+     * @return HTTP client received from {@link HTTPClientProvider}.
+     */
+    HTTPClient getHTTPClient(int routingKey) {
+        return getHTTPClient(HTTPClientConfiguration.modifyWith(httpClientConfiguration).withRoutingKey(routingKey).build());
+    }
+
+    /**
+     * Gets the pool of workers sending beacons of different sessions concurrently.
+     */
+    BeaconSendingWorkerPool getWorkerPool() {
+        return workerPool;
+    }
+
+    /**
+     * Stops the beacon sending workers.
+     *
+     * <p>
+     * This method shall be called, after the beacon sending thread reached the terminal state.
+     * </p>
+     */
+    public void shutdownWorkers() {
+        workerPool.shutdown();
+    }
+
+    /**
+     * Syncs the {@link BeaconOutbox outbox} to disk and releases its resources, if the outbox is enabled.
+     */
+    public void closeOutbox() {
+        if (outbox != null) {
+            outbox.close();
+        }
+    }
+
+    /**
+     * Releases the resources of the {@link HTTPClientProvider}, if it holds any.
+     *
+     * <p>
+     * This method shall be called, after the beacon sending workers have been stopped.
+     * </p>
+     */
+    public void closeHTTPClientProvider() {
+        if (!(httpClientProvider instanceof Closeable)) {
+            return;
+        }
+        try {
+            ((Closeable) httpClientProvider).close();
+        } catch (IOException e) {
+            logger.warning(getClass().getSimpleName() + " closeHTTPClientProvider() - failed to close HTTP client provider: "
+                    + e.getMessage());
+        }
+    }
+
     /**
      * Gets the current timestamp.
      *
@@ -353,11 +561,111 @@ public class BeaconSendingContext implements AdditionalQueryParameters {
     /**
      * Sleep given amount of milliseconds.
      *
+     * <p>
+     * Sleeping is interrupted, when shutdown is requested. If shutdown was requested before, this method returns
+     * immediately.
+     * </p>
+     *
      * @param millis The number of milliseconds to sleep.
      * @throws InterruptedException When sleeping thread got interrupted.
      */
     void sleep(long millis) throws InterruptedException {
-        timingProvider.sleep(millis);
+        synchronized (wakeUpLock) {
+            if (isShutdownRequested()) {
+                return;
+            }
+            sleepingThread = Thread.currentThread();
+        }
+        try {
+            timingProvider.sleep(millis);
+        } finally {
+            synchronized (wakeUpLock) {
+                if (sleepingThread == null) {
+                    // shutdown was requested after sleeping finished, clear the interrupt meant for sleeping
+                    Thread.interrupted();
+                }
+                sleepingThread = null;
+            }
+        }
+    }
+
+    /**
+     * Wait until {@link #wakeUp()} is called or the given timeout expires.
+     *
+     * <p>
+     * If {@link #wakeUp()} was called since the last wait, this method returns immediately.
+     * </p>
+     *
+     * @param timeoutMillis The maximum number of milliseconds to wait or {@link #WAIT_INDEFINITELY}.
+     * @throws InterruptedException When waiting thread got interrupted.
+     */
+    void waitForWakeUp(long timeoutMillis) throws InterruptedException {
+        synchronized (wakeUpLock) {
+            if (timeoutMillis == WAIT_INDEFINITELY) {
+                while (!isWakeUpPending) {
+                    wakeUpLock.wait();
+                }
+            } else {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+                long remaining = timeoutMillis;
+                while (!isWakeUpPending && remaining > 0) {
+                    wakeUpLock.wait(remaining);
+                    remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                }
+            }
+            isWakeUpPending = false;
+        }
+    }
+
+    /**
+     * Wakes up the beacon sending thread, if it is {@link #waitForWakeUp(long) waiting}.
+     */
+    public void wakeUp() {
+        synchronized (wakeUpLock) {
+            isWakeUpPending = true;
+            wakeUpLock.notifyAll();
+        }
+    }
+
+    /**
+     * Requests sending open sessions with the next iteration, without waiting for the send interval to expire.
+     *
+     * <p>
+     * The beacon sending thread is only woken up, if no request is pending yet.
+     * </p>
+     */
+    public void requestOpenSessionsSend() {
+        if (isOpenSessionsSendRequested.compareAndSet(false, true)) {
+            wakeUp();
+        }
+    }
+
+    /**
+     * Returns whether {@link #requestOpenSessionsSend()} was called and resets the request.
+     */
+    boolean takeOpenSessionsSendRequest() {
+        return isOpenSessionsSendRequested.getAndSet(false);
+    }
+
+    /**
+     * Requests sending open sessions containing priority data (crashes & errors) with the next iteration,
+     * without waiting for the send interval to expire.
+     *
+     * <p>
+     * The beacon sending thread is only woken up, if no request is pending yet.
+     * </p>
+     */
+    public void requestPriorityDataSend() {
+        if (isPriorityDataSendRequested.compareAndSet(false, true)) {
+            wakeUp();
+        }
+    }
+
+    /**
+     * Returns whether {@link #requestPriorityDataSend()} was called and resets the request.
+     */
+    boolean takePriorityDataSendRequest() {
+        return isPriorityDataSendRequested.getAndSet(false);
     }
 
     /**
@@ -397,6 +705,48 @@ public class BeaconSendingContext implements AdditionalQueryParameters {
         }
     }
 
+    /**
+     * Recalculates the effective send interval for open sessions.
+     *
+     * <p>
+     * The send interval configured by the server is {@link AdaptiveSendInterval adapted} to the beacon cache
+     * fill level and the collector's response latency. This is done once per execution of the beacon sending
+     * state, so that the adaption's metrics count decisions, not queries.
+     * </p>
+     */
+    void updateEffectiveSendInterval() {
+        effectiveSendInterval = adaptiveSendInterval.calculateSendInterval(getSendInterval());
+    }
+
+    /**
+     * Get the effective send interval for open sessions, as calculated by the last
+     * {@link #updateEffectiveSendInterval() update}.
+     *
+     * <p>
+     * Before the first update, the send interval configured by the server is returned.
+     * </p>
+     */
+    long getEffectiveSendInterval() {
+        long sendInterval = effectiveSendInterval;
+        return sendInterval < 0 ? getSendInterval() : sendInterval;
+    }
+
+    /**
+     * Records the time it took to send a beacon, which is used for adapting the send interval.
+     *
+     * @param latencyInMillis The time in milliseconds it took to send the beacon.
+     */
+    public void recordResponseLatency(long latencyInMillis) {
+        adaptiveSendInterval.recordResponseLatency(latencyInMillis);
+    }
+
+    /**
+     * Returns the {@link AdaptiveSendInterval} exposing the metrics of the send interval adaption.
+     */
+    public AdaptiveSendInterval getAdaptiveSendInterval() {
+        return adaptiveSendInterval;
+    }
+
     /**
      * Returns the last {@link ResponseAttributes} received from the server.
      */
@@ -417,13 +767,43 @@ public class BeaconSendingContext implements AdditionalQueryParameters {
 
     /**
      * Disable data capturing and clears all session data. Finished sessions are removed from the beacon.
+     *
+     * <p>
+     * Data which is allowed to be sent is moved into the {@link BeaconOutbox outbox} before, if it is enabled.
+     * </p>
      */
     void disableCaptureAndClear() {
         // first disable in configuration, so no further data will get collected
         disableCapture();
+        if (outbox != null) {
+            updateSessionStates();
+            moveSessionDataToOutbox(openSessions);
+            moveSessionDataToOutbox(finishedSessions);
+        }
         clearAllSessionData();
     }
 
+    /**
+     * Moves the data of all given sessions, which are allowed to send data, into the outbox.
+     */
+    private void moveSessionDataToOutbox(Collection<SessionImpl> sessions) {
+        for (SessionImpl session : sessions) {
+            if (session.isDataSendingAllowed()) {
+                session.moveDataToOutbox(outbox);
+            }
+        }
+        outbox.sync();
+    }
+
+    /**
+     * Returns the outbox storing data that could not be sent.
+     *
+     * @return The outbox or {@code null} if the outbox is disabled.
+     */
+    BeaconOutbox getOutbox() {
+        return outbox;
+    }
+
     /**
      * Disables data capturing
      */
@@ -456,32 +836,62 @@ public class BeaconSendingContext implements AdditionalQueryParameters {
      * Updates the {@link #getLastResponseAttributes() last known response attributes} as well as the
      * {@link ServerConfiguration} and {@link HTTPClientConfiguration} in case the given status response
      * {@link BeaconSendingResponseUtil#isSuccessfulResponse(StatusResponse) is succesful}.
+     * The updated response attributes are persisted, if a {@link ServerConfigurationStore} is configured.
      *
      * @param statusResponse the status response from which to update the last response attributes.
      * @return in case the given status response was successful the updated response attributes are returned. Otherwise
      * the current response attributes are returned.
      */
     ResponseAttributes updateFrom(StatusResponse statusResponse) {
+        ResponseAttributes updatedAttributes;
         synchronized (lockObject) {
             if (!BeaconSendingResponseUtil.isSuccessfulResponse(statusResponse)) {
                 return lastResponseAttributes;
             }
 
-            lastResponseAttributes = lastResponseAttributes.merge(statusResponse.getResponseAttributes());
+            applyResponseAttributes(statusResponse.getResponseAttributes());
+            isProvisionallyConfigured = false;
+            updatedAttributes = lastResponseAttributes;
+        }
 
-            ServerConfiguration.Builder builder = new ServerConfiguration.Builder(lastResponseAttributes);
-            if (isApplicationIdMismatch(lastResponseAttributes)) {
-                builder.withCapture(false);
-            }
+        if (serverConfigurationStore != null) {
+            serverConfigurationStore.store(updatedAttributes);
+        }
 
-            serverConfiguration = builder.build();
+        return updatedAttributes;
+    }
 
-            int serverId = serverConfiguration.getServerID();
-            if (serverId != httpClientConfiguration.getServerID()) {
-                httpClientConfiguration = createHttpClientConfigurationWith(serverId);
-            }
+    /**
+     * Merges the given response attributes into the {@link #getLastResponseAttributes() last known response attributes}
+     * and updates the {@link ServerConfiguration} and {@link HTTPClientConfiguration} accordingly.
+     *
+     * <p>
+     * This method must only be called while holding {@link #lockObject}.
+     * </p>
+     */
+    private void applyResponseAttributes(ResponseAttributes responseAttributes) {
+        lastResponseAttributes = lastResponseAttributes.merge(responseAttributes);
 
-            return lastResponseAttributes;
+        ServerConfiguration.Builder builder = new ServerConfiguration.Builder(lastResponseAttributes);
+        if (isApplicationIdMismatch(lastResponseAttributes)) {
+            builder.withCapture(false);
+        }
+
+        serverConfiguration = builder.build();
+
+        int serverId = serverConfiguration.getServerID();
+        if (serverId != httpClientConfiguration.getServerID()) {
+            httpClientConfiguration = createHttpClientConfigurationWith(serverId);
+        }
+    }
+
+    /**
+     * Indicates whether the server configuration was loaded from the {@link ServerConfigurationStore} and
+     * no response has been received from the server yet.
+     */
+    boolean isProvisionallyConfigured() {
+        synchronized (lockObject) {
+            return isProvisionallyConfigured;
         }
     }
 
@@ -514,6 +924,14 @@ public class BeaconSendingContext implements AdditionalQueryParameters {
      * Clear captured data from all sessions.
      */
     private void clearAllSessionData() {
+        updateSessionStates();
+
+        clearSessionData(newSessions);
+        clearSessionData(openSessions);
+        clearSessionData(finishedSessions);
+    }
+
+    private void clearSessionData(Set<SessionImpl> sessions) {
         // iterate over the elements
         Iterator<SessionImpl> iterator = sessions.iterator();
         while (iterator.hasNext()) {
@@ -522,6 +940,7 @@ public class BeaconSendingContext implements AdditionalQueryParameters {
             SessionState state = session.getState();
             if (state.isFinished()) {
                 iterator.remove();
+                openSessionsSchedule.remove(session);
             }
         }
     }
@@ -542,58 +961,157 @@ public class BeaconSendingContext implements AdditionalQueryParameters {
      * @return A list of new sessions.
      */
     List<SessionImpl> getAllNotConfiguredSessions() {
+        updateSessionStates();
 
-        List<SessionImpl> notConfiguredSessions = new LinkedList<SessionImpl>();
-
-        for (SessionImpl session : sessions) {
-            SessionState state = session.getState();
-            if (!state.isConfigured()) {
-                notConfiguredSessions.add(session);
-            }
-        }
-
-        return notConfiguredSessions;
+        return new ArrayList<SessionImpl>(newSessions);
     }
 
     /**
      * Get a list of all sessions that have been configured and are currently open.
      */
     List<SessionImpl> getAllOpenAndConfiguredSessions() {
+        updateSessionStates();
 
-        List<SessionImpl> openSessions = new LinkedList<SessionImpl>();
+        return new ArrayList<SessionImpl>(openSessions);
+    }
 
-        for (SessionImpl session : sessions) {
-            SessionState state = session.getState();
-            if (state.isConfiguredAndOpen()) {
-                openSessions.add(session);
-            }
-        }
+    /**
+     * Get all sessions that have been configured and are currently open, whose send time has been reached.
+     *
+     * <p>
+     * The send times of the open sessions are spread across the send interval, so that open sessions are not all
+     * sent at once. The next send time of the returned sessions is scheduled one send interval later.
+     * </p>
+     *
+     * @param timestamp The current timestamp in milliseconds.
+     * @return A list of open sessions due for sending.
+     */
+    List<SessionImpl> takeOpenSessionsDueForSending(long timestamp) {
+        updateSessionStates();
+
+        return openSessionsSchedule.takeDueSessions(timestamp, getEffectiveSendInterval());
+    }
+
+    /**
+     * Get all sessions that have been configured and are currently open, regardless of their send time.
+     *
+     * <p>
+     * The next send time of each session is scheduled after the given timestamp, keeping its offset within
+     * the send interval.
+     * </p>
+     *
+     * @param timestamp The current timestamp in milliseconds.
+     * @return A list of all open sessions.
+     */
+    List<SessionImpl> takeAllOpenSessionsForSending(long timestamp) {
+        updateSessionStates();
+
+        return openSessionsSchedule.takeAllSessions(timestamp, getEffectiveSendInterval());
+    }
+
+    /**
+     * Get the earliest send time of all sessions that have been configured and are currently open.
+     *
+     * @return The earliest send time in milliseconds or {@link Long#MAX_VALUE} if there are no open sessions.
+     */
+    long getNextOpenSessionSendTime() {
+        updateSessionStates();
 
-        return openSessions;
+        return openSessionsSchedule.getNextSendTime();
     }
 
     /**
      * Get a list of all sessions that have been configured and are currently finished.
      */
     List<SessionImpl> getAllFinishedAndConfiguredSessions() {
+        updateSessionStates();
 
-        List<SessionImpl> finishedSessions = new LinkedList<SessionImpl>();
+        return new ArrayList<SessionImpl>(finishedSessions);
+    }
 
-        for (SessionImpl session : sessions) {
+    /**
+     * Indicates whether there are sessions which are not yet configured.
+     */
+    boolean hasNotConfiguredSessions() {
+        updateSessionStates();
+
+        return !newSessions.isEmpty();
+    }
+
+    /**
+     * Indicates whether there are configured sessions which are currently open.
+     */
+    boolean hasOpenAndConfiguredSessions() {
+        updateSessionStates();
+
+        return !openSessions.isEmpty();
+    }
+
+    /**
+     * Indicates whether there are configured sessions which are finished.
+     */
+    boolean hasFinishedAndConfiguredSessions() {
+        updateSessionStates();
+
+        return !finishedSessions.isEmpty();
+    }
+
+    /**
+     * Moves sessions between the state indexed sets.
+     *
+     * <p>
+     * Newly added sessions are picked up, new sessions which got configured in the meantime are moved to the
+     * open or finished sessions and sessions which were finished since the last call are moved from open to
+     * finished sessions. Only new sessions and recently finished sessions are visited, therefore the costs do not
+     * depend on the number of open sessions.
+     * </p>
+     */
+    private void updateSessionStates() {
+        pickUpAddedSessions();
+
+        SessionImpl session;
+        Iterator<SessionImpl> iterator = newSessions.iterator();
+        while (iterator.hasNext()) {
+            session = iterator.next();
             SessionState state = session.getState();
-            if (state.isConfiguredAndFinished()) {
+            if (state.isConfigured() || state.isConfiguredAndOpen() || state.isConfiguredAndFinished()) {
+                iterator.remove();
+                // register before checking the state, so that no transition to finished is missed
+                session.setStateListener(sessionStateListener);
+                if (state.isConfiguredAndFinished()) {
+                    finishedSessions.add(session);
+                } else {
+                    openSessions.add(session);
+                    openSessionsSchedule.add(session, getCurrentTimestamp(), getEffectiveSendInterval());
+                }
+            }
+        }
+
+        while ((session = recentlyFinishedSessions.poll()) != null) {
+            if (openSessions.remove(session)) {
+                openSessionsSchedule.remove(session);
                 finishedSessions.add(session);
             }
         }
+    }
 
-        return finishedSessions;
+    /**
+     * Moves sessions added by {@link #addSession(SessionImpl)} to the new sessions.
+     */
+    private void pickUpAddedSessions() {
+        SessionImpl session;
+        while ((session = addedSessions.poll()) != null) {
+            newSessions.add(session);
+        }
     }
 
     /**
      * Returns the number of sessions currently known to this context
      */
     int getSessionCount() {
-        return sessions.size();
+        pickUpAddedSessions();
+
+        return newSessions.size() + openSessions.size() + finishedSessions.size();
     }
 
     /**
@@ -609,7 +1127,8 @@ public class BeaconSendingContext implements AdditionalQueryParameters {
      * @param session The new session to add.
      */
     public void addSession(SessionImpl session) {
-        sessions.add(session);
+        addedSessions.add(session);
+        wakeUp();
     }
 
     /**
@@ -618,7 +1137,10 @@ public class BeaconSendingContext implements AdditionalQueryParameters {
      * @param session the session to be removed.
      */
     boolean removeSession(SessionImpl session) {
-        return sessions.remove(session);
+        pickUpAddedSessions();
+
+        openSessionsSchedule.remove(session);
+        return finishedSessions.remove(session) || openSessions.remove(session) || newSessions.remove(session);
     }
 
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -631,4 +1153,96 @@ public class BeaconSendingContext implements AdditionalQueryParameters {
             return lastResponseAttributes.getTimestampInMilliseconds();
         }
     }
+
+    /**
+     * Builder class for building {@link BeaconSendingContext}.
+     *
+     * <p>
+     * Unless configured otherwise, the context starts in the {@link BeaconSendingInitState}, sends beacons with a
+     * single worker, uses a fixed send interval and has neither an outbox nor a server configuration store.
+     * </p>
+     */
+    public static final class Builder {
+
+        private final Logger logger;
+        private final HTTPClientConfiguration httpClientConfiguration;
+        private final HTTPClientProvider httpClientProvider;
+        private final TimingProvider timingProvider;
+        private int numWorkers = 1;
+        private BeaconOutbox outbox = null;
+        private AdaptiveSendInterval adaptiveSendInterval = null;
+        private ServerConfigurationStore serverConfigurationStore = null;
+        private AbstractBeaconSendingState initialState = null;
+        private BeaconSendingWorkerPool workerPool = null;
+
+        /**
+         * Create the builder with all mandatory collaborators.
+         *
+         * @param logger Logger for logging messages.
+         * @param httpClientConfiguration Initial HTTP client configuration.
+         * @param httpClientProvider Used for retrieving an {@link HTTPClient} instance.
+         * @param timingProvider Used for some timing related things.
+         */
+        public Builder(Logger logger,
+                       HTTPClientConfiguration httpClientConfiguration,
+                       HTTPClientProvider httpClientProvider,
+                       TimingProvider timingProvider) {
+            this.logger = logger;
+            this.httpClientConfiguration = httpClientConfiguration;
+            this.httpClientProvider = httpClientProvider;
+            this.timingProvider = timingProvider;
+        }
+
+        /**
+         * Sets the number of workers sending beacons of different sessions concurrently.
+         */
+        public Builder withNumWorkers(int numWorkers) {
+            this.numWorkers = numWorkers;
+            return this;
+        }
+
+        /**
+         * Sets the outbox storing data that could not be sent or {@code null} if the outbox is disabled.
+         */
+        public Builder withOutbox(BeaconOutbox outbox) {
+            this.outbox = outbox;
+            return this;
+        }
+
+        /**
+         * Sets the adaptive send interval for open sessions, which adapts to cache fill level and response latency.
+         */
+        public Builder withAdaptiveSendInterval(AdaptiveSendInterval adaptiveSendInterval) {
+            this.adaptiveSendInterval = adaptiveSendInterval;
+            return this;
+        }
+
+        /**
+         * Sets the store for the last server configuration or {@code null} if the store is disabled.
+         */
+        public Builder withServerConfigurationStore(ServerConfigurationStore serverConfigurationStore) {
+            this.serverConfigurationStore = serverConfigurationStore;
+            return this;
+        }
+
+        /**
+         * Sets the initial state. Intended to be used by unit tests only.
+         */
+        Builder withInitialState(AbstractBeaconSendingState initialState) {
+            this.initialState = initialState;
+            return this;
+        }
+
+        /**
+         * Sets the worker pool, which replaces {@link #withNumWorkers(int)}. Intended to be used by unit tests only.
+         */
+        Builder withWorkerPool(BeaconSendingWorkerPool workerPool) {
+            this.workerPool = workerPool;
+            return this;
+        }
+
+        public BeaconSendingContext build() {
+            return new BeaconSendingContext(this);
+        }
+    }
 }
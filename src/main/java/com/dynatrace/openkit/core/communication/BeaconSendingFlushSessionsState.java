@@ -19,11 +19,25 @@ package com.dynatrace.openkit.core.communication;
 import com.dynatrace.openkit.core.objects.SessionImpl;
 import com.dynatrace.openkit.protocol.StatusResponse;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * In this state open sessions are finished. After that all sessions are sent to the server.
  * <p>
+ *     Sessions are sent by the {@link BeaconSendingWorkerPool workers}, until the
+ *     {@link BeaconSendingContext#requestShutdown(long) shutdown deadline} is exceeded.
+ *     Sessions containing crashes or errors are sent first, followed by sessions which were finished
+ *     before and finally the sessions ended by this state.
+ * </p>
+ * <p>
+ *     Sessions which are still sent by a worker after the deadline expired are neither handed over nor cleared,
+ *     since the worker still accesses their data.
+ * </p>
+ * <p>
  *     Transition to:
  *     <ul>
  *         <li>{@link BeaconSendingTerminalState}</li>
@@ -37,7 +51,10 @@ class BeaconSendingFlushSessionsState extends AbstractBeaconSendingState {
     }
 
     @Override
-    void doExecute(BeaconSendingContext context) {
+    void doExecute(final BeaconSendingContext context) {
+
+        // the thread might have been interrupted while sleeping when shutdown was requested, which must not abort flushing
+        boolean isInterrupted = Thread.interrupted();
 
         // first get all sessions that were not yet configured
         List<SessionImpl> notConfiguredSessions = context.getAllNotConfiguredSessions();
@@ -53,24 +70,97 @@ class BeaconSendingFlushSessionsState extends AbstractBeaconSendingState {
         }
 
         // flush already finished (and previously ended) sessions
-        boolean tooManyRequestsReceived = false;
-        List<SessionImpl> finishedSessions = context.getAllFinishedAndConfiguredSessions();
-        for (SessionImpl finishedSession : finishedSessions) {
-            if (!tooManyRequestsReceived && finishedSession.isDataSendingAllowed()) {
-                StatusResponse response = finishedSession.sendBeacon(context.getHTTPClientProvider(), context);
-                if (BeaconSendingResponseUtil.isTooManyRequestsResponse(response)) {
-                    tooManyRequestsReceived = true;
+        List<SessionImpl> finishedSessions = prioritizeSessions(context.getAllFinishedAndConfiguredSessions(), openSessions);
+        final Set<SessionImpl> sentSessions = Collections.synchronizedSet(new HashSet<SessionImpl>());
+        try {
+            context.getWorkerPool().execute(finishedSessions, new BeaconSendingWorkerPool.SessionTask() {
+                @Override
+                public boolean execute(SessionImpl finishedSession) {
+                    if (!finishedSession.isDataSendingAllowed()) {
+                        return true;
+                    }
+                    if (context.isShutdownDeadlineExceeded()) {
+                        return false; // no time left, stop all workers
+                    }
+                    StatusResponse response = finishedSession.sendBeacon(context.getHTTPClientProvider(), context);
+                    if (BeaconSendingResponseUtil.isTooManyRequestsResponse(response)) {
+                        return false;
+                    }
+                    sentSessions.add(finishedSession);
+                    return true;
                 }
+            });
+        } catch (InterruptedException e) {
+            // shutdown deadline expired while sending
+            isInterrupted = true;
+        }
+
+        // sessions which are still being sent must not be touched
+        Set<SessionImpl> sessionsInProgress = context.getWorkerPool().getSessionsInProgress();
+        if (!sessionsInProgress.isEmpty()) {
+            finishedSessions = new ArrayList<SessionImpl>(finishedSessions);
+            finishedSessions.removeAll(sessionsInProgress);
+        }
+
+        List<SessionImpl> unsentSessions = new ArrayList<SessionImpl>();
+        for (SessionImpl finishedSession : finishedSessions) {
+            if (finishedSession.isDataSendingAllowed()
+                && (!sentSessions.contains(finishedSession) || !finishedSession.isEmpty())) {
+                unsentSessions.add(finishedSession);
             }
+        }
+        context.handOverUnsentSessions(unsentSessions);
+
+        for (SessionImpl finishedSession : finishedSessions) {
             finishedSession.clearCapturedData();
             finishedSession.close(); // The session is already closed/ended at this point. This call avoids a static code warning.
             context.removeSession(finishedSession);
         }
 
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+
         // make last state transition to terminal state
         context.setNextState(new BeaconSendingTerminalState());
     }
 
+    /**
+     * Orders the given finished sessions by their priority for flushing.
+     *
+     * <p>
+     * Sessions containing priority data (crashes & errors) go first, followed by sessions which were already
+     * finished before and the sessions ended while flushing. Apart from that the given order is kept.
+     * </p>
+     *
+     * @param finishedSessions The finished sessions to flush.
+     * @param endedSessions The sessions which were ended while flushing.
+     * @return The sessions in the order they shall be sent.
+     */
+    static List<SessionImpl> prioritizeSessions(List<SessionImpl> finishedSessions, List<SessionImpl> endedSessions) {
+        Set<SessionImpl> endedSessionSet = new HashSet<SessionImpl>(endedSessions);
+        List<SessionImpl> prioritySessions = new ArrayList<SessionImpl>();
+        List<SessionImpl> previouslyFinishedSessions = new ArrayList<SessionImpl>();
+        List<SessionImpl> recentlyEndedSessions = new ArrayList<SessionImpl>();
+
+        for (SessionImpl session : finishedSessions) {
+            if (session.hasPriorityData()) {
+                prioritySessions.add(session);
+            } else if (endedSessionSet.contains(session)) {
+                recentlyEndedSessions.add(session);
+            } else {
+                previouslyFinishedSessions.add(session);
+            }
+        }
+
+        List<SessionImpl> result = new ArrayList<SessionImpl>(finishedSessions.size());
+        result.addAll(prioritySessions);
+        result.addAll(previouslyFinishedSessions);
+        result.addAll(recentlyEndedSessions);
+
+        return result;
+    }
+
     @Override
     AbstractBeaconSendingState getShutdownState() {
         return new BeaconSendingTerminalState();
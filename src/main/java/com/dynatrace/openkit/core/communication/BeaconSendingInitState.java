@@ -16,6 +16,7 @@
 
 package com.dynatrace.openkit.core.communication;
 
+import com.dynatrace.openkit.protocol.RetryPolicy;
 import com.dynatrace.openkit.protocol.StatusResponse;
 
 import java.util.concurrent.TimeUnit;
@@ -25,14 +26,19 @@ import java.util.concurrent.TimeUnit;
  *
  * <p>
  * The initial state is used to retrieve the configuration from the server and update the configuration.
+ * If a server configuration was loaded from the {@link com.dynatrace.openkit.core.caching.ServerConfigurationStore
+ * store}, the initial status request is skipped. The provisional configuration is then replaced by the first
+ * response received in the following state.
  * </p>
  *
  * <p>
  * Transition to:
  * <ul>
  * <li>{@link BeaconSendingTerminalState} upon shutdown request</li>
- * <li>{@link BeaconSendingCaptureOnState} if initial status request succeeded and capturing is enabled.</li>
- * <li>{@link BeaconSendingCaptureOffState} if initial status request succeeded and capturing is disabled.</li>
+ * <li>{@link BeaconSendingCaptureOnState} if initial status request succeeded or a stored configuration was loaded
+ * and capturing is enabled.</li>
+ * <li>{@link BeaconSendingCaptureOffState} if initial status request succeeded or a stored configuration was loaded
+ * and capturing is disabled.</li>
  * </ul>
  * </p>
  */
@@ -54,6 +60,12 @@ class BeaconSendingInitState extends AbstractBeaconSendingState {
      */
     private static final int MAX_INITIAL_STATUS_REQUEST_RETRIES = 5;
     static final long INITIAL_RETRY_SLEEP_TIME_MILLISECONDS = TimeUnit.SECONDS.toMillis(1);
+    static final long MAX_RETRY_SLEEP_TIME_MILLISECONDS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Retry policy for the status requests
+     */
+    private final RetryPolicy statusRequestRetryPolicy;
 
     /**
      * Index to re-initialize delays.
@@ -61,12 +73,26 @@ class BeaconSendingInitState extends AbstractBeaconSendingState {
     private int reinitializeDelayIndex = 0;
 
     BeaconSendingInitState() {
+        this(new RetryPolicy(MAX_INITIAL_STATUS_REQUEST_RETRIES, INITIAL_RETRY_SLEEP_TIME_MILLISECONDS, MAX_RETRY_SLEEP_TIME_MILLISECONDS));
+    }
+
+    BeaconSendingInitState(RetryPolicy statusRequestRetryPolicy) {
         super(false);
+        this.statusRequestRetryPolicy = statusRequestRetryPolicy;
     }
 
     @Override
     void doExecute(BeaconSendingContext context) throws InterruptedException {
 
+        if (context.isProvisionallyConfigured()) {
+            // warm start with a stored configuration -> continue without waiting for the server
+            context.setNextState(context.isCaptureOn()
+                    ? new BeaconSendingCaptureOnState()
+                    : new BeaconSendingCaptureOffState());
+            context.initCompleted(true);
+            return;
+        }
+
         // execute the status request until we get a response
         StatusResponse statusResponse = executeStatusRequest(context);
 
@@ -116,7 +142,7 @@ class BeaconSendingInitState extends AbstractBeaconSendingState {
             context.setLastOpenSessionBeaconSendTime(currentTimestamp);
             context.setLastStatusCheckTime(currentTimestamp);
 
-            statusResponse = BeaconSendingRequestUtil.sendStatusRequest(context, MAX_INITIAL_STATUS_REQUEST_RETRIES, INITIAL_RETRY_SLEEP_TIME_MILLISECONDS);
+            statusResponse = BeaconSendingRequestUtil.sendStatusRequest(context, statusRequestRetryPolicy);
             if (context.isShutdownRequested() || BeaconSendingResponseUtil.isSuccessfulResponse(statusResponse)) {
                 // shutdown was requested or a successful status response was received
                 break;
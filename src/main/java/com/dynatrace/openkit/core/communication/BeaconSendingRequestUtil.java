@@ -16,6 +16,7 @@
 
 package com.dynatrace.openkit.core.communication;
 
+import com.dynatrace.openkit.protocol.RetryPolicy;
 import com.dynatrace.openkit.protocol.StatusResponse;
 
 /**
@@ -29,29 +30,26 @@ class BeaconSendingRequestUtil {
     /**
      * Send a status request to the server and try to get the status response.
      *
-     * @param context                   Used to retrieve the {@link com.dynatrace.openkit.protocol.HTTPClient} and for delaying methods.
-     * @param numRetries                The number of retries (total number of tries = numRetries + 1)
-     * @param initialRetryDelayInMillis The initial delay which is doubled between one unsuccessful attempt and the next retry.
+     * @param context     Used to retrieve the {@link com.dynatrace.openkit.protocol.HTTPClient} and for delaying methods.
+     * @param retryPolicy Policy defining the number of retries and the (jittered, exponentially growing) delay between them.
      * @return A status response or {@code null} if shutdown was requested or number of retries was reached.
      */
-    static StatusResponse sendStatusRequest(BeaconSendingContext context, int numRetries, long initialRetryDelayInMillis) throws InterruptedException {
+    static StatusResponse sendStatusRequest(BeaconSendingContext context, RetryPolicy retryPolicy) throws InterruptedException {
 
         StatusResponse statusResponse;
-        long sleepTimeInMillis = initialRetryDelayInMillis;
         int retry = 0;
 
         while (true) {
             statusResponse = context.getHTTPClient().sendStatusRequest(context);
             if (BeaconSendingResponseUtil.isSuccessfulResponse(statusResponse)
                 || BeaconSendingResponseUtil.isTooManyRequestsResponse(statusResponse) // is handled by the states
-                || retry >= numRetries
+                || !retryPolicy.isRetryAllowed(retry)
                 || context.isShutdownRequested()) {
                 break;
             }
 
-            // if no (valid) status response was received -> sleep and double the delay for each retry
-            context.sleep(sleepTimeInMillis);
-            sleepTimeInMillis *= 2;
+            // if no (valid) status response was received -> sleep with exponential backoff and jitter
+            context.sleep(retryPolicy.getDelayInMilliseconds(retry));
             retry++;
         }
 
@@ -0,0 +1,164 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.communication;
+
+import com.dynatrace.openkit.core.objects.SessionImpl;
+import com.dynatrace.openkit.core.util.DeadlineSchedule;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Schedule of the next send time of each open session.
+ *
+ * <p>
+ * Instead of sending all open sessions at once when the send interval expires, each session gets its own send time.
+ * The first send time is spread across the send interval by the session's hash code, and subsequent send times keep
+ * this offset. Open sessions are therefore sent in a steady trickle, while each session is still sent once per
+ * send interval.
+ * </p>
+ *
+ * <p>
+ * This class is not thread safe, it's only accessed from the beacon sending thread.
+ * </p>
+ */
+class BeaconSendingSchedule {
+
+    /** multiplier spreading consecutive hash codes evenly (2^32 divided by the golden ratio) */
+    private static final int HASH_SPREAD_MULTIPLIER = 0x9E3779B9;
+
+    /** next send time per scheduled session */
+    private final DeadlineSchedule<SessionImpl> sendTimes = new DeadlineSchedule<SessionImpl>();
+
+    /**
+     * Adds a session to the schedule.
+     *
+     * @param session The session to add.
+     * @param timestamp The current timestamp in milliseconds.
+     * @param sendInterval The send interval in milliseconds.
+     */
+    void add(SessionImpl session, long timestamp, long sendInterval) {
+        sendTimes.schedule(session, timestamp + spreadOffset(session.hashCode(), sendInterval));
+    }
+
+    /**
+     * Removes a session from the schedule.
+     *
+     * @param session The session to remove.
+     */
+    void remove(SessionImpl session) {
+        sendTimes.remove(session);
+    }
+
+    /**
+     * Returns the number of scheduled sessions.
+     */
+    int size() {
+        return sendTimes.size();
+    }
+
+    /**
+     * Returns the earliest send time of all scheduled sessions.
+     *
+     * @return The earliest send time or {@link Long#MAX_VALUE} if no session is scheduled.
+     */
+    long getNextSendTime() {
+        return sendTimes.getNextDeadline();
+    }
+
+    /**
+     * Returns all sessions which are due for sending and schedules their next send.
+     *
+     * @param timestamp The current timestamp in milliseconds.
+     * @param sendInterval The send interval in milliseconds.
+     * @return The sessions due for sending, in the order of their send times.
+     */
+    List<SessionImpl> takeDueSessions(long timestamp, long sendInterval) {
+        List<SessionImpl> dueSessions = new ArrayList<SessionImpl>();
+        List<Long> previousSendTimes = new ArrayList<Long>();
+        long sendTime;
+        // take the sessions one send time at a time, since their next send time depends on the previous one
+        while (sendTimes.size() > 0 && (sendTime = sendTimes.getNextDeadline()) <= timestamp) {
+            for (SessionImpl session : sendTimes.takeDue(sendTime)) {
+                dueSessions.add(session);
+                previousSendTimes.add(sendTime);
+            }
+        }
+
+        for (int i = 0; i < dueSessions.size(); i++) {
+            sendTimes.schedule(dueSessions.get(i), nextSendTime(previousSendTimes.get(i), timestamp, sendInterval));
+        }
+
+        return dueSessions;
+    }
+
+    /**
+     * Returns all scheduled sessions, regardless of their send time, and schedules their next send.
+     *
+     * <p>
+     * Each session keeps its offset within the send interval.
+     * </p>
+     *
+     * @param timestamp The current timestamp in milliseconds.
+     * @param sendInterval The send interval in milliseconds.
+     * @return All scheduled sessions.
+     */
+    List<SessionImpl> takeAllSessions(long timestamp, long sendInterval) {
+        List<SessionImpl> sessions = sendTimes.getScheduledObjects();
+        for (SessionImpl session : sessions) {
+            sendTimes.schedule(session, nextSendTime(sendTimes.getDeadline(session), timestamp, sendInterval));
+        }
+
+        return sessions;
+    }
+
+    /**
+     * Maps the given hash code to an offset within the send interval.
+     *
+     * @param hashCode The hash code of a session.
+     * @param sendInterval The send interval in milliseconds.
+     * @return The offset in milliseconds, which is in the range {@code [0, sendInterval)}.
+     */
+    static long spreadOffset(int hashCode, long sendInterval) {
+        if (sendInterval <= 0) {
+            return 0;
+        }
+        long spreadHash = (hashCode * HASH_SPREAD_MULTIPLIER) & 0xFFFFFFFFL;
+        return (long) ((spreadHash / (double) (1L << 32)) * sendInterval);
+    }
+
+    /**
+     * Calculates the first send time after the given timestamp, which is a multiple of the send interval
+     * after the previous send time.
+     *
+     * @param previousSendTime The previous send time in milliseconds.
+     * @param timestamp The current timestamp in milliseconds.
+     * @param sendInterval The send interval in milliseconds.
+     * @return The next send time in milliseconds.
+     */
+    static long nextSendTime(long previousSendTime, long timestamp, long sendInterval) {
+        if (sendInterval <= 0) {
+            return timestamp;
+        }
+        if (previousSendTime > timestamp) {
+            return previousSendTime;
+        }
+        // skip missed send times, instead of sending several times in a row to catch up
+        long numMissedIntervals = (timestamp - previousSendTime) / sendInterval;
+        return previousSendTime + (numMissedIntervals + 1) * sendInterval;
+    }
+}
@@ -0,0 +1,280 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.communication;
+
+import com.dynatrace.openkit.api.Logger;
+import com.dynatrace.openkit.core.objects.SessionImpl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pool of workers sending beacons of different sessions concurrently.
+ *
+ * <p>
+ * The beacon sending thread stays the coordinator. It hands over a list of sessions and waits until
+ * all of them were processed. Each session is always processed by the same worker, therefore the data of a
+ * session is sent in order. As soon as one worker requests to stop (e.g. after receiving a "too many requests"
+ * response) no worker starts processing further sessions.
+ * </p>
+ *
+ * <p>
+ * When the beacon sending thread is interrupted while waiting, the workers are stopped cooperatively, since
+ * pending HTTP requests cannot be interrupted. Sessions still being processed afterwards are reported by
+ * {@link #getSessionsInProgress()} and must not be touched by the beacon sending thread.
+ * </p>
+ *
+ * <p>
+ * With a single worker all sessions are processed by the calling thread, without any additional thread.
+ * </p>
+ */
+class BeaconSendingWorkerPool {
+
+    private static final String THREAD_NAME_PREFIX = "BeaconSendingWorker-";
+
+    /**
+     * The maximum time in milliseconds to wait for workers to finish their current session, after the beacon sending
+     * thread got interrupted. This is half of the grace period granted by the {@link com.dynatrace.openkit.core.BeaconSender}
+     * after interrupting, so that unsent sessions can still be handed over afterwards.
+     */
+    static final long STOP_GRACE_PERIOD_MILLIS = 500L;
+
+    /**
+     * Task processing a single session.
+     */
+    interface SessionTask {
+
+        /**
+         * Processes the given session.
+         *
+         * <p>
+         * This method might be called concurrently for different sessions.
+         * </p>
+         *
+         * @param session The session to process.
+         * @return {@code true} to continue with further sessions, {@code false} to stop all workers.
+         */
+        boolean execute(SessionImpl session);
+    }
+
+    private final Logger logger;
+    private final int numWorkers;
+    private final ExecutorService[] executors;
+    private final Set<SessionImpl> sessionsInProgress =
+            Collections.newSetFromMap(new ConcurrentHashMap<SessionImpl, Boolean>());
+
+    /**
+     * Constructor.
+     *
+     * @param logger Logger for logging messages
+     * @param numWorkers The number of workers.
+     */
+    BeaconSendingWorkerPool(Logger logger, int numWorkers) {
+        this.logger = logger;
+        this.numWorkers = Math.max(1, numWorkers);
+        this.executors = new ExecutorService[this.numWorkers];
+    }
+
+    /**
+     * Returns the number of workers.
+     */
+    int getNumWorkers() {
+        return numWorkers;
+    }
+
+    /**
+     * Returns a snapshot of the sessions which are currently processed by a worker.
+     */
+    Set<SessionImpl> getSessionsInProgress() {
+        return new HashSet<SessionImpl>(sessionsInProgress);
+    }
+
+    /**
+     * Processes the given sessions and waits until all workers are done.
+     *
+     * <p>
+     * If the calling thread gets interrupted, no further sessions are processed and the workers are given at most
+     * {@link #STOP_GRACE_PERIOD_MILLIS} to finish their current session, before the interruption is rethrown.
+     * </p>
+     *
+     * @param sessions The sessions to process, sessions assigned to the same worker are processed in list order.
+     * @param task The task to execute for each session.
+     * @return {@code true} if all sessions were processed, {@code false} if processing was stopped by the task.
+     * @throws InterruptedException When the calling thread got interrupted while waiting for the workers.
+     */
+    boolean execute(List<SessionImpl> sessions, SessionTask task) throws InterruptedException {
+        AtomicBoolean stopped = new AtomicBoolean(false);
+        if (numWorkers == 1) {
+            return processSessions(sessions, task, stopped, sessionsInProgress);
+        }
+
+        List<List<SessionImpl>> partitions = new ArrayList<List<SessionImpl>>(numWorkers);
+        for (int i = 0; i < numWorkers; i++) {
+            partitions.add(new ArrayList<SessionImpl>());
+        }
+        for (SessionImpl session : sessions) {
+            partitions.get(getWorkerIndex(session)).add(session);
+        }
+
+        List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>(numWorkers);
+        for (int i = 0; i < numWorkers; i++) {
+            if (!partitions.get(i).isEmpty()) {
+                futures.add(getExecutor(i).submit(
+                        new PartitionCallable(partitions.get(i), task, stopped, sessionsInProgress)));
+            }
+        }
+
+        try {
+            for (Future<Boolean> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            // pending requests cannot be interrupted, therefore let the workers stop after their current session
+            stopped.set(true);
+            awaitWorkers(futures);
+            throw e;
+        } catch (ExecutionException e) {
+            stopped.set(true);
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+
+        return !stopped.get();
+    }
+
+    /**
+     * Waits at most {@link #STOP_GRACE_PERIOD_MILLIS} for the given workers to finish.
+     */
+    private static void awaitWorkers(List<Future<Boolean>> futures) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(STOP_GRACE_PERIOD_MILLIS);
+        for (Future<Boolean> future : futures) {
+            try {
+                future.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // still sending, the session remains in progress
+            } catch (ExecutionException e) {
+                // the worker is done
+            } catch (InterruptedException e) {
+                // interrupted again, stop waiting
+                break;
+            }
+        }
+
+        // workers which have not started yet are not started any more
+        for (Future<Boolean> future : futures) {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * Stops all worker threads.
+     */
+    synchronized void shutdown() {
+        for (int i = 0; i < executors.length; i++) {
+            if (executors[i] != null) {
+                executors[i].shutdownNow();
+                executors[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the worker processing the given session.
+     */
+    int getWorkerIndex(SessionImpl session) {
+        return (System.identityHashCode(session) & Integer.MAX_VALUE) % numWorkers;
+    }
+
+    private synchronized ExecutorService getExecutor(int index) {
+        if (executors[index] == null) {
+            final String threadName = THREAD_NAME_PREFIX + index;
+            executors[index] = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, threadName);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            if (logger.isDebugEnabled()) {
+                logger.debug(getClass().getSimpleName() + " getExecutor() - started " + threadName);
+            }
+        }
+        return executors[index];
+    }
+
+    private static boolean processSessions(List<SessionImpl> sessions, SessionTask task, AtomicBoolean stopped,
+                                           Set<SessionImpl> sessionsInProgress) {
+        for (SessionImpl session : sessions) {
+            if (stopped.get()) {
+                return false;
+            }
+            boolean isContinued;
+            sessionsInProgress.add(session);
+            try {
+                isContinued = task.execute(session);
+            } finally {
+                sessionsInProgress.remove(session);
+            }
+            if (!isContinued) {
+                stopped.set(true);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class PartitionCallable implements Callable<Boolean> {
+
+        private final List<SessionImpl> sessions;
+        private final SessionTask task;
+        private final AtomicBoolean stopped;
+        private final Set<SessionImpl> sessionsInProgress;
+
+        private PartitionCallable(List<SessionImpl> sessions, SessionTask task, AtomicBoolean stopped,
+                                  Set<SessionImpl> sessionsInProgress) {
+            this.sessions = sessions;
+            this.task = task;
+            this.stopped = stopped;
+            this.sessionsInProgress = sessionsInProgress;
+        }
+
+        @Override
+        public Boolean call() {
+            return processSessions(sessions, task, stopped, sessionsInProgress);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.configuration;
+
+import com.dynatrace.openkit.AbstractOpenKitBuilder;
+import com.dynatrace.openkit.AsyncCaptureOverflowPolicy;
+
+/**
+ * Configuration for capturing actions, events and values asynchronously.
+ */
+public class AsyncCaptureConfiguration {
+
+    /**
+     * Maximum capacity of the capture buffer, larger values are reduced to this one.
+     */
+    static final int MAX_BUFFER_CAPACITY = 1 << 24;
+
+    /**
+     * Async capture configuration using the default settings, which means that asynchronous capturing is disabled.
+     */
+    public static final AsyncCaptureConfiguration DEFAULT = new AsyncCaptureConfiguration(
+            0,
+            ConfigurationDefaults.DEFAULT_ASYNC_CAPTURE_OVERFLOW_POLICY);
+
+    private final int bufferCapacity;
+    private final AsyncCaptureOverflowPolicy overflowPolicy;
+
+    /**
+     * Constructor
+     *
+     * @param bufferCapacity The requested capacity of the capture buffer or {@code 0} if asynchronous capturing is disabled.
+     * @param overflowPolicy The policy to apply when the capture buffer is full.
+     */
+    private AsyncCaptureConfiguration(int bufferCapacity, AsyncCaptureOverflowPolicy overflowPolicy) {
+        this.bufferCapacity = bufferCapacity > 0 ? roundUpToPowerOfTwo(bufferCapacity) : 0;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Create an {@link AsyncCaptureConfiguration} from given {@link AbstractOpenKitBuilder}.
+     *
+     * @param builder The OpenKit builder for which to create an {@link AsyncCaptureConfiguration}.
+     * @return Newly created {@link AsyncCaptureConfiguration} or {@code null} if given argument is {@code null}
+     */
+    public static AsyncCaptureConfiguration from(AbstractOpenKitBuilder builder) {
+        if (builder == null) {
+            return null;
+        }
+        return new AsyncCaptureConfiguration(
+                builder.getAsyncCaptureBufferCapacity(),
+                builder.getAsyncCaptureOverflowPolicy());
+    }
+
+    private static int roundUpToPowerOfTwo(int value) {
+        if (value >= MAX_BUFFER_CAPACITY) {
+            return MAX_BUFFER_CAPACITY;
+        }
+        int highestOneBit = Integer.highestOneBit(value);
+        return highestOneBit == value ? value : highestOneBit << 1;
+    }
+
+    /**
+     * Indicates whether asynchronous capturing is enabled.
+     *
+     * @return {@code true} if a buffer capacity has been configured, {@code false} otherwise.
+     */
+    public boolean isEnabled() {
+        return bufferCapacity > 0;
+    }
+
+    /**
+     * Get the capacity of the capture buffer, which is always a power of two.
+     *
+     * @return The buffer capacity or {@code 0} if asynchronous capturing is disabled.
+     */
+    public int getBufferCapacity() {
+        return bufferCapacity;
+    }
+
+    /**
+     * Get the policy to apply when the capture buffer is full.
+     */
+    public AsyncCaptureOverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+}
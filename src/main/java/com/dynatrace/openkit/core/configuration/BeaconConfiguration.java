@@ -29,8 +29,8 @@ public class BeaconConfiguration {
     private final HTTPClientConfiguration httpClientConfiguration;
     /** Server configuration, which can be updated by the server. */
     private ServerConfiguration serverConfiguration;
-    /** indicator if the {@link ServerConfiguration} was set or not */
-    private boolean isServerConfigurationSet;
+    /** indicator if the {@link ServerConfiguration} was set or not, which is only written while holding the lock */
+    private volatile boolean isServerConfigurationSet;
 
     /** callback when the server configuration is updated. */
     private ServerConfigurationUpdateCallback serverConfigUpdateCallback;
@@ -197,9 +197,7 @@ public class BeaconConfiguration {
      * @return {@code true} if the {@link ServerConfiguration} has been set before, {@code false} otherwise.
      */
     public boolean isServerConfigurationSet() {
-        synchronized (lockObject) {
-            return isServerConfigurationSet;
-        }
+        return isServerConfigurationSet;
     }
 
     /**
@@ -0,0 +1,98 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.configuration;
+
+import com.dynatrace.openkit.AbstractOpenKitBuilder;
+
+/**
+ * Configuration for the persistent outbox of beacon data that could not be sent.
+ */
+public class BeaconOutboxConfiguration {
+
+    /**
+     * Beacon outbox configuration using the default settings, which means that the outbox is disabled.
+     */
+    public static final BeaconOutboxConfiguration DEFAULT = new BeaconOutboxConfiguration(
+            null,
+            ConfigurationDefaults.DEFAULT_BEACON_OUTBOX_MAX_SIZE_IN_BYTES,
+            ConfigurationDefaults.DEFAULT_BEACON_OUTBOX_MAX_RECORD_AGE_IN_MILLIS);
+
+    private final String directory;
+    private final long maxSizeInBytes;
+    private final long maxRecordAge;
+
+    /**
+     * Constructor
+     *
+     * @param directory The directory in which the outbox is stored or {@code null} if the outbox is disabled.
+     * @param maxSizeInBytes The maximum size of the outbox in bytes.
+     * @param maxRecordAge The maximum age of data in the outbox in milliseconds.
+     */
+    private BeaconOutboxConfiguration(String directory, long maxSizeInBytes, long maxRecordAge) {
+        this.directory = directory;
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.maxRecordAge = maxRecordAge;
+    }
+
+    /**
+     * Create a {@link BeaconOutboxConfiguration} from given {@link AbstractOpenKitBuilder}.
+     *
+     * @param builder The OpenKit builder for which to create a {@link BeaconOutboxConfiguration}.
+     * @return Newly created {@link BeaconOutboxConfiguration} or {@code null} if given argument is {@code null}
+     */
+    public static BeaconOutboxConfiguration from(AbstractOpenKitBuilder builder) {
+        if (builder == null) {
+            return null;
+        }
+        return new BeaconOutboxConfiguration(
+                builder.getBeaconOutboxDirectory(),
+                builder.getBeaconOutboxMaxSize(),
+                builder.getBeaconOutboxMaxRecordAge());
+    }
+
+    /**
+     * Indicates whether the beacon outbox is enabled.
+     *
+     * @return {@code true} if a directory for the outbox has been configured, {@code false} otherwise.
+     */
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Get the directory in which the outbox is stored.
+     *
+     * @return The outbox directory or {@code null} if the outbox is disabled.
+     */
+    public String getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Get the maximum size of the outbox in bytes.
+     */
+    public long getMaxSizeInBytes() {
+        return maxSizeInBytes;
+    }
+
+    /**
+     * Get the maximum age of data in the outbox in milliseconds.
+     */
+    public long getMaxRecordAge() {
+        return maxRecordAge;
+    }
+}
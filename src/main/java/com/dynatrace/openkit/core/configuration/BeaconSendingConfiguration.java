@@ -0,0 +1,94 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.configuration;
+
+import com.dynatrace.openkit.AbstractOpenKitBuilder;
+
+/**
+ * Configuration for sending beacons in the background.
+ */
+public class BeaconSendingConfiguration {
+
+    /**
+     * Beacon sending configuration using the default settings.
+     */
+    public static final BeaconSendingConfiguration DEFAULT = new BeaconSendingConfiguration(
+            ConfigurationDefaults.DEFAULT_BEACON_SENDING_WORKERS,
+            ConfigurationDefaults.DEFAULT_LOWER_MEMORY_BOUNDARY_IN_BYTES,
+            ConfigurationDefaults.DEFAULT_UPPER_MEMORY_BOUNDARY_IN_BYTES);
+
+    private final int numWorkers;
+    private final long cacheSizeSendThreshold;
+    private final long cacheSizeUpperBound;
+
+    /**
+     * Constructor
+     *
+     * @param numWorkers The number of workers sending beacons of different sessions concurrently.
+     * @param cacheSizeSendThreshold The number of bytes in the beacon cache, from which on open sessions are sent
+     *                               without waiting for the send interval to expire.
+     * @param cacheSizeUpperBound The number of bytes in the beacon cache, from which on the cache evictor drops data.
+     */
+    private BeaconSendingConfiguration(int numWorkers, long cacheSizeSendThreshold, long cacheSizeUpperBound) {
+        this.numWorkers = numWorkers;
+        this.cacheSizeSendThreshold = cacheSizeSendThreshold;
+        this.cacheSizeUpperBound = cacheSizeUpperBound;
+    }
+
+    /**
+     * Create a {@link BeaconSendingConfiguration} from given {@link AbstractOpenKitBuilder}.
+     *
+     * <p>
+     *     Open sessions are sent early, when the beacon cache exceeds its lower memory boundary,
+     *     so that the data is sent before the cache evictor needs to drop it. Before reaching this threshold,
+     *     the send interval is shortened depending on how close the cache is to its upper memory boundary.
+     * </p>
+     *
+     * @param builder The OpenKit builder for which to create a {@link BeaconSendingConfiguration}.
+     * @return Newly created {@link BeaconSendingConfiguration} or {@code null} if given argument is {@code null}
+     */
+    public static BeaconSendingConfiguration from(AbstractOpenKitBuilder builder) {
+        if (builder == null) {
+            return null;
+        }
+        return new BeaconSendingConfiguration(
+                builder.getBeaconSendingWorkers(),
+                builder.getBeaconCacheLowerMemoryBoundary(),
+                builder.getBeaconCacheUpperMemoryBoundary());
+    }
+
+    /**
+     * Get the number of workers sending beacons of different sessions concurrently.
+     */
+    public int getNumWorkers() {
+        return numWorkers;
+    }
+
+    /**
+     * Get the number of bytes in the beacon cache, from which on open sessions are sent immediately.
+     */
+    public long getCacheSizeSendThreshold() {
+        return cacheSizeSendThreshold;
+    }
+
+    /**
+     * Get the number of bytes in the beacon cache, from which on the cache evictor drops data.
+     */
+    public long getCacheSizeUpperBound() {
+        return cacheSizeUpperBound;
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.configuration;
+
+import com.dynatrace.openkit.AbstractOpenKitBuilder;
+
+/**
+ * Configuration for compressing beacon data before it is sent.
+ */
+public class CompressionConfiguration {
+
+    /**
+     * Compression configuration using the default settings.
+     */
+    public static final CompressionConfiguration DEFAULT = new CompressionConfiguration(
+            ConfigurationDefaults.DEFAULT_COMPRESSION_LEVEL,
+            ConfigurationDefaults.DEFAULT_COMPRESSION_STRATEGY,
+            ConfigurationDefaults.DEFAULT_COMPRESSION_THRESHOLD_IN_BYTES);
+
+    private final int compressionLevel;
+    private final int compressionStrategy;
+    private final int compressionThreshold;
+
+    /**
+     * Constructor
+     *
+     * @param compressionLevel The compression level as defined by {@link java.util.zip.Deflater}.
+     * @param compressionStrategy The compression strategy as defined by {@link java.util.zip.Deflater}.
+     * @param compressionThreshold The minimum payload size in bytes from which on data is compressed.
+     */
+    private CompressionConfiguration(int compressionLevel, int compressionStrategy, int compressionThreshold) {
+        this.compressionLevel = compressionLevel;
+        this.compressionStrategy = compressionStrategy;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    /**
+     * Create a {@link CompressionConfiguration} from given {@link AbstractOpenKitBuilder}.
+     *
+     * @param builder The OpenKit builder for which to create a {@link CompressionConfiguration}.
+     * @return Newly created {@link CompressionConfiguration} or {@code null} if given argument is {@code null}
+     */
+    public static CompressionConfiguration from(AbstractOpenKitBuilder builder) {
+        if (builder == null) {
+            return null;
+        }
+        return new CompressionConfiguration(
+                builder.getCompressionLevel(),
+                builder.getCompressionStrategy(),
+                builder.getCompressionThreshold());
+    }
+
+    /**
+     * Get the compression level.
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Get the compression strategy.
+     */
+    public int getCompressionStrategy() {
+        return compressionStrategy;
+    }
+
+    /**
+     * Get the minimum payload size in bytes, from which on data is compressed.
+     */
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+}
@@ -16,10 +16,12 @@
 
 package com.dynatrace.openkit.core.configuration;
 
+import com.dynatrace.openkit.AsyncCaptureOverflowPolicy;
 import com.dynatrace.openkit.CrashReportingLevel;
 import com.dynatrace.openkit.DataCollectionLevel;
 
 import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
 
 /**
  * Class containing all default values for all configurations.
@@ -56,6 +58,65 @@ public class ConfigurationDefaults {
     /** Default crash reporting level used, if no other value was specified */
     public static final CrashReportingLevel DEFAULT_CRASH_REPORTING_LEVEL = CrashReportingLevel.defaultValue();
 
+    /** Default compression level used for beacon data, if no other value was specified */
+    public static final int DEFAULT_COMPRESSION_LEVEL = Deflater.DEFAULT_COMPRESSION;
+    /** Default compression strategy used for beacon data, if no other value was specified */
+    public static final int DEFAULT_COMPRESSION_STRATEGY = Deflater.DEFAULT_STRATEGY;
+    /**
+     * Default minimum payload size in bytes, from which on beacon data is compressed.
+     *
+     * <p>
+     *     The default value of {@code 0} compresses every payload.
+     * </p>
+     */
+    public static final int DEFAULT_COMPRESSION_THRESHOLD_IN_BYTES = 0;
+
+    /**
+     * Default number of workers sending beacons of different sessions concurrently.
+     *
+     * <p>
+     *     With a single worker all beacons are sent from the beacon sending thread itself.
+     * </p>
+     */
+    public static final int DEFAULT_BEACON_SENDING_WORKERS = 1;
+
+    /**
+     * The default maximum size in bytes of the beacon outbox.
+     *
+     * <p>
+     *     When the outbox exceeds this size, the oldest data is dropped.
+     * </p>
+     */
+    public static final long DEFAULT_BEACON_OUTBOX_MAX_SIZE_IN_BYTES = 10L * 1024L * 1024L; // 10 MiB
+
+    /**
+     * The default maximum age of data in the beacon outbox.
+     *
+     * <p>
+     *     Data older than this is not sent again, but dropped from the outbox.
+     * </p>
+     */
+    public static final long DEFAULT_BEACON_OUTBOX_MAX_RECORD_AGE_IN_MILLIS = DEFAULT_MAX_RECORD_AGE_IN_MILLIS;
+
+    /**
+     * The default maximum age of a stored server configuration.
+     *
+     * <p>
+     *     Older server configurations are not used for starting up, instead OpenKit waits for the server's response.
+     * </p>
+     */
+    public static final long DEFAULT_SERVER_CONFIGURATION_STORE_MAX_AGE_IN_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * The default overflow policy for asynchronous event capturing.
+     *
+     * <p>
+     *     Asynchronous event capturing itself is disabled by default.
+     * </p>
+     */
+    public static final AsyncCaptureOverflowPolicy DEFAULT_ASYNC_CAPTURE_OVERFLOW_POLICY =
+            AsyncCaptureOverflowPolicy.defaultValue();
+
     private ConfigurationDefaults() {
     }
 
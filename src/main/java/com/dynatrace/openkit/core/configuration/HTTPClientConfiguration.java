@@ -27,12 +27,14 @@ public class HTTPClientConfiguration {
     private final int serverID;
     private final String applicationID;
     private final SSLTrustManager sslTrustManager;
+    private final int routingKey;
 
     private HTTPClientConfiguration(Builder builder) {
         this.baseURL = builder.baseURL;
         this.serverID = builder.serverID;
         this.applicationID = builder.applicationID;
         this.sslTrustManager = builder.sslTrustManager;
+        this.routingKey = builder.routingKey;
     }
 
     /**
@@ -71,7 +73,8 @@ public class HTTPClientConfiguration {
                 .withBaseURL(httpClientConfig.getBaseURL())
                 .withApplicationID(httpClientConfig.getApplicationID())
                 .withSSLTrustManager(httpClientConfig.getSSLTrustManager())
-                .withServerID(httpClientConfig.getServerID());
+                .withServerID(httpClientConfig.getServerID())
+                .withRoutingKey(httpClientConfig.getRoutingKey());
     }
 
     /**
@@ -108,6 +111,19 @@ public class HTTPClientConfiguration {
         return sslTrustManager;
     }
 
+    /**
+     * Returns the key used for choosing an endpoint, if multiple endpoints are configured.
+     *
+     * <p>
+     *     Requests with the same routing key are sent to the same endpoint, as long as this endpoint is healthy.
+     * </p>
+     *
+     * @return the routing key
+     */
+    public int getRoutingKey() {
+        return routingKey;
+    }
+
     /**
      * Builder class for building {@link HTTPClientConfiguration}.
      */
@@ -117,6 +133,7 @@ public class HTTPClientConfiguration {
         private int serverID = -1;
         private String applicationID = null;
         private SSLTrustManager sslTrustManager = null;
+        private int routingKey = 0;
 
         public Builder withBaseURL(String baseURL) {
             this.baseURL = baseURL;
@@ -138,6 +155,11 @@ public class HTTPClientConfiguration {
             return this;
         }
 
+        public Builder withRoutingKey(int routingKey) {
+            this.routingKey = routingKey;
+            return this;
+        }
+
         public HTTPClientConfiguration build() {
             return new HTTPClientConfiguration(this);
         }
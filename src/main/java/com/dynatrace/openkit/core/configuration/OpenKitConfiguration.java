@@ -20,6 +20,10 @@ import com.dynatrace.openkit.AbstractOpenKitBuilder;
 import com.dynatrace.openkit.api.SSLTrustManager;
 import com.dynatrace.openkit.core.util.PercentEncoder;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Configuration class storing all configuration parameters that have been configured via
  * {@link com.dynatrace.openkit.DynatraceOpenKitBuilder} or {@link com.dynatrace.openkit.AppMonOpenKitBuilder}.
@@ -33,6 +37,8 @@ public class OpenKitConfiguration {
 
     /** The endpoint URL to send data to. */
     private final String endpointURL;
+    /** The endpoint URL followed by all additional endpoint URLs. */
+    private final List<String> endpointURLs;
     /** Unique device/installation identifier */
     private final long deviceID;
     /** Unique device/installation identifier in an not-hashed representation as it as passed to the OpenKit builder */
@@ -71,6 +77,7 @@ public class OpenKitConfiguration {
      */
     private OpenKitConfiguration(AbstractOpenKitBuilder builder) {
         endpointURL = builder.getEndpointURL();
+        endpointURLs = createEndpointURLs(endpointURL, builder.getAdditionalEndpointURLs());
         deviceID = builder.getDeviceID();
         origDeviceID = builder.getOrigDeviceID();
         openKitType = builder.getOpenKitType();
@@ -98,6 +105,15 @@ public class OpenKitConfiguration {
         return new OpenKitConfiguration(builder);
     }
 
+    private static List<String> createEndpointURLs(String endpointURL, List<String> additionalEndpointURLs) {
+        List<String> urls = new ArrayList<String>();
+        urls.add(endpointURL);
+        if (additionalEndpointURLs != null) {
+            urls.addAll(additionalEndpointURLs);
+        }
+        return Collections.unmodifiableList(urls);
+    }
+
     /**
      * Get the Beacon endpoint URL to communicate with.
      *
@@ -107,6 +123,15 @@ public class OpenKitConfiguration {
         return endpointURL;
     }
 
+    /**
+     * Get all Beacon endpoint URLs to distribute data across.
+     *
+     * @return The {@link #getEndpointURL() endpoint URL} followed by all additional endpoint URLs.
+     */
+    public List<String> getEndpointURLs() {
+        return endpointURLs;
+    }
+
     /**
      * Get the unique device identifier.
      *
@@ -0,0 +1,73 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.configuration;
+
+import com.dynatrace.openkit.AbstractOpenKitBuilder;
+
+/**
+ * Configuration for reclaiming actions, web request tracers and sessions the application did not close.
+ */
+public class ReclamationConfiguration {
+
+    /**
+     * Reclamation configuration using the default settings, which means that leaked objects are not reclaimed.
+     */
+    public static final ReclamationConfiguration DEFAULT = new ReclamationConfiguration(0);
+
+    private final long maxActionLifetimeInMillis;
+
+    /**
+     * Constructor
+     *
+     * @param maxActionLifetimeInMillis The maximum lifetime of actions and web request tracers
+     *                                  or {@code 0} if leaked objects are not reclaimed.
+     */
+    private ReclamationConfiguration(long maxActionLifetimeInMillis) {
+        this.maxActionLifetimeInMillis = Math.max(0, maxActionLifetimeInMillis);
+    }
+
+    /**
+     * Create a {@link ReclamationConfiguration} from given {@link AbstractOpenKitBuilder}.
+     *
+     * @param builder The OpenKit builder for which to create a {@link ReclamationConfiguration}.
+     * @return Newly created {@link ReclamationConfiguration} or {@code null} if given argument is {@code null}
+     */
+    public static ReclamationConfiguration from(AbstractOpenKitBuilder builder) {
+        if (builder == null) {
+            return null;
+        }
+        return new ReclamationConfiguration(builder.getMaxActionLifetime());
+    }
+
+    /**
+     * Indicates whether leaked objects are reclaimed.
+     *
+     * @return {@code true} if a maximum action lifetime has been configured, {@code false} otherwise.
+     */
+    public boolean isEnabled() {
+        return maxActionLifetimeInMillis > 0;
+    }
+
+    /**
+     * Get the time in milliseconds after which open actions and web request tracers are closed forcefully.
+     *
+     * @return The maximum action lifetime or {@code 0} if leaked objects are not reclaimed.
+     */
+    public long getMaxActionLifetimeInMillis() {
+        return maxActionLifetimeInMillis;
+    }
+}
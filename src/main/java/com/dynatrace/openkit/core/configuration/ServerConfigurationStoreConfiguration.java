@@ -0,0 +1,86 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.configuration;
+
+import com.dynatrace.openkit.AbstractOpenKitBuilder;
+
+/**
+ * Configuration for storing the last server configuration, which is used right away after restarting.
+ */
+public class ServerConfigurationStoreConfiguration {
+
+    /**
+     * Server configuration store configuration using the default settings, which means that the store is disabled.
+     */
+    public static final ServerConfigurationStoreConfiguration DEFAULT = new ServerConfigurationStoreConfiguration(
+            null,
+            ConfigurationDefaults.DEFAULT_SERVER_CONFIGURATION_STORE_MAX_AGE_IN_MILLIS);
+
+    private final String directory;
+    private final long maxAge;
+
+    /**
+     * Constructor
+     *
+     * @param directory The directory in which the server configuration is stored or {@code null} if disabled.
+     * @param maxAge The maximum age of a stored server configuration in milliseconds.
+     */
+    private ServerConfigurationStoreConfiguration(String directory, long maxAge) {
+        this.directory = directory;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Create a {@link ServerConfigurationStoreConfiguration} from given {@link AbstractOpenKitBuilder}.
+     *
+     * @param builder The OpenKit builder for which to create a {@link ServerConfigurationStoreConfiguration}.
+     * @return Newly created {@link ServerConfigurationStoreConfiguration} or {@code null} if given argument is {@code null}
+     */
+    public static ServerConfigurationStoreConfiguration from(AbstractOpenKitBuilder builder) {
+        if (builder == null) {
+            return null;
+        }
+        return new ServerConfigurationStoreConfiguration(
+                builder.getServerConfigurationStoreDirectory(),
+                builder.getServerConfigurationStoreMaxAge());
+    }
+
+    /**
+     * Indicates whether storing the server configuration is enabled.
+     *
+     * @return {@code true} if a directory for the store has been configured, {@code false} otherwise.
+     */
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Get the directory in which the server configuration is stored.
+     *
+     * @return The store directory or {@code null} if the store is disabled.
+     */
+    public String getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Get the maximum age of a stored server configuration in milliseconds.
+     */
+    public long getMaxAge() {
+        return maxAge;
+    }
+}
@@ -0,0 +1,228 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.objects;
+
+import com.dynatrace.openkit.api.ActionBatch;
+import com.dynatrace.openkit.api.Logger;
+import com.dynatrace.openkit.protocol.Beacon;
+import com.dynatrace.openkit.protocol.EventType;
+
+/**
+ * Actual implementation of the {@link ActionBatch} interface.
+ *
+ * <p>
+ *     Recorded events and values are kept in arrays, which are reused after each {@link #commit()},
+ *     so that recording does not create any object per entry, except for the reported names and values.
+ * </p>
+ */
+public class ActionBatchImpl implements ActionBatch {
+
+    /** Initial number of entries, for which space is reserved */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** {@link Logger} for tracing log message */
+    private final Logger logger;
+    /** The action on which the recorded entries are reported */
+    private final BaseActionImpl action;
+    /** Beacon for sending data */
+    private final Beacon beacon;
+
+    /** Event type of each recorded entry */
+    private EventType[] eventTypes = new EventType[INITIAL_CAPACITY];
+    /** Name of each recorded entry */
+    private String[] names = new String[INITIAL_CAPACITY];
+    /** Value of recorded int and double values, doubles are stored as raw long bits */
+    private long[] numericValues = new long[INITIAL_CAPACITY];
+    /** Value of recorded String values */
+    private String[] stringValues = new String[INITIAL_CAPACITY];
+    /** Number of recorded entries */
+    private int size = 0;
+
+    /**
+     * Constructor for creating a batch on the given action.
+     *
+     * @param logger The logger used to log information
+     * @param action The action on which the recorded entries are reported
+     * @param beacon The beacon for sending data
+     */
+    ActionBatchImpl(Logger logger, BaseActionImpl action, Beacon beacon) {
+        this.logger = logger;
+        this.action = action;
+        this.beacon = beacon;
+    }
+
+    @Override
+    public ActionBatch reportEvent(String eventName) {
+        if (eventName == null || eventName.isEmpty()) {
+            logger.warning(this + "reportEvent: eventName must not be null or empty");
+            return this;
+        }
+        add(EventType.NAMED_EVENT, eventName, 0L, null);
+        return this;
+    }
+
+    @Override
+    public ActionBatch reportValue(String valueName, int value) {
+        if (valueName == null || valueName.isEmpty()) {
+            logger.warning(this + "reportValue (int): valueName must not be null or empty");
+            return this;
+        }
+        add(EventType.VALUE_INT, valueName, value, null);
+        return this;
+    }
+
+    @Override
+    public ActionBatch reportValue(String valueName, double value) {
+        if (valueName == null || valueName.isEmpty()) {
+            logger.warning(this + "reportValue (double): valueName must not be null or empty");
+            return this;
+        }
+        add(EventType.VALUE_DOUBLE, valueName, Double.doubleToRawLongBits(value), null);
+        return this;
+    }
+
+    @Override
+    public ActionBatch reportValue(String valueName, String value) {
+        if (valueName == null || valueName.isEmpty()) {
+            logger.warning(this + "reportValue (String): valueName must not be null or empty");
+            return this;
+        }
+        add(EventType.VALUE_STRING, valueName, 0L, value);
+        return this;
+    }
+
+    @Override
+    public void commit() {
+        if (size == 0) {
+            return;
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug(this + "commit(" + size + " entries)");
+        }
+        synchronized (action.lockObject) {
+            if (!action.isActionLeft()) {
+                beacon.reportBatch(action.getID(), this);
+            }
+        }
+        clear();
+    }
+
+    private void add(EventType eventType, String name, long numericValue, String stringValue) {
+        if (size == eventTypes.length) {
+            grow();
+        }
+        eventTypes[size] = eventType;
+        names[size] = name;
+        numericValues[size] = numericValue;
+        stringValues[size] = stringValue;
+        size++;
+    }
+
+    private void grow() {
+        int newCapacity = eventTypes.length * 2;
+
+        EventType[] newEventTypes = new EventType[newCapacity];
+        System.arraycopy(eventTypes, 0, newEventTypes, 0, size);
+        eventTypes = newEventTypes;
+
+        String[] newNames = new String[newCapacity];
+        System.arraycopy(names, 0, newNames, 0, size);
+        names = newNames;
+
+        long[] newNumericValues = new long[newCapacity];
+        System.arraycopy(numericValues, 0, newNumericValues, 0, size);
+        numericValues = newNumericValues;
+
+        String[] newStringValues = new String[newCapacity];
+        System.arraycopy(stringValues, 0, newStringValues, 0, size);
+        stringValues = newStringValues;
+    }
+
+    private void clear() {
+        // release references, but keep the arrays for reuse
+        for (int i = 0; i < size; i++) {
+            names[i] = null;
+            stringValues[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Get the number of recorded entries.
+     *
+     * @return Number of events and values recorded since the last commit.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the event type of a recorded entry.
+     *
+     * @param index The index of the entry.
+     * @return One of {@link EventType#NAMED_EVENT}, {@link EventType#VALUE_INT}, {@link EventType#VALUE_DOUBLE}
+     * or {@link EventType#VALUE_STRING}.
+     */
+    public EventType getEventType(int index) {
+        return eventTypes[index];
+    }
+
+    /**
+     * Get the name of a recorded entry.
+     *
+     * @param index The index of the entry.
+     * @return The event's or value's name.
+     */
+    public String getName(int index) {
+        return names[index];
+    }
+
+    /**
+     * Get the value of a recorded {@link EventType#VALUE_INT int value}.
+     *
+     * @param index The index of the entry.
+     * @return The reported int value.
+     */
+    public int getIntValue(int index) {
+        return (int) numericValues[index];
+    }
+
+    /**
+     * Get the value of a recorded {@link EventType#VALUE_DOUBLE double value}.
+     *
+     * @param index The index of the entry.
+     * @return The reported double value.
+     */
+    public double getDoubleValue(int index) {
+        return Double.longBitsToDouble(numericValues[index]);
+    }
+
+    /**
+     * Get the value of a recorded {@link EventType#VALUE_STRING String value}.
+     *
+     * @param index The index of the entry.
+     * @return The reported String value, which might be {@code null}.
+     */
+    public String getStringValue(int index) {
+        return stringValues[index];
+    }
+
+    @Override
+    public String toString() {
+        return action + "batch ";
+    }
+}
@@ -17,6 +17,7 @@
 package com.dynatrace.openkit.core.objects;
 
 import com.dynatrace.openkit.api.Action;
+import com.dynatrace.openkit.api.ActionBatch;
 import com.dynatrace.openkit.api.Logger;
 import com.dynatrace.openkit.api.WebRequestTracer;
 import com.dynatrace.openkit.protocol.Beacon;
@@ -179,6 +180,17 @@ public abstract class BaseActionImpl extends OpenKitComposite implements Action
         return this;
     }
 
+    @Override
+    public ActionBatch batch() {
+        synchronized (lockObject) {
+            if (!isActionLeft()) {
+                return new ActionBatchImpl(logger, this, beacon);
+            }
+        }
+
+        return NullActionBatch.INSTANCE;
+    }
+
     @Override
     public WebRequestTracer traceWebRequest(URLConnection connection) {
         if (connection == null) {
@@ -265,6 +277,36 @@ public abstract class BaseActionImpl extends OpenKitComposite implements Action
         return getParentAction();
     }
 
+    /**
+     * Leaves this action forcefully, if it has been entered at or before the given expiry time.
+     *
+     * @param expiryTime Actions entered at or before this time are left.
+     * @param counters Counters for the reclaimed objects.
+     * @return The start time of this action if it is still open, {@link Long#MAX_VALUE} otherwise.
+     */
+    long reclaimIfExpired(long expiryTime, ReclamationCounters counters) {
+        List<OpenKitObject> childObjects;
+        synchronized (lockObject) {
+            if (isActionLeft()) {
+                return Long.MAX_VALUE;
+            }
+            if (startTime > expiryTime) {
+                // children are started after their parent, so none of them has expired either
+                return startTime;
+            }
+            childObjects = getCopyOfChildObjects();
+        }
+
+        // count the children, which are closed together with this action
+        reclaimExpiredObjects(childObjects, Long.MAX_VALUE, counters);
+
+        logger.warning(this + "reclaimIfExpired: action was not left within the maximum action lifetime");
+        counters.actionReclaimed();
+        leaveAction();
+
+        return Long.MAX_VALUE;
+    }
+
     /**
      * Get the parent {@link} Action, which might be {@code null} in case the parent does not implement {@link Action}.
      *
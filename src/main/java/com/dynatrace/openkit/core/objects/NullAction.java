@@ -17,6 +17,7 @@
 package com.dynatrace.openkit.core.objects;
 
 import com.dynatrace.openkit.api.Action;
+import com.dynatrace.openkit.api.ActionBatch;
 import com.dynatrace.openkit.api.RootAction;
 import com.dynatrace.openkit.api.WebRequestTracer;
 
@@ -63,6 +64,11 @@ class NullAction implements Action {
         return this;
     }
 
+    @Override
+    public ActionBatch batch() {
+        return NullActionBatch.INSTANCE;
+    }
+
     @Override
     public WebRequestTracer traceWebRequest(URLConnection connection) {
         return NullWebRequestTracer.INSTANCE;
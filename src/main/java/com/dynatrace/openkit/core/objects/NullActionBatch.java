@@ -0,0 +1,57 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.objects;
+
+import com.dynatrace.openkit.api.Action;
+import com.dynatrace.openkit.api.ActionBatch;
+
+/**
+ * This implementation of {@link ActionBatch} is returned by {@link Action#batch()} when the
+ * {@link Action#leaveAction()} has been called before.
+ */
+public enum NullActionBatch implements ActionBatch {
+
+    /**
+     * The sole {@link NullActionBatch} instance
+     */
+    INSTANCE;
+
+    @Override
+    public ActionBatch reportEvent(String eventName) {
+        return this;
+    }
+
+    @Override
+    public ActionBatch reportValue(String valueName, int value) {
+        return this;
+    }
+
+    @Override
+    public ActionBatch reportValue(String valueName, double value) {
+        return this;
+    }
+
+    @Override
+    public ActionBatch reportValue(String valueName, String value) {
+        return this;
+    }
+
+    @Override
+    public void commit() {
+        // intentionally left empty, due to NullObject pattern
+    }
+}
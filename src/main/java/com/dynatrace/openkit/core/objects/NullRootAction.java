@@ -17,6 +17,7 @@
 package com.dynatrace.openkit.core.objects;
 
 import com.dynatrace.openkit.api.Action;
+import com.dynatrace.openkit.api.ActionBatch;
 import com.dynatrace.openkit.api.RootAction;
 import com.dynatrace.openkit.api.Session;
 import com.dynatrace.openkit.api.WebRequestTracer;
@@ -39,6 +40,11 @@ public enum NullRootAction implements RootAction {
         return new NullAction(this);
     }
 
+    @Override
+    public void reportAction(String actionName, long startTimeInMillis, long endTimeInMillis) {
+        // intentionally left empty, due to NullObject pattern
+    }
+
     @Override
     public Action reportEvent(String eventName) {
         return this;
@@ -64,6 +70,11 @@ public enum NullRootAction implements RootAction {
         return this;
     }
 
+    @Override
+    public ActionBatch batch() {
+        return NullActionBatch.INSTANCE;
+    }
+
     @Override
     public WebRequestTracer traceWebRequest(URLConnection connection) {
         return NullWebRequestTracer.INSTANCE;
@@ -39,6 +39,11 @@ public enum NullSession implements Session {
         return NullRootAction.INSTANCE;
     }
 
+    @Override
+    public void reportAction(String actionName, long startTimeInMillis, long endTimeInMillis) {
+        // intentionally left empty, due to NullObject pattern
+    }
+
     @Override
     public void identifyUser(String userTag) {
         // intentionally left empty, due to NullObject pattern
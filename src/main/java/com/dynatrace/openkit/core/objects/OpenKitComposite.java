@@ -16,8 +16,11 @@
 
 package com.dynatrace.openkit.core.objects;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * A composite base class for OpenKit objects.
@@ -34,8 +37,19 @@ public abstract class OpenKitComposite implements OpenKitObject {
 
     /**
      * Container storing the children of this composite.
+     *
+     * <p>
+     *     A hash based set keeps adding and removing a child in constant time, even with a huge number of children
+     *     (e.g. all sessions of an OpenKit instance), while preserving the insertion order.
+     *     OpenKit objects do not override {@link Object#equals(Object)}, therefore children are compared by identity.
+     * </p>
+     *
+     * <p>
+     *     The container is only allocated when the first child is added, since most composites
+     *     (e.g. idle sessions or leaf actions) never get any children.
+     * </p>
      */
-    private final List<OpenKitObject> children = new LinkedList<OpenKitObject>();
+    private Set<OpenKitObject> children = null;
 
     /**
      * Add a child object to the list of children.
@@ -43,6 +57,9 @@ public abstract class OpenKitComposite implements OpenKitObject {
      * @param childObject The child object to add.
      */
     void storeChildInList(OpenKitObject childObject) {
+        if (children == null) {
+            children = new LinkedHashSet<OpenKitObject>();
+        }
         children.add(childObject);
     }
 
@@ -53,7 +70,7 @@ public abstract class OpenKitComposite implements OpenKitObject {
      * @return {@code true} if the given {@code childObject} was successfully removed, {@code false} otherwise.
      */
     boolean removeChildFromList(OpenKitObject childObject) {
-        return children.remove(childObject);
+        return children != null && children.remove(childObject);
     }
 
     /**
@@ -62,14 +79,43 @@ public abstract class OpenKitComposite implements OpenKitObject {
      * @return Shallow copy of child objects
      */
     List<OpenKitObject> getCopyOfChildObjects() {
-        return new LinkedList<OpenKitObject>(children);
+        if (children == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<OpenKitObject>(children);
     }
 
     /**
      * Returns the current number of children hold by this composite.
      */
     int getChildCount() {
-        return children.size();
+        return children == null ? 0 : children.size();
+    }
+
+    /**
+     * Closes the given child objects forcefully, if they have been started at or before the given expiry time.
+     *
+     * <p>
+     *     All children of an expired action are closed together with it.
+     * </p>
+     *
+     * @param childObjects The child objects to check.
+     * @param expiryTime Objects started at or before this time are closed.
+     * @param counters Counters for the closed objects.
+     * @return The earliest start time of the objects which are still open or {@link Long#MAX_VALUE} if there are none.
+     */
+    static long reclaimExpiredObjects(List<OpenKitObject> childObjects, long expiryTime, ReclamationCounters counters) {
+        long earliestStartTime = Long.MAX_VALUE;
+        for (OpenKitObject childObject : childObjects) {
+            long startTime = Long.MAX_VALUE;
+            if (childObject instanceof BaseActionImpl) {
+                startTime = ((BaseActionImpl) childObject).reclaimIfExpired(expiryTime, counters);
+            } else if (childObject instanceof WebRequestTracerBaseImpl) {
+                startTime = ((WebRequestTracerBaseImpl) childObject).reclaimIfExpired(expiryTime, counters);
+            }
+            earliestStartTime = Math.min(earliestStartTime, startTime);
+        }
+        return earliestStartTime;
     }
 
     /**
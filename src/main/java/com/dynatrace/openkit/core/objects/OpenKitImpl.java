@@ -26,7 +26,11 @@ import com.dynatrace.openkit.core.caching.BeaconCache;
 import com.dynatrace.openkit.core.caching.BeaconCacheEvictor;
 import com.dynatrace.openkit.core.configuration.OpenKitConfiguration;
 import com.dynatrace.openkit.core.configuration.PrivacyConfiguration;
+import com.dynatrace.openkit.protocol.AsyncEventCapture;
 import com.dynatrace.openkit.protocol.Beacon;
+import com.dynatrace.openkit.protocol.SharedBeaconData;
+import com.dynatrace.openkit.providers.DefaultRandomNumberGenerator;
+import com.dynatrace.openkit.providers.RandomNumberGenerator;
 import com.dynatrace.openkit.providers.SessionIDProvider;
 import com.dynatrace.openkit.providers.ThreadIDProvider;
 import com.dynatrace.openkit.providers.TimingProvider;
@@ -48,6 +52,8 @@ public class OpenKitImpl extends OpenKitComposite implements OpenKit, SessionCre
     private final TimingProvider timingProvider;
     /** Provider responsible to provide Session IDs */
     private final SessionIDProvider sessionIDProvider;
+    /** Generator for random numbers shared by all sessions */
+    private final RandomNumberGenerator randomNumberGenerator = new DefaultRandomNumberGenerator();
 
     /** Configuration object storing privacy related configuration */
     private final PrivacyConfiguration privacyConfiguration;
@@ -62,9 +68,20 @@ public class OpenKitImpl extends OpenKitComposite implements OpenKit, SessionCre
     private final BeaconSender beaconSender;
     /** watchdog thread to perform certain actions on a session after a specific time */
     private final SessionWatchdog sessionWatchdog;
+    /** capture serializing actions, events and values asynchronously, or {@code null} if disabled */
+    private final AsyncEventCapture asyncEventCapture;
+
+    /**
+     * Basic beacon data shared by all sessions, which is created lazily.
+     *
+     * <p>
+     *     Concurrent session creation might create it more than once, which is harmless since it is immutable.
+     * </p>
+     */
+    private volatile SharedBeaconData sharedBeaconData;
 
     /** Boolean value, indicating whether this {@link OpenKit} instance is shutdown or not */
-    private boolean isShutdown = false;
+    private volatile boolean isShutdown = false;
     /** Object for synchronizing access */
     private final Object lockObject = new Object();
 
@@ -84,6 +101,7 @@ public class OpenKitImpl extends OpenKitComposite implements OpenKit, SessionCre
         this.beaconSender = initializer.getBeaconSender();
         this.beaconCacheEvictor = initializer.getBeaconCacheEvictor();
         this.sessionWatchdog = initializer.getSessionWatchdog();
+        this.asyncEventCapture = initializer.getAsyncEventCapture();
 
         logOpenKitInstanceCreation(this.logger, this.openKitConfiguration);
     }
@@ -121,6 +139,9 @@ public class OpenKitImpl extends OpenKitComposite implements OpenKit, SessionCre
      */
     public void initialize() {
         beaconCacheEvictor.start();
+        if (asyncEventCapture != null) {
+            asyncEventCapture.start();
+        }
         sessionWatchdog.initialize();
         beaconSender.initialize();
     }
@@ -150,24 +171,30 @@ public class OpenKitImpl extends OpenKitComposite implements OpenKit, SessionCre
         if (logger.isDebugEnabled()) {
             logger.debug(getClass().getSimpleName() + " createSession(" + clientIPAddress + ")");
         }
+        if (isShutdown) {
+            return NullSession.INSTANCE;
+        }
+
+        // the session is created outside the lock, so that concurrent session creation does not contend
+        SessionCreator sessionCreator = new SessionCreatorImpl(this, clientIPAddress);
+        SessionProxyImpl sessionProxy = new SessionProxyImpl(
+                logger,
+                this,
+                sessionCreator,
+                timingProvider,
+                beaconSender,
+                sessionWatchdog
+        );
+
         synchronized (lockObject) {
             if (!isShutdown) {
-                SessionCreator sessionCreator = new SessionCreatorImpl(this, clientIPAddress);
-                SessionProxyImpl sessionProxy = new SessionProxyImpl(
-                        logger,
-                        this,
-                        sessionCreator,
-                        timingProvider,
-                        beaconSender,
-                        sessionWatchdog
-                );
-
                 storeChildInList(sessionProxy);
-
                 return sessionProxy;
             }
         }
 
+        // shutdown happened in the meantime, therefore the session is ended right away
+        sessionProxy.end();
         return NullSession.INSTANCE;
     }
 
@@ -181,10 +208,31 @@ public class OpenKitImpl extends OpenKitComposite implements OpenKit, SessionCre
         if (logger.isDebugEnabled()) {
             logger.debug(getClass().getSimpleName() + " shutdown() - shutdown requested");
         }
+        if (prepareShutdown()) {
+            beaconSender.shutdown();
+        }
+    }
+
+    @Override
+    public void shutdown(long timeoutMillis) {
+        if (logger.isDebugEnabled()) {
+            logger.debug(getClass().getSimpleName() + " shutdown(" + timeoutMillis + ") - shutdown requested");
+        }
+        if (prepareShutdown()) {
+            beaconSender.shutdown(timeoutMillis);
+        }
+    }
+
+    /**
+     * Closes all child objects and stops all internal threads, except the beacon sender.
+     *
+     * @return {@code true} if the beacon sender needs to be shut down, {@code false} if shutdown was called before.
+     */
+    private boolean prepareShutdown() {
         synchronized (lockObject) {
             if (isShutdown) {
                 // shutdown has been called before
-                return;
+                return false;
             }
             isShutdown = true;
         }
@@ -200,9 +248,14 @@ public class OpenKitImpl extends OpenKitComposite implements OpenKit, SessionCre
             }
         }
 
+        // data captured by the closed children is serialized before the beacon sender flushes the sessions
+        if (asyncEventCapture != null) {
+            asyncEventCapture.stop();
+        }
         beaconCacheEvictor.stop();
         sessionWatchdog.shutdown();
-        beaconSender.shutdown();
+
+        return true;
     }
 
     @Override
@@ -251,8 +304,28 @@ public class OpenKitImpl extends OpenKitComposite implements OpenKit, SessionCre
         return timingProvider;
     }
 
+    @Override
+    public RandomNumberGenerator getRandomNumberGenerator() {
+        return randomNumberGenerator;
+    }
+
     @Override
     public int getCurrentServerId() {
         return beaconSender.getCurrentServerId();
     }
+
+    @Override
+    public AsyncEventCapture getAsyncEventCapture() {
+        return asyncEventCapture;
+    }
+
+    @Override
+    public SharedBeaconData getSharedBeaconData() {
+        SharedBeaconData result = sharedBeaconData;
+        if (result == null) {
+            result = Beacon.createSharedBeaconData(logger, openKitConfiguration, privacyConfiguration);
+            sharedBeaconData = result;
+        }
+        return result;
+    }
 }
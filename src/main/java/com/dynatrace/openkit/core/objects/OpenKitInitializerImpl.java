@@ -23,14 +23,25 @@ import com.dynatrace.openkit.core.SessionWatchdogContext;
 import com.dynatrace.openkit.core.caching.BeaconCache;
 import com.dynatrace.openkit.core.caching.BeaconCacheEvictor;
 import com.dynatrace.openkit.core.caching.BeaconCacheImpl;
+import com.dynatrace.openkit.core.caching.BeaconOutbox;
+import com.dynatrace.openkit.core.caching.ServerConfigurationStore;
+import com.dynatrace.openkit.core.communication.BeaconSendingContext;
+import com.dynatrace.openkit.core.configuration.AsyncCaptureConfiguration;
 import com.dynatrace.openkit.core.configuration.BeaconCacheConfiguration;
+import com.dynatrace.openkit.core.configuration.BeaconOutboxConfiguration;
+import com.dynatrace.openkit.core.configuration.BeaconSendingConfiguration;
+import com.dynatrace.openkit.core.configuration.CompressionConfiguration;
 import com.dynatrace.openkit.core.configuration.HTTPClientConfiguration;
 import com.dynatrace.openkit.core.configuration.OpenKitConfiguration;
 import com.dynatrace.openkit.core.configuration.PrivacyConfiguration;
+import com.dynatrace.openkit.core.configuration.ReclamationConfiguration;
+import com.dynatrace.openkit.core.configuration.ServerConfigurationStoreConfiguration;
+import com.dynatrace.openkit.protocol.AsyncEventCapture;
 import com.dynatrace.openkit.providers.DefaultHTTPClientProvider;
 import com.dynatrace.openkit.providers.DefaultSessionIDProvider;
 import com.dynatrace.openkit.providers.DefaultThreadIDProvider;
 import com.dynatrace.openkit.providers.DefaultTimingProvider;
+import com.dynatrace.openkit.providers.HTTPClientProvider;
 import com.dynatrace.openkit.providers.SessionIDProvider;
 import com.dynatrace.openkit.providers.ThreadIDProvider;
 import com.dynatrace.openkit.providers.TimingProvider;
@@ -47,6 +58,7 @@ public class OpenKitInitializerImpl implements OpenKitInitializer {
     private final BeaconCacheEvictor beaconCacheEvictor;
     private final BeaconSender beaconSender;
     private final SessionWatchdog sessionWatchdog;
+    private final AsyncEventCapture asyncEventCapture;
 
     public OpenKitInitializerImpl(AbstractOpenKitBuilder builder) {
         logger = builder.getLogger();
@@ -57,12 +69,37 @@ public class OpenKitInitializerImpl implements OpenKitInitializer {
         threadIdProvider = new DefaultThreadIDProvider();
         sessionIdProvider = new DefaultSessionIDProvider();
 
+        BeaconCacheConfiguration beaconCacheConfiguration = BeaconCacheConfiguration.from(builder);
         beaconCache = new BeaconCacheImpl(logger);
-        beaconCacheEvictor = new BeaconCacheEvictor(logger, beaconCache, BeaconCacheConfiguration.from(builder), timingProvider);
+        beaconCacheEvictor = new BeaconCacheEvictor(logger, beaconCache, beaconCacheConfiguration, timingProvider);
+
+        BeaconOutboxConfiguration beaconOutboxConfiguration = BeaconOutboxConfiguration.from(builder);
+        BeaconOutbox beaconOutbox = beaconOutboxConfiguration.isEnabled()
+                ? new BeaconOutbox(logger, beaconOutboxConfiguration, timingProvider)
+                : null;
+
+        ServerConfigurationStoreConfiguration serverConfigurationStoreConfiguration =
+                ServerConfigurationStoreConfiguration.from(builder);
+        ServerConfigurationStore serverConfigurationStore = serverConfigurationStoreConfiguration.isEnabled()
+                ? new ServerConfigurationStore(logger, serverConfigurationStoreConfiguration,
+                        openKitConfiguration.getEndpointURL(), openKitConfiguration.getApplicationID(), timingProvider)
+                : null;
 
         HTTPClientConfiguration httpClientConfig = HTTPClientConfiguration.from(openKitConfiguration);
-        beaconSender = new BeaconSender(logger, httpClientConfig, new DefaultHTTPClientProvider(logger), timingProvider);
-        sessionWatchdog = new SessionWatchdog(logger, new SessionWatchdogContext(timingProvider));
+        HTTPClientProvider httpClientProvider = new DefaultHTTPClientProvider(logger,
+                CompressionConfiguration.from(builder), timingProvider, openKitConfiguration.getEndpointURLs());
+        beaconSender = new BeaconSender(logger,
+                new BeaconSendingContext.Builder(logger, httpClientConfig, httpClientProvider, timingProvider)
+                        .withOutbox(beaconOutbox)
+                        .withServerConfigurationStore(serverConfigurationStore),
+                beaconCache, BeaconSendingConfiguration.from(builder));
+        sessionWatchdog = new SessionWatchdog(logger,
+                new SessionWatchdogContext(timingProvider, ReclamationConfiguration.from(builder)));
+
+        AsyncCaptureConfiguration asyncCaptureConfiguration = AsyncCaptureConfiguration.from(builder);
+        asyncEventCapture = asyncCaptureConfiguration.isEnabled()
+                ? new AsyncEventCapture(logger, asyncCaptureConfiguration)
+                : null;
     }
 
 
@@ -115,4 +152,9 @@ public class OpenKitInitializerImpl implements OpenKitInitializer {
     public SessionWatchdog getSessionWatchdog() {
         return sessionWatchdog;
     }
+
+    @Override
+    public AsyncEventCapture getAsyncEventCapture() {
+        return asyncEventCapture;
+    }
 }
@@ -0,0 +1,67 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.objects;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the actions, web request tracers and sessions, which have been closed forcefully
+ * because the application did not close them within the maximum action lifetime.
+ *
+ * <p>
+ *     Objects are reclaimed by the session watchdog thread, while the counters might be read by any thread.
+ * </p>
+ */
+public class ReclamationCounters {
+
+    private final AtomicLong reclaimedActionCount = new AtomicLong(0L);
+    private final AtomicLong reclaimedWebRequestTracerCount = new AtomicLong(0L);
+    private final AtomicLong reclaimedSessionCount = new AtomicLong(0L);
+
+    void actionReclaimed() {
+        reclaimedActionCount.incrementAndGet();
+    }
+
+    void webRequestTracerReclaimed() {
+        reclaimedWebRequestTracerCount.incrementAndGet();
+    }
+
+    void sessionReclaimed() {
+        reclaimedSessionCount.incrementAndGet();
+    }
+
+    /**
+     * Get the number of actions, which have been left forcefully.
+     */
+    public long getReclaimedActionCount() {
+        return reclaimedActionCount.get();
+    }
+
+    /**
+     * Get the number of web request tracers, which have been stopped forcefully.
+     */
+    public long getReclaimedWebRequestTracerCount() {
+        return reclaimedWebRequestTracerCount.get();
+    }
+
+    /**
+     * Get the number of sessions, which have been ended forcefully.
+     */
+    public long getReclaimedSessionCount() {
+        return reclaimedSessionCount.get();
+    }
+}
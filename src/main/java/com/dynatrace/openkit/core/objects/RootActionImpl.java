@@ -58,6 +58,26 @@ public class RootActionImpl extends BaseActionImpl implements RootAction {
         return new NullAction(this);
     }
 
+    @Override
+    public void reportAction(String actionName, long startTimeInMillis, long endTimeInMillis) {
+        if (actionName == null || actionName.isEmpty()) {
+            logger.warning(this + "reportAction: actionName must not be null or empty");
+            return;
+        }
+        if (endTimeInMillis < startTimeInMillis) {
+            logger.warning(this + "reportAction: endTimeInMillis must not be before startTimeInMillis");
+            return;
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug(this + "reportAction(" + actionName + ", " + startTimeInMillis + ", " + endTimeInMillis + ")");
+        }
+        synchronized (lockObject) {
+            if (!isActionLeft()) {
+                beacon.addCompletedAction(actionName, id, startTimeInMillis, endTimeInMillis);
+            }
+        }
+    }
+
     @Override
     protected Action getParentAction() {
         // NOTE: root actions do not have a parent action
@@ -20,9 +20,10 @@ import com.dynatrace.openkit.core.caching.BeaconCache;
 import com.dynatrace.openkit.core.configuration.BeaconConfiguration;
 import com.dynatrace.openkit.core.configuration.OpenKitConfiguration;
 import com.dynatrace.openkit.core.configuration.PrivacyConfiguration;
+import com.dynatrace.openkit.protocol.AsyncEventCapture;
 import com.dynatrace.openkit.protocol.Beacon;
 import com.dynatrace.openkit.protocol.BeaconInitializer;
-import com.dynatrace.openkit.providers.DefaultRandomNumberGenerator;
+import com.dynatrace.openkit.protocol.SharedBeaconData;
 import com.dynatrace.openkit.providers.FixedRandomNumberGenerator;
 import com.dynatrace.openkit.providers.FixedSessionIdProvider;
 import com.dynatrace.openkit.providers.RandomNumberGenerator;
@@ -47,6 +48,8 @@ public class SessionCreatorImpl implements SessionCreator, BeaconInitializer {
 
     private final String clientIpAddress;
     private final int serverId;
+    private final SharedBeaconData sharedBeaconData;
+    private final AsyncEventCapture asyncEventCapture;
 
     private final SessionIDProvider continuousSessionIdProvider;
     private final RandomNumberGenerator continuousRandomGenerator;
@@ -68,8 +71,10 @@ public class SessionCreatorImpl implements SessionCreator, BeaconInitializer {
         this.clientIpAddress = clientIpAddress;
 
         this.serverId = input.getCurrentServerId();
+        this.sharedBeaconData = input.getSharedBeaconData();
+        this.asyncEventCapture = input.getAsyncEventCapture();
         this.continuousSessionIdProvider = input.getSessionIdProvider();
-        this.continuousRandomGenerator = new DefaultRandomNumberGenerator();
+        this.continuousRandomGenerator = input.getRandomNumberGenerator();
 
         initializeFixedNumberProviders();
     }
@@ -144,4 +149,14 @@ public class SessionCreatorImpl implements SessionCreator, BeaconInitializer {
     public RandomNumberGenerator getRandomNumberGenerator() {
         return fixedRandomNumberGenerator;
     }
+
+    @Override
+    public SharedBeaconData getSharedBeaconData() {
+        return sharedBeaconData;
+    }
+
+    @Override
+    public AsyncEventCapture getAsyncEventCapture() {
+        return asyncEventCapture;
+    }
 }
@@ -20,6 +20,9 @@ import com.dynatrace.openkit.api.Logger;
 import com.dynatrace.openkit.core.caching.BeaconCache;
 import com.dynatrace.openkit.core.configuration.OpenKitConfiguration;
 import com.dynatrace.openkit.core.configuration.PrivacyConfiguration;
+import com.dynatrace.openkit.protocol.AsyncEventCapture;
+import com.dynatrace.openkit.protocol.SharedBeaconData;
+import com.dynatrace.openkit.providers.RandomNumberGenerator;
 import com.dynatrace.openkit.providers.SessionIDProvider;
 import com.dynatrace.openkit.providers.ThreadIDProvider;
 import com.dynatrace.openkit.providers.TimingProvider;
@@ -64,8 +67,23 @@ public interface SessionCreatorInput {
      */
     TimingProvider getTimingProvider();
 
+    /**
+     * Returns the generator for random numbers (e.g. randomized device IDs), which is shared by all sessions.
+     */
+    RandomNumberGenerator getRandomNumberGenerator();
+
     /**
      * Returns the current server ID.
      */
     int getCurrentServerId();
+
+    /**
+     * Returns the basic beacon data shared by all sessions/beacons.
+     */
+    SharedBeaconData getSharedBeaconData();
+
+    /**
+     * Returns the capture for asynchronously serializing actions, events and values, or {@code null} if it is disabled.
+     */
+    AsyncEventCapture getAsyncEventCapture();
 }
@@ -20,6 +20,7 @@ import com.dynatrace.openkit.api.Logger;
 import com.dynatrace.openkit.api.RootAction;
 import com.dynatrace.openkit.api.Session;
 import com.dynatrace.openkit.api.WebRequestTracer;
+import com.dynatrace.openkit.core.caching.BeaconOutbox;
 import com.dynatrace.openkit.core.configuration.ServerConfiguration;
 import com.dynatrace.openkit.protocol.AdditionalQueryParameters;
 import com.dynatrace.openkit.protocol.Beacon;
@@ -29,6 +30,7 @@ import com.dynatrace.openkit.providers.HTTPClientProvider;
 import java.io.IOException;
 import java.net.URLConnection;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -57,6 +59,8 @@ public class SessionImpl extends OpenKitComposite implements Session {
     private int numRemainingNewSessionRequests = MAX_NEW_SESSION_REQUESTS;
     /** the time when the session is to be ended (including a grace period from when the session was split by events) */
     private final AtomicLong splitByEventsGracePeriodEndTimeInMillis = new AtomicLong(-1);
+    /** listener notified about state changes of this session */
+    private volatile SessionStateListener stateListener;
 
     SessionImpl(Logger logger, OpenKitComposite parent, Beacon beacon) {
         this.state = new SessionStateImpl(this);
@@ -92,6 +96,26 @@ public class SessionImpl extends OpenKitComposite implements Session {
         return NullRootAction.INSTANCE;
     }
 
+    @Override
+    public void reportAction(String actionName, long startTimeInMillis, long endTimeInMillis) {
+        if (actionName == null || actionName.isEmpty()) {
+            logger.warning(this + "reportAction: actionName must not be null or empty");
+            return;
+        }
+        if (endTimeInMillis < startTimeInMillis) {
+            logger.warning(this + "reportAction: endTimeInMillis must not be before startTimeInMillis");
+            return;
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug(this + "reportAction(" + actionName + ", " + startTimeInMillis + ", " + endTimeInMillis + ")");
+        }
+        synchronized (state) {
+            if (!state.isFinishingOrFinished()) {
+                beacon.addCompletedAction(actionName, 0, startTimeInMillis, endTimeInMillis);
+            }
+        }
+    }
+
     @Override
     public void identifyUser(String userTag) {
         if (userTag == null || userTag.isEmpty()) {
@@ -174,8 +198,11 @@ public class SessionImpl extends OpenKitComposite implements Session {
             logger.debug(this + "end()");
         }
 
-        if (!state.markAsIsFinishing()) {
-            return; // end() was already called before
+        synchronized (state) {
+            // no further child objects are added, once the session is marked as finishing
+            if (!state.markAsIsFinishing()) {
+                return; // end() was already called before
+            }
         }
 
         // forcefully leave all child elements
@@ -196,11 +223,36 @@ public class SessionImpl extends OpenKitComposite implements Session {
 
         state.markAsFinished();
 
+        SessionStateListener listener = stateListener;
+        if (listener != null) {
+            listener.onSessionFinished(this);
+        }
+
         // last but not least update parent relation
         parent.onChildClosed(this);
         parent = null;
     }
 
+    /**
+     * Closes actions and web request tracers of this session forcefully,
+     * if they have been started at or before the given expiry time.
+     *
+     * @param expiryTime Objects started at or before this time are closed.
+     * @param counters Counters for the reclaimed objects.
+     * @return The earliest start time of the objects which are still open or {@link Long#MAX_VALUE} if there are none.
+     */
+    long reclaimExpiredChildren(long expiryTime, ReclamationCounters counters) {
+        List<OpenKitObject> childObjects;
+        synchronized (state) {
+            if (state.isFinishingOrFinished()) {
+                return Long.MAX_VALUE;
+            }
+            childObjects = getCopyOfChildObjects();
+        }
+
+        return reclaimExpiredObjects(childObjects, expiryTime, counters);
+    }
+
     /**
      * Tries to end the current session by checking if there are no more child objects (actions / web request tracers)
      * open. In case no more child objects are open the session is ended otherwise it is kept open.
@@ -256,6 +308,19 @@ public class SessionImpl extends OpenKitComposite implements Session {
         return beacon.send(clientProvider, additionalParameters);
     }
 
+    /**
+     * Sends the priority data (crashes & errors) of the current beacon state, other data is sent with the next
+     * {@link #sendBeacon(HTTPClientProvider, AdditionalQueryParameters) regular send}.
+     *
+     * @param clientProvider Provider class providing the client for data transmission.
+     * @param additionalParameters additional parameters that will be appended to the beacon request (can be {@code null}).
+     *
+     * @return Response from client.
+     */
+    public StatusResponse sendPriorityData(HTTPClientProvider clientProvider, AdditionalQueryParameters additionalParameters) {
+        return beacon.sendPriorityData(clientProvider, additionalParameters);
+    }
+
     /**
      * Clears data that has been captured so far.
      *
@@ -267,6 +332,19 @@ public class SessionImpl extends OpenKitComposite implements Session {
         beacon.clearData();
     }
 
+    /**
+     * Moves data that has been captured so far, but not sent yet, into the given outbox.
+     *
+     * <p>
+     * This is called, when the data cannot be sent, but shall not be lost.
+     * </p>
+     *
+     * @param outbox The outbox receiving the data.
+     */
+    public void moveDataToOutbox(BeaconOutbox outbox) {
+        beacon.moveDataToOutbox(outbox);
+    }
+
     /**
      * Test if this Session is empty or not.
      *
@@ -280,6 +358,15 @@ public class SessionImpl extends OpenKitComposite implements Session {
         return beacon.isEmpty();
     }
 
+    /**
+     * Test if this Session contains priority data (crashes & errors), which was not sent so far.
+     *
+     * @return {@code true} if the session has priority data, {@code false} otherwise.
+     */
+    public boolean hasPriorityData() {
+        return beacon.hasPriorityData();
+    }
+
     /**
      * Initializes the {@link Beacon} with the given {@link ServerConfiguration}
      */
@@ -298,6 +385,17 @@ public class SessionImpl extends OpenKitComposite implements Session {
         return state;
     }
 
+    /**
+     * Sets the listener which is notified when this session is finished.
+     *
+     * <p>
+     *     The listener is only notified about state changes happening after it was set.
+     * </p>
+     */
+    public void setStateListener(SessionStateListener stateListener) {
+        this.stateListener = stateListener;
+    }
+
     @Override
     void onChildClosed(OpenKitObject childObject) {
         synchronized (state) {
@@ -374,62 +472,100 @@ public class SessionImpl extends OpenKitComposite implements Session {
 
     /**
      * Implements the internal state of the {@link Session}
+     *
+     * <p>
+     *     The state is kept in a single bit field, which is changed by compare and set. Querying the state,
+     *     which the beacon sending thread does for all sessions, is therefore a plain volatile read.
+     *     Transitions which must not interleave with adding child objects are additionally performed while
+     *     holding the monitor of this state object.
+     * </p>
      */
     private static class SessionStateImpl implements SessionState {
 
+        /** the session's beacon got its server configuration, which is never reset */
+        private static final int CONFIGURED = 1;
+        /** ending the session was started */
+        private static final int FINISHING = 1 << 1;
+        /** the session was ended */
+        private static final int FINISHED = 1 << 2;
+        /** ending the session was tried but it still had open child objects */
+        private static final int TRIED_FOR_ENDING = 1 << 3;
+
         private final SessionImpl session;
-        private boolean isFinishing = false;
-        private boolean isFinished = false;
-        private boolean wasTriedForEnding = false;
+        private final AtomicInteger stateBits = new AtomicInteger(0);
 
         private SessionStateImpl(SessionImpl session) {
             this.session = session;
         }
 
         @Override
-        public synchronized boolean wasTriedForEnding() {
-            return wasTriedForEnding;
+        public boolean wasTriedForEnding() {
+            return isSet(TRIED_FOR_ENDING);
         }
 
         @Override
-        public synchronized boolean isConfigured() {
-            return session.beacon.isServerConfigurationSet();
+        public boolean isConfigured() {
+            if (isSet(CONFIGURED)) {
+                return true;
+            }
+            if (!session.beacon.isServerConfigurationSet()) {
+                return false;
+            }
+
+            set(CONFIGURED);
+            return true;
         }
 
         @Override
-        public synchronized boolean isConfiguredAndFinished() {
-            return isConfigured() && isFinished;
+        public boolean isConfiguredAndFinished() {
+            return isConfigured() && isSet(FINISHED);
         }
 
         @Override
-        public synchronized boolean isConfiguredAndOpen() {
-            return isConfigured() && !isFinished;
+        public boolean isConfiguredAndOpen() {
+            return isConfigured() && !isSet(FINISHED);
         }
 
         @Override
-        public synchronized boolean isFinished() {
-            return isFinished;
+        public boolean isFinished() {
+            return isSet(FINISHED);
         }
 
-        private synchronized boolean isFinishingOrFinished() {
-            return isFinishing || isFinished;
+        private boolean isFinishingOrFinished() {
+            return (stateBits.get() & (FINISHING | FINISHED)) != 0;
         }
 
-        private synchronized boolean markAsIsFinishing() {
-            if (isFinishingOrFinished()) {
-                return false;
+        private boolean markAsIsFinishing() {
+            while (true) {
+                int currentBits = stateBits.get();
+                if ((currentBits & (FINISHING | FINISHED)) != 0) {
+                    return false;
+                }
+                if (stateBits.compareAndSet(currentBits, currentBits | FINISHING)) {
+                    return true;
+                }
             }
+        }
 
-            isFinishing = true;
-            return true;
+        private void markAsFinished() {
+            set(FINISHED);
+        }
+
+        private void markAsWasTriedForEnding() {
+            set(TRIED_FOR_ENDING);
         }
 
-        private synchronized void markAsFinished() {
-            isFinished = true;
+        private boolean isSet(int bits) {
+            return (stateBits.get() & bits) == bits;
         }
 
-        private synchronized void markAsWasTriedForEnding() {
-            wasTriedForEnding = true;
+        private void set(int bits) {
+            while (true) {
+                int currentBits = stateBits.get();
+                if ((currentBits & bits) == bits || stateBits.compareAndSet(currentBits, currentBits | bits)) {
+                    return;
+                }
+            }
         }
     }
 }
@@ -29,6 +29,7 @@ import com.dynatrace.openkit.providers.TimingProvider;
 import java.io.IOException;
 import java.net.URLConnection;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Implements a surrogate for a {@link Session} to perform session splitting after:
@@ -37,6 +38,13 @@ import java.util.List;
  *     <li>after a configured idle timeout</li>
  *     <li>after a configured maximum session duration</li>
  * </ul>
+ *
+ * <p>
+ *     Top level events are forwarded to the current session without locking, unless the session has to be split.
+ *     Only splitting, ending and server configuration updates synchronize on this proxy. Calls racing with a split
+ *     might still be forwarded to the previous session. The split therefore only retires the previous session, which
+ *     is closed as soon as no call is forwarded to it any more, either by the split or by the last forwarded call.
+ * </p>
  */
 public class SessionProxyImpl extends OpenKitComposite implements Session, ServerConfigurationUpdateCallback {
 
@@ -54,16 +62,14 @@ public class SessionProxyImpl extends OpenKitComposite implements Session, Serve
     private final BeaconSender beaconSender;
     // watchdog to split sessions after idle/max timeout or to close split off sessions which were not closable on split
     private final SessionWatchdog sessionWatchdog;
-    // the current session instance
-    private SessionImpl currentSession;
-    // holds the number of received calls to enterAction
-    private int topLevelActionCount = 0;
+    // the current session instance and the number of received calls to enterAction
+    private volatile CurrentSession currentSession;
     // specifies the timestamp when the last top level event happened
-    private long lastInteractionTime;
+    private volatile long lastInteractionTime;
     // the server configuration of the first session (will be initialized when first session is updated with server config)
-    private ServerConfiguration serverConfiguration;
+    private volatile ServerConfiguration serverConfiguration;
     // indicates if this session proxy was already finished
-    private boolean isFinished;
+    private volatile boolean isFinished;
 
     SessionProxyImpl(
             Logger logger,
@@ -81,7 +87,9 @@ public class SessionProxyImpl extends OpenKitComposite implements Session, Serve
         this.sessionWatchdog = sessionWatchdog;
 
         ServerConfiguration currentServerConfig = beaconSender.getLastServerConfiguration();
-        this.currentSession = createInitialSession(currentServerConfig);
+        this.currentSession = new CurrentSession(createInitialSession(currentServerConfig));
+
+        sessionWatchdog.addToReclamation(this);
     }
 
     @Override
@@ -93,15 +101,41 @@ public class SessionProxyImpl extends OpenKitComposite implements Session, Serve
         if (logger.isDebugEnabled()) {
             logger.debug(this + " enterAction(" + actionName + ")");
         }
-        synchronized (lockObject) {
-            if (!isFinished) {
-                SessionImpl session = getOrSplitCurrentSessionByEvents();
-                recordTopActionEvent();
-                return session.enterAction(actionName);
-            }
+        CurrentSession current = getOrSplitCurrentSessionForTopLevelAction();
+        if (current == null) {
+            return NullRootAction.INSTANCE;
         }
+        try {
+            recordTopLevelEventInteraction();
+            return current.session.enterAction(actionName);
+        } finally {
+            releaseSession(current);
+        }
+    }
 
-        return NullRootAction.INSTANCE;
+    @Override
+    public void reportAction(String actionName, long startTimeInMillis, long endTimeInMillis) {
+        if (actionName == null || actionName.isEmpty()) {
+            logger.warning(this + " reportAction: actionName must not be null or empty");
+            return;
+        }
+        if (endTimeInMillis < startTimeInMillis) {
+            logger.warning(this + " reportAction: endTimeInMillis must not be before startTimeInMillis");
+            return;
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug(this + " reportAction(" + actionName + ", " + startTimeInMillis + ", " + endTimeInMillis + ")");
+        }
+        CurrentSession current = getOrSplitCurrentSessionForTopLevelAction();
+        if (current == null) {
+            return;
+        }
+        try {
+            recordTopLevelEventInteraction();
+            current.session.reportAction(actionName, startTimeInMillis, endTimeInMillis);
+        } finally {
+            releaseSession(current);
+        }
     }
 
     @Override
@@ -113,12 +147,15 @@ public class SessionProxyImpl extends OpenKitComposite implements Session, Serve
         if (logger.isDebugEnabled()) {
             logger.debug(this + " identifyUser(" + userTag + ")");
         }
-        synchronized (lockObject) {
-            if (!isFinished) {
-                SessionImpl session = getOrSplitCurrentSessionByEvents();
-                recordTopLevelEventInteraction();
-                session.identifyUser(userTag);
-            }
+        CurrentSession current = getOrSplitCurrentSessionByEvents();
+        if (current == null) {
+            return;
+        }
+        try {
+            recordTopLevelEventInteraction();
+            current.session.identifyUser(userTag);
+        } finally {
+            releaseSession(current);
         }
     }
 
@@ -131,12 +168,15 @@ public class SessionProxyImpl extends OpenKitComposite implements Session, Serve
         if (logger.isDebugEnabled()) {
             logger.debug(this + " reportCrash(" + errorName + ", " + reason + ", " + stacktrace + ")");
         }
-        synchronized (lockObject) {
-            if (!isFinished) {
-                SessionImpl session = getOrSplitCurrentSessionByEvents();
-                recordTopLevelEventInteraction();
-                session.reportCrash(errorName, reason, stacktrace);
-            }
+        CurrentSession current = getOrSplitCurrentSessionByEvents();
+        if (current == null) {
+            return;
+        }
+        try {
+            recordTopLevelEventInteraction();
+            current.session.reportCrash(errorName, reason, stacktrace);
+        } finally {
+            releaseSession(current);
         }
     }
 
@@ -149,15 +189,16 @@ public class SessionProxyImpl extends OpenKitComposite implements Session, Serve
         if (logger.isDebugEnabled()) {
             logger.debug(this + " traceWebRequest (URLConnection) (" + connection + ")");
         }
-        synchronized (lockObject) {
-            if (!isFinished) {
-                SessionImpl session = getOrSplitCurrentSessionByEvents();
-                recordTopLevelEventInteraction();
-                return session.traceWebRequest(connection);
-            }
+        CurrentSession current = getOrSplitCurrentSessionByEvents();
+        if (current == null) {
+            return NullWebRequestTracer.INSTANCE;
+        }
+        try {
+            recordTopLevelEventInteraction();
+            return current.session.traceWebRequest(connection);
+        } finally {
+            releaseSession(current);
         }
-
-        return NullWebRequestTracer.INSTANCE;
     }
 
     @Override
@@ -173,15 +214,16 @@ public class SessionProxyImpl extends OpenKitComposite implements Session, Serve
         if (logger.isDebugEnabled()) {
             logger.debug(this + " traceWebRequest (String) (" + url + ")");
         }
-        synchronized (lockObject) {
-            if (!isFinished) {
-                Session session = getOrSplitCurrentSessionByEvents();
-                recordTopLevelEventInteraction();
-                return session.traceWebRequest(url);
-            }
+        CurrentSession current = getOrSplitCurrentSessionByEvents();
+        if (current == null) {
+            return NullWebRequestTracer.INSTANCE;
+        }
+        try {
+            recordTopLevelEventInteraction();
+            return current.session.traceWebRequest(url);
+        } finally {
+            releaseSession(current);
         }
-
-        return NullWebRequestTracer.INSTANCE;
     }
 
     @Override
@@ -209,15 +251,14 @@ public class SessionProxyImpl extends OpenKitComposite implements Session, Serve
 
         parent.onChildClosed(this);
         sessionWatchdog.removeFromSplitByTimeout(this);
+        sessionWatchdog.removeFromReclamation(this);
     }
 
     /**
      * Indicates whether this session proxy was finished or is still open.
      */
     public boolean isFinished() {
-        synchronized (lockObject) {
-            return isFinished;
-        }
+        return isFinished;
     }
 
     @Override
@@ -240,18 +281,14 @@ public class SessionProxyImpl extends OpenKitComposite implements Session, Serve
      * tests only.
      */
     int getTopLevelActionCount() {
-        synchronized (lockObject) {
-            return topLevelActionCount;
-        }
+        return currentSession.topLevelActionCount.get();
     }
 
     /**
      * Returns the time when the last top level event was called. Intended to be used by unit tests only.
      */
     long getLastInteractionTime() {
-        synchronized (lockObject) {
-            return lastInteractionTime;
-        }
+        return lastInteractionTime;
     }
 
     /**
@@ -262,30 +299,151 @@ public class SessionProxyImpl extends OpenKitComposite implements Session, Serve
     }
 
     /**
-     * Returns the current active session or creates a new session if {@link #isSessionSplitByEventsRequired()}.
+     * Returns the current active session or creates a new session if
+     * {@link #isSessionSplitByEventsRequired(int) session splitting by events is required}.
+     *
+     * <p>
+     *     The returned session is acquired and must be {@link #releaseSession(CurrentSession) released} after the
+     *     call was forwarded to it.
+     * </p>
+     *
+     * @return the current session or {@code null} if this session proxy is finished.
+     */
+    private CurrentSession getOrSplitCurrentSessionByEvents() {
+        CurrentSession current = acquireCurrentSession();
+        if (current == null || !isSessionSplitByEventsRequired(current.topLevelActionCount.get())) {
+            return current;
+        }
+
+        releaseSession(current);
+        if (!splitCurrentSessionByEventsIfRequired()) {
+            return null;
+        }
+        return acquireCurrentSession();
+    }
+
+    /**
+     * Returns the current active session for a new top level action, after creating a new session if
+     * {@link #isSessionSplitByEventsRequired(int) session splitting by events is required}.
+     *
+     * <p>
+     *     The action is counted by incrementing the top level action count of the session it is forwarded to, starting
+     *     from the value checked against the maximum number of top level actions. Therefore concurrent actions never
+     *     exceed this maximum. The returned session is acquired and must be
+     *     {@link #releaseSession(CurrentSession) released} after the action was forwarded to it.
+     * </p>
+     *
+     * @return the session to which the top level action is forwarded or {@code null} if this session proxy is finished.
+     */
+    private CurrentSession getOrSplitCurrentSessionForTopLevelAction() {
+        while (true) {
+            CurrentSession current = acquireCurrentSession();
+            if (current == null) {
+                return null;
+            }
+
+            int actionCount = current.topLevelActionCount.get();
+            boolean isSplitRequired = isSessionSplitByEventsRequired(actionCount);
+            if (!isSplitRequired && current.topLevelActionCount.compareAndSet(actionCount, actionCount + 1)) {
+                return current;
+            }
+
+            releaseSession(current);
+            if (isSplitRequired && !splitCurrentSessionByEventsIfRequired()) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Acquires the current session, so that it is not closed by a concurrent split until it is
+     * {@link #releaseSession(CurrentSession) released}.
+     *
+     * @return the acquired session or {@code null} if this session proxy is finished.
+     */
+    private CurrentSession acquireCurrentSession() {
+        while (true) {
+            CurrentSession current = currentSession;
+            if (isFinished) {
+                return null;
+            }
+            if (current.acquire()) {
+                return current;
+            }
+            // retired by a concurrent split, which already published the new session
+        }
+    }
+
+    /**
+     * Releases a session acquired by {@link #acquireCurrentSession()} and closes it, if it was retired in the
+     * meantime and this was the last call forwarded to it.
+     */
+    private void releaseSession(CurrentSession current) {
+        if (current.release()) {
+            closeRetiredSession(current);
+        }
+    }
+
+    /**
+     * Retires the given session, which has been replaced by a new current session. The session is closed at once
+     * or, if calls are still forwarded to it, as soon as the last of these calls is finished.
+     *
+     * @param retiredSession the replaced session.
+     * @param closeGracePeriodInMillis the grace period after which the session is closed forcefully or a negative
+     *                                 value if the session is ended at once.
+     */
+    private void retireSession(CurrentSession retiredSession, int closeGracePeriodInMillis) {
+        retiredSession.closeGracePeriodInMillis = closeGracePeriodInMillis;
+        if (retiredSession.retire()) {
+            closeRetiredSession(retiredSession);
+        }
+    }
+
+    private void closeRetiredSession(CurrentSession retiredSession) {
+        int closeGracePeriodInMillis = retiredSession.closeGracePeriodInMillis;
+        if (closeGracePeriodInMillis < 0) {
+            retiredSession.session.end();
+        } else {
+            sessionWatchdog.closeOrEnqueueForClosing(retiredSession.session, closeGracePeriodInMillis);
+        }
+    }
+
+    /**
+     * Creates a new session if {@link #isSessionSplitByEventsRequired(int) session splitting by events is required}
+     * and no other thread did so in the meantime.
+     *
+     * @return {@code false} if this session proxy is finished, {@code true} otherwise.
      */
-    private SessionImpl getOrSplitCurrentSessionByEvents() {
-        if (isSessionSplitByEventsRequired()) {
-            SessionImpl newSession = createSplitSession(serverConfiguration);
+    private boolean splitCurrentSessionByEventsIfRequired() {
+        synchronized (lockObject) {
+            if (isFinished) {
+                return false;
+            }
+
+            if (isSessionSplitByEventsRequired(currentSession.topLevelActionCount.get())) {
+                CurrentSession oldSession = currentSession;
+                currentSession = new CurrentSession(createSplitSession(serverConfiguration));
 
-            // try to close old session or wait half the max session duration time and then close it forcefully.
-            int closeGracePeriodInMillis = serverConfiguration.getMaxSessionDurationInMilliseconds() / 2;
-            sessionWatchdog.closeOrEnqueueForClosing(currentSession, closeGracePeriodInMillis);
-            currentSession = newSession;
+                // try to close old session or wait half the max session duration time and then close it forcefully.
+                retireSession(oldSession, serverConfiguration.getMaxSessionDurationInMilliseconds() / 2);
+            }
+            return true;
         }
-        return currentSession;
     }
 
     /**
      * Indicates if the maximum number of top level actions is reached and session splitting by events needs to be
      * performed.
+     *
+     * @param actionCount the number of top level actions of the current session.
      */
-    private boolean isSessionSplitByEventsRequired() {
-        if (serverConfiguration == null || !serverConfiguration.isSessionSplitByEventsEnabled()) {
+    private boolean isSessionSplitByEventsRequired(int actionCount) {
+        ServerConfiguration currentServerConfiguration = serverConfiguration;
+        if (currentServerConfiguration == null || !currentServerConfiguration.isSessionSplitByEventsEnabled()) {
             return false;
         }
 
-        return serverConfiguration.getMaxEventsPerSession() <= topLevelActionCount;
+        return currentServerConfiguration.getMaxEventsPerSession() <= actionCount;
     }
 
     /**
@@ -308,7 +466,7 @@ public class SessionProxyImpl extends OpenKitComposite implements Session, Serve
      */
     public long splitSessionByTime() {
         synchronized (lockObject) {
-            if (isFinished()) {
+            if (isFinished) {
                 return -1;
             }
 
@@ -318,15 +476,48 @@ public class SessionProxyImpl extends OpenKitComposite implements Session, Serve
                 return nextSplitTime;
             }
 
-            currentSession.end();
-
+            // publish the new session before retiring the old one, so that concurrent calls move on to the new session
+            CurrentSession oldSession = currentSession;
             sessionCreator.reset();
-            currentSession = createInitialSession(serverConfiguration);
+            currentSession = new CurrentSession(createInitialSession(serverConfiguration));
+            retireSession(oldSession, -1);
 
             return calculateNextSplitTime();
         }
     }
 
+    /**
+     * Closes actions and web request tracers of the current session forcefully, which have been open for longer than
+     * the given maximum lifetime. If this session proxy has neither been used nor ended within this time, it is ended.
+     *
+     * @param maxLifetimeInMillis The maximum lifetime of actions and web request tracers.
+     * @param counters Counters for the reclaimed objects.
+     * @return the time when this session proxy is to be checked again or {@code -1} if it is finished.
+     */
+    public long reclaimLeakedObjects(long maxLifetimeInMillis, ReclamationCounters counters) {
+        if (isFinished) {
+            return -1;
+        }
+
+        long expiryTime = timingProvider.provideTimestampInMilliseconds() - maxLifetimeInMillis;
+        long earliestStartTime = currentSession.session.reclaimExpiredChildren(expiryTime, counters);
+
+        long lastInteraction = lastInteractionTime;
+        if (lastInteraction > expiryTime) {
+            return Math.min(earliestStartTime, lastInteraction) + maxLifetimeInMillis;
+        }
+        if (earliestStartTime != Long.MAX_VALUE) {
+            // still in use by open children, check again when the earliest one expires
+            return earliestStartTime + maxLifetimeInMillis;
+        }
+
+        logger.warning(this + " reclaimLeakedObjects: session was neither used nor ended within the maximum action lifetime");
+        counters.sessionReclaimed();
+        end();
+
+        return -1;
+    }
+
     /**
      * Calculates and returns the next point in time when this session is to be split. The returned time might either be
      * <ul>
@@ -344,7 +535,7 @@ public class SessionProxyImpl extends OpenKitComposite implements Session, Serve
         boolean splitBySessionDuration = serverConfiguration.isSessionSplitBySessionDurationEnabled();
 
         long idleTimeOut = lastInteractionTime + serverConfiguration.getSessionTimeoutInMilliseconds();
-        long sessionMaxTime = currentSession.getBeacon().getSessionStartTime()
+        long sessionMaxTime = currentSession.session.getBeacon().getSessionStartTime()
                 + serverConfiguration.getMaxSessionDurationInMilliseconds();
 
         if (splitByIdleTimeout && splitBySessionDuration) {
@@ -367,8 +558,8 @@ public class SessionProxyImpl extends OpenKitComposite implements Session, Serve
     }
 
     /**
-     * Creates a new session and adds it to the beacon sender. The top level action count is reset to zero and the last
-     * interaction time is set to the current timestamp.
+     * Creates a new session and adds it to the beacon sender. The last interaction time is set to the session's start
+     * time.
      *
      * <p>
      * In case the given {@code initialServerConfig} is not null, the new session will be initialized with this server
@@ -392,7 +583,6 @@ public class SessionProxyImpl extends OpenKitComposite implements Session, Serve
         storeChildInList(session);
 
         lastInteractionTime = beacon.getSessionStartTime();
-        topLevelActionCount = 0;
 
         if (initialServerConfig != null) {
             session.initializeServerConfiguration(initialServerConfig);
@@ -411,11 +601,6 @@ public class SessionProxyImpl extends OpenKitComposite implements Session, Serve
         lastInteractionTime = timingProvider.provideTimestampInMilliseconds();
     }
 
-    private void recordTopActionEvent() {
-        ++topLevelActionCount;
-        recordTopLevelEventInteraction();
-    }
-
     @Override
     public void onServerConfigurationUpdate(ServerConfiguration serverConfig) {
         synchronized (lockObject) {
@@ -435,8 +620,67 @@ public class SessionProxyImpl extends OpenKitComposite implements Session, Serve
 
     @Override
     public String toString() {
-        Beacon beacon = currentSession.getBeacon();
+        Beacon beacon = currentSession.session.getBeacon();
         return getClass().getSimpleName()
                 + " [sn=" + beacon.getSessionNumber() + ", seq=" + beacon.getSessionSequenceNumber() + "]";
     }
+
+    /**
+     * The current session together with the number of top level actions and calls forwarded to it.
+     *
+     * <p>
+     *     All are replaced at once when the session is split, so that each action is counted for the session
+     *     to which it is forwarded.
+     * </p>
+     */
+    private static final class CurrentSession {
+
+        // flag in the usage count set once the session is retired, the lower bits count the calls forwarded to it
+        private static final int RETIRED_FLAG = 1 << 30;
+
+        private final SessionImpl session;
+        private final AtomicInteger topLevelActionCount = new AtomicInteger(0);
+        private final AtomicInteger usageCount = new AtomicInteger(0);
+        // grace period for closing the session once retired, negative if the session is ended at once
+        private volatile int closeGracePeriodInMillis;
+
+        private CurrentSession(SessionImpl session) {
+            this.session = session;
+        }
+
+        /**
+         * Counts a call forwarded to this session.
+         *
+         * @return {@code false} if this session is retired and the call must not be forwarded to it.
+         */
+        private boolean acquire() {
+            while (true) {
+                int usage = usageCount.get();
+                if ((usage & RETIRED_FLAG) != 0) {
+                    return false;
+                }
+                if (usageCount.compareAndSet(usage, usage + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Counts the end of a call forwarded to this session.
+         *
+         * @return {@code true} if this session is retired and this was the last forwarded call.
+         */
+        private boolean release() {
+            return usageCount.decrementAndGet() == RETIRED_FLAG;
+        }
+
+        /**
+         * Marks this session as retired, so that no further calls are forwarded to it.
+         *
+         * @return {@code true} if no call is currently forwarded to this session.
+         */
+        private boolean retire() {
+            return usageCount.addAndGet(RETIRED_FLAG) == RETIRED_FLAG;
+        }
+    }
 }
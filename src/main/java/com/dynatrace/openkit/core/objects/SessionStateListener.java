@@ -0,0 +1,35 @@
+/**
+ *   Copyright 2018-2019 Dynatrace LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.dynatrace.openkit.core.objects;
+
+/**
+ * Listener which is notified about state changes of a {@link SessionImpl}.
+ */
+public interface SessionStateListener {
+
+    /**
+     * Called after the given session has been {@link SessionState#isFinished() finished}.
+     *
+     * <p>
+     *     This method is called from the thread ending the session, which might hold the session's lock.
+     *     Implementors must therefore not block.
+     * </p>
+     *
+     * @param session The session which was finished.
+     */
+    void onSessionFinished(SessionImpl session);
+}
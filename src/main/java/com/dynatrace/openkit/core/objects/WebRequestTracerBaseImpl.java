@@ -185,6 +185,30 @@ public abstract class WebRequestTracerBaseImpl implements WebRequestTracer, Open
         stop(responseCode);
     }
 
+    /**
+     * Stops this web request tracer forcefully, if it has been started at or before the given expiry time.
+     *
+     * @param expiryTime Web request tracers started at or before this time are stopped.
+     * @param counters Counters for the reclaimed objects.
+     * @return The start time of this web request tracer if it is still open, {@link Long#MAX_VALUE} otherwise.
+     */
+    long reclaimIfExpired(long expiryTime, ReclamationCounters counters) {
+        synchronized (lockObject) {
+            if (isStopped()) {
+                return Long.MAX_VALUE;
+            }
+            if (startTime > expiryTime) {
+                return startTime;
+            }
+        }
+
+        logger.warning(this + "reclaimIfExpired: web request tracer was not stopped within the maximum action lifetime");
+        counters.webRequestTracerReclaimed();
+        close();
+
+        return Long.MAX_VALUE;
+    }
+
     public String getURL() {
         return url;
     }
@@ -0,0 +1,229 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Schedule of the deadlines of objects.
+ *
+ * <p>
+ * Objects are ordered by their deadline, so that only objects which are due need to be visited,
+ * instead of scanning all scheduled objects. Each object has at most one deadline.
+ * Scheduling an object again replaces its previous deadline.
+ * </p>
+ *
+ * <p>
+ * This class is not thread safe, use {@link #synchronizedSchedule()} if the schedule is accessed by multiple threads.
+ * </p>
+ *
+ * @param <T> type of the scheduled objects, which are compared using {@link Object#equals(Object)}.
+ */
+public class DeadlineSchedule<T> {
+
+    /** deadline per scheduled object */
+    private final Map<T, Long> deadlines = new HashMap<T, Long>();
+    /** scheduled deadlines in ascending order, might contain outdated entries of rescheduled or removed objects */
+    private final PriorityQueue<ScheduledDeadline<T>> scheduledDeadlines = new PriorityQueue<ScheduledDeadline<T>>();
+
+    /**
+     * Creates a thread safe schedule.
+     *
+     * @param <T> type of the scheduled objects.
+     * @return A new schedule, whose methods are synchronized.
+     */
+    public static <T> DeadlineSchedule<T> synchronizedSchedule() {
+        return new SynchronizedDeadlineSchedule<T>();
+    }
+
+    /**
+     * Schedules the given object, replacing a previously scheduled deadline.
+     *
+     * @param object The object to schedule.
+     * @param deadline The deadline in milliseconds.
+     */
+    public void schedule(T object, long deadline) {
+        deadlines.put(object, deadline);
+        scheduledDeadlines.add(new ScheduledDeadline<T>(object, deadline));
+
+        if (scheduledDeadlines.size() > 2 * deadlines.size() + 16) {
+            // too many outdated entries, rebuild the queue
+            scheduledDeadlines.clear();
+            for (Map.Entry<T, Long> entry : deadlines.entrySet()) {
+                scheduledDeadlines.add(new ScheduledDeadline<T>(entry.getKey(), entry.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Schedules the given object, unless it has been scheduled in the meantime.
+     *
+     * @param object The object to schedule.
+     * @param deadline The deadline in milliseconds.
+     */
+    public void scheduleIfAbsent(T object, long deadline) {
+        if (!deadlines.containsKey(object)) {
+            schedule(object, deadline);
+        }
+    }
+
+    /**
+     * Removes the given object from the schedule.
+     *
+     * @param object The object to remove.
+     */
+    public void remove(T object) {
+        // the queue entry is discarded lazily
+        deadlines.remove(object);
+    }
+
+    /**
+     * Returns the number of scheduled objects.
+     */
+    public int size() {
+        return deadlines.size();
+    }
+
+    /**
+     * Returns a snapshot of all scheduled objects.
+     */
+    public List<T> getScheduledObjects() {
+        return new ArrayList<T>(deadlines.keySet());
+    }
+
+    /**
+     * Returns the deadline of the given object.
+     *
+     * @param object The scheduled object.
+     * @return The object's deadline or {@link Long#MAX_VALUE} if the object is not scheduled.
+     */
+    public long getDeadline(T object) {
+        Long deadline = deadlines.get(object);
+        return deadline == null ? Long.MAX_VALUE : deadline;
+    }
+
+    /**
+     * Returns the earliest deadline of all scheduled objects.
+     *
+     * @return The earliest deadline or {@link Long#MAX_VALUE} if no object is scheduled.
+     */
+    public long getNextDeadline() {
+        ScheduledDeadline<T> next = peekValid();
+        return next == null ? Long.MAX_VALUE : next.deadline;
+    }
+
+    /**
+     * Removes and returns all objects whose deadline is less than or equal to the given timestamp.
+     *
+     * @param timestamp The current timestamp in milliseconds.
+     * @return The due objects, in the order of their deadlines.
+     */
+    public List<T> takeDue(long timestamp) {
+        List<T> dueObjects = new ArrayList<T>();
+        ScheduledDeadline<T> next;
+        while ((next = peekValid()) != null && next.deadline <= timestamp) {
+            scheduledDeadlines.poll();
+            deadlines.remove(next.object);
+            dueObjects.add(next.object);
+        }
+
+        return dueObjects;
+    }
+
+    /**
+     * Returns the scheduled deadline with the earliest time, discarding outdated entries.
+     */
+    private ScheduledDeadline<T> peekValid() {
+        ScheduledDeadline<T> next;
+        while ((next = scheduledDeadlines.peek()) != null) {
+            Long deadline = deadlines.get(next.object);
+            if (deadline != null && deadline == next.deadline) {
+                return next;
+            }
+            scheduledDeadlines.poll();
+        }
+        return null;
+    }
+
+    /**
+     * An object's deadline in the queue.
+     */
+    private static final class ScheduledDeadline<T> implements Comparable<ScheduledDeadline<T>> {
+        private final T object;
+        private final long deadline;
+
+        private ScheduledDeadline(T object, long deadline) {
+            this.object = object;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public int compareTo(ScheduledDeadline<T> other) {
+            return deadline < other.deadline ? -1 : (deadline == other.deadline ? 0 : 1);
+        }
+    }
+
+    /**
+     * Schedule synchronizing all methods on itself.
+     */
+    private static final class SynchronizedDeadlineSchedule<T> extends DeadlineSchedule<T> {
+
+        @Override
+        public synchronized void schedule(T object, long deadline) {
+            super.schedule(object, deadline);
+        }
+
+        @Override
+        public synchronized void scheduleIfAbsent(T object, long deadline) {
+            super.scheduleIfAbsent(object, deadline);
+        }
+
+        @Override
+        public synchronized void remove(T object) {
+            super.remove(object);
+        }
+
+        @Override
+        public synchronized int size() {
+            return super.size();
+        }
+
+        @Override
+        public synchronized List<T> getScheduledObjects() {
+            return super.getScheduledObjects();
+        }
+
+        @Override
+        public synchronized long getDeadline(T object) {
+            return super.getDeadline(object);
+        }
+
+        @Override
+        public synchronized long getNextDeadline() {
+            return super.getNextDeadline();
+        }
+
+        @Override
+        public synchronized List<T> takeDue(long timestamp) {
+            return super.takeDue(timestamp);
+        }
+    }
+}
@@ -0,0 +1,515 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.protocol;
+
+import com.dynatrace.openkit.AsyncCaptureOverflowPolicy;
+import com.dynatrace.openkit.api.Logger;
+import com.dynatrace.openkit.core.configuration.AsyncCaptureConfiguration;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Captures actions, events and values of all {@link Beacon beacons} of an OpenKit instance asynchronously.
+ *
+ * <p>
+ *     Application threads write a fixed size {@link EventDescriptor} into a pre-allocated ring buffer,
+ *     which is serialized into the {@link com.dynatrace.openkit.core.caching.BeaconCache} by a background thread.
+ *     Capturing does not allocate memory and does not take any lock.
+ * </p>
+ *
+ * <p>
+ *     The ring buffer is a bounded queue, where each slot carries a sequence number telling whether it can be
+ *     written or read at a given position. Multiple threads may write concurrently, but there is only a single
+ *     consumer: descriptors are only taken from the buffer while holding the consumer lock, which is held by the
+ *     background thread while it serializes. {@link #drain()} hands over to the background thread and waits until
+ *     it has serialized everything captured so far. Only if the background thread is not running, the draining
+ *     thread serializes the descriptors itself.
+ * </p>
+ */
+public class AsyncEventCapture {
+
+    private static final String THREAD_NAME = AsyncEventCapture.class.getSimpleName();
+    private static final long THREAD_JOIN_TIMEOUT = TimeUnit.SECONDS.toMillis(2);
+
+    /** Initial time the background thread waits when the buffer is empty */
+    static final long MIN_IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    /** Maximum time the background thread waits when the buffer is empty */
+    static final long MAX_IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(16);
+    /** Time a writer waits for the background thread freeing a slot with {@link AsyncCaptureOverflowPolicy#BLOCK} */
+    private static final long BLOCK_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    /** Time {@link #drain()} waits for the background thread before checking whether it is still alive */
+    private static final long DRAIN_WAIT_NANOS = MAX_IDLE_WAIT_NANOS;
+
+    /** Returned by {@link #claim()}, if the data is dropped because the buffer is full */
+    private static final EventDescriptor DROPPED = new EventDescriptor(-1L);
+    /** Minimum time between two log messages about dropped events */
+    private static final long DROPPED_EVENTS_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final Logger logger;
+    private final AsyncCaptureOverflowPolicy overflowPolicy;
+    private final EventDescriptor[] slots;
+    private final int mask;
+    /** Writers wake up the background thread, when this many descriptors are pending */
+    private final int wakeUpThreshold;
+
+    private final AtomicLong writePosition = new AtomicLong(0L);
+    /** Position of the next descriptor to take from the buffer, only advanced while holding {@link #consumerLock} */
+    private final AtomicLong readPosition = new AtomicLong(0L);
+    private final ReentrantLock consumerLock = new ReentrantLock();
+    /** Signalled when descriptors have been taken from the buffer */
+    private final Condition consumed = consumerLock.newCondition();
+
+    private final AtomicLong droppedEventCount = new AtomicLong(0L);
+    private final AtomicLong blockedCaptureCount = new AtomicLong(0L);
+
+    private final Thread captureThread;
+    private volatile boolean isStopped = false;
+
+    /**
+     * Creates a capture buffer as configured.
+     *
+     * @param logger        Logger to write some debug output
+     * @param configuration Configuration providing the buffer capacity and the overflow policy
+     */
+    public AsyncEventCapture(Logger logger, AsyncCaptureConfiguration configuration) {
+        this.logger = logger;
+        this.overflowPolicy = configuration.getOverflowPolicy();
+
+        int capacity = configuration.getBufferCapacity();
+        slots = new EventDescriptor[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new EventDescriptor(i);
+        }
+        mask = capacity - 1;
+        wakeUpThreshold = Math.max(1, capacity / 2);
+
+        captureThread = new Thread(new CaptureRunnable(), THREAD_NAME);
+        captureThread.setDaemon(true);
+    }
+
+    /**
+     * Starts the background thread serializing the captured data.
+     *
+     * @return {@code true} if the thread was started, {@code false} if it was already running or has been stopped.
+     */
+    public synchronized boolean start() {
+        if (isStopped || captureThread.isAlive()) {
+            return false;
+        }
+        captureThread.start();
+        return true;
+    }
+
+    /**
+     * Stops the background thread after it serialized all data captured so far.
+     *
+     * <p>
+     *     Afterwards {@link Beacon} serializes data on the calling thread again.
+     * </p>
+     *
+     * @return {@code true} if the thread stopped in time, {@code false} otherwise.
+     */
+    public synchronized boolean stop() {
+        isStopped = true;
+        boolean result = true;
+        if (captureThread.isAlive()) {
+            LockSupport.unpark(captureThread);
+            try {
+                captureThread.join(THREAD_JOIN_TIMEOUT);
+                result = !captureThread.isAlive();
+            } catch (InterruptedException e) {
+                logger.warning(getClass().getSimpleName() + " stop() - Stopping capture thread was interrupted.");
+                Thread.currentThread().interrupt(); // re-interrupt the current thread
+                result = false;
+            }
+        }
+
+        // serialize whatever writers published while stopping
+        drain();
+
+        return result;
+    }
+
+    /**
+     * Indicates whether this capture has been stopped.
+     */
+    public boolean isStopped() {
+        return isStopped;
+    }
+
+    /**
+     * Get the capacity of the ring buffer.
+     */
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+     * Get the number of events, which have been dropped because the buffer was full.
+     */
+    public long getDroppedEventCount() {
+        return droppedEventCount.get();
+    }
+
+    /**
+     * Get the number of capture calls, which had to wait for free space with {@link AsyncCaptureOverflowPolicy#BLOCK}.
+     *
+     * <p>
+     *     A waiting thread parks until the background thread has serialized the oldest captured data.
+     * </p>
+     */
+    public long getBlockedCaptureCount() {
+        return blockedCaptureCount.get();
+    }
+
+    /**
+     * Waits until all descriptors, which have been captured before this call, are serialized.
+     *
+     * <p>
+     *     The descriptors are serialized by the background thread. Only if it is not running, they are serialized
+     *     on the calling thread. If the calling thread is interrupted while waiting, this method returns early.
+     * </p>
+     *
+     * @return The number of descriptors taken from the buffer, which had been captured before this call.
+     */
+    public int drain() {
+        long startPosition = readPosition.get();
+        long targetPosition = writePosition.get();
+        if (startPosition >= targetPosition) {
+            return 0;
+        }
+
+        consumerLock.lock();
+        try {
+            while (readPosition.get() < targetPosition) {
+                if (captureThread.isAlive()) {
+                    // hand over to the background thread, which might be waiting for new data
+                    LockSupport.unpark(captureThread);
+                } else {
+                    // the calling thread is the only consumer
+                    serializePublished();
+                    if (readPosition.get() >= targetPosition) {
+                        break;
+                    }
+                }
+                // wait for the background thread, or for a writer publishing a claimed slot
+                consumed.awaitNanos(DRAIN_WAIT_NANOS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // re-interrupt the current thread
+        } finally {
+            consumerLock.unlock();
+        }
+
+        return (int) (Math.min(readPosition.get(), targetPosition) - startPosition);
+    }
+
+    /**
+     * Serializes all published descriptors, while holding the {@link #consumerLock}.
+     *
+     * @return The number of serialized descriptors.
+     */
+    private int serializePublished() {
+        consumerLock.lock();
+        try {
+            int count = 0;
+            while (poll(true)) {
+                count++;
+            }
+            if (count > 0) {
+                consumed.signalAll();
+            }
+            return count;
+        } finally {
+            consumerLock.unlock();
+        }
+    }
+
+    /**
+     * Captures an event or value.
+     *
+     * @return {@code true} if the event was captured or dropped, {@code false} if the caller has to serialize
+     *         the event itself, because this capture is stopped or the background thread is not running.
+     */
+    boolean captureEvent(Beacon beacon, EventType eventType, String name, int threadID, int parentActionID,
+                         int sequenceNumber, long timestamp, long numericValue, String stringValue) {
+        EventDescriptor descriptor = claim();
+        if (descriptor == null) {
+            return false;
+        } else if (descriptor == DROPPED) {
+            return true;
+        }
+
+        descriptor.beacon = beacon;
+        descriptor.eventType = eventType;
+        descriptor.name = name;
+        descriptor.threadID = threadID;
+        descriptor.parentActionID = parentActionID;
+        descriptor.startSequenceNumber = sequenceNumber;
+        descriptor.startTime = timestamp;
+        descriptor.numericValue = numericValue;
+        descriptor.stringValue = stringValue;
+
+        publish(descriptor);
+        return true;
+    }
+
+    /**
+     * Captures a completed action.
+     *
+     * @return {@code true} if the action was captured or dropped, {@code false} if the caller has to serialize
+     *         the action itself, because this capture is stopped or the background thread is not running.
+     */
+    boolean captureAction(Beacon beacon, String name, int threadID, int actionID, int parentActionID,
+                          int startSequenceNumber, long startTime, int endSequenceNumber, long endTime) {
+        EventDescriptor descriptor = claim();
+        if (descriptor == null) {
+            return false;
+        } else if (descriptor == DROPPED) {
+            return true;
+        }
+
+        descriptor.beacon = beacon;
+        descriptor.eventType = EventType.ACTION;
+        descriptor.name = name;
+        descriptor.threadID = threadID;
+        descriptor.actionID = actionID;
+        descriptor.parentActionID = parentActionID;
+        descriptor.startSequenceNumber = startSequenceNumber;
+        descriptor.startTime = startTime;
+        descriptor.endSequenceNumber = endSequenceNumber;
+        descriptor.endTime = endTime;
+
+        publish(descriptor);
+        return true;
+    }
+
+    /**
+     * Claims the next free slot for writing.
+     *
+     * @return The claimed slot, {@link #DROPPED} if the data is dropped, or {@code null} if the caller has to
+     *         serialize the data itself.
+     */
+    private EventDescriptor claim() {
+        boolean isBlocked = false;
+        long position = writePosition.get();
+        while (!isStopped) {
+            EventDescriptor descriptor = slots[(int) position & mask];
+            long difference = descriptor.sequence - position;
+            if (difference == 0) {
+                if (writePosition.compareAndSet(position, position + 1)) {
+                    descriptor.position = position;
+                    return descriptor;
+                }
+                position = writePosition.get();
+            } else if (difference < 0) {
+                // the slot still holds the descriptor written one round before - the buffer is full
+                if (overflowPolicy == AsyncCaptureOverflowPolicy.BLOCK) {
+                    if (!captureThread.isAlive()) {
+                        // nobody would free a slot
+                        return null;
+                    }
+                    if (!isBlocked) {
+                        blockedCaptureCount.incrementAndGet();
+                        isBlocked = true;
+                    }
+                    LockSupport.unpark(captureThread);
+                    LockSupport.parkNanos(this, BLOCK_WAIT_NANOS);
+                } else if (overflowPolicy != AsyncCaptureOverflowPolicy.DROP_OLDEST || !dropOldest()) {
+                    droppedEventCount.incrementAndGet();
+                    return DROPPED;
+                }
+                position = writePosition.get();
+            } else {
+                // another writer claimed this position in the meantime
+                position = writePosition.get();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Discards the oldest descriptor to make room with {@link AsyncCaptureOverflowPolicy#DROP_OLDEST}.
+     *
+     * <p>
+     *     The descriptor is only discarded if no other thread is consuming, since the consumer frees a slot anyway.
+     * </p>
+     *
+     * @return {@code true} if the writer shall try again, {@code false} if the new data is dropped instead.
+     */
+    private boolean dropOldest() {
+        if (!consumerLock.tryLock()) {
+            Thread.yield();
+            return true;
+        }
+        try {
+            if (poll(false)) {
+                droppedEventCount.incrementAndGet();
+                consumed.signalAll();
+            }
+            return true;
+        } finally {
+            consumerLock.unlock();
+        }
+    }
+
+    private void publish(EventDescriptor descriptor) {
+        long position = descriptor.position;
+        descriptor.sequence = position + 1;
+
+        if (position - readPosition.get() + 1 == wakeUpThreshold) {
+            // the background thread might be waiting, wake it up before the buffer runs full
+            LockSupport.unpark(captureThread);
+        }
+    }
+
+    /**
+     * Takes the oldest published descriptor from the buffer.
+     *
+     * <p>
+     *     Must only be called while holding the {@link #consumerLock}.
+     * </p>
+     *
+     * @param serialize {@code true} if the descriptor is serialized, {@code false} if it is discarded.
+     * @return {@code true} if a descriptor was taken, {@code false} if no published descriptor is available.
+     */
+    private boolean poll(boolean serialize) {
+        long position = readPosition.get();
+        EventDescriptor descriptor = slots[(int) position & mask];
+        if (descriptor.sequence != position + 1) {
+            // nothing published at this position yet
+            return false;
+        }
+
+        try {
+            if (serialize) {
+                serialize(descriptor);
+            }
+        } finally {
+            descriptor.clear();
+            // release the slot for the writer of the next round
+            descriptor.sequence = position + slots.length;
+            readPosition.set(position + 1);
+        }
+        return true;
+    }
+
+    private void serialize(EventDescriptor descriptor) {
+        try {
+            descriptor.beacon.addCapturedData(descriptor);
+        } catch (RuntimeException e) {
+            logger.error(getClass().getSimpleName() + " - Failed to serialize captured data", e);
+        }
+    }
+
+    /**
+     * A pre-allocated slot of the ring buffer, which is reused for every round.
+     *
+     * <p>
+     *     The fields are written by the thread which claimed the slot and become visible to readers
+     *     with the write of {@link #sequence}.
+     * </p>
+     */
+    static final class EventDescriptor {
+
+        /** Position at which this slot can be written next ({@code position}) or read ({@code position + 1}) */
+        volatile long sequence;
+        /** Position for which the slot has been claimed */
+        long position;
+
+        Beacon beacon;
+        EventType eventType;
+        String name;
+        int threadID;
+        int actionID;
+        int parentActionID;
+        int startSequenceNumber;
+        long startTime;
+        int endSequenceNumber;
+        long endTime;
+        long numericValue;
+        String stringValue;
+
+        EventDescriptor(long sequence) {
+            this.sequence = sequence;
+        }
+
+        /**
+         * Releases all references, so that the slot does not keep a finished session alive.
+         */
+        void clear() {
+            beacon = null;
+            eventType = null;
+            name = null;
+            stringValue = null;
+        }
+    }
+
+    /**
+     * Runnable of the background thread serializing the captured data.
+     */
+    private final class CaptureRunnable implements Runnable {
+
+        private long lastDroppedEventCount = 0;
+        private long lastDroppedEventLogTime = 0;
+
+        @Override
+        public void run() {
+            if (logger.isDebugEnabled()) {
+                logger.debug(THREAD_NAME + " run() - capture thread started");
+            }
+
+            long idleWaitNanos = MIN_IDLE_WAIT_NANOS;
+            while (!isStopped) {
+                if (serializePublished() > 0) {
+                    idleWaitNanos = MIN_IDLE_WAIT_NANOS;
+                } else {
+                    LockSupport.parkNanos(AsyncEventCapture.this, idleWaitNanos);
+                    idleWaitNanos = Math.min(idleWaitNanos * 2, MAX_IDLE_WAIT_NANOS);
+                }
+                logDroppedEvents();
+            }
+            serializePublished();
+            logDroppedEvents();
+
+            if (logger.isDebugEnabled()) {
+                logger.debug(THREAD_NAME + " run() - thread is stopped");
+            }
+        }
+
+        private void logDroppedEvents() {
+            long droppedEvents = droppedEventCount.get();
+            if (droppedEvents == lastDroppedEventCount || !logger.isWarnEnabled()) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (lastDroppedEventLogTime != 0 && now - lastDroppedEventLogTime < DROPPED_EVENTS_LOG_INTERVAL_NANOS
+                    && !isStopped) {
+                return;
+            }
+            logger.warning(THREAD_NAME + " - " + (droppedEvents - lastDroppedEventCount)
+                    + " captured events were dropped, since the capture buffer was full (total: " + droppedEvents + ")");
+            lastDroppedEventCount = droppedEvents;
+            lastDroppedEventLogTime = now;
+        }
+    }
+}
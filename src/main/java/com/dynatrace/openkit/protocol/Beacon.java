@@ -18,12 +18,15 @@ package com.dynatrace.openkit.protocol;
 
 import com.dynatrace.openkit.api.Logger;
 import com.dynatrace.openkit.core.caching.BeaconCache;
+import com.dynatrace.openkit.core.caching.BeaconOutbox;
 import com.dynatrace.openkit.core.caching.BeaconKey;
 import com.dynatrace.openkit.core.configuration.BeaconConfiguration;
+import com.dynatrace.openkit.core.configuration.HTTPClientConfiguration;
 import com.dynatrace.openkit.core.configuration.OpenKitConfiguration;
 import com.dynatrace.openkit.core.configuration.PrivacyConfiguration;
 import com.dynatrace.openkit.core.configuration.ServerConfiguration;
 import com.dynatrace.openkit.core.configuration.ServerConfigurationUpdateCallback;
+import com.dynatrace.openkit.core.objects.ActionBatchImpl;
 import com.dynatrace.openkit.core.objects.BaseActionImpl;
 import com.dynatrace.openkit.core.objects.SessionImpl;
 import com.dynatrace.openkit.core.objects.WebRequestTracerBaseImpl;
@@ -35,6 +38,8 @@ import com.dynatrace.openkit.providers.ThreadIDProvider;
 import com.dynatrace.openkit.providers.TimingProvider;
 
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -121,8 +126,8 @@ public class Beacon {
     // client IP address
     private final String clientIPAddress;
 
-    // basic beacon data which does not change over time
-    private final String immutableBasicBeaconData;
+    // basic beacon data shared by all beacons of the OpenKit instance
+    private final SharedBeaconData sharedBeaconData;
 
     // Configuration object required for this Beacon
     private final BeaconConfiguration configuration;
@@ -131,6 +136,9 @@ public class Beacon {
 
     private final BeaconCache beaconCache;
 
+    // captures actions, events and values asynchronously, or null if they are serialized on the calling thread
+    private final AsyncEventCapture asyncEventCapture;
+
     /**
      * Creates a new beacon instance
      *
@@ -142,6 +150,7 @@ public class Beacon {
 
         this.logger = initializer.getLogger();
         this.beaconCache = initializer.getBeaconCache();
+        this.asyncEventCapture = initializer.getAsyncEventCapture();
         int sessionNumber  = initializer.getSessionIdProvider().getNextSessionID();
         int sessionSequenceNumber = initializer.getSessionSequenceNumber();
         this.beaconKey = new BeaconKey(sessionNumber, sessionSequenceNumber);
@@ -167,7 +176,12 @@ public class Beacon {
             this.clientIPAddress = "";
         }
 
-        immutableBasicBeaconData = createImmutableBasicBeaconData();
+        SharedBeaconData sharedBeaconData = initializer.getSharedBeaconData();
+        if (sharedBeaconData == null) {
+            sharedBeaconData = createSharedBeaconData(logger, configuration.getOpenKitConfiguration(),
+                    configuration.getPrivacyConfiguration());
+        }
+        this.sharedBeaconData = sharedBeaconData;
     }
 
     /**
@@ -188,6 +202,17 @@ public class Beacon {
         return random.nextPositiveLong();
     }
 
+    /**
+     * Create the key used for choosing the endpoint to which this Beacon's data is sent.
+     *
+     * @param deviceID      The device identifier.
+     * @param sessionNumber The session number.
+     * @return Routing key derived from device ID and session number.
+     */
+    private static int createRoutingKey(long deviceID, int sessionNumber) {
+        return 31 * (int) (deviceID ^ (deviceID >>> 32)) + sessionNumber;
+    }
+
     /**
      * Create a unique identifier.
      *
@@ -278,26 +303,74 @@ public class Beacon {
      */
     public void addAction(BaseActionImpl action) {
 
-        if (!configuration.getPrivacyConfiguration().isActionReportingAllowed()) {
+        if (!isActionReportingAllowed()) {
             return;
         }
 
-        if (!configuration.getServerConfiguration().isSendingDataAllowed()) {
+        int threadID = threadIDProvider.getThreadID();
+        if (asyncEventCapture != null && !asyncEventCapture.isStopped()
+                && asyncEventCapture.captureAction(this, action.getName(), threadID, action.getID(), action.getParentID(),
+                        action.getStartSequenceNo(), action.getStartTime(), action.getEndSequenceNo(), action.getEndTime())) {
             return;
         }
 
+        addAction(action.getName(), threadID, action.getID(), action.getParentID(),
+                action.getStartSequenceNo(), action.getStartTime(), action.getEndSequenceNo(), action.getEndTime());
+    }
+
+    /**
+     * Add an already completed action, whose start and end time are known, to Beacon.
+     *
+     * <p>
+     * The action is serialized directly, without creating an action object. It gets a new action ID
+     * and two new sequence numbers for its start and end.
+     * The serialized data is added to {@link com.dynatrace.openkit.core.caching.BeaconCache}.
+     * </p>
+     *
+     * @param actionName The name of the action.
+     * @param parentActionID The ID of the parent action or {@code 0} if the action is a root action.
+     * @param startTime The time when the action was started, in milliseconds since the epoch.
+     * @param endTime The time when the action was ended, in milliseconds since the epoch.
+     */
+    public void addCompletedAction(String actionName, int parentActionID, long startTime, long endTime) {
+
+        if (!isActionReportingAllowed()) {
+            return;
+        }
+
+        int threadID = threadIDProvider.getThreadID();
+        int actionID = createID();
+        int startSequenceNumber = createSequenceNumber();
+        int endSequenceNumber = createSequenceNumber();
+        if (asyncEventCapture != null && !asyncEventCapture.isStopped()
+                && asyncEventCapture.captureAction(this, actionName, threadID, actionID, parentActionID,
+                        startSequenceNumber, startTime, endSequenceNumber, endTime)) {
+            return;
+        }
+
+        addAction(actionName, threadID, actionID, parentActionID, startSequenceNumber, startTime, endSequenceNumber, endTime);
+    }
+
+    private boolean isActionReportingAllowed() {
+        return configuration.getPrivacyConfiguration().isActionReportingAllowed()
+            && configuration.getServerConfiguration().isSendingDataAllowed();
+    }
+
+    private void addAction(String actionName, int threadID, int actionID, int parentActionID,
+                           int startSequenceNumber, long startTime, int endSequenceNumber, long endTime) {
+
         StringBuilder actionBuilder = new StringBuilder();
 
-        buildBasicEventData(actionBuilder, EventType.ACTION, action.getName());
+        buildBasicEventData(actionBuilder, EventType.ACTION, actionName, threadID);
 
-        addKeyValuePair(actionBuilder, BEACON_KEY_ACTION_ID, action.getID());
-        addKeyValuePair(actionBuilder, BEACON_KEY_PARENT_ACTION_ID, action.getParentID());
-        addKeyValuePair(actionBuilder, BEACON_KEY_START_SEQUENCE_NUMBER, action.getStartSequenceNo());
-        addKeyValuePair(actionBuilder, BEACON_KEY_TIME_0, getTimeSinceSessionStartTime(action.getStartTime()));
-        addKeyValuePair(actionBuilder, BEACON_KEY_END_SEQUENCE_NUMBER, action.getEndSequenceNo());
-        addKeyValuePair(actionBuilder, BEACON_KEY_TIME_1, action.getEndTime() - action.getStartTime());
+        addKeyValuePair(actionBuilder, BEACON_KEY_ACTION_ID, actionID);
+        addKeyValuePair(actionBuilder, BEACON_KEY_PARENT_ACTION_ID, parentActionID);
+        addKeyValuePair(actionBuilder, BEACON_KEY_START_SEQUENCE_NUMBER, startSequenceNumber);
+        addKeyValuePair(actionBuilder, BEACON_KEY_TIME_0, getTimeSinceSessionStartTime(startTime));
+        addKeyValuePair(actionBuilder, BEACON_KEY_END_SEQUENCE_NUMBER, endSequenceNumber);
+        addKeyValuePair(actionBuilder, BEACON_KEY_TIME_1, endTime - startTime);
 
-        addActionData(action.getStartTime(), actionBuilder);
+        addActionData(startTime, actionBuilder);
     }
 
     /**
@@ -374,6 +447,10 @@ public class Beacon {
             return;
         }
 
+        if (captureEventAsync(EventType.VALUE_INT, valueName, parentActionID, value, null)) {
+            return;
+        }
+
         StringBuilder eventBuilder = new StringBuilder();
 
         long eventTimestamp = buildEvent(eventBuilder, EventType.VALUE_INT, valueName, parentActionID);
@@ -403,6 +480,10 @@ public class Beacon {
             return;
         }
 
+        if (captureEventAsync(EventType.VALUE_DOUBLE, valueName, parentActionID, Double.doubleToRawLongBits(value), null)) {
+            return;
+        }
+
         StringBuilder eventBuilder = new StringBuilder();
 
         long eventTimestamp = buildEvent(eventBuilder, EventType.VALUE_DOUBLE, valueName, parentActionID);
@@ -432,6 +513,10 @@ public class Beacon {
             return;
         }
 
+        if (captureEventAsync(EventType.VALUE_STRING, valueName, parentActionID, 0L, value)) {
+            return;
+        }
+
         StringBuilder eventBuilder = new StringBuilder();
 
         long eventTimestamp = buildEvent(eventBuilder, EventType.VALUE_STRING, valueName, parentActionID);
@@ -462,6 +547,10 @@ public class Beacon {
             return;
         }
 
+        if (captureEventAsync(EventType.NAMED_EVENT, eventName, parentActionID, 0L, null)) {
+            return;
+        }
+
         StringBuilder eventBuilder = new StringBuilder();
 
         long eventTimestamp = buildEvent(eventBuilder, EventType.NAMED_EVENT, eventName, parentActionID);
@@ -469,6 +558,137 @@ public class Beacon {
         addEventData(eventTimestamp, eventBuilder);
     }
 
+    /**
+     * Captures an event or value with {@link AsyncEventCapture}, if asynchronous capturing is enabled.
+     *
+     * @return {@code true} if the event has been captured asynchronously,
+     *         {@code false} if it has to be serialized on the calling thread.
+     */
+    private boolean captureEventAsync(EventType eventType, String name, int parentActionID,
+                                      long numericValue, String stringValue) {
+        if (asyncEventCapture == null || asyncEventCapture.isStopped()) {
+            return false;
+        }
+
+        return asyncEventCapture.captureEvent(this, eventType, name, threadIDProvider.getThreadID(), parentActionID,
+                createSequenceNumber(), timingProvider.provideTimestampInMilliseconds(), numericValue, stringValue);
+    }
+
+    /**
+     * Serializes data, which has been captured with {@link AsyncEventCapture}, into the beacon cache.
+     *
+     * <p>
+     *     This method is called by the thread draining the capture buffer.
+     * </p>
+     *
+     * @param descriptor The captured action, event or value.
+     */
+    void addCapturedData(AsyncEventCapture.EventDescriptor descriptor) {
+        if (descriptor.eventType == EventType.ACTION) {
+            addAction(descriptor.name, descriptor.threadID, descriptor.actionID, descriptor.parentActionID,
+                    descriptor.startSequenceNumber, descriptor.startTime, descriptor.endSequenceNumber, descriptor.endTime);
+            return;
+        }
+
+        StringBuilder eventBuilder = new StringBuilder();
+
+        buildBasicEventData(eventBuilder, descriptor.eventType, descriptor.name, descriptor.threadID);
+        addKeyValuePair(eventBuilder, BEACON_KEY_PARENT_ACTION_ID, descriptor.parentActionID);
+        addKeyValuePair(eventBuilder, BEACON_KEY_START_SEQUENCE_NUMBER, descriptor.startSequenceNumber);
+        addKeyValuePair(eventBuilder, BEACON_KEY_TIME_0, getTimeSinceSessionStartTime(descriptor.startTime));
+
+        if (descriptor.eventType == EventType.VALUE_INT) {
+            addKeyValuePair(eventBuilder, BEACON_KEY_VALUE, (int) descriptor.numericValue);
+        } else if (descriptor.eventType == EventType.VALUE_DOUBLE) {
+            addKeyValuePair(eventBuilder, BEACON_KEY_VALUE, Double.longBitsToDouble(descriptor.numericValue));
+        } else if (descriptor.eventType == EventType.VALUE_STRING && descriptor.stringValue != null) {
+            addKeyValuePair(eventBuilder, BEACON_KEY_VALUE, truncate(descriptor.stringValue));
+        }
+
+        addEventData(descriptor.startTime, eventBuilder);
+    }
+
+    /**
+     * Serializes all asynchronously captured data into the beacon cache, before this beacon's data is accessed.
+     */
+    private void drainCapturedData() {
+        if (asyncEventCapture != null) {
+            asyncEventCapture.drain();
+        }
+    }
+
+    /**
+     * Add all events and values recorded on an {@link ActionBatchImpl} to Beacon.
+     *
+     * <p>
+     * All entries share one timestamp and get a contiguous range of sequence numbers.
+     * Entries, which must not be reported due to the privacy configuration, are skipped.
+     * The serialized data is added to {@link com.dynatrace.openkit.core.caching.BeaconCache} at once.
+     * </p>
+     *
+     * @param parentActionID The ID of the {@link com.dynatrace.openkit.api.Action} on which the batch was recorded.
+     * @param batch          The batch containing the recorded events and values.
+     */
+    public void reportBatch(int parentActionID, ActionBatchImpl batch) {
+
+        if (!configuration.getServerConfiguration().isSendingDataAllowed()) {
+            return;
+        }
+
+        PrivacyConfiguration privacyConfiguration = configuration.getPrivacyConfiguration();
+        boolean isEventReportingAllowed = privacyConfiguration.isEventReportingAllowed();
+        boolean isValueReportingAllowed = privacyConfiguration.isValueReportingAllowed();
+
+        int numEntries = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (isBatchEntryAllowed(batch.getEventType(i), isEventReportingAllowed, isValueReportingAllowed)) {
+                numEntries++;
+            }
+        }
+        if (numEntries == 0) {
+            return;
+        }
+
+        long eventTimestamp = timingProvider.provideTimestampInMilliseconds();
+        long timeSinceSessionStart = getTimeSinceSessionStartTime(eventTimestamp);
+        int sequenceNumber = nextSequenceNumber.getAndAdd(numEntries) + 1;
+
+        List<String> eventData = new ArrayList<String>(numEntries);
+        StringBuilder eventBuilder = new StringBuilder();
+        for (int i = 0; i < batch.size(); i++) {
+            EventType eventType = batch.getEventType(i);
+            if (!isBatchEntryAllowed(eventType, isEventReportingAllowed, isValueReportingAllowed)) {
+                continue;
+            }
+
+            eventBuilder.setLength(0);
+            buildBasicEventData(eventBuilder, eventType, batch.getName(i));
+            addKeyValuePair(eventBuilder, BEACON_KEY_PARENT_ACTION_ID, parentActionID);
+            addKeyValuePair(eventBuilder, BEACON_KEY_START_SEQUENCE_NUMBER, sequenceNumber++);
+            addKeyValuePair(eventBuilder, BEACON_KEY_TIME_0, timeSinceSessionStart);
+
+            if (eventType == EventType.VALUE_INT) {
+                addKeyValuePair(eventBuilder, BEACON_KEY_VALUE, batch.getIntValue(i));
+            } else if (eventType == EventType.VALUE_DOUBLE) {
+                addKeyValuePair(eventBuilder, BEACON_KEY_VALUE, batch.getDoubleValue(i));
+            } else if (eventType == EventType.VALUE_STRING && batch.getStringValue(i) != null) {
+                addKeyValuePair(eventBuilder, BEACON_KEY_VALUE, truncate(batch.getStringValue(i)));
+            }
+
+            eventData.add(eventBuilder.toString());
+        }
+
+        if (isCaptureEnabled()) {
+            beaconCache.addEventData(beaconKey, eventTimestamp, eventData);
+        }
+    }
+
+    private static boolean isBatchEntryAllowed(EventType eventType,
+                                               boolean isEventReportingAllowed,
+                                               boolean isValueReportingAllowed) {
+        return eventType == EventType.NAMED_EVENT ? isEventReportingAllowed : isValueReportingAllowed;
+    }
+
     /**
      * Add error to Beacon.
      *
@@ -503,7 +723,7 @@ public class Beacon {
         addKeyValuePairIfNotNull(eventBuilder, BEACON_KEY_ERROR_REASON, reason);
         addKeyValuePair(eventBuilder, BEACON_KEY_ERROR_TECHNOLOGY_TYPE, ProtocolConstants.ERROR_TECHNOLOGY_TYPE);
 
-        addEventData(timestamp, eventBuilder);
+        addPriorityEventData(timestamp, eventBuilder);
     }
 
     /**
@@ -539,7 +759,7 @@ public class Beacon {
         addKeyValuePairIfNotNull(eventBuilder, BEACON_KEY_ERROR_STACKTRACE, stacktrace);
         addKeyValuePair(eventBuilder, BEACON_KEY_ERROR_TECHNOLOGY_TYPE, ProtocolConstants.ERROR_TECHNOLOGY_TYPE);
 
-        addEventData(timestamp, eventBuilder);
+        addPriorityEventData(timestamp, eventBuilder);
     }
 
     /**
@@ -623,9 +843,39 @@ public class Beacon {
      */
     public StatusResponse send(HTTPClientProvider provider, AdditionalQueryParameters additionalParameters) {
 
-        HTTPClient httpClient = provider.createClient(configuration.getHTTPClientConfiguration());
+        drainCapturedData();
+
+        return sendChunks(provider, additionalParameters, false);
+    }
+
+    /**
+     * Send the priority data (crashes & errors) of this Beacon.
+     *
+     * <p>
+     * Only priority data is sent, all other data is kept for the next {@link #send(HTTPClientProvider, AdditionalQueryParameters) send}.
+     * </p>
+     *
+     * @param provider             Provider for getting an {@link HTTPClient} required to send the data.
+     * @param additionalParameters additional parameters that will be send with the beacon request (can be {@code null}).
+     * @return Returns the last status response retrieved from the server side, or {@code null} if an error occurred.
+     */
+    public StatusResponse sendPriorityData(HTTPClientProvider provider, AdditionalQueryParameters additionalParameters) {
+        return sendChunks(provider, additionalParameters, true);
+    }
+
+    private StatusResponse sendChunks(HTTPClientProvider provider, AdditionalQueryParameters additionalParameters,
+                                      boolean isPriorityDataOnly) {
+
+        // all requests of this beacon are routed to the same endpoint
+        HTTPClientConfiguration httpClientConfiguration = HTTPClientConfiguration
+                .modifyWith(configuration.getHTTPClientConfiguration())
+                .withRoutingKey(createRoutingKey(deviceID, getSessionNumber()))
+                .build();
+        HTTPClient httpClient = provider.createClient(httpClientConfiguration);
         StatusResponse response = null;
 
+        // the immutable part is not kept per beacon, to keep the footprint of idle sessions low
+        String immutableBasicBeaconData = createImmutableBasicBeaconData();
         while (true) {
 
             // prefix for this chunk - must be built up newly, due to changing timestamps
@@ -633,7 +883,10 @@ public class Beacon {
             // subtract 1024 to ensure that the chunk does not exceed the send size configured on server side?
             // i guess that was the original intention, but i'm not sure about this
             // TODO stefan.eberl - This is a quite uncool algorithm and should be improved, avoid subtracting some "magic" number
-            String chunk = beaconCache.getNextBeaconChunk(beaconKey, prefix, configuration.getServerConfiguration().getBeaconSizeInBytes() - 1024, BEACON_DATA_DELIMITER);
+            int maxSize = configuration.getServerConfiguration().getBeaconSizeInBytes() - 1024;
+            String chunk = isPriorityDataOnly
+                    ? beaconCache.getNextPriorityChunk(beaconKey, prefix, maxSize, BEACON_DATA_DELIMITER)
+                    : beaconCache.getNextBeaconChunk(beaconKey, prefix, maxSize, BEACON_DATA_DELIMITER);
             if (chunk == null || chunk.isEmpty()) {
                 // no data added so far or no data to send
                 return response;
@@ -665,6 +918,46 @@ public class Beacon {
         return response;
     }
 
+    /**
+     * Moves all data of this beacon, which has not been sent yet, into the given outbox.
+     *
+     * <p>
+     *     The data is split into the same chunks as when sending it. Chunks which could not be stored
+     *     in the outbox are kept in the beacon cache.
+     * </p>
+     *
+     * @param outbox The outbox receiving the data.
+     */
+    public void moveDataToOutbox(BeaconOutbox outbox) {
+        drainCapturedData();
+
+        // replayed chunks are routed to the same endpoint as the chunks sent directly
+        int routingKey = createRoutingKey(deviceID, getSessionNumber());
+        String immutableBasicBeaconData = createImmutableBasicBeaconData();
+        while (true) {
+            String prefix = appendMutableBeaconData(immutableBasicBeaconData);
+            String chunk = beaconCache.getNextBeaconChunk(beaconKey, prefix, configuration.getServerConfiguration().getBeaconSizeInBytes() - 1024, BEACON_DATA_DELIMITER);
+            if (chunk == null || chunk.isEmpty()) {
+                return;
+            }
+
+            boolean isStored;
+            try {
+                isStored = outbox.append(clientIPAddress, routingKey, encodeBeaconChunk(chunk));
+            } catch (UnsupportedEncodingException e) {
+                // must not happen, as UTF-8 should *really* be supported
+                logger.error(getClass().getSimpleName() + ": Required charset \"" + CHARSET + "\" is not supported.", e);
+                isStored = false;
+            }
+
+            if (!isStored) {
+                beaconCache.resetChunkedData(beaconKey);
+                return;
+            }
+            beaconCache.removeChunkedData(beaconKey);
+        }
+    }
+
     /**
      * Encodes the given chunk to an {@link #CHARSET} byte array.
      *
@@ -719,6 +1012,18 @@ public class Beacon {
         }
     }
 
+    /**
+     * Add previously serialized priority event data (crashes & errors) to the beacon cache.
+     *
+     * @param timestamp    The timestamp when the event data occurred.
+     * @param eventBuilder Contains the serialized event data.
+     */
+    private void addPriorityEventData(long timestamp, StringBuilder eventBuilder) {
+        if (isCaptureEnabled()) {
+            beaconCache.addPriorityEventData(beaconKey, timestamp, eventBuilder.toString());
+        }
+    }
+
     /**
      * Clears all previously collected data for this Beacon.
      *
@@ -727,6 +1032,9 @@ public class Beacon {
      * </p>
      */
     public void clearData() {
+        // serialize pending data first, otherwise it would be added to the cache again afterwards
+        drainCapturedData();
+
         // remove all cached data for this Beacon from the cache
         beaconCache.deleteCacheEntry(beaconKey);
     }
@@ -760,30 +1068,37 @@ public class Beacon {
      * @param name      Event's name.
      */
     private void buildBasicEventData(StringBuilder builder, EventType eventType, String name) {
+        buildBasicEventData(builder, eventType, name, threadIDProvider.getThreadID());
+    }
+
+    /**
+     * Serialization for building basic event data, which has been reported on the given thread.
+     *
+     * @param builder   String builder storing serialized data.
+     * @param eventType The event's type.
+     * @param name      Event's name.
+     * @param threadID  The ID of the thread on which the event has been reported.
+     */
+    private void buildBasicEventData(StringBuilder builder, EventType eventType, String name, int threadID) {
         addKeyValuePair(builder, BEACON_KEY_EVENT_TYPE, eventType.protocolValue());
         if (name != null) {
             addKeyValuePair(builder, BEACON_KEY_NAME, truncate(name));
         }
-        addKeyValuePair(builder, BEACON_KEY_THREAD_ID, threadIDProvider.getThreadID());
+        addKeyValuePair(builder, BEACON_KEY_THREAD_ID, threadID);
     }
 
     /**
      * Serialization helper method for creating basic beacon protocol data.
      *
+     * <p>
+     *     The data is assembled from the {@link SharedBeaconData} and this beacon's identifiers
+     *     whenever it is needed, instead of being stored per beacon.
+     * </p>
+     *
      * @return Serialized data.
      */
     private String createImmutableBasicBeaconData() {
-        OpenKitConfiguration openKitConfiguration = configuration.getOpenKitConfiguration();
-        StringBuilder basicBeaconBuilder = new StringBuilder();
-
-        // version and application information
-        addKeyValuePair(basicBeaconBuilder, BEACON_KEY_PROTOCOL_VERSION, ProtocolConstants.PROTOCOL_VERSION);
-        addKeyValuePair(basicBeaconBuilder, BEACON_KEY_OPENKIT_VERSION, ProtocolConstants.OPENKIT_VERSION);
-        addKeyValuePair(basicBeaconBuilder, BEACON_KEY_APPLICATION_ID, openKitConfiguration.getApplicationID());
-        addKeyValuePair(basicBeaconBuilder, BEACON_KEY_APPLICATION_NAME, openKitConfiguration.getApplicationName());
-        addKeyValuePairIfNotNull(basicBeaconBuilder, BEACON_KEY_APPLICATION_VERSION, openKitConfiguration.getApplicationVersion());
-        addKeyValuePair(basicBeaconBuilder, BEACON_KEY_PLATFORM_TYPE, ProtocolConstants.PLATFORM_TYPE_OPENKIT);
-        addKeyValuePair(basicBeaconBuilder, BEACON_KEY_AGENT_TECHNOLOGY_TYPE, ProtocolConstants.AGENT_TECHNOLOGY_TYPE);
+        StringBuilder basicBeaconBuilder = new StringBuilder(sharedBeaconData.getApplicationData());
 
         // device/visitor ID, session number and IP address
         addKeyValuePair(basicBeaconBuilder, BEACON_KEY_VISITOR_ID, getDeviceID());
@@ -791,16 +1106,62 @@ public class Beacon {
         addKeyValuePair(basicBeaconBuilder, BEACON_KEY_SESSION_SEQUENCE, getSessionSequenceNumber());
         addKeyValuePair(basicBeaconBuilder, BEACON_KEY_CLIENT_IP_ADDRESS, clientIPAddress);
 
+        // platform information and privacy levels
+        if (!sharedBeaconData.getPlatformData().isEmpty()) {
+            basicBeaconBuilder.append(BEACON_DATA_DELIMITER).append(sharedBeaconData.getPlatformData());
+        }
+
+        return basicBeaconBuilder.toString();
+    }
+
+    /**
+     * Create the basic beacon data, which is the same for all beacons of an OpenKit instance.
+     *
+     * @param logger               Logger for reporting encoding errors.
+     * @param openKitConfiguration OpenKit related configuration.
+     * @param privacyConfiguration Privacy related configuration.
+     * @return Basic beacon data to be shared by all beacons of the OpenKit instance.
+     */
+    public static SharedBeaconData createSharedBeaconData(Logger logger,
+                                                          OpenKitConfiguration openKitConfiguration,
+                                                          PrivacyConfiguration privacyConfiguration) {
+        // version and application information
+        StringBuilder applicationBuilder = new StringBuilder();
+        appendKey(applicationBuilder, BEACON_KEY_PROTOCOL_VERSION);
+        applicationBuilder.append(ProtocolConstants.PROTOCOL_VERSION);
+        addKeyValuePair(logger, applicationBuilder, BEACON_KEY_OPENKIT_VERSION, ProtocolConstants.OPENKIT_VERSION);
+        addKeyValuePair(logger, applicationBuilder, BEACON_KEY_APPLICATION_ID, openKitConfiguration.getApplicationID());
+        addKeyValuePair(logger, applicationBuilder, BEACON_KEY_APPLICATION_NAME, openKitConfiguration.getApplicationName());
+        if (openKitConfiguration.getApplicationVersion() != null) {
+            addKeyValuePair(logger, applicationBuilder, BEACON_KEY_APPLICATION_VERSION, openKitConfiguration.getApplicationVersion());
+        }
+        appendKey(applicationBuilder, BEACON_KEY_PLATFORM_TYPE);
+        applicationBuilder.append(ProtocolConstants.PLATFORM_TYPE_OPENKIT);
+        addKeyValuePair(logger, applicationBuilder, BEACON_KEY_AGENT_TECHNOLOGY_TYPE, ProtocolConstants.AGENT_TECHNOLOGY_TYPE);
+
         // platform information
-        addKeyValuePairIfNotNull(basicBeaconBuilder, BEACON_KEY_DEVICE_OS, openKitConfiguration.getOperatingSystem());
-        addKeyValuePairIfNotNull(basicBeaconBuilder, BEACON_KEY_DEVICE_MANUFACTURER, openKitConfiguration.getManufacturer());
-        addKeyValuePairIfNotNull(basicBeaconBuilder, BEACON_KEY_DEVICE_MODEL, openKitConfiguration.getModelID());
+        StringBuilder platformBuilder = new StringBuilder();
+        if (openKitConfiguration.getOperatingSystem() != null) {
+            addKeyValuePair(logger, platformBuilder, BEACON_KEY_DEVICE_OS, openKitConfiguration.getOperatingSystem());
+        }
+        if (openKitConfiguration.getManufacturer() != null) {
+            addKeyValuePair(logger, platformBuilder, BEACON_KEY_DEVICE_MANUFACTURER, openKitConfiguration.getManufacturer());
+        }
+        if (openKitConfiguration.getModelID() != null) {
+            addKeyValuePair(logger, platformBuilder, BEACON_KEY_DEVICE_MODEL, openKitConfiguration.getModelID());
+        }
 
-        PrivacyConfiguration privacyConfiguration = configuration.getPrivacyConfiguration();
-        addKeyValuePair(basicBeaconBuilder, BEACON_KEY_DATA_COLLECTION_LEVEL, privacyConfiguration.getDataCollectionLevel());
-        addKeyValuePair(basicBeaconBuilder, BEACON_KEY_CRASH_REPORTING_LEVEL, privacyConfiguration.getCrashReportingLevel());
+        // privacy levels
+        if (privacyConfiguration.getDataCollectionLevel() != null) {
+            addKeyValuePair(logger, platformBuilder, BEACON_KEY_DATA_COLLECTION_LEVEL,
+                    privacyConfiguration.getDataCollectionLevel().asBeaconValue());
+        }
+        if (privacyConfiguration.getCrashReportingLevel() != null) {
+            addKeyValuePair(logger, platformBuilder, BEACON_KEY_CRASH_REPORTING_LEVEL,
+                    privacyConfiguration.getCrashReportingLevel().asBeaconValue());
+        }
 
-        return basicBeaconBuilder.toString();
+        return new SharedBeaconData(applicationBuilder.toString(), platformBuilder.toString());
     }
 
     /**
@@ -891,10 +1252,22 @@ public class Beacon {
      * @param stringValue The value to add.
      */
     private void addKeyValuePair(StringBuilder builder, String key, String stringValue) {
+        addKeyValuePair(logger, builder, key, stringValue);
+    }
+
+    /**
+     * Serialization helper method for adding key/value pairs with string values
+     *
+     * @param logger      Logger for reporting encoding errors.
+     * @param builder     The string builder storing serialized data.
+     * @param key         The key to add.
+     * @param stringValue The value to add.
+     */
+    private static void addKeyValuePair(Logger logger, StringBuilder builder, String key, String stringValue) {
         String encodedValue = PercentEncoder.encode(stringValue, CHARSET, RESERVED_CHARACTERS);
         if (encodedValue == null) {
             // if encoding fails, skip this key/value pair
-            logger.error(getClass().getSimpleName() + ": Skipped encoding of Key/Value: " + key + "/" + stringValue);
+            logger.error(Beacon.class.getSimpleName() + ": Skipped encoding of Key/Value: " + key + "/" + stringValue);
             return;
         }
 
@@ -991,7 +1364,7 @@ public class Beacon {
      * @param builder The string builder storing serialized data.
      * @param key     The key to add.
      */
-    private void appendKey(StringBuilder builder, String key) {
+    private static void appendKey(StringBuilder builder, String key) {
         if (builder.length() > 0) {
             builder.append('&');
         }
@@ -1030,9 +1403,19 @@ public class Beacon {
      * @return {@code true} if the beacon is empty, {@code false} otherwise.
      */
     public boolean isEmpty() {
+        drainCapturedData();
         return beaconCache.isEmpty(beaconKey);
     }
 
+    /**
+     * Tests if the beacon contains priority data (crashes & errors), which was not sent so far.
+     *
+     * @return {@code true} if the beacon has priority data, {@code false} otherwise.
+     */
+    public boolean hasPriorityData() {
+        return beaconCache.hasPriorityData(beaconKey);
+    }
+
     /**
      * Initializes the beacon with the given {@link ServerConfiguration}.
      * @param serverConfiguration the server configuration which will be used for initialization.
@@ -68,4 +68,16 @@ public interface BeaconInitializer {
      * Returns the {@link RandomNumberGenerator} to obtain random numbers (e.g. for randomizing device IDs)
      */
     RandomNumberGenerator getRandomNumberGenerator();
+
+    /**
+     * Returns the basic beacon data shared by all beacons of the OpenKit instance, or {@code null} if the beacon
+     * shall create it on its own.
+     */
+    SharedBeaconData getSharedBeaconData();
+
+    /**
+     * Returns the capture for asynchronously serializing actions, events and values, or {@code null} if they
+     * are serialized on the calling thread.
+     */
+    AsyncEventCapture getAsyncEventCapture();
 }
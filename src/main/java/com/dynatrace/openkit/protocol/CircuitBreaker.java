@@ -0,0 +1,181 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.protocol;
+
+import com.dynatrace.openkit.providers.TimingProvider;
+
+/**
+ * Circuit breaker guarding requests to the server.
+ *
+ * <p>
+ *     The breaker starts {@link State#CLOSED closed}, letting all requests pass. After a given number of
+ *     consecutive failures it {@link State#OPEN opens} and rejects all requests without contacting the server.
+ *     Once the open duration has elapsed, exactly one request is let through as a {@link State#HALF_OPEN half-open}
+ *     probe. If the probe succeeds, the breaker is closed again, otherwise it re-opens with a doubled open duration,
+ *     up to a maximum.
+ * </p>
+ *
+ * <p>
+ *     This class is thread safe.
+ * </p>
+ */
+public class CircuitBreaker {
+
+    /**
+     * The states of a circuit breaker.
+     */
+    public enum State {
+        /** requests pass */
+        CLOSED,
+        /** requests are rejected */
+        OPEN,
+        /** a single probe request is in flight, all other requests are rejected */
+        HALF_OPEN
+    }
+
+    /** default number of consecutive failures after which the breaker opens */
+    static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    /** default duration the breaker stays open after it opened for the first time */
+    static final long DEFAULT_INITIAL_OPEN_DURATION_IN_MILLISECONDS = 5 * 1000L;
+    /** default upper bound for the open duration */
+    static final long DEFAULT_MAX_OPEN_DURATION_IN_MILLISECONDS = 5 * 60 * 1000L;
+
+    private final int failureThreshold;
+    private final long initialOpenDurationInMilliseconds;
+    private final long maxOpenDurationInMilliseconds;
+    private final TimingProvider timingProvider;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openDurationInMilliseconds;
+    private long openUntilTimestamp;
+
+    /**
+     * Create a circuit breaker using default thresholds.
+     *
+     * @param timingProvider Provider for the current time.
+     */
+    public CircuitBreaker(TimingProvider timingProvider) {
+        this(DEFAULT_FAILURE_THRESHOLD,
+                DEFAULT_INITIAL_OPEN_DURATION_IN_MILLISECONDS,
+                DEFAULT_MAX_OPEN_DURATION_IN_MILLISECONDS,
+                timingProvider);
+    }
+
+    /**
+     * Create a circuit breaker.
+     *
+     * @param failureThreshold Number of consecutive failures after which the breaker opens.
+     * @param initialOpenDurationInMilliseconds Duration the breaker stays open after it opened for the first time.
+     * @param maxOpenDurationInMilliseconds Upper bound for the open duration.
+     * @param timingProvider Provider for the current time.
+     */
+    public CircuitBreaker(int failureThreshold,
+                          long initialOpenDurationInMilliseconds,
+                          long maxOpenDurationInMilliseconds,
+                          TimingProvider timingProvider) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.initialOpenDurationInMilliseconds = initialOpenDurationInMilliseconds;
+        this.maxOpenDurationInMilliseconds = Math.max(initialOpenDurationInMilliseconds, maxOpenDurationInMilliseconds);
+        this.timingProvider = timingProvider;
+        this.openDurationInMilliseconds = initialOpenDurationInMilliseconds;
+    }
+
+    /**
+     * Test if a request may be sent.
+     *
+     * <p>
+     *     If the open duration has elapsed, the calling request becomes the half-open probe.
+     *     In this case the caller must report the outcome via {@link #recordSuccess()} or {@link #recordFailure()}.
+     * </p>
+     *
+     * @return {@code true} if the request may be sent, {@code false} if it must be short-circuited.
+     */
+    public synchronized boolean isRequestAllowed() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (timingProvider.provideTimestampInMilliseconds() >= openUntilTimestamp) {
+                    state = State.HALF_OPEN;
+                    return true;
+                }
+                return false;
+            default:
+                // a probe is already in flight
+                return false;
+        }
+    }
+
+    /**
+     * Record a successful request, which closes the breaker.
+     */
+    public synchronized void recordSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        openDurationInMilliseconds = initialOpenDurationInMilliseconds;
+    }
+
+    /**
+     * Record a failed request.
+     *
+     * <p>
+     *     A failed half-open probe re-opens the breaker with a doubled open duration.
+     * </p>
+     */
+    public synchronized void recordFailure() {
+        if (state == State.HALF_OPEN) {
+            openDurationInMilliseconds = Math.min(openDurationInMilliseconds * 2, maxOpenDurationInMilliseconds);
+            open();
+            return;
+        }
+
+        consecutiveFailures++;
+        if (state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * Test if requests are currently rejected, without changing the state.
+     *
+     * @return {@code true} if the breaker is open and the open duration has not elapsed yet,
+     *         or if a half-open probe is in flight, {@code false} otherwise.
+     */
+    public synchronized boolean isRejectingRequests() {
+        switch (state) {
+            case CLOSED:
+                return false;
+            case OPEN:
+                return timingProvider.provideTimestampInMilliseconds() < openUntilTimestamp;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Get the current state.
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openUntilTimestamp = timingProvider.provideTimestampInMilliseconds() + openDurationInMilliseconds;
+    }
+}
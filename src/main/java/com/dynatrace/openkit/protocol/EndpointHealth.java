@@ -0,0 +1,132 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.protocol;
+
+import com.dynatrace.openkit.providers.TimingProvider;
+
+/**
+ * Tracks the health of a single beacon endpoint.
+ *
+ * <p>
+ *     The health is derived from an exponentially weighted moving average of the response latency and of the
+ *     error rate, where a missing response or a server side error (HTTP 5xx) counts as error.
+ *     A "too many requests" response (HTTP 429) does not count as error, but lets the endpoint cool down
+ *     for the time requested by the server.
+ * </p>
+ *
+ * <p>
+ *     A degraded endpoint is considered unhealthy for {@link #RECOVERY_INTERVAL_IN_MILLISECONDS}
+ *     after its last degraded sample. Afterwards it is used again, which gives it the chance to recover.
+ * </p>
+ *
+ * <p>
+ *     This class is thread safe.
+ * </p>
+ */
+public class EndpointHealth {
+
+    /** weight of a new sample in the moving averages */
+    static final double SMOOTHING_FACTOR = 0.2;
+    /** error rate at or above which the endpoint is degraded */
+    static final double ERROR_RATE_THRESHOLD = 0.5;
+    /** average latency at or above which the endpoint is degraded */
+    static final long LATENCY_THRESHOLD_IN_MILLISECONDS = 10 * 1000L;
+    /** time a degraded endpoint is avoided after its last degraded sample */
+    static final long RECOVERY_INTERVAL_IN_MILLISECONDS = 30 * 1000L;
+
+    private final TimingProvider timingProvider;
+
+    private double averageLatency = -1;
+    private double errorRate = 0;
+    private long coolDownUntilTimestamp = 0;
+    private long degradedUntilTimestamp = 0;
+
+    /**
+     * Create endpoint health tracking.
+     *
+     * @param timingProvider Provider for the current time.
+     */
+    public EndpointHealth(TimingProvider timingProvider) {
+        this.timingProvider = timingProvider;
+    }
+
+    /**
+     * Record the outcome of a request sent to the endpoint.
+     *
+     * @param response The response received, which might be {@code null}.
+     * @param latencyInMilliseconds The time it took to receive the response.
+     */
+    public synchronized void recordResponse(StatusResponse response, long latencyInMilliseconds) {
+        long now = timingProvider.provideTimestampInMilliseconds();
+
+        if (response != null && response.getResponseCode() == StatusResponse.HTTP_TOO_MANY_REQUESTS) {
+            coolDownUntilTimestamp = now + Math.max(0, response.getRetryAfterInMilliseconds());
+            return;
+        }
+
+        boolean isError = response == null || response.getResponseCode() >= 500;
+        errorRate += SMOOTHING_FACTOR * ((isError ? 1.0 : 0.0) - errorRate);
+        if (averageLatency < 0) {
+            averageLatency = latencyInMilliseconds;
+        } else {
+            averageLatency += SMOOTHING_FACTOR * (latencyInMilliseconds - averageLatency);
+        }
+
+        if (errorRate >= ERROR_RATE_THRESHOLD || averageLatency >= LATENCY_THRESHOLD_IN_MILLISECONDS) {
+            degradedUntilTimestamp = now + RECOVERY_INTERVAL_IN_MILLISECONDS;
+        } else {
+            degradedUntilTimestamp = 0;
+        }
+    }
+
+    /**
+     * Test if the endpoint is healthy, so that requests should be sent to it.
+     *
+     * @return {@code true} if the endpoint is healthy, {@code false} if it is cooling down or degraded.
+     */
+    public synchronized boolean isHealthy() {
+        long now = timingProvider.provideTimestampInMilliseconds();
+        return now >= coolDownUntilTimestamp && now >= degradedUntilTimestamp;
+    }
+
+    /**
+     * Get the moving average of the response latency.
+     *
+     * @return Average latency in milliseconds or {@code -1} if no response has been recorded yet.
+     */
+    public synchronized double getAverageLatency() {
+        return averageLatency;
+    }
+
+    /**
+     * Get the moving average of the error rate.
+     *
+     * @return Error rate in the range from {@code 0} to {@code 1}.
+     */
+    public synchronized double getErrorRate() {
+        return errorRate;
+    }
+
+    /**
+     * Get the timestamp until which the endpoint cools down after a "too many requests" response.
+     *
+     * @return Cool-down end timestamp in milliseconds or {@code 0} if the endpoint never had to cool down.
+     */
+    public synchronized long getCoolDownUntilTimestamp() {
+        return coolDownUntilTimestamp;
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.protocol;
+
+import com.dynatrace.openkit.providers.TimingProvider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Distributes requests across multiple beacon endpoints.
+ *
+ * <p>
+ *     The endpoints are placed on a consistent hash ring, using multiple virtual nodes per endpoint.
+ *     A routing key is mapped to the first endpoint found clockwise from the key's position on the ring.
+ *     Thus requests with the same routing key always go to the same endpoint and adding or removing an endpoint
+ *     only moves the keys of this endpoint.
+ * </p>
+ *
+ * <p>
+ *     Unhealthy endpoints, either due to their {@link EndpointHealth} or a {@link CircuitBreaker} rejecting requests,
+ *     are skipped, which fails over to the next endpoint on the ring.
+ * </p>
+ *
+ * <p>
+ *     This class is thread safe.
+ * </p>
+ */
+public class EndpointSelector {
+
+    /** number of positions each endpoint occupies on the hash ring */
+    static final int VIRTUAL_NODES_PER_ENDPOINT = 100;
+
+    private final List<Endpoint> endpoints;
+    private final TimingProvider timingProvider;
+
+    // sorted ring positions and the endpoints owning them
+    private final int[] ringPositions;
+    private final Endpoint[] ringEndpoints;
+
+    /**
+     * Create an endpoint selector.
+     *
+     * @param endpointURLs The URLs of all endpoints, which must not be empty.
+     * @param timingProvider Provider for the current time.
+     */
+    public EndpointSelector(List<String> endpointURLs, TimingProvider timingProvider) {
+        if (endpointURLs == null || endpointURLs.isEmpty()) {
+            throw new IllegalArgumentException("at least one endpoint URL is required");
+        }
+
+        this.timingProvider = timingProvider;
+        List<Endpoint> endpointList = new ArrayList<Endpoint>(endpointURLs.size());
+        for (String url : endpointURLs) {
+            endpointList.add(new Endpoint(url, new EndpointHealth(timingProvider), new CircuitBreaker(timingProvider)));
+        }
+        endpoints = Collections.unmodifiableList(endpointList);
+
+        long[] nodes = new long[endpointList.size() * VIRTUAL_NODES_PER_ENDPOINT];
+        int index = 0;
+        for (int endpointIndex = 0; endpointIndex < endpointList.size(); endpointIndex++) {
+            // mixing the URL's hash first keeps the virtual nodes of similar URLs apart
+            int urlHash = mix(endpointList.get(endpointIndex).getURL().hashCode());
+            for (int node = 0; node < VIRTUAL_NODES_PER_ENDPOINT; node++) {
+                int position = mix(urlHash + node);
+                // pack position and endpoint index to sort both at once
+                nodes[index++] = ((long) position << 32) | endpointIndex;
+            }
+        }
+        Arrays.sort(nodes);
+
+        ringPositions = new int[nodes.length];
+        ringEndpoints = new Endpoint[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            ringPositions[i] = (int) (nodes[i] >> 32);
+            ringEndpoints[i] = endpointList.get((int) nodes[i]);
+        }
+    }
+
+    /**
+     * Select the endpoint for the given routing key.
+     *
+     * <p>
+     *     The first healthy endpoint on the ring, which is not excluded, is returned.
+     *     If no endpoint is healthy, the endpoint owning the routing key is returned, unless it is excluded,
+     *     so that data is still sent instead of being held back forever.
+     * </p>
+     *
+     * @param routingKey The routing key.
+     * @param excludedEndpoints Endpoints that must not be selected, e.g. because they already failed.
+     * @return The selected endpoint or {@code null} if no endpoint is available.
+     */
+    public Endpoint select(int routingKey, Collection<Endpoint> excludedEndpoints) {
+        int start = findRingIndex(mix(routingKey));
+        Endpoint owner = ringEndpoints[start];
+
+        // each endpoint is checked at most once, even though it occupies multiple ring positions
+        List<Endpoint> checked = new ArrayList<Endpoint>(endpoints.size());
+        for (int i = 0; i < ringEndpoints.length && checked.size() < endpoints.size(); i++) {
+            Endpoint candidate = ringEndpoints[(start + i) % ringEndpoints.length];
+            if (checked.contains(candidate)) {
+                continue;
+            }
+            checked.add(candidate);
+
+            boolean isExcluded = excludedEndpoints != null && excludedEndpoints.contains(candidate);
+            if (!isExcluded && candidate.isHealthy()) {
+                return candidate;
+            }
+        }
+
+        if (excludedEndpoints != null && !excludedEndpoints.isEmpty()) {
+            return null;
+        }
+        return owner;
+    }
+
+    /**
+     * Get all endpoints in the order they have been given.
+     */
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    TimingProvider getTimingProvider() {
+        return timingProvider;
+    }
+
+    private int findRingIndex(int position) {
+        int index = Arrays.binarySearch(ringPositions, position);
+        if (index < 0) {
+            // insertion point, which is the first position greater than the given one
+            index = -index - 1;
+        }
+        return index == ringPositions.length ? 0 : index;
+    }
+
+    /**
+     * Spread the bits of the given value, so that similar values end up at distant ring positions.
+     *
+     * <p>
+     *     This is the finalization step of the MurmurHash3 algorithm.
+     * </p>
+     */
+    static int mix(int value) {
+        int hash = value;
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    /**
+     * A single endpoint including its health tracking and circuit breaker.
+     */
+    public static final class Endpoint {
+
+        private final String url;
+        private final EndpointHealth health;
+        private final CircuitBreaker circuitBreaker;
+
+        Endpoint(String url, EndpointHealth health, CircuitBreaker circuitBreaker) {
+            this.url = url;
+            this.health = health;
+            this.circuitBreaker = circuitBreaker;
+        }
+
+        /**
+         * Get the endpoint's URL.
+         */
+        public String getURL() {
+            return url;
+        }
+
+        /**
+         * Get the endpoint's health tracking.
+         */
+        public EndpointHealth getHealth() {
+            return health;
+        }
+
+        /**
+         * Get the circuit breaker guarding requests to this endpoint.
+         */
+        public CircuitBreaker getCircuitBreaker() {
+            return circuitBreaker;
+        }
+
+        /**
+         * Test if the endpoint is healthy and its circuit breaker is not open.
+         */
+        public boolean isHealthy() {
+            return health.isHealthy() && !circuitBreaker.isRejectingRequests();
+        }
+    }
+}
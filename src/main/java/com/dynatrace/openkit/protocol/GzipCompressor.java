@@ -0,0 +1,195 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.dynatrace.openkit.protocol;
+
+import com.dynatrace.openkit.core.configuration.CompressionConfiguration;
+
+import java.io.ByteArrayOutputStream;
+import java.util.LinkedList;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses beacon data into the gzip format.
+ *
+ * <p>
+ *     In contrast to {@link java.util.zip.GZIPOutputStream}, which allocates a new native {@link Deflater}
+ *     for every stream and relies on finalization to release it, this class keeps a small pool of
+ *     {@link Deflater} instances that are reset and reused for subsequent compressions.
+ * </p>
+ *
+ * <p>
+ *     This class is thread safe.
+ * </p>
+ */
+public class GzipCompressor {
+
+    /** Maximum number of idle deflaters kept in the pool */
+    static final int MAX_POOLED_DEFLATERS = 4;
+
+    /** gzip member header (magic number, deflate method, no flags, no modification time, no extra flags, unknown OS) */
+    private static final byte[] GZIP_HEADER = {
+            (byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0
+    };
+    /** Size of the gzip member trailer (CRC-32 and size of the uncompressed input) */
+    private static final int GZIP_TRAILER_SIZE = 8;
+    /** Size of the buffer used for retrieving deflated data */
+    private static final int BUFFER_SIZE = 4096;
+
+    private final int compressionLevel;
+    private final int compressionStrategy;
+    private final int compressionThreshold;
+
+    /** pool of idle deflaters, also used for synchronization */
+    private final LinkedList<PooledDeflater> pool = new LinkedList<PooledDeflater>();
+    /** flag indicating whether {@link #close()} was called, guarded by {@link #pool} */
+    private boolean isClosed = false;
+
+    /**
+     * Create a gzip compressor.
+     *
+     * @param configuration Configuration providing compression level, strategy and threshold.
+     */
+    public GzipCompressor(CompressionConfiguration configuration) {
+        compressionLevel = configuration.getCompressionLevel();
+        compressionStrategy = configuration.getCompressionStrategy();
+        compressionThreshold = configuration.getCompressionThreshold();
+    }
+
+    /**
+     * Test if the given data shall be compressed.
+     *
+     * @param data The data to test.
+     * @return {@code true} if the data's size reaches the configured compression threshold, {@code false} otherwise.
+     */
+    public boolean shouldCompress(byte[] data) {
+        return data != null && data.length > 0 && data.length >= compressionThreshold;
+    }
+
+    /**
+     * Compress the given data into a single gzip member.
+     *
+     * @param data The data to compress.
+     * @return gzip compressed data.
+     */
+    public byte[] compress(byte[] data) {
+        PooledDeflater pooledDeflater = acquire();
+        try {
+            return pooledDeflater.compress(data);
+        } finally {
+            release(pooledDeflater);
+        }
+    }
+
+    /**
+     * Releases all pooled native deflater resources.
+     *
+     * <p>
+     *     The compressor can still be used afterwards, but allocates a new deflater for every compression
+     *     and releases it immediately, since deflaters are no longer pooled.
+     * </p>
+     */
+    public void close() {
+        synchronized (pool) {
+            isClosed = true;
+            for (PooledDeflater pooledDeflater : pool) {
+                pooledDeflater.deflater.end();
+            }
+            pool.clear();
+        }
+    }
+
+    /**
+     * Returns the number of idle deflaters in the pool. Intended to be used by unit tests only.
+     */
+    int getNumPooledDeflaters() {
+        synchronized (pool) {
+            return pool.size();
+        }
+    }
+
+    private PooledDeflater acquire() {
+        synchronized (pool) {
+            if (!pool.isEmpty()) {
+                return pool.removeFirst();
+            }
+        }
+
+        Deflater deflater = new Deflater(compressionLevel, true); // raw deflate, gzip header/trailer written manually
+        deflater.setStrategy(compressionStrategy);
+        return new PooledDeflater(deflater);
+    }
+
+    private void release(PooledDeflater pooledDeflater) {
+        pooledDeflater.reset();
+        synchronized (pool) {
+            if (!isClosed && pool.size() < MAX_POOLED_DEFLATERS) {
+                pool.addFirst(pooledDeflater);
+                return;
+            }
+        }
+
+        // pool is full or closed, free native resources immediately instead of waiting for finalization
+        pooledDeflater.deflater.end();
+    }
+
+    /**
+     * A deflater together with the reusable helper objects needed for producing a gzip member.
+     */
+    private static final class PooledDeflater {
+
+        private final Deflater deflater;
+        private final CRC32 crc = new CRC32();
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+
+        private PooledDeflater(Deflater deflater) {
+            this.deflater = deflater;
+        }
+
+        private byte[] compress(byte[] data) {
+            ByteArrayOutputStream outputStream =
+                    new ByteArrayOutputStream(GZIP_HEADER.length + (data.length / 2) + GZIP_TRAILER_SIZE);
+            outputStream.write(GZIP_HEADER, 0, GZIP_HEADER.length);
+
+            deflater.setInput(data);
+            deflater.finish();
+            while (!deflater.finished()) {
+                int numBytes = deflater.deflate(buffer);
+                outputStream.write(buffer, 0, numBytes);
+            }
+
+            crc.update(data);
+            writeIntLittleEndian(outputStream, (int) crc.getValue());
+            writeIntLittleEndian(outputStream, data.length);
+
+            return outputStream.toByteArray();
+        }
+
+        private void reset() {
+            deflater.reset();
+            crc.reset();
+        }
+
+        private static void writeIntLittleEndian(ByteArrayOutputStream outputStream, int value) {
+            outputStream.write(value & 0xff);
+            outputStream.write((value >> 8) & 0xff);
+            outputStream.write((value >> 16) & 0xff);
+            outputStream.write((value >> 24) & 0xff);
+        }
+    }
+}
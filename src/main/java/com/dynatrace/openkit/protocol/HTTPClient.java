@@ -19,19 +19,22 @@ package com.dynatrace.openkit.protocol;
 import com.dynatrace.openkit.api.LogLevel;
 import com.dynatrace.openkit.api.Logger;
 import com.dynatrace.openkit.api.SSLTrustManager;
+import com.dynatrace.openkit.core.configuration.CompressionConfiguration;
 import com.dynatrace.openkit.core.configuration.HTTPClientConfiguration;
 import com.dynatrace.openkit.core.util.PercentEncoder;
 import com.dynatrace.openkit.protocol.ssl.SSLStrictTrustManager;
+import com.dynatrace.openkit.providers.DefaultTimingProvider;
 import com.dynatrace.openkit.providers.HttpURLConnectionWrapper;
 
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.Reader;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
@@ -40,11 +43,11 @@ import java.security.GeneralSecurityException;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.GZIPOutputStream;
 
 /**
  * HTTP client helper which abstracts the 2 basic request types:
@@ -88,26 +91,85 @@ public class HTTPClient {
     private static final char[] QUERY_RESERVED_CHARACTERS = {'_'};
 
     // connection constants
-    private static final int MAX_SEND_RETRIES = 3;
-    private static final int RETRY_SLEEP_TIME = 200;        // retry sleep time in ms
+    private static final int MAX_SEND_RETRIES = 2;
+    private static final int INITIAL_RETRY_SLEEP_TIME = 200;    // upper bound of first retry sleep time in ms
+    private static final int MAX_RETRY_SLEEP_TIME = 1000;       // upper bound of any retry sleep time in ms
     private static final int CONNECT_TIMEOUT = 5000;
     private static final int READ_TIMEOUT = 30000;
+    private static final int READ_BUFFER_SIZE = 1024;
+    private static final int MAX_ENDPOINTS_PER_REQUEST = 2;     // endpoints tried before giving up on a request
+
+    // compressor used when none is explicitly given
+    private static final GzipCompressor DEFAULT_COMPRESSOR = new GzipCompressor(CompressionConfiguration.DEFAULT);
 
     // URLs for requests
     private final String monitorURL;
     private final String newSessionURL;
 
     private final int serverID;
+    private final String applicationID;
+    private final int routingKey;
 
     private final SSLTrustManager sslTrustManager;
 
+    private final GzipCompressor compressor;
+
+    private final RetryPolicy retryPolicy;
+    private final CircuitBreaker circuitBreaker;
+    private final EndpointSelector endpointSelector;
+
     private final Logger logger;
 
     // *** constructors ***
 
     public HTTPClient(Logger logger, HTTPClientConfiguration configuration) {
+        this(logger, configuration, DEFAULT_COMPRESSOR);
+    }
+
+    public HTTPClient(Logger logger, HTTPClientConfiguration configuration, GzipCompressor compressor) {
+        this(logger, configuration, compressor, new CircuitBreaker(new DefaultTimingProvider()));
+    }
+
+    public HTTPClient(Logger logger, HTTPClientConfiguration configuration, GzipCompressor compressor, CircuitBreaker circuitBreaker) {
+        this(logger, configuration, compressor, circuitBreaker,
+                new RetryPolicy(MAX_SEND_RETRIES, INITIAL_RETRY_SLEEP_TIME, MAX_RETRY_SLEEP_TIME));
+    }
+
+    /**
+     * Create an HTTP client distributing requests across the endpoints of the given selector.
+     *
+     * <p>
+     *     The endpoint is chosen based on the configuration's {@link HTTPClientConfiguration#getRoutingKey() routing key}.
+     *     The configuration's base URL is not used.
+     * </p>
+     */
+    public HTTPClient(Logger logger, HTTPClientConfiguration configuration, GzipCompressor compressor, EndpointSelector endpointSelector) {
+        this(logger, configuration, compressor, null, endpointSelector,
+                new RetryPolicy(MAX_SEND_RETRIES, INITIAL_RETRY_SLEEP_TIME, MAX_RETRY_SLEEP_TIME));
+    }
+
+    HTTPClient(Logger logger,
+               HTTPClientConfiguration configuration,
+               GzipCompressor compressor,
+               CircuitBreaker circuitBreaker,
+               RetryPolicy retryPolicy) {
+        this(logger, configuration, compressor, circuitBreaker, null, retryPolicy);
+    }
+
+    HTTPClient(Logger logger,
+               HTTPClientConfiguration configuration,
+               GzipCompressor compressor,
+               CircuitBreaker circuitBreaker,
+               EndpointSelector endpointSelector,
+               RetryPolicy retryPolicy) {
         this.logger = logger;
+        this.compressor = compressor;
+        this.circuitBreaker = circuitBreaker;
+        this.endpointSelector = endpointSelector;
+        this.retryPolicy = retryPolicy;
         serverID = configuration.getServerID();
+        applicationID = configuration.getApplicationID();
+        routingKey = configuration.getRoutingKey();
         monitorURL = buildMonitorURL(configuration.getBaseURL(), configuration.getApplicationID(), serverID);
         newSessionURL = buildNewSessionURL(configuration.getBaseURL(), configuration.getApplicationID(), serverID);
         sslTrustManager = configuration.getSSLTrustManager();
@@ -117,19 +179,11 @@ public class HTTPClient {
 
     // sends a status check request and returns a status response
     public StatusResponse sendStatusRequest(AdditionalQueryParameters additionalParameters) {
-        String url = appendAdditionalQueryParameters(monitorURL, additionalParameters);
-        StatusResponse response = sendRequest(RequestType.STATUS, url, null, null, "GET");
-        return response == null
-                ? StatusResponse.createErrorResponse(logger, Integer.MAX_VALUE)
-                : response;
+        return sendRoutedRequest(RequestType.STATUS, additionalParameters, null, null, false, "GET");
     }
 
     public StatusResponse sendNewSessionRequest(AdditionalQueryParameters additionalParameters) {
-        String url = appendAdditionalQueryParameters(newSessionURL, additionalParameters);
-        StatusResponse response = sendRequest(RequestType.NEW_SESSION, url, null, null, "GET");
-        return response == null
-                ? StatusResponse.createErrorResponse(logger, Integer.MAX_VALUE)
-                : response;
+        return sendRoutedRequest(RequestType.NEW_SESSION, additionalParameters, null, null, false, "GET");
     }
 
     // sends a beacon send request and returns a status response
@@ -137,24 +191,29 @@ public class HTTPClient {
             String clientIPAddress,
             byte[] data,
             AdditionalQueryParameters additionalParameters) {
-        String url = appendAdditionalQueryParameters(monitorURL, additionalParameters);
-        StatusResponse response = sendRequest(RequestType.BEACON, url, clientIPAddress, data, "POST");
-        return response == null
-                ? StatusResponse.createErrorResponse(logger, Integer.MAX_VALUE)
-                : response;
+        return sendRoutedRequest(RequestType.BEACON, additionalParameters, clientIPAddress, data, false, "POST");
+    }
+
+    // sends a beacon send request with data that is already gzip compressed and returns a status response
+    public StatusResponse sendCompressedBeaconRequest(
+            String clientIPAddress,
+            byte[] compressedData,
+            AdditionalQueryParameters additionalParameters) {
+        return sendRoutedRequest(RequestType.BEACON, additionalParameters, clientIPAddress, compressedData, true, "POST");
     }
 
     // *** protected methods ***
 
     // generic request send with some verbose output and exception handling
-    // protected because it's overridden by the TestHTTPClient
-    StatusResponse sendRequest(RequestType requestType, String url, String clientIPAddress, byte[] data, String method) {
+    // package private because it's overridden by unit tests
+    StatusResponse sendRequest(RequestType requestType, String url, String clientIPAddress, byte[] data, boolean isCompressed,
+                               String method) {
         try {
             if (logger.isDebugEnabled()) {
                 logger.debug(getClass().getSimpleName() + " sendRequest() - HTTP " + requestType.getRequestName() + " Request: " + url);
             }
-            HttpURLConnectionWrapper httpURLConnectionWrapper = new HttpURLConnectionWrapperImpl(url, MAX_SEND_RETRIES);
-            return sendRequestInternal(requestType, httpURLConnectionWrapper, clientIPAddress, data, method);
+            HttpURLConnectionWrapper httpURLConnectionWrapper = new HttpURLConnectionWrapperImpl(url, retryPolicy.getMaxRetries() + 1);
+            return sendRequestInternal(requestType, httpURLConnectionWrapper, clientIPAddress, data, isCompressed, method);
         } catch (Exception e) {
             logger.error(getClass().getSimpleName() + " sendRequest() - ERROR: " + requestType + " Request failed!", e);
         }
@@ -163,11 +222,85 @@ public class HTTPClient {
 
     // *** private methods ***
 
+    // sends the request to the configured endpoint or, if multiple endpoints are available, to the selected one
+    private StatusResponse sendRoutedRequest(RequestType requestType, AdditionalQueryParameters additionalParameters,
+                                             String clientIPAddress, byte[] data, boolean isCompressed, String method) {
+        if (endpointSelector == null) {
+            String baseURL = requestType == RequestType.NEW_SESSION ? newSessionURL : monitorURL;
+            String url = appendAdditionalQueryParameters(baseURL, additionalParameters);
+            return sendGuardedRequest(circuitBreaker, requestType, url, clientIPAddress, data, isCompressed, method);
+        }
+
+        List<EndpointSelector.Endpoint> failedEndpoints = new ArrayList<EndpointSelector.Endpoint>(MAX_ENDPOINTS_PER_REQUEST);
+        StatusResponse response = null;
+        while (failedEndpoints.size() < MAX_ENDPOINTS_PER_REQUEST) {
+            EndpointSelector.Endpoint endpoint = endpointSelector.select(routingKey, failedEndpoints);
+            if (endpoint == null) {
+                break;
+            }
+
+            String baseURL = requestType == RequestType.NEW_SESSION
+                    ? buildNewSessionURL(endpoint.getURL(), applicationID, serverID)
+                    : buildMonitorURL(endpoint.getURL(), applicationID, serverID);
+            String url = appendAdditionalQueryParameters(baseURL, additionalParameters);
+
+            long startTimestamp = endpointSelector.getTimingProvider().provideTimestampInMilliseconds();
+            response = sendGuardedRequest(endpoint.getCircuitBreaker(), requestType, url, clientIPAddress, data,
+                    isCompressed, method);
+            long latency = endpointSelector.getTimingProvider().provideTimestampInMilliseconds() - startTimestamp;
+            endpoint.getHealth().recordResponse(response, latency);
+
+            if (!isFailoverRequired(response)) {
+                return response;
+            }
+
+            if (logger.isDebugEnabled()) {
+                logger.debug(getClass().getSimpleName() + " sendRoutedRequest() - HTTP " + requestType.getRequestName()
+                        + " Request to " + endpoint.getURL() + " failed with response code " + response.getResponseCode());
+            }
+            failedEndpoints.add(endpoint);
+        }
+
+        return response != null ? response : StatusResponse.createErrorResponse(logger, Integer.MAX_VALUE);
+    }
+
+    // server side errors, unreachable servers and throttling are worth a try with another endpoint
+    private static boolean isFailoverRequired(StatusResponse response) {
+        return response.getResponseCode() >= 500
+                || response.getResponseCode() == StatusResponse.HTTP_TOO_MANY_REQUESTS;
+    }
+
+    // sends the request, unless the circuit breaker is open, and records the outcome in the circuit breaker
+    private StatusResponse sendGuardedRequest(CircuitBreaker circuitBreaker, RequestType requestType, String url,
+                                              String clientIPAddress, byte[] data, boolean isCompressed, String method) {
+        if (!circuitBreaker.isRequestAllowed()) {
+            if (logger.isDebugEnabled()) {
+                logger.debug(getClass().getSimpleName() + " sendGuardedRequest() - Circuit breaker is open, skipping HTTP "
+                        + requestType.getRequestName() + " Request");
+            }
+            return StatusResponse.createErrorResponse(logger, Integer.MAX_VALUE);
+        }
+
+        StatusResponse response = sendRequest(requestType, url, clientIPAddress, data, isCompressed, method);
+        if (response == null) {
+            response = StatusResponse.createErrorResponse(logger, Integer.MAX_VALUE);
+        }
+
+        // only server side errors and unreachable servers count as failure, any other response proves the server is alive
+        if (response.getResponseCode() >= 500) {
+            circuitBreaker.recordFailure();
+        } else {
+            circuitBreaker.recordSuccess();
+        }
+
+        return response;
+    }
+
     // only for unit testing the HTTPClient
     StatusResponse sendRequest(RequestType requestType, HttpURLConnectionWrapper httpURLConnectionWrapper, String clientIPAddress, byte[] data,
-                               String method) {
+                               boolean isCompressed, String method) {
         try {
-            return sendRequestInternal(requestType, httpURLConnectionWrapper, clientIPAddress, data, method);
+            return sendRequestInternal(requestType, httpURLConnectionWrapper, clientIPAddress, data, isCompressed, method);
         } catch (Exception e) {
             logger.error(getClass().getSimpleName() + "sendRequest() - ERROR: " + requestType + " Request failed!", e);
         }
@@ -176,7 +309,9 @@ public class HTTPClient {
 
     // generic internal request send
     private StatusResponse sendRequestInternal(RequestType requestType, HttpURLConnectionWrapper httpURLConnectionWrapper, String clientIPAddress,
-                                               byte[] data, String method) throws IOException, GeneralSecurityException {
+                                               byte[] data, boolean isCompressed, String method)
+            throws IOException, GeneralSecurityException {
+        int retry = 0;
         while (true) {
             try {
                 HttpURLConnection connection = httpURLConnectionWrapper.getHttpURLConnection();
@@ -194,7 +329,7 @@ public class HTTPClient {
                 connection.setRequestMethod(method);
 
                 // write the post body data
-                writePostBodyData(connection, data);
+                writePostBodyData(connection, data, isCompressed);
 
                 return handleResponse(requestType, connection);
 
@@ -207,7 +342,7 @@ public class HTTPClient {
                 logger.log(LogLevel.INFO, "Exception occurred during connection establishment. Retry in progress.", exception);
 
                 try {
-                    Thread.sleep(RETRY_SLEEP_TIME);
+                    Thread.sleep(retryPolicy.getDelayInMilliseconds(retry++));
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
                     return unknownErrorResponse(requestType);
@@ -216,26 +351,29 @@ public class HTTPClient {
         }
     }
 
-    private void writePostBodyData(HttpURLConnection connection, byte[] data) throws IOException {
+    private void writePostBodyData(HttpURLConnection connection, byte[] data, boolean isCompressed) throws IOException {
 
-        // gzip beacon data, if available
         if (data == null || data.length == 0) {
             return;
         }
 
-        byte[] gzippedData = gzip(data);
-
-        String decodedData = decodeData(data);
+        if (logger.isDebugEnabled() && !isCompressed) {
+            logger.debug(getClass().getSimpleName() + " sendRequestInternal() - Beacon Payload: " + decodeData(data));
+        }
 
-        if (logger.isDebugEnabled()) {
-            logger.debug(getClass().getSimpleName() + " sendRequestInternal() - Beacon Payload: " + decodedData);
+        // gzip beacon data, unless it's already compressed or too small for compression to pay off
+        byte[] postBodyData = data;
+        if (isCompressed) {
+            connection.setRequestProperty("Content-Encoding", "gzip");
+        } else if (compressor.shouldCompress(data)) {
+            postBodyData = compressor.compress(data);
+            connection.setRequestProperty("Content-Encoding", "gzip");
         }
 
-        connection.setRequestProperty("Content-Encoding", "gzip");
-        connection.setRequestProperty("Content-Length", String.valueOf(gzippedData.length));
+        connection.setRequestProperty("Content-Length", String.valueOf(postBodyData.length));
         connection.setDoOutput(true);
         OutputStream outputStream = connection.getOutputStream();
-        outputStream.write(gzippedData);
+        outputStream.write(postBodyData);
         outputStream.close();
     }
 
@@ -252,35 +390,53 @@ public class HTTPClient {
         // get response code
         int responseCode = connection.getResponseCode();
 
-        String response = responseCode >= 400
-                ? readResponse(connection.getErrorStream()) // error stream is closed in readResponse
-                : readResponse(connection.getInputStream()); // input stream is closed in readResponse
-
         if (logger.isDebugEnabled()) {
-            logger.debug(getClass().getSimpleName() + " handleResponse() - HTTP Response: " + response);
             logger.debug(getClass().getSimpleName() + " handleResponse() - HTTP Response Code: " + responseCode);
         }
 
         // create typed response based on request type and response content
-        if (requestType == RequestType.BEACON
-                || requestType == RequestType.STATUS
-                || requestType == RequestType.NEW_SESSION) {
-            return responseCode >= 400
-                    ? StatusResponse.createErrorResponse(logger, responseCode, connection.getHeaderFields())
-                    : parseStatusResponse(response, responseCode, connection.getHeaderFields());
-        } else {
+        if (requestType != RequestType.BEACON
+                && requestType != RequestType.STATUS
+                && requestType != RequestType.NEW_SESSION) {
             logger.warning(getClass().getSimpleName() + " handleResponse() - Unknown request type " + requestType + " - ignoring response");
+            drainResponse(responseCode >= 400 ? connection.getErrorStream() : connection.getInputStream());
             return unknownErrorResponse(requestType);
         }
+
+        if (responseCode >= 400) {
+            // the body of an error response is not evaluated, but needs to be consumed to allow connection reuse
+            InputStream errorStream = connection.getErrorStream();
+            try {
+                if (logger.isDebugEnabled()) {
+                    logger.debug(getClass().getSimpleName() + " handleResponse() - HTTP Response: " + readResponse(errorStream));
+                }
+            } finally {
+                drainResponse(errorStream);
+            }
+            return StatusResponse.createErrorResponse(logger, responseCode, connection.getHeaderFields());
+        }
+
+        return parseStatusResponse(connection.getInputStream(), responseCode, connection.getHeaderFields());
     }
 
-    private StatusResponse parseStatusResponse(String response, int responseCode, Map<String, List<String>> headers) {
+    private StatusResponse parseStatusResponse(InputStream inputStream, int responseCode, Map<String, List<String>> headers) {
         try {
-            ResponseAttributes parsedAttributes = ResponseParser.parseResponse(response);
-            return StatusResponse.createSuccessResponse(logger, parsedAttributes,responseCode, headers);
+            ResponseAttributes parsedAttributes;
+            if (logger.isDebugEnabled()) {
+                // the response needs to be fully read anyway for logging purposes
+                String response = readResponse(inputStream);
+                logger.debug(getClass().getSimpleName() + " handleResponse() - HTTP Response: " + response);
+                parsedAttributes = ResponseParser.parseResponse(response);
+            } else {
+                parsedAttributes = ResponseParser.parseResponse(new InputStreamReader(inputStream, Beacon.CHARSET));
+            }
+            return StatusResponse.createSuccessResponse(logger, parsedAttributes, responseCode, headers);
         } catch (Exception e) {
             logger.error(getClass().getSimpleName() + " parseStatusResponse() - Failed to parse StatusResponse", e);
             return StatusResponse.createErrorResponse(logger, Integer.MAX_VALUE);
+        } finally {
+            // consume anything the parser did not need, which allows reusing the connection
+            drainResponse(inputStream);
         }
     }
 
@@ -346,16 +502,6 @@ public class HTTPClient {
         urlBuilder.append(PercentEncoder.encode(value, "UTF-8", QUERY_RESERVED_CHARACTERS));
     }
 
-    // helper method for gzipping beacon data
-    private static byte[] gzip(byte[] data) throws IOException {
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        GZIPOutputStream gzipOutputStream = new GZIPOutputStream(byteArrayOutputStream);
-        gzipOutputStream.write(data);
-        gzipOutputStream.close();
-        byteArrayOutputStream.close();
-        return byteArrayOutputStream.toByteArray();
-    }
-
     // *** getter methods ***
 
     int getServerID() {
@@ -363,22 +509,53 @@ public class HTTPClient {
     }
 
     private static String readResponse(InputStream inputStream) throws IOException {
+        if (inputStream == null) {
+            return "";
+        }
+
         StringBuilder responseBuilder = new StringBuilder();
 
-        // reading HTTP response
-        try {
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = inputStream.read(buffer)) > 0) {
-                responseBuilder.append(new String(buffer, 0, length, Beacon.CHARSET));
-            }
-        } finally {
-            inputStream.close();
+        // reading HTTP response - closing the stream is up to the caller
+        // the reader decodes multi-byte characters correctly, even if they span multiple reads
+        Reader reader = new InputStreamReader(inputStream, Beacon.CHARSET);
+        char[] buffer = new char[READ_BUFFER_SIZE];
+        int length;
+        while ((length = reader.read(buffer)) > 0) {
+            responseBuilder.append(buffer, 0, length);
         }
 
         return responseBuilder.toString();
     }
 
+    /**
+     * Reads and discards any remaining data from the given input stream and closes it afterwards.
+     *
+     * <p>
+     *     {@link HttpURLConnection} can only return the underlying connection to the keep-alive cache,
+     *     if the response body has been fully consumed.
+     * </p>
+     */
+    private void drainResponse(InputStream inputStream) {
+        if (inputStream == null) {
+            return;
+        }
+
+        try {
+            try {
+                byte[] buffer = new byte[READ_BUFFER_SIZE];
+                while (inputStream.read(buffer) > 0) {
+                    // discard data
+                }
+            } finally {
+                inputStream.close();
+            }
+        } catch (IOException e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug(getClass().getSimpleName() + " drainResponse() - Failed to consume response: " + e.getMessage());
+            }
+        }
+    }
+
     private StatusResponse unknownErrorResponse(RequestType requestType) {
 
         if (requestType == null) {
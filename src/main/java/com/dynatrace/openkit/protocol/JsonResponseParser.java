@@ -23,6 +23,7 @@ import com.dynatrace.openkit.util.json.objects.JSONStringValue;
 import com.dynatrace.openkit.util.json.objects.JSONValue;
 import com.dynatrace.openkit.util.json.parser.ParserException;
 
+import java.io.Reader;
 import java.util.concurrent.TimeUnit;
 
 public class JsonResponseParser {
@@ -52,8 +53,26 @@ public class JsonResponseParser {
     }
 
     public static ResponseAttributes parse(String jsonResponse) throws ParserException {
-        JSONParser parser = new JSONParser(jsonResponse);
+        return parse(new JSONParser(jsonResponse));
+    }
+
+    /**
+     * Parse the JSON response read from the given {@link Reader}.
+     *
+     * <p>
+     *     The response is fed directly into the JSON lexer, without reading it into a string first.
+     * </p>
+     *
+     * @param jsonResponse Reader providing the JSON response.
+     * @return The parsed response attributes.
+     *
+     * @throws ParserException If the response could not be read or parsed.
+     */
+    public static ResponseAttributes parse(Reader jsonResponse) throws ParserException {
+        return parse(new JSONParser(jsonResponse));
+    }
 
+    private static ResponseAttributes parse(JSONParser parser) throws ParserException {
         JSONValue parsedValue = parser.parse();
 
         JSONObjectValue rootObject = (JSONObjectValue) parsedValue;
@@ -15,6 +15,8 @@
  */
 package com.dynatrace.openkit.protocol;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.StringTokenizer;
@@ -22,6 +24,11 @@ import java.util.concurrent.TimeUnit;
 
 public class KeyValueResponseParser {
 
+    /** separator between two key value pairs */
+    private static final char PAIR_SEPARATOR = '&';
+    /** separator between key and value */
+    private static final char KEY_VALUE_SEPARATOR = '=';
+
     // status response constants
     static final String RESPONSE_KEY_MAX_BEACON_SIZE_IN_KB = "bl";
     static final String RESPONSE_KEY_SEND_INTERVAL_IN_SEC = "si";
@@ -37,8 +44,26 @@ public class KeyValueResponseParser {
     }
 
     public static ResponseAttributes parse(String keyValuePairResponse) {
-        Map<String, String> keyValuePairs = parseKeyValuePairs(keyValuePairResponse);
+        return fromKeyValuePairs(parseKeyValuePairs(keyValuePairResponse));
+    }
+
+    /**
+     * Parse the key value pair response read from the given {@link Reader}.
+     *
+     * <p>
+     *     The response is tokenized while it is read, without reading it into a string first.
+     * </p>
+     *
+     * @param keyValuePairResponse Reader providing the key value pair response.
+     * @return The parsed response attributes.
+     *
+     * @throws IOException If reading the response failed.
+     */
+    public static ResponseAttributes parse(Reader keyValuePairResponse) throws IOException {
+        return fromKeyValuePairs(parseKeyValuePairs(keyValuePairResponse));
+    }
 
+    private static ResponseAttributes fromKeyValuePairs(Map<String, String> keyValuePairs) {
         ResponseAttributesImpl.Builder builder = ResponseAttributesImpl.withKeyValueDefaults();
 
         applyBeaconSizeInKb(builder, keyValuePairs);
@@ -71,6 +96,36 @@ public class KeyValueResponseParser {
         return resultMap;
     }
 
+    private static Map<String, String> parseKeyValuePairs(Reader reader) throws IOException {
+        Map<String, String> resultMap = new HashMap<String, String>();
+
+        StringBuilder tokenBuilder = new StringBuilder();
+        int keyValueSeparatorIndex = -1;
+        int c;
+        do {
+            c = reader.read();
+            if (c == PAIR_SEPARATOR || c == -1) {
+                // same semantics as the StringTokenizer based parsing: empty tokens are skipped
+                if (tokenBuilder.length() > 0) {
+                    if (keyValueSeparatorIndex == -1) {
+                        throw new IllegalArgumentException("Invalid response; even number of tokens expected.");
+                    }
+                    resultMap.put(tokenBuilder.substring(0, keyValueSeparatorIndex),
+                            tokenBuilder.substring(keyValueSeparatorIndex + 1));
+                    tokenBuilder.setLength(0);
+                    keyValueSeparatorIndex = -1;
+                }
+            } else {
+                if (c == KEY_VALUE_SEPARATOR && keyValueSeparatorIndex == -1) {
+                    keyValueSeparatorIndex = tokenBuilder.length();
+                }
+                tokenBuilder.append((char) c);
+            }
+        } while (c != -1);
+
+        return resultMap;
+    }
+
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     /// extract attributes
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
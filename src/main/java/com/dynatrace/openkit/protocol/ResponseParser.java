@@ -17,6 +17,10 @@ package com.dynatrace.openkit.protocol;
 
 import com.dynatrace.openkit.util.json.parser.ParserException;
 
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+
 /**
  * Evaluates a response string and transforms it into corresponding {@link ResponseAttributes}
  */
@@ -36,6 +40,44 @@ public class ResponseParser {
         return JsonResponseParser.parse(responseString);
     }
 
+    /**
+     * Parse the response read from the given {@link Reader}.
+     *
+     * <p>
+     *     Only the first few characters are inspected to determine the response type. The rest of the
+     *     response is streamed directly into the corresponding parser.
+     * </p>
+     *
+     * @param responseReader Reader providing the response.
+     * @return The parsed response attributes.
+     *
+     * @throws ParserException If the response could not be read or parsed.
+     */
+    public static ResponseAttributes parseResponse(Reader responseReader) throws ParserException {
+        int prefixLength = KEY_VALUE_RESPONSE_TYPE_MOBILE_WITH_SEPARATOR.length();
+        PushbackReader reader = new PushbackReader(responseReader, prefixLength);
+        try {
+            char[] prefix = new char[prefixLength];
+            int numCharsRead = 0;
+            while (numCharsRead < prefixLength) {
+                int numChars = reader.read(prefix, numCharsRead, prefixLength - numCharsRead);
+                if (numChars < 0) {
+                    break;
+                }
+                numCharsRead += numChars;
+            }
+            reader.unread(prefix, 0, numCharsRead);
+
+            if (isKeyValuePairResponse(new String(prefix, 0, numCharsRead))) {
+                return KeyValueResponseParser.parse(reader);
+            }
+        } catch (IOException e) {
+            throw new ParserException("Failed to read response", e);
+        }
+
+        return JsonResponseParser.parse(reader);
+    }
+
     private static boolean isKeyValuePairResponse(String responseString) {
         return responseString.equals(KEY_VALUE_RESPONSE_TYPE_MOBILE)
                 || responseString.startsWith(KEY_VALUE_RESPONSE_TYPE_MOBILE_WITH_SEPARATOR);
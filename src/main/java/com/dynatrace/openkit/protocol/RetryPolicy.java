@@ -0,0 +1,113 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.protocol;
+
+import com.dynatrace.openkit.providers.DefaultRandomNumberGenerator;
+import com.dynatrace.openkit.providers.RandomNumberGenerator;
+
+/**
+ * Retry policy using exponential backoff with full jitter.
+ *
+ * <p>
+ *     The delay before the n-th retry (starting with {@code 0}) is chosen uniformly at random from the range
+ *     {@code [0, min(maxDelay, initialDelay * 2^n)]}. Randomizing the whole range spreads retries of many
+ *     clients over time, instead of letting them all hit a recovering server at the same moment.
+ * </p>
+ *
+ * <p>
+ *     Instances of this class are immutable and thread safe.
+ * </p>
+ */
+public class RetryPolicy {
+
+    private final int maxRetries;
+    private final long initialDelayInMilliseconds;
+    private final long maxDelayInMilliseconds;
+    private final RandomNumberGenerator randomNumberGenerator;
+
+    /**
+     * Create a retry policy using a {@link DefaultRandomNumberGenerator} for jitter.
+     *
+     * @param maxRetries The maximum number of retries (total number of tries = maxRetries + 1).
+     * @param initialDelayInMilliseconds The upper bound of the delay before the first retry.
+     * @param maxDelayInMilliseconds The upper bound of the delay before any retry.
+     */
+    public RetryPolicy(int maxRetries, long initialDelayInMilliseconds, long maxDelayInMilliseconds) {
+        this(maxRetries, initialDelayInMilliseconds, maxDelayInMilliseconds, new DefaultRandomNumberGenerator());
+    }
+
+    /**
+     * Create a retry policy.
+     *
+     * @param maxRetries The maximum number of retries (total number of tries = maxRetries + 1).
+     * @param initialDelayInMilliseconds The upper bound of the delay before the first retry.
+     * @param maxDelayInMilliseconds The upper bound of the delay before any retry.
+     * @param randomNumberGenerator Random number generator used for jitter.
+     */
+    public RetryPolicy(int maxRetries,
+                       long initialDelayInMilliseconds,
+                       long maxDelayInMilliseconds,
+                       RandomNumberGenerator randomNumberGenerator) {
+        this.maxRetries = Math.max(0, maxRetries);
+        this.initialDelayInMilliseconds = Math.max(0L, initialDelayInMilliseconds);
+        this.maxDelayInMilliseconds = Math.max(this.initialDelayInMilliseconds, maxDelayInMilliseconds);
+        this.randomNumberGenerator = randomNumberGenerator;
+    }
+
+    /**
+     * Get the maximum number of retries.
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Test if another retry is allowed after the given number of retries have been performed.
+     *
+     * @param retry The number of retries performed so far.
+     * @return {@code true} if another retry is allowed, {@code false} otherwise.
+     */
+    public boolean isRetryAllowed(int retry) {
+        return retry < maxRetries;
+    }
+
+    /**
+     * Get the upper bound of the delay before the given retry, without jitter applied.
+     *
+     * @param retry The retry (starting with {@code 0} for the first retry).
+     * @return {@code min(maxDelay, initialDelay * 2^retry)}
+     */
+    public long getMaxDelayInMilliseconds(int retry) {
+        long delay = initialDelayInMilliseconds;
+        for (int i = 0; i < retry && delay < maxDelayInMilliseconds; i++) {
+            delay *= 2;
+        }
+        return Math.min(delay, maxDelayInMilliseconds);
+    }
+
+    /**
+     * Get the jittered delay before the given retry.
+     *
+     * @param retry The retry (starting with {@code 0} for the first retry).
+     * @return A random delay in the range {@code [0, getMaxDelayInMilliseconds(retry)]}.
+     */
+    public long getDelayInMilliseconds(int retry) {
+        long maxDelay = getMaxDelayInMilliseconds(retry);
+        double fraction = (double) randomNumberGenerator.nextPositiveLong() / Long.MAX_VALUE;
+        return Math.round(maxDelay * fraction);
+    }
+}
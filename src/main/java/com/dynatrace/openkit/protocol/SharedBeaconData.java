@@ -0,0 +1,59 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.protocol;
+
+/**
+ * Basic beacon data, which is the same for all beacons of an OpenKit instance.
+ *
+ * <p>
+ *     The data is serialized once per OpenKit instance via
+ *     {@link Beacon#createSharedBeaconData(com.dynatrace.openkit.api.Logger,
+ *     com.dynatrace.openkit.core.configuration.OpenKitConfiguration,
+ *     com.dynatrace.openkit.core.configuration.PrivacyConfiguration)},
+ *     instead of percent encoding the same application and device strings for every new session.
+ * </p>
+ *
+ * <p>
+ *     Instances of this class are immutable and can therefore be shared between threads.
+ * </p>
+ */
+public final class SharedBeaconData {
+
+    /** serialized version and application information */
+    private final String applicationData;
+    /** serialized platform information and privacy levels */
+    private final String platformData;
+
+    SharedBeaconData(String applicationData, String platformData) {
+        this.applicationData = applicationData;
+        this.platformData = platformData;
+    }
+
+    /**
+     * Get the serialized version and application information, which starts the basic beacon data.
+     */
+    String getApplicationData() {
+        return applicationData;
+    }
+
+    /**
+     * Get the serialized platform information and privacy levels, which follow the session related data.
+     */
+    String getPlatformData() {
+        return platformData;
+    }
+}
@@ -17,23 +17,87 @@
 package com.dynatrace.openkit.providers;
 
 import com.dynatrace.openkit.api.Logger;
+import com.dynatrace.openkit.core.configuration.CompressionConfiguration;
 import com.dynatrace.openkit.core.configuration.HTTPClientConfiguration;
+import com.dynatrace.openkit.protocol.CircuitBreaker;
+import com.dynatrace.openkit.protocol.EndpointSelector;
+import com.dynatrace.openkit.protocol.GzipCompressor;
 import com.dynatrace.openkit.protocol.HTTPClient;
 
+import java.io.Closeable;
+import java.util.List;
+
 /**
  * Implementation of an HTTPClientProvider which creates a HTTP client for executing status check and beacon send requests.
+ *
+ * <p>
+ *     The provider must be closed when no more requests are sent, to release the native resources
+ *     of the shared {@link GzipCompressor}.
+ * </p>
  */
-public class DefaultHTTPClientProvider implements HTTPClientProvider {
+public class DefaultHTTPClientProvider implements HTTPClientProvider, Closeable {
 
     private final Logger logger;
+    private final GzipCompressor compressor;
+    private final CircuitBreaker circuitBreaker;
+    private final EndpointSelector endpointSelector;
 
-    public DefaultHTTPClientProvider(Logger logger) {
+    /**
+     * Create the provider.
+     *
+     * <p>
+     *     All created clients share one {@link GzipCompressor}, so that deflaters are pooled across requests.
+     *     If more than one endpoint URL is given, all created clients share one {@link EndpointSelector},
+     *     which distributes the requests across the endpoints and tracks their health.
+     *     Otherwise the clients send to the base URL of their configuration and share one {@link CircuitBreaker},
+     *     so that an unavailable server is detected across requests.
+     * </p>
+     *
+     * @param logger Logger for logging messages.
+     * @param compressionConfiguration Configuration used for compressing beacon data.
+     * @param timingProvider Timing provider used by the circuit breaker and for endpoint health tracking.
+     * @param endpointURLs All endpoint URLs or {@code null}.
+     */
+    public DefaultHTTPClientProvider(Logger logger,
+                                     CompressionConfiguration compressionConfiguration,
+                                     TimingProvider timingProvider,
+                                     List<String> endpointURLs) {
         this.logger = logger;
+        this.compressor = new GzipCompressor(compressionConfiguration);
+        this.circuitBreaker = new CircuitBreaker(timingProvider);
+        this.endpointSelector = endpointURLs != null && endpointURLs.size() > 1
+                ? new EndpointSelector(endpointURLs, timingProvider)
+                : null;
     }
 
     @Override
     public HTTPClient createClient(HTTPClientConfiguration configuration) {
-        return new HTTPClient(logger, configuration);
+        if (endpointSelector != null) {
+            return new HTTPClient(logger, configuration, compressor, endpointSelector);
+        }
+        return new HTTPClient(logger, configuration, compressor, circuitBreaker);
+    }
+
+    /**
+     * Releases the deflaters pooled by the {@link GzipCompressor} shared by all created clients.
+     */
+    @Override
+    public void close() {
+        compressor.close();
+    }
+
+    /**
+     * Get the circuit breaker shared by all created clients.
+     */
+    CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Get the endpoint selector shared by all created clients or {@code null} if there is only one endpoint.
+     */
+    EndpointSelector getEndpointSelector() {
+        return endpointSelector;
     }
 
 }
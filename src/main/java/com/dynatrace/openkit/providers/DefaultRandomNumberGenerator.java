@@ -20,13 +20,23 @@ import java.util.Random;
 
 /**
  * Default implementation for providing a random number.
+ *
+ * <p>
+ *     Each thread uses its own {@link Random}, so that threads using the same generator concurrently
+ *     (e.g. when creating sessions) do not contend on a shared seed.
+ * </p>
  */
 public class DefaultRandomNumberGenerator implements RandomNumberGenerator {
 
-    private final Random random = new Random();
+    private final ThreadLocal<Random> random = new ThreadLocal<Random>() {
+        @Override
+        protected Random initialValue() {
+            return new Random();
+        }
+    };
 
     @Override
     public long nextPositiveLong() {
-        return random.nextLong() & 0x7fffffffffffffffL;
+        return random.get().nextLong() & 0x7fffffffffffffffL;
     }
 }
@@ -17,13 +17,21 @@
 package com.dynatrace.openkit.providers;
 
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Provides continuous session IDs, starting at a random offset.
+ *
+ * <p>
+ *     This class is thread safe and does not lock, so that concurrent session creation does not contend.
+ * </p>
+ */
 public class DefaultSessionIDProvider implements SessionIDProvider {
 
-    private int initialIntegerOffset;
+    private final AtomicInteger lastSessionID;
 
     DefaultSessionIDProvider(int initialOffset) {
-        this.initialIntegerOffset = initialOffset;
+        this.lastSessionID = new AtomicInteger(initialOffset);
     }
 
     public DefaultSessionIDProvider() {
@@ -31,12 +39,14 @@ public class DefaultSessionIDProvider implements SessionIDProvider {
     }
 
     @Override
-    public synchronized int getNextSessionID() {
-        if (initialIntegerOffset == Integer.MAX_VALUE) {
-            initialIntegerOffset = 0;
+    public int getNextSessionID() {
+        while (true) {
+            int current = lastSessionID.get();
+            int next = current == Integer.MAX_VALUE ? 1 : current + 1;
+            if (lastSessionID.compareAndSet(current, next)) {
+                return next;
+            }
         }
-        initialIntegerOffset = initialIntegerOffset + 1;
-        return initialIntegerOffset;
     }
 
 
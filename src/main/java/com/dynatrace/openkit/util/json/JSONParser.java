@@ -29,6 +29,7 @@ import com.dynatrace.openkit.util.json.objects.JSONValue;
 import com.dynatrace.openkit.util.json.parser.JSONParserState;
 import com.dynatrace.openkit.util.json.parser.ParserException;
 
+import java.io.Reader;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -65,6 +66,19 @@ public class JSONParser {
         this(new JSONLexer(input));
     }
 
+    /**
+     * Constructor taking a {@link Reader} from where to read the JSON input.
+     *
+     * <p>
+     *     The input is consumed lazily while parsing, without buffering the whole input upfront.
+     * </p>
+     *
+     * @param input A {@link Reader} instance from where to read the JSON input.
+     */
+    public JSONParser(Reader input) {
+        this(new JSONLexer(input));
+    }
+
     /**
      * Internal constructor taking the lexical analyzer.
      *
@@ -27,8 +27,12 @@ import com.dynatrace.openkit.protocol.ssl.SSLStrictTrustManager;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
 
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
@@ -36,6 +40,7 @@ import static org.hamcrest.Matchers.isEmptyOrNullString;
 import static org.hamcrest.Matchers.isEmptyString;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
@@ -592,6 +597,528 @@ public class AbstractOpenKitBuilderTest {
         assertThat(obtained, is(notNullValue()));
     }
 
+    @Test
+    public void getCompressionLevelReturnsADefaultValue() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        int obtained = target.getCompressionLevel();
+
+        // then
+        assertThat(obtained, is(equalTo(ConfigurationDefaults.DEFAULT_COMPRESSION_LEVEL)));
+    }
+
+    @Test
+    public void getCompressionLevelGivesChangedValue() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        target.withCompressionLevel(Deflater.BEST_SPEED);
+        int obtained = target.getCompressionLevel();
+
+        // then
+        assertThat(obtained, is(equalTo(Deflater.BEST_SPEED)));
+    }
+
+    @Test
+    public void compressionLevelCannotBeChangedToInvalidValue() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        target.withCompressionLevel(Deflater.BEST_COMPRESSION + 1);
+        target.withCompressionLevel(-2);
+        int obtained = target.getCompressionLevel();
+
+        // then
+        assertThat(obtained, is(equalTo(ConfigurationDefaults.DEFAULT_COMPRESSION_LEVEL)));
+    }
+
+    @Test
+    public void getCompressionStrategyReturnsADefaultValue() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        int obtained = target.getCompressionStrategy();
+
+        // then
+        assertThat(obtained, is(equalTo(ConfigurationDefaults.DEFAULT_COMPRESSION_STRATEGY)));
+    }
+
+    @Test
+    public void getCompressionStrategyGivesChangedValue() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        target.withCompressionStrategy(Deflater.HUFFMAN_ONLY);
+        int obtained = target.getCompressionStrategy();
+
+        // then
+        assertThat(obtained, is(equalTo(Deflater.HUFFMAN_ONLY)));
+    }
+
+    @Test
+    public void compressionStrategyCannotBeChangedToInvalidValue() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        target.withCompressionStrategy(42);
+        int obtained = target.getCompressionStrategy();
+
+        // then
+        assertThat(obtained, is(equalTo(ConfigurationDefaults.DEFAULT_COMPRESSION_STRATEGY)));
+    }
+
+    @Test
+    public void getCompressionThresholdReturnsADefaultValue() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        int obtained = target.getCompressionThreshold();
+
+        // then
+        assertThat(obtained, is(equalTo(ConfigurationDefaults.DEFAULT_COMPRESSION_THRESHOLD_IN_BYTES)));
+    }
+
+    @Test
+    public void getCompressionThresholdGivesChangedValue() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        target.withCompressionThreshold(512);
+        int obtained = target.getCompressionThreshold();
+
+        // then
+        assertThat(obtained, is(equalTo(512)));
+    }
+
+    @Test
+    public void compressionThresholdCannotBeChangedToNegativeValue() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        target.withCompressionThreshold(-1);
+        int obtained = target.getCompressionThreshold();
+
+        // then
+        assertThat(obtained, is(equalTo(ConfigurationDefaults.DEFAULT_COMPRESSION_THRESHOLD_IN_BYTES)));
+    }
+
+    @Test
+    public void getBeaconSendingWorkersReturnsADefaultValue() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        int obtained = target.getBeaconSendingWorkers();
+
+        // then
+        assertThat(obtained, is(equalTo(ConfigurationDefaults.DEFAULT_BEACON_SENDING_WORKERS)));
+    }
+
+    @Test
+    public void getBeaconSendingWorkersGivesChangedValue() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        target.withBeaconSendingWorkers(4);
+        int obtained = target.getBeaconSendingWorkers();
+
+        // then
+        assertThat(obtained, is(equalTo(4)));
+    }
+
+    @Test
+    public void beaconSendingWorkersCannotBeChangedToLessThanOne() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        target.withBeaconSendingWorkers(0);
+        target.withBeaconSendingWorkers(-1);
+        int obtained = target.getBeaconSendingWorkers();
+
+        // then
+        assertThat(obtained, is(equalTo(ConfigurationDefaults.DEFAULT_BEACON_SENDING_WORKERS)));
+    }
+
+    @Test
+    public void getBeaconOutboxDirectoryReturnsNullByDefault() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        String obtained = target.getBeaconOutboxDirectory();
+
+        // then
+        assertThat(obtained, is(nullValue()));
+    }
+
+    @Test
+    public void getBeaconOutboxDirectoryGivesChangedValue() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        target.withBeaconOutboxDirectory("outbox");
+        String obtained = target.getBeaconOutboxDirectory();
+
+        // then
+        assertThat(obtained, is(equalTo("outbox")));
+    }
+
+    @Test
+    public void beaconOutboxDirectoryCannotBeChangedToNullOrEmpty() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+        target.withBeaconOutboxDirectory("outbox");
+
+        // when
+        target.withBeaconOutboxDirectory(null);
+        target.withBeaconOutboxDirectory("");
+        String obtained = target.getBeaconOutboxDirectory();
+
+        // then
+        assertThat(obtained, is(equalTo("outbox")));
+    }
+
+    @Test
+    public void getBeaconOutboxMaxSizeReturnsADefaultValue() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        long obtained = target.getBeaconOutboxMaxSize();
+
+        // then
+        assertThat(obtained, is(equalTo(ConfigurationDefaults.DEFAULT_BEACON_OUTBOX_MAX_SIZE_IN_BYTES)));
+    }
+
+    @Test
+    public void getBeaconOutboxMaxSizeGivesChangedValue() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        target.withBeaconOutboxMaxSize(1234L);
+        long obtained = target.getBeaconOutboxMaxSize();
+
+        // then
+        assertThat(obtained, is(equalTo(1234L)));
+    }
+
+    @Test
+    public void beaconOutboxMaxSizeCannotBeChangedToLessThanOne() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        target.withBeaconOutboxMaxSize(0);
+        target.withBeaconOutboxMaxSize(-1);
+        long obtained = target.getBeaconOutboxMaxSize();
+
+        // then
+        assertThat(obtained, is(equalTo(ConfigurationDefaults.DEFAULT_BEACON_OUTBOX_MAX_SIZE_IN_BYTES)));
+    }
+
+    @Test
+    public void getBeaconOutboxMaxRecordAgeReturnsADefaultValue() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        long obtained = target.getBeaconOutboxMaxRecordAge();
+
+        // then
+        assertThat(obtained, is(equalTo(ConfigurationDefaults.DEFAULT_BEACON_OUTBOX_MAX_RECORD_AGE_IN_MILLIS)));
+    }
+
+    @Test
+    public void getBeaconOutboxMaxRecordAgeGivesChangedValue() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        target.withBeaconOutboxMaxRecordAge(4321L);
+        long obtained = target.getBeaconOutboxMaxRecordAge();
+
+        // then
+        assertThat(obtained, is(equalTo(4321L)));
+    }
+
+    @Test
+    public void beaconOutboxMaxRecordAgeCannotBeChangedToLessThanOne() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        target.withBeaconOutboxMaxRecordAge(0);
+        target.withBeaconOutboxMaxRecordAge(-1);
+        long obtained = target.getBeaconOutboxMaxRecordAge();
+
+        // then
+        assertThat(obtained, is(equalTo(ConfigurationDefaults.DEFAULT_BEACON_OUTBOX_MAX_RECORD_AGE_IN_MILLIS)));
+    }
+
+    @Test
+    public void getServerConfigurationStoreDirectoryReturnsNullByDefault() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        String obtained = target.getServerConfigurationStoreDirectory();
+
+        // then
+        assertThat(obtained, is(nullValue()));
+    }
+
+    @Test
+    public void getServerConfigurationStoreDirectoryGivesChangedValue() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        target.withServerConfigurationStoreDirectory("config");
+        String obtained = target.getServerConfigurationStoreDirectory();
+
+        // then
+        assertThat(obtained, is(equalTo("config")));
+    }
+
+    @Test
+    public void serverConfigurationStoreDirectoryCannotBeChangedToNullOrEmpty() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+        target.withServerConfigurationStoreDirectory("config");
+
+        // when
+        target.withServerConfigurationStoreDirectory(null);
+        target.withServerConfigurationStoreDirectory("");
+        String obtained = target.getServerConfigurationStoreDirectory();
+
+        // then
+        assertThat(obtained, is(equalTo("config")));
+    }
+
+    @Test
+    public void getServerConfigurationStoreMaxAgeReturnsADefaultValue() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        long obtained = target.getServerConfigurationStoreMaxAge();
+
+        // then
+        assertThat(obtained, is(equalTo(ConfigurationDefaults.DEFAULT_SERVER_CONFIGURATION_STORE_MAX_AGE_IN_MILLIS)));
+    }
+
+    @Test
+    public void getServerConfigurationStoreMaxAgeGivesChangedValue() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        target.withServerConfigurationStoreMaxAge(4321L);
+        long obtained = target.getServerConfigurationStoreMaxAge();
+
+        // then
+        assertThat(obtained, is(equalTo(4321L)));
+    }
+
+    @Test
+    public void serverConfigurationStoreMaxAgeCannotBeChangedToLessThanOne() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        target.withServerConfigurationStoreMaxAge(0);
+        target.withServerConfigurationStoreMaxAge(-1);
+        long obtained = target.getServerConfigurationStoreMaxAge();
+
+        // then
+        assertThat(obtained, is(equalTo(ConfigurationDefaults.DEFAULT_SERVER_CONFIGURATION_STORE_MAX_AGE_IN_MILLIS)));
+    }
+
+    @Test
+    public void getAdditionalEndpointURLsReturnsAnEmptyListByDefault() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        List<String> obtained = target.getAdditionalEndpointURLs();
+
+        // then
+        assertThat(obtained, is(empty()));
+    }
+
+    @Test
+    public void getAdditionalEndpointURLsGivesAddedValuesInOrder() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        target.withAdditionalEndpointURL("https://b.example.com");
+        target.withAdditionalEndpointURL("https://a.example.com");
+        List<String> obtained = target.getAdditionalEndpointURLs();
+
+        // then
+        assertThat(obtained, contains("https://b.example.com", "https://a.example.com"));
+    }
+
+    @Test
+    public void additionalEndpointURLIsNotAddedIfNullEmptyDuplicateOrPrimaryURL() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+        target.withAdditionalEndpointURL("https://a.example.com");
+
+        // when
+        target.withAdditionalEndpointURL(null);
+        target.withAdditionalEndpointURL("");
+        target.withAdditionalEndpointURL("https://a.example.com");
+        target.withAdditionalEndpointURL(ENDPOINT_URL);
+        List<String> obtained = target.getAdditionalEndpointURLs();
+
+        // then
+        assertThat(obtained, contains("https://a.example.com"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void getAdditionalEndpointURLsReturnsAnUnmodifiableList() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when, then
+        target.getAdditionalEndpointURLs().add("https://a.example.com");
+    }
+
+    @Test
+    public void getAsyncCaptureBufferCapacityReturnsZeroByDefault() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        int obtained = target.getAsyncCaptureBufferCapacity();
+
+        // then
+        assertThat(obtained, is(equalTo(0)));
+    }
+
+    @Test
+    public void getAsyncCaptureBufferCapacityGivesChangedValue() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        target.withAsyncCapture(4096);
+        int obtained = target.getAsyncCaptureBufferCapacity();
+
+        // then
+        assertThat(obtained, is(equalTo(4096)));
+    }
+
+    @Test
+    public void asyncCaptureBufferCapacityCannotBeChangedToLessThanOne() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+        target.withAsyncCapture(4096);
+
+        // when
+        target.withAsyncCapture(0);
+        target.withAsyncCapture(-1);
+        int obtained = target.getAsyncCaptureBufferCapacity();
+
+        // then
+        assertThat(obtained, is(equalTo(4096)));
+    }
+
+    @Test
+    public void getAsyncCaptureOverflowPolicyReturnsADefaultValue() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        AsyncCaptureOverflowPolicy obtained = target.getAsyncCaptureOverflowPolicy();
+
+        // then
+        assertThat(obtained, is(equalTo(ConfigurationDefaults.DEFAULT_ASYNC_CAPTURE_OVERFLOW_POLICY)));
+    }
+
+    @Test
+    public void getAsyncCaptureOverflowPolicyGivesChangedValue() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        target.withAsyncCaptureOverflowPolicy(AsyncCaptureOverflowPolicy.DROP_OLDEST);
+        AsyncCaptureOverflowPolicy obtained = target.getAsyncCaptureOverflowPolicy();
+
+        // then
+        assertThat(obtained, is(equalTo(AsyncCaptureOverflowPolicy.DROP_OLDEST)));
+    }
+
+    @Test
+    public void asyncCaptureOverflowPolicyCannotBeChangedToNull() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+        target.withAsyncCaptureOverflowPolicy(AsyncCaptureOverflowPolicy.BLOCK);
+
+        // when
+        target.withAsyncCaptureOverflowPolicy(null);
+        AsyncCaptureOverflowPolicy obtained = target.getAsyncCaptureOverflowPolicy();
+
+        // then
+        assertThat(obtained, is(equalTo(AsyncCaptureOverflowPolicy.BLOCK)));
+    }
+
+    @Test
+    public void getMaxActionLifetimeReturnsZeroByDefault() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        long obtained = target.getMaxActionLifetime();
+
+        // then
+        assertThat(obtained, is(equalTo(0L)));
+    }
+
+    @Test
+    public void getMaxActionLifetimeGivesChangedValue() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+
+        // when
+        target.withMaxActionLifetime(TimeUnit.MINUTES.toMillis(30));
+        long obtained = target.getMaxActionLifetime();
+
+        // then
+        assertThat(obtained, is(equalTo(TimeUnit.MINUTES.toMillis(30))));
+    }
+
+    @Test
+    public void maxActionLifetimeCannotBeChangedToLessThanOne() {
+        // given
+        AbstractOpenKitBuilder target = new StubOpenKitBuilder(ENDPOINT_URL, DEVICE_ID);
+        target.withMaxActionLifetime(1234L);
+
+        // when
+        target.withMaxActionLifetime(0);
+        target.withMaxActionLifetime(-1);
+        long obtained = target.getMaxActionLifetime();
+
+        // then
+        assertThat(obtained, is(equalTo(1234L)));
+    }
+
     /**
      * Stub class for testing purposes only.
      */
@@ -0,0 +1,88 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.collector;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram with a bucket per unit (e.g. microsecond or millisecond) for recording latencies.
+ *
+ * <p>
+ *     Values greater than the maximum value are recorded in the last bucket.
+ *     Memory consumption is bounded by the number of buckets, independent of the number of recorded values.
+ * </p>
+ *
+ * <p>
+ *     This class is thread safe.
+ * </p>
+ */
+public class LatencyHistogram {
+
+    private final AtomicLongArray buckets;
+
+    /**
+     * Create a histogram.
+     *
+     * @param maxValue The maximum value that can be recorded exactly.
+     */
+    public LatencyHistogram(int maxValue) {
+        buckets = new AtomicLongArray(maxValue + 1);
+    }
+
+    /**
+     * Record a value. Negative values are recorded as {@code 0}.
+     */
+    public void record(long value) {
+        int index = (int) Math.max(0L, Math.min(value, buckets.length() - 1));
+        buckets.incrementAndGet(index);
+    }
+
+    /**
+     * Get the number of recorded values.
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Get the value at the given percentile.
+     *
+     * @param percentile The percentile in the range {@code (0, 100]}.
+     * @return The smallest recorded value, such that the given percentage of values are less than or equal to it,
+     *         or {@code -1} if no value was recorded.
+     */
+    public long getPercentile(double percentile) {
+        long count = getCount();
+        if (count == 0) {
+            return -1;
+        }
+
+        long threshold = (long) Math.ceil(count * (percentile / 100.0));
+        long sum = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            sum += buckets.get(i);
+            if (sum >= threshold) {
+                return i;
+            }
+        }
+        return buckets.length() - 1;
+    }
+}
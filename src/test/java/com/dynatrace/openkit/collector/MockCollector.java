@@ -0,0 +1,311 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.collector;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Embedded collector speaking the beacon protocol, intended for end-to-end tests and benchmarks.
+ *
+ * <p>
+ *     Status and new session requests are answered with a JSON response, containing a configurable
+ *     {@code mobileAgentConfig}. Beacons are decompressed and the contained events are counted.
+ *     For each event the upload lag, which is the time between the event's timestamp and the reception
+ *     of the beacon, is recorded in milliseconds.
+ * </p>
+ *
+ * <p>
+ *     Latency, "too many requests" (429) and server error (5xx) responses can be injected.
+ * </p>
+ */
+public class MockCollector {
+
+    /** default agent configuration, sending data every second */
+    public static final String DEFAULT_MOBILE_AGENT_CONFIG = "{\"maxBeaconSizeKb\":150,\"sendIntervalSec\":1}";
+
+    private static final String BEACON_PATH = "/mbeacon";
+    private static final int MAX_UPLOAD_LAG_IN_MILLIS = (int) TimeUnit.MINUTES.toMillis(10);
+    private static final int NUM_WORKER_THREADS = 4;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private final Random random = new Random(42);
+
+    private volatile String mobileAgentConfig = DEFAULT_MOBILE_AGENT_CONFIG;
+    private volatile long responseLatencyInMillis = 0;
+    private volatile double tooManyRequestsProbability = 0.0;
+    private volatile double serverErrorProbability = 0.0;
+    private volatile int retryAfterInSeconds = 1;
+
+    private final AtomicLong numStatusRequests = new AtomicLong();
+    private final AtomicLong numNewSessionRequests = new AtomicLong();
+    private final AtomicLong numBeaconRequests = new AtomicLong();
+    private final AtomicLong numEvents = new AtomicLong();
+    private final AtomicLong numTooManyRequestsResponses = new AtomicLong();
+    private final AtomicLong numServerErrorResponses = new AtomicLong();
+
+    private final LatencyHistogram uploadLagHistogram = new LatencyHistogram(MAX_UPLOAD_LAG_IN_MILLIS);
+
+    /**
+     * Create a collector listening on an ephemeral port of the loopback interface.
+     */
+    public MockCollector() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        executor = Executors.newFixedThreadPool(NUM_WORKER_THREADS);
+        server.setExecutor(executor);
+        server.createContext(BEACON_PATH, new CollectorHandler());
+    }
+
+    /**
+     * Start accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop accepting requests and release all resources.
+     */
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Get the endpoint URL to be passed to the OpenKit builder.
+     */
+    public String getEndpointURL() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + BEACON_PATH;
+    }
+
+    /**
+     * Set the JSON object sent as {@code mobileAgentConfig}, e.g. {@code {"sendIntervalSec":1}}.
+     */
+    public void setMobileAgentConfig(String mobileAgentConfig) {
+        this.mobileAgentConfig = mobileAgentConfig;
+    }
+
+    /**
+     * Set the time each response is delayed.
+     */
+    public void setResponseLatencyInMillis(long responseLatencyInMillis) {
+        this.responseLatencyInMillis = responseLatencyInMillis;
+    }
+
+    /**
+     * Set the probability in the range {@code [0, 1]} for answering a request with "429 Too Many Requests".
+     */
+    public void setTooManyRequestsProbability(double tooManyRequestsProbability) {
+        this.tooManyRequestsProbability = tooManyRequestsProbability;
+    }
+
+    /**
+     * Set the {@code Retry-After} value sent with "429 Too Many Requests" responses.
+     */
+    public void setRetryAfterInSeconds(int retryAfterInSeconds) {
+        this.retryAfterInSeconds = retryAfterInSeconds;
+    }
+
+    /**
+     * Set the probability in the range {@code [0, 1]} for answering a request with "503 Service Unavailable".
+     */
+    public void setServerErrorProbability(double serverErrorProbability) {
+        this.serverErrorProbability = serverErrorProbability;
+    }
+
+    public long getNumStatusRequests() {
+        return numStatusRequests.get();
+    }
+
+    public long getNumNewSessionRequests() {
+        return numNewSessionRequests.get();
+    }
+
+    public long getNumBeaconRequests() {
+        return numBeaconRequests.get();
+    }
+
+    /**
+     * Get the number of events received with successfully processed beacons.
+     */
+    public long getNumEvents() {
+        return numEvents.get();
+    }
+
+    public long getNumTooManyRequestsResponses() {
+        return numTooManyRequestsResponses.get();
+    }
+
+    public long getNumServerErrorResponses() {
+        return numServerErrorResponses.get();
+    }
+
+    /**
+     * Get the histogram of upload lags in milliseconds.
+     */
+    public LatencyHistogram getUploadLagHistogram() {
+        return uploadLagHistogram;
+    }
+
+    private final class CollectorHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                byte[] body = readBody(exchange);
+
+                if (responseLatencyInMillis > 0) {
+                    Thread.sleep(responseLatencyInMillis);
+                }
+
+                if (injectFailure(exchange)) {
+                    return;
+                }
+
+                boolean isBeacon = "POST".equals(exchange.getRequestMethod());
+                String query = exchange.getRequestURI().getRawQuery();
+                if (isBeacon) {
+                    numBeaconRequests.incrementAndGet();
+                    countEvents(new String(body, "UTF-8"), System.currentTimeMillis());
+                } else if (query != null && query.contains("&ns=1")) {
+                    numNewSessionRequests.incrementAndGet();
+                } else {
+                    numStatusRequests.incrementAndGet();
+                }
+
+                sendResponse(exchange, 200, createStatusResponse());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        }
+
+        private boolean injectFailure(HttpExchange exchange) throws IOException {
+            double value;
+            synchronized (random) {
+                value = random.nextDouble();
+            }
+
+            if (value < tooManyRequestsProbability) {
+                numTooManyRequestsResponses.incrementAndGet();
+                exchange.getResponseHeaders().add("Retry-After", Integer.toString(retryAfterInSeconds));
+                sendResponse(exchange, 429, "");
+                return true;
+            }
+            if (value < tooManyRequestsProbability + serverErrorProbability) {
+                numServerErrorResponses.incrementAndGet();
+                sendResponse(exchange, 503, "");
+                return true;
+            }
+            return false;
+        }
+
+        private String createStatusResponse() {
+            return "{\"mobileAgentConfig\":" + mobileAgentConfig
+                    + ",\"appConfig\":{\"capture\":1,\"reportCrashes\":1,\"reportErrors\":1}"
+                    + ",\"dynamicConfig\":{\"multiplicity\":1,\"serverId\":1,\"status\":\"ok\"}"
+                    + ",\"timestamp\":" + System.currentTimeMillis() + "}";
+        }
+    }
+
+    /**
+     * Counts the events in the beacon data and records the upload lag of each event.
+     *
+     * <p>
+     *     Beacon data consists of {@code key=value} pairs separated by {@code &}. Each event starts with the event type
+     *     ({@code et}). The event's time ({@code t0}) is relative to the session start time ({@code tv}).
+     * </p>
+     */
+    private void countEvents(String beaconData, long receiveTimestamp) {
+        long sessionStartTime = -1;
+        boolean hasPendingEvent = false;
+        long numEventsInBeacon = 0;
+
+        for (String pair : beaconData.split("&")) {
+            int separatorIndex = pair.indexOf('=');
+            if (separatorIndex < 0) {
+                continue;
+            }
+            String key = pair.substring(0, separatorIndex);
+            String value = pair.substring(separatorIndex + 1);
+
+            if ("tv".equals(key)) {
+                sessionStartTime = parseLong(value);
+            } else if ("et".equals(key)) {
+                numEventsInBeacon++;
+                hasPendingEvent = true;
+            } else if ("t0".equals(key) && hasPendingEvent && sessionStartTime >= 0) {
+                uploadLagHistogram.record(receiveTimestamp - (sessionStartTime + parseLong(value)));
+                hasPendingEvent = false;
+            }
+        }
+
+        numEvents.addAndGet(numEventsInBeacon);
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        InputStream inputStream = exchange.getRequestBody();
+        if ("gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+            inputStream = new GZIPInputStream(inputStream);
+        }
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int numBytes;
+        while ((numBytes = inputStream.read(buffer)) > 0) {
+            outputStream.write(buffer, 0, numBytes);
+        }
+        inputStream.close();
+
+        return outputStream.toByteArray();
+    }
+
+    private static void sendResponse(HttpExchange exchange, int responseCode, String body) throws IOException {
+        byte[] data = body.getBytes("UTF-8");
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(responseCode, data.length == 0 ? -1 : data.length);
+        if (data.length > 0) {
+            OutputStream outputStream = exchange.getResponseBody();
+            outputStream.write(data);
+            outputStream.close();
+        }
+    }
+}
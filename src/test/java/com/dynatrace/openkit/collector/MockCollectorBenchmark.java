@@ -0,0 +1,167 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.collector;
+
+import com.dynatrace.openkit.DynatraceOpenKitBuilder;
+import com.dynatrace.openkit.api.Action;
+import com.dynatrace.openkit.api.OpenKit;
+import com.dynatrace.openkit.api.RootAction;
+import com.dynatrace.openkit.api.Session;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end benchmark running OpenKit against a {@link MockCollector}.
+ *
+ * <p>
+ *     A number of threads concurrently create sessions, actions and events. The benchmark reports
+ *     the event throughput, the latency of the API calls and the upload lag as seen by the collector.
+ * </p>
+ *
+ * <p>
+ *     Usage: {@code MockCollectorBenchmark [threads] [sessionsPerThread] [actionsPerSession] [collectorLatencyMillis]
+ *     [tooManyRequestsProbability] [serverErrorProbability]}
+ * </p>
+ */
+public class MockCollectorBenchmark {
+
+    private static final int MAX_API_LATENCY_IN_MICROS = (int) TimeUnit.SECONDS.toMicros(1);
+
+    public static void main(String[] args) throws Exception {
+        int numThreads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int numSessionsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int numActionsPerSession = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        MockCollector collector = new MockCollector();
+        collector.setResponseLatencyInMillis(args.length > 3 ? Long.parseLong(args[3]) : 0L);
+        collector.setTooManyRequestsProbability(args.length > 4 ? Double.parseDouble(args[4]) : 0.0);
+        collector.setServerErrorProbability(args.length > 5 ? Double.parseDouble(args[5]) : 0.0);
+        collector.start();
+
+        try {
+            run(collector, numThreads, numSessionsPerThread, numActionsPerSession);
+        } finally {
+            collector.stop();
+        }
+    }
+
+    private static void run(MockCollector collector, int numThreads, final int numSessionsPerThread,
+                            final int numActionsPerSession) throws InterruptedException {
+
+        final OpenKit openKit = new DynatraceOpenKitBuilder(collector.getEndpointURL(), "benchmark", 1L).build();
+        openKit.waitForInitCompletion(TimeUnit.SECONDS.toMillis(10));
+
+        final LatencyHistogram apiLatencyHistogram = new LatencyHistogram(MAX_API_LATENCY_IN_MICROS);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>(numThreads);
+        for (int i = 0; i < numThreads; i++) {
+            final int threadIndex = i;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    generateLoad(openKit, apiLatencyHistogram, threadIndex, numSessionsPerThread, numActionsPerSession);
+                }
+            }, "benchmark-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+
+        long startTime = System.nanoTime();
+        startLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long captureDuration = System.nanoTime() - startTime;
+
+        openKit.shutdown();
+        long uploadDuration = System.nanoTime() - startTime;
+
+        System.out.println("threads=" + numThreads
+                + ", sessions/thread=" + numSessionsPerThread
+                + ", actions/session=" + numActionsPerSession);
+        System.out.println(String.format("capture:  %,d API calls in %d ms, %,.0f calls/s, p50=%d us, p99=%d us",
+                apiLatencyHistogram.getCount(),
+                TimeUnit.NANOSECONDS.toMillis(captureDuration),
+                apiLatencyHistogram.getCount() / (captureDuration / 1e9),
+                apiLatencyHistogram.getPercentile(50),
+                apiLatencyHistogram.getPercentile(99)));
+        System.out.println(String.format("upload:   %,d events in %d ms, %,.0f events/s, lag p50=%d ms, p99=%d ms",
+                collector.getNumEvents(),
+                TimeUnit.NANOSECONDS.toMillis(uploadDuration),
+                collector.getNumEvents() / (uploadDuration / 1e9),
+                collector.getUploadLagHistogram().getPercentile(50),
+                collector.getUploadLagHistogram().getPercentile(99)));
+        System.out.println(String.format("requests: status=%d, newSession=%d, beacon=%d, 429=%d, 5xx=%d",
+                collector.getNumStatusRequests(),
+                collector.getNumNewSessionRequests(),
+                collector.getNumBeaconRequests(),
+                collector.getNumTooManyRequestsResponses(),
+                collector.getNumServerErrorResponses()));
+    }
+
+    private static void generateLoad(OpenKit openKit, LatencyHistogram apiLatencyHistogram, int threadIndex,
+                                     int numSessions, int numActions) {
+        for (int s = 0; s < numSessions; s++) {
+            long start = System.nanoTime();
+            Session session = openKit.createSession("10.0." + threadIndex + "." + (s % 256));
+            record(apiLatencyHistogram, start);
+
+            start = System.nanoTime();
+            RootAction rootAction = session.enterAction("root");
+            record(apiLatencyHistogram, start);
+
+            for (int a = 0; a < numActions; a++) {
+                start = System.nanoTime();
+                Action action = rootAction.enterAction("action");
+                record(apiLatencyHistogram, start);
+
+                start = System.nanoTime();
+                action.reportEvent("event");
+                record(apiLatencyHistogram, start);
+
+                start = System.nanoTime();
+                action.reportValue("value", a);
+                record(apiLatencyHistogram, start);
+
+                start = System.nanoTime();
+                action.leaveAction();
+                record(apiLatencyHistogram, start);
+            }
+
+            start = System.nanoTime();
+            rootAction.leaveAction();
+            record(apiLatencyHistogram, start);
+
+            start = System.nanoTime();
+            session.end();
+            record(apiLatencyHistogram, start);
+        }
+    }
+
+    private static void record(LatencyHistogram histogram, long startNanos) {
+        histogram.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+    }
+}
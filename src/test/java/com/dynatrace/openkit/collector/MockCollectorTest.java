@@ -0,0 +1,201 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.collector;
+
+import com.dynatrace.openkit.DynatraceOpenKitBuilder;
+import com.dynatrace.openkit.api.OpenKit;
+import com.dynatrace.openkit.api.RootAction;
+import com.dynatrace.openkit.api.Session;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class MockCollectorTest {
+
+    private MockCollector collector;
+
+    @Before
+    public void setUp() throws IOException {
+        collector = new MockCollector();
+        collector.start();
+    }
+
+    @After
+    public void tearDown() {
+        collector.stop();
+    }
+
+    @Test
+    public void openKitSendsSessionDataToCollector() {
+        // given
+        OpenKit openKit = new DynatraceOpenKitBuilder(collector.getEndpointURL(), "appID", 1L).build();
+        assertThat(openKit.waitForInitCompletion(10000L), is(true));
+
+        // when
+        Session session = openKit.createSession("127.0.0.1");
+        RootAction action = session.enterAction("action");
+        action.reportEvent("event");
+        action.leaveAction();
+        session.end();
+        openKit.shutdown();
+
+        // then
+        assertThat(collector.getNumStatusRequests(), is(greaterThanOrEqualTo(1L)));
+        assertThat(collector.getNumBeaconRequests(), is(greaterThanOrEqualTo(1L)));
+        assertThat(collector.getNumEvents(), is(greaterThanOrEqualTo(3L)));
+        assertThat(collector.getUploadLagHistogram().getCount(), is(greaterThan(0L)));
+    }
+
+    @Test
+    public void openKitSendsSessionDataWithMultipleWorkers() {
+        // given
+        OpenKit openKit = new DynatraceOpenKitBuilder(collector.getEndpointURL(), "appID", 1L)
+                .withBeaconSendingWorkers(4)
+                .build();
+        assertThat(openKit.waitForInitCompletion(10000L), is(true));
+
+        // when
+        for (int i = 0; i < 10; i++) {
+            Session session = openKit.createSession("127.0.0.1");
+            session.enterAction("action").leaveAction();
+            session.end();
+        }
+        openKit.shutdown();
+
+        // then
+        assertThat(collector.getNumBeaconRequests(), is(greaterThanOrEqualTo(10L)));
+        assertThat(collector.getNumEvents(), is(greaterThanOrEqualTo(30L)));
+    }
+
+    @Test
+    public void statusResponseContainsConfiguredMobileAgentConfig() throws IOException {
+        // given
+        collector.setMobileAgentConfig("{\"sendIntervalSec\":17}");
+
+        // when
+        HttpURLConnection connection = open(collector.getEndpointURL() + "?type=m&srvid=1&app=appID");
+        String body = readBody(connection);
+
+        // then
+        assertThat(connection.getResponseCode(), is(200));
+        assertThat(body, containsString("\"mobileAgentConfig\":{\"sendIntervalSec\":17}"));
+        assertThat(collector.getNumStatusRequests(), is(1L));
+        assertThat(collector.getNumNewSessionRequests(), is(0L));
+    }
+
+    @Test
+    public void newSessionRequestIsCounted() throws IOException {
+        // when
+        HttpURLConnection connection = open(collector.getEndpointURL() + "?type=m&srvid=1&app=appID&ns=1");
+
+        // then
+        assertThat(connection.getResponseCode(), is(200));
+        assertThat(collector.getNumStatusRequests(), is(0L));
+        assertThat(collector.getNumNewSessionRequests(), is(1L));
+    }
+
+    @Test
+    public void tooManyRequestsResponseIsInjected() throws IOException {
+        // given
+        collector.setTooManyRequestsProbability(1.0);
+        collector.setRetryAfterInSeconds(7);
+
+        // when
+        HttpURLConnection connection = open(collector.getEndpointURL() + "?type=m");
+
+        // then
+        assertThat(connection.getResponseCode(), is(429));
+        assertThat(connection.getHeaderField("Retry-After"), is("7"));
+        assertThat(collector.getNumTooManyRequestsResponses(), is(1L));
+        assertThat(collector.getNumStatusRequests(), is(0L));
+    }
+
+    @Test
+    public void serverErrorResponseIsInjected() throws IOException {
+        // given
+        collector.setServerErrorProbability(1.0);
+
+        // when
+        HttpURLConnection connection = open(collector.getEndpointURL() + "?type=m");
+
+        // then
+        assertThat(connection.getResponseCode(), is(503));
+        assertThat(collector.getNumServerErrorResponses(), is(1L));
+        assertThat(collector.getNumStatusRequests(), is(0L));
+    }
+
+    @Test
+    public void latencyIsInjected() throws IOException {
+        // given
+        collector.setResponseLatencyInMillis(100L);
+
+        // when
+        long start = System.currentTimeMillis();
+        HttpURLConnection connection = open(collector.getEndpointURL() + "?type=m");
+        int responseCode = connection.getResponseCode();
+        long duration = System.currentTimeMillis() - start;
+
+        // then
+        assertThat(responseCode, is(200));
+        assertThat(duration, is(greaterThanOrEqualTo(100L)));
+    }
+
+    @Test
+    public void latencyHistogramPercentiles() {
+        // given
+        LatencyHistogram histogram = new LatencyHistogram(100);
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        histogram.record(1000);
+
+        // then
+        assertThat(histogram.getCount(), is(101L));
+        assertThat(histogram.getPercentile(50), is(51L));
+        assertThat(histogram.getPercentile(100), is(100L));
+        assertThat(new LatencyHistogram(10).getPercentile(99), is(-1L));
+    }
+
+    private static HttpURLConnection open(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(5000);
+        return connection;
+    }
+
+    private static String readBody(HttpURLConnection connection) throws IOException {
+        InputStream inputStream = connection.getInputStream();
+        StringBuilder builder = new StringBuilder();
+        int b;
+        while ((b = inputStream.read()) != -1) {
+            builder.append((char) b);
+        }
+        inputStream.close();
+        return builder.toString();
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.collector;
+
+import com.dynatrace.openkit.DynatraceOpenKitBuilder;
+import com.dynatrace.openkit.api.OpenKit;
+import com.dynatrace.openkit.api.Session;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark measuring how many sessions per second can be created and ended concurrently.
+ *
+ * <p>
+ *     This resembles applications creating one session per request. For each thread count
+ *     a new OpenKit instance is started against a {@link MockCollector}, and each thread repeatedly
+ *     creates and ends sessions for the given duration.
+ * </p>
+ *
+ * <p>
+ *     Usage: {@code SessionCreationBenchmark [durationSeconds] [threadCounts...]}
+ * </p>
+ */
+public class SessionCreationBenchmark {
+
+    private static final int[] DEFAULT_THREAD_COUNTS = {1, 2, 4, 8};
+    private static final long WARMUP_DURATION_IN_MILLIS = TimeUnit.SECONDS.toMillis(2);
+
+    public static void main(String[] args) throws Exception {
+        long durationInMillis = TimeUnit.SECONDS.toMillis(args.length > 0 ? Long.parseLong(args[0]) : 5L);
+        int[] threadCounts = DEFAULT_THREAD_COUNTS;
+        if (args.length > 1) {
+            threadCounts = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                threadCounts[i - 1] = Integer.parseInt(args[i]);
+            }
+        }
+
+        MockCollector collector = new MockCollector();
+        collector.start();
+        try {
+            System.out.println("threads; sessions; sessions/s");
+            for (int numThreads : threadCounts) {
+                OpenKit openKit = new DynatraceOpenKitBuilder(collector.getEndpointURL(), "benchmark", 1L).build();
+                openKit.waitForInitCompletion(TimeUnit.SECONDS.toMillis(10));
+
+                run(openKit, numThreads, WARMUP_DURATION_IN_MILLIS);
+                long numSessions = run(openKit, numThreads, durationInMillis);
+                System.out.println(String.format("%d; %,d; %,.0f",
+                        numThreads, numSessions, numSessions / (durationInMillis / 1000.0)));
+
+                openKit.shutdown(TimeUnit.SECONDS.toMillis(1));
+            }
+        } finally {
+            collector.stop();
+        }
+    }
+
+    private static long run(final OpenKit openKit, int numThreads, long durationInMillis) throws InterruptedException {
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final long[] sessionCounts = new long[numThreads];
+        final long endTime = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationInMillis);
+
+        List<Thread> threads = new ArrayList<Thread>(numThreads);
+        for (int i = 0; i < numThreads; i++) {
+            final int threadIndex = i;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    long count = 0;
+                    while (System.nanoTime() < endTime) {
+                        Session session = openKit.createSession("10.0.0." + threadIndex);
+                        session.end();
+                        count++;
+                    }
+                    sessionCounts[threadIndex] = count;
+                }
+            }, "benchmark-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+
+        startLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long total = 0;
+        for (long count : sessionCounts) {
+            total += count;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.collector;
+
+import com.dynatrace.openkit.DynatraceOpenKitBuilder;
+import com.dynatrace.openkit.api.OpenKit;
+import com.dynatrace.openkit.api.Session;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark measuring the retained heap of idle sessions, to be compared with the budget documented in
+ * {@code docs/internals.md}.
+ *
+ * <p>
+ *     The retained heap is measured as the difference of used heap memory after garbage collection,
+ *     which is only meaningful for a large number of sessions. Since garbage collection is only requested,
+ *     the result depends on the JVM and its settings and is therefore reported instead of being asserted.
+ * </p>
+ *
+ * <p>
+ *     Usage: {@code SessionFootprintBenchmark [numSessions]}
+ * </p>
+ */
+public class SessionFootprintBenchmark {
+
+    private static final int DEFAULT_NUM_SESSIONS = 20000;
+    private static final long MAX_RETAINED_BYTES_PER_IDLE_SESSION = 2048;
+
+    public static void main(String[] args) throws Exception {
+        int numSessions = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_NUM_SESSIONS;
+
+        MockCollector collector = new MockCollector();
+        collector.start();
+        try {
+            OpenKit openKit = new DynatraceOpenKitBuilder(collector.getEndpointURL(), "benchmark", 1L).build();
+            openKit.waitForInitCompletion(TimeUnit.SECONDS.toMillis(10));
+
+            List<Session> sessions = new ArrayList<Session>(numSessions);
+            openKit.createSession("127.0.0.1").end(); // warm up lazily created objects shared by all sessions
+            long usedMemoryBefore = getUsedMemoryAfterGarbageCollection();
+            for (int i = 0; i < numSessions; i++) {
+                sessions.add(openKit.createSession("127.0.0.1"));
+            }
+            long usedMemoryAfter = getUsedMemoryAfterGarbageCollection();
+
+            long retainedBytesPerSession = (usedMemoryAfter - usedMemoryBefore) / sessions.size();
+            System.out.println("sessions; retained bytes/session; budget");
+            System.out.println(String.format("%,d; %,d; %,d", sessions.size(), retainedBytesPerSession,
+                    MAX_RETAINED_BYTES_PER_IDLE_SESSION));
+
+            openKit.shutdown(TimeUnit.SECONDS.toMillis(1));
+        } finally {
+            collector.stop();
+        }
+    }
+
+    private static long getUsedMemoryAfterGarbageCollection() {
+        Runtime runtime = Runtime.getRuntime();
+        long usedMemory = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            usedMemory = Math.min(usedMemory, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return usedMemory;
+    }
+}
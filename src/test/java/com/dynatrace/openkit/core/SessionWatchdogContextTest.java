@@ -15,16 +15,21 @@
  */
 package com.dynatrace.openkit.core;
 
+import com.dynatrace.openkit.core.configuration.ReclamationConfiguration;
+import com.dynatrace.openkit.core.objects.ReclamationCounters;
 import com.dynatrace.openkit.core.objects.SessionImpl;
 import com.dynatrace.openkit.core.objects.SessionProxyImpl;
 import com.dynatrace.openkit.providers.TimingProvider;
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -499,6 +504,113 @@ public class SessionWatchdogContextTest {
         assertThat(target.isShutdownRequested(), is(true));
     }
 
+    @Test
+    public void addToSplitByTimeoutTwiceAddsSessionProxyOnlyOnce() {
+        // given
+        SessionWatchdogContext target = createContext();
+
+        // when
+        target.addToSplitByTimeout(mockSessionProxy);
+        target.addToSplitByTimeout(mockSessionProxy);
+
+        // then
+        assertThat(target.getSessionsToSplitByTimeout().size(), is(1));
+    }
+
+    @Test
+    public void executeDoesNotSplitSessionProxyBeforeNextSplitTime() {
+        // given
+        when(mockSessionProxy.splitSessionByTime()).thenReturn(100L);
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(50L, 99L);
+
+        SessionWatchdogContext target = createContext();
+        target.addToSplitByTimeout(mockSessionProxy);
+        target.execute();
+
+        // when
+        target.execute();
+
+        // then
+        verify(mockSessionProxy, times(1)).splitSessionByTime();
+        assertThat(target.getSessionsToSplitByTimeout().size(), is(1));
+    }
+
+    @Test
+    public void executeSplitsSessionProxyAgainWhenNextSplitTimeIsReached() {
+        // given
+        when(mockSessionProxy.splitSessionByTime()).thenReturn(100L, 200L);
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(50L, 50L, 100L);
+
+        SessionWatchdogContext target = createContext();
+        target.addToSplitByTimeout(mockSessionProxy);
+        target.execute();
+
+        // when
+        target.execute();
+
+        // then
+        verify(mockSessionProxy, times(2)).splitSessionByTime();
+        assertThat(target.getSessionsToSplitByTimeout().size(), is(1));
+    }
+
+    @Test
+    public void executeRetriesSessionProxyNotSplitAfterItsSplitTimeOnLaterTick() throws InterruptedException {
+        // given
+        when(mockSessionProxy.splitSessionByTime()).thenReturn(10L);
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(20L, 20L,
+                20L + SessionWatchdogContext.DEFAULT_SLEEP_TIME_IN_MILLIS - 1,
+                20L + SessionWatchdogContext.DEFAULT_SLEEP_TIME_IN_MILLIS);
+
+        SessionWatchdogContext target = createContext();
+        target.addToSplitByTimeout(mockSessionProxy);
+
+        // when
+        target.execute();
+        target.execute();
+        target.execute();
+
+        // then
+        verify(mockSessionProxy, times(2)).splitSessionByTime();
+    }
+
+    @Test
+    public void executeDoesNotVisitSessionsToCloseBeforeGracePeriodEnd() {
+        // given
+        SessionImpl mockSession1 = mock(SessionImpl.class);
+        SessionImpl mockSession2 = mock(SessionImpl.class);
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(0L, 0L, 5L);
+
+        SessionWatchdogContext target = createContext();
+        target.closeOrEnqueueForClosing(mockSession1, 10);
+        target.closeOrEnqueueForClosing(mockSession2, 20);
+
+        // when
+        target.execute();
+
+        // then
+        verify(mockSession1, times(0)).getSplitByEventsGracePeriodEndTimeInMillis();
+        verify(mockSession2, times(0)).getSplitByEventsGracePeriodEndTimeInMillis();
+        assertThat(target.getSessionsToClose().size(), is(2));
+    }
+
+    @Test
+    public void executeReadsCurrentTimeOnlyOncePerTick() {
+        // given
+        SessionWatchdogContext target = createContext();
+        for (int i = 0; i < 10; i++) {
+            SessionImpl session = mock(SessionImpl.class);
+            when(session.getSplitByEventsGracePeriodEndTimeInMillis()).thenReturn(100L);
+            target.closeOrEnqueueForClosing(session, 0);
+        }
+
+        // when
+        target.execute();
+
+        // then
+        verify(mockTimingProvider, times(10 + 1)).provideTimestampInMilliseconds();
+        assertThat(target.getSessionsToClose().size(), is(10));
+    }
+
     @Test
     public void requestShutdownSetsIsShutdownRequestedToTrue() {
         // given
@@ -512,7 +624,141 @@ public class SessionWatchdogContextTest {
         assertThat(target.isShutdownRequested(), is(true));
     }
 
+    @Test
+    public void addToReclamationDoesNothingIfReclamationIsDisabled() {
+        // given
+        SessionWatchdogContext target = createContext();
+
+        // when
+        target.addToReclamation(mockSessionProxy);
+
+        // then
+        assertThat(target.getSessionsToReclaim(), is(empty()));
+    }
+
+    @Test
+    public void addToReclamationAddsSessionProxy() {
+        // given
+        SessionWatchdogContext target = createContext(300);
+
+        // when
+        target.addToReclamation(mockSessionProxy);
+
+        // then
+        assertThat(target.getSessionsToReclaim(), contains(mockSessionProxy));
+    }
+
+    @Test
+    public void addToReclamationDoesNotAddFinishedSessionProxy() {
+        // given
+        when(mockSessionProxy.isFinished()).thenReturn(true);
+        SessionWatchdogContext target = createContext(300);
+
+        // when
+        target.addToReclamation(mockSessionProxy);
+
+        // then
+        assertThat(target.getSessionsToReclaim(), is(empty()));
+    }
+
+    @Test
+    public void removeFromReclamationRemovesSessionProxy() {
+        // given
+        SessionWatchdogContext target = createContext(300);
+        target.addToReclamation(mockSessionProxy);
+
+        // when
+        target.removeFromReclamation(mockSessionProxy);
+
+        // then
+        assertThat(target.getSessionsToReclaim(), is(empty()));
+    }
+
+    @Test
+    public void executeDoesNotReclaimSessionProxyBeforeMaxActionLifetime() {
+        // given
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(100L, 399L);
+        SessionWatchdogContext target = createContext(300);
+        target.addToReclamation(mockSessionProxy);
+
+        // when
+        target.execute();
+
+        // then
+        verify(mockSessionProxy, times(0)).reclaimLeakedObjects(anyLong(), any(ReclamationCounters.class));
+        assertThat(target.getSessionsToReclaim(), contains(mockSessionProxy));
+    }
+
+    @Test
+    public void executeReclaimsSessionProxyAfterMaxActionLifetime() {
+        // given
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(100L, 400L);
+        when(mockSessionProxy.reclaimLeakedObjects(anyLong(), any(ReclamationCounters.class))).thenReturn(700L);
+        SessionWatchdogContext target = createContext(300);
+        target.addToReclamation(mockSessionProxy);
+
+        // when
+        target.execute();
+
+        // then
+        verify(mockSessionProxy, times(1)).reclaimLeakedObjects(300L, target.getReclamationCounters());
+        assertThat(target.getSessionsToReclaim(), contains(mockSessionProxy));
+    }
+
+    @Test
+    public void executeRemovesSessionProxyIfNextReclamationTimeIsNegative() {
+        // given
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(100L, 400L);
+        when(mockSessionProxy.reclaimLeakedObjects(anyLong(), any(ReclamationCounters.class))).thenReturn(-1L);
+        SessionWatchdogContext target = createContext(300);
+        target.addToReclamation(mockSessionProxy);
+
+        // when
+        target.execute();
+
+        // then
+        assertThat(target.getSessionsToReclaim(), is(empty()));
+    }
+
+    @Test
+    public void executeSleepsDurationToNextReclamation() throws InterruptedException {
+        // given
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(100L, 400L);
+        when(mockSessionProxy.reclaimLeakedObjects(anyLong(), any(ReclamationCounters.class))).thenReturn(700L);
+        SessionWatchdogContext target = createContext(300);
+        target.addToReclamation(mockSessionProxy);
+
+        // when
+        target.execute();
+
+        // then
+        verify(mockTimingProvider, times(1)).sleep(300L);
+    }
+
+    @Test
+    public void executeRetriesReclamationOnLaterTickIfNextReclamationTimePassed() throws InterruptedException {
+        // given
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(100L, 400L);
+        when(mockSessionProxy.reclaimLeakedObjects(anyLong(), any(ReclamationCounters.class))).thenReturn(400L);
+        SessionWatchdogContext target = createContext(300);
+        target.addToReclamation(mockSessionProxy);
+
+        // when
+        target.execute();
+
+        // then
+        verify(mockTimingProvider, times(1)).sleep(SessionWatchdogContext.DEFAULT_SLEEP_TIME_IN_MILLIS);
+        assertThat(target.getSessionsToReclaim(), contains(mockSessionProxy));
+    }
+
     private SessionWatchdogContext createContext() {
-        return new SessionWatchdogContext(mockTimingProvider);
+        return new SessionWatchdogContext(mockTimingProvider, ReclamationConfiguration.DEFAULT);
+    }
+
+    private SessionWatchdogContext createContext(long maxActionLifetimeInMillis) {
+        ReclamationConfiguration reclamationConfiguration = mock(ReclamationConfiguration.class);
+        when(reclamationConfiguration.getMaxActionLifetimeInMillis()).thenReturn(maxActionLifetimeInMillis);
+
+        return new SessionWatchdogContext(mockTimingProvider, reclamationConfiguration);
     }
 }
@@ -16,6 +16,9 @@
  */
 package com.dynatrace.openkit.core;
 
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.endsWith;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.timeout;
@@ -25,6 +28,7 @@ import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 import com.dynatrace.openkit.api.Logger;
+import com.dynatrace.openkit.core.objects.ReclamationCounters;
 import com.dynatrace.openkit.core.objects.SessionImpl;
 import com.dynatrace.openkit.core.objects.SessionProxyImpl;
 import org.junit.Before;
@@ -155,6 +159,46 @@ public class SessionWatchdogTest {
         verify(mockContext, times(1)).removeFromSplitByTimeout(mockSessionProxy);
     }
 
+    @Test
+    public void addToReclamationDelegatesToSessionWatchdogContext() {
+        // given
+        SessionProxyImpl mockSessionProxy = mock(SessionProxyImpl.class);
+        SessionWatchdog target = createWatchdog();
+
+        // when
+        target.addToReclamation(mockSessionProxy);
+
+        // then
+        verify(mockContext, times(1)).addToReclamation(mockSessionProxy);
+    }
+
+    @Test
+    public void removeFromReclamationDelegatesToSessionWatchdogContext() {
+        // given
+        SessionProxyImpl mockSessionProxy = mock(SessionProxyImpl.class);
+        SessionWatchdog target = createWatchdog();
+
+        // when
+        target.removeFromReclamation(mockSessionProxy);
+
+        // then
+        verify(mockContext, times(1)).removeFromReclamation(mockSessionProxy);
+    }
+
+    @Test
+    public void getReclamationCountersDelegatesToSessionWatchdogContext() {
+        // given
+        ReclamationCounters counters = new ReclamationCounters();
+        when(mockContext.getReclamationCounters()).thenReturn(counters);
+        SessionWatchdog target = createWatchdog();
+
+        // when
+        ReclamationCounters obtained = target.getReclamationCounters();
+
+        // then
+        assertThat(obtained, is(sameInstance(counters)));
+    }
+
     private SessionWatchdog createWatchdog() {
         return new SessionWatchdog(mockLogger, mockContext);
     }
@@ -265,6 +265,147 @@ public class BeaconCacheEntryTest {
         assertThat(obtained, isEmptyString());
     }
 
+    @Test
+    public void getChunkGetsChunksFromPriorityDataBeforeEventData() {
+
+        // given
+        BeaconCacheRecord dataOne = new BeaconCacheRecord(0L, "One");
+        BeaconCacheRecord dataTwo = new BeaconCacheRecord(1L, "Two");
+        BeaconCacheRecord dataThree = new BeaconCacheRecord(2L, "Three");
+
+        BeaconCacheEntry target = new BeaconCacheEntry();
+        target.addActionData(dataOne);
+        target.addEventData(dataTwo);
+        target.addPriorityData(dataThree);
+
+        target.copyDataForChunking();
+
+        // when getting data to send
+        String obtained = target.getChunk("a", 2, '&');
+
+        // then it's the priority data
+        assertThat(obtained, is("a&" + dataThree.getData()));
+
+        // and when removing already sent data and getting next chunk
+        target.removeDataMarkedForSending();
+        obtained = target.getChunk("a", 2, '&');
+
+        // then it's the event data
+        assertThat(obtained, is("a&" + dataTwo.getData()));
+
+        // and when removing already sent data and getting next chunk
+        target.removeDataMarkedForSending();
+        obtained = target.getChunk("a", 2, '&');
+
+        // then it's the action data
+        assertThat(obtained, is("a&" + dataOne.getData()));
+
+        // and when removing already sent data and getting next chunk
+        target.removeDataMarkedForSending();
+        obtained = target.getChunk("a", 2, '&');
+
+        // then we get an empty string, since all chunks were sent & deleted
+        assertThat(obtained, isEmptyString());
+    }
+
+    @Test
+    public void resetDataMarkedForSendingMovesPreviouslyCopiedPriorityDataBack() {
+
+        // given
+        BeaconCacheRecord dataOne = new BeaconCacheRecord(0L, "One");
+        BeaconCacheRecord dataTwo = new BeaconCacheRecord(1L, "Two");
+
+        BeaconCacheEntry target = new BeaconCacheEntry();
+        target.addPriorityData(dataOne);
+        target.copyDataForChunking();
+        target.getChunk("a", 1024, '&');
+        target.addPriorityData(dataTwo);
+
+        // when
+        target.resetDataMarkedForSending();
+
+        // then
+        assertThat(target.getPriorityData(), is(equalTo(Arrays.asList(dataOne, dataTwo))));
+        assertThat(target.getPriorityDataBeingSent(), is(nullValue()));
+        assertThat(dataOne.isMarkedForSending(), is(false));
+        assertThat(target.getTotalNumberOfBytes(), is(dataOne.getDataSizeInBytes() + dataTwo.getDataSizeInBytes()));
+    }
+
+    @Test
+    public void copyPriorityDataForChunkingKeepsEventAndActionData() {
+
+        // given
+        BeaconCacheRecord priorityRecord = new BeaconCacheRecord(0L, "crash");
+        BeaconCacheRecord eventRecord = new BeaconCacheRecord(1L, "event");
+        BeaconCacheRecord actionRecord = new BeaconCacheRecord(2L, "action");
+
+        BeaconCacheEntry target = new BeaconCacheEntry();
+        target.addPriorityData(priorityRecord);
+        target.addEventData(eventRecord);
+        target.addActionData(actionRecord);
+
+        // when
+        long obtained = target.copyPriorityDataForChunking();
+
+        // then
+        assertThat(obtained, is(priorityRecord.getDataSizeInBytes()));
+        assertThat(target.getPriorityData(), is(empty()));
+        assertThat(target.getPriorityDataBeingSent(), is(equalTo(Collections.singletonList(priorityRecord))));
+        assertThat(target.getEventData(), is(equalTo(Collections.singletonList(eventRecord))));
+        assertThat(target.getActionData(), is(equalTo(Collections.singletonList(actionRecord))));
+        assertThat(target.getTotalNumberOfBytes(), is(eventRecord.getDataSizeInBytes() + actionRecord.getDataSizeInBytes()));
+        assertThat(target.getChunk("a", 1024, '&'), is(equalTo("a&crash")));
+    }
+
+    @Test
+    public void resetDataMarkedForSendingAfterCopyingPriorityDataKeepsEventAndActionData() {
+
+        // given
+        BeaconCacheRecord priorityRecord = new BeaconCacheRecord(0L, "crash");
+        BeaconCacheRecord eventRecord = new BeaconCacheRecord(1L, "event");
+        BeaconCacheRecord actionRecord = new BeaconCacheRecord(2L, "action");
+
+        BeaconCacheEntry target = new BeaconCacheEntry();
+        target.addPriorityData(priorityRecord);
+        target.addEventData(eventRecord);
+        target.addActionData(actionRecord);
+        target.copyPriorityDataForChunking();
+        target.getChunk("a", 1024, '&');
+
+        // when
+        target.resetDataMarkedForSending();
+
+        // then
+        assertThat(target.getPriorityData(), is(equalTo(Collections.singletonList(priorityRecord))));
+        assertThat(target.getEventData(), is(equalTo(Collections.singletonList(eventRecord))));
+        assertThat(target.getActionData(), is(equalTo(Collections.singletonList(actionRecord))));
+        assertThat(target.needsDataCopyBeforeChunking(), is(true));
+    }
+
+    @Test
+    public void hasPriorityDataGivesTrueIfPriorityDataWasAdded() {
+
+        // given
+        BeaconCacheEntry target = new BeaconCacheEntry();
+        target.addEventData(new BeaconCacheRecord(0L, "One"));
+        target.addActionData(new BeaconCacheRecord(0L, "Two"));
+
+        // when, then
+        assertThat(target.hasPriorityData(), is(false));
+
+        // and when
+        target.addPriorityData(new BeaconCacheRecord(0L, "Three"));
+
+        // then
+        assertThat(target.hasPriorityData(), is(true));
+
+        // and when copied for chunking
+        target.copyDataForChunking();
+
+        // then
+        assertThat(target.hasPriorityData(), is(false));
+    }
+
     @Test
     public void getChunkGetsAlreadyMarkedData() {
 
@@ -565,6 +706,76 @@ public class BeaconCacheEntryTest {
         assertThat(obtained, is(equalTo(0)));
     }
 
+    @Test
+    public void removeOldestRecordsRemovesLowPriorityDataBeforePriorityData() {
+
+        // given
+        BeaconCacheRecord dataOne = new BeaconCacheRecord(1000L, "One");
+        BeaconCacheRecord dataTwo = new BeaconCacheRecord(2000L, "Two");
+        BeaconCacheRecord dataThree = new BeaconCacheRecord(3000L, "Three");
+        BeaconCacheRecord dataFour = new BeaconCacheRecord(4000L, "Four");
+
+        BeaconCacheEntry target = new BeaconCacheEntry();
+        target.addPriorityData(dataOne);
+        target.addPriorityData(dataTwo);
+        target.addEventData(dataThree);
+        target.addActionData(dataFour);
+
+        // when
+        int obtained = target.removeOldestRecords(3);
+
+        // then
+        assertThat(obtained, is(3));
+        assertThat(target.getEventData(), is(empty()));
+        assertThat(target.getActionData(), is(empty()));
+        assertThat(target.getPriorityData(), is(equalTo(Collections.singletonList(dataTwo))));
+        assertThat(target.getTotalNumberOfBytes(), is(dataTwo.getDataSizeInBytes()));
+    }
+
+    @Test
+    public void removeOldestLowPriorityRecordsDoesNotRemovePriorityData() {
+
+        // given
+        BeaconCacheRecord dataOne = new BeaconCacheRecord(1000L, "One");
+        BeaconCacheRecord dataTwo = new BeaconCacheRecord(2000L, "Two");
+        BeaconCacheRecord dataThree = new BeaconCacheRecord(3000L, "Three");
+
+        BeaconCacheEntry target = new BeaconCacheEntry();
+        target.addPriorityData(dataOne);
+        target.addEventData(dataTwo);
+        target.addActionData(dataThree);
+
+        // when
+        int obtained = target.removeOldestLowPriorityRecords(3);
+
+        // then
+        assertThat(obtained, is(2));
+        assertThat(target.getEventData(), is(empty()));
+        assertThat(target.getActionData(), is(empty()));
+        assertThat(target.getPriorityData(), is(equalTo(Collections.singletonList(dataOne))));
+        assertThat(target.getTotalNumberOfBytes(), is(dataOne.getDataSizeInBytes()));
+    }
+
+    @Test
+    public void removeRecordsOlderThanUpdatesTotalNumberOfBytes() {
+
+        // given
+        BeaconCacheRecord dataOne = new BeaconCacheRecord(1000L, "One");
+        BeaconCacheRecord dataTwo = new BeaconCacheRecord(2000L, "Two");
+
+        BeaconCacheEntry target = new BeaconCacheEntry();
+        target.addPriorityData(dataOne);
+        target.addEventData(dataTwo);
+
+        // when
+        int obtained = target.removeRecordsOlderThan(1500L);
+
+        // then
+        assertThat(obtained, is(1));
+        assertThat(target.getPriorityData(), is(empty()));
+        assertThat(target.getTotalNumberOfBytes(), is(dataTwo.getDataSizeInBytes()));
+    }
+
     @Test
     public void removeOldestRecordsRemovesActionDataIfEventDataIsEmpty() {
 
@@ -31,6 +31,7 @@ import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.emptyArray;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.isEmptyString;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
@@ -152,6 +153,197 @@ public class BeaconCacheImplTest {
         verify(observer, times(3)).update(target, null);
     }
 
+    @Test
+    public void addMultipleEventDataAddsAllRecordsToCache() {
+
+        // given
+        BeaconCacheImpl target = new BeaconCacheImpl(logger);
+        BeaconKey key = new BeaconKey(1, 0);
+        target.addEventData(key, 1000L, "a");
+
+        // when
+        target.addEventData(key, 1100L, Arrays.asList("bc", "def"));
+
+        // then
+        assertThat(target.getBeaconKeys(), is(Collections.singleton(key)));
+        assertThat(target.getEvents(key), is(equalTo(new String[]{"a", "bc", "def"})));
+        assertThat(target.getNumBytesInCache(), is(new BeaconCacheRecord(1000L, "a").getDataSizeInBytes()
+            + new BeaconCacheRecord(1100L, "bc").getDataSizeInBytes()
+            + new BeaconCacheRecord(1100L, "def").getDataSizeInBytes()));
+    }
+
+    @Test
+    public void addMultipleEventDataNotifiesObserverOnce() {
+
+        // given
+        BeaconCacheImpl target = new BeaconCacheImpl(logger);
+        BeaconKey key = new BeaconKey(1, 0);
+
+        target.addObserver(observer);
+
+        // when
+        target.addEventData(key, 1000L, Arrays.asList("a", "b", "c"));
+
+        // then
+        verify(observer, times(1)).update(target, null);
+    }
+
+    @Test
+    public void addMultipleEventDataWithoutRecordsDoesNothing() {
+
+        // given
+        BeaconCacheImpl target = new BeaconCacheImpl(logger);
+        BeaconKey key = new BeaconKey(1, 0);
+
+        target.addObserver(observer);
+
+        // when
+        target.addEventData(key, 1000L, Collections.<String>emptyList());
+
+        // then
+        assertThat(target.getBeaconKeys(), is(empty()));
+        verifyZeroInteractions(observer);
+    }
+
+    @Test
+    public void addPriorityEventDataAddsDataToCache() {
+
+        // given
+        BeaconCacheImpl target = new BeaconCacheImpl(logger);
+        BeaconKey key = new BeaconKey(1, 0);
+
+        // when
+        target.addPriorityEventData(key, 1000L, "a");
+
+        // then
+        assertThat(target.getBeaconKeys(), is(equalTo(Collections.singleton(key))));
+        assertThat(target.getPriorityEvents(key), is(equalTo(new String[]{"a"})));
+        assertThat(target.getEvents(key), is(equalTo(new String[0])));
+        assertThat(target.getNumBytesInCache(), is(new BeaconCacheRecord(1000L, "a").getDataSizeInBytes()));
+        assertThat(target.hasPriorityData(key), is(true));
+    }
+
+    @Test
+    public void addPriorityEventDataNotifiesObserver() {
+
+        // given
+        BeaconCacheImpl target = new BeaconCacheImpl(logger);
+        BeaconKey key = new BeaconKey(1, 0);
+
+        target.addObserver(observer);
+
+        // when
+        target.addPriorityEventData(key, 1000L, "a");
+
+        // then
+        verify(observer, times(1)).update(target, null);
+    }
+
+    @Test
+    public void addPriorityEventDataNotifiesPriorityDataListenerWithBeaconKey() {
+
+        // given
+        BeaconCacheImpl target = new BeaconCacheImpl(logger);
+        BeaconKey key = new BeaconKey(1, 0);
+        PriorityDataListener listener = mock(PriorityDataListener.class);
+
+        target.addPriorityDataListener(listener);
+
+        // when
+        target.addPriorityEventData(key, 1000L, "a");
+
+        // then
+        verify(listener, times(1)).onPriorityDataAdded(key);
+    }
+
+    @Test
+    public void addEventDataDoesNotNotifyPriorityDataListener() {
+
+        // given
+        BeaconCacheImpl target = new BeaconCacheImpl(logger);
+        BeaconKey key = new BeaconKey(1, 0);
+        PriorityDataListener listener = mock(PriorityDataListener.class);
+
+        target.addPriorityDataListener(listener);
+
+        // when
+        target.addEventData(key, 1000L, "a");
+        target.addActionData(key, 1000L, "b");
+
+        // then
+        verifyZeroInteractions(listener);
+    }
+
+    @Test
+    public void hasPriorityDataGivesFalseIfBeaconDoesNotExistInCache() {
+
+        // given
+        BeaconCacheImpl target = new BeaconCacheImpl(logger);
+
+        // when, then
+        assertThat(target.hasPriorityData(new BeaconKey(1, 0)), is(false));
+    }
+
+    @Test
+    public void getNextBeaconChunkRetrievesPriorityDataFirst() {
+
+        // given
+        BeaconCacheImpl target = new BeaconCacheImpl(logger);
+        BeaconKey key = new BeaconKey(1, 0);
+        target.addActionData(key, 1000L, "action");
+        target.addEventData(key, 1000L, "event");
+        target.addPriorityEventData(key, 1001L, "crash");
+
+        // when
+        String obtained = target.getNextBeaconChunk(key, "prefix", "prefix".length(), '&');
+
+        // then
+        assertThat(obtained, is(equalTo("prefix&crash")));
+    }
+
+    @Test
+    public void getNextPriorityChunkRetrievesOnlyPriorityData() {
+
+        // given
+        BeaconCacheImpl target = new BeaconCacheImpl(logger);
+        BeaconKey key = new BeaconKey(1, 0);
+        target.addActionData(key, 1000L, "action");
+        target.addEventData(key, 1000L, "event");
+        target.addPriorityEventData(key, 1001L, "crash");
+        target.addPriorityEventData(key, 1002L, "error");
+
+        // when
+        String obtained = target.getNextPriorityChunk(key, "prefix", 1024, '&');
+
+        // then
+        assertThat(obtained, is(equalTo("prefix&crash&error")));
+        assertThat(target.getActions(key), is(equalTo(new String[]{"action"})));
+        assertThat(target.getEvents(key), is(equalTo(new String[]{"event"})));
+        assertThat(target.getNumBytesInCache(), is(new BeaconCacheRecord(1000L, "action").getDataSizeInBytes()
+                + new BeaconCacheRecord(1000L, "event").getDataSizeInBytes()));
+
+        // and when removing the sent data
+        target.removeChunkedData(key);
+
+        // then
+        assertThat(target.getNextPriorityChunk(key, "prefix", 1024, '&'), isEmptyString());
+        assertThat(target.hasPriorityData(key), is(false));
+        assertThat(target.getNextBeaconChunk(key, "prefix", 1024, '&'), is(equalTo("prefix&event&action")));
+    }
+
+    @Test
+    public void getNextPriorityChunkReturnsNullIfGivenBeaconIDDoesNotExist() {
+
+        // given
+        BeaconCacheImpl target = new BeaconCacheImpl(logger);
+
+        // when
+        String obtained = target.getNextPriorityChunk(new BeaconKey(666, 0), "", 1024, '&');
+
+        // then
+        assertThat(obtained, is(nullValue()));
+    }
+
     @Test
     public void addActionDataAddsBeaconIdToCache() {
 
@@ -678,6 +870,73 @@ public class BeaconCacheImplTest {
         assertThat(obtained, is(2));
     }
 
+    @Test
+    public void evictRecordsByNumberDecrementsCacheSize() {
+
+        // given
+        BeaconCacheImpl target = new BeaconCacheImpl(logger);
+        BeaconKey key = new BeaconKey(1, 0);
+
+        target.addActionData(key, 1000L, "a");
+        target.addEventData(key, 1001L, "jjj");
+
+        // when
+        target.evictRecordsByNumber(key, 1);
+
+        // then
+        assertThat(target.getNumBytesInCache(), is(new BeaconCacheRecord(1001L, "jjj").getDataSizeInBytes()));
+    }
+
+    @Test
+    public void evictRecordsByAgeDecrementsCacheSize() {
+
+        // given
+        BeaconCacheImpl target = new BeaconCacheImpl(logger);
+        BeaconKey key = new BeaconKey(1, 0);
+
+        target.addActionData(key, 1000L, "a");
+        target.addEventData(key, 1001L, "jjj");
+
+        // when
+        target.evictRecordsByAge(key, 1001L);
+
+        // then
+        assertThat(target.getNumBytesInCache(), is(new BeaconCacheRecord(1001L, "jjj").getDataSizeInBytes()));
+    }
+
+    @Test
+    public void evictLowPriorityRecordsByNumberDoesNothingAndReturnsZeroIfBeaconIDDoesNotExist() {
+
+        // given
+        BeaconCacheImpl target = new BeaconCacheImpl(logger);
+
+        // when
+        int obtained = target.evictLowPriorityRecordsByNumber(new BeaconKey(666, 0), 100);
+
+        // then
+        assertThat(obtained, is(0));
+    }
+
+    @Test
+    public void evictLowPriorityRecordsByNumberDoesNotEvictPriorityData() {
+
+        // given
+        BeaconCacheImpl target = new BeaconCacheImpl(logger);
+        BeaconKey key = new BeaconKey(1, 0);
+
+        target.addPriorityEventData(key, 999L, "crash");
+        target.addActionData(key, 1000L, "a");
+        target.addEventData(key, 1001L, "jjj");
+
+        // when
+        int obtained = target.evictLowPriorityRecordsByNumber(key, 3);
+
+        // then
+        assertThat(obtained, is(2));
+        assertThat(target.getPriorityEvents(key), is(equalTo(new String[]{"crash"})));
+        assertThat(target.getNumBytesInCache(), is(new BeaconCacheRecord(999L, "crash").getDataSizeInBytes()));
+    }
+
     @Test
     public void isEmptyGivesTrueIfBeaconDoesNotExistInCache() {
 
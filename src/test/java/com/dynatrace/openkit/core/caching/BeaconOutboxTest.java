@@ -0,0 +1,438 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.caching;
+
+import com.dynatrace.openkit.api.Logger;
+import com.dynatrace.openkit.core.configuration.BeaconOutboxConfiguration;
+import com.dynatrace.openkit.providers.TimingProvider;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BeaconOutboxTest {
+
+    private static final long MAX_SIZE = 1024L * 1024L;
+    private static final long MAX_RECORD_AGE = 10000L;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Logger logger;
+    private TimingProvider timingProvider;
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        logger = mock(Logger.class);
+        timingProvider = mock(TimingProvider.class);
+        when(timingProvider.provideTimestampInMilliseconds()).thenReturn(1000L);
+        directory = new File(temporaryFolder.getRoot(), "outbox");
+    }
+
+    @Test
+    public void newOutboxIsEmptyAndCreatesDirectory() {
+        // when
+        BeaconOutbox target = createOutbox(MAX_SIZE, BeaconOutbox.DEFAULT_MAX_SEGMENT_SIZE_IN_BYTES);
+
+        // then
+        assertThat(target.isEmpty(), is(true));
+        assertThat(directory.isDirectory(), is(true));
+    }
+
+    @Test
+    public void appendedRecordIsDrainedCompressed() throws IOException {
+        // given
+        BeaconOutbox target = createOutbox(MAX_SIZE, BeaconOutbox.DEFAULT_MAX_SEGMENT_SIZE_IN_BYTES);
+        CollectingSender sender = new CollectingSender();
+
+        // when
+        boolean obtained = target.append("127.0.0.1", 1234, bytes("beacon data"));
+        int numSent = target.drain(sender, 10);
+
+        // then
+        assertThat(obtained, is(true));
+        assertThat(numSent, is(1));
+        assertThat(sender.clientIPAddresses, contains("127.0.0.1"));
+        assertThat(sender.routingKeys, contains(1234));
+        assertThat(sender.getDecompressedData(), contains("beacon data"));
+        assertThat(target.isEmpty(), is(true));
+    }
+
+    @Test
+    public void missingClientIPAddressIsDrainedAsNull() throws IOException {
+        // given
+        BeaconOutbox target = createOutbox(MAX_SIZE, BeaconOutbox.DEFAULT_MAX_SEGMENT_SIZE_IN_BYTES);
+        CollectingSender sender = new CollectingSender();
+        target.append(null, 0, bytes("beacon data"));
+
+        // when
+        target.drain(sender, 10);
+
+        // then
+        assertThat(sender.clientIPAddresses, hasSize(1));
+        assertThat(sender.clientIPAddresses.get(0), is(nullValue()));
+    }
+
+    @Test
+    public void emptyDataIsNotAppended() {
+        // given
+        BeaconOutbox target = createOutbox(MAX_SIZE, BeaconOutbox.DEFAULT_MAX_SEGMENT_SIZE_IN_BYTES);
+
+        // when
+        boolean obtainedNull = target.append("127.0.0.1", 0, null);
+        boolean obtainedEmpty = target.append("127.0.0.1", 0, new byte[0]);
+
+        // then
+        assertThat(obtainedNull, is(false));
+        assertThat(obtainedEmpty, is(false));
+        assertThat(target.isEmpty(), is(true));
+    }
+
+    @Test
+    public void recordsAreDrainedInOrderAcrossSegments() throws IOException {
+        // given
+        BeaconOutbox target = createOutbox(MAX_SIZE, 1); // every record starts a new segment
+        CollectingSender sender = new CollectingSender();
+        target.append(null, 0, bytes("a"));
+        target.append(null, 0, bytes("b"));
+        target.append(null, 0, bytes("c"));
+        assertThat(target.getSegmentFileNames(), hasSize(3));
+
+        // when
+        int numSent = target.drain(sender, 10);
+
+        // then
+        assertThat(numSent, is(3));
+        assertThat(sender.getDecompressedData(), contains("a", "b", "c"));
+        assertThat(directory.list().length, is(0));
+    }
+
+    @Test
+    public void drainSendsAtMostTheGivenNumberOfRecords() throws IOException {
+        // given
+        BeaconOutbox target = createOutbox(MAX_SIZE, BeaconOutbox.DEFAULT_MAX_SEGMENT_SIZE_IN_BYTES);
+        CollectingSender sender = new CollectingSender();
+        target.append(null, 0, bytes("a"));
+        target.append(null, 0, bytes("b"));
+        target.append(null, 0, bytes("c"));
+
+        // when
+        int numSentFirst = target.drain(sender, 2);
+        int numSentSecond = target.drain(sender, 2);
+
+        // then
+        assertThat(numSentFirst, is(2));
+        assertThat(numSentSecond, is(1));
+        assertThat(sender.getDecompressedData(), contains("a", "b", "c"));
+        assertThat(target.isEmpty(), is(true));
+    }
+
+    @Test
+    public void recordIsKeptIfSendingFails() throws IOException {
+        // given
+        BeaconOutbox target = createOutbox(MAX_SIZE, BeaconOutbox.DEFAULT_MAX_SEGMENT_SIZE_IN_BYTES);
+        CollectingSender sender = new CollectingSender();
+        target.append(null, 0, bytes("a"));
+        target.append(null, 0, bytes("b"));
+        sender.numRecordsToAccept = 1;
+
+        // when
+        int numSentFirst = target.drain(sender, 10);
+        sender.numRecordsToAccept = Integer.MAX_VALUE;
+        int numSentSecond = target.drain(sender, 10);
+
+        // then
+        assertThat(numSentFirst, is(1));
+        assertThat(numSentSecond, is(1));
+        assertThat(sender.getDecompressedData(), contains("a", "b"));
+    }
+
+    @Test
+    public void outboxIsReloadedAfterRestart() throws IOException {
+        // given
+        BeaconOutbox outbox = createOutbox(MAX_SIZE, BeaconOutbox.DEFAULT_MAX_SEGMENT_SIZE_IN_BYTES);
+        outbox.append("127.0.0.1", 17, bytes("a"));
+        outbox.append("127.0.0.1", 42, bytes("b"));
+        outbox.close();
+        CollectingSender sender = new CollectingSender();
+
+        // when
+        BeaconOutbox target = createOutbox(MAX_SIZE, BeaconOutbox.DEFAULT_MAX_SEGMENT_SIZE_IN_BYTES);
+        target.append("127.0.0.1", -1, bytes("c"));
+
+        // then
+        assertThat(target.isEmpty(), is(false));
+        assertThat(target.drain(sender, 10), is(3));
+        assertThat(sender.getDecompressedData(), contains("a", "b", "c"));
+        assertThat(sender.routingKeys, contains(17, 42, -1));
+    }
+
+    @Test
+    public void partiallyDrainedSegmentIsSentAgainAfterRestart() throws IOException {
+        // given
+        BeaconOutbox outbox = createOutbox(MAX_SIZE, BeaconOutbox.DEFAULT_MAX_SEGMENT_SIZE_IN_BYTES);
+        outbox.append(null, 0, bytes("a"));
+        outbox.append(null, 0, bytes("b"));
+        outbox.drain(new CollectingSender(), 1);
+        outbox.close();
+        CollectingSender sender = new CollectingSender();
+
+        // when
+        BeaconOutbox target = createOutbox(MAX_SIZE, BeaconOutbox.DEFAULT_MAX_SEGMENT_SIZE_IN_BYTES);
+        target.drain(sender, 10);
+
+        // then
+        assertThat(sender.getDecompressedData(), contains("a", "b"));
+    }
+
+    @Test
+    public void expiredRecordsAreDroppedWithoutSending() throws IOException {
+        // given
+        BeaconOutbox target = createOutbox(MAX_SIZE, BeaconOutbox.DEFAULT_MAX_SEGMENT_SIZE_IN_BYTES);
+        target.append(null, 0, bytes("old"));
+        when(timingProvider.provideTimestampInMilliseconds()).thenReturn(2000L);
+        target.append(null, 0, bytes("new"));
+        when(timingProvider.provideTimestampInMilliseconds()).thenReturn(1000L + MAX_RECORD_AGE + 1);
+        CollectingSender sender = new CollectingSender();
+
+        // when
+        int numSent = target.drain(sender, 10);
+
+        // then
+        assertThat(numSent, is(1));
+        assertThat(sender.getDecompressedData(), contains("new"));
+        assertThat(target.isEmpty(), is(true));
+    }
+
+    @Test
+    public void oldestSegmentsAreDroppedWhenExceedingMaximumSize() throws IOException {
+        // given
+        BeaconOutbox target = createOutbox(400, 1); // every record starts a new segment
+        CollectingSender sender = new CollectingSender();
+
+        // when
+        for (int i = 0; i < 20; i++) {
+            target.append(null, 0, bytes("record " + i));
+        }
+
+        // then
+        assertThat(target.getSizeInBytes(), is(lessThanOrEqualTo(400L)));
+        target.drain(sender, 100);
+        List<String> drained = sender.getDecompressedData();
+        assertThat(drained.size(), is(greaterThan(0)));
+        assertThat(drained.size(), is(lessThanOrEqualTo(19)));
+        assertThat(drained.get(drained.size() - 1), is(equalTo("record 19")));
+    }
+
+    @Test
+    public void recordExceedingMaximumSizeIsNotAppended() {
+        // given
+        BeaconOutbox target = createOutbox(16, 1);
+
+        // when
+        boolean obtained = target.append(null, 0, bytes("this record does not fit into the outbox"));
+
+        // then
+        assertThat(obtained, is(false));
+        assertThat(target.isEmpty(), is(true));
+    }
+
+    @Test
+    public void remainderOfCorruptedSegmentIsDropped() throws IOException {
+        // given
+        BeaconOutbox outbox = createOutbox(MAX_SIZE, BeaconOutbox.DEFAULT_MAX_SEGMENT_SIZE_IN_BYTES);
+        outbox.append(null, 0, bytes("a"));
+        outbox.append(null, 0, bytes("b"));
+        outbox.close();
+        File segment = new File(directory, outbox.getSegmentFileNames().get(0));
+        flipLastByte(segment);
+        CollectingSender sender = new CollectingSender();
+
+        // when
+        BeaconOutbox target = createOutbox(MAX_SIZE, BeaconOutbox.DEFAULT_MAX_SEGMENT_SIZE_IN_BYTES);
+        target.drain(sender, 10);
+
+        // then
+        assertThat(sender.getDecompressedData(), contains("a"));
+        assertThat(target.isEmpty(), is(true));
+    }
+
+    @Test
+    public void truncatedSegmentIsHandled() throws IOException {
+        // given
+        BeaconOutbox outbox = createOutbox(MAX_SIZE, BeaconOutbox.DEFAULT_MAX_SEGMENT_SIZE_IN_BYTES);
+        outbox.append(null, 0, bytes("a"));
+        outbox.append(null, 0, bytes("b"));
+        outbox.close();
+        File segment = new File(directory, outbox.getSegmentFileNames().get(0));
+        RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        file.setLength(file.length() - 3);
+        file.close();
+        CollectingSender sender = new CollectingSender();
+
+        // when
+        BeaconOutbox target = createOutbox(MAX_SIZE, BeaconOutbox.DEFAULT_MAX_SEGMENT_SIZE_IN_BYTES);
+        target.drain(sender, 10);
+
+        // then
+        assertThat(sender.getDecompressedData(), contains("a"));
+    }
+
+    @Test
+    public void recordsAreWrittenToDiskOnSync() {
+        // given
+        BeaconOutbox target = createOutbox(MAX_SIZE, BeaconOutbox.DEFAULT_MAX_SEGMENT_SIZE_IN_BYTES);
+        target.append(null, 0, bytes("a"));
+        File segment = new File(directory, target.getSegmentFileNames().get(0));
+        assertThat(segment.length(), is(0L));
+
+        // when
+        target.sync();
+
+        // then
+        assertThat(segment.length(), is(greaterThan(0L)));
+    }
+
+    @Test
+    public void recordsAreWrittenToDiskAfterSyncBatchSize() {
+        // given
+        BeaconOutbox target = createOutbox(MAX_SIZE, BeaconOutbox.DEFAULT_MAX_SEGMENT_SIZE_IN_BYTES);
+
+        // when
+        for (int i = 0; i < BeaconOutbox.DEFAULT_SYNC_BATCH_SIZE; i++) {
+            target.append(null, 0, bytes("a"));
+        }
+
+        // then
+        File segment = new File(directory, target.getSegmentFileNames().get(0));
+        assertThat(segment.length(), is(equalTo(target.getSizeInBytes())));
+    }
+
+    @Test
+    public void outboxIsDisabledIfDirectoryCannotBeCreated() throws IOException {
+        // given
+        directory = temporaryFolder.newFile("not a directory");
+
+        // when
+        BeaconOutbox target = createOutbox(MAX_SIZE, BeaconOutbox.DEFAULT_MAX_SEGMENT_SIZE_IN_BYTES);
+
+        // then
+        assertThat(target.append(null, 0, bytes("a")), is(false));
+        assertThat(target.drain(new CollectingSender(), 10), is(0));
+        assertThat(target.isEmpty(), is(true));
+    }
+
+    @Test
+    public void unrelatedFilesInDirectoryAreIgnored() throws IOException {
+        // given
+        assertThat(directory.mkdirs(), is(true));
+        assertThat(new File(directory, "unrelated.txt").createNewFile(), is(true));
+
+        // when
+        BeaconOutbox target = createOutbox(MAX_SIZE, BeaconOutbox.DEFAULT_MAX_SEGMENT_SIZE_IN_BYTES);
+
+        // then
+        assertThat(target.isEmpty(), is(true));
+        assertThat(target.getSegmentFileNames(), is(empty()));
+    }
+
+    private BeaconOutbox createOutbox(long maxSize, long maxSegmentSize) {
+        BeaconOutboxConfiguration configuration = mock(BeaconOutboxConfiguration.class);
+        when(configuration.getDirectory()).thenReturn(directory.getPath());
+        when(configuration.getMaxSizeInBytes()).thenReturn(maxSize);
+        when(configuration.getMaxRecordAge()).thenReturn(MAX_RECORD_AGE);
+
+        return new BeaconOutbox(logger, configuration, timingProvider, maxSegmentSize, BeaconOutbox.DEFAULT_SYNC_BATCH_SIZE);
+    }
+
+    private static byte[] bytes(String data) {
+        try {
+            return data.getBytes("UTF-8");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void flipLastByte(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.seek(randomAccessFile.length() - 1);
+            int lastByte = randomAccessFile.read();
+            randomAccessFile.seek(randomAccessFile.length() - 1);
+            randomAccessFile.write(lastByte ^ 0xff);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private static final class CollectingSender implements BeaconOutbox.RecordSender {
+
+        private final List<String> clientIPAddresses = new ArrayList<String>();
+        private final List<Integer> routingKeys = new ArrayList<Integer>();
+        private final List<byte[]> compressedData = new ArrayList<byte[]>();
+        private int numRecordsToAccept = Integer.MAX_VALUE;
+
+        @Override
+        public boolean send(String clientIPAddress, int routingKey, byte[] data) {
+            if (compressedData.size() >= numRecordsToAccept) {
+                return false;
+            }
+            clientIPAddresses.add(clientIPAddress);
+            routingKeys.add(routingKey);
+            compressedData.add(data);
+            return true;
+        }
+
+        private List<String> getDecompressedData() throws IOException {
+            List<String> result = new ArrayList<String>(compressedData.size());
+            for (byte[] data : compressedData) {
+                GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(data));
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                byte[] buffer = new byte[256];
+                int numRead;
+                while ((numRead = input.read(buffer)) > 0) {
+                    output.write(buffer, 0, numRead);
+                }
+                input.close();
+                result.add(new String(output.toByteArray(), "UTF-8"));
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.caching;
+
+import com.dynatrace.openkit.AbstractOpenKitBuilder;
+import com.dynatrace.openkit.api.Logger;
+import com.dynatrace.openkit.core.configuration.ServerConfigurationStoreConfiguration;
+import com.dynatrace.openkit.protocol.ResponseAttribute;
+import com.dynatrace.openkit.protocol.ResponseAttributes;
+import com.dynatrace.openkit.protocol.ResponseAttributesImpl;
+import com.dynatrace.openkit.providers.TimingProvider;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ServerConfigurationStoreTest {
+
+    private static final String ENDPOINT_URL = "https://localhost:9999/1";
+    private static final String APPLICATION_ID = "application id";
+    private static final long MAX_AGE = 10000L;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Logger logger;
+    private TimingProvider timingProvider;
+    private File directory;
+
+    @Before
+    public void setUp() {
+        logger = mock(Logger.class);
+        timingProvider = mock(TimingProvider.class);
+        when(timingProvider.provideTimestampInMilliseconds()).thenReturn(1000L);
+        directory = new File(temporaryFolder.getRoot(), "config");
+    }
+
+    @Test
+    public void loadReturnsNullIfNothingWasStored() {
+        // given
+        ServerConfigurationStore target = createStore(ENDPOINT_URL, APPLICATION_ID);
+
+        // when
+        ResponseAttributes obtained = target.load();
+
+        // then
+        assertThat(obtained, is(nullValue()));
+    }
+
+    @Test
+    public void storedAttributesAreLoadedByNewStore() {
+        // given
+        ResponseAttributes attributes = ResponseAttributesImpl.withUndefinedDefaults()
+                .withMaxBeaconSizeInBytes(1)
+                .withMaxSessionDurationInMilliseconds(2)
+                .withMaxEventsPerSession(3)
+                .withSessionTimeoutInMilliseconds(4)
+                .withSendIntervalInMilliseconds(5)
+                .withVisitStoreVersion(6)
+                .withCapture(false)
+                .withCaptureCrashes(false)
+                .withCaptureErrors(true)
+                .withApplicationId(APPLICATION_ID)
+                .withMultiplicity(7)
+                .withServerId(8)
+                .withStatus("status")
+                .withTimestampInMilliseconds(9L)
+                .build();
+        assertThat(createStore(ENDPOINT_URL, APPLICATION_ID).store(attributes), is(true));
+
+        // when
+        ResponseAttributes obtained = createStore(ENDPOINT_URL, APPLICATION_ID).load();
+
+        // then
+        assertThat(obtained, is(notNullValue()));
+        for (ResponseAttribute attribute : ResponseAttribute.values()) {
+            assertThat(obtained.isAttributeSet(attribute), is(true));
+        }
+        assertThat(obtained.getMaxBeaconSizeInBytes(), is(1));
+        assertThat(obtained.getMaxSessionDurationInMilliseconds(), is(2));
+        assertThat(obtained.getMaxEventsPerSession(), is(3));
+        assertThat(obtained.getSessionTimeoutInMilliseconds(), is(4));
+        assertThat(obtained.getSendIntervalInMilliseconds(), is(5));
+        assertThat(obtained.getVisitStoreVersion(), is(6));
+        assertThat(obtained.isCapture(), is(false));
+        assertThat(obtained.isCaptureCrashes(), is(false));
+        assertThat(obtained.isCaptureErrors(), is(true));
+        assertThat(obtained.getApplicationId(), is(APPLICATION_ID));
+        assertThat(obtained.getMultiplicity(), is(7));
+        assertThat(obtained.getServerId(), is(8));
+        assertThat(obtained.getStatus(), is("status"));
+        assertThat(obtained.getTimestampInMilliseconds(), is(9L));
+    }
+
+    @Test
+    public void onlySetAttributesAreStored() {
+        // given
+        ResponseAttributes attributes = ResponseAttributesImpl.withUndefinedDefaults()
+                .withSendIntervalInMilliseconds(1234)
+                .build();
+        createStore(ENDPOINT_URL, APPLICATION_ID).store(attributes);
+
+        // when
+        ResponseAttributes obtained = createStore(ENDPOINT_URL, APPLICATION_ID).load();
+
+        // then
+        assertThat(obtained.isAttributeSet(ResponseAttribute.SEND_INTERVAL), is(true));
+        assertThat(obtained.getSendIntervalInMilliseconds(), is(1234));
+        assertThat(obtained.isAttributeSet(ResponseAttribute.IS_CAPTURE), is(false));
+        assertThat(obtained.isAttributeSet(ResponseAttribute.SERVER_ID), is(false));
+    }
+
+    @Test
+    public void attributesAreStoredPerEndpointAndApplication() {
+        // given
+        ServerConfigurationStore target = createStore(ENDPOINT_URL, APPLICATION_ID);
+        target.store(ResponseAttributesImpl.withUndefinedDefaults().withServerId(1).build());
+        createStore("https://localhost:9999/2", APPLICATION_ID)
+                .store(ResponseAttributesImpl.withUndefinedDefaults().withServerId(2).build());
+        createStore(ENDPOINT_URL, "other application")
+                .store(ResponseAttributesImpl.withUndefinedDefaults().withServerId(3).build());
+
+        // when
+        ResponseAttributes obtained = createStore(ENDPOINT_URL, APPLICATION_ID).load();
+
+        // then
+        assertThat(obtained.getServerId(), is(1));
+        assertThat(directory.listFiles().length, is(3));
+        assertThat(target.getFile().getName().startsWith(ServerConfigurationStore.FILE_PREFIX), is(true));
+        assertThat(target.getFile().getName().endsWith(ServerConfigurationStore.FILE_SUFFIX), is(true));
+    }
+
+    @Test
+    public void expiredAttributesAreNotLoaded() {
+        // given
+        createStore(ENDPOINT_URL, APPLICATION_ID).store(ResponseAttributesImpl.withUndefinedDefaults().build());
+        when(timingProvider.provideTimestampInMilliseconds()).thenReturn(1000L + MAX_AGE + 1);
+
+        // when
+        ResponseAttributes obtained = createStore(ENDPOINT_URL, APPLICATION_ID).load();
+
+        // then
+        assertThat(obtained, is(nullValue()));
+    }
+
+    @Test
+    public void attributesAreLoadedUntilMaxAge() {
+        // given
+        createStore(ENDPOINT_URL, APPLICATION_ID).store(ResponseAttributesImpl.withUndefinedDefaults().build());
+        when(timingProvider.provideTimestampInMilliseconds()).thenReturn(1000L + MAX_AGE);
+
+        // when
+        ResponseAttributes obtained = createStore(ENDPOINT_URL, APPLICATION_ID).load();
+
+        // then
+        assertThat(obtained, is(notNullValue()));
+    }
+
+    @Test
+    public void fileOfDifferentEndpointIsNotLoaded() throws IOException {
+        // given
+        ServerConfigurationStore target = createStore(ENDPOINT_URL, APPLICATION_ID);
+        target.store(ResponseAttributesImpl.withUndefinedDefaults().build());
+        File otherFile = createStore("https://localhost:9999/2", APPLICATION_ID).getFile();
+        assertThat(target.getFile().renameTo(otherFile), is(true));
+
+        // when
+        ResponseAttributes obtained = createStore("https://localhost:9999/2", APPLICATION_ID).load();
+
+        // then
+        assertThat(obtained, is(nullValue()));
+    }
+
+    @Test
+    public void corruptedFileIsNotLoaded() throws IOException {
+        // given
+        ServerConfigurationStore target = createStore(ENDPOINT_URL, APPLICATION_ID);
+        target.store(ResponseAttributesImpl.withUndefinedDefaults().build());
+        FileWriter writer = new FileWriter(target.getFile(), true);
+        writer.write("attribute.SERVER_ID=not a number\n");
+        writer.close();
+
+        // when
+        ResponseAttributes obtained = createStore(ENDPOINT_URL, APPLICATION_ID).load();
+
+        // then
+        assertThat(obtained, is(nullValue()));
+    }
+
+    @Test
+    public void unchangedAttributesAreNotRewrittenBeforeHalfOfMaxAge() {
+        // given
+        ServerConfigurationStore target = createStore(ENDPOINT_URL, APPLICATION_ID);
+        target.store(ResponseAttributesImpl.withUndefinedDefaults().withServerId(1).build());
+        assertThat(target.getFile().delete(), is(true));
+
+        // when
+        target.store(ResponseAttributesImpl.withUndefinedDefaults().withServerId(1).build());
+
+        // then
+        assertThat(target.getFile().exists(), is(false));
+    }
+
+    @Test
+    public void unchangedAttributesAreRewrittenAfterHalfOfMaxAge() {
+        // given
+        ServerConfigurationStore target = createStore(ENDPOINT_URL, APPLICATION_ID);
+        target.store(ResponseAttributesImpl.withUndefinedDefaults().withServerId(1).build());
+        assertThat(target.getFile().delete(), is(true));
+        when(timingProvider.provideTimestampInMilliseconds()).thenReturn(1000L + MAX_AGE / 2);
+
+        // when
+        target.store(ResponseAttributesImpl.withUndefinedDefaults().withServerId(1).build());
+
+        // then
+        assertThat(target.getFile().exists(), is(true));
+    }
+
+    @Test
+    public void changedAttributesAreRewrittenImmediately() {
+        // given
+        ServerConfigurationStore target = createStore(ENDPOINT_URL, APPLICATION_ID);
+        target.store(ResponseAttributesImpl.withUndefinedDefaults().withServerId(1).build());
+
+        // when
+        target.store(ResponseAttributesImpl.withUndefinedDefaults().withServerId(2).build());
+
+        // then
+        assertThat(createStore(ENDPOINT_URL, APPLICATION_ID).load().getServerId(), is(2));
+        assertThat(new File(directory, target.getFile().getName() + ".tmp").exists(), is(false));
+    }
+
+    @Test
+    public void storeFailsIfDirectoryCannotBeCreated() throws IOException {
+        // given
+        File file = temporaryFolder.newFile("file");
+        directory = new File(file, "config");
+        ServerConfigurationStore target = createStore(ENDPOINT_URL, APPLICATION_ID);
+
+        // when
+        boolean obtained = target.store(ResponseAttributesImpl.withUndefinedDefaults().build());
+
+        // then
+        assertThat(obtained, is(false));
+        assertThat(target.load(), is(nullValue()));
+    }
+
+    @Test
+    public void fileNameDoesNotContainEndpointOrApplicationId() {
+        // when
+        ServerConfigurationStore target = createStore(ENDPOINT_URL, APPLICATION_ID);
+
+        // then
+        assertThat(target.getFile().getName().contains("localhost"), is(false));
+        assertThat(target.getFile().getName(), is(not(createStore(ENDPOINT_URL, "other").getFile().getName())));
+    }
+
+    private ServerConfigurationStore createStore(String endpointURL, String applicationID) {
+        AbstractOpenKitBuilder builder = mock(AbstractOpenKitBuilder.class);
+        when(builder.getServerConfigurationStoreDirectory()).thenReturn(directory.getAbsolutePath());
+        when(builder.getServerConfigurationStoreMaxAge()).thenReturn(MAX_AGE);
+
+        return new ServerConfigurationStore(logger, ServerConfigurationStoreConfiguration.from(builder),
+                endpointURL, applicationID, timingProvider);
+    }
+}
@@ -27,6 +27,7 @@ import org.mockito.stubbing.Answer;
 import java.util.Arrays;
 import java.util.HashSet;
 
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
@@ -201,15 +202,15 @@ public class SpaceEvictionStrategyTest {
         BeaconKey keyTwo = new BeaconKey(1, 0);
         when(mockBeaconCache.getBeaconKeys())
                 .thenReturn(new HashSet<BeaconKey>(Arrays.asList(keyOne, keyTwo)));
-
+        when(mockBeaconCache.evictLowPriorityRecordsByNumber(any(BeaconKey.class), anyInt())).thenReturn(1);
 
         // when executing the first time
         target.execute();
 
         // then
         verify(mockBeaconCache, times(5)).getNumBytesInCache();
-        verify(mockBeaconCache, times(1)).evictRecordsByNumber(keyTwo, 1);
-        verify(mockBeaconCache, times(1)).evictRecordsByNumber(keyOne, 1);
+        verify(mockBeaconCache, times(1)).evictLowPriorityRecordsByNumber(keyTwo, 1);
+        verify(mockBeaconCache, times(1)).evictLowPriorityRecordsByNumber(keyOne, 1);
     }
 
     @Test
@@ -229,8 +230,8 @@ public class SpaceEvictionStrategyTest {
         BeaconKey keyOne = new BeaconKey(42, 0);
         BeaconKey keyTwo = new BeaconKey(1, 0);
         when(mockBeaconCache.getBeaconKeys()).thenReturn(new HashSet<BeaconKey>(Arrays.asList(keyOne, keyTwo)));
-        when(mockBeaconCache.evictRecordsByNumber(eq(keyTwo), anyInt())).thenReturn(5);
-        when(mockBeaconCache.evictRecordsByNumber(eq(keyOne), anyInt())).thenReturn(1);
+        when(mockBeaconCache.evictLowPriorityRecordsByNumber(eq(keyTwo), anyInt())).thenReturn(5);
+        when(mockBeaconCache.evictLowPriorityRecordsByNumber(eq(keyOne), anyInt())).thenReturn(1);
 
         when(mockLogger.isDebugEnabled()).thenReturn(true);
 
@@ -260,8 +261,8 @@ public class SpaceEvictionStrategyTest {
         BeaconKey keyOne = new BeaconKey(42, 0);
         BeaconKey keyTwo = new BeaconKey(1, 0);
         when(mockBeaconCache.getBeaconKeys()).thenReturn(new HashSet<BeaconKey>(Arrays.asList(keyOne, keyTwo)));
-        when(mockBeaconCache.evictRecordsByNumber(eq(keyTwo), anyInt())).thenReturn(5);
-        when(mockBeaconCache.evictRecordsByNumber(eq(keyOne), anyInt())).thenReturn(1);
+        when(mockBeaconCache.evictLowPriorityRecordsByNumber(eq(keyTwo), anyInt())).thenReturn(5);
+        when(mockBeaconCache.evictLowPriorityRecordsByNumber(eq(keyOne), anyInt())).thenReturn(1);
 
         when(mockLogger.isDebugEnabled()).thenReturn(false);
 
@@ -293,14 +294,15 @@ public class SpaceEvictionStrategyTest {
         BeaconKey keyOne = new BeaconKey(42, 0);
         BeaconKey keyTwo = new BeaconKey(1, 0);
         when(mockBeaconCache.getBeaconKeys()).thenReturn(new HashSet<BeaconKey>(Arrays.asList(keyOne, keyTwo)));
+        when(mockBeaconCache.evictLowPriorityRecordsByNumber(any(BeaconKey.class), anyInt())).thenReturn(1);
 
         // when executing the first time
         target.execute();
 
         // then
         verify(mockBeaconCache, times(8)).getNumBytesInCache();
-        verify(mockBeaconCache, times(2)).evictRecordsByNumber(keyTwo, 1);
-        verify(mockBeaconCache, times(2)).evictRecordsByNumber(keyOne, 1);
+        verify(mockBeaconCache, times(2)).evictLowPriorityRecordsByNumber(keyTwo, 1);
+        verify(mockBeaconCache, times(2)).evictLowPriorityRecordsByNumber(keyOne, 1);
     }
 
     @Test
@@ -322,7 +324,7 @@ public class SpaceEvictionStrategyTest {
         );
         when(mockBeaconCache.getBeaconKeys())
                 .thenReturn(new HashSet<BeaconKey>(Arrays.asList(new BeaconKey(42, 0), new BeaconKey(1, 0))));
-        when(mockBeaconCache.evictRecordsByNumber(any(BeaconKey.class), eq(1))).then(new Answer<Integer>() {
+        when(mockBeaconCache.evictLowPriorityRecordsByNumber(any(BeaconKey.class), eq(1))).then(new Answer<Integer>() {
             @Override
             public Integer answer(InvocationOnMock invocation) {
                 Thread.currentThread().interrupt(); // interrupt current thread - just to test, if it stopped
@@ -335,7 +337,7 @@ public class SpaceEvictionStrategyTest {
 
         // then
         verify(mockBeaconCache, times(3)).getNumBytesInCache();
-        verify(mockBeaconCache, times(1)).evictRecordsByNumber(any(BeaconKey.class), eq(1));
+        verify(mockBeaconCache, times(1)).evictLowPriorityRecordsByNumber(any(BeaconKey.class), eq(1));
 
         // and verify that the thread interrupted flag is still set
         assertThat(Thread.interrupted(), is(true)); // will also clear the interrupted flag, which we definitely want
@@ -359,13 +361,87 @@ public class SpaceEvictionStrategyTest {
         );
         when(mockBeaconCache.getBeaconKeys())
                 .thenReturn(new HashSet<BeaconKey>(Arrays.asList(new BeaconKey(42, 0), new BeaconKey(1, 0))));
+        when(mockBeaconCache.evictLowPriorityRecordsByNumber(any(BeaconKey.class), anyInt())).thenReturn(1);
 
         // when executing the first time
         target.execute();
 
         // then
         verify(mockBeaconCache, times(8)).getNumBytesInCache();
-        verify(mockBeaconCache, times(3)).evictRecordsByNumber(any(BeaconKey.class), eq(1));
+        verify(mockBeaconCache, times(3)).evictLowPriorityRecordsByNumber(any(BeaconKey.class), eq(1));
+    }
+
+    @Test
+    public void executeEvictionEvictsAllRecordsIfNoLowPriorityRecordsAreLeft() {
+        // given
+        BeaconCacheConfiguration configuration = mockBeaconCacheConfig(1000L, 1000L, 2000L);
+        SpaceEvictionStrategy target = new SpaceEvictionStrategy(mockLogger, mockBeaconCache, configuration);
+
+        when(mockBeaconCache.getNumBytesInCache()).thenReturn(
+            configuration.getCacheSizeUpperBound() + 1, // shouldRun method
+            configuration.getCacheSizeUpperBound(), // low priority eviction
+            configuration.getCacheSizeUpperBound(), // low priority eviction
+            configuration.getCacheSizeUpperBound(), // all records eviction
+            configuration.getCacheSizeUpperBound(), // all records eviction
+            configuration.getCacheSizeLowerBound(), // stops already
+            0L // just for safety
+        );
+        BeaconKey key = new BeaconKey(42, 0);
+        when(mockBeaconCache.getBeaconKeys()).thenReturn(new HashSet<BeaconKey>(Arrays.asList(key)));
+        when(mockBeaconCache.evictLowPriorityRecordsByNumber(any(BeaconKey.class), anyInt())).thenReturn(0);
+        when(mockBeaconCache.evictRecordsByNumber(any(BeaconKey.class), anyInt())).thenReturn(1);
+
+        // when
+        target.execute();
+
+        // then
+        verify(mockBeaconCache, times(6)).getNumBytesInCache();
+        verify(mockBeaconCache, times(1)).evictLowPriorityRecordsByNumber(key, 1);
+        verify(mockBeaconCache, times(1)).evictRecordsByNumber(key, 1);
+    }
+
+    @Test
+    public void executeEvictionEvictsPriorityRecordsIfLowerBoundIsNotReachedOtherwise() {
+        // given
+        BeaconCacheConfiguration configuration = mockBeaconCacheConfig(1000L, 1L, 2L);
+        BeaconCacheImpl beaconCache = new BeaconCacheImpl(mockLogger);
+        BeaconKey keyOne = new BeaconKey(1, 0);
+        BeaconKey keyTwo = new BeaconKey(2, 0);
+        beaconCache.addPriorityEventData(keyOne, 1000L, "crash");
+        beaconCache.addEventData(keyTwo, 1000L, "event");
+        beaconCache.addActionData(keyTwo, 1001L, "action");
+        SpaceEvictionStrategy target = new SpaceEvictionStrategy(mockLogger, beaconCache, configuration);
+
+        // when
+        target.execute();
+
+        // then
+        assertThat(beaconCache.getNumBytesInCache(), is(0L));
+        assertThat(beaconCache.getPriorityEvents(keyOne).length, is(0));
+        assertThat(beaconCache.getEvents(keyTwo).length, is(0));
+        assertThat(beaconCache.getActions(keyTwo).length, is(0));
+    }
+
+    @Test
+    public void executeEvictionKeepsPriorityRecordsIfLowerBoundIsReachedByEvictingLowPriorityRecords() {
+        // given
+        BeaconCacheConfiguration configuration = mockBeaconCacheConfig(1000L, 10L, 20L);
+        BeaconCacheImpl beaconCache = new BeaconCacheImpl(mockLogger);
+        BeaconKey keyOne = new BeaconKey(1, 0);
+        BeaconKey keyTwo = new BeaconKey(2, 0);
+        beaconCache.addPriorityEventData(keyOne, 1000L, "crash"); // 10 bytes
+        beaconCache.addEventData(keyTwo, 1000L, "event"); // 10 bytes
+        beaconCache.addActionData(keyTwo, 1001L, "action"); // 12 bytes
+        SpaceEvictionStrategy target = new SpaceEvictionStrategy(mockLogger, beaconCache, configuration);
+
+        // when
+        target.execute();
+
+        // then
+        assertThat(beaconCache.getNumBytesInCache(), is(10L));
+        assertThat(beaconCache.getPriorityEvents(keyOne), is(equalTo(new String[]{"crash"})));
+        assertThat(beaconCache.getEvents(keyTwo).length, is(0));
+        assertThat(beaconCache.getActions(keyTwo).length, is(0));
     }
 
     private BeaconCacheConfiguration mockBeaconCacheConfig(long maxRecordAge, long lowerSizeBound, long upperSizeBound) {
@@ -0,0 +1,219 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.communication;
+
+import com.dynatrace.openkit.api.Logger;
+import com.dynatrace.openkit.core.caching.BeaconCache;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AdaptiveSendIntervalTest {
+
+    private static final long SEND_INTERVAL = 120000L;
+    private static final long UPPER_BOUND = 1000L;
+
+    private Logger mockLogger;
+    private BeaconCache mockBeaconCache;
+
+    @Before
+    public void setUp() {
+        mockLogger = mock(Logger.class);
+        mockBeaconCache = mock(BeaconCache.class);
+    }
+
+    @Test
+    public void serverSendIntervalIsUsedWithoutCachePressureAndLatency() {
+        // given
+        AdaptiveSendInterval target = new AdaptiveSendInterval(mockLogger, mockBeaconCache, UPPER_BOUND);
+
+        // when
+        long obtained = target.calculateSendInterval(SEND_INTERVAL);
+
+        // then
+        assertThat(obtained, is(SEND_INTERVAL));
+        assertThat(target.getEffectiveSendInterval(), is(SEND_INTERVAL));
+        assertThat(target.getNumShortenedIntervals(), is(0L));
+        assertThat(target.getNumStretchedIntervals(), is(0L));
+    }
+
+    @Test
+    public void serverSendIntervalIsUsedWithoutBeaconCache() {
+        // given
+        AdaptiveSendInterval target = new AdaptiveSendInterval(mockLogger, null, UPPER_BOUND);
+
+        // when
+        long obtained = target.calculateSendInterval(SEND_INTERVAL);
+
+        // then
+        assertThat(obtained, is(SEND_INTERVAL));
+        assertThat(target.getCacheFillRatio(), is(0.0));
+    }
+
+    @Test
+    public void nonPositiveSendIntervalIsReturnedUnchanged() {
+        // given
+        when(mockBeaconCache.getNumBytesInCache()).thenReturn(UPPER_BOUND);
+        AdaptiveSendInterval target = new AdaptiveSendInterval(mockLogger, mockBeaconCache, UPPER_BOUND);
+
+        // when, then
+        assertThat(target.calculateSendInterval(0L), is(0L));
+        assertThat(target.calculateSendInterval(-1L), is(-1L));
+        assertThat(target.getEffectiveSendInterval(), is(-1L));
+    }
+
+    @Test
+    public void sendIntervalIsShortenedWhenCacheFillsUp() {
+        // given
+        when(mockBeaconCache.getNumBytesInCache()).thenReturn(500L);
+        AdaptiveSendInterval target = new AdaptiveSendInterval(mockLogger, mockBeaconCache, UPPER_BOUND);
+
+        // when
+        long obtained = target.calculateSendInterval(SEND_INTERVAL);
+
+        // then
+        assertThat(obtained, is(Math.round(SEND_INTERVAL * AdaptiveSendInterval.cachePressureFactor(0.5))));
+        assertThat(obtained < SEND_INTERVAL, is(true));
+        assertThat(target.getCacheFillRatio(), is(0.5));
+        assertThat(target.getNumShortenedIntervals(), is(1L));
+    }
+
+    @Test
+    public void sendIntervalIsShortestWhenCacheIsFull() {
+        // given
+        when(mockBeaconCache.getNumBytesInCache()).thenReturn(2 * UPPER_BOUND);
+        AdaptiveSendInterval target = new AdaptiveSendInterval(mockLogger, mockBeaconCache, UPPER_BOUND);
+
+        // when
+        long obtained = target.calculateSendInterval(SEND_INTERVAL);
+
+        // then
+        assertThat(obtained, is(Math.round(SEND_INTERVAL * AdaptiveSendInterval.MIN_INTERVAL_FACTOR)));
+    }
+
+    @Test
+    public void sendIntervalIsStretchedWhenResponsesAreSlow() {
+        // given
+        AdaptiveSendInterval target = new AdaptiveSendInterval(mockLogger, mockBeaconCache, UPPER_BOUND);
+        target.recordResponseLatency(2 * AdaptiveSendInterval.LATENCY_THRESHOLD_IN_MILLIS);
+
+        // when
+        long obtained = target.calculateSendInterval(SEND_INTERVAL);
+
+        // then
+        assertThat(obtained, is(2 * SEND_INTERVAL));
+        assertThat(target.getNumStretchedIntervals(), is(1L));
+        assertThat(target.getNumShortenedIntervals(), is(0L));
+    }
+
+    @Test
+    public void sendIntervalIsStretchedAtMostByMaxFactor() {
+        // given
+        AdaptiveSendInterval target = new AdaptiveSendInterval(mockLogger, mockBeaconCache, UPPER_BOUND);
+        target.recordResponseLatency(100 * AdaptiveSendInterval.LATENCY_THRESHOLD_IN_MILLIS);
+
+        // when
+        long obtained = target.calculateSendInterval(SEND_INTERVAL);
+
+        // then
+        assertThat(obtained, is(Math.round(SEND_INTERVAL * AdaptiveSendInterval.MAX_INTERVAL_FACTOR)));
+    }
+
+    @Test
+    public void cachePressureAndLatencyAreCombined() {
+        // given
+        when(mockBeaconCache.getNumBytesInCache()).thenReturn(UPPER_BOUND);
+        AdaptiveSendInterval target = new AdaptiveSendInterval(mockLogger, mockBeaconCache, UPPER_BOUND);
+        target.recordResponseLatency(2 * AdaptiveSendInterval.LATENCY_THRESHOLD_IN_MILLIS);
+
+        // when
+        long obtained = target.calculateSendInterval(SEND_INTERVAL);
+
+        // then
+        assertThat(obtained, is(Math.round(SEND_INTERVAL * AdaptiveSendInterval.MIN_INTERVAL_FACTOR * 2)));
+    }
+
+    @Test
+    public void averageResponseLatencyIsExponentiallyWeighted() {
+        // given
+        AdaptiveSendInterval target = new AdaptiveSendInterval(mockLogger, mockBeaconCache, UPPER_BOUND);
+        assertThat(target.getAverageResponseLatency(), is(-1.0));
+
+        // when
+        target.recordResponseLatency(1000L);
+        target.recordResponseLatency(2000L);
+
+        // then
+        double expected = 1000.0 + AdaptiveSendInterval.LATENCY_SMOOTHING_FACTOR * 1000.0;
+        assertThat(target.getAverageResponseLatency(), is(closeTo(expected, 0.0001)));
+    }
+
+    @Test
+    public void negativeLatencyIsRecordedAsZero() {
+        // given
+        AdaptiveSendInterval target = new AdaptiveSendInterval(mockLogger, mockBeaconCache, UPPER_BOUND);
+
+        // when
+        target.recordResponseLatency(-5L);
+
+        // then
+        assertThat(target.getAverageResponseLatency(), is(0.0));
+    }
+
+    @Test
+    public void onlyChangesOfTheSendIntervalAreCounted() {
+        // given
+        when(mockBeaconCache.getNumBytesInCache()).thenReturn(UPPER_BOUND, UPPER_BOUND, 0L);
+        AdaptiveSendInterval target = new AdaptiveSendInterval(mockLogger, mockBeaconCache, UPPER_BOUND);
+
+        // when
+        target.calculateSendInterval(SEND_INTERVAL);
+        target.calculateSendInterval(SEND_INTERVAL);
+        target.calculateSendInterval(SEND_INTERVAL);
+
+        // then
+        assertThat(target.getNumShortenedIntervals(), is(1L));
+        assertThat(target.getNumStretchedIntervals(), is(1L));
+        assertThat(target.getEffectiveSendInterval(), is(SEND_INTERVAL));
+    }
+
+    @Test
+    public void cachePressureFactorDecreasesLinearly() {
+        // when, then
+        assertThat(AdaptiveSendInterval.cachePressureFactor(0.0), is(1.0));
+        assertThat(AdaptiveSendInterval.cachePressureFactor(AdaptiveSendInterval.CACHE_PRESSURE_START_RATIO), is(1.0));
+        assertThat(AdaptiveSendInterval.cachePressureFactor(0.5), is(closeTo(0.625, 0.0001)));
+        assertThat(AdaptiveSendInterval.cachePressureFactor(AdaptiveSendInterval.CACHE_PRESSURE_FULL_RATIO),
+                is(AdaptiveSendInterval.MIN_INTERVAL_FACTOR));
+    }
+
+    @Test
+    public void latencyFactorGrowsProportionallyAboveThreshold() {
+        // when, then
+        assertThat(AdaptiveSendInterval.latencyFactor(-1.0), is(1.0));
+        assertThat(AdaptiveSendInterval.latencyFactor(AdaptiveSendInterval.LATENCY_THRESHOLD_IN_MILLIS), is(1.0));
+        assertThat(AdaptiveSendInterval.latencyFactor(1.5 * AdaptiveSendInterval.LATENCY_THRESHOLD_IN_MILLIS),
+                is(1.5));
+        assertThat(AdaptiveSendInterval.latencyFactor(10.0 * AdaptiveSendInterval.LATENCY_THRESHOLD_IN_MILLIS),
+                is(AdaptiveSendInterval.MAX_INTERVAL_FACTOR));
+    }
+}
@@ -17,6 +17,7 @@
 package com.dynatrace.openkit.core.communication;
 
 import com.dynatrace.openkit.api.Logger;
+import com.dynatrace.openkit.core.caching.BeaconOutbox;
 import com.dynatrace.openkit.core.configuration.ServerConfiguration;
 import com.dynatrace.openkit.core.objects.SessionImpl;
 import com.dynatrace.openkit.protocol.AdditionalQueryParameters;
@@ -28,6 +29,9 @@ import com.dynatrace.openkit.providers.HTTPClientProvider;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import java.util.Arrays;
 import java.util.Collections;
@@ -36,9 +40,15 @@ import java.util.List;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -85,8 +95,11 @@ public class BeaconSendingCaptureOnStateTest {
         when(mockContext.getCurrentTimestamp()).thenReturn(42L);
         when(mockContext.getAllNotConfiguredSessions()).thenReturn(Collections.<SessionImpl>emptyList());
         when(mockContext.getAllOpenAndConfiguredSessions()).thenReturn(Arrays.asList(mockSession1Open, mockSession2Open));
+        when(mockContext.takeOpenSessionsDueForSending(anyLong())).thenReturn(Arrays.asList(mockSession1Open, mockSession2Open));
+        when(mockContext.takeAllOpenSessionsForSending(anyLong())).thenReturn(Arrays.asList(mockSession1Open, mockSession2Open));
         when(mockContext.getAllFinishedAndConfiguredSessions()).thenReturn(Arrays.asList(mockSession3Finished, mockSession4Finished));
         when(mockContext.getHTTPClientProvider()).thenReturn(mockHTTPClientProvider);
+        when(mockContext.getWorkerPool()).thenReturn(new BeaconSendingWorkerPool(mock(Logger.class), 1));
     }
 
     @Test
@@ -118,7 +131,7 @@ public class BeaconSendingCaptureOnStateTest {
     }
 
     @Test
-    public void newSessionRequestsAreMadeForNotConfiguredNewSessions() {
+    public void singleNewSessionRequestIsMadeForAllNotConfiguredNewSessions() {
         // given
         BeaconSendingCaptureOnState target = new BeaconSendingCaptureOnState();
 
@@ -133,9 +146,7 @@ public class BeaconSendingCaptureOnStateTest {
         when(mockContext.getHTTPClient()).thenReturn(mockClient);
         when(mockContext.getAllNotConfiguredSessions()).thenReturn(Arrays.asList(mockSession5New, mockSession6New));
         when(mockContext.updateFrom(any(StatusResponse.class))).thenReturn(successResponse.getResponseAttributes());
-        when(mockClient.sendNewSessionRequest(any(AdditionalQueryParameters.class)))
-                .thenReturn(successResponse) // first response valid
-                .thenReturn(StatusResponse.createErrorResponse(mock(Logger.class), StatusResponse.HTTP_BAD_REQUEST)); // second response invalid
+        when(mockClient.sendNewSessionRequest(any(AdditionalQueryParameters.class))).thenReturn(successResponse);
         when(mockSession5New.canSendNewSessionRequest()).thenReturn(true);
         when(mockSession6New.canSendNewSessionRequest()).thenReturn(true);
 
@@ -144,15 +155,70 @@ public class BeaconSendingCaptureOnStateTest {
         // when
         target.execute(mockContext);
 
-        // verify for both new sessions a new session request has been made
-        verify(mockClient, times(2)).sendNewSessionRequest(mockContext);
+        // verify a single new session request has been made for both new sessions
+        verify(mockClient, times(1)).sendNewSessionRequest(mockContext);
+        verify(mockContext, times(1)).updateFrom(successResponse);
 
-        // verify first has been updated, second decreased
+        // verify both have been updated with the same configuration
         verify(mockSession5New, times(1)).updateServerConfiguration(serverConfigCaptor.capture());
+        verify(mockSession6New, times(1)).updateServerConfiguration(serverConfigCaptor.capture());
         assertThat(serverConfigCaptor.getAllValues().get(0).getMultiplicity(), is(equalTo(5)));
+        assertThat(serverConfigCaptor.getAllValues().get(1), is(sameInstance(serverConfigCaptor.getAllValues().get(0))));
+        verify(mockSession5New, times(0)).decreaseNumRemainingSessionRequests();
+        verify(mockSession6New, times(0)).decreaseNumRemainingSessionRequests();
+    }
+
+    @Test
+    public void unsuccessfulNewSessionRequestDecreasesRemainingRequestsOfAllPendingSessions() {
+        // given
+        BeaconSendingCaptureOnState target = new BeaconSendingCaptureOnState();
+
+        HTTPClient mockClient = mock(HTTPClient.class);
+        when(mockContext.getHTTPClient()).thenReturn(mockClient);
+        when(mockContext.getAllNotConfiguredSessions()).thenReturn(Arrays.asList(mockSession5New, mockSession6New));
+        when(mockClient.sendNewSessionRequest(any(AdditionalQueryParameters.class)))
+                .thenReturn(StatusResponse.createErrorResponse(mock(Logger.class), StatusResponse.HTTP_BAD_REQUEST));
+        when(mockSession5New.canSendNewSessionRequest()).thenReturn(true);
+        when(mockSession6New.canSendNewSessionRequest()).thenReturn(true);
+
+        // when
+        target.execute(mockContext);
 
-        // verify for beacon 6 only the number of tries was decreased
+        // then
+        verify(mockClient, times(1)).sendNewSessionRequest(mockContext);
+        verify(mockSession5New, times(1)).decreaseNumRemainingSessionRequests();
         verify(mockSession6New, times(1)).decreaseNumRemainingSessionRequests();
+        verify(mockSession5New, times(0)).updateServerConfiguration(any(ServerConfiguration.class));
+        verify(mockSession6New, times(0)).updateServerConfiguration(any(ServerConfiguration.class));
+    }
+
+    @Test
+    public void newSessionRequestIsOnlyAppliedToSessionsAllowedToSendNewSessionRequests() {
+        // given
+        BeaconSendingCaptureOnState target = new BeaconSendingCaptureOnState();
+
+        StatusResponse successResponse = StatusResponse.createSuccessResponse(
+                mock(Logger.class),
+                ResponseAttributesImpl.withJsonDefaults().withMultiplicity(5).build(),
+                200,
+                Collections.<String, List<String>>emptyMap()
+        );
+        HTTPClient mockClient = mock(HTTPClient.class);
+        when(mockContext.getHTTPClient()).thenReturn(mockClient);
+        when(mockContext.getAllNotConfiguredSessions()).thenReturn(Arrays.asList(mockSession5New, mockSession6New));
+        when(mockContext.updateFrom(any(StatusResponse.class))).thenReturn(successResponse.getResponseAttributes());
+        when(mockClient.sendNewSessionRequest(any(AdditionalQueryParameters.class))).thenReturn(successResponse);
+        when(mockSession5New.canSendNewSessionRequest()).thenReturn(false);
+        when(mockSession6New.canSendNewSessionRequest()).thenReturn(true);
+
+        // when
+        target.execute(mockContext);
+
+        // then
+        verify(mockClient, times(1)).sendNewSessionRequest(mockContext);
+        verify(mockSession5New, times(1)).disableCapture();
+        verify(mockSession5New, times(0)).updateServerConfiguration(any(ServerConfiguration.class));
+        verify(mockSession6New, times(1)).updateServerConfiguration(any(ServerConfiguration.class));
     }
 
     @Test
@@ -263,15 +329,13 @@ public class BeaconSendingCaptureOnStateTest {
         // when
         target.execute(mockContext);
 
-        // verify for first new sessions a new session request has been made
+        // verify a single new session request has been made
         verify(mockClient, times(1)).sendNewSessionRequest(mockContext);
 
-        // verify no changes on first
+        // verify no changes on new sessions, too many requests does not count as attempt
         verify(mockSession5New, times(1)).canSendNewSessionRequest();
-        verifyNoMoreInteractions(mockSession5New);
-
-        // verify second new session was not used at all
-        verifyZeroInteractions(mockSession6New);
+        verify(mockSession6New, times(1)).canSendNewSessionRequest();
+        verifyNoMoreInteractions(mockSession5New, mockSession6New);
 
         // verify any other session was not invoked
         verifyZeroInteractions(mockSession1Open, mockSession2Open, mockSession3Finished, mockSession4Finished);
@@ -459,6 +523,22 @@ public class BeaconSendingCaptureOnStateTest {
         verify(mockContext, times(1)).setLastOpenSessionBeaconSendTime(org.mockito.Matchers.anyLong());
     }
 
+    @Test
+    public void responseLatencyIsRecordedForEachSentBeacon() {
+        //given
+        BeaconSendingCaptureOnState target = new BeaconSendingCaptureOnState();
+        when(mockContext.getAllFinishedAndConfiguredSessions()).thenReturn(Collections.<SessionImpl>emptyList());
+        when(mockSession2Open.isDataSendingAllowed()).thenReturn(true);
+        when(mockSession2Open.sendBeacon(any(HTTPClientProvider.class), any(AdditionalQueryParameters.class)))
+                .thenReturn(null); // nothing was sent
+
+        //when calling execute
+        target.execute(mockContext);
+
+        // then
+        verify(mockContext, times(1)).recordResponseLatency(0L);
+    }
+
     @Test
     public void aBeaconSendingCaptureOnStateClearsOpenSessionDataIfSendingIsNotAllowed() {
         //given
@@ -528,4 +608,384 @@ public class BeaconSendingCaptureOnStateTest {
 
         verify(mockContext, times(1)).setNextState(isA(BeaconSendingCaptureOffState.class));
     }
+
+    @Test
+    public void openSessionsAreNotSentBeforeTheirSendTime() {
+        //given
+        BeaconSendingCaptureOnState target = new BeaconSendingCaptureOnState();
+        when(mockContext.takeOpenSessionsDueForSending(anyLong())).thenReturn(Collections.<SessionImpl>emptyList());
+
+        //when calling execute
+        target.execute(mockContext);
+
+        //then
+        verify(mockSession1Open, times(0))
+                .sendBeacon(any(HTTPClientProvider.class), any(AdditionalQueryParameters.class));
+        verify(mockContext, times(0)).setLastOpenSessionBeaconSendTime(org.mockito.Matchers.anyLong());
+    }
+
+    @Test
+    public void allOpenSessionsAreSentBeforeTheirSendTimeIfRequested() {
+        //given
+        BeaconSendingCaptureOnState target = new BeaconSendingCaptureOnState();
+        when(mockContext.takeOpenSessionsDueForSending(anyLong())).thenReturn(Collections.<SessionImpl>emptyList());
+        when(mockContext.takeOpenSessionsSendRequest()).thenReturn(true);
+        when(mockSession2Open.isDataSendingAllowed()).thenReturn(true);
+
+        //when calling execute
+        target.execute(mockContext);
+
+        //then
+        verify(mockSession1Open, times(1))
+                .sendBeacon(any(HTTPClientProvider.class), any(AdditionalQueryParameters.class));
+        verify(mockSession2Open, times(1))
+                .sendBeacon(any(HTTPClientProvider.class), any(AdditionalQueryParameters.class));
+        verify(mockContext, times(1)).takeAllOpenSessionsForSending(42L);
+        verify(mockContext, times(0)).takeOpenSessionsDueForSending(anyLong());
+        verify(mockContext, times(1)).setLastOpenSessionBeaconSendTime(42L);
+    }
+
+    @Test
+    public void onlyOpenSessionsDueForSendingAreSent() {
+        //given
+        BeaconSendingCaptureOnState target = new BeaconSendingCaptureOnState();
+        when(mockContext.takeOpenSessionsDueForSending(anyLong())).thenReturn(Collections.singletonList(mockSession2Open));
+        when(mockSession2Open.isDataSendingAllowed()).thenReturn(true);
+
+        //when calling execute
+        target.execute(mockContext);
+
+        //then
+        verify(mockContext, times(1)).takeOpenSessionsDueForSending(42L);
+        verify(mockSession1Open, times(0))
+                .sendBeacon(any(HTTPClientProvider.class), any(AdditionalQueryParameters.class));
+        verify(mockSession2Open, times(1))
+                .sendBeacon(any(HTTPClientProvider.class), any(AdditionalQueryParameters.class));
+        verify(mockContext, times(1)).setLastOpenSessionBeaconSendTime(42L);
+    }
+
+    @Test
+    public void priorityDataOfOpenSessionsIsSentIfRequested() {
+        //given
+        BeaconSendingCaptureOnState target = new BeaconSendingCaptureOnState();
+        when(mockContext.takeOpenSessionsDueForSending(anyLong())).thenReturn(Collections.<SessionImpl>emptyList());
+        when(mockContext.takePriorityDataSendRequest()).thenReturn(true);
+        when(mockSession1Open.hasPriorityData()).thenReturn(true);
+        when(mockSession2Open.isDataSendingAllowed()).thenReturn(true);
+
+        //when calling execute
+        target.execute(mockContext);
+
+        //then
+        verify(mockSession1Open, times(1))
+                .sendPriorityData(any(HTTPClientProvider.class), any(AdditionalQueryParameters.class));
+        verify(mockSession1Open, times(0))
+                .sendBeacon(any(HTTPClientProvider.class), any(AdditionalQueryParameters.class));
+        verify(mockSession2Open, times(0))
+                .sendPriorityData(any(HTTPClientProvider.class), any(AdditionalQueryParameters.class));
+        verify(mockSession2Open, times(0))
+                .sendBeacon(any(HTTPClientProvider.class), any(AdditionalQueryParameters.class));
+        verify(mockContext, times(0)).setLastOpenSessionBeaconSendTime(org.mockito.Matchers.anyLong());
+    }
+
+    @Test
+    public void priorityDataOfOpenSessionsIsNotSentIfNotRequested() {
+        //given
+        BeaconSendingCaptureOnState target = new BeaconSendingCaptureOnState();
+        when(mockContext.takeOpenSessionsDueForSending(anyLong())).thenReturn(Collections.<SessionImpl>emptyList());
+        when(mockSession1Open.hasPriorityData()).thenReturn(true);
+
+        //when calling execute
+        target.execute(mockContext);
+
+        //then
+        verify(mockSession1Open, times(0))
+                .sendPriorityData(any(HTTPClientProvider.class), any(AdditionalQueryParameters.class));
+    }
+
+    @Test
+    public void sendingPriorityDataIsAbortedImmediatelyWhenTooManyRequestsResponseIsReceived() {
+        //given
+        StatusResponse statusResponse = mock(StatusResponse.class);
+        when(statusResponse.getResponseCode()).thenReturn(StatusResponse.HTTP_TOO_MANY_REQUESTS);
+        when(statusResponse.isErroneousResponse()).thenReturn(true);
+        when(statusResponse.getRetryAfterInMilliseconds()).thenReturn(12345L);
+
+        when(mockSession1Open.sendPriorityData(any(HTTPClientProvider.class), any(AdditionalQueryParameters.class)))
+                .thenReturn(statusResponse);
+        when(mockSession1Open.hasPriorityData()).thenReturn(true);
+        when(mockContext.takePriorityDataSendRequest()).thenReturn(true);
+
+        BeaconSendingCaptureOnState target = new BeaconSendingCaptureOnState();
+
+        //when calling execute
+        target.execute(mockContext);
+
+        //then finished sessions are not sent
+        verifyZeroInteractions(mockSession3Finished, mockSession4Finished);
+
+        // ensure also transition to CaptureOffState
+        ArgumentCaptor<BeaconSendingCaptureOffState> argumentCaptor = ArgumentCaptor.forClass(BeaconSendingCaptureOffState.class);
+        verify(mockContext, times(1)).setNextState(argumentCaptor.capture());
+        assertThat(argumentCaptor.getAllValues().get(0).sleepTimeInMilliseconds, is(equalTo(12345L)));
+    }
+
+    @Test
+    public void executeWaitsForCalculatedSleepTime() throws InterruptedException {
+        //given
+        BeaconSendingCaptureOnState target = new BeaconSendingCaptureOnState();
+        when(mockContext.hasNotConfiguredSessions()).thenReturn(true);
+
+        //when calling execute
+        target.execute(mockContext);
+
+        //then
+        verify(mockContext, times(1)).waitForWakeUp(BeaconSendingContext.DEFAULT_SLEEP_TIME_MILLISECONDS);
+    }
+
+    @Test
+    public void executeUpdatesEffectiveSendIntervalOnceAfterWaiting() throws InterruptedException {
+        //given
+        BeaconSendingCaptureOnState target = new BeaconSendingCaptureOnState();
+
+        //when calling execute
+        target.execute(mockContext);
+
+        //then
+        InOrder inOrder = inOrder(mockContext);
+        inOrder.verify(mockContext, times(1)).waitForWakeUp(anyLong());
+        inOrder.verify(mockContext, times(1)).updateEffectiveSendInterval();
+        inOrder.verify(mockContext, times(1)).takeOpenSessionsDueForSending(anyLong());
+    }
+
+    @Test
+    public void sleepTimeIsIndefiniteWithoutSessions() {
+        //when
+        long obtained = BeaconSendingCaptureOnState.calculateSleepTime(mockContext);
+
+        //then
+        assertThat(obtained, is(BeaconSendingContext.WAIT_INDEFINITELY));
+    }
+
+    @Test
+    public void sleepTimeIsDefaultSleepTimeWithNotConfiguredSessions() {
+        //given
+        when(mockContext.hasNotConfiguredSessions()).thenReturn(true);
+        when(mockContext.hasOpenAndConfiguredSessions()).thenReturn(true);
+
+        //when
+        long obtained = BeaconSendingCaptureOnState.calculateSleepTime(mockContext);
+
+        //then
+        assertThat(obtained, is(BeaconSendingContext.DEFAULT_SLEEP_TIME_MILLISECONDS));
+    }
+
+    @Test
+    public void sleepTimeIsDefaultSleepTimeWithRemainingFinishedSessions() {
+        //given
+        when(mockContext.hasFinishedAndConfiguredSessions()).thenReturn(true);
+
+        //when
+        long obtained = BeaconSendingCaptureOnState.calculateSleepTime(mockContext);
+
+        //then
+        assertThat(obtained, is(BeaconSendingContext.DEFAULT_SLEEP_TIME_MILLISECONDS));
+    }
+
+    @Test
+    public void sleepTimeIsDefaultSleepTimeWithDataInOutbox() {
+        //given
+        BeaconOutbox outbox = mock(BeaconOutbox.class);
+        when(outbox.isEmpty()).thenReturn(false);
+        when(mockContext.getOutbox()).thenReturn(outbox);
+
+        //when
+        long obtained = BeaconSendingCaptureOnState.calculateSleepTime(mockContext);
+
+        //then
+        assertThat(obtained, is(BeaconSendingContext.DEFAULT_SLEEP_TIME_MILLISECONDS));
+    }
+
+    @Test
+    public void outboxIsDrainedWithCompressedBeaconRequests() throws InterruptedException {
+        //given
+        final byte[] compressedData = {1, 2, 3};
+        BeaconOutbox outbox = mockOutboxDraining("127.0.0.1", 42, compressedData);
+        when(mockContext.getOutbox()).thenReturn(outbox);
+        HTTPClient httpClient = mock(HTTPClient.class);
+        when(httpClient.sendCompressedBeaconRequest(anyString(), any(byte[].class), any(AdditionalQueryParameters.class)))
+                .thenReturn(StatusResponse.createSuccessResponse(mock(Logger.class),
+                        ResponseAttributesImpl.withJsonDefaults().build(), 200, Collections.<String, List<String>>emptyMap()));
+        when(mockContext.getHTTPClient(42)).thenReturn(httpClient);
+
+        BeaconSendingCaptureOnState target = new BeaconSendingCaptureOnState();
+
+        //when calling execute
+        target.execute(mockContext);
+
+        //then
+        verify(outbox, times(1)).drain(any(BeaconOutbox.RecordSender.class),
+                eq(BeaconSendingCaptureOnState.MAX_OUTBOX_RECORDS_PER_EXECUTION));
+        verify(httpClient, times(1)).sendCompressedBeaconRequest("127.0.0.1", compressedData, mockContext);
+    }
+
+    @Test
+    public void outboxIsNotDrainedIfServerRespondedWithError() throws InterruptedException {
+        //given
+        BeaconOutbox outbox = mock(BeaconOutbox.class);
+        when(outbox.isEmpty()).thenReturn(false);
+        when(mockContext.getOutbox()).thenReturn(outbox);
+        when(mockSession3Finished.isDataSendingAllowed()).thenReturn(true);
+        when(mockSession3Finished.sendBeacon(any(HTTPClientProvider.class), any(AdditionalQueryParameters.class)))
+                .thenReturn(StatusResponse.createErrorResponse(mock(Logger.class), 500));
+        when(mockContext.takeOpenSessionsDueForSending(anyLong())).thenReturn(Collections.<SessionImpl>emptyList());
+
+        BeaconSendingCaptureOnState target = new BeaconSendingCaptureOnState();
+
+        //when calling execute
+        target.execute(mockContext);
+
+        //then
+        verify(outbox, times(0)).drain(any(BeaconOutbox.RecordSender.class), anyInt());
+    }
+
+    @Test
+    public void tooManyRequestsResponseWhileDrainingOutboxTransitionsToCaptureOffState() throws InterruptedException {
+        //given
+        BeaconOutbox outbox = mockOutboxDraining(null, 0, new byte[]{1});
+        when(mockContext.getOutbox()).thenReturn(outbox);
+        StatusResponse tooManyRequestsResponse = mock(StatusResponse.class);
+        when(tooManyRequestsResponse.getResponseCode()).thenReturn(StatusResponse.HTTP_TOO_MANY_REQUESTS);
+        when(tooManyRequestsResponse.getRetryAfterInMilliseconds()).thenReturn(1234L);
+        HTTPClient httpClient = mock(HTTPClient.class);
+        when(httpClient.sendCompressedBeaconRequest(anyString(), any(byte[].class), any(AdditionalQueryParameters.class)))
+                .thenReturn(tooManyRequestsResponse);
+        when(mockContext.getHTTPClient(anyInt())).thenReturn(httpClient);
+
+        BeaconSendingCaptureOnState target = new BeaconSendingCaptureOnState();
+
+        //when calling execute
+        target.execute(mockContext);
+
+        //then
+        ArgumentCaptor<AbstractBeaconSendingState> argumentCaptor = ArgumentCaptor.forClass(AbstractBeaconSendingState.class);
+        verify(mockContext, times(1)).setNextState(argumentCaptor.capture());
+        assertThat(argumentCaptor.getValue(), is(instanceOf(BeaconSendingCaptureOffState.class)));
+        assertThat(((BeaconSendingCaptureOffState) argumentCaptor.getValue()).sleepTimeInMilliseconds, is(equalTo(1234L)));
+    }
+
+    @Test
+    public void outboxRecordsAreSentWithTheirRoutingKey() throws InterruptedException {
+        //given
+        final byte[] firstData = {1};
+        final byte[] secondData = {2};
+        final byte[] thirdData = {3};
+        BeaconOutbox outbox = mock(BeaconOutbox.class);
+        when(outbox.isEmpty()).thenReturn(false);
+        when(outbox.drain(any(BeaconOutbox.RecordSender.class), anyInt())).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) {
+                BeaconOutbox.RecordSender sender = (BeaconOutbox.RecordSender) invocation.getArguments()[0];
+                sender.send(null, 17, firstData);
+                sender.send(null, 17, secondData);
+                sender.send(null, 42, thirdData);
+                return 3;
+            }
+        });
+        when(mockContext.getOutbox()).thenReturn(outbox);
+        StatusResponse response = StatusResponse.createSuccessResponse(mock(Logger.class),
+                ResponseAttributesImpl.withJsonDefaults().build(), 200, Collections.<String, List<String>>emptyMap());
+        HTTPClient firstClient = mock(HTTPClient.class);
+        when(firstClient.sendCompressedBeaconRequest(anyString(), any(byte[].class), any(AdditionalQueryParameters.class)))
+                .thenReturn(response);
+        HTTPClient secondClient = mock(HTTPClient.class);
+        when(secondClient.sendCompressedBeaconRequest(anyString(), any(byte[].class), any(AdditionalQueryParameters.class)))
+                .thenReturn(response);
+        when(mockContext.getHTTPClient(17)).thenReturn(firstClient);
+        when(mockContext.getHTTPClient(42)).thenReturn(secondClient);
+
+        BeaconSendingCaptureOnState target = new BeaconSendingCaptureOnState();
+
+        //when calling execute
+        target.execute(mockContext);
+
+        //then
+        verify(mockContext, times(1)).getHTTPClient(17);
+        verify(mockContext, times(1)).getHTTPClient(42);
+        verify(firstClient, times(1)).sendCompressedBeaconRequest(null, firstData, mockContext);
+        verify(firstClient, times(1)).sendCompressedBeaconRequest(null, secondData, mockContext);
+        verify(secondClient, times(1)).sendCompressedBeaconRequest(null, thirdData, mockContext);
+    }
+
+    private static BeaconOutbox mockOutboxDraining(final String clientIPAddress, final int routingKey,
+                                                   final byte[] compressedData) {
+        BeaconOutbox outbox = mock(BeaconOutbox.class);
+        when(outbox.isEmpty()).thenReturn(false);
+        when(outbox.drain(any(BeaconOutbox.RecordSender.class), anyInt())).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) {
+                BeaconOutbox.RecordSender sender = (BeaconOutbox.RecordSender) invocation.getArguments()[0];
+                return sender.send(clientIPAddress, routingKey, compressedData) ? 1 : 0;
+            }
+        });
+        return outbox;
+    }
+
+    @Test
+    public void sleepTimeIsTimeUntilNextOpenSessionIsDueWithOpenSessions() {
+        //given
+        when(mockContext.hasOpenAndConfiguredSessions()).thenReturn(true);
+        when(mockContext.getNextOpenSessionSendTime()).thenReturn(1041L);
+
+        //when
+        long obtained = BeaconSendingCaptureOnState.calculateSleepTime(mockContext);
+
+        //then
+        assertThat(obtained, is(999L));
+    }
+
+    @Test
+    public void sleepTimeIsZeroIfNextOpenSessionIsAlreadyDue() {
+        //given
+        when(mockContext.hasOpenAndConfiguredSessions()).thenReturn(true);
+        when(mockContext.getNextOpenSessionSendTime()).thenReturn(10L);
+
+        //when
+        long obtained = BeaconSendingCaptureOnState.calculateSleepTime(mockContext);
+
+        //then
+        assertThat(obtained, is(0L));
+    }
+
+    @Test
+    public void openAndFinishedSessionsAreSentByMultipleWorkers() {
+        //given
+        BeaconSendingWorkerPool workerPool = new BeaconSendingWorkerPool(mock(Logger.class), 2);
+        when(mockContext.getWorkerPool()).thenReturn(workerPool);
+        when(mockSession2Open.isDataSendingAllowed()).thenReturn(true);
+        when(mockSession3Finished.isDataSendingAllowed()).thenReturn(true);
+        when(mockSession4Finished.isDataSendingAllowed()).thenReturn(true);
+        StatusResponse statusResponse = mock(StatusResponse.class);
+        when(statusResponse.getResponseCode()).thenReturn(StatusResponse.HTTP_OK);
+        when(mockSession3Finished.sendBeacon(any(HTTPClientProvider.class), any(AdditionalQueryParameters.class)))
+                .thenReturn(statusResponse);
+        when(mockSession4Finished.sendBeacon(any(HTTPClientProvider.class), any(AdditionalQueryParameters.class)))
+                .thenReturn(statusResponse);
+        BeaconSendingCaptureOnState target = new BeaconSendingCaptureOnState();
+
+        //when calling execute
+        try {
+            target.execute(mockContext);
+        } finally {
+            workerPool.shutdown();
+        }
+
+        //then
+        verify(mockSession1Open, times(1))
+                .sendBeacon(any(HTTPClientProvider.class), any(AdditionalQueryParameters.class));
+        verify(mockSession2Open, times(1))
+                .sendBeacon(any(HTTPClientProvider.class), any(AdditionalQueryParameters.class));
+        verify(mockContext, times(1)).removeSession(mockSession3Finished);
+        verify(mockContext, times(1)).removeSession(mockSession4Finished);
+    }
 }
@@ -18,10 +18,13 @@ package com.dynatrace.openkit.core.communication;
 
 import com.dynatrace.openkit.api.Logger;
 import com.dynatrace.openkit.api.SSLTrustManager;
+import com.dynatrace.openkit.core.caching.BeaconOutbox;
+import com.dynatrace.openkit.core.caching.ServerConfigurationStore;
 import com.dynatrace.openkit.core.configuration.HTTPClientConfiguration;
 import com.dynatrace.openkit.core.configuration.ServerConfiguration;
 import com.dynatrace.openkit.core.objects.SessionImpl;
 import com.dynatrace.openkit.core.objects.SessionState;
+import com.dynatrace.openkit.core.objects.SessionStateListener;
 import com.dynatrace.openkit.protocol.AdditionalQueryParameters;
 import com.dynatrace.openkit.protocol.HTTPClient;
 import com.dynatrace.openkit.protocol.ResponseAttributes;
@@ -33,28 +36,49 @@ import com.dynatrace.openkit.providers.TimingProvider;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
 
 public class BeaconSendingContextTest {
 
@@ -376,6 +400,66 @@ public class BeaconSendingContextTest {
         verifyNoMoreInteractions(timingProvider);
     }
 
+    @Test
+    public void sleepReturnsImmediatelyIfShutdownWasRequested() throws InterruptedException {
+        // given
+        BeaconSendingContext target = createBeaconSendingContext().build();
+        target.requestShutdown();
+
+        // when
+        target.sleep(1234L);
+
+        // then
+        verify(timingProvider, never()).sleep(anyLong());
+    }
+
+    @Test
+    public void requestShutdownInterruptsSleepingThread() throws InterruptedException {
+        // given
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws InterruptedException {
+                Thread.sleep((Long) invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(timingProvider).sleep(anyLong());
+        final BeaconSendingContext target = createBeaconSendingContext().build();
+        final AtomicBoolean isInterrupted = new AtomicBoolean(false);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    target.sleep(TimeUnit.MINUTES.toMillis(1));
+                } catch (InterruptedException e) {
+                    isInterrupted.set(true);
+                }
+            }
+        });
+        thread.start();
+        verify(timingProvider, timeout(5000)).sleep(anyLong());
+
+        // when
+        target.requestShutdown();
+        thread.join(TimeUnit.SECONDS.toMillis(5));
+
+        // then
+        assertThat(thread.isAlive(), is(false));
+        assertThat(isInterrupted.get(), is(true));
+    }
+
+    @Test
+    public void requestShutdownDoesNotInterruptThreadWhichIsNotSleeping() throws InterruptedException {
+        // given
+        BeaconSendingContext target = createBeaconSendingContext().build();
+        target.sleep(1L);
+
+        // when
+        target.requestShutdown();
+
+        // then
+        assertThat(Thread.interrupted(), is(false));
+    }
+
     @Test
     public void aDefaultConstructedContextDoesNotStoreAnySessions() {
         // given, when
@@ -387,6 +471,248 @@ public class BeaconSendingContextTest {
         assertThat(target.getAllFinishedAndConfiguredSessions(), is(empty()));
     }
 
+    @Test
+    public void waitForWakeUpReturnsImmediatelyIfWokenUpBefore() throws InterruptedException {
+        // given
+        BeaconSendingContext target = createBeaconSendingContext().build();
+        target.wakeUp();
+
+        // when
+        long start = System.currentTimeMillis();
+        target.waitForWakeUp(BeaconSendingContext.WAIT_INDEFINITELY);
+
+        // then
+        assertThat(System.currentTimeMillis() - start, is(lessThan(1000L)));
+    }
+
+    @Test
+    public void waitForWakeUpReturnsAfterTimeout() throws InterruptedException {
+        // given
+        BeaconSendingContext target = createBeaconSendingContext().build();
+
+        // when
+        long start = System.currentTimeMillis();
+        target.waitForWakeUp(50L);
+
+        // then
+        assertThat(System.currentTimeMillis() - start, is(greaterThanOrEqualTo(50L)));
+    }
+
+    @Test
+    public void waitForWakeUpConsumesWakeUp() throws InterruptedException {
+        // given
+        BeaconSendingContext target = createBeaconSendingContext().build();
+        target.wakeUp();
+        target.waitForWakeUp(0L);
+
+        // when
+        long start = System.currentTimeMillis();
+        target.waitForWakeUp(50L);
+
+        // then
+        assertThat(System.currentTimeMillis() - start, is(greaterThanOrEqualTo(50L)));
+    }
+
+    @Test
+    public void waitForWakeUpReturnsWhenWokenUpFromOtherThread() throws InterruptedException {
+        // given
+        final BeaconSendingContext target = createBeaconSendingContext().build();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                target.wakeUp();
+            }
+        });
+
+        // when
+        thread.start();
+        target.waitForWakeUp(BeaconSendingContext.WAIT_INDEFINITELY);
+        thread.join();
+
+        // then
+        assertThat(thread.isAlive(), is(false));
+    }
+
+    @Test
+    public void addSessionWakesUpBeaconSendingThread() throws InterruptedException {
+        // given
+        BeaconSendingContext target = createBeaconSendingContext().build();
+
+        // when
+        target.addSession(mock(SessionImpl.class));
+
+        // then returns immediately
+        target.waitForWakeUp(BeaconSendingContext.WAIT_INDEFINITELY);
+    }
+
+    @Test
+    public void requestShutdownWithTimeoutSetsShutdownDeadline() {
+        // given
+        when(timingProvider.provideTimestampInMilliseconds()).thenReturn(1000L, 1999L, 2000L);
+        BeaconSendingContext target = createBeaconSendingContext().build();
+        assertThat(target.isShutdownDeadlineExceeded(), is(false));
+
+        // when
+        target.requestShutdown(1000L);
+
+        // then
+        assertThat(target.isShutdownRequested(), is(true));
+        assertThat(target.isShutdownDeadlineExceeded(), is(false));
+        assertThat(target.isShutdownDeadlineExceeded(), is(true));
+    }
+
+    @Test
+    public void requestShutdownWithoutTimeoutDoesNotExceedShutdownDeadline() {
+        // given
+        when(timingProvider.provideTimestampInMilliseconds()).thenReturn(Long.MAX_VALUE - 1);
+        BeaconSendingContext target = createBeaconSendingContext().build();
+
+        // when
+        target.requestShutdown();
+
+        // then
+        assertThat(target.isShutdownDeadlineExceeded(), is(false));
+    }
+
+    @Test
+    public void requestShutdownWithHugeTimeoutDoesNotOverflow() {
+        // given
+        when(timingProvider.provideTimestampInMilliseconds()).thenReturn(1000L);
+        BeaconSendingContext target = createBeaconSendingContext().build();
+
+        // when
+        target.requestShutdown(Long.MAX_VALUE);
+
+        // then
+        assertThat(target.isShutdownDeadlineExceeded(), is(false));
+    }
+
+    @Test
+    public void requestShutdownWithNegativeTimeoutExceedsShutdownDeadlineImmediately() {
+        // given
+        when(timingProvider.provideTimestampInMilliseconds()).thenReturn(1000L);
+        BeaconSendingContext target = createBeaconSendingContext().build();
+
+        // when
+        target.requestShutdown(-1L);
+
+        // then
+        assertThat(target.isShutdownDeadlineExceeded(), is(true));
+    }
+
+    @Test
+    public void requestShutdownWakesUpBeaconSendingThread() throws InterruptedException {
+        // given
+        BeaconSendingContext target = createBeaconSendingContext().build();
+
+        // when
+        target.requestShutdown();
+
+        // then returns immediately
+        target.waitForWakeUp(BeaconSendingContext.WAIT_INDEFINITELY);
+    }
+
+    @Test
+    public void requestOpenSessionsSendIsTakenOnlyOnce() throws InterruptedException {
+        // given
+        BeaconSendingContext target = createBeaconSendingContext().build();
+        assertThat(target.takeOpenSessionsSendRequest(), is(false));
+
+        // when
+        target.requestOpenSessionsSend();
+
+        // then
+        target.waitForWakeUp(BeaconSendingContext.WAIT_INDEFINITELY);
+        assertThat(target.takeOpenSessionsSendRequest(), is(true));
+        assertThat(target.takeOpenSessionsSendRequest(), is(false));
+    }
+
+    @Test
+    public void requestPriorityDataSendIsTakenOnlyOnce() throws InterruptedException {
+        // given
+        BeaconSendingContext target = createBeaconSendingContext().build();
+        assertThat(target.takePriorityDataSendRequest(), is(false));
+
+        // when
+        target.requestPriorityDataSend();
+
+        // then
+        target.waitForWakeUp(BeaconSendingContext.WAIT_INDEFINITELY);
+        assertThat(target.takePriorityDataSendRequest(), is(true));
+        assertThat(target.takePriorityDataSendRequest(), is(false));
+        assertThat(target.takeOpenSessionsSendRequest(), is(false));
+    }
+
+    @Test
+    public void requestOpenSessionsSendWakesUpOnlyIfNoRequestIsPending() {
+        // given
+        BeaconSendingContext target = spy(createBeaconSendingContext().build());
+
+        // when
+        target.requestOpenSessionsSend();
+        target.requestOpenSessionsSend();
+
+        // then
+        verify(target, times(1)).wakeUp();
+
+        // and when
+        target.takeOpenSessionsSendRequest();
+        target.requestOpenSessionsSend();
+
+        // then
+        verify(target, times(2)).wakeUp();
+    }
+
+    @Test
+    public void requestPriorityDataSendWakesUpOnlyIfNoRequestIsPending() {
+        // given
+        BeaconSendingContext target = spy(createBeaconSendingContext().build());
+
+        // when
+        target.requestPriorityDataSend();
+        target.requestPriorityDataSend();
+
+        // then
+        verify(target, times(1)).wakeUp();
+
+        // and when
+        target.takePriorityDataSendRequest();
+        target.requestPriorityDataSend();
+
+        // then
+        verify(target, times(2)).wakeUp();
+    }
+
+    @Test
+    public void hasSessionsReflectsSessionStates() {
+        // given
+        SessionState state = mock(SessionState.class);
+        SessionImpl session = mock(SessionImpl.class);
+        when(session.getState()).thenReturn(state);
+
+        BeaconSendingContext target = createBeaconSendingContext().build();
+        target.addSession(session);
+
+        // then
+        assertThat(target.hasNotConfiguredSessions(), is(true));
+        assertThat(target.hasOpenAndConfiguredSessions(), is(false));
+        assertThat(target.hasFinishedAndConfiguredSessions(), is(false));
+
+        // and when
+        when(state.isConfigured()).thenReturn(true);
+        when(state.isConfiguredAndFinished()).thenReturn(true);
+
+        // then
+        assertThat(target.hasNotConfiguredSessions(), is(false));
+        assertThat(target.hasOpenAndConfiguredSessions(), is(false));
+        assertThat(target.hasFinishedAndConfiguredSessions(), is(true));
+    }
+
     @Test
     public void addSession() {
         // given
@@ -481,6 +807,129 @@ public class BeaconSendingContextTest {
         verify(session, times(1)).clearCapturedData();
     }
 
+    @Test
+    public void disableCaptureAndClearMovesDataOfConfiguredSessionsToOutbox() {
+        // given
+        BeaconOutbox outbox = mock(BeaconOutbox.class);
+        SessionState sessionState = mock(SessionState.class);
+        when(sessionState.isConfigured()).thenReturn(true);
+        SessionImpl session = mock(SessionImpl.class);
+        when(session.getState()).thenReturn(sessionState);
+        when(session.isDataSendingAllowed()).thenReturn(true);
+
+        BeaconSendingContext target = createBeaconSendingContext().with(outbox).build();
+        target.addSession(session);
+
+        // when
+        target.disableCaptureAndClear();
+
+        // then
+        InOrder inOrder = inOrder(session, outbox);
+        inOrder.verify(session, times(1)).moveDataToOutbox(outbox);
+        inOrder.verify(outbox, atLeastOnce()).sync();
+        inOrder.verify(session, times(1)).clearCapturedData();
+    }
+
+    @Test
+    public void disableCaptureAndClearDoesNotMoveDataOfSessionsNotAllowedToSendToOutbox() {
+        // given
+        BeaconOutbox outbox = mock(BeaconOutbox.class);
+        SessionState sessionState = mock(SessionState.class);
+        when(sessionState.isConfigured()).thenReturn(true);
+        SessionImpl session = mock(SessionImpl.class);
+        when(session.getState()).thenReturn(sessionState);
+        when(session.isDataSendingAllowed()).thenReturn(false);
+
+        BeaconSendingContext target = createBeaconSendingContext().with(outbox).build();
+        target.addSession(session);
+
+        // when
+        target.disableCaptureAndClear();
+
+        // then
+        verify(session, never()).moveDataToOutbox(any(BeaconOutbox.class));
+        verify(session, times(1)).clearCapturedData();
+    }
+
+    @Test
+    public void handOverUnsentSessionsMovesDataToOutbox() {
+        // given
+        BeaconOutbox outbox = mock(BeaconOutbox.class);
+        SessionImpl session = mock(SessionImpl.class);
+        when(session.isDataSendingAllowed()).thenReturn(true);
+
+        BeaconSendingContext target = createBeaconSendingContext().with(outbox).build();
+
+        // when
+        target.handOverUnsentSessions(Collections.singletonList(session));
+
+        // then
+        verify(session, times(1)).moveDataToOutbox(outbox);
+        verify(outbox, times(1)).sync();
+    }
+
+    @Test
+    public void closeOutboxClosesOutbox() {
+        // given
+        BeaconOutbox outbox = mock(BeaconOutbox.class);
+        BeaconSendingContext target = createBeaconSendingContext().with(outbox).build();
+
+        // when
+        target.closeOutbox();
+
+        // then
+        verify(outbox, times(1)).close();
+    }
+
+    @Test
+    public void closeOutboxWithoutOutboxDoesNothing() {
+        // given
+        BeaconSendingContext target = createBeaconSendingContext().build();
+
+        // when, then
+        target.closeOutbox();
+        assertThat(target.getOutbox(), is(nullValue()));
+    }
+
+    @Test
+    public void closeHTTPClientProviderClosesClosableProvider() throws IOException {
+        // given
+        httpClientProvider = mock(HTTPClientProvider.class, withSettings().extraInterfaces(Closeable.class));
+        BeaconSendingContext target = createBeaconSendingContext().build();
+
+        // when
+        target.closeHTTPClientProvider();
+
+        // then
+        verify((Closeable) httpClientProvider, times(1)).close();
+    }
+
+    @Test
+    public void closeHTTPClientProviderLogsExceptionThrownWhileClosing() throws IOException {
+        // given
+        httpClientProvider = mock(HTTPClientProvider.class, withSettings().extraInterfaces(Closeable.class));
+        doThrow(new IOException("test")).when((Closeable) httpClientProvider).close();
+        BeaconSendingContext target = createBeaconSendingContext().build();
+
+        // when
+        target.closeHTTPClientProvider();
+
+        // then
+        verify(logger, times(1)).warning(anyString());
+    }
+
+    @Test
+    public void closeHTTPClientProviderWithNonClosableProviderDoesNothing() {
+        // given
+        BeaconSendingContext target = createBeaconSendingContext().build();
+
+        // when
+        target.closeHTTPClientProvider();
+
+        // then
+        verifyZeroInteractions(httpClientProvider);
+    }
+
     @Test
     public void handleStatusResponseDisablesCaptureIfResponseIsNull() {
         // given
@@ -872,6 +1321,268 @@ public class BeaconSendingContextTest {
         assertThat(obtained, containsInAnyOrder(relevantSession));
     }
 
+    @Test
+    public void configuredSessionIsMovedFromNewToOpenSessions() {
+        // given
+        SessionState state = mock(SessionState.class);
+        SessionImpl session = mock(SessionImpl.class);
+        when(session.getState()).thenReturn(state);
+
+        BeaconSendingContext target = createBeaconSendingContext().build();
+        target.addSession(session);
+        assertThat(target.getAllNotConfiguredSessions(), contains(session));
+
+        // when
+        when(state.isConfigured()).thenReturn(true);
+        when(state.isConfiguredAndOpen()).thenReturn(true);
+
+        // then
+        assertThat(target.getAllNotConfiguredSessions(), is(empty()));
+        assertThat(target.getAllOpenAndConfiguredSessions(), contains(session));
+        assertThat(target.getAllFinishedAndConfiguredSessions(), is(empty()));
+        verify(session, times(1)).setStateListener(any(SessionStateListener.class));
+    }
+
+    @Test
+    public void finishedSessionIsMovedFromOpenToFinishedSessions() {
+        // given
+        SessionState state = mock(SessionState.class);
+        when(state.isConfigured()).thenReturn(true);
+        when(state.isConfiguredAndOpen()).thenReturn(true);
+        SessionImpl session = mock(SessionImpl.class);
+        when(session.getState()).thenReturn(state);
+
+        BeaconSendingContext target = createBeaconSendingContext().build();
+        target.addSession(session);
+        assertThat(target.getAllOpenAndConfiguredSessions(), contains(session));
+
+        ArgumentCaptor<SessionStateListener> captor = ArgumentCaptor.forClass(SessionStateListener.class);
+        verify(session, times(1)).setStateListener(captor.capture());
+
+        // when
+        captor.getValue().onSessionFinished(session);
+
+        // then
+        assertThat(target.getAllOpenAndConfiguredSessions(), is(empty()));
+        assertThat(target.getAllFinishedAndConfiguredSessions(), contains(session));
+        assertThat(target.getSessionCount(), is(1));
+    }
+
+    @Test
+    public void openSessionIsDueForSendingWithinSendInterval() {
+        // given
+        when(timingProvider.provideTimestampInMilliseconds()).thenReturn(1000L);
+        SessionImpl session = mockOpenSession();
+
+        BeaconSendingContext target = createBeaconSendingContext().build();
+        target.addSession(session);
+        long sendInterval = target.getSendInterval();
+
+        // when
+        long obtained = target.getNextOpenSessionSendTime();
+
+        // then
+        assertThat(obtained, is(greaterThanOrEqualTo(1000L)));
+        assertThat(obtained, is(lessThan(1000L + sendInterval)));
+        assertThat(target.takeOpenSessionsDueForSending(obtained - 1), is(empty()));
+        assertThat(target.takeOpenSessionsDueForSending(obtained), contains(session));
+        assertThat(target.getNextOpenSessionSendTime(), is(obtained + sendInterval));
+    }
+
+    @Test
+    public void takeAllOpenSessionsForSendingReturnsSessionsNotYetDue() {
+        // given
+        when(timingProvider.provideTimestampInMilliseconds()).thenReturn(1000L);
+        SessionImpl session = mockOpenSession();
+
+        BeaconSendingContext target = createBeaconSendingContext().build();
+        target.addSession(session);
+        long sendTime = target.getNextOpenSessionSendTime();
+
+        // when
+        List<SessionImpl> obtained = target.takeAllOpenSessionsForSending(1000L);
+
+        // then
+        assertThat(obtained, contains(session));
+        assertThat(target.getNextOpenSessionSendTime(), is(sendTime));
+    }
+
+    @Test
+    public void finishedSessionIsNotDueForSendingAnymore() {
+        // given
+        SessionImpl session = mockOpenSession();
+
+        BeaconSendingContext target = createBeaconSendingContext().build();
+        target.addSession(session);
+        assertThat(target.getNextOpenSessionSendTime(), is(lessThan(Long.MAX_VALUE)));
+
+        ArgumentCaptor<SessionStateListener> captor = ArgumentCaptor.forClass(SessionStateListener.class);
+        verify(session, times(1)).setStateListener(captor.capture());
+
+        // when
+        captor.getValue().onSessionFinished(session);
+
+        // then
+        assertThat(target.getNextOpenSessionSendTime(), is(Long.MAX_VALUE));
+        assertThat(target.takeOpenSessionsDueForSending(Long.MAX_VALUE - 1), is(empty()));
+    }
+
+    @Test
+    public void removedSessionIsNotDueForSendingAnymore() {
+        // given
+        SessionImpl session = mockOpenSession();
+
+        BeaconSendingContext target = createBeaconSendingContext().build();
+        target.addSession(session);
+        assertThat(target.getNextOpenSessionSendTime(), is(lessThan(Long.MAX_VALUE)));
+
+        // when
+        target.removeSession(session);
+
+        // then
+        assertThat(target.getNextOpenSessionSendTime(), is(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void effectiveSendIntervalIsCalculatedFromServerSendInterval() {
+        // given
+        AdaptiveSendInterval adaptiveSendInterval = mock(AdaptiveSendInterval.class);
+        when(adaptiveSendInterval.calculateSendInterval(anyLong())).thenReturn(1234L);
+
+        BeaconSendingContext target = createBeaconSendingContext().with(adaptiveSendInterval).build();
+
+        // when
+        target.updateEffectiveSendInterval();
+
+        // then
+        assertThat(target.getEffectiveSendInterval(), is(1234L));
+        verify(adaptiveSendInterval, times(1)).calculateSendInterval(target.getSendInterval());
+    }
+
+    @Test
+    public void effectiveSendIntervalIsServerSendIntervalBeforeFirstUpdate() {
+        // given
+        AdaptiveSendInterval adaptiveSendInterval = mock(AdaptiveSendInterval.class);
+        BeaconSendingContext target = createBeaconSendingContext().with(adaptiveSendInterval).build();
+
+        // when
+        long obtained = target.getEffectiveSendInterval();
+
+        // then
+        assertThat(obtained, is((long) target.getSendInterval()));
+        verifyZeroInteractions(adaptiveSendInterval);
+    }
+
+    @Test
+    public void gettingEffectiveSendIntervalDoesNotRecalculateIt() {
+        // given
+        AdaptiveSendInterval adaptiveSendInterval = mock(AdaptiveSendInterval.class);
+        when(adaptiveSendInterval.calculateSendInterval(anyLong())).thenReturn(1234L);
+        BeaconSendingContext target = createBeaconSendingContext().with(adaptiveSendInterval).build();
+        target.updateEffectiveSendInterval();
+
+        // when
+        target.getEffectiveSendInterval();
+        target.addSession(mockOpenSession());
+        target.takeOpenSessionsDueForSending(0L);
+        target.takeAllOpenSessionsForSending(0L);
+
+        // then
+        verify(adaptiveSendInterval, times(1)).calculateSendInterval(anyLong());
+    }
+
+    @Test
+    public void openSessionsAreScheduledWithEffectiveSendInterval() {
+        // given
+        when(timingProvider.provideTimestampInMilliseconds()).thenReturn(1000L);
+        AdaptiveSendInterval adaptiveSendInterval = mock(AdaptiveSendInterval.class);
+        when(adaptiveSendInterval.calculateSendInterval(anyLong())).thenReturn(10L);
+        SessionImpl session = mockOpenSession();
+
+        BeaconSendingContext target = createBeaconSendingContext().with(adaptiveSendInterval).build();
+        target.updateEffectiveSendInterval();
+        target.addSession(session);
+
+        // when
+        long obtained = target.getNextOpenSessionSendTime();
+
+        // then
+        assertThat(obtained, is(greaterThanOrEqualTo(1000L)));
+        assertThat(obtained, is(lessThan(1010L)));
+        assertThat(target.takeOpenSessionsDueForSending(obtained), contains(session));
+        assertThat(target.getNextOpenSessionSendTime(), is(obtained + 10L));
+    }
+
+    @Test
+    public void recordResponseLatencyIsForwardedToAdaptiveSendInterval() {
+        // given
+        AdaptiveSendInterval adaptiveSendInterval = mock(AdaptiveSendInterval.class);
+        BeaconSendingContext target = createBeaconSendingContext().with(adaptiveSendInterval).build();
+
+        // when
+        target.recordResponseLatency(42L);
+
+        // then
+        verify(adaptiveSendInterval, times(1)).recordResponseLatency(42L);
+        assertThat(target.getAdaptiveSendInterval(), is(sameInstance(adaptiveSendInterval)));
+    }
+
+    private static SessionImpl mockOpenSession() {
+        SessionState state = mock(SessionState.class);
+        when(state.isConfigured()).thenReturn(true);
+        when(state.isConfiguredAndOpen()).thenReturn(true);
+        SessionImpl session = mock(SessionImpl.class);
+        when(session.getState()).thenReturn(state);
+        return session;
+    }
+
+    @Test
+    public void finishedNotificationForUnknownSessionIsIgnored() {
+        // given
+        SessionState state = mock(SessionState.class);
+        when(state.isConfigured()).thenReturn(true);
+        when(state.isConfiguredAndFinished()).thenReturn(true);
+        SessionImpl session = mock(SessionImpl.class);
+        when(session.getState()).thenReturn(state);
+
+        BeaconSendingContext target = createBeaconSendingContext().build();
+        target.addSession(session);
+        assertThat(target.getAllFinishedAndConfiguredSessions(), contains(session));
+
+        ArgumentCaptor<SessionStateListener> captor = ArgumentCaptor.forClass(SessionStateListener.class);
+        verify(session, times(1)).setStateListener(captor.capture());
+        target.removeSession(session);
+
+        // when
+        captor.getValue().onSessionFinished(session);
+
+        // then
+        assertThat(target.getAllFinishedAndConfiguredSessions(), is(empty()));
+        assertThat(target.getSessionCount(), is(0));
+    }
+
+    @Test
+    public void openSessionsAreNotVisitedWhenRetrievingFinishedSessions() {
+        // given
+        SessionState state = mock(SessionState.class);
+        when(state.isConfigured()).thenReturn(true);
+        when(state.isConfiguredAndOpen()).thenReturn(true);
+        SessionImpl session = mock(SessionImpl.class);
+        when(session.getState()).thenReturn(state);
+
+        BeaconSendingContext target = createBeaconSendingContext().build();
+        target.addSession(session);
+        assertThat(target.getAllOpenAndConfiguredSessions(), contains(session));
+        reset(session, state);
+
+        // when
+        List<SessionImpl> obtained = target.getAllFinishedAndConfiguredSessions();
+
+        // then
+        assertThat(obtained, is(empty()));
+        verifyZeroInteractions(session, state);
+    }
+
     @Test
     public void getAllFinishedAndConfiguredSessionsReturnsOnlyConfiguredAndFinishedSessions() {
         // given
@@ -987,6 +1698,78 @@ public class BeaconSendingContextTest {
         assertThat(target.isCaptureOn(), is(false));
     }
 
+    @Test
+    public void storedResponseAttributesAreUsedProvisionally() {
+        // given
+        when(httpClientConfig.getServerID()).thenReturn(1);
+        ServerConfigurationStore store = mock(ServerConfigurationStore.class);
+        when(store.load()).thenReturn(ResponseAttributesImpl.withUndefinedDefaults()
+                .withServerId(42).withSendIntervalInMilliseconds(1234).withCapture(false).build());
+
+        // when
+        BeaconSendingContext target = createBeaconSendingContext().with(store).build();
+
+        // then
+        assertThat(target.isProvisionallyConfigured(), is(true));
+        assertThat(target.getSendInterval(), is(1234));
+        assertThat(target.isCaptureOn(), is(false));
+        assertThat(target.getLastServerConfiguration().getServerID(), is(42));
+        assertThat(target.getCurrentServerId(), is(42));
+    }
+
+    @Test
+    public void contextIsNotProvisionallyConfiguredWithoutStoredResponseAttributes() {
+        // given
+        ServerConfigurationStore store = mock(ServerConfigurationStore.class);
+        when(store.load()).thenReturn(null);
+
+        // when
+        BeaconSendingContext target = createBeaconSendingContext().with(store).build();
+
+        // then
+        assertThat(target.isProvisionallyConfigured(), is(false));
+        assertThat(target.getLastServerConfiguration(), is(sameInstance(ServerConfiguration.DEFAULT)));
+    }
+
+    @Test
+    public void updateFromReplacesProvisionalConfigurationAndStoresResponseAttributes() {
+        // given
+        ServerConfigurationStore store = mock(ServerConfigurationStore.class);
+        when(store.load()).thenReturn(ResponseAttributesImpl.withUndefinedDefaults()
+                .withSendIntervalInMilliseconds(1234).withCapture(false).build());
+        ResponseAttributes attributes = ResponseAttributesImpl.withUndefinedDefaults().withCapture(true).build();
+        StatusResponse response = mock(StatusResponse.class);
+        when(response.getResponseAttributes()).thenReturn(attributes);
+        when(response.isErroneousResponse()).thenReturn(false);
+
+        BeaconSendingContext target = createBeaconSendingContext().with(store).build();
+
+        // when
+        ResponseAttributes obtained = target.updateFrom(response);
+
+        // then
+        assertThat(target.isProvisionallyConfigured(), is(false));
+        assertThat(target.isCaptureOn(), is(true));
+        assertThat(obtained.getSendIntervalInMilliseconds(), is(1234));
+        verify(store, times(1)).store(obtained);
+    }
+
+    @Test
+    public void updateFromDoesNotStoreUnsuccessfulResponses() {
+        // given
+        ServerConfigurationStore store = mock(ServerConfigurationStore.class);
+        StatusResponse response = mock(StatusResponse.class);
+        when(response.isErroneousResponse()).thenReturn(true);
+
+        BeaconSendingContext target = createBeaconSendingContext().with(store).build();
+
+        // when
+        target.updateFrom(response);
+
+        // then
+        verify(store, times(0)).store(any(ResponseAttributes.class));
+    }
+
     @Test
     public void getConfigurationTimestampReturnsZeroOnDefault() {
         // given
@@ -1071,6 +1854,7 @@ public class BeaconSendingContextTest {
         builder.httpClientProvider = httpClientProvider;
         builder.timingProvider = timingProvider;
         builder.initState = new BeaconSendingInitState();
+        builder.adaptiveSendInterval = new AdaptiveSendInterval(logger, null, 0);
 
         return builder;
     }
@@ -1081,20 +1865,37 @@ public class BeaconSendingContextTest {
         private HTTPClientProvider httpClientProvider;
         private TimingProvider timingProvider;
         private AbstractBeaconSendingState initState;
+        private BeaconOutbox outbox;
+        private AdaptiveSendInterval adaptiveSendInterval;
+        private ServerConfigurationStore serverConfigurationStore;
 
         private TestBeaconSendingContextBuilder with(AbstractBeaconSendingState initState) {
             this.initState = initState;
             return this;
         }
 
+        private TestBeaconSendingContextBuilder with(BeaconOutbox outbox) {
+            this.outbox = outbox;
+            return this;
+        }
+
+        private TestBeaconSendingContextBuilder with(AdaptiveSendInterval adaptiveSendInterval) {
+            this.adaptiveSendInterval = adaptiveSendInterval;
+            return this;
+        }
+
+        private TestBeaconSendingContextBuilder with(ServerConfigurationStore serverConfigurationStore) {
+            this.serverConfigurationStore = serverConfigurationStore;
+            return this;
+        }
+
         private BeaconSendingContext build() {
-            return new BeaconSendingContext(
-                    logger,
-                    httpClientConfig,
-                    httpClientProvider,
-                    timingProvider,
-                    initState
-            );
+            return new BeaconSendingContext.Builder(logger, httpClientConfig, httpClientProvider, timingProvider)
+                    .withInitialState(initState)
+                    .withOutbox(outbox)
+                    .withAdaptiveSendInterval(adaptiveSendInterval)
+                    .withServerConfigurationStore(serverConfigurationStore)
+                    .build();
         }
     }
 }
@@ -16,6 +16,7 @@
 
 package com.dynatrace.openkit.core.communication;
 
+import com.dynatrace.openkit.api.Logger;
 import com.dynatrace.openkit.core.objects.SessionImpl;
 import com.dynatrace.openkit.protocol.AdditionalQueryParameters;
 import com.dynatrace.openkit.protocol.HTTPClient;
@@ -23,16 +24,25 @@ import com.dynatrace.openkit.protocol.StatusResponse;
 import com.dynatrace.openkit.providers.HTTPClientProvider;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -71,6 +81,7 @@ public class BeaconSendingFlushSessionsStateTest {
         when(mockContext.getAllOpenAndConfiguredSessions()).thenReturn(Arrays.asList(mockSession1Open, mockSession2Open));
         when(mockContext.getAllFinishedAndConfiguredSessions()).thenReturn(Arrays.asList(mockSession3Closed,
             mockSession2Open, mockSession1Open));
+        when(mockContext.getWorkerPool()).thenReturn(new BeaconSendingWorkerPool(mock(Logger.class), 1));
     }
 
     @Test
@@ -200,4 +211,153 @@ public class BeaconSendingFlushSessionsStateTest {
         verify(mockSession2Open, times(1)).clearCapturedData();
         verify(mockSession3Closed, times(1)).clearCapturedData();
     }
+
+    @Test
+    public void aBeaconSendingFlushSessionStateSendsSessionsWithPriorityDataFirst() {
+
+        // given
+        BeaconSendingFlushSessionsState target = new BeaconSendingFlushSessionsState();
+        when(mockSession1Open.hasPriorityData()).thenReturn(true);
+
+        // when
+        target.doExecute(mockContext);
+
+        // then session with crash goes first, then previously finished sessions, then the ended sessions
+        InOrder inOrder = inOrder(mockSession1Open, mockSession2Open, mockSession3Closed);
+        inOrder.verify(mockSession1Open, times(1))
+                .sendBeacon(any(HTTPClientProvider.class), any(AdditionalQueryParameters.class));
+        inOrder.verify(mockSession3Closed, times(1))
+                .sendBeacon(any(HTTPClientProvider.class), any(AdditionalQueryParameters.class));
+        inOrder.verify(mockSession2Open, times(1))
+                .sendBeacon(any(HTTPClientProvider.class), any(AdditionalQueryParameters.class));
+    }
+
+    @Test
+    public void prioritizeSessionsKeepsOrderWithinSamePriority() {
+
+        // given
+        SessionImpl priorityOne = mock(SessionImpl.class);
+        SessionImpl priorityTwo = mock(SessionImpl.class);
+        when(priorityOne.hasPriorityData()).thenReturn(true);
+        when(priorityTwo.hasPriorityData()).thenReturn(true);
+        SessionImpl finishedOne = mock(SessionImpl.class);
+        SessionImpl finishedTwo = mock(SessionImpl.class);
+        SessionImpl endedOne = mock(SessionImpl.class);
+
+        // when
+        List<SessionImpl> obtained = BeaconSendingFlushSessionsState.prioritizeSessions(
+            Arrays.asList(endedOne, finishedOne, priorityOne, finishedTwo, priorityTwo),
+            Arrays.asList(endedOne, priorityTwo));
+
+        // then
+        assertThat(obtained, contains(priorityOne, priorityTwo, finishedOne, finishedTwo, endedOne));
+    }
+
+    @Test
+    public void aBeaconSendingFlushSessionStateDoesNotSendIfShutdownDeadlineIsExceeded() {
+
+        // given
+        BeaconSendingFlushSessionsState target = new BeaconSendingFlushSessionsState();
+        when(mockContext.isShutdownDeadlineExceeded()).thenReturn(false, true);
+
+        // when
+        target.doExecute(mockContext);
+
+        // then only the first session is sent
+        verify(mockSession3Closed, times(1))
+                .sendBeacon(any(HTTPClientProvider.class), any(AdditionalQueryParameters.class));
+        verify(mockSession1Open, times(0))
+                .sendBeacon(any(HTTPClientProvider.class), any(AdditionalQueryParameters.class));
+        verify(mockSession2Open, times(0))
+                .sendBeacon(any(HTTPClientProvider.class), any(AdditionalQueryParameters.class));
+        verify(mockSession1Open, times(1)).clearCapturedData();
+        verify(mockSession2Open, times(1)).clearCapturedData();
+        verify(mockSession3Closed, times(1)).clearCapturedData();
+        verify(mockContext, times(1)).setNextState(isA(BeaconSendingTerminalState.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void aBeaconSendingFlushSessionStateHandsOverUnsentSessions() {
+
+        // given
+        BeaconSendingFlushSessionsState target = new BeaconSendingFlushSessionsState();
+        when(mockContext.isShutdownDeadlineExceeded()).thenReturn(false, true);
+        when(mockSession3Closed.isEmpty()).thenReturn(true);
+
+        // when
+        target.doExecute(mockContext);
+
+        // then
+        ArgumentCaptor<List> argumentCaptor = ArgumentCaptor.forClass(List.class);
+        verify(mockContext, times(1)).handOverUnsentSessions(argumentCaptor.capture());
+        assertThat((List<SessionImpl>) argumentCaptor.getValue(), contains(mockSession2Open, mockSession1Open));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void aBeaconSendingFlushSessionStateDoesNotHandOverSessionsNotAllowedToSend() {
+
+        // given
+        BeaconSendingFlushSessionsState target = new BeaconSendingFlushSessionsState();
+        when(mockSession1Open.isDataSendingAllowed()).thenReturn(false);
+        when(mockSession2Open.isDataSendingAllowed()).thenReturn(false);
+        when(mockSession3Closed.isDataSendingAllowed()).thenReturn(false);
+
+        // when
+        target.doExecute(mockContext);
+
+        // then
+        ArgumentCaptor<List> argumentCaptor = ArgumentCaptor.forClass(List.class);
+        verify(mockContext, times(1)).handOverUnsentSessions(argumentCaptor.capture());
+        assertThat((List<SessionImpl>) argumentCaptor.getValue(), is(empty()));
+    }
+
+    @Test
+    public void aBeaconSendingFlushSessionStateFlushesIfThreadIsInterruptedAndRestoresInterruptedFlag() {
+
+        // given
+        BeaconSendingFlushSessionsState target = new BeaconSendingFlushSessionsState();
+        BeaconSendingWorkerPool workerPool = new BeaconSendingWorkerPool(mock(Logger.class), 2);
+        when(mockContext.getWorkerPool()).thenReturn(workerPool);
+        Thread.currentThread().interrupt();
+
+        // when
+        target.doExecute(mockContext);
+        workerPool.shutdown();
+
+        // then
+        assertThat(Thread.interrupted(), is(true));
+        verify(mockSession1Open, times(1))
+                .sendBeacon(any(HTTPClientProvider.class), any(AdditionalQueryParameters.class));
+        verify(mockSession2Open, times(1))
+                .sendBeacon(any(HTTPClientProvider.class), any(AdditionalQueryParameters.class));
+        verify(mockSession3Closed, times(1))
+                .sendBeacon(any(HTTPClientProvider.class), any(AdditionalQueryParameters.class));
+    }
+
+    @Test
+    public void sessionsStillSentByAWorkerAreNeitherHandedOverNorCleared() throws InterruptedException {
+
+        // given
+        BeaconSendingFlushSessionsState target = new BeaconSendingFlushSessionsState();
+        BeaconSendingWorkerPool workerPool = mock(BeaconSendingWorkerPool.class);
+        when(workerPool.execute(anyListOf(SessionImpl.class), any(BeaconSendingWorkerPool.SessionTask.class)))
+                .thenThrow(new InterruptedException());
+        when(workerPool.getSessionsInProgress()).thenReturn(Collections.singleton(mockSession3Closed));
+        when(mockContext.getWorkerPool()).thenReturn(workerPool);
+
+        // when
+        target.doExecute(mockContext);
+
+        // then
+        assertThat(Thread.interrupted(), is(true));
+        ArgumentCaptor<List> argumentCaptor = ArgumentCaptor.forClass(List.class);
+        verify(mockContext, times(1)).handOverUnsentSessions(argumentCaptor.capture());
+        assertThat((List<SessionImpl>) argumentCaptor.getValue(), contains(mockSession2Open, mockSession1Open));
+        verify(mockSession3Closed, never()).clearCapturedData();
+        verify(mockContext, never()).removeSession(mockSession3Closed);
+        verify(mockSession1Open, times(1)).clearCapturedData();
+        verify(mockContext, times(1)).removeSession(mockSession1Open);
+    }
 }
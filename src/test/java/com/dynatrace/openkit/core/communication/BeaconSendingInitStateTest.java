@@ -19,7 +19,9 @@ package com.dynatrace.openkit.core.communication;
 import com.dynatrace.openkit.protocol.AdditionalQueryParameters;
 import com.dynatrace.openkit.protocol.HTTPClient;
 import com.dynatrace.openkit.protocol.ResponseAttributes;
+import com.dynatrace.openkit.protocol.RetryPolicy;
 import com.dynatrace.openkit.protocol.StatusResponse;
+import com.dynatrace.openkit.providers.RandomNumberGenerator;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InOrder;
@@ -204,7 +206,7 @@ public class BeaconSendingInitStateTest {
 
         InOrder inOrder = inOrder(stateContext);
 
-        BeaconSendingInitState target = new BeaconSendingInitState();
+        BeaconSendingInitState target = new BeaconSendingInitState(createUpperBoundRetryPolicy());
 
         // when executing the state multiple times (7 times)
         target.execute(stateContext);
@@ -269,7 +271,7 @@ public class BeaconSendingInitStateTest {
     }
 
     @Test
-    public void sleepTimeIsDoubledBetweenStatusRequestRetries() throws InterruptedException {
+    public void maxSleepTimeIsDoubledBetweenStatusRequestRetries() throws InterruptedException {
 
         // given
         StatusResponse erroneousResponse = mock(StatusResponse.class);
@@ -280,7 +282,7 @@ public class BeaconSendingInitStateTest {
         when(stateContext.isShutdownRequested()).thenReturn(false, false, false, false, false, true);
         InOrder inOrder = inOrder(stateContext);
 
-        BeaconSendingInitState target = new BeaconSendingInitState();
+        BeaconSendingInitState target = new BeaconSendingInitState(createUpperBoundRetryPolicy());
 
         // when executing the state
         target.execute(stateContext);
@@ -367,6 +369,41 @@ public class BeaconSendingInitStateTest {
         verify(stateContext, times(1)).setNextState(isA(BeaconSendingCaptureOnState.class));
     }
 
+    @Test
+    public void provisionalConfigurationPerformsStateTransitionToCaptureOnWithoutStatusRequest() {
+
+        // given
+        BeaconSendingInitState target = new BeaconSendingInitState();
+        when(stateContext.isProvisionallyConfigured()).thenReturn(true);
+        when(stateContext.isCaptureOn()).thenReturn(true);
+
+        // when
+        target.execute(stateContext);
+
+        // then
+        verify(httpClient, times(0)).sendStatusRequest(any(AdditionalQueryParameters.class));
+        verify(stateContext, times(0)).handleStatusResponse(any(StatusResponse.class));
+        verify(stateContext, times(1)).setNextState(isA(BeaconSendingCaptureOnState.class));
+        verify(stateContext, times(1)).initCompleted(true);
+    }
+
+    @Test
+    public void provisionalConfigurationPerformsStateTransitionToCaptureOffIfCapturingIsDisabled() {
+
+        // given
+        BeaconSendingInitState target = new BeaconSendingInitState();
+        when(stateContext.isProvisionallyConfigured()).thenReturn(true);
+        when(stateContext.isCaptureOn()).thenReturn(false);
+
+        // when
+        target.execute(stateContext);
+
+        // then
+        verify(httpClient, times(0)).sendStatusRequest(any(AdditionalQueryParameters.class));
+        verify(stateContext, times(1)).setNextState(isA(BeaconSendingCaptureOffState.class));
+        verify(stateContext, times(1)).initCompleted(true);
+    }
+
     @Test
     public void aSuccessfulStatusResponsePerformsStateTransitionToCaptureOffIfCapturingIsDisabled() {
 
@@ -421,4 +458,16 @@ public class BeaconSendingInitStateTest {
         // verify sleep was performed accordingly
         verify(stateContext, times(1)).disableCaptureAndClear();
     }
+
+    /**
+     * Create the default status request retry policy, but always use the upper jitter bound, to get predictable delays.
+     */
+    private static RetryPolicy createUpperBoundRetryPolicy() {
+        RandomNumberGenerator randomNumberGenerator = mock(RandomNumberGenerator.class);
+        when(randomNumberGenerator.nextPositiveLong()).thenReturn(Long.MAX_VALUE);
+        return new RetryPolicy(5,
+                BeaconSendingInitState.INITIAL_RETRY_SLEEP_TIME_MILLISECONDS,
+                BeaconSendingInitState.MAX_RETRY_SLEEP_TIME_MILLISECONDS,
+                randomNumberGenerator);
+    }
 }
@@ -18,7 +18,9 @@ package com.dynatrace.openkit.core.communication;
 
 import com.dynatrace.openkit.protocol.AdditionalQueryParameters;
 import com.dynatrace.openkit.protocol.HTTPClient;
+import com.dynatrace.openkit.protocol.RetryPolicy;
 import com.dynatrace.openkit.protocol.StatusResponse;
+import com.dynatrace.openkit.providers.RandomNumberGenerator;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InOrder;
@@ -42,12 +44,15 @@ public class BeaconSendingRequestUtilTest {
     private BeaconSendingContext context;
     private HTTPClient httpClient;
     private StatusResponse response;
+    private RandomNumberGenerator randomNumberGenerator;
 
     @Before
     public void setUp() {
         context = mock(BeaconSendingContext.class);
         httpClient = mock(HTTPClient.class);
         response = mock(StatusResponse.class);
+        randomNumberGenerator = mock(RandomNumberGenerator.class);
+        when(randomNumberGenerator.nextPositiveLong()).thenReturn(Long.MAX_VALUE); // always use the upper jitter bound
         when(response.getResponseCode()).thenReturn(StatusResponse.HTTP_OK);
         when(response.isErroneousResponse()).thenReturn(false);
 
@@ -64,7 +69,7 @@ public class BeaconSendingRequestUtilTest {
         when(context.isShutdownRequested()).thenReturn(true);
 
         // when
-        StatusResponse obtained = BeaconSendingRequestUtil.sendStatusRequest(context, 5, 1000L);
+        StatusResponse obtained = BeaconSendingRequestUtil.sendStatusRequest(context, createRetryPolicy(5));
 
         // then
         assertThat(obtained, is(sameInstance(response)));
@@ -86,7 +91,7 @@ public class BeaconSendingRequestUtilTest {
         when(context.isShutdownRequested()).thenReturn(false);
 
         // when
-        StatusResponse obtained = BeaconSendingRequestUtil.sendStatusRequest(context, 3, 1000L);
+        StatusResponse obtained = BeaconSendingRequestUtil.sendStatusRequest(context, createRetryPolicy(3));
 
         // then
         assertThat(obtained, is(sameInstance(response)));
@@ -105,7 +110,7 @@ public class BeaconSendingRequestUtilTest {
         when(context.isShutdownRequested()).thenReturn(false);
 
         // when
-        StatusResponse obtained = BeaconSendingRequestUtil.sendStatusRequest(context, 5, 1000L);
+        StatusResponse obtained = BeaconSendingRequestUtil.sendStatusRequest(context, createRetryPolicy(5));
 
         // then
         assertThat(obtained, is(notNullValue()));
@@ -119,7 +124,7 @@ public class BeaconSendingRequestUtilTest {
     }
 
     @Test
-    public void sleepTimeIsDoubledBetweenConsecutiveRetries() throws InterruptedException {
+    public void maxSleepTimeIsDoubledBetweenConsecutiveRetries() throws InterruptedException {
 
         // given
         when(response.getResponseCode()).thenReturn(StatusResponse.HTTP_BAD_REQUEST);
@@ -129,7 +134,7 @@ public class BeaconSendingRequestUtilTest {
         InOrder inOrder = inOrder(context);
 
         // when
-        StatusResponse obtained = BeaconSendingRequestUtil.sendStatusRequest(context, 5, 1000L);
+        StatusResponse obtained = BeaconSendingRequestUtil.sendStatusRequest(context, createRetryPolicy(5));
 
         // then
         assertThat(obtained, is(sameInstance(response)));
@@ -151,7 +156,7 @@ public class BeaconSendingRequestUtilTest {
         when(httpClient.sendStatusRequest(any(AdditionalQueryParameters.class))).thenReturn(null);
 
         // when
-        StatusResponse obtained = BeaconSendingRequestUtil.sendStatusRequest(context, 3, 1000L);
+        StatusResponse obtained = BeaconSendingRequestUtil.sendStatusRequest(context, createRetryPolicy(3));
 
         // then
         assertThat(obtained, is(nullValue()));
@@ -172,7 +177,7 @@ public class BeaconSendingRequestUtilTest {
         when(context.isShutdownRequested()).thenReturn(false);
 
         // when
-        StatusResponse obtained = BeaconSendingRequestUtil.sendStatusRequest(context, 3, 1000L);
+        StatusResponse obtained = BeaconSendingRequestUtil.sendStatusRequest(context, createRetryPolicy(3));
 
         // then
         assertThat(obtained, is(sameInstance(response)));
@@ -184,4 +189,27 @@ public class BeaconSendingRequestUtilTest {
         verifyNoMoreInteractions(httpClient);
     }
 
+    @Test
+    public void sleepTimeIsJitteredBetweenZeroAndMaxSleepTime() throws InterruptedException {
+
+        // given
+        when(randomNumberGenerator.nextPositiveLong()).thenReturn(0L, Long.MAX_VALUE / 2, Long.MAX_VALUE / 4);
+        when(response.getResponseCode()).thenReturn(StatusResponse.HTTP_BAD_REQUEST);
+        when(response.isErroneousResponse()).thenReturn(true);
+        when(context.isShutdownRequested()).thenReturn(false);
+        InOrder inOrder = inOrder(context);
+
+        // when
+        BeaconSendingRequestUtil.sendStatusRequest(context, createRetryPolicy(3));
+
+        // then
+        verify(context, times(3)).sleep(anyLong());
+        inOrder.verify(context).sleep(0L);
+        inOrder.verify(context).sleep(1000L);
+        inOrder.verify(context).sleep(1000L);
+    }
+
+    private RetryPolicy createRetryPolicy(int maxRetries) {
+        return new RetryPolicy(maxRetries, 1000L, 60 * 1000L, randomNumberGenerator);
+    }
 }
@@ -0,0 +1,250 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.communication;
+
+import com.dynatrace.openkit.core.objects.SessionImpl;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class BeaconSendingScheduleTest {
+
+    private static final long SEND_INTERVAL = 1000L;
+
+    @Test
+    public void spreadOffsetIsWithinSendInterval() {
+        for (int hashCode : new int[]{0, 1, -1, 42, Integer.MAX_VALUE, Integer.MIN_VALUE, 0x12345678}) {
+            // when
+            long obtained = BeaconSendingSchedule.spreadOffset(hashCode, SEND_INTERVAL);
+
+            // then
+            assertThat(obtained, is(greaterThanOrEqualTo(0L)));
+            assertThat(obtained, is(lessThan(SEND_INTERVAL)));
+        }
+    }
+
+    @Test
+    public void spreadOffsetIsZeroForNonPositiveSendInterval() {
+        // when, then
+        assertThat(BeaconSendingSchedule.spreadOffset(42, 0), is(0L));
+        assertThat(BeaconSendingSchedule.spreadOffset(42, -1), is(0L));
+    }
+
+    @Test
+    public void consecutiveHashCodesAreSpreadEvenlyAcrossSendInterval() {
+        // given
+        int numBuckets = 10;
+        int[] buckets = new int[numBuckets];
+
+        // when
+        for (int hashCode = 0; hashCode < 100; hashCode++) {
+            long offset = BeaconSendingSchedule.spreadOffset(hashCode, SEND_INTERVAL);
+            buckets[(int) (offset * numBuckets / SEND_INTERVAL)]++;
+        }
+
+        // then
+        for (int bucket : buckets) {
+            assertThat(bucket, is(greaterThan(5)));
+            assertThat(bucket, is(lessThan(15)));
+        }
+    }
+
+    @Test
+    public void nextSendTimeIsOneSendIntervalAfterPreviousSendTime() {
+        // when
+        long obtained = BeaconSendingSchedule.nextSendTime(100, 150, SEND_INTERVAL);
+
+        // then
+        assertThat(obtained, is(1100L));
+    }
+
+    @Test
+    public void nextSendTimeSkipsMissedSendTimes() {
+        // when
+        long obtained = BeaconSendingSchedule.nextSendTime(100, 2500, SEND_INTERVAL);
+
+        // then
+        assertThat(obtained, is(3100L));
+    }
+
+    @Test
+    public void nextSendTimeKeepsFutureSendTime() {
+        // when
+        long obtained = BeaconSendingSchedule.nextSendTime(500, 100, SEND_INTERVAL);
+
+        // then
+        assertThat(obtained, is(500L));
+    }
+
+    @Test
+    public void nextSendTimeIsCurrentTimestampForNonPositiveSendInterval() {
+        // when
+        long obtained = BeaconSendingSchedule.nextSendTime(100, 150, 0);
+
+        // then
+        assertThat(obtained, is(150L));
+    }
+
+    @Test
+    public void emptyScheduleHasNoNextSendTime() {
+        // given
+        BeaconSendingSchedule target = new BeaconSendingSchedule();
+
+        // when, then
+        assertThat(target.getNextSendTime(), is(Long.MAX_VALUE));
+        assertThat(target.takeDueSessions(Long.MAX_VALUE - 1, SEND_INTERVAL), is(empty()));
+    }
+
+    @Test
+    public void addedSessionIsScheduledWithinSendInterval() {
+        // given
+        SessionImpl session = mock(SessionImpl.class);
+        BeaconSendingSchedule target = new BeaconSendingSchedule();
+
+        // when
+        target.add(session, 5000, SEND_INTERVAL);
+
+        // then
+        assertThat(target.size(), is(1));
+        assertThat(target.getNextSendTime(), is(5000 + BeaconSendingSchedule.spreadOffset(session.hashCode(), SEND_INTERVAL)));
+    }
+
+    @Test
+    public void dueSessionsAreTakenAndRescheduledOneSendIntervalLater() {
+        // given
+        SessionImpl session = mock(SessionImpl.class);
+        BeaconSendingSchedule target = new BeaconSendingSchedule();
+        target.add(session, 0, SEND_INTERVAL);
+        long sendTime = target.getNextSendTime();
+
+        // when
+        List<SessionImpl> obtainedBefore = target.takeDueSessions(sendTime - 1, SEND_INTERVAL);
+        List<SessionImpl> obtainedAt = target.takeDueSessions(sendTime, SEND_INTERVAL);
+        List<SessionImpl> obtainedAgain = target.takeDueSessions(sendTime, SEND_INTERVAL);
+
+        // then
+        assertThat(obtainedBefore, is(empty()));
+        assertThat(obtainedAt, contains(session));
+        assertThat(obtainedAgain, is(empty()));
+        assertThat(target.getNextSendTime(), is(sendTime + SEND_INTERVAL));
+    }
+
+    @Test
+    public void dueSessionsAreTakenInOrderOfTheirSendTime() {
+        // given
+        SessionImpl first = mock(SessionImpl.class);
+        SessionImpl second = mock(SessionImpl.class);
+        BeaconSendingSchedule target = new BeaconSendingSchedule();
+        target.add(second, SEND_INTERVAL, SEND_INTERVAL);
+        target.add(first, 0, SEND_INTERVAL);
+
+        // when
+        List<SessionImpl> obtained = target.takeDueSessions(2 * SEND_INTERVAL, SEND_INTERVAL);
+
+        // then
+        assertThat(obtained, contains(first, second));
+    }
+
+    @Test
+    public void removedSessionIsNotTaken() {
+        // given
+        SessionImpl session = mock(SessionImpl.class);
+        BeaconSendingSchedule target = new BeaconSendingSchedule();
+        target.add(session, 0, SEND_INTERVAL);
+
+        // when
+        target.remove(session);
+
+        // then
+        assertThat(target.size(), is(0));
+        assertThat(target.getNextSendTime(), is(Long.MAX_VALUE));
+        assertThat(target.takeDueSessions(SEND_INTERVAL, SEND_INTERVAL), is(empty()));
+    }
+
+    @Test
+    public void takeAllSessionsReturnsAllSessionsAndKeepsTheirOffset() {
+        // given
+        SessionImpl first = mock(SessionImpl.class);
+        SessionImpl second = mock(SessionImpl.class);
+        BeaconSendingSchedule target = new BeaconSendingSchedule();
+        target.add(first, 0, SEND_INTERVAL);
+        target.add(second, 0, SEND_INTERVAL);
+        long firstOffset = BeaconSendingSchedule.spreadOffset(first.hashCode(), SEND_INTERVAL);
+        long secondOffset = BeaconSendingSchedule.spreadOffset(second.hashCode(), SEND_INTERVAL);
+
+        // when
+        List<SessionImpl> obtained = target.takeAllSessions(SEND_INTERVAL, SEND_INTERVAL);
+
+        // then
+        assertThat(obtained, containsInAnyOrder(first, second));
+        long expectedNextSendTime = Math.min(
+                BeaconSendingSchedule.nextSendTime(firstOffset, SEND_INTERVAL, SEND_INTERVAL),
+                BeaconSendingSchedule.nextSendTime(secondOffset, SEND_INTERVAL, SEND_INTERVAL));
+        assertThat(target.getNextSendTime(), is(expectedNextSendTime));
+        assertThat(target.takeDueSessions(SEND_INTERVAL, SEND_INTERVAL), is(empty()));
+    }
+
+    @Test
+    public void sessionsAddedAtOnceAreSpreadAcrossSendInterval() {
+        // given
+        BeaconSendingSchedule target = new BeaconSendingSchedule();
+        for (int i = 0; i < 1000; i++) {
+            target.add(mock(SessionImpl.class), 0, SEND_INTERVAL);
+        }
+
+        // when
+        List<SessionImpl> obtained = target.takeDueSessions(SEND_INTERVAL / 2 - 1, SEND_INTERVAL);
+
+        // then
+        assertThat(obtained.size(), is(greaterThan(400)));
+        assertThat(obtained.size(), is(lessThan(600)));
+    }
+
+    @Test
+    public void manyReschedulesDoNotGrowTheQueueUnbounded() {
+        // given
+        List<SessionImpl> sessions = new ArrayList<SessionImpl>();
+        BeaconSendingSchedule target = new BeaconSendingSchedule();
+        for (int i = 0; i < 10; i++) {
+            SessionImpl session = mock(SessionImpl.class);
+            sessions.add(session);
+            target.add(session, 0, SEND_INTERVAL);
+        }
+
+        // when
+        for (int i = 1; i <= 100; i++) {
+            target.takeAllSessions(i * SEND_INTERVAL, SEND_INTERVAL);
+            target.remove(sessions.get(i % 10));
+            target.add(sessions.get(i % 10), i * SEND_INTERVAL, SEND_INTERVAL);
+        }
+
+        // then
+        assertThat(target.size(), is(10));
+        assertThat(target.takeAllSessions(1000 * SEND_INTERVAL, SEND_INTERVAL), containsInAnyOrder(sessions.toArray()));
+    }
+}
@@ -0,0 +1,388 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.communication;
+
+import com.dynatrace.openkit.api.Logger;
+import com.dynatrace.openkit.core.objects.SessionImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class BeaconSendingWorkerPoolTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private Logger mockLogger;
+    private BeaconSendingWorkerPool target;
+
+    @Before
+    public void setUp() {
+        // clear interrupted flag, which might be left over by other tests
+        Thread.interrupted();
+        mockLogger = mock(Logger.class);
+    }
+
+    @After
+    public void tearDown() {
+        if (target != null) {
+            target.shutdown();
+        }
+    }
+
+    @Test
+    public void numWorkersIsAtLeastOne() {
+        // when
+        target = new BeaconSendingWorkerPool(mockLogger, 0);
+
+        // then
+        assertThat(target.getNumWorkers(), is(1));
+    }
+
+    @Test
+    public void singleWorkerProcessesSessionsInCallingThreadInOrder() throws InterruptedException {
+        // given
+        target = new BeaconSendingWorkerPool(mockLogger, 1);
+        List<SessionImpl> sessions = createSessions(3);
+        final List<SessionImpl> processed = new ArrayList<SessionImpl>();
+        final Set<Thread> threads = new HashSet<Thread>();
+
+        // when
+        boolean obtained = target.execute(sessions, new BeaconSendingWorkerPool.SessionTask() {
+            @Override
+            public boolean execute(SessionImpl session) {
+                processed.add(session);
+                threads.add(Thread.currentThread());
+                return true;
+            }
+        });
+
+        // then
+        assertThat(obtained, is(true));
+        assertThat(processed, is(sessions));
+        assertThat(threads, contains(Thread.currentThread()));
+    }
+
+    @Test
+    public void singleWorkerStopsProcessingWhenTaskRequestsStop() throws InterruptedException {
+        // given
+        target = new BeaconSendingWorkerPool(mockLogger, 1);
+        List<SessionImpl> sessions = createSessions(3);
+        final List<SessionImpl> processed = new ArrayList<SessionImpl>();
+
+        // when
+        boolean obtained = target.execute(sessions, new BeaconSendingWorkerPool.SessionTask() {
+            @Override
+            public boolean execute(SessionImpl session) {
+                processed.add(session);
+                return processed.size() < 2;
+            }
+        });
+
+        // then
+        assertThat(obtained, is(false));
+        assertThat(processed, is(sessions.subList(0, 2)));
+    }
+
+    @Test
+    public void multipleWorkersProcessAllSessionsInWorkerThreads() throws InterruptedException {
+        // given
+        target = new BeaconSendingWorkerPool(mockLogger, 4);
+        List<SessionImpl> sessions = createSessions(50);
+        final Set<SessionImpl> processed = Collections.synchronizedSet(new HashSet<SessionImpl>());
+        final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+
+        // when
+        boolean obtained = target.execute(sessions, new BeaconSendingWorkerPool.SessionTask() {
+            @Override
+            public boolean execute(SessionImpl session) {
+                processed.add(session);
+                threads.add(Thread.currentThread());
+                return true;
+            }
+        });
+
+        // then
+        assertThat(obtained, is(true));
+        assertThat(processed, is((Set<SessionImpl>) new HashSet<SessionImpl>(sessions)));
+        assertThat(threads.contains(Thread.currentThread()), is(false));
+        assertThat(threads.size(), is(greaterThan(1)));
+    }
+
+    @Test
+    public void sessionIsAlwaysProcessedBySameWorker() throws InterruptedException {
+        // given
+        target = new BeaconSendingWorkerPool(mockLogger, 4);
+        List<SessionImpl> sessions = createSessions(20);
+        final Map<SessionImpl, Thread> firstThreads = new ConcurrentHashMap<SessionImpl, Thread>();
+        final AtomicInteger numMismatches = new AtomicInteger();
+        BeaconSendingWorkerPool.SessionTask task = new BeaconSendingWorkerPool.SessionTask() {
+            @Override
+            public boolean execute(SessionImpl session) {
+                Thread previous = firstThreads.get(session);
+                if (previous == null) {
+                    firstThreads.put(session, Thread.currentThread());
+                } else if (previous != Thread.currentThread()) {
+                    numMismatches.incrementAndGet();
+                }
+                return true;
+            }
+        };
+
+        // when
+        target.execute(sessions, task);
+        target.execute(sessions, task);
+
+        // then
+        assertThat(numMismatches.get(), is(0));
+    }
+
+    @Test
+    public void stopRequestedByOneWorkerStopsAllWorkers() throws InterruptedException {
+        // given
+        target = new BeaconSendingWorkerPool(mockLogger, 2);
+        SessionImpl stoppingSession = mock(SessionImpl.class);
+        SessionImpl otherSession = findSessionForOtherWorker(stoppingSession);
+        SessionImpl skippedSession = findSessionForSameWorker(otherSession);
+
+        final SessionImpl stopping = stoppingSession;
+        final CountDownLatch stopLatch = new CountDownLatch(1);
+        final List<SessionImpl> processed = Collections.synchronizedList(new ArrayList<SessionImpl>());
+
+        // when
+        boolean obtained = target.execute(Arrays.asList(stoppingSession, otherSession, skippedSession),
+                new BeaconSendingWorkerPool.SessionTask() {
+                    @Override
+                    public boolean execute(SessionImpl session) {
+                        processed.add(session);
+                        if (session == stopping) {
+                            stopLatch.countDown();
+                            return false;
+                        }
+                        try {
+                            // ensure the stop request was made before the next session is started
+                            stopLatch.await(5, TimeUnit.SECONDS);
+                            Thread.sleep(100);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return true;
+                    }
+                });
+
+        // then
+        assertThat(obtained, is(false));
+        assertThat(processed.contains(skippedSession), is(false));
+    }
+
+    @Test
+    public void interruptingTheCallerLetsWorkersFinishTheirCurrentSession() throws InterruptedException {
+        // given
+        target = new BeaconSendingWorkerPool(mockLogger, 2);
+        SessionImpl sentSession = mock(SessionImpl.class);
+        SessionImpl skippedSession = findSessionForSameWorker(sentSession);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final List<SessionImpl> processed = Collections.synchronizedList(new ArrayList<SessionImpl>());
+        final List<SessionImpl> finished = Collections.synchronizedList(new ArrayList<SessionImpl>());
+
+        // when
+        Throwable obtained = executeInterrupted(Arrays.asList(sentSession, skippedSession),
+                new BeaconSendingWorkerPool.SessionTask() {
+                    @Override
+                    public boolean execute(SessionImpl session) {
+                        processed.add(session);
+                        startLatch.countDown();
+                        sleepUninterruptibly(100);
+                        finished.add(session);
+                        return true;
+                    }
+                }, startLatch);
+
+        // then
+        assertThat(obtained, is(instanceOf(InterruptedException.class)));
+        assertThat(finished, contains(sentSession));
+        assertThat(processed.contains(skippedSession), is(false));
+        assertThat(target.getSessionsInProgress(), is(empty()));
+    }
+
+    @Test
+    public void sessionsStillProcessedAfterStopGracePeriodAreReportedInProgress() throws InterruptedException {
+        // given
+        target = new BeaconSendingWorkerPool(mockLogger, 2);
+        SessionImpl blockedSession = mock(SessionImpl.class);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+
+        // when
+        Throwable obtained = executeInterrupted(Collections.singletonList(blockedSession),
+                new BeaconSendingWorkerPool.SessionTask() {
+                    @Override
+                    public boolean execute(SessionImpl session) {
+                        startLatch.countDown();
+                        while (true) {
+                            try {
+                                releaseLatch.await();
+                                return true;
+                            } catch (InterruptedException e) {
+                                // simulate a request which cannot be interrupted
+                            }
+                        }
+                    }
+                }, startLatch);
+
+        // then
+        assertThat(obtained, is(instanceOf(InterruptedException.class)));
+        assertThat(target.getSessionsInProgress(), contains(blockedSession));
+
+        // and when
+        releaseLatch.countDown();
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (!target.getSessionsInProgress().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // then
+        assertThat(target.getSessionsInProgress(), is(empty()));
+    }
+
+    @Test
+    public void runtimeExceptionThrownByTaskIsRethrown() throws InterruptedException {
+        // given
+        target = new BeaconSendingWorkerPool(mockLogger, 2);
+        final IllegalArgumentException exception = new IllegalArgumentException("test");
+
+        // then
+        expectedException.expect(is(sameInstance(exception)));
+
+        // when
+        target.execute(createSessions(4), new BeaconSendingWorkerPool.SessionTask() {
+            @Override
+            public boolean execute(SessionImpl session) {
+                throw exception;
+            }
+        });
+    }
+
+    @Test
+    public void executingAfterShutdownRestartsWorkers() throws InterruptedException {
+        // given
+        target = new BeaconSendingWorkerPool(mockLogger, 2);
+        final AtomicInteger numProcessed = new AtomicInteger();
+        BeaconSendingWorkerPool.SessionTask task = new BeaconSendingWorkerPool.SessionTask() {
+            @Override
+            public boolean execute(SessionImpl session) {
+                numProcessed.incrementAndGet();
+                return true;
+            }
+        };
+        target.execute(createSessions(4), task);
+
+        // when
+        target.shutdown();
+        target.execute(createSessions(4), task);
+
+        // then
+        assertThat(numProcessed.get(), is(8));
+    }
+
+    /**
+     * Executes the given task in a separate thread, which is interrupted once the given latch is released.
+     *
+     * @return the exception thrown by {@link BeaconSendingWorkerPool#execute(List, BeaconSendingWorkerPool.SessionTask)}.
+     */
+    private Throwable executeInterrupted(final List<SessionImpl> sessions, final BeaconSendingWorkerPool.SessionTask task,
+                                         CountDownLatch startLatch) throws InterruptedException {
+        final List<Throwable> thrown = Collections.synchronizedList(new ArrayList<Throwable>());
+        Thread caller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    target.execute(sessions, task);
+                } catch (Throwable t) {
+                    thrown.add(t);
+                }
+            }
+        });
+        caller.start();
+        assertThat(startLatch.await(5, TimeUnit.SECONDS), is(true));
+        caller.interrupt();
+        caller.join(TimeUnit.SECONDS.toMillis(5));
+
+        assertThat(caller.isAlive(), is(false));
+        assertThat(thrown.size(), is(1));
+        return thrown.get(0);
+    }
+
+    private static void sleepUninterruptibly(long millis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            } catch (InterruptedException e) {
+                // simulate a request which cannot be interrupted
+            }
+        }
+    }
+
+    private SessionImpl findSessionForOtherWorker(SessionImpl session) {
+        SessionImpl candidate;
+        do {
+            candidate = mock(SessionImpl.class);
+        } while (target.getWorkerIndex(candidate) == target.getWorkerIndex(session));
+        return candidate;
+    }
+
+    private SessionImpl findSessionForSameWorker(SessionImpl session) {
+        SessionImpl candidate;
+        do {
+            candidate = mock(SessionImpl.class);
+        } while (target.getWorkerIndex(candidate) != target.getWorkerIndex(session));
+        return candidate;
+    }
+
+    private static List<SessionImpl> createSessions(int numSessions) {
+        List<SessionImpl> sessions = new ArrayList<SessionImpl>(numSessions);
+        for (int i = 0; i < numSessions; i++) {
+            sessions.add(mock(SessionImpl.class));
+        }
+        return sessions;
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.configuration;
+
+import com.dynatrace.openkit.AbstractOpenKitBuilder;
+import com.dynatrace.openkit.AsyncCaptureOverflowPolicy;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AsyncCaptureConfigurationTest {
+
+    @Test
+    public void asyncCaptureConfigFromNullReturnsNull() {
+        // given, when
+        AsyncCaptureConfiguration obtained = AsyncCaptureConfiguration.from(null);
+
+        // then
+        assertThat(obtained, is(nullValue()));
+    }
+
+    @Test
+    public void defaultConfigurationIsDisabled() {
+        // then
+        assertThat(AsyncCaptureConfiguration.DEFAULT.isEnabled(), is(false));
+        assertThat(AsyncCaptureConfiguration.DEFAULT.getBufferCapacity(), is(0));
+        assertThat(AsyncCaptureConfiguration.DEFAULT.getOverflowPolicy(),
+                is(ConfigurationDefaults.DEFAULT_ASYNC_CAPTURE_OVERFLOW_POLICY));
+    }
+
+    @Test
+    public void zeroBufferCapacityDisablesAsyncCapture() {
+        // given
+        AbstractOpenKitBuilder builder = mock(AbstractOpenKitBuilder.class);
+        when(builder.getAsyncCaptureBufferCapacity()).thenReturn(0);
+
+        // when
+        AsyncCaptureConfiguration obtained = AsyncCaptureConfiguration.from(builder);
+
+        // then
+        verify(builder, times(1)).getAsyncCaptureBufferCapacity();
+        assertThat(obtained.isEnabled(), is(false));
+        assertThat(obtained.getBufferCapacity(), is(0));
+    }
+
+    @Test
+    public void negativeBufferCapacityDisablesAsyncCapture() {
+        // given
+        AbstractOpenKitBuilder builder = mock(AbstractOpenKitBuilder.class);
+        when(builder.getAsyncCaptureBufferCapacity()).thenReturn(-16);
+
+        // when
+        AsyncCaptureConfiguration obtained = AsyncCaptureConfiguration.from(builder);
+
+        // then
+        assertThat(obtained.isEnabled(), is(false));
+        assertThat(obtained.getBufferCapacity(), is(0));
+    }
+
+    @Test
+    public void powerOfTwoBufferCapacityIsTakenOverFromOpenKitBuilder() {
+        // given
+        AbstractOpenKitBuilder builder = mock(AbstractOpenKitBuilder.class);
+        when(builder.getAsyncCaptureBufferCapacity()).thenReturn(1024);
+
+        // when
+        AsyncCaptureConfiguration obtained = AsyncCaptureConfiguration.from(builder);
+
+        // then
+        assertThat(obtained.isEnabled(), is(true));
+        assertThat(obtained.getBufferCapacity(), is(1024));
+    }
+
+    @Test
+    public void bufferCapacityIsRoundedUpToNextPowerOfTwo() {
+        // given
+        AbstractOpenKitBuilder builder = mock(AbstractOpenKitBuilder.class);
+        when(builder.getAsyncCaptureBufferCapacity()).thenReturn(1000, 1, 3);
+
+        // when, then
+        assertThat(AsyncCaptureConfiguration.from(builder).getBufferCapacity(), is(1024));
+        assertThat(AsyncCaptureConfiguration.from(builder).getBufferCapacity(), is(1));
+        assertThat(AsyncCaptureConfiguration.from(builder).getBufferCapacity(), is(4));
+    }
+
+    @Test
+    public void bufferCapacityIsLimitedToMaximumCapacity() {
+        // given
+        AbstractOpenKitBuilder builder = mock(AbstractOpenKitBuilder.class);
+        when(builder.getAsyncCaptureBufferCapacity()).thenReturn(Integer.MAX_VALUE);
+
+        // when
+        AsyncCaptureConfiguration obtained = AsyncCaptureConfiguration.from(builder);
+
+        // then
+        assertThat(obtained.getBufferCapacity(), is(AsyncCaptureConfiguration.MAX_BUFFER_CAPACITY));
+    }
+
+    @Test
+    public void overflowPolicyIsTakenOverFromOpenKitBuilder() {
+        // given
+        AbstractOpenKitBuilder builder = mock(AbstractOpenKitBuilder.class);
+        when(builder.getAsyncCaptureOverflowPolicy()).thenReturn(AsyncCaptureOverflowPolicy.BLOCK);
+
+        // when
+        AsyncCaptureConfiguration obtained = AsyncCaptureConfiguration.from(builder);
+
+        // then
+        verify(builder, times(1)).getAsyncCaptureOverflowPolicy();
+        assertThat(obtained.getOverflowPolicy(), is(AsyncCaptureOverflowPolicy.BLOCK));
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.configuration;
+
+import com.dynatrace.openkit.AbstractOpenKitBuilder;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BeaconOutboxConfigurationTest {
+
+    @Test
+    public void beaconOutboxConfigFromNullReturnsNull() {
+        // given, when
+        BeaconOutboxConfiguration obtained = BeaconOutboxConfiguration.from(null);
+
+        // then
+        assertThat(obtained, is(nullValue()));
+    }
+
+    @Test
+    public void directoryIsTakenOverFromOpenKitBuilder() {
+        // given
+        AbstractOpenKitBuilder builder = mock(AbstractOpenKitBuilder.class);
+        when(builder.getBeaconOutboxDirectory()).thenReturn("outbox");
+
+        // when
+        BeaconOutboxConfiguration obtained = BeaconOutboxConfiguration.from(builder);
+
+        // then
+        verify(builder, times(1)).getBeaconOutboxDirectory();
+        assertThat(obtained.getDirectory(), is("outbox"));
+        assertThat(obtained.isEnabled(), is(true));
+    }
+
+    @Test
+    public void outboxIsDisabledIfNoDirectoryIsSet() {
+        // given
+        AbstractOpenKitBuilder builder = mock(AbstractOpenKitBuilder.class);
+        when(builder.getBeaconOutboxDirectory()).thenReturn(null);
+
+        // when
+        BeaconOutboxConfiguration obtained = BeaconOutboxConfiguration.from(builder);
+
+        // then
+        assertThat(obtained.isEnabled(), is(false));
+    }
+
+    @Test
+    public void maxSizeIsTakenOverFromOpenKitBuilder() {
+        // given
+        AbstractOpenKitBuilder builder = mock(AbstractOpenKitBuilder.class);
+        when(builder.getBeaconOutboxMaxSize()).thenReturn(1234L);
+
+        // when
+        BeaconOutboxConfiguration obtained = BeaconOutboxConfiguration.from(builder);
+
+        // then
+        verify(builder, times(1)).getBeaconOutboxMaxSize();
+        assertThat(obtained.getMaxSizeInBytes(), is(1234L));
+    }
+
+    @Test
+    public void maxRecordAgeIsTakenOverFromOpenKitBuilder() {
+        // given
+        AbstractOpenKitBuilder builder = mock(AbstractOpenKitBuilder.class);
+        when(builder.getBeaconOutboxMaxRecordAge()).thenReturn(4321L);
+
+        // when
+        BeaconOutboxConfiguration obtained = BeaconOutboxConfiguration.from(builder);
+
+        // then
+        verify(builder, times(1)).getBeaconOutboxMaxRecordAge();
+        assertThat(obtained.getMaxRecordAge(), is(4321L));
+    }
+
+    @Test
+    public void defaultConfigurationUsesDefaultValues() {
+        // when
+        BeaconOutboxConfiguration obtained = BeaconOutboxConfiguration.DEFAULT;
+
+        // then
+        assertThat(obtained.isEnabled(), is(false));
+        assertThat(obtained.getDirectory(), is(nullValue()));
+        assertThat(obtained.getMaxSizeInBytes(), is(ConfigurationDefaults.DEFAULT_BEACON_OUTBOX_MAX_SIZE_IN_BYTES));
+        assertThat(obtained.getMaxRecordAge(), is(ConfigurationDefaults.DEFAULT_BEACON_OUTBOX_MAX_RECORD_AGE_IN_MILLIS));
+    }
+}
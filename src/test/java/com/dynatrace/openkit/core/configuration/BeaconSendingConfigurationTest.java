@@ -0,0 +1,93 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.configuration;
+
+import com.dynatrace.openkit.AbstractOpenKitBuilder;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BeaconSendingConfigurationTest {
+
+    @Test
+    public void beaconSendingConfigFromNullReturnsNull() {
+        // given, when
+        BeaconSendingConfiguration obtained = BeaconSendingConfiguration.from(null);
+
+        // then
+        assertThat(obtained, is(nullValue()));
+    }
+
+    @Test
+    public void numWorkersIsTakenOverFromOpenKitBuilder() {
+        // given
+        AbstractOpenKitBuilder builder = mock(AbstractOpenKitBuilder.class);
+        when(builder.getBeaconSendingWorkers()).thenReturn(3);
+
+        // when
+        BeaconSendingConfiguration obtained = BeaconSendingConfiguration.from(builder);
+
+        // then
+        verify(builder, times(1)).getBeaconSendingWorkers();
+        assertThat(obtained.getNumWorkers(), is(3));
+    }
+
+    @Test
+    public void cacheSizeSendThresholdIsTakenOverFromLowerMemoryBoundary() {
+        // given
+        AbstractOpenKitBuilder builder = mock(AbstractOpenKitBuilder.class);
+        when(builder.getBeaconCacheLowerMemoryBoundary()).thenReturn(1234L);
+
+        // when
+        BeaconSendingConfiguration obtained = BeaconSendingConfiguration.from(builder);
+
+        // then
+        verify(builder, times(1)).getBeaconCacheLowerMemoryBoundary();
+        assertThat(obtained.getCacheSizeSendThreshold(), is(1234L));
+    }
+
+    @Test
+    public void cacheSizeUpperBoundIsTakenOverFromUpperMemoryBoundary() {
+        // given
+        AbstractOpenKitBuilder builder = mock(AbstractOpenKitBuilder.class);
+        when(builder.getBeaconCacheUpperMemoryBoundary()).thenReturn(4321L);
+
+        // when
+        BeaconSendingConfiguration obtained = BeaconSendingConfiguration.from(builder);
+
+        // then
+        verify(builder, times(1)).getBeaconCacheUpperMemoryBoundary();
+        assertThat(obtained.getCacheSizeUpperBound(), is(4321L));
+    }
+
+    @Test
+    public void defaultConfigurationUsesDefaultValues() {
+        // when
+        BeaconSendingConfiguration obtained = BeaconSendingConfiguration.DEFAULT;
+
+        // then
+        assertThat(obtained.getNumWorkers(), is(ConfigurationDefaults.DEFAULT_BEACON_SENDING_WORKERS));
+        assertThat(obtained.getCacheSizeSendThreshold(), is(ConfigurationDefaults.DEFAULT_LOWER_MEMORY_BOUNDARY_IN_BYTES));
+        assertThat(obtained.getCacheSizeUpperBound(), is(ConfigurationDefaults.DEFAULT_UPPER_MEMORY_BOUNDARY_IN_BYTES));
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.configuration;
+
+import com.dynatrace.openkit.AbstractOpenKitBuilder;
+import org.junit.Test;
+
+import java.util.zip.Deflater;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CompressionConfigurationTest {
+
+    @Test
+    public void compressionConfigFromNullReturnsNull() {
+        // given, when
+        CompressionConfiguration obtained = CompressionConfiguration.from(null);
+
+        // then
+        assertThat(obtained, is(nullValue()));
+    }
+
+    @Test
+    public void compressionLevelIsTakenOverFromOpenKitBuilder() {
+        // given
+        AbstractOpenKitBuilder builder = mock(AbstractOpenKitBuilder.class);
+        when(builder.getCompressionLevel()).thenReturn(Deflater.BEST_SPEED);
+
+        // when
+        CompressionConfiguration obtained = CompressionConfiguration.from(builder);
+
+        // then
+        verify(builder, times(1)).getCompressionLevel();
+        assertThat(obtained.getCompressionLevel(), is(Deflater.BEST_SPEED));
+    }
+
+    @Test
+    public void compressionStrategyIsTakenOverFromOpenKitBuilder() {
+        // given
+        AbstractOpenKitBuilder builder = mock(AbstractOpenKitBuilder.class);
+        when(builder.getCompressionStrategy()).thenReturn(Deflater.FILTERED);
+
+        // when
+        CompressionConfiguration obtained = CompressionConfiguration.from(builder);
+
+        // then
+        verify(builder, times(1)).getCompressionStrategy();
+        assertThat(obtained.getCompressionStrategy(), is(Deflater.FILTERED));
+    }
+
+    @Test
+    public void compressionThresholdIsTakenOverFromOpenKitBuilder() {
+        // given
+        AbstractOpenKitBuilder builder = mock(AbstractOpenKitBuilder.class);
+        when(builder.getCompressionThreshold()).thenReturn(1024);
+
+        // when
+        CompressionConfiguration obtained = CompressionConfiguration.from(builder);
+
+        // then
+        verify(builder, times(1)).getCompressionThreshold();
+        assertThat(obtained.getCompressionThreshold(), is(1024));
+    }
+
+    @Test
+    public void defaultConfigurationUsesDefaultValues() {
+        // when
+        CompressionConfiguration obtained = CompressionConfiguration.DEFAULT;
+
+        // then
+        assertThat(obtained.getCompressionLevel(), is(ConfigurationDefaults.DEFAULT_COMPRESSION_LEVEL));
+        assertThat(obtained.getCompressionStrategy(), is(ConfigurationDefaults.DEFAULT_COMPRESSION_STRATEGY));
+        assertThat(obtained.getCompressionThreshold(), is(ConfigurationDefaults.DEFAULT_COMPRESSION_THRESHOLD_IN_BYTES));
+    }
+}
@@ -21,6 +21,10 @@ import com.dynatrace.openkit.api.SSLTrustManager;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
@@ -87,6 +91,30 @@ public class OpenKitConfigurationTest {
         verify(abstractOpenKitBuilder, times(1)).getEndpointURL();
     }
 
+    @Test
+    public void creatingAnOpenKitConfigurationFromBuilderGivesEndpointUrlsStartingWithEndpointUrl() {
+        // given
+        when(abstractOpenKitBuilder.getAdditionalEndpointURLs()).thenReturn(Arrays.asList("https://a", "https://b"));
+
+        // when
+        OpenKitConfiguration target = OpenKitConfiguration.from(abstractOpenKitBuilder);
+
+        // then
+        assertThat(target.getEndpointURLs(), contains(ENDPOINT_URL, "https://a", "https://b"));
+    }
+
+    @Test
+    public void creatingAnOpenKitConfigurationFromBuilderWithoutAdditionalEndpointUrlsGivesOnlyEndpointUrl() {
+        // given
+        when(abstractOpenKitBuilder.getAdditionalEndpointURLs()).thenReturn(Collections.<String>emptyList());
+
+        // when
+        OpenKitConfiguration target = OpenKitConfiguration.from(abstractOpenKitBuilder);
+
+        // then
+        assertThat(target.getEndpointURLs(), contains(ENDPOINT_URL));
+    }
+
     @Test
     public void creatingAnOpenKitConfigurationFromBuilderCopiesDeviceId() {
         // given, when
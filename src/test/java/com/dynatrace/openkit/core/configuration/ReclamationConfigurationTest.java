@@ -0,0 +1,89 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.configuration;
+
+import com.dynatrace.openkit.AbstractOpenKitBuilder;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReclamationConfigurationTest {
+
+    @Test
+    public void reclamationConfigFromNullReturnsNull() {
+        // given, when
+        ReclamationConfiguration obtained = ReclamationConfiguration.from(null);
+
+        // then
+        assertThat(obtained, is(nullValue()));
+    }
+
+    @Test
+    public void defaultConfigurationIsDisabled() {
+        // then
+        assertThat(ReclamationConfiguration.DEFAULT.isEnabled(), is(false));
+        assertThat(ReclamationConfiguration.DEFAULT.getMaxActionLifetimeInMillis(), is(0L));
+    }
+
+    @Test
+    public void positiveMaxActionLifetimeIsTakenOverFromOpenKitBuilder() {
+        // given
+        AbstractOpenKitBuilder builder = mock(AbstractOpenKitBuilder.class);
+        when(builder.getMaxActionLifetime()).thenReturn(73L);
+
+        // when
+        ReclamationConfiguration obtained = ReclamationConfiguration.from(builder);
+
+        // then
+        verify(builder, times(1)).getMaxActionLifetime();
+        assertThat(obtained.isEnabled(), is(true));
+        assertThat(obtained.getMaxActionLifetimeInMillis(), is(73L));
+    }
+
+    @Test
+    public void zeroMaxActionLifetimeDisablesReclamation() {
+        // given
+        AbstractOpenKitBuilder builder = mock(AbstractOpenKitBuilder.class);
+        when(builder.getMaxActionLifetime()).thenReturn(0L);
+
+        // when
+        ReclamationConfiguration obtained = ReclamationConfiguration.from(builder);
+
+        // then
+        assertThat(obtained.isEnabled(), is(false));
+    }
+
+    @Test
+    public void negativeMaxActionLifetimeDisablesReclamation() {
+        // given
+        AbstractOpenKitBuilder builder = mock(AbstractOpenKitBuilder.class);
+        when(builder.getMaxActionLifetime()).thenReturn(-73L);
+
+        // when
+        ReclamationConfiguration obtained = ReclamationConfiguration.from(builder);
+
+        // then
+        assertThat(obtained.isEnabled(), is(false));
+        assertThat(obtained.getMaxActionLifetimeInMillis(), is(0L));
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.configuration;
+
+import com.dynatrace.openkit.AbstractOpenKitBuilder;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ServerConfigurationStoreConfigurationTest {
+
+    @Test
+    public void serverConfigurationStoreConfigFromNullReturnsNull() {
+        // given, when
+        ServerConfigurationStoreConfiguration obtained = ServerConfigurationStoreConfiguration.from(null);
+
+        // then
+        assertThat(obtained, is(nullValue()));
+    }
+
+    @Test
+    public void directoryIsTakenOverFromOpenKitBuilder() {
+        // given
+        AbstractOpenKitBuilder builder = mock(AbstractOpenKitBuilder.class);
+        when(builder.getServerConfigurationStoreDirectory()).thenReturn("config");
+
+        // when
+        ServerConfigurationStoreConfiguration obtained = ServerConfigurationStoreConfiguration.from(builder);
+
+        // then
+        verify(builder, times(1)).getServerConfigurationStoreDirectory();
+        assertThat(obtained.getDirectory(), is("config"));
+        assertThat(obtained.isEnabled(), is(true));
+    }
+
+    @Test
+    public void storeIsDisabledIfNoDirectoryIsSet() {
+        // given
+        AbstractOpenKitBuilder builder = mock(AbstractOpenKitBuilder.class);
+        when(builder.getServerConfigurationStoreDirectory()).thenReturn(null);
+
+        // when
+        ServerConfigurationStoreConfiguration obtained = ServerConfigurationStoreConfiguration.from(builder);
+
+        // then
+        assertThat(obtained.isEnabled(), is(false));
+    }
+
+    @Test
+    public void maxAgeIsTakenOverFromOpenKitBuilder() {
+        // given
+        AbstractOpenKitBuilder builder = mock(AbstractOpenKitBuilder.class);
+        when(builder.getServerConfigurationStoreMaxAge()).thenReturn(4321L);
+
+        // when
+        ServerConfigurationStoreConfiguration obtained = ServerConfigurationStoreConfiguration.from(builder);
+
+        // then
+        verify(builder, times(1)).getServerConfigurationStoreMaxAge();
+        assertThat(obtained.getMaxAge(), is(4321L));
+    }
+
+    @Test
+    public void defaultConfigurationUsesDefaultValues() {
+        // when
+        ServerConfigurationStoreConfiguration obtained = ServerConfigurationStoreConfiguration.DEFAULT;
+
+        // then
+        assertThat(obtained.isEnabled(), is(false));
+        assertThat(obtained.getDirectory(), is(nullValue()));
+        assertThat(obtained.getMaxAge(),
+                is(ConfigurationDefaults.DEFAULT_SERVER_CONFIGURATION_STORE_MAX_AGE_IN_MILLIS));
+    }
+}
@@ -0,0 +1,262 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.objects;
+
+import com.dynatrace.openkit.api.ActionBatch;
+import com.dynatrace.openkit.api.Logger;
+import com.dynatrace.openkit.protocol.Beacon;
+import com.dynatrace.openkit.protocol.EventType;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.endsWith;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SuppressWarnings("resource")
+public class ActionBatchImplTest {
+
+    private static final int ACTION_ID = 42;
+
+    private Logger logger;
+    private Beacon beacon;
+    private RootActionImpl action;
+
+    @Before
+    public void setUp() {
+        logger = mock(Logger.class);
+        when(logger.isDebugEnabled()).thenReturn(true);
+
+        beacon = mock(Beacon.class);
+        when(beacon.createID()).thenReturn(ACTION_ID);
+
+        action = new RootActionImpl(logger, mock(SessionImpl.class), "action", beacon);
+    }
+
+    @Test
+    public void reportingReturnsSelf() {
+        // given
+        ActionBatchImpl target = new ActionBatchImpl(logger, action, beacon);
+
+        // when, then
+        assertThat(target.reportEvent("event"), is(sameInstance((ActionBatch) target)));
+        assertThat(target.reportValue("int", 1), is(sameInstance((ActionBatch) target)));
+        assertThat(target.reportValue("double", 1.0), is(sameInstance((ActionBatch) target)));
+        assertThat(target.reportValue("string", "one"), is(sameInstance((ActionBatch) target)));
+    }
+
+    @Test
+    public void reportingRecordsEntriesInOrder() {
+        // given
+        ActionBatchImpl target = new ActionBatchImpl(logger, action, beacon);
+
+        // when
+        target.reportEvent("event")
+            .reportValue("int", 17)
+            .reportValue("double", 3.25)
+            .reportValue("string", "foo");
+
+        // then
+        assertThat(target.size(), is(4));
+        assertThat(target.getEventType(0), is(EventType.NAMED_EVENT));
+        assertThat(target.getName(0), is("event"));
+        assertThat(target.getEventType(1), is(EventType.VALUE_INT));
+        assertThat(target.getName(1), is("int"));
+        assertThat(target.getIntValue(1), is(17));
+        assertThat(target.getEventType(2), is(EventType.VALUE_DOUBLE));
+        assertThat(target.getName(2), is("double"));
+        assertThat(target.getDoubleValue(2), is(3.25));
+        assertThat(target.getEventType(3), is(EventType.VALUE_STRING));
+        assertThat(target.getName(3), is("string"));
+        assertThat(target.getStringValue(3), is("foo"));
+    }
+
+    @Test
+    public void reportingNegativeIntValueKeepsValue() {
+        // given
+        ActionBatchImpl target = new ActionBatchImpl(logger, action, beacon);
+
+        // when
+        target.reportValue("int", Integer.MIN_VALUE);
+
+        // then
+        assertThat(target.getIntValue(0), is(Integer.MIN_VALUE));
+    }
+
+    @Test
+    public void reportingWithNullOrEmptyNameIsIgnored() {
+        // given
+        ActionBatchImpl target = new ActionBatchImpl(logger, action, beacon);
+
+        // when
+        target.reportEvent(null)
+            .reportEvent("")
+            .reportValue(null, 1)
+            .reportValue("", 1.0)
+            .reportValue(null, "value");
+
+        // then
+        assertThat(target.size(), is(0));
+        verify(logger, times(2)).warning(endsWith("batch reportEvent: eventName must not be null or empty"));
+        verify(logger, times(1)).warning(endsWith("batch reportValue (int): valueName must not be null or empty"));
+        verify(logger, times(1)).warning(endsWith("batch reportValue (double): valueName must not be null or empty"));
+        verify(logger, times(1)).warning(endsWith("batch reportValue (String): valueName must not be null or empty"));
+    }
+
+    @Test
+    public void reportingMoreEntriesThanInitialCapacityKeepsAllEntries() {
+        // given
+        int numEntries = 100;
+        ActionBatchImpl target = new ActionBatchImpl(logger, action, beacon);
+
+        // when
+        for (int i = 0; i < numEntries; i++) {
+            target.reportValue("value" + i, i);
+        }
+
+        // then
+        assertThat(target.size(), is(numEntries));
+        for (int i = 0; i < numEntries; i++) {
+            assertThat(target.getName(i), is("value" + i));
+            assertThat(target.getIntValue(i), is(i));
+        }
+    }
+
+    @Test
+    public void commitReportsAllEntriesToBeaconOnce() {
+        // given
+        final List<String> reportedNames = new ArrayList<String>();
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                ActionBatchImpl batch = (ActionBatchImpl) invocation.getArguments()[1];
+                for (int i = 0; i < batch.size(); i++) {
+                    reportedNames.add(batch.getName(i));
+                }
+                return null;
+            }
+        }).when(beacon).reportBatch(anyInt(), any(ActionBatchImpl.class));
+
+        ActionBatchImpl target = new ActionBatchImpl(logger, action, beacon);
+        target.reportEvent("a").reportValue("b", 1);
+
+        // when
+        target.commit();
+
+        // then
+        verify(beacon, times(1)).reportBatch(ACTION_ID, target);
+        assertThat(reportedNames, contains("a", "b"));
+    }
+
+    @Test
+    public void commitEmptiesBatch() {
+        // given
+        ActionBatchImpl target = new ActionBatchImpl(logger, action, beacon);
+        target.reportEvent("a").reportValue("b", "c");
+
+        // when
+        target.commit();
+
+        // then
+        assertThat(target.size(), is(0));
+        assertThat(target.getName(0), is(nullValue()));
+        assertThat(target.getStringValue(1), is(nullValue()));
+    }
+
+    @Test
+    public void batchCanBeReusedAfterCommit() {
+        // given
+        ActionBatchImpl target = new ActionBatchImpl(logger, action, beacon);
+        target.reportEvent("a");
+        target.commit();
+
+        // when
+        target.reportEvent("b");
+        target.commit();
+
+        // then
+        verify(beacon, times(2)).reportBatch(ACTION_ID, target);
+    }
+
+    @Test
+    public void commitWithoutEntriesDoesNotReport() {
+        // given
+        ActionBatchImpl target = new ActionBatchImpl(logger, action, beacon);
+
+        // when
+        target.commit();
+
+        // then
+        verify(beacon, times(0)).reportBatch(anyInt(), any(ActionBatchImpl.class));
+    }
+
+    @Test
+    public void commitDiscardsEntriesIfActionIsLeft() {
+        // given
+        ActionBatchImpl target = new ActionBatchImpl(logger, action, beacon);
+        target.reportEvent("a");
+        action.leaveAction();
+
+        // when
+        target.commit();
+
+        // then
+        verify(beacon, times(0)).reportBatch(anyInt(), any(ActionBatchImpl.class));
+        assertThat(target.size(), is(0));
+    }
+
+    @Test
+    public void commitLogsInvocation() {
+        // given
+        ActionBatchImpl target = new ActionBatchImpl(logger, action, beacon);
+        target.reportEvent("a").reportEvent("b");
+
+        // when
+        target.commit();
+
+        // then
+        verify(logger, times(1)).debug(endsWith("batch commit(2 entries)"));
+    }
+
+    @Test
+    public void actionBatchIsReportedWithActionId() {
+        // given
+        ActionBatch target = action.batch();
+
+        // when
+        target.reportEvent("a").commit();
+
+        // then
+        verify(beacon, times(1)).reportBatch(eq(ACTION_ID), any(ActionBatchImpl.class));
+    }
+}
@@ -17,6 +17,7 @@
 package com.dynatrace.openkit.core.objects;
 
 import com.dynatrace.openkit.api.Action;
+import com.dynatrace.openkit.api.ActionBatch;
 import com.dynatrace.openkit.api.Logger;
 import com.dynatrace.openkit.api.WebRequestTracer;
 import com.dynatrace.openkit.protocol.Beacon;
@@ -957,6 +958,31 @@ public class BaseActionImplTest {
         assertThat(obtained, is(instanceOf(NullWebRequestTracer.class)));
     }
 
+    @Test
+    public void batchGivesActionBatchImpl() {
+        // given
+        BaseActionImpl target = new StubBaseActionImpl(logger, openKitComposite, ACTION_NAME, beacon);
+
+        // when
+        ActionBatch obtained = target.batch();
+
+        // then
+        assertThat(obtained, is(instanceOf(ActionBatchImpl.class)));
+    }
+
+    @Test
+    public void batchGivesNullActionBatchIfActionIsLeft() {
+        // given
+        BaseActionImpl target = new StubBaseActionImpl(logger, openKitComposite, ACTION_NAME, beacon);
+        target.leaveAction();
+
+        // when
+        ActionBatch obtained = target.batch();
+
+        // then
+        assertThat(obtained, is(instanceOf(NullActionBatch.class)));
+    }
+
     @Test
     public void closeActionLeavesTheAction() throws IOException {
         // given
@@ -977,6 +1003,75 @@ public class BaseActionImplTest {
         verify(beacon, times(2)).createSequenceNumber();
     }
 
+    @Test
+    public void reclaimIfExpiredReturnsStartTimeIfActionHasNotExpired() {
+        // given
+        when(beacon.getCurrentTimestamp()).thenReturn(500L);
+        BaseActionImpl target = new StubBaseActionImpl(logger, openKitComposite, ACTION_NAME, beacon);
+        ReclamationCounters counters = new ReclamationCounters();
+
+        // when
+        long obtained = target.reclaimIfExpired(499L, counters);
+
+        // then
+        assertThat(obtained, is(500L));
+        assertThat(target.isActionLeft(), is(false));
+        assertThat(counters.getReclaimedActionCount(), is(0L));
+    }
+
+    @Test
+    public void reclaimIfExpiredLeavesExpiredAction() {
+        // given
+        when(beacon.getCurrentTimestamp()).thenReturn(500L);
+        BaseActionImpl target = new StubBaseActionImpl(logger, openKitComposite, ACTION_NAME, beacon);
+        ReclamationCounters counters = new ReclamationCounters();
+
+        // when
+        long obtained = target.reclaimIfExpired(500L, counters);
+
+        // then
+        assertThat(obtained, is(Long.MAX_VALUE));
+        assertThat(target.isActionLeft(), is(true));
+        assertThat(counters.getReclaimedActionCount(), is(1L));
+        verify(beacon, times(1)).addAction(target);
+        verify(openKitComposite, times(1)).onChildClosed(target);
+        verify(logger, times(1)).warning(endsWith("reclaimIfExpired: action was not left within the maximum action lifetime"));
+    }
+
+    @Test
+    public void reclaimIfExpiredDoesNothingIfActionWasLeft() {
+        // given
+        BaseActionImpl target = new StubBaseActionImpl(logger, openKitComposite, ACTION_NAME, beacon);
+        target.leaveAction();
+        ReclamationCounters counters = new ReclamationCounters();
+
+        // when
+        long obtained = target.reclaimIfExpired(500L, counters);
+
+        // then
+        assertThat(obtained, is(Long.MAX_VALUE));
+        assertThat(counters.getReclaimedActionCount(), is(0L));
+        verify(beacon, times(1)).addAction(target);
+    }
+
+    @Test
+    public void reclaimIfExpiredAlsoReclaimsWebRequestTracersOfExpiredAction() {
+        // given
+        when(beacon.getCurrentTimestamp()).thenReturn(500L, 900L);
+        BaseActionImpl target = new StubBaseActionImpl(logger, openKitComposite, ACTION_NAME, beacon);
+        WebRequestTracerBaseImpl tracer = (WebRequestTracerBaseImpl) target.traceWebRequest("https://localhost");
+        ReclamationCounters counters = new ReclamationCounters();
+
+        // when
+        target.reclaimIfExpired(500L, counters);
+
+        // then
+        assertThat(tracer.isStopped(), is(true));
+        assertThat(counters.getReclaimedActionCount(), is(1L));
+        assertThat(counters.getReclaimedWebRequestTracerCount(), is(1L));
+        assertThat(target.getCopyOfChildObjects(), is(empty()));
+    }
+
     private static final class StubBaseActionImpl extends BaseActionImpl {
 
         private final Action parentAction;
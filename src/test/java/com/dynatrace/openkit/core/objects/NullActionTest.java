@@ -18,6 +18,7 @@
 package com.dynatrace.openkit.core.objects;
 
 import com.dynatrace.openkit.api.Action;
+import com.dynatrace.openkit.api.ActionBatch;
 import com.dynatrace.openkit.api.WebRequestTracer;
 import org.junit.Before;
 import org.junit.Test;
@@ -63,6 +64,19 @@ public class NullActionTest {
         assertThat((NullAction)obtained, is(sameInstance(target)));
     }
 
+    @Test
+    public void batchReturnsNullActionBatch() {
+        // given
+        NullAction target = createNullAction();
+
+        // when
+        ActionBatch obtained = target.batch();
+
+        // then
+        assertThat(obtained, is(instanceOf(NullActionBatch.class)));
+        assertThat((NullActionBatch)obtained, is(sameInstance(NullActionBatch.INSTANCE)));
+    }
+
     @Test
     public void reportIntValueReturnsSelf() {
         // given
@@ -18,6 +18,7 @@
 package com.dynatrace.openkit.core.objects;
 
 import com.dynatrace.openkit.api.Action;
+import com.dynatrace.openkit.api.ActionBatch;
 import com.dynatrace.openkit.api.WebRequestTracer;
 import org.junit.Test;
 
@@ -71,6 +72,19 @@ public class NullRootActionTest {
         assertThat((NullRootAction)obtained, is(sameInstance(target)));
     }
 
+    @Test
+    public void batchReturnsNullActionBatch() {
+        // given
+        NullRootAction target = NullRootAction.INSTANCE;
+
+        // when
+        ActionBatch obtained = target.batch();
+
+        // then
+        assertThat(obtained, is(instanceOf(NullActionBatch.class)));
+        assertThat((NullActionBatch)obtained, is(sameInstance(NullActionBatch.INSTANCE)));
+    }
+
     @Test
     public void reportIntValueReturnsSelf() {
         // given
@@ -0,0 +1,148 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.objects;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class OpenKitCompositeTest {
+
+    @Test
+    public void childrenAreReturnedInInsertionOrder() {
+        // given
+        OpenKitObject childOne = mock(OpenKitObject.class);
+        OpenKitObject childTwo = mock(OpenKitObject.class);
+        OpenKitObject childThree = mock(OpenKitObject.class);
+        StubOpenKitComposite target = new StubOpenKitComposite();
+
+        // when
+        target.storeChildInList(childOne);
+        target.storeChildInList(childTwo);
+        target.storeChildInList(childThree);
+
+        // then
+        assertThat(target.getCopyOfChildObjects(), is(equalTo(Arrays.asList(childOne, childTwo, childThree))));
+        assertThat(target.getChildCount(), is(3));
+    }
+
+    @Test
+    public void removingAChildKeepsTheOrderOfTheRemainingChildren() {
+        // given
+        OpenKitObject childOne = mock(OpenKitObject.class);
+        OpenKitObject childTwo = mock(OpenKitObject.class);
+        OpenKitObject childThree = mock(OpenKitObject.class);
+        StubOpenKitComposite target = new StubOpenKitComposite();
+        target.storeChildInList(childOne);
+        target.storeChildInList(childTwo);
+        target.storeChildInList(childThree);
+
+        // when
+        boolean obtained = target.removeChildFromList(childTwo);
+
+        // then
+        assertThat(obtained, is(true));
+        assertThat(target.getCopyOfChildObjects(), is(equalTo(Arrays.asList(childOne, childThree))));
+        assertThat(target.getChildCount(), is(2));
+    }
+
+    @Test
+    public void removingAnUnknownChildReturnsFalse() {
+        // given
+        StubOpenKitComposite target = new StubOpenKitComposite();
+        target.storeChildInList(mock(OpenKitObject.class));
+
+        // when
+        boolean obtained = target.removeChildFromList(mock(OpenKitObject.class));
+
+        // then
+        assertThat(obtained, is(false));
+        assertThat(target.getChildCount(), is(1));
+    }
+
+    @Test
+    public void compositeWithoutChildrenHasNoChildren() {
+        // given
+        StubOpenKitComposite target = new StubOpenKitComposite();
+
+        // when
+        boolean obtained = target.removeChildFromList(mock(OpenKitObject.class));
+
+        // then
+        assertThat(obtained, is(false));
+        assertThat(target.getChildCount(), is(0));
+        assertThat(target.getCopyOfChildObjects(), is(empty()));
+    }
+
+    @Test
+    public void copyOfChildObjectsIsNotAffectedByLaterChanges() {
+        // given
+        OpenKitObject child = mock(OpenKitObject.class);
+        StubOpenKitComposite target = new StubOpenKitComposite();
+        target.storeChildInList(child);
+
+        // when
+        List<OpenKitObject> obtained = target.getCopyOfChildObjects();
+        target.removeChildFromList(child);
+
+        // then
+        assertThat(obtained, is(equalTo(Arrays.asList(child))));
+        assertThat(target.getCopyOfChildObjects(), is(empty()));
+    }
+
+    @Test
+    public void removingManyChildrenInArbitraryOrderLeavesNoChildren() {
+        // given
+        int numChildren = 10000;
+        OpenKitObject[] children = new OpenKitObject[numChildren];
+        StubOpenKitComposite target = new StubOpenKitComposite();
+        for (int i = 0; i < numChildren; i++) {
+            children[i] = new StubOpenKitComposite();
+            target.storeChildInList(children[i]);
+        }
+
+        // when
+        for (int i = 0; i < numChildren; i += 2) {
+            target.removeChildFromList(children[i]);
+        }
+        for (int i = numChildren - 1; i > 0; i -= 2) {
+            target.removeChildFromList(children[i]);
+        }
+
+        // then
+        assertThat(target.getChildCount(), is(0));
+    }
+
+    private static final class StubOpenKitComposite extends OpenKitComposite {
+
+        @Override
+        void onChildClosed(OpenKitObject childObject) {
+            removeChildFromList(childObject);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -27,11 +27,15 @@ import com.dynatrace.openkit.core.caching.BeaconCacheImpl;
 import com.dynatrace.openkit.core.configuration.ConfigurationDefaults;
 import com.dynatrace.openkit.core.configuration.OpenKitConfiguration;
 import com.dynatrace.openkit.core.configuration.PrivacyConfiguration;
+import com.dynatrace.openkit.protocol.AsyncEventCapture;
+import com.dynatrace.openkit.protocol.SharedBeaconData;
+import com.dynatrace.openkit.providers.RandomNumberGenerator;
 import com.dynatrace.openkit.providers.SessionIDProvider;
 import com.dynatrace.openkit.providers.ThreadIDProvider;
 import com.dynatrace.openkit.providers.TimingProvider;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 
 import java.io.IOException;
 import java.util.Arrays;
@@ -46,6 +50,7 @@ import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -114,6 +119,20 @@ public class OpenKitImplTest {
         verifyNoMoreInteractions(beaconCacheEvictor);
     }
 
+    @Test
+    public void initializeStartsTheAsyncEventCapture() {
+        // given
+        AsyncEventCapture asyncEventCapture = mock(AsyncEventCapture.class);
+        OpenKitImpl target = createOpenKit().with(asyncEventCapture).build();
+
+        // when
+        target.initialize();
+
+        // then
+        verify(asyncEventCapture, times(1)).start();
+        verifyNoMoreInteractions(asyncEventCapture);
+    }
+
     @Test
     public void initializeInitializesBeaconSender() {
         // given
@@ -207,6 +226,21 @@ public class OpenKitImplTest {
         verifyNoMoreInteractions(beaconSender);
     }
 
+    @Test
+    public void shutdownStopsTheAsyncEventCaptureBeforeTheBeaconSender() {
+        // given
+        AsyncEventCapture asyncEventCapture = mock(AsyncEventCapture.class);
+        OpenKitImpl target = createOpenKit().with(asyncEventCapture).build();
+
+        // when
+        target.shutdown();
+
+        // then
+        InOrder inOrder = inOrder(asyncEventCapture, beaconSender);
+        inOrder.verify(asyncEventCapture, times(1)).stop();
+        inOrder.verify(beaconSender, times(1)).shutdown();
+    }
+
     @Test
     public void shutdownStopsTheBeaconCacheEvictor() {
         // given
@@ -233,6 +267,50 @@ public class OpenKitImplTest {
         verifyNoMoreInteractions(beaconSender);
     }
 
+    @Test
+    public void shutdownWithTimeoutShutsDownBeaconSenderWithTimeout() {
+        // given
+        OpenKitImpl target = createOpenKit().build();
+
+        // when
+        target.shutdown(1234L);
+
+        // then
+        verify(beaconSender, times(1)).shutdown(1234L);
+        verifyNoMoreInteractions(beaconSender);
+    }
+
+    @Test
+    public void shutdownWithTimeoutClosesAllChildObjectsAndStopsThreads() throws IOException {
+        // given
+        OpenKitImpl target = createOpenKit().build();
+
+        OpenKitObject childObject = mock(OpenKitObject.class);
+        target.storeChildInList(childObject);
+
+        // when
+        target.shutdown(1234L);
+
+        // then
+        verify(childObject, times(1)).close();
+        verify(beaconCacheEvictor, times(1)).stop();
+        verify(sessionWatchdog, times(1)).shutdown();
+    }
+
+    @Test
+    public void callingShutdownWithTimeoutAfterShutdownReturnsImmediately() {
+        // given
+        OpenKitImpl target = createOpenKit().build();
+
+        // when
+        target.shutdown();
+        target.shutdown(1234L);
+
+        // then
+        verify(beaconSender, times(1)).shutdown();
+        verifyNoMoreInteractions(beaconSender);
+    }
+
     @Test
     public void shutdownShutsDownSessionWatchdog() {
         // given
@@ -416,6 +494,62 @@ public class OpenKitImplTest {
         assertThat((NullSession)obtained, sameInstance(NullSession.INSTANCE));
     }
 
+    @Test
+    public void getSharedBeaconDataAlwaysReturnsTheSameInstance() {
+        // given
+        OpenKitImpl target = createOpenKit().build();
+
+        // when
+        SharedBeaconData obtained = target.getSharedBeaconData();
+
+        // then
+        assertThat(obtained, is(notNullValue()));
+        assertThat(target.getSharedBeaconData(), is(sameInstance(obtained)));
+    }
+
+    @Test
+    public void getRandomNumberGeneratorAlwaysReturnsTheSameInstance() {
+        // given
+        OpenKitImpl target = createOpenKit().build();
+
+        // when
+        RandomNumberGenerator obtained = target.getRandomNumberGenerator();
+
+        // then
+        assertThat(obtained, is(notNullValue()));
+        assertThat(target.getRandomNumberGenerator(), is(sameInstance(obtained)));
+    }
+
+    @Test
+    public void sessionsCreatedConcurrentlyAreAllAddedToListOfChildren() throws InterruptedException {
+        // given
+        final OpenKitImpl target = createOpenKit().build();
+        final int numThreads = 4;
+        final int sessionsPerThread = 100;
+        Thread[] threads = new Thread[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < sessionsPerThread; j++) {
+                        target.createSession();
+                    }
+                }
+            });
+        }
+
+        // when
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // then
+        assertThat(target.getChildCount(), is(equalTo(numThreads * sessionsPerThread)));
+    }
+
     @Test
     public void onChildClosedRemovesArgumentFromListOfChildren() {
         // given
@@ -462,12 +596,18 @@ public class OpenKitImplTest {
         private BeaconSender beaconSender;
         private BeaconCacheEvictor beaconCacheEvictor;
         private SessionWatchdog sessionWatchdog;
+        private AsyncEventCapture asyncEventCapture;
 
         private OpenKitImplBuilder with(PrivacyConfiguration privacyConfiguration) {
             this.privacyConfiguration = privacyConfiguration;
             return this;
         }
 
+        private OpenKitImplBuilder with(AsyncEventCapture asyncEventCapture) {
+            this.asyncEventCapture = asyncEventCapture;
+            return this;
+        }
+
         private OpenKitImplBuilder with(OpenKitConfiguration openKitConfiguration) {
             this.openKitConfiguration = openKitConfiguration;
             return this;
@@ -485,6 +625,7 @@ public class OpenKitImplTest {
             when(initializer.getBeaconCacheEvictor()).thenReturn(beaconCacheEvictor);
             when(initializer.getBeaconSender()).thenReturn(beaconSender);
             when(initializer.getSessionWatchdog()).thenReturn(sessionWatchdog);
+            when(initializer.getAsyncEventCapture()).thenReturn(asyncEventCapture);
 
             return new OpenKitImpl(initializer);
         }
@@ -16,6 +16,7 @@
 package com.dynatrace.openkit.core.objects;
 
 import com.dynatrace.openkit.AbstractOpenKitBuilder;
+import com.dynatrace.openkit.AsyncCaptureOverflowPolicy;
 import com.dynatrace.openkit.api.Logger;
 import org.junit.Before;
 import org.junit.Test;
@@ -23,6 +24,7 @@ import org.junit.Test;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -137,6 +139,29 @@ public class OpenKitInitializerImplTest {
         assertThat(target.getSessionWatchdog(), notNullValue());
     }
 
+    @Test
+    public void constructorDoesNotCreateAsyncEventCaptureByDefault() {
+        // given, when
+        OpenKitInitializerImpl target = createOpenKitInitializer();
+
+        // then
+        assertThat(target.getAsyncEventCapture(), nullValue());
+    }
+
+    @Test
+    public void constructorInitializesAsyncEventCaptureIfConfigured() {
+        // given
+        when(mockBuilder.getAsyncCaptureBufferCapacity()).thenReturn(100);
+        when(mockBuilder.getAsyncCaptureOverflowPolicy()).thenReturn(AsyncCaptureOverflowPolicy.DROP_OLDEST);
+
+        // when
+        OpenKitInitializerImpl target = createOpenKitInitializer();
+
+        // then
+        assertThat(target.getAsyncEventCapture(), notNullValue());
+        assertThat(target.getAsyncEventCapture().getCapacity(), is(128));
+    }
+
     private OpenKitInitializerImpl createOpenKitInitializer() {
         return new OpenKitInitializerImpl(mockBuilder);
     }
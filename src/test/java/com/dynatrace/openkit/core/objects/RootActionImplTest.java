@@ -30,6 +30,9 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.endsWith;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -62,6 +65,25 @@ public class RootActionImplTest {
         session = mock(SessionImpl.class);
     }
 
+    @Test
+    public void reclaimIfExpiredAlsoReclaimsChildActionsOfExpiredRootAction() {
+        // given
+        when(beacon.getCurrentTimestamp()).thenReturn(500L, 900L);
+        RootActionImpl target = new RootActionImpl(logger, session, ROOT_ACTION_NAME, beacon);
+        LeafActionImpl childAction = (LeafActionImpl) target.enterAction("child action");
+        ReclamationCounters counters = new ReclamationCounters();
+
+        // when
+        long obtained = target.reclaimIfExpired(500L, counters);
+
+        // then
+        assertThat(obtained, is(Long.MAX_VALUE));
+        assertThat(target.isActionLeft(), is(true));
+        assertThat(childAction.isActionLeft(), is(true));
+        assertThat(counters.getReclaimedActionCount(), is(2L));
+        verify(session, times(1)).onChildClosed(target);
+    }
+
     @Test
     public void getParentActionReturnsNull() {
         // given
@@ -145,6 +167,59 @@ public class RootActionImplTest {
         assertThat(obtained, is(instanceOf(NullAction.class)));
     }
 
+    @Test
+    public void reportActionWithNullNameDoesNothing() {
+        // given
+        RootActionImpl target = new RootActionImpl(logger, session, ROOT_ACTION_NAME, beacon);
+
+        // when
+        target.reportAction(null, 1L, 2L);
+
+        // then
+        verify(logger, times(1)).warning(endsWith("reportAction: actionName must not be null or empty"));
+        verify(beacon, times(0)).addCompletedAction(anyString(), anyInt(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void reportActionWithEndTimeBeforeStartTimeDoesNothing() {
+        // given
+        RootActionImpl target = new RootActionImpl(logger, session, ROOT_ACTION_NAME, beacon);
+
+        // when
+        target.reportAction(CHILD_ACTION_NAME, 2L, 1L);
+
+        // then
+        verify(logger, times(1)).warning(endsWith("reportAction: endTimeInMillis must not be before startTimeInMillis"));
+        verify(beacon, times(0)).addCompletedAction(anyString(), anyInt(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void reportActionAddsCompletedChildActionToBeacon() {
+        // given
+        when(beacon.createID()).thenReturn(42);
+        RootActionImpl target = new RootActionImpl(logger, session, ROOT_ACTION_NAME, beacon);
+
+        // when
+        target.reportAction(CHILD_ACTION_NAME, 17L, 37L);
+
+        // then
+        verify(beacon, times(1)).addCompletedAction(CHILD_ACTION_NAME, 42, 17L, 37L);
+        assertThat(target.getCopyOfChildObjects().isEmpty(), is(true));
+    }
+
+    @Test
+    public void reportActionDoesNothingIfAlreadyLeft() {
+        // given
+        RootActionImpl target = new RootActionImpl(logger, session, ROOT_ACTION_NAME, beacon);
+        target.leaveAction();
+
+        // when
+        target.reportAction(CHILD_ACTION_NAME, 17L, 37L);
+
+        // then
+        verify(beacon, times(0)).addCompletedAction(anyString(), anyInt(), anyLong(), anyLong());
+    }
+
     @Test
     public void enterActionLogsInvocation() {
         // given
@@ -20,7 +20,11 @@ import com.dynatrace.openkit.core.caching.BeaconCache;
 import com.dynatrace.openkit.core.caching.BeaconKey;
 import com.dynatrace.openkit.core.configuration.OpenKitConfiguration;
 import com.dynatrace.openkit.core.configuration.PrivacyConfiguration;
+import com.dynatrace.openkit.protocol.AsyncEventCapture;
 import com.dynatrace.openkit.protocol.Beacon;
+import com.dynatrace.openkit.protocol.SharedBeaconData;
+import com.dynatrace.openkit.providers.DefaultRandomNumberGenerator;
+import com.dynatrace.openkit.providers.RandomNumberGenerator;
 import com.dynatrace.openkit.providers.SessionIDProvider;
 import com.dynatrace.openkit.providers.ThreadIDProvider;
 import com.dynatrace.openkit.providers.TimingProvider;
@@ -28,6 +32,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.Matchers.not;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -79,6 +84,7 @@ public class SessionCreatorImplTest {
         when(mockInput.getThreadIdProvider()).thenReturn(mockThreadIdProvider);
         when(mockInput.getTimingProvider()).thenReturn(mockTimingProvider);
         when(mockInput.getCurrentServerId()).thenReturn(SERVER_ID);
+        when(mockInput.getRandomNumberGenerator()).thenReturn(new DefaultRandomNumberGenerator());
     }
 
     @Test
@@ -150,6 +156,50 @@ public class SessionCreatorImplTest {
         verify(mockInput, times(1)).getCurrentServerId();
     }
 
+    @Test
+    public void constructorTakesOverSharedBeaconData() {
+        // given
+        SharedBeaconData sharedBeaconData = Beacon.createSharedBeaconData(mockLogger, mockOpenKitConfiguration,
+                mockPrivacyConfiguration);
+        when(mockInput.getSharedBeaconData()).thenReturn(sharedBeaconData);
+
+        // when
+        SessionCreatorImpl target = createSessionCreator();
+
+        // then
+        verify(mockInput, times(1)).getSharedBeaconData();
+        assertThat(target.getSharedBeaconData(), is(sameInstance(sharedBeaconData)));
+    }
+
+    @Test
+    public void constructorTakesOverAsyncEventCapture() {
+        // given
+        AsyncEventCapture asyncEventCapture = mock(AsyncEventCapture.class);
+        when(mockInput.getAsyncEventCapture()).thenReturn(asyncEventCapture);
+
+        // when
+        SessionCreatorImpl target = createSessionCreator();
+
+        // then
+        verify(mockInput, times(1)).getAsyncEventCapture();
+        assertThat(target.getAsyncEventCapture(), is(sameInstance(asyncEventCapture)));
+    }
+
+    @Test
+    public void constructorTakesOverRandomNumberGenerator() {
+        // given
+        RandomNumberGenerator mockRandomGenerator = mock(RandomNumberGenerator.class);
+        when(mockRandomGenerator.nextPositiveLong()).thenReturn(4711L);
+        when(mockInput.getRandomNumberGenerator()).thenReturn(mockRandomGenerator);
+
+        // when
+        SessionCreatorImpl target = createSessionCreator();
+
+        // then
+        verify(mockInput, times(1)).getRandomNumberGenerator();
+        assertThat(target.getRandomNumberGenerator().nextPositiveLong(), is(4711L));
+    }
+
     @Test
     public void constructorDrawsNextSessionId() {
         // when
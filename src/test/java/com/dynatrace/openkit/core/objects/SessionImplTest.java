@@ -19,6 +19,7 @@ package com.dynatrace.openkit.core.objects;
 import com.dynatrace.openkit.api.Logger;
 import com.dynatrace.openkit.api.RootAction;
 import com.dynatrace.openkit.api.WebRequestTracer;
+import com.dynatrace.openkit.core.caching.BeaconOutbox;
 import com.dynatrace.openkit.core.configuration.ServerConfiguration;
 import com.dynatrace.openkit.protocol.AdditionalQueryParameters;
 import com.dynatrace.openkit.protocol.Beacon;
@@ -40,6 +41,8 @@ import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.contains;
 import static org.mockito.Matchers.eq;
@@ -172,6 +175,73 @@ public class SessionImplTest {
         verifyNoMoreInteractions(mockLogger);
     }
 
+    @Test
+    public void reportActionWithNullActionNameDoesNothing() {
+        // given
+        SessionImpl target = createSession().build();
+
+        // when
+        target.reportAction(null, 1L, 2L);
+
+        // then
+        verify(mockLogger, times(1)).warning("SessionImpl [sn=0] reportAction: actionName must not be null or empty");
+        verify(mockBeacon, times(0)).addCompletedAction(anyString(), anyInt(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void reportActionWithEmptyActionNameDoesNothing() {
+        // given
+        SessionImpl target = createSession().build();
+
+        // when
+        target.reportAction("", 1L, 2L);
+
+        // then
+        verify(mockLogger, times(1)).warning("SessionImpl [sn=0] reportAction: actionName must not be null or empty");
+        verify(mockBeacon, times(0)).addCompletedAction(anyString(), anyInt(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void reportActionWithEndTimeBeforeStartTimeDoesNothing() {
+        // given
+        SessionImpl target = createSession().build();
+
+        // when
+        target.reportAction("Some action", 2L, 1L);
+
+        // then
+        verify(mockLogger, times(1)).warning("SessionImpl [sn=0] reportAction: endTimeInMillis must not be before startTimeInMillis");
+        verify(mockBeacon, times(0)).addCompletedAction(anyString(), anyInt(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void reportActionAddsCompletedRootActionToBeacon() {
+        // given
+        SessionImpl target = createSession().build();
+
+        // when
+        target.reportAction("Some action", 17L, 42L);
+
+        // then
+        verify(mockBeacon, times(1)).addCompletedAction("Some action", 0, 17L, 42L);
+        assertThat(target.getCopyOfChildObjects().isEmpty(), is(true));
+    }
+
+    @Test
+    public void reportActionLogsInvocation() {
+        // given
+        String actionName = "Some action";
+        SessionImpl target = createSession().build();
+
+        // when
+        target.reportAction(actionName, 17L, 42L);
+
+        // then
+        verify(mockLogger, times(1)).debug("SessionImpl [sn=0] reportAction(" + actionName + ", 17, 42)");
+        verify(mockLogger, times(1)).isDebugEnabled();
+        verifyNoMoreInteractions(mockLogger);
+    }
+
     @Test
     public void identifyUserWithNullTagDoesNothing() {
         // given
@@ -378,6 +448,26 @@ public class SessionImplTest {
         assertThat(target.getState().isFinished(), is(true));
     }
 
+    @Test
+    public void endingASessionNotifiesStateListener() {
+        // given
+        SessionStateListener listener = mock(SessionStateListener.class);
+        SessionImpl target = createSession().build();
+        target.setStateListener(listener);
+
+        // when
+        target.end();
+
+        // then
+        verify(listener, times(1)).onSessionFinished(target);
+
+        // and when ending the session again
+        target.end();
+
+        // then
+        verifyNoMoreInteractions(listener);
+    }
+
     @Test
     public void endingASessionImplicitlyClosesAllOpenChildObjects() throws IOException {
         // given
@@ -505,6 +595,21 @@ public class SessionImplTest {
         assertThat(target.getState().isFinished(), is(true));
     }
 
+    @Test
+    public void sendPriorityDataForwardsCallToBeacon() {
+        // given
+        SessionImpl target = createSession().build();
+        HTTPClientProvider clientProvider = mock(HTTPClientProvider.class);
+
+        // when
+        target.sendPriorityData(clientProvider, mockAdditionalParameters);
+
+        // then verify the proper methods being called
+        verify(mockBeacon, times(1)).startSession();
+        verify(mockBeacon, times(1)).sendPriorityData(clientProvider, mockAdditionalParameters);
+        verifyNoMoreInteractions(mockBeacon);
+    }
+
     @Test
     public void sendBeaconForwardsCallToBeacon() {
         // given
@@ -534,6 +639,21 @@ public class SessionImplTest {
         verifyNoMoreInteractions(mockBeacon);
     }
 
+    @Test
+    public void moveDataToOutboxForwardsCallToBeacon() {
+        // given
+        BeaconOutbox outbox = mock(BeaconOutbox.class);
+        SessionImpl target = createSession().build();
+
+        // when
+        target.moveDataToOutbox(outbox);
+
+        // then
+        verify(mockBeacon, times(1)).startSession();
+        verify(mockBeacon, times(1)).moveDataToOutbox(outbox);
+        verifyNoMoreInteractions(mockBeacon);
+    }
+
     @Test
     public void isEmptyForwardsCallToBeacon() {
         // given
@@ -548,6 +668,22 @@ public class SessionImplTest {
         verifyNoMoreInteractions(mockBeacon);
     }
 
+    @Test
+    public void hasPriorityDataForwardsCallToBeacon() {
+        // given
+        SessionImpl target = createSession().build();
+        when(mockBeacon.hasPriorityData()).thenReturn(true);
+
+        // when
+        boolean obtained = target.hasPriorityData();
+
+        // then
+        assertThat(obtained, is(true));
+        verify(mockBeacon, times(1)).startSession();
+        verify(mockBeacon, times(1)).hasPriorityData();
+        verifyNoMoreInteractions(mockBeacon);
+    }
+
     @Test
     public void initializeServerConfigurationForwardsCallToBeacon() {
         // given
@@ -666,6 +802,46 @@ public class SessionImplTest {
         assertThat(target.getState().isFinished(), is(true));
     }
 
+    @Test
+    public void configuredStateIsNotQueriedFromBeaconOnceConfigured() {
+        // given
+        when(mockBeacon.isServerConfigurationSet()).thenReturn(false, true);
+        SessionImpl target = createSession().build();
+        assertThat(target.getState().isConfigured(), is(false));
+        assertThat(target.getState().isConfigured(), is(true));
+
+        // when
+        boolean obtained = target.getState().isConfiguredAndOpen();
+
+        // then
+        assertThat(obtained, is(true));
+        verify(mockBeacon, times(2)).isServerConfigurationSet();
+    }
+
+    @Test
+    public void stateQueriesDoNotWaitForThreadsHoldingTheStateMonitor() throws InterruptedException {
+        // given
+        when(mockBeacon.isServerConfigurationSet()).thenReturn(true);
+        final SessionImpl target = createSession().build();
+        final boolean[] obtained = new boolean[1];
+        Thread queryThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                obtained[0] = target.getState().isConfiguredAndOpen();
+            }
+        });
+
+        // when
+        synchronized (target.getState()) {
+            queryThread.start();
+            queryThread.join(5000);
+        }
+
+        // then
+        assertThat(queryThread.isAlive(), is(false));
+        assertThat(obtained[0], is(true));
+    }
+
     @Test
     public void aSessionIsFinishedIfEndIsCalled() {
         // given
@@ -692,6 +868,19 @@ public class SessionImplTest {
         assertThat(obtained, is(instanceOf(NullRootAction.class)));
     }
 
+    @Test
+    public void reportActionDoesNothingIfSessionIsEnded() {
+        // given
+        SessionImpl target = createSession().build();
+        target.end();
+
+        // when reporting an action on already ended session
+        target.reportAction("Test", 1L, 2L);
+
+        // then
+        verify(mockBeacon, times(0)).addCompletedAction(anyString(), anyInt(), anyLong(), anyLong());
+    }
+
     @Test
     public void identifyUserDoesNothingIfSessionIsEnded() {
         // given
@@ -1133,6 +1322,53 @@ public class SessionImplTest {
         assertThat(target.getSplitByEventsGracePeriodEndTimeInMillis(), is(endTime));
     }
 
+    @Test
+    public void reclaimExpiredChildrenLeavesOnlyExpiredActions() {
+        // given
+        when(mockBeacon.getCurrentTimestamp()).thenReturn(100L, 900L);
+        SessionImpl target = createSession().build();
+        RootActionImpl expiredAction = (RootActionImpl) target.enterAction("expired");
+        RootActionImpl openAction = (RootActionImpl) target.enterAction("open");
+        ReclamationCounters counters = new ReclamationCounters();
+
+        // when
+        long obtained = target.reclaimExpiredChildren(500L, counters);
+
+        // then
+        assertThat(obtained, is(900L));
+        assertThat(expiredAction.isActionLeft(), is(true));
+        assertThat(openAction.isActionLeft(), is(false));
+        assertThat(counters.getReclaimedActionCount(), is(1L));
+        assertThat(target.getCopyOfChildObjects(), is(equalTo(Collections.<OpenKitObject>singletonList(openAction))));
+    }
+
+    @Test
+    public void reclaimExpiredChildrenReturnsMaxValueIfSessionHasNoChildren() {
+        // given
+        SessionImpl target = createSession().build();
+
+        // when
+        long obtained = target.reclaimExpiredChildren(500L, new ReclamationCounters());
+
+        // then
+        assertThat(obtained, is(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void reclaimExpiredChildrenDoesNothingIfSessionIsFinished() {
+        // given
+        SessionImpl target = createSession().build();
+        target.end();
+        ReclamationCounters counters = new ReclamationCounters();
+
+        // when
+        long obtained = target.reclaimExpiredChildren(500L, counters);
+
+        // then
+        assertThat(obtained, is(Long.MAX_VALUE));
+        assertThat(counters.getReclaimedActionCount(), is(0L));
+    }
+
     private SessionBuilder createSession() {
         SessionBuilder builder = new SessionBuilder();
         builder.logger = mockLogger;
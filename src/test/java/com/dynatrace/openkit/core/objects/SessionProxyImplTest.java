@@ -25,23 +25,38 @@ import com.dynatrace.openkit.protocol.Beacon;
 import com.dynatrace.openkit.providers.TimingProvider;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import java.io.IOException;
 import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.contains;
 import static org.mockito.Matchers.endsWith;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -333,6 +348,99 @@ public class SessionProxyImplTest {
         verifyNoMoreInteractions(mockSessionCreator);
     }
 
+    @Test
+    public void reportActionWithNullActionNameDoesNothing() {
+        // given
+        SessionProxyImpl target = createSessionProxy();
+
+        // when
+        target.reportAction(null, 1L, 2L);
+
+        // then
+        verify(mockLogger, times(1)).warning(endsWith("reportAction: actionName must not be null or empty"));
+        verify(mockSession, times(0)).reportAction(anyString(), anyLong(), anyLong());
+        assertThat(target.getTopLevelActionCount(), is(0));
+    }
+
+    @Test
+    public void reportActionWithEndTimeBeforeStartTimeDoesNothing() {
+        // given
+        SessionProxyImpl target = createSessionProxy();
+
+        // when
+        target.reportAction("some action", 2L, 1L);
+
+        // then
+        verify(mockLogger, times(1)).warning(endsWith("reportAction: endTimeInMillis must not be before startTimeInMillis"));
+        verify(mockSession, times(0)).reportAction(anyString(), anyLong(), anyLong());
+        assertThat(target.getTopLevelActionCount(), is(0));
+    }
+
+    @Test
+    public void reportActionDelegatesToRealSession() {
+        // given
+        String actionName = "some action";
+        SessionProxyImpl target = createSessionProxy();
+
+        // when
+        target.reportAction(actionName, 17L, 42L);
+
+        // then
+        verify(mockSession, times(1)).reportAction(actionName, 17L, 42L);
+    }
+
+    @Test
+    public void reportActionIncreasesTopLevelEventCount() {
+        // given
+        SessionProxyImpl target = createSessionProxy();
+        assertThat(target.getTopLevelActionCount(), is(0));
+
+        // when
+        target.reportAction("test", 17L, 42L);
+
+        // then
+        assertThat(target.getTopLevelActionCount(), is(1));
+    }
+
+    @Test
+    public void reportActionDoesNothingIfSessionIsAlreadyEnded() {
+        // given
+        SessionProxyImpl target = createSessionProxy();
+        target.end();
+
+        // when
+        target.reportAction("test", 17L, 42L);
+
+        // then
+        verify(mockSession, times(0)).reportAction(anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void reportActionSplitsSessionEveryNthEvent() {
+        // given
+        int maxEventCount = 2;
+        when(mockServerConfiguration.isSessionSplitByEventsEnabled()).thenReturn(true);
+        when(mockServerConfiguration.getMaxEventsPerSession()).thenReturn(maxEventCount);
+
+        SessionProxyImpl target = createSessionProxy();
+        verify(mockSessionCreator, times(1)).createSession(target);
+
+        target.onServerConfigurationUpdate(mockServerConfiguration);
+
+        // when
+        target.reportAction("action 1", 1L, 2L);
+        target.enterAction("action 2");
+
+        // then
+        verifyNoMoreInteractions(mockSessionCreator);
+
+        // and when
+        target.reportAction("action 3", 3L, 4L);
+
+        // then
+        verify(mockSessionCreator, times(2)).createSession(target);
+    }
+
     @Test
     public void enterActionSplitsSessionEveryNthEvent() {
         // given
@@ -1132,6 +1240,112 @@ public class SessionProxyImplTest {
     /// split session by time tests
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
+    @Test
+    public void constructorAddsSessionProxyToReclamation() {
+        // given, when
+        SessionProxyImpl target = createSessionProxy();
+
+        // then
+        verify(mockSessionWatchdog, times(1)).addToReclamation(target);
+    }
+
+    @Test
+    public void endRemovesSessionProxyFromReclamation() {
+        // given
+        SessionProxyImpl target = createSessionProxy();
+
+        // when
+        target.end();
+
+        // then
+        verify(mockSessionWatchdog, times(1)).removeFromReclamation(target);
+    }
+
+    @Test
+    public void reclaimLeakedObjectsReturnsMinusOneIfSessionProxyIsFinished() {
+        // given
+        SessionProxyImpl target = createSessionProxy();
+        target.end();
+
+        // when
+        long obtained = target.reclaimLeakedObjects(300, new ReclamationCounters());
+
+        // then
+        assertThat(obtained, is(-1L));
+        verify(mockSession, times(0)).reclaimExpiredChildren(anyLong(), any(ReclamationCounters.class));
+    }
+
+    @Test
+    public void reclaimLeakedObjectsReclaimsExpiredChildrenOfCurrentSession() {
+        // given
+        when(mockBeacon.getSessionStartTime()).thenReturn(800L);
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(1000L);
+        when(mockSession.reclaimExpiredChildren(anyLong(), any(ReclamationCounters.class))).thenReturn(Long.MAX_VALUE);
+        ReclamationCounters counters = new ReclamationCounters();
+        SessionProxyImpl target = createSessionProxy();
+
+        // when
+        long obtained = target.reclaimLeakedObjects(300, counters);
+
+        // then
+        verify(mockSession, times(1)).reclaimExpiredChildren(700L, counters);
+        assertThat(obtained, is(1100L)); // last interaction + max lifetime
+        assertThat(target.isFinished(), is(false));
+    }
+
+    @Test
+    public void reclaimLeakedObjectsReturnsExpiryTimeOfEarliestOpenChild() {
+        // given
+        when(mockBeacon.getSessionStartTime()).thenReturn(800L);
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(1000L);
+        when(mockSession.reclaimExpiredChildren(anyLong(), any(ReclamationCounters.class))).thenReturn(750L);
+        SessionProxyImpl target = createSessionProxy();
+
+        // when
+        long obtained = target.reclaimLeakedObjects(300, new ReclamationCounters());
+
+        // then
+        assertThat(obtained, is(1050L));
+    }
+
+    @Test
+    public void reclaimLeakedObjectsEndsSessionProxyWhichWasNotUsedWithinMaxLifetime() {
+        // given
+        when(mockBeacon.getSessionStartTime()).thenReturn(600L);
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(1000L);
+        when(mockSession.reclaimExpiredChildren(anyLong(), any(ReclamationCounters.class))).thenReturn(Long.MAX_VALUE);
+        ReclamationCounters counters = new ReclamationCounters();
+        SessionProxyImpl target = createSessionProxy();
+
+        // when
+        long obtained = target.reclaimLeakedObjects(300, counters);
+
+        // then
+        assertThat(obtained, is(-1L));
+        assertThat(target.isFinished(), is(true));
+        assertThat(counters.getReclaimedSessionCount(), is(1L));
+        verify(mockSession, times(1)).close();
+        verify(mockLogger, times(1)).warning(contains("reclaimLeakedObjects"));
+    }
+
+    @Test
+    public void reclaimLeakedObjectsDoesNotEndSessionProxyWithOpenChildren() {
+        // given
+        when(mockBeacon.getSessionStartTime()).thenReturn(600L);
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(1000L);
+        when(mockSession.reclaimExpiredChildren(anyLong(), any(ReclamationCounters.class))).thenReturn(750L);
+        ReclamationCounters counters = new ReclamationCounters();
+        SessionProxyImpl target = createSessionProxy();
+
+        // when
+        long obtained = target.reclaimLeakedObjects(300, counters);
+
+        // then
+        assertThat(obtained, is(1050L));
+        assertThat(target.isFinished(), is(false));
+        assertThat(counters.getReclaimedSessionCount(), is(0L));
+    }
+
     @Test
     public void splitSessionByTimeReturnsMinusOneIfSessionProxyIsFinished() {
         // given
@@ -1544,7 +1758,7 @@ public class SessionProxyImplTest {
         target.onServerConfigurationUpdate(mockServerConfiguration);
 
         // then
-        verifyZeroInteractions(mockSessionWatchdog);
+        verify(mockSessionWatchdog, never()).addToSplitByTimeout(any(SessionProxyImpl.class));
     }
 
     @Test
@@ -1564,7 +1778,7 @@ public class SessionProxyImplTest {
         target.onServerConfigurationUpdate(mockServerConfigTwo);
 
         // then
-        verifyZeroInteractions(mockSessionWatchdog);
+        verify(mockSessionWatchdog, never()).addToSplitByTimeout(any(SessionProxyImpl.class));
     }
 
     @Test
@@ -1582,6 +1796,175 @@ public class SessionProxyImplTest {
     }
 
 
+    @Test
+    public void concurrentTopLevelActionsNeverExceedMaxEventsPerSession() throws InterruptedException {
+        // given
+        final int maxEventCount = 10;
+        final int numThreads = 4;
+        final int numActionsPerThread = 250;
+        when(mockServerConfiguration.isSessionSplitByEventsEnabled()).thenReturn(true);
+        when(mockServerConfiguration.getMaxEventsPerSession()).thenReturn(maxEventCount);
+        when(mockLogger.isDebugEnabled()).thenReturn(false);
+
+        final Map<SessionImpl, AtomicInteger> actionsPerSession = new ConcurrentHashMap<SessionImpl, AtomicInteger>();
+        when(mockSessionCreator.createSession(any(OpenKitComposite.class))).thenAnswer(new Answer<SessionImpl>() {
+            @Override
+            public SessionImpl answer(InvocationOnMock invocation) {
+                final AtomicInteger actionCount = new AtomicInteger(0);
+                SessionImpl session = mock(SessionImpl.class);
+                when(session.getBeacon()).thenReturn(mock(Beacon.class));
+                when(session.enterAction(anyString())).thenAnswer(new Answer<RootAction>() {
+                    @Override
+                    public RootAction answer(InvocationOnMock invocation) {
+                        actionCount.incrementAndGet();
+                        return mock(RootAction.class);
+                    }
+                });
+                actionsPerSession.put(session, actionCount);
+                return session;
+            }
+        });
+
+        final SessionProxyImpl target = createSessionProxy();
+        target.onServerConfigurationUpdate(mockServerConfiguration);
+
+        // when
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < numThreads; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int j = 0; j < numActionsPerThread; j++) {
+                        target.enterAction("action");
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        startLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // then
+        int totalActionCount = 0;
+        for (AtomicInteger actionCount : actionsPerSession.values()) {
+            assertThat(actionCount.get(), is(lessThanOrEqualTo(maxEventCount)));
+            totalActionCount += actionCount.get();
+        }
+        assertThat(totalActionCount, is(numThreads * numActionsPerThread));
+        assertThat(actionsPerSession.size(), is(numThreads * numActionsPerThread / maxEventCount));
+    }
+
+    @Test
+    public void concurrentTopLevelActionsAreNeverForwardedToSessionsEndedBySplitting() throws InterruptedException {
+        // given
+        final int numThreads = 4;
+        final int numActionsPerThread = 500;
+        final int numSplits = 500;
+        when(mockServerConfiguration.isSessionSplitByEventsEnabled()).thenReturn(true);
+        when(mockServerConfiguration.getMaxEventsPerSession()).thenReturn(5);
+        when(mockServerConfiguration.isSessionSplitByIdleTimeoutEnabled()).thenReturn(true);
+        when(mockServerConfiguration.getSessionTimeoutInMilliseconds()).thenReturn(0);
+        when(mockLogger.isDebugEnabled()).thenReturn(false);
+
+        final AtomicLong now = new AtomicLong(0);
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenAnswer(new Answer<Long>() {
+            @Override
+            public Long answer(InvocationOnMock invocation) {
+                return now.incrementAndGet();
+            }
+        });
+        when(mockSessionCreator.createSession(any(OpenKitComposite.class))).thenAnswer(new Answer<SessionImpl>() {
+            @Override
+            public SessionImpl answer(InvocationOnMock invocation) {
+                final AtomicBoolean isEnded = new AtomicBoolean(false);
+                SessionImpl session = mock(SessionImpl.class);
+                when(session.getBeacon()).thenReturn(mock(Beacon.class));
+                when(session.enterAction(anyString())).thenAnswer(new Answer<RootAction>() {
+                    @Override
+                    public RootAction answer(InvocationOnMock invocation) {
+                        return isEnded.get() ? NullRootAction.INSTANCE : mock(RootAction.class);
+                    }
+                });
+                doAnswer(new Answer<Void>() {
+                    @Override
+                    public Void answer(InvocationOnMock invocation) {
+                        isEnded.set(true);
+                        return null;
+                    }
+                }).when(session).end();
+                return session;
+            }
+        });
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                ((SessionImpl) invocation.getArguments()[0]).end();
+                return null;
+            }
+        }).when(mockSessionWatchdog).closeOrEnqueueForClosing(any(SessionImpl.class), anyInt());
+
+        final SessionProxyImpl target = createSessionProxy();
+        target.onServerConfigurationUpdate(mockServerConfiguration);
+
+        // when
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final AtomicInteger nullRootActionCount = new AtomicInteger(0);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < numThreads; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int j = 0; j < numActionsPerThread; j++) {
+                        if (target.enterAction("action") instanceof NullRootAction) {
+                            nullRootActionCount.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        Thread splitThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    startLatch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int j = 0; j < numSplits; j++) {
+                    target.splitSessionByTime();
+                }
+            }
+        });
+        splitThread.start();
+        threads.add(splitThread);
+        startLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // then
+        assertThat(nullRootActionCount.get(), is(0));
+    }
+
     private SessionProxyImpl createSessionProxy() {
         return new SessionProxyImpl(
                 mockLogger,
@@ -430,6 +430,56 @@ public class WebRequestTracerBaseImplTest {
         verify(mockBeacon, times(1)).addWebRequest(0, target);
     }
 
+    @Test
+    public void reclaimIfExpiredReturnsStartTimeIfTracerHasNotExpired() {
+        // given
+        when(mockBeacon.getCurrentTimestamp()).thenReturn(500L);
+        WebRequestTracerBaseImpl target = new TestWebRequestTracerBaseImpl(logger, parentOpenKitObject, mockBeacon);
+        ReclamationCounters counters = new ReclamationCounters();
+
+        // when
+        long obtained = target.reclaimIfExpired(499L, counters);
+
+        // then
+        assertThat(obtained, is(500L));
+        assertThat(target.isStopped(), is(false));
+        assertThat(counters.getReclaimedWebRequestTracerCount(), is(0L));
+    }
+
+    @Test
+    public void reclaimIfExpiredStopsExpiredTracer() {
+        // given
+        when(mockBeacon.getCurrentTimestamp()).thenReturn(500L);
+        WebRequestTracerBaseImpl target = new TestWebRequestTracerBaseImpl(logger, parentOpenKitObject, mockBeacon);
+        ReclamationCounters counters = new ReclamationCounters();
+
+        // when
+        long obtained = target.reclaimIfExpired(500L, counters);
+
+        // then
+        assertThat(obtained, is(Long.MAX_VALUE));
+        assertThat(target.isStopped(), is(true));
+        assertThat(counters.getReclaimedWebRequestTracerCount(), is(1L));
+        verify(mockBeacon, times(1)).addWebRequest(0, target);
+        verify(parentOpenKitObject, times(1)).onChildClosed(target);
+    }
+
+    @Test
+    public void reclaimIfExpiredDoesNothingIfTracerWasStopped() {
+        // given
+        WebRequestTracerBaseImpl target = new TestWebRequestTracerBaseImpl(logger, parentOpenKitObject, mockBeacon);
+        target.stop(200);
+        ReclamationCounters counters = new ReclamationCounters();
+
+        // when
+        long obtained = target.reclaimIfExpired(500L, counters);
+
+        // then
+        assertThat(obtained, is(Long.MAX_VALUE));
+        assertThat(counters.getReclaimedWebRequestTracerCount(), is(0L));
+        verify(mockBeacon, times(1)).addWebRequest(0, target);
+    }
+
     private static final class TestWebRequestTracerBaseImpl extends WebRequestTracerBaseImpl {
 
         TestWebRequestTracerBaseImpl(Logger logger, OpenKitComposite parent, Beacon beacon) {
@@ -0,0 +1,213 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.core.util;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+public class DeadlineScheduleTest {
+
+    @Test
+    public void emptyScheduleHasNoNextDeadline() {
+        // given
+        DeadlineSchedule<String> target = new DeadlineSchedule<String>();
+
+        // then
+        assertThat(target.size(), is(0));
+        assertThat(target.getNextDeadline(), is(Long.MAX_VALUE));
+        assertThat(target.takeDue(Long.MAX_VALUE), is(empty()));
+    }
+
+    @Test
+    public void nextDeadlineIsTheEarliestDeadline() {
+        // given
+        DeadlineSchedule<String> target = new DeadlineSchedule<String>();
+
+        // when
+        target.schedule("a", 30);
+        target.schedule("b", 10);
+        target.schedule("c", 20);
+
+        // then
+        assertThat(target.size(), is(3));
+        assertThat(target.getNextDeadline(), is(10L));
+    }
+
+    @Test
+    public void takeDueReturnsDueObjectsInOrderOfTheirDeadlines() {
+        // given
+        DeadlineSchedule<String> target = new DeadlineSchedule<String>();
+        target.schedule("a", 30);
+        target.schedule("b", 10);
+        target.schedule("c", 20);
+
+        // when
+        List<String> obtained = target.takeDue(20);
+
+        // then
+        assertThat(obtained, is(equalTo(Arrays.asList("b", "c"))));
+        assertThat(target.getScheduledObjects(), is(equalTo(Collections.singletonList("a"))));
+        assertThat(target.getNextDeadline(), is(30L));
+    }
+
+    @Test
+    public void schedulingAgainReplacesThePreviousDeadline() {
+        // given
+        DeadlineSchedule<String> target = new DeadlineSchedule<String>();
+        target.schedule("a", 10);
+        target.schedule("b", 20);
+
+        // when
+        target.schedule("a", 30);
+
+        // then
+        assertThat(target.size(), is(2));
+        assertThat(target.getNextDeadline(), is(20L));
+        assertThat(target.takeDue(20), is(equalTo(Collections.singletonList("b"))));
+        assertThat(target.takeDue(30), is(equalTo(Collections.singletonList("a"))));
+    }
+
+    @Test
+    public void scheduleIfAbsentKeepsTheExistingDeadline() {
+        // given
+        DeadlineSchedule<String> target = new DeadlineSchedule<String>();
+        target.schedule("a", 10);
+
+        // when
+        target.scheduleIfAbsent("a", 30);
+        target.scheduleIfAbsent("b", 20);
+
+        // then
+        assertThat(target.takeDue(10), is(equalTo(Collections.singletonList("a"))));
+        assertThat(target.getNextDeadline(), is(20L));
+    }
+
+    @Test
+    public void removedObjectsAreNoLongerDue() {
+        // given
+        DeadlineSchedule<String> target = new DeadlineSchedule<String>();
+        target.schedule("a", 10);
+        target.schedule("b", 20);
+
+        // when
+        target.remove("a");
+
+        // then
+        assertThat(target.size(), is(1));
+        assertThat(target.getNextDeadline(), is(20L));
+        assertThat(target.takeDue(20), is(equalTo(Collections.singletonList("b"))));
+    }
+
+    @Test
+    public void reschedulingManyTimesKeepsTheLatestDeadlines() {
+        // given
+        DeadlineSchedule<String> target = new DeadlineSchedule<String>();
+
+        // when
+        for (int i = 0; i < 1000; i++) {
+            target.schedule("a", i);
+            target.schedule("b", 2000 - i);
+        }
+
+        // then
+        assertThat(target.size(), is(2));
+        assertThat(target.getNextDeadline(), is(999L));
+        assertThat(target.takeDue(1001), containsInAnyOrder("a", "b"));
+        assertThat(target.size(), is(0));
+    }
+
+    @Test
+    public void getDeadlineReturnsTheScheduledDeadline() {
+        // given
+        DeadlineSchedule<String> target = new DeadlineSchedule<String>();
+        target.schedule("a", 10);
+
+        // then
+        assertThat(target.getDeadline("a"), is(10L));
+        assertThat(target.getDeadline("b"), is(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void synchronizedScheduleBehavesLikeTheSchedule() {
+        // given
+        DeadlineSchedule<String> target = DeadlineSchedule.synchronizedSchedule();
+        target.schedule("a", 30);
+        target.schedule("b", 10);
+        target.scheduleIfAbsent("b", 40);
+        target.schedule("c", 20);
+        target.remove("c");
+
+        // then
+        assertThat(target.getClass(), is(not(equalTo((Object) DeadlineSchedule.class))));
+        assertThat(target.size(), is(2));
+        assertThat(target.getDeadline("b"), is(10L));
+        assertThat(target.getNextDeadline(), is(10L));
+        assertThat(target.getScheduledObjects(), containsInAnyOrder("a", "b"));
+        assertThat(target.takeDue(30), is(equalTo(Arrays.asList("b", "a"))));
+    }
+
+    @Test
+    public void synchronizedScheduleCanBeUsedConcurrently() throws Exception {
+        // given
+        final DeadlineSchedule<Integer> target = DeadlineSchedule.synchronizedSchedule();
+        final int numThreads = 4;
+        final int numObjectsPerThread = 1000;
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        Thread[] threads = new Thread[numThreads];
+        for (int t = 0; t < numThreads; t++) {
+            final int offset = t * numObjectsPerThread;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < numObjectsPerThread; i++) {
+                        target.schedule(offset + i, offset + i);
+                        target.schedule(offset + i, offset + i + 1);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+
+        // when
+        startLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // then
+        assertThat(target.size(), is(numThreads * numObjectsPerThread));
+        assertThat(target.getNextDeadline(), is(1L));
+        assertThat(target.takeDue(Long.MAX_VALUE - 1).size(), is(numThreads * numObjectsPerThread));
+    }
+}
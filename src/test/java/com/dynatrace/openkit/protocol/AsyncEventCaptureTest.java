@@ -0,0 +1,502 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.protocol;
+
+import com.dynatrace.openkit.AbstractOpenKitBuilder;
+import com.dynatrace.openkit.AsyncCaptureOverflowPolicy;
+import com.dynatrace.openkit.api.Logger;
+import com.dynatrace.openkit.core.configuration.AsyncCaptureConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AsyncEventCaptureTest {
+
+    private Logger mockLogger;
+    private Beacon mockBeacon;
+
+    /** names of the serialized descriptors in the order they have been serialized */
+    private List<String> serializedNames;
+    private AsyncEventCapture target;
+
+    @Before
+    public void setUp() {
+        mockLogger = mock(Logger.class);
+        mockBeacon = mock(Beacon.class);
+
+        serializedNames = Collections.synchronizedList(new ArrayList<String>());
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                AsyncEventCapture.EventDescriptor descriptor =
+                        (AsyncEventCapture.EventDescriptor) invocation.getArguments()[0];
+                serializedNames.add(descriptor.name);
+                return null;
+            }
+        }).when(mockBeacon).addCapturedData(any(AsyncEventCapture.EventDescriptor.class));
+    }
+
+    @After
+    public void tearDown() {
+        if (target != null) {
+            target.stop();
+        }
+    }
+
+    @Test
+    public void capacityIsTakenOverFromConfiguration() {
+        // given
+        target = createCapture(1000, AsyncCaptureOverflowPolicy.DROP_NEWEST);
+
+        // then
+        assertThat(target.getCapacity(), is(1024));
+    }
+
+    @Test
+    public void capturedEventIsNotSerializedBeforeDrain() {
+        // given
+        target = createCapture(4, AsyncCaptureOverflowPolicy.DROP_NEWEST);
+
+        // when
+        boolean obtained = captureEvent("event");
+
+        // then
+        assertThat(obtained, is(true));
+        assertThat(serializedNames, is(empty()));
+    }
+
+    @Test
+    public void drainSerializesCapturedEventWithAllFields() {
+        // given
+        target = createCapture(4, AsyncCaptureOverflowPolicy.DROP_NEWEST);
+        final List<String> descriptors = new ArrayList<String>();
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                AsyncEventCapture.EventDescriptor d = (AsyncEventCapture.EventDescriptor) invocation.getArguments()[0];
+                descriptors.add(d.eventType + "|" + d.name + "|" + d.threadID + "|" + d.parentActionID + "|"
+                        + d.startSequenceNumber + "|" + d.startTime + "|" + d.numericValue + "|" + d.stringValue);
+                return null;
+            }
+        }).when(mockBeacon).addCapturedData(any(AsyncEventCapture.EventDescriptor.class));
+        target.captureEvent(mockBeacon, EventType.VALUE_STRING, "value", 42, 7, 3, 1234L, 0L, "text");
+
+        // when
+        int obtained = target.drain();
+
+        // then
+        assertThat(obtained, is(1));
+        assertThat(descriptors, contains("VALUE_STRING|value|42|7|3|1234|0|text"));
+    }
+
+    @Test
+    public void drainSerializesCapturedActionWithAllFields() {
+        // given
+        target = createCapture(4, AsyncCaptureOverflowPolicy.DROP_NEWEST);
+        final List<String> descriptors = new ArrayList<String>();
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                AsyncEventCapture.EventDescriptor d = (AsyncEventCapture.EventDescriptor) invocation.getArguments()[0];
+                descriptors.add(d.eventType + "|" + d.name + "|" + d.threadID + "|" + d.actionID + "|"
+                        + d.parentActionID + "|" + d.startSequenceNumber + "|" + d.startTime + "|"
+                        + d.endSequenceNumber + "|" + d.endTime);
+                return null;
+            }
+        }).when(mockBeacon).addCapturedData(any(AsyncEventCapture.EventDescriptor.class));
+        target.captureAction(mockBeacon, "action", 42, 5, 0, 1, 100L, 2, 200L);
+
+        // when
+        target.drain();
+
+        // then
+        assertThat(descriptors, contains("ACTION|action|42|5|0|1|100|2|200"));
+    }
+
+    @Test
+    public void drainSerializesInCaptureOrder() {
+        // given
+        target = createCapture(4, AsyncCaptureOverflowPolicy.DROP_NEWEST);
+        captureEvent("a");
+        captureEvent("b");
+        captureEvent("c");
+
+        // when
+        int obtained = target.drain();
+
+        // then
+        assertThat(obtained, is(3));
+        assertThat(serializedNames, contains("a", "b", "c"));
+    }
+
+    @Test
+    public void drainOnEmptyBufferReturnsZero() {
+        // given
+        target = createCapture(4, AsyncCaptureOverflowPolicy.DROP_NEWEST);
+
+        // when
+        int obtained = target.drain();
+
+        // then
+        assertThat(obtained, is(0));
+    }
+
+    @Test
+    public void slotsAreReusedAfterDrain() {
+        // given
+        target = createCapture(2, AsyncCaptureOverflowPolicy.DROP_NEWEST);
+
+        // when
+        for (int i = 0; i < 10; i++) {
+            captureEvent("event" + i);
+            target.drain();
+        }
+
+        // then
+        assertThat(serializedNames.size(), is(10));
+        assertThat(target.getDroppedEventCount(), is(0L));
+    }
+
+    @Test
+    public void dropNewestDiscardsEventsCapturedWhileBufferIsFull() {
+        // given
+        target = createCapture(2, AsyncCaptureOverflowPolicy.DROP_NEWEST);
+        captureEvent("a");
+        captureEvent("b");
+
+        // when
+        boolean obtained = captureEvent("c");
+
+        // then
+        assertThat(obtained, is(true));
+        assertThat(target.getDroppedEventCount(), is(1L));
+        target.drain();
+        assertThat(serializedNames, contains("a", "b"));
+    }
+
+    @Test
+    public void dropOldestDiscardsOldestEventWhenBufferIsFull() {
+        // given
+        target = createCapture(2, AsyncCaptureOverflowPolicy.DROP_OLDEST);
+        captureEvent("a");
+        captureEvent("b");
+
+        // when
+        boolean obtained = captureEvent("c");
+
+        // then
+        assertThat(obtained, is(true));
+        assertThat(target.getDroppedEventCount(), is(1L));
+        target.drain();
+        assertThat(serializedNames, contains("b", "c"));
+    }
+
+    @Test
+    public void blockLetsCallerSerializeIfBackgroundThreadIsNotRunning() {
+        // given
+        target = createCapture(2, AsyncCaptureOverflowPolicy.BLOCK);
+        captureEvent("a");
+        captureEvent("b");
+
+        // when
+        boolean obtained = captureEvent("c");
+
+        // then
+        assertThat(obtained, is(false));
+        assertThat(serializedNames, is(empty()));
+        assertThat(target.getBlockedCaptureCount(), is(0L));
+        assertThat(target.getDroppedEventCount(), is(0L));
+    }
+
+    @Test
+    public void blockWaitsUntilBackgroundThreadFreesASlot() throws InterruptedException {
+        // given
+        target = createCapture(2, AsyncCaptureOverflowPolicy.BLOCK);
+        final CountDownLatch serializing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Set<String> serializingThreads = blockSerialization(serializing, release);
+        target.start();
+        captureEvent("a");
+        assertThat(serializing.await(5, TimeUnit.SECONDS), is(true));
+        captureEvent("b");
+
+        // when
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                captureEvent("c");
+            }
+        });
+        writer.start();
+        while (target.getBlockedCaptureCount() == 0) {
+            Thread.sleep(1);
+        }
+
+        // then
+        assertThat(writer.isAlive(), is(true));
+        assertThat(serializedNames, is(empty()));
+
+        // and when
+        release.countDown();
+        writer.join(5000);
+        target.stop();
+
+        // then
+        assertThat(writer.isAlive(), is(false));
+        assertThat(serializedNames, contains("a", "b", "c"));
+        assertThat(serializingThreads, contains(AsyncEventCapture.class.getSimpleName()));
+        assertThat(target.getDroppedEventCount(), is(0L));
+    }
+
+    @Test
+    public void drainWaitsUntilBackgroundThreadSerializedCapturedEvents() throws InterruptedException {
+        // given
+        target = createCapture(4, AsyncCaptureOverflowPolicy.DROP_NEWEST);
+        final CountDownLatch serializing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Set<String> serializingThreads = blockSerialization(serializing, release);
+        target.start();
+        captureEvent("a");
+        assertThat(serializing.await(5, TimeUnit.SECONDS), is(true));
+        captureEvent("b");
+
+        // when
+        final CountDownLatch drained = new CountDownLatch(1);
+        Thread drainingThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                target.drain();
+                drained.countDown();
+            }
+        });
+        drainingThread.start();
+
+        // then
+        assertThat(drained.await(100, TimeUnit.MILLISECONDS), is(false));
+
+        // and when
+        release.countDown();
+
+        // then
+        assertThat(drained.await(5, TimeUnit.SECONDS), is(true));
+        assertThat(serializedNames, contains("a", "b"));
+        assertThat(serializingThreads, contains(AsyncEventCapture.class.getSimpleName()));
+    }
+
+    @Test
+    public void exceptionDuringSerializationIsLoggedAndDoesNotStopDraining() {
+        // given
+        target = createCapture(4, AsyncCaptureOverflowPolicy.DROP_NEWEST);
+        Beacon failingBeacon = mock(Beacon.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                throw new IllegalStateException("failure");
+            }
+        }).when(failingBeacon).addCapturedData(any(AsyncEventCapture.EventDescriptor.class));
+        target.captureEvent(failingBeacon, EventType.NAMED_EVENT, "failing", 1, 0, 1, 0L, 0L, null);
+        captureEvent("a");
+
+        // when
+        int obtained = target.drain();
+
+        // then
+        assertThat(obtained, is(2));
+        assertThat(serializedNames, contains("a"));
+        verify(mockLogger, times(1)).error(anyString(), isA(IllegalStateException.class));
+    }
+
+    @Test
+    public void captureAfterStopReturnsFalse() {
+        // given
+        target = createCapture(4, AsyncCaptureOverflowPolicy.DROP_NEWEST);
+        target.stop();
+
+        // when
+        boolean eventObtained = captureEvent("event");
+        boolean actionObtained = target.captureAction(mockBeacon, "action", 1, 1, 0, 1, 0L, 2, 0L);
+
+        // then
+        assertThat(target.isStopped(), is(true));
+        assertThat(eventObtained, is(false));
+        assertThat(actionObtained, is(false));
+        assertThat(target.getDroppedEventCount(), is(0L));
+    }
+
+    @Test
+    public void stopSerializesPendingEvents() {
+        // given
+        target = createCapture(4, AsyncCaptureOverflowPolicy.DROP_NEWEST);
+        captureEvent("a");
+        captureEvent("b");
+
+        // when
+        boolean obtained = target.stop();
+
+        // then
+        assertThat(obtained, is(true));
+        assertThat(serializedNames, contains("a", "b"));
+    }
+
+    @Test
+    public void startCannotBeCalledTwice() {
+        // given
+        target = createCapture(4, AsyncCaptureOverflowPolicy.DROP_NEWEST);
+
+        // when
+        boolean first = target.start();
+        boolean second = target.start();
+
+        // then
+        assertThat(first, is(true));
+        assertThat(second, is(false));
+    }
+
+    @Test
+    public void startAfterStopReturnsFalse() {
+        // given
+        target = createCapture(4, AsyncCaptureOverflowPolicy.DROP_NEWEST);
+        target.stop();
+
+        // when
+        boolean obtained = target.start();
+
+        // then
+        assertThat(obtained, is(false));
+    }
+
+    @Test
+    public void backgroundThreadSerializesCapturedEvents() throws InterruptedException {
+        // given
+        target = createCapture(4, AsyncCaptureOverflowPolicy.DROP_NEWEST);
+        final CountDownLatch latch = new CountDownLatch(2);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                latch.countDown();
+                return null;
+            }
+        }).when(mockBeacon).addCapturedData(any(AsyncEventCapture.EventDescriptor.class));
+        target.start();
+
+        // when
+        captureEvent("a");
+        captureEvent("b");
+
+        // then
+        assertThat(latch.await(5, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test
+    public void eventsCapturedConcurrentlyAreNotLostWithBlockPolicy() throws InterruptedException {
+        // given
+        final int numThreads = 4;
+        final int eventsPerThread = 10000;
+        target = createCapture(64, AsyncCaptureOverflowPolicy.BLOCK);
+        final Set<String> serialized = Collections.synchronizedSet(new HashSet<String>());
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                AsyncEventCapture.EventDescriptor d = (AsyncEventCapture.EventDescriptor) invocation.getArguments()[0];
+                serialized.add(d.threadID + ":" + d.startSequenceNumber);
+                return null;
+            }
+        }).when(mockBeacon).addCapturedData(any(AsyncEventCapture.EventDescriptor.class));
+        target.start();
+
+        // when
+        Thread[] threads = new Thread[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            final int threadID = i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int sequenceNumber = 0; sequenceNumber < eventsPerThread; sequenceNumber++) {
+                        target.captureEvent(mockBeacon, EventType.NAMED_EVENT, "event", threadID, 0,
+                                sequenceNumber, 0L, 0L, null);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        target.stop();
+
+        // then
+        assertThat(serialized.size(), is(numThreads * eventsPerThread));
+        assertThat(target.getDroppedEventCount(), is(0L));
+    }
+
+    /**
+     * Lets the serialization of the first descriptor wait until {@code release} is counted down.
+     *
+     * @return The names of the threads serializing descriptors.
+     */
+    private Set<String> blockSerialization(final CountDownLatch serializing, final CountDownLatch release) {
+        final Set<String> serializingThreads = Collections.synchronizedSet(new HashSet<String>());
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws InterruptedException {
+                serializingThreads.add(Thread.currentThread().getName());
+                serializing.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                AsyncEventCapture.EventDescriptor descriptor =
+                        (AsyncEventCapture.EventDescriptor) invocation.getArguments()[0];
+                serializedNames.add(descriptor.name);
+                return null;
+            }
+        }).when(mockBeacon).addCapturedData(any(AsyncEventCapture.EventDescriptor.class));
+        return serializingThreads;
+    }
+
+    private boolean captureEvent(String name) {
+        return target.captureEvent(mockBeacon, EventType.NAMED_EVENT, name, 1, 0, 1, 0L, 0L, null);
+    }
+
+    private AsyncEventCapture createCapture(int capacity, AsyncCaptureOverflowPolicy overflowPolicy) {
+        AbstractOpenKitBuilder builder = mock(AbstractOpenKitBuilder.class);
+        when(builder.getAsyncCaptureBufferCapacity()).thenReturn(capacity);
+        when(builder.getAsyncCaptureOverflowPolicy()).thenReturn(overflowPolicy);
+
+        return new AsyncEventCapture(mockLogger, AsyncCaptureConfiguration.from(builder));
+    }
+}
@@ -16,18 +16,23 @@
 
 package com.dynatrace.openkit.protocol;
 
+import com.dynatrace.openkit.AbstractOpenKitBuilder;
+import com.dynatrace.openkit.AsyncCaptureOverflowPolicy;
 import com.dynatrace.openkit.CrashReportingLevel;
 import com.dynatrace.openkit.DataCollectionLevel;
 import com.dynatrace.openkit.api.Logger;
 import com.dynatrace.openkit.core.caching.BeaconCache;
 import com.dynatrace.openkit.core.caching.BeaconCacheImpl;
+import com.dynatrace.openkit.core.caching.BeaconOutbox;
 import com.dynatrace.openkit.core.caching.BeaconKey;
+import com.dynatrace.openkit.core.configuration.AsyncCaptureConfiguration;
 import com.dynatrace.openkit.core.configuration.BeaconConfiguration;
 import com.dynatrace.openkit.core.configuration.HTTPClientConfiguration;
 import com.dynatrace.openkit.core.configuration.OpenKitConfiguration;
 import com.dynatrace.openkit.core.configuration.PrivacyConfiguration;
 import com.dynatrace.openkit.core.configuration.ServerConfiguration;
 import com.dynatrace.openkit.core.configuration.ServerConfigurationUpdateCallback;
+import com.dynatrace.openkit.core.objects.ActionBatchImpl;
 import com.dynatrace.openkit.core.objects.BaseActionImpl;
 import com.dynatrace.openkit.core.objects.OpenKitComposite;
 import com.dynatrace.openkit.core.objects.RootActionImpl;
@@ -45,6 +50,7 @@ import org.mockito.ArgumentCaptor;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -53,6 +59,7 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.isEmptyString;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyChar;
@@ -61,6 +68,7 @@ import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -428,6 +436,48 @@ public class BeaconTest {
         );
     }
 
+    @Test
+    public void addValidCompletedActionEvent() {
+        // given
+        final Beacon beacon = createBeacon().build();
+        int parentID = 13;
+        String actionName = "MyAction";
+
+        // when
+        beacon.addCompletedAction(actionName, parentID, 17L, 42L);
+
+        // then
+        String expectedActionData =
+                "et=1&" +                       // event type
+                "na=" + actionName + "&" +      // action name
+                "it=" + THREAD_ID + "&" +       // thread ID
+                "ca=1&" +                       // action ID
+                "pa=" + parentID + "&" +        // parent action ID
+                "s0=1&" +                       // action start sequence number
+                "t0=17&" +                      // action start time (relative to session start)
+                "s1=2&" +                       // action end sequence number
+                "t1=25"                         // action duration (time from action start to end)
+        ;
+        verify(mockBeaconCache, times(1)).addActionData(
+                eq(new BeaconKey(SESSION_ID, SESSION_SEQ_NO)), // beacon key
+                eq(17L),                        // action start time
+                eq(expectedActionData)
+        );
+    }
+
+    @Test
+    public void addingCompletedActionConsumesActionIdAndSequenceNumbers() {
+        // given
+        final Beacon beacon = createBeacon().build();
+
+        // when
+        beacon.addCompletedAction("MyAction", 0, 0L, 0L);
+
+        // then
+        assertThat(beacon.createID(), is(2));
+        assertThat(beacon.createSequenceNumber(), is(3));
+    }
+
     @Test
     public void addEndSessionEvent() {
         // given
@@ -478,6 +528,99 @@ public class BeaconTest {
         );
     }
 
+    @Test
+    public void reportBatchAddsAllEntriesAtOnce() {
+        // given
+        final Beacon beacon = createBeacon().build();
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(42L);
+        ActionBatchImpl batch = mockBatch(
+                EventType.NAMED_EVENT, EventType.VALUE_INT, EventType.VALUE_DOUBLE, EventType.VALUE_STRING);
+        when(batch.getIntValue(1)).thenReturn(7);
+        when(batch.getDoubleValue(2)).thenReturn(3.25);
+        when(batch.getStringValue(3)).thenReturn("foo");
+
+        // when
+        beacon.reportBatch(ACTION_ID, batch);
+
+        // then
+        String commonData = "it=" + THREAD_ID + "&pa=" + ACTION_ID + "&";
+        List<String> expectedEventData = Arrays.asList(
+                "et=10&na=name0&" + commonData + "s0=1&t0=42",
+                "et=12&na=name1&" + commonData + "s0=2&t0=42&vl=7",
+                "et=13&na=name2&" + commonData + "s0=3&t0=42&vl=3.25",
+                "et=11&na=name3&" + commonData + "s0=4&t0=42&vl=foo"
+        );
+        verify(mockBeaconCache, times(1)).addEventData(
+                eq(new BeaconKey(SESSION_ID, SESSION_SEQ_NO)), // beacon key
+                eq(42L),                        // event time
+                eq(expectedEventData)
+        );
+        verify(mockTimingProvider, times(2)).provideTimestampInMilliseconds();
+        assertThat(beacon.createSequenceNumber(), is(5));
+    }
+
+    @Test
+    public void reportBatchSkipsEntriesDisallowedByPrivacyConfiguration() {
+        // given
+        final Beacon beacon = createBeacon().build();
+        when(mockPrivacyConfiguration.isEventReportingAllowed()).thenReturn(false);
+        ActionBatchImpl batch = mockBatch(EventType.NAMED_EVENT, EventType.VALUE_INT);
+        when(batch.getIntValue(1)).thenReturn(7);
+
+        // when
+        beacon.reportBatch(ACTION_ID, batch);
+
+        // then
+        List<String> expectedEventData = Collections.singletonList(
+                "et=12&na=name1&it=" + THREAD_ID + "&pa=" + ACTION_ID + "&s0=1&t0=0&vl=7");
+        verify(mockBeaconCache, times(1)).addEventData(
+                eq(new BeaconKey(SESSION_ID, SESSION_SEQ_NO)), eq(0L), eq(expectedEventData));
+    }
+
+    @Test
+    public void reportBatchDoesNothingIfAllEntriesAreDisallowed() {
+        // given
+        final Beacon beacon = createBeacon().build();
+        when(mockPrivacyConfiguration.isValueReportingAllowed()).thenReturn(false);
+        ActionBatchImpl batch = mockBatch(EventType.VALUE_INT, EventType.VALUE_STRING);
+
+        // when
+        beacon.reportBatch(ACTION_ID, batch);
+
+        // then
+        verifyZeroInteractions(mockBeaconCache);
+        assertThat(beacon.createSequenceNumber(), is(1));
+    }
+
+    @Test
+    public void reportBatchDoesNothingIfDataSendingIsDisallowed() {
+        // given
+        final Beacon beacon = createBeacon().build();
+        when(mockServerConfiguration.isSendingDataAllowed()).thenReturn(false);
+        ActionBatchImpl batch = mockBatch(EventType.NAMED_EVENT);
+
+        // when
+        beacon.reportBatch(ACTION_ID, batch);
+
+        // then
+        verifyZeroInteractions(batch);
+        verifyZeroInteractions(mockBeaconCache);
+    }
+
+    @Test
+    public void reportBatchDoesNothingIfCapturingIsDisabled() {
+        // given
+        final Beacon beacon = createBeacon().build();
+        when(mockServerConfiguration.isCaptureEnabled()).thenReturn(false);
+        ActionBatchImpl batch = mockBatch(EventType.NAMED_EVENT);
+
+        // when
+        beacon.reportBatch(ACTION_ID, batch);
+
+        // then
+        verifyZeroInteractions(mockBeaconCache);
+    }
+
     @Test
     public void reportValidValueDouble() {
         // given
@@ -651,7 +794,7 @@ public class BeaconTest {
                 "rs=" + reason + "&" +          // reported reason
                 "tt=c"                          // error technology type
         ;
-        verify(mockBeaconCache, times(1)).addEventData(
+        verify(mockBeaconCache, times(1)).addPriorityEventData(
                 eq(new BeaconKey(SESSION_ID, SESSION_SEQ_NO)), // beacon key
                 eq(0L),                         // error event timestamp
                 eq(expectedEventData)
@@ -677,7 +820,7 @@ public class BeaconTest {
                 "ev=" + errorCode + "&" +       // reported error value
                 "tt=c"                          // error technology type
         ;
-        verify(mockBeaconCache, times(1)).addEventData(
+        verify(mockBeaconCache, times(1)).addPriorityEventData(
                 eq(new BeaconKey(SESSION_ID, SESSION_SEQ_NO)), // beacon key
                 eq(0L),                              // error event timestamp
                 eq(expectedEventData)
@@ -707,7 +850,7 @@ public class BeaconTest {
                 "st=" + stacktrace + "&" +  // reported stacktrace
                 "tt=c"                      // crash technology type
         ;
-        verify(mockBeaconCache, times(1)).addEventData(
+        verify(mockBeaconCache, times(1)).addPriorityEventData(
                 eq(new BeaconKey(SESSION_ID, SESSION_SEQ_NO)), // beacon key
                 eq(0L),                     // crash event timestamp
                 eq(expectedEventData)
@@ -733,7 +876,7 @@ public class BeaconTest {
                 "t0=0&" +                   // timestamp of crash since session start
                 "tt=c"                      // crash technology type
         ;
-        verify(mockBeaconCache, times(1)).addEventData(
+        verify(mockBeaconCache, times(1)).addPriorityEventData(
                 eq(new BeaconKey(SESSION_ID, SESSION_SEQ_NO)), // beacon key
                 eq(0L),                     // crash event timestamp
                 eq(expectedEventData)
@@ -1129,6 +1272,35 @@ public class BeaconTest {
         verify(httpClient, times(1)).sendBeaconRequest(eq(ipAddress), any(byte[].class), eq(mockAdditionalParameters));
     }
 
+    @Test
+    public void sendPriorityDataOnlySendsPriorityData() {
+        // given
+        BeaconCache beaconCache = new BeaconCacheImpl(mockLogger);
+        Beacon target = createBeacon().with(beaconCache).build();
+        HTTPClientProvider httpClientProvider = mock(HTTPClientProvider.class);
+        HTTPClient httpClient = mock(HTTPClient.class);
+        StatusResponse successResponse = StatusResponse.createSuccessResponse(
+                mockLogger,
+                ResponseAttributesImpl.withJsonDefaults().build(),
+                200,
+                Collections.<String, List<String>>emptyMap()
+        );
+        when(httpClient.sendBeaconRequest(any(String.class), any(byte[].class), any(AdditionalQueryParameters.class)))
+                .thenReturn(successResponse);
+        when(httpClientProvider.createClient(any(HTTPClientConfiguration.class))).thenReturn(httpClient);
+        target.reportEvent(ACTION_ID, "SomeEvent");
+        target.reportCrash("errorName", "errorReason", "errorStackTrace");
+
+        // when
+        StatusResponse response = target.sendPriorityData(httpClientProvider, mockAdditionalParameters);
+
+        // then
+        assertThat(response, is(sameInstance(successResponse)));
+        verify(httpClient, times(1)).sendBeaconRequest(anyString(), any(byte[].class), eq(mockAdditionalParameters));
+        assertThat(target.hasPriorityData(), is(false));
+        assertThat(target.isEmpty(), is(false));
+    }
+
     @Test
     public void sendDataAndFakeErrorResponse() {
         // given
@@ -1156,6 +1328,83 @@ public class BeaconTest {
         verify(httpClient, times(1)).sendBeaconRequest(eq(ipAddress), any(byte[].class), eq(mockAdditionalParameters));
     }
 
+    @Test
+    public void moveDataToOutboxAppendsDataAndRemovesItFromCache() {
+        // given
+        String ipAddress = "127.0.0.1";
+        BeaconCache beaconCache = new BeaconCacheImpl(mockLogger);
+        Beacon target = createBeacon()
+                .withIpAddress(ipAddress)
+                .with(beaconCache)
+                .build();
+        BeaconOutbox outbox = mock(BeaconOutbox.class);
+        when(outbox.append(anyString(), anyInt(), any(byte[].class))).thenReturn(true);
+        target.reportCrash("errorName", "errorReason", "errorStackTrace");
+
+        // when
+        target.moveDataToOutbox(outbox);
+
+        // then
+        verify(outbox, times(1)).append(eq(ipAddress), anyInt(), any(byte[].class));
+        assertThat(target.isEmpty(), is(true));
+    }
+
+    @Test
+    public void moveDataToOutboxAppendsDataWithRoutingKeyUsedForSending() {
+        // given
+        HTTPClientConfiguration httpClientConfiguration = HTTPClientConfiguration.modifyWith(mockOpenKitConfiguration).build();
+        when(mockBeaconConfiguration.getHTTPClientConfiguration()).thenReturn(httpClientConfiguration);
+        HTTPClientProvider httpClientProvider = mock(HTTPClientProvider.class);
+        when(httpClientProvider.createClient(any(HTTPClientConfiguration.class))).thenReturn(mock(HTTPClient.class));
+        BeaconCache beaconCache = new BeaconCacheImpl(mockLogger);
+        Beacon target = createBeacon().with(beaconCache).build();
+        BeaconOutbox outbox = mock(BeaconOutbox.class);
+        when(outbox.append(anyString(), anyInt(), any(byte[].class))).thenReturn(true);
+        target.reportCrash("errorName", "errorReason", "errorStackTrace");
+
+        // when
+        target.send(httpClientProvider, mockAdditionalParameters);
+        target.moveDataToOutbox(outbox);
+
+        // then
+        ArgumentCaptor<HTTPClientConfiguration> configurationCaptor = ArgumentCaptor.forClass(HTTPClientConfiguration.class);
+        verify(httpClientProvider, times(1)).createClient(configurationCaptor.capture());
+        verify(outbox, times(1)).append(anyString(), eq(configurationCaptor.getValue().getRoutingKey()), any(byte[].class));
+    }
+
+    @Test
+    public void moveDataToOutboxKeepsDataInCacheIfAppendingFails() {
+        // given
+        BeaconCache beaconCache = new BeaconCacheImpl(mockLogger);
+        Beacon target = createBeacon()
+                .withIpAddress("127.0.0.1")
+                .with(beaconCache)
+                .build();
+        BeaconOutbox outbox = mock(BeaconOutbox.class);
+        when(outbox.append(anyString(), anyInt(), any(byte[].class))).thenReturn(false);
+        target.reportCrash("errorName", "errorReason", "errorStackTrace");
+
+        // when
+        target.moveDataToOutbox(outbox);
+
+        // then
+        verify(outbox, times(1)).append(anyString(), anyInt(), any(byte[].class));
+        assertThat(target.isEmpty(), is(false));
+    }
+
+    @Test
+    public void moveDataToOutboxWithoutDataDoesNothing() {
+        // given
+        Beacon target = createBeacon().with(new BeaconCacheImpl(mockLogger)).build();
+        BeaconOutbox outbox = mock(BeaconOutbox.class);
+
+        // when
+        target.moveDataToOutbox(outbox);
+
+        // then
+        verifyZeroInteractions(outbox);
+    }
+
     @Test
     public void sendCatchesUnsupportedEncodingException() throws Exception {
         // given
@@ -1238,6 +1487,44 @@ public class BeaconTest {
                 .getNextBeaconChunk(eq(new BeaconKey(SESSION_ID, sessionSequence)), eq(expectedPrefix), anyInt(), anyChar());
     }
 
+    @Test
+    public void beaconDataPrefixIsTakenFromSharedBeaconData() {
+        // given
+        OpenKitConfiguration sharedOpenKitConfiguration = mock(OpenKitConfiguration.class);
+        when(sharedOpenKitConfiguration.getApplicationID()).thenReturn("sharedAppID");
+        when(sharedOpenKitConfiguration.getApplicationName()).thenReturn("shared name");
+        when(sharedOpenKitConfiguration.getOperatingSystem()).thenReturn("sharedOS");
+        SharedBeaconData sharedBeaconData = Beacon.createSharedBeaconData(mockLogger, sharedOpenKitConfiguration,
+                mockPrivacyConfiguration);
+        when(mockBeaconCache.getNextBeaconChunk(any(BeaconKey.class), anyString(), anyInt(), anyChar())).thenReturn(null);
+        Beacon target = createBeacon().with(sharedBeaconData).withIpAddress("192.168.0.1").build();
+
+        // when
+        target.send(mock(HTTPClientProvider.class), null);
+
+        // then
+        String expectedPrefix = "vv=" + ProtocolConstants.PROTOCOL_VERSION +
+                "&va=" + ProtocolConstants.OPENKIT_VERSION +
+                "&ap=sharedAppID" +
+                "&an=shared%20name" +
+                "&pt=" + ProtocolConstants.PLATFORM_TYPE_OPENKIT +
+                "&tt=" + ProtocolConstants.AGENT_TECHNOLOGY_TYPE +
+                "&vi=" + DEVICE_ID +
+                "&sn=" + SESSION_ID +
+                "&ss=" + SESSION_SEQ_NO +
+                "&ip=192.168.0.1" +
+                "&os=sharedOS" +
+                "&dl=2" +
+                "&cl=2" +
+                "&vs=0" +
+                "&tx=0" +
+                "&tv=0" +
+                "&mp=0";
+
+        verify(mockBeaconCache, times(1))
+                .getNextBeaconChunk(any(BeaconKey.class), eq(expectedPrefix), anyInt(), anyChar());
+    }
+
     @Test
     public void clearDataFromBeaconCache() {
         // given
@@ -1264,9 +1551,28 @@ public class BeaconTest {
         assertThat(events, emptyArray());
         String[] actions = beaconCache.getActions(key);
         assertThat(actions, emptyArray());
+        String[] priorityEvents = beaconCache.getPriorityEvents(key);
+        assertThat(priorityEvents, emptyArray());
         assertThat(beacon.isEmpty(), is(true));
     }
 
+    @Test
+    public void hasPriorityDataGivesTrueAfterReportingCrash() {
+        // given
+        BeaconCacheImpl beaconCache = new BeaconCacheImpl(mockLogger);
+        Beacon beacon = createBeacon().with(beaconCache).build();
+        beacon.reportEvent(ACTION_ID, "SomeEvent");
+
+        // when, then
+        assertThat(beacon.hasPriorityData(), is(false));
+
+        // and when
+        beacon.reportCrash("SomeCrash", "SomeReason", "SomeStacktrace");
+
+        // then
+        assertThat(beacon.hasPriorityData(), is(true));
+    }
+
     @Test
     public void noSessionIsAddedIfCapturingDisabled() {
         // given
@@ -1683,7 +1989,7 @@ public class BeaconTest {
 
         //then
         verify(mockTimingProvider, times(2)).provideTimestampInMilliseconds();
-        verify(mockBeaconCache, times(1)).addEventData(any(BeaconKey.class), anyLong(), anyString());
+        verify(mockBeaconCache, times(1)).addPriorityEventData(any(BeaconKey.class), anyLong(), anyString());
     }
 
     @Test
@@ -1702,6 +2008,33 @@ public class BeaconTest {
         verifyZeroInteractions(mockBeaconCache);
     }
 
+    @Test
+    public void completedActionNotReportedIfActionReportingDisallowed() {
+        // given
+        Beacon target = createBeacon().build();
+        when(mockPrivacyConfiguration.isActionReportingAllowed()).thenReturn(false);
+
+        // when
+        target.addCompletedAction("MyAction", 0, 0L, 1L);
+
+        // then
+        verifyZeroInteractions(mockBeaconCache);
+        assertThat(target.createID(), is(1));
+    }
+
+    @Test
+    public void completedActionNotReportedIfDataSendingDisallowed() {
+        // given
+        Beacon target = createBeacon().build();
+        when(mockServerConfiguration.isSendingDataAllowed()).thenReturn(false);
+
+        // when
+        target.addCompletedAction("MyAction", 0, 0L, 1L);
+
+        // then
+        verifyZeroInteractions(mockBeaconCache);
+    }
+
     @Test
     public void actionNotReportedIfDataSendingDisallowed() {
         // given
@@ -1800,7 +2133,7 @@ public class BeaconTest {
 
         //then
         //verify error has been serialized
-        verify(mockBeaconCache, times(1)).addEventData(any(BeaconKey.class), anyLong(), anyString());
+        verify(mockBeaconCache, times(1)).addPriorityEventData(any(BeaconKey.class), anyLong(), anyString());
     }
 
     @Test
@@ -2100,6 +2433,294 @@ public class BeaconTest {
         verify(mockBeaconConfiguration, times(1)).setServerConfigurationUpdateCallback(callback);
     }
 
+    @Test
+    public void reportValueIsSerializedWhenAsyncCaptureIsDrained() {
+        // given
+        AsyncEventCapture asyncEventCapture = createAsyncCapture();
+        final Beacon beacon = createBeacon().with(asyncEventCapture).build();
+        String valueName = "IntValue";
+        int value = 42;
+
+        // when
+        beacon.reportValue(ACTION_ID, valueName, value);
+
+        // then
+        verify(mockBeaconCache, never()).addEventData(any(BeaconKey.class), anyLong(), anyString());
+
+        // and when
+        asyncEventCapture.drain();
+
+        // then
+        String expectedEventData =
+                "et=12&" +                      // event type
+                "na=" + valueName + "&" +       // name of reported value
+                "it=" + THREAD_ID + "&" +       // thread ID
+                "pa=" + ACTION_ID + "&" +       // parent action ID
+                "s0=1&" +                       // sequence number of reported value event
+                "t0=0&" +                       // event time since session start
+                "vl=" + value                   // reported value
+        ;
+        verify(mockBeaconCache, times(1)).addEventData(
+                eq(new BeaconKey(SESSION_ID, SESSION_SEQ_NO)), // beacon key
+                eq(0L),                         // event timestamp
+                eq(expectedEventData)
+        );
+    }
+
+    @Test
+    public void asyncCapturedDoubleValueIsSerializedLikeSynchronousOne() {
+        // given
+        AsyncEventCapture asyncEventCapture = createAsyncCapture();
+        final Beacon beacon = createBeacon().with(asyncEventCapture).build();
+        String valueName = "DoubleValue";
+        double value = 3.1415;
+
+        // when
+        beacon.reportValue(ACTION_ID, valueName, value);
+        asyncEventCapture.drain();
+
+        // then
+        String expectedEventData =
+                "et=13&" +                      // event type
+                "na=" + valueName + "&" +       // name of reported value
+                "it=" + THREAD_ID + "&" +       // thread ID
+                "pa=" + ACTION_ID + "&" +       // parent action ID
+                "s0=1&" +                       // sequence number of reported value event
+                "t0=0&" +                       // event time since session start
+                "vl=" + value                   // reported value
+        ;
+        verify(mockBeaconCache, times(1)).addEventData(
+                eq(new BeaconKey(SESSION_ID, SESSION_SEQ_NO)), // beacon key
+                eq(0L),                         // event timestamp
+                eq(expectedEventData)
+        );
+    }
+
+    @Test
+    public void asyncCapturedStringValueIsSerializedLikeSynchronousOne() {
+        // given
+        AsyncEventCapture asyncEventCapture = createAsyncCapture();
+        final Beacon beacon = createBeacon().with(asyncEventCapture).build();
+        String valueName = "StringValue";
+        String value = "HelloWorld";
+
+        // when
+        beacon.reportValue(ACTION_ID, valueName, value);
+        asyncEventCapture.drain();
+
+        // then
+        String expectedEventData =
+                "et=11&" +                      // event type
+                "na=" + valueName + "&" +       // name of reported value
+                "it=" + THREAD_ID + "&" +       // thread ID
+                "pa=" + ACTION_ID + "&" +       // parent action ID
+                "s0=1&" +                       // sequence number of reported value event
+                "t0=0&" +                       // event time since session start
+                "vl=" + value                   // reported value
+        ;
+        verify(mockBeaconCache, times(1)).addEventData(
+                eq(new BeaconKey(SESSION_ID, SESSION_SEQ_NO)), // beacon key
+                eq(0L),                         // event timestamp
+                eq(expectedEventData)
+        );
+    }
+
+    @Test
+    public void asyncCapturedEventIsSerializedLikeSynchronousOne() {
+        // given
+        AsyncEventCapture asyncEventCapture = createAsyncCapture();
+        final Beacon beacon = createBeacon().with(asyncEventCapture).build();
+        String eventName = "SomeEvent";
+
+        // when
+        beacon.reportEvent(ACTION_ID, eventName);
+        asyncEventCapture.drain();
+
+        // then
+        String expectedEventData =
+                "et=10&" +                      // event type
+                "na=" + eventName + "&" +       // name of event
+                "it=" + THREAD_ID + "&" +       // thread ID
+                "pa=" + ACTION_ID + "&" +       // parent action ID
+                "s0=1&" +                       // sequence number of reported event
+                "t0=0"                          // event time since session start
+        ;
+        verify(mockBeaconCache, times(1)).addEventData(
+                eq(new BeaconKey(SESSION_ID, SESSION_SEQ_NO)), // beacon key
+                eq(0L),                         // event timestamp
+                eq(expectedEventData)
+        );
+    }
+
+    @Test
+    public void asyncCapturedActionIsSerializedLikeSynchronousOne() {
+        // given
+        AsyncEventCapture asyncEventCapture = createAsyncCapture();
+        final Beacon beacon = createBeacon().with(asyncEventCapture).build();
+        BaseActionImpl action = mock(BaseActionImpl.class);
+        when(action.getID()).thenReturn(ACTION_ID);
+        int parentID = 13;
+        when(action.getParentID()).thenReturn(parentID);
+        String actionName = "MyAction";
+        when(action.getName()).thenReturn(actionName);
+
+        // when
+        beacon.addAction(action);
+
+        // then
+        verify(mockBeaconCache, never()).addActionData(any(BeaconKey.class), anyLong(), anyString());
+
+        // and when
+        asyncEventCapture.drain();
+
+        // then
+        String expectedActionData =
+                "et=1&" +                       // event type
+                "na=" + actionName + "&" +      // action name
+                "it=" + THREAD_ID + "&" +       // thread ID
+                "ca=" + ACTION_ID + "&" +       // action ID
+                "pa=" + parentID + "&" +        // parent action ID
+                "s0=0&" +                       // action start sequence number
+                "t0=0&" +                       // action start time (relative to session start)
+                "s1=0&" +                       // action end sequence number
+                "t1=0"                          // action duration (time from action start to end)
+        ;
+        verify(mockBeaconCache, times(1)).addActionData(
+                eq(new BeaconKey(SESSION_ID, SESSION_SEQ_NO)), // beacon key
+                eq(0L),                         // action start time
+                eq(expectedActionData)
+        );
+    }
+
+    @Test
+    public void asyncCapturedDataUsesThreadIDOfCallingThread() {
+        // given
+        AsyncEventCapture asyncEventCapture = createAsyncCapture();
+        final Beacon beacon = createBeacon().with(asyncEventCapture).build();
+        beacon.reportEvent(ACTION_ID, "SomeEvent");
+
+        // when
+        when(mockThreadIDProvider.getThreadID()).thenReturn(THREAD_ID + 1);
+        asyncEventCapture.drain();
+
+        // then
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(mockBeaconCache, times(1)).addEventData(any(BeaconKey.class), anyLong(), captor.capture());
+        assertThat(captor.getValue().contains("it=" + THREAD_ID + "&"), is(true));
+    }
+
+    @Test
+    public void dataIsSerializedSynchronouslyIfAsyncCaptureIsStopped() {
+        // given
+        AsyncEventCapture asyncEventCapture = createAsyncCapture();
+        asyncEventCapture.stop();
+        final Beacon beacon = createBeacon().with(asyncEventCapture).build();
+
+        // when
+        beacon.reportEvent(ACTION_ID, "SomeEvent");
+
+        // then
+        verify(mockBeaconCache, times(1)).addEventData(any(BeaconKey.class), anyLong(), anyString());
+    }
+
+    @Test
+    public void valueDisallowedByPrivacyConfigurationIsNotCaptured() {
+        // given
+        when(mockPrivacyConfiguration.isValueReportingAllowed()).thenReturn(false);
+        AsyncEventCapture asyncEventCapture = createAsyncCapture();
+        final Beacon beacon = createBeacon().with(asyncEventCapture).build();
+
+        // when
+        beacon.reportValue(ACTION_ID, "IntValue", 42);
+
+        // then
+        assertThat(asyncEventCapture.drain(), is(0));
+        verifyZeroInteractions(mockBeaconCache);
+    }
+
+    @Test
+    public void isEmptySerializesAsyncCapturedDataFirst() {
+        // given
+        AsyncEventCapture asyncEventCapture = createAsyncCapture();
+        final Beacon beacon = createBeacon()
+                .with(new BeaconCacheImpl(mockLogger))
+                .with(asyncEventCapture)
+                .build();
+
+        // when
+        beacon.reportEvent(ACTION_ID, "SomeEvent");
+
+        // then
+        assertThat(beacon.isEmpty(), is(false));
+    }
+
+    @Test
+    public void clearDataAlsoDiscardsAsyncCapturedData() {
+        // given
+        AsyncEventCapture asyncEventCapture = createAsyncCapture();
+        final Beacon beacon = createBeacon()
+                .with(new BeaconCacheImpl(mockLogger))
+                .with(asyncEventCapture)
+                .build();
+        beacon.reportEvent(ACTION_ID, "SomeEvent");
+
+        // when
+        beacon.clearData();
+
+        // then
+        assertThat(asyncEventCapture.drain(), is(0));
+        assertThat(beacon.isEmpty(), is(true));
+    }
+
+    @Test
+    public void sendSerializesAsyncCapturedDataFirst() {
+        // given
+        String ipAddress = "127.0.0.1";
+        AsyncEventCapture asyncEventCapture = createAsyncCapture();
+        Beacon beacon = createBeacon()
+                .withIpAddress(ipAddress)
+                .with(new BeaconCacheImpl(mockLogger))
+                .with(asyncEventCapture)
+                .build();
+        HTTPClientProvider httpClientProvider = mock(HTTPClientProvider.class);
+        HTTPClient httpClient = mock(HTTPClient.class);
+        StatusResponse successResponse = StatusResponse.createSuccessResponse(
+                mockLogger,
+                ResponseAttributesImpl.withJsonDefaults().build(),
+                200,
+                Collections.<String, List<String>>emptyMap()
+        );
+        when(httpClient.sendBeaconRequest(any(String.class), any(byte[].class), any(AdditionalQueryParameters.class)))
+                .thenReturn(successResponse);
+        when(httpClientProvider.createClient(any(HTTPClientConfiguration.class))).thenReturn(httpClient);
+        beacon.reportEvent(ACTION_ID, "SomeEvent");
+
+        // when
+        StatusResponse response = beacon.send(httpClientProvider, mockAdditionalParameters);
+
+        // then
+        assertThat(response, notNullValue());
+        verify(httpClient, times(1)).sendBeaconRequest(eq(ipAddress), any(byte[].class), eq(mockAdditionalParameters));
+    }
+
+    private AsyncEventCapture createAsyncCapture() {
+        AbstractOpenKitBuilder builder = mock(AbstractOpenKitBuilder.class);
+        when(builder.getAsyncCaptureBufferCapacity()).thenReturn(16);
+        when(builder.getAsyncCaptureOverflowPolicy()).thenReturn(AsyncCaptureOverflowPolicy.DROP_NEWEST);
+
+        return new AsyncEventCapture(mockLogger, AsyncCaptureConfiguration.from(builder));
+    }
+
+    private static ActionBatchImpl mockBatch(EventType... eventTypes) {
+        ActionBatchImpl batch = mock(ActionBatchImpl.class);
+        when(batch.size()).thenReturn(eventTypes.length);
+        for (int i = 0; i < eventTypes.length; i++) {
+            when(batch.getEventType(i)).thenReturn(eventTypes[i]);
+            when(batch.getName(i)).thenReturn("name" + i);
+        }
+        return batch;
+    }
+
     private BeaconBuilder createBeacon() {
         BeaconBuilder builder = new BeaconBuilder();
         builder.logger = mockLogger;
@@ -2125,6 +2746,8 @@ public class BeaconTest {
         private TimingProvider timingProvider;
         private RandomNumberGenerator random;
         private int sessionSequenceNumber;
+        private SharedBeaconData sharedBeaconData;
+        private AsyncEventCapture asyncEventCapture;
 
         private BeaconBuilder withIpAddress(String ipAddress) {
             this.ipAddress = ipAddress;
@@ -2146,6 +2769,16 @@ public class BeaconTest {
             return this;
         }
 
+        private BeaconBuilder with(SharedBeaconData sharedBeaconData) {
+            this.sharedBeaconData = sharedBeaconData;
+            return this;
+        }
+
+        private BeaconBuilder with(AsyncEventCapture asyncEventCapture) {
+            this.asyncEventCapture = asyncEventCapture;
+            return this;
+        }
+
         private BeaconBuilder withSessionSequenceNumber(int sessionSequenceNumber) {
             this.sessionSequenceNumber = sessionSequenceNumber;
             return this;
@@ -2161,6 +2794,8 @@ public class BeaconTest {
             when(beaconInitializer.getThreadIdProvider()).thenReturn(threadIdProvider);
             when(beaconInitializer.getTimingProvider()).thenReturn(timingProvider);
             when(beaconInitializer.getRandomNumberGenerator()).thenReturn(random);
+            when(beaconInitializer.getSharedBeaconData()).thenReturn(sharedBeaconData);
+            when(beaconInitializer.getAsyncEventCapture()).thenReturn(asyncEventCapture);
 
             return new Beacon(beaconInitializer, configuration);
         }
@@ -0,0 +1,236 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.protocol;
+
+import com.dynatrace.openkit.providers.TimingProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CircuitBreakerTest {
+
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final long INITIAL_OPEN_DURATION = 1000L;
+    private static final long MAX_OPEN_DURATION = 3000L;
+
+    private TimingProvider mockTimingProvider;
+
+    @Before
+    public void setUp() {
+        mockTimingProvider = mock(TimingProvider.class);
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(0L);
+    }
+
+    @Test
+    public void circuitBreakerIsInitiallyClosed() {
+        // given
+        CircuitBreaker target = createCircuitBreaker();
+
+        // when, then
+        assertThat(target.getState(), is(CircuitBreaker.State.CLOSED));
+        assertThat(target.isRequestAllowed(), is(true));
+    }
+
+    @Test
+    public void circuitBreakerStaysClosedBelowFailureThreshold() {
+        // given
+        CircuitBreaker target = createCircuitBreaker();
+
+        // when
+        target.recordFailure();
+        target.recordFailure();
+
+        // then
+        assertThat(target.getState(), is(CircuitBreaker.State.CLOSED));
+        assertThat(target.isRequestAllowed(), is(true));
+    }
+
+    @Test
+    public void successResetsConsecutiveFailures() {
+        // given
+        CircuitBreaker target = createCircuitBreaker();
+
+        // when
+        target.recordFailure();
+        target.recordFailure();
+        target.recordSuccess();
+        target.recordFailure();
+        target.recordFailure();
+
+        // then
+        assertThat(target.getState(), is(CircuitBreaker.State.CLOSED));
+    }
+
+    @Test
+    public void circuitBreakerOpensWhenFailureThresholdIsReached() {
+        // given
+        CircuitBreaker target = createCircuitBreaker();
+
+        // when
+        failRepeatedly(target, FAILURE_THRESHOLD);
+
+        // then
+        assertThat(target.getState(), is(CircuitBreaker.State.OPEN));
+        assertThat(target.isRequestAllowed(), is(false));
+    }
+
+    @Test
+    public void requestsAreRejectedWhileOpenDurationHasNotElapsed() {
+        // given
+        CircuitBreaker target = createCircuitBreaker();
+        failRepeatedly(target, FAILURE_THRESHOLD);
+
+        // when
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(INITIAL_OPEN_DURATION - 1);
+
+        // then
+        assertThat(target.isRequestAllowed(), is(false));
+        assertThat(target.getState(), is(CircuitBreaker.State.OPEN));
+    }
+
+    @Test
+    public void singleProbeIsAllowedAfterOpenDurationHasElapsed() {
+        // given
+        CircuitBreaker target = createCircuitBreaker();
+        failRepeatedly(target, FAILURE_THRESHOLD);
+
+        // when
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(INITIAL_OPEN_DURATION);
+
+        // then
+        assertThat(target.isRequestAllowed(), is(true));
+        assertThat(target.getState(), is(CircuitBreaker.State.HALF_OPEN));
+        assertThat(target.isRequestAllowed(), is(false));
+    }
+
+    @Test
+    public void successfulProbeClosesCircuitBreaker() {
+        // given
+        CircuitBreaker target = createCircuitBreaker();
+        failRepeatedly(target, FAILURE_THRESHOLD);
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(INITIAL_OPEN_DURATION);
+        target.isRequestAllowed();
+
+        // when
+        target.recordSuccess();
+
+        // then
+        assertThat(target.getState(), is(CircuitBreaker.State.CLOSED));
+        assertThat(target.isRequestAllowed(), is(true));
+    }
+
+    @Test
+    public void failedProbeReopensCircuitBreakerWithDoubledOpenDuration() {
+        // given
+        CircuitBreaker target = createCircuitBreaker();
+        failRepeatedly(target, FAILURE_THRESHOLD);
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(INITIAL_OPEN_DURATION);
+        target.isRequestAllowed();
+
+        // when
+        target.recordFailure();
+
+        // then
+        assertThat(target.getState(), is(CircuitBreaker.State.OPEN));
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(3 * INITIAL_OPEN_DURATION - 1);
+        assertThat(target.isRequestAllowed(), is(false));
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(3 * INITIAL_OPEN_DURATION);
+        assertThat(target.isRequestAllowed(), is(true));
+    }
+
+    @Test
+    public void openDurationIsCappedAtMaximum() {
+        // given
+        CircuitBreaker target = createCircuitBreaker();
+        failRepeatedly(target, FAILURE_THRESHOLD);
+        long now = 0;
+
+        // when failing several probes
+        for (int i = 0; i < 5; i++) {
+            now += MAX_OPEN_DURATION;
+            when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(now);
+            assertThat(target.isRequestAllowed(), is(true));
+            target.recordFailure();
+        }
+
+        // then
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(now + MAX_OPEN_DURATION);
+        assertThat(target.isRequestAllowed(), is(true));
+    }
+
+    @Test
+    public void openDurationIsResetAfterSuccess() {
+        // given
+        CircuitBreaker target = createCircuitBreaker();
+        failRepeatedly(target, FAILURE_THRESHOLD);
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(INITIAL_OPEN_DURATION);
+        target.isRequestAllowed();
+        target.recordFailure(); // open duration is now doubled
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(3 * INITIAL_OPEN_DURATION);
+        target.isRequestAllowed();
+        target.recordSuccess();
+
+        // when
+        failRepeatedly(target, FAILURE_THRESHOLD);
+
+        // then
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(4 * INITIAL_OPEN_DURATION);
+        assertThat(target.isRequestAllowed(), is(true));
+    }
+
+    @Test
+    public void isRejectingRequestsOnlyWhileOpenDurationHasNotElapsed() {
+        // given
+        CircuitBreaker target = createCircuitBreaker();
+
+        // when, then
+        assertThat(target.isRejectingRequests(), is(false));
+        failRepeatedly(target, FAILURE_THRESHOLD);
+        assertThat(target.isRejectingRequests(), is(true));
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(INITIAL_OPEN_DURATION);
+        assertThat(target.isRejectingRequests(), is(false));
+        assertThat(target.getState(), is(CircuitBreaker.State.OPEN));
+    }
+
+    @Test
+    public void isRejectingRequestsWhileProbeIsInFlight() {
+        // given
+        CircuitBreaker target = createCircuitBreaker();
+        failRepeatedly(target, FAILURE_THRESHOLD);
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(INITIAL_OPEN_DURATION);
+
+        // when
+        target.isRequestAllowed();
+
+        // then
+        assertThat(target.isRejectingRequests(), is(true));
+    }
+
+    private CircuitBreaker createCircuitBreaker() {
+        return new CircuitBreaker(FAILURE_THRESHOLD, INITIAL_OPEN_DURATION, MAX_OPEN_DURATION, mockTimingProvider);
+    }
+
+    private static void failRepeatedly(CircuitBreaker target, int times) {
+        for (int i = 0; i < times; i++) {
+            target.recordFailure();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.protocol;
+
+import com.dynatrace.openkit.api.Logger;
+import com.dynatrace.openkit.providers.TimingProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class EndpointHealthTest {
+
+    private Logger mockLogger;
+    private TimingProvider mockTimingProvider;
+
+    @Before
+    public void setUp() {
+        mockLogger = mock(Logger.class);
+        mockTimingProvider = mock(TimingProvider.class);
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(1000L);
+    }
+
+    @Test
+    public void endpointIsInitiallyHealthy() {
+        // given
+        EndpointHealth target = new EndpointHealth(mockTimingProvider);
+
+        // when, then
+        assertThat(target.isHealthy(), is(true));
+        assertThat(target.getAverageLatency(), is(-1.0));
+        assertThat(target.getErrorRate(), is(0.0));
+    }
+
+    @Test
+    public void firstLatencySampleIsTakenOver() {
+        // given
+        EndpointHealth target = new EndpointHealth(mockTimingProvider);
+
+        // when
+        target.recordResponse(createResponse(200), 100);
+
+        // then
+        assertThat(target.getAverageLatency(), is(100.0));
+    }
+
+    @Test
+    public void latencyIsSmoothed() {
+        // given
+        EndpointHealth target = new EndpointHealth(mockTimingProvider);
+        target.recordResponse(createResponse(200), 100);
+
+        // when
+        target.recordResponse(createResponse(200), 200);
+
+        // then
+        assertThat(target.getAverageLatency(), is(closeTo(120.0, 0.001)));
+    }
+
+    @Test
+    public void serverErrorsAndMissingResponsesIncreaseErrorRate() {
+        // given
+        EndpointHealth target = new EndpointHealth(mockTimingProvider);
+
+        // when
+        target.recordResponse(createResponse(503), 10);
+        target.recordResponse(null, 10);
+
+        // then
+        assertThat(target.getErrorRate(), is(closeTo(0.36, 0.001)));
+    }
+
+    @Test
+    public void clientErrorsDoNotIncreaseErrorRate() {
+        // given
+        EndpointHealth target = new EndpointHealth(mockTimingProvider);
+
+        // when
+        target.recordResponse(createResponse(400), 10);
+
+        // then
+        assertThat(target.getErrorRate(), is(0.0));
+    }
+
+    @Test
+    public void endpointIsUnhealthyWhenErrorRateExceedsThreshold() {
+        // given
+        EndpointHealth target = new EndpointHealth(mockTimingProvider);
+
+        // when
+        for (int i = 0; i < 4; i++) {
+            target.recordResponse(createResponse(500), 10);
+        }
+
+        // then
+        assertThat(target.getErrorRate() >= EndpointHealth.ERROR_RATE_THRESHOLD, is(true));
+        assertThat(target.isHealthy(), is(false));
+    }
+
+    @Test
+    public void endpointIsUnhealthyWhenLatencyExceedsThreshold() {
+        // given
+        EndpointHealth target = new EndpointHealth(mockTimingProvider);
+
+        // when
+        target.recordResponse(createResponse(200), EndpointHealth.LATENCY_THRESHOLD_IN_MILLISECONDS);
+
+        // then
+        assertThat(target.isHealthy(), is(false));
+    }
+
+    @Test
+    public void degradedEndpointIsHealthyAgainAfterRecoveryInterval() {
+        // given
+        EndpointHealth target = new EndpointHealth(mockTimingProvider);
+        target.recordResponse(createResponse(200), EndpointHealth.LATENCY_THRESHOLD_IN_MILLISECONDS);
+
+        // when
+        when(mockTimingProvider.provideTimestampInMilliseconds())
+                .thenReturn(1000L + EndpointHealth.RECOVERY_INTERVAL_IN_MILLISECONDS);
+
+        // then
+        assertThat(target.isHealthy(), is(true));
+    }
+
+    @Test
+    public void tooManyRequestsLetsEndpointCoolDownWithoutCountingAsError() {
+        // given
+        EndpointHealth target = new EndpointHealth(mockTimingProvider);
+        StatusResponse response = createResponse(StatusResponse.HTTP_TOO_MANY_REQUESTS);
+
+        // when
+        target.recordResponse(response, 10);
+
+        // then
+        assertThat(target.getErrorRate(), is(0.0));
+        assertThat(target.getCoolDownUntilTimestamp(), is(1000L + response.getRetryAfterInMilliseconds()));
+        assertThat(target.isHealthy(), is(false));
+    }
+
+    @Test
+    public void endpointIsHealthyAgainAfterCoolDown() {
+        // given
+        EndpointHealth target = new EndpointHealth(mockTimingProvider);
+        StatusResponse response = createResponse(StatusResponse.HTTP_TOO_MANY_REQUESTS);
+        target.recordResponse(response, 10);
+        long coolDownEnd = 1000L + response.getRetryAfterInMilliseconds();
+
+        // when
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(coolDownEnd);
+
+        // then
+        assertThat(target.isHealthy(), is(true));
+    }
+
+    private StatusResponse createResponse(int responseCode) {
+        return StatusResponse.createErrorResponse(mockLogger, responseCode, Collections.<String, List<String>>emptyMap());
+    }
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.protocol;
+
+import com.dynatrace.openkit.api.Logger;
+import com.dynatrace.openkit.providers.TimingProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class EndpointSelectorTest {
+
+    private static final List<String> ENDPOINT_URLS = Arrays.asList("https://a", "https://b", "https://c");
+
+    private TimingProvider mockTimingProvider;
+
+    @Before
+    public void setUp() {
+        mockTimingProvider = mock(TimingProvider.class);
+        when(mockTimingProvider.provideTimestampInMilliseconds()).thenReturn(0L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void creatingSelectorWithoutEndpointsThrowsException() {
+        new EndpointSelector(Collections.<String>emptyList(), mockTimingProvider);
+    }
+
+    @Test
+    public void getEndpointsReturnsEndpointsInGivenOrder() {
+        // given
+        EndpointSelector target = new EndpointSelector(ENDPOINT_URLS, mockTimingProvider);
+
+        // when
+        List<EndpointSelector.Endpoint> obtained = target.getEndpoints();
+
+        // then
+        assertThat(obtained.size(), is(3));
+        assertThat(obtained.get(0).getURL(), is("https://a"));
+        assertThat(obtained.get(1).getURL(), is("https://b"));
+        assertThat(obtained.get(2).getURL(), is("https://c"));
+    }
+
+    @Test
+    public void sameRoutingKeyAlwaysSelectsSameEndpoint() {
+        // given
+        EndpointSelector target = new EndpointSelector(ENDPOINT_URLS, mockTimingProvider);
+        EndpointSelector other = new EndpointSelector(ENDPOINT_URLS, mockTimingProvider);
+
+        // when, then
+        for (int key = 0; key < 100; key++) {
+            assertThat(target.select(key, null), is(sameInstance(target.select(key, null))));
+            assertThat(target.select(key, null).getURL(), is(other.select(key, null).getURL()));
+        }
+    }
+
+    @Test
+    public void routingKeysAreDistributedAcrossAllEndpoints() {
+        // given
+        EndpointSelector target = new EndpointSelector(ENDPOINT_URLS, mockTimingProvider);
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+
+        // when
+        for (int key = 0; key < 3000; key++) {
+            String url = target.select(key, null).getURL();
+            Integer count = counts.get(url);
+            counts.put(url, count == null ? 1 : count + 1);
+        }
+
+        // then
+        assertThat(counts.size(), is(3));
+        for (Integer count : counts.values()) {
+            assertThat(count, is(greaterThan(500)));
+        }
+    }
+
+    @Test
+    public void addingAnEndpointOnlyMovesKeysToTheNewEndpoint() {
+        // given
+        EndpointSelector target = new EndpointSelector(ENDPOINT_URLS, mockTimingProvider);
+        EndpointSelector extended = new EndpointSelector(
+                Arrays.asList("https://a", "https://b", "https://c", "https://d"), mockTimingProvider);
+
+        // when, then
+        for (int key = 0; key < 1000; key++) {
+            String before = target.select(key, null).getURL();
+            String after = extended.select(key, null).getURL();
+            if (!before.equals(after)) {
+                assertThat(after, is("https://d"));
+            }
+        }
+    }
+
+    @Test
+    public void unhealthyEndpointIsSkipped() {
+        // given
+        EndpointSelector target = new EndpointSelector(ENDPOINT_URLS, mockTimingProvider);
+        EndpointSelector.Endpoint owner = target.select(42, null);
+
+        // when
+        owner.getHealth().recordResponse(createResponse(StatusResponse.HTTP_TOO_MANY_REQUESTS), 10);
+        EndpointSelector.Endpoint obtained = target.select(42, null);
+
+        // then
+        assertThat(obtained, is(not(sameInstance(owner))));
+    }
+
+    @Test
+    public void endpointWithOpenCircuitBreakerIsSkipped() {
+        // given
+        EndpointSelector target = new EndpointSelector(ENDPOINT_URLS, mockTimingProvider);
+        EndpointSelector.Endpoint owner = target.select(42, null);
+
+        // when
+        for (int i = 0; i < CircuitBreaker.DEFAULT_FAILURE_THRESHOLD; i++) {
+            owner.getCircuitBreaker().recordFailure();
+        }
+        EndpointSelector.Endpoint obtained = target.select(42, null);
+
+        // then
+        assertThat(obtained, is(not(sameInstance(owner))));
+    }
+
+    @Test
+    public void excludedEndpointIsSkipped() {
+        // given
+        EndpointSelector target = new EndpointSelector(ENDPOINT_URLS, mockTimingProvider);
+        EndpointSelector.Endpoint owner = target.select(42, null);
+
+        // when
+        EndpointSelector.Endpoint obtained = target.select(42, Collections.singletonList(owner));
+
+        // then
+        assertThat(obtained, is(not(nullValue())));
+        assertThat(obtained, is(not(sameInstance(owner))));
+    }
+
+    @Test
+    public void ownerIsSelectedIfNoEndpointIsHealthy() {
+        // given
+        EndpointSelector target = new EndpointSelector(ENDPOINT_URLS, mockTimingProvider);
+        EndpointSelector.Endpoint owner = target.select(42, null);
+
+        // when
+        for (EndpointSelector.Endpoint endpoint : target.getEndpoints()) {
+            endpoint.getHealth().recordResponse(createResponse(StatusResponse.HTTP_TOO_MANY_REQUESTS), 10);
+        }
+        EndpointSelector.Endpoint obtained = target.select(42, null);
+
+        // then
+        assertThat(obtained, is(sameInstance(owner)));
+    }
+
+    @Test
+    public void nullIsSelectedIfNoEndpointIsHealthyAndSomeAreExcluded() {
+        // given
+        EndpointSelector target = new EndpointSelector(ENDPOINT_URLS, mockTimingProvider);
+        EndpointSelector.Endpoint owner = target.select(42, null);
+
+        // when
+        for (EndpointSelector.Endpoint endpoint : target.getEndpoints()) {
+            endpoint.getHealth().recordResponse(createResponse(StatusResponse.HTTP_TOO_MANY_REQUESTS), 10);
+        }
+        EndpointSelector.Endpoint obtained = target.select(42, Collections.singletonList(owner));
+
+        // then
+        assertThat(obtained, is(nullValue()));
+    }
+
+    private static StatusResponse createResponse(int responseCode) {
+        return StatusResponse.createErrorResponse(mock(Logger.class), responseCode);
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.protocol;
+
+import com.dynatrace.openkit.AbstractOpenKitBuilder;
+import com.dynatrace.openkit.DynatraceOpenKitBuilder;
+import com.dynatrace.openkit.core.configuration.CompressionConfiguration;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+/**
+ * Micro benchmark comparing CPU time per MB of beacon data against the achieved compression ratio
+ * for all compression levels and strategies supported by {@link GzipCompressor}.
+ *
+ * <p>
+ *     This is not a unit test and is therefore not executed during the build. Run it manually via
+ *     its {@link #main(String[])} method, optionally passing the number of measured iterations.
+ * </p>
+ */
+public class GzipCompressorBenchmark {
+
+    private static final int DEFAULT_ITERATIONS = 200;
+    private static final int WARMUP_ITERATIONS = 50;
+    private static final int [] PAYLOAD_SIZES = {512, 8 * 1024, 150 * 1024};
+
+    private static final int[] STRATEGIES = {Deflater.DEFAULT_STRATEGY, Deflater.FILTERED, Deflater.HUFFMAN_ONLY};
+    private static final String[] STRATEGY_NAMES = {"DEFAULT", "FILTERED", "HUFFMAN_ONLY"};
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+        System.out.println("payload [bytes]; strategy; level; ratio; CPU [ms/MB]");
+        for (int payloadSize : PAYLOAD_SIZES) {
+            byte[] payload = createBeaconPayload(payloadSize);
+            for (int s = 0; s < STRATEGIES.length; s++) {
+                for (int level = Deflater.NO_COMPRESSION; level <= Deflater.BEST_COMPRESSION; level++) {
+                    GzipCompressor compressor = new GzipCompressor(createConfiguration(level, STRATEGIES[s]));
+
+                    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                        compressor.compress(payload);
+                    }
+
+                    long compressedSize = 0;
+                    long cpuTimeStart = threadMXBean.getCurrentThreadCpuTime();
+                    for (int i = 0; i < iterations; i++) {
+                        compressedSize = compressor.compress(payload).length;
+                    }
+                    long cpuTimeNanos = threadMXBean.getCurrentThreadCpuTime() - cpuTimeStart;
+                    compressor.close();
+
+                    double megaBytes = ((double) payload.length * iterations) / (1024 * 1024);
+                    double ratio = (double) payload.length / compressedSize;
+                    System.out.println(String.format(Locale.ROOT, "%d; %s; %d; %.2f; %.2f",
+                            payload.length, STRATEGY_NAMES[s], level, ratio, (cpuTimeNanos / 1e6) / megaBytes));
+                }
+            }
+        }
+    }
+
+    private static CompressionConfiguration createConfiguration(int level, int strategy) {
+        AbstractOpenKitBuilder builder = new DynatraceOpenKitBuilder("http://localhost", "benchmark", 1);
+        builder.withCompressionLevel(level).withCompressionStrategy(strategy);
+        return CompressionConfiguration.from(builder);
+    }
+
+    /**
+     * Creates a synthetic beacon payload of roughly the given size, resembling the data produced by {@link Beacon}.
+     */
+    private static byte[] createBeaconPayload(int size) {
+        Random random = new Random(42);
+        StringBuilder builder = new StringBuilder(size + 256);
+        builder.append("vv=3&va=7.0.0000&ap=8ad6c5c5-0b92-4a48-b9a2-58d3fd1b2a57&an=Benchmark&vn=1.0&pt=1&tt=okjava")
+                .append("&vi=4211&sn=1&ip=127.0.0.1&os=Linux&mf=OpenKit&md=Benchmark&tx=0&tv=1571000000000&mp=1");
+        int sequenceNumber = 0;
+        while (builder.length() < size) {
+            sequenceNumber++;
+            switch (random.nextInt(4)) {
+                case 0:
+                    builder.append("&et=1&na=action").append(random.nextInt(50))
+                            .append("&it=1&ca=").append(sequenceNumber).append("&pa=0&s0=").append(sequenceNumber)
+                            .append("&t0=").append(random.nextInt(100000))
+                            .append("&s1=").append(sequenceNumber + 1).append("&t1=").append(random.nextInt(5000));
+                    break;
+                case 1:
+                    builder.append("&et=12&na=value").append(random.nextInt(20))
+                            .append("&it=1&pa=").append(sequenceNumber).append("&s0=").append(sequenceNumber)
+                            .append("&t0=").append(random.nextInt(100000)).append("&vl=").append(random.nextInt());
+                    break;
+                case 2:
+                    builder.append("&et=30&na=https%3A%2F%2Fexample.com%2Fapi%2Fv1%2Fitems%2F").append(random.nextInt(10000))
+                            .append("&it=1&pa=").append(sequenceNumber).append("&s0=").append(sequenceNumber)
+                            .append("&t0=").append(random.nextInt(100000)).append("&s1=").append(sequenceNumber + 1)
+                            .append("&t1=").append(random.nextInt(2000)).append("&bs=").append(random.nextInt(4096))
+                            .append("&br=").append(random.nextInt(65536)).append("&rc=200");
+                    break;
+                default:
+                    builder.append("&et=40&na=error").append(random.nextInt(5))
+                            .append("&it=1&pa=").append(sequenceNumber).append("&s0=").append(sequenceNumber)
+                            .append("&t0=").append(random.nextInt(100000)).append("&ev=").append(random.nextInt(500))
+                            .append("&rs=").append(Long.toHexString(random.nextLong()));
+                    break;
+            }
+        }
+        return builder.substring(0, size).getBytes();
+    }
+}
@@ -0,0 +1,241 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.protocol;
+
+import com.dynatrace.openkit.core.configuration.CompressionConfiguration;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class GzipCompressorTest {
+
+    private static final byte[] DATA =
+            "vv=3&va=7.0.0000&ap=appID&an=appName&vn=1.0&pt=1&tt=okjava&vi=42&sn=1&ip=127.0.0.1&et=1&na=action&it=1&ca=1&pa=0&s0=1&t0=0&s1=2&t1=3"
+                    .getBytes();
+
+    private CompressionConfiguration mockConfiguration;
+
+    @Before
+    public void setUp() {
+        mockConfiguration = mock(CompressionConfiguration.class);
+        when(mockConfiguration.getCompressionLevel()).thenReturn(Deflater.DEFAULT_COMPRESSION);
+        when(mockConfiguration.getCompressionStrategy()).thenReturn(Deflater.DEFAULT_STRATEGY);
+        when(mockConfiguration.getCompressionThreshold()).thenReturn(0);
+    }
+
+    @Test
+    public void compressedDataCanBeDecompressed() throws IOException {
+        // given
+        GzipCompressor target = new GzipCompressor(mockConfiguration);
+
+        // when
+        byte[] obtained = target.compress(DATA);
+
+        // then
+        assertThat(gunzip(obtained), is(equalTo(DATA)));
+    }
+
+    @Test
+    public void compressedDataIsEqualToGzipOutputStreamWithDefaultSettings() throws IOException {
+        // given
+        GzipCompressor target = new GzipCompressor(mockConfiguration);
+
+        // when
+        byte[] obtained = target.compress(DATA);
+
+        // then
+        assertThat(obtained, is(equalTo(gzip(DATA))));
+    }
+
+    @Test
+    public void compressingTwiceGivesSameResult() {
+        // given
+        GzipCompressor target = new GzipCompressor(mockConfiguration);
+
+        // when
+        byte[] first = target.compress(DATA);
+        byte[] second = target.compress(DATA);
+
+        // then
+        assertThat(second, is(equalTo(first)));
+    }
+
+    @Test
+    public void noCompressionLevelStillProducesValidGzipData() throws IOException {
+        // given
+        when(mockConfiguration.getCompressionLevel()).thenReturn(Deflater.NO_COMPRESSION);
+        GzipCompressor target = new GzipCompressor(mockConfiguration);
+
+        // when
+        byte[] obtained = target.compress(DATA);
+
+        // then
+        assertThat(gunzip(obtained), is(equalTo(DATA)));
+    }
+
+    @Test
+    public void huffmanOnlyStrategyStillProducesValidGzipData() throws IOException {
+        // given
+        when(mockConfiguration.getCompressionStrategy()).thenReturn(Deflater.HUFFMAN_ONLY);
+        GzipCompressor target = new GzipCompressor(mockConfiguration);
+
+        // when
+        byte[] obtained = target.compress(DATA);
+
+        // then
+        assertThat(gunzip(obtained), is(equalTo(DATA)));
+    }
+
+    @Test
+    public void largeDataCanBeCompressedAndDecompressed() throws IOException {
+        // given
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            builder.append("&et=1&na=action").append(i).append("&it=1&ca=").append(i);
+        }
+        byte[] data = builder.toString().getBytes();
+        GzipCompressor target = new GzipCompressor(mockConfiguration);
+
+        // when
+        byte[] obtained = target.compress(data);
+
+        // then
+        assertThat(gunzip(obtained), is(equalTo(data)));
+    }
+
+    @Test
+    public void deflaterIsReturnedToPoolAfterCompression() {
+        // given
+        GzipCompressor target = new GzipCompressor(mockConfiguration);
+
+        // when
+        target.compress(DATA);
+        target.compress(DATA);
+
+        // then
+        assertThat(target.getNumPooledDeflaters(), is(1));
+    }
+
+    @Test
+    public void closeReleasesPooledDeflaters() {
+        // given
+        GzipCompressor target = new GzipCompressor(mockConfiguration);
+        target.compress(DATA);
+
+        // when
+        target.close();
+
+        // then
+        assertThat(target.getNumPooledDeflaters(), is(0));
+    }
+
+    @Test
+    public void compressorCanBeUsedAfterClose() throws IOException {
+        // given
+        GzipCompressor target = new GzipCompressor(mockConfiguration);
+        target.close();
+
+        // when
+        byte[] obtained = target.compress(DATA);
+
+        // then
+        assertThat(gunzip(obtained), is(equalTo(DATA)));
+    }
+
+    @Test
+    public void deflatersAreNotPooledAfterClose() {
+        // given
+        GzipCompressor target = new GzipCompressor(mockConfiguration);
+        target.close();
+
+        // when
+        target.compress(DATA);
+
+        // then
+        assertThat(target.getNumPooledDeflaters(), is(0));
+    }
+
+    @Test
+    public void shouldCompressReturnsFalseForNullData() {
+        // given
+        GzipCompressor target = new GzipCompressor(mockConfiguration);
+
+        // when, then
+        assertThat(target.shouldCompress(null), is(false));
+    }
+
+    @Test
+    public void shouldCompressReturnsFalseForEmptyData() {
+        // given
+        GzipCompressor target = new GzipCompressor(mockConfiguration);
+
+        // when, then
+        assertThat(target.shouldCompress(new byte[0]), is(false));
+    }
+
+    @Test
+    public void shouldCompressReturnsFalseIfDataIsBelowThreshold() {
+        // given
+        when(mockConfiguration.getCompressionThreshold()).thenReturn(DATA.length + 1);
+        GzipCompressor target = new GzipCompressor(mockConfiguration);
+
+        // when, then
+        assertThat(target.shouldCompress(DATA), is(false));
+    }
+
+    @Test
+    public void shouldCompressReturnsTrueIfDataReachesThreshold() {
+        // given
+        when(mockConfiguration.getCompressionThreshold()).thenReturn(DATA.length);
+        GzipCompressor target = new GzipCompressor(mockConfiguration);
+
+        // when, then
+        assertThat(target.shouldCompress(DATA), is(true));
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream);
+        gzipOutputStream.write(data);
+        gzipOutputStream.close();
+        return outputStream.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] data) throws IOException {
+        GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(data));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int numBytes;
+        while ((numBytes = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, numBytes);
+        }
+        inputStream.close();
+        return outputStream.toByteArray();
+    }
+}
@@ -17,9 +17,11 @@
 package com.dynatrace.openkit.protocol;
 
 import com.dynatrace.openkit.api.Logger;
+import com.dynatrace.openkit.core.configuration.CompressionConfiguration;
 import com.dynatrace.openkit.core.configuration.HTTPClientConfiguration;
 import com.dynatrace.openkit.protocol.HTTPClient.RequestType;
 import com.dynatrace.openkit.providers.HttpURLConnectionWrapper;
+import com.dynatrace.openkit.providers.TimingProvider;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -38,6 +40,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -48,7 +51,9 @@ import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
@@ -99,7 +104,7 @@ public class HTTPClientTest {
         HTTPClient client = new HTTPClient(logger, configuration);
 
         // when
-        StatusResponse response = client.sendRequest(null, "", null, null, null);
+        StatusResponse response = client.sendRequest(null, "", null, null, false, null);
 
         // then
         assertThat(response, is(nullValue()));
@@ -130,7 +135,7 @@ public class HTTPClientTest {
         when(connection.getErrorStream()).thenReturn(is);
 
         // when
-        StatusResponse response = client.sendRequest(RequestType.STATUS, httpURLConnectionWrapper, null, null, "GET");
+        StatusResponse response = client.sendRequest(RequestType.STATUS, httpURLConnectionWrapper, null, null, false, "GET");
 
         // then (verify that for error responses unknown error is returned)
         assertThat(response, is(notNullValue()));
@@ -148,7 +153,7 @@ public class HTTPClientTest {
         when(connection.getInputStream()).thenReturn(is);
 
         // when
-        StatusResponse response = client.sendRequest(RequestType.STATUS, httpURLConnectionWrapper, null, null, "GET");
+        StatusResponse response = client.sendRequest(RequestType.STATUS, httpURLConnectionWrapper, null, null, false, "GET");
 
         // then (verify that we properly send the request and parsed the response)
         assertThat(response, notNullValue());
@@ -172,7 +177,7 @@ public class HTTPClientTest {
         when(connection.getHeaderFields()).thenReturn(headerFields);
 
         // when
-        StatusResponse response = client.sendRequest(RequestType.STATUS, httpURLConnectionWrapper, null, null, "GET");
+        StatusResponse response = client.sendRequest(RequestType.STATUS, httpURLConnectionWrapper, null, null, false, "GET");
 
         // then verify header field keys are transformed to lower case
         assertThat(response, notNullValue());
@@ -201,7 +206,7 @@ public class HTTPClientTest {
         when(connection.getHeaderFields()).thenReturn(headerFields);
 
         // when
-        StatusResponse response = client.sendRequest(RequestType.STATUS, httpURLConnectionWrapper, null, null, "GET");
+        StatusResponse response = client.sendRequest(RequestType.STATUS, httpURLConnectionWrapper, null, null, false, "GET");
 
         // then verify header field keys are transformed to lower case
         assertThat(response, notNullValue());
@@ -224,7 +229,7 @@ public class HTTPClientTest {
         when(connection.getErrorStream()).thenReturn(is);
 
         // when
-        StatusResponse response = client.sendRequest(RequestType.NEW_SESSION, httpURLConnectionWrapper, null, null, "GET");
+        StatusResponse response = client.sendRequest(RequestType.NEW_SESSION, httpURLConnectionWrapper, null, null, false, "GET");
 
         // then (verify that for error responses unknown error is returned)
         assertThat(response, is(notNullValue()));
@@ -242,7 +247,7 @@ public class HTTPClientTest {
         when(connection.getInputStream()).thenReturn(is);
 
         // when
-        StatusResponse response = client.sendRequest(RequestType.NEW_SESSION, httpURLConnectionWrapper, null, null, "GET");
+        StatusResponse response = client.sendRequest(RequestType.NEW_SESSION, httpURLConnectionWrapper, null, null, false, "GET");
 
         // then (verify that we properly send the request and parsed the response)
         assertThat(response, notNullValue());
@@ -266,7 +271,7 @@ public class HTTPClientTest {
         when(connection.getHeaderFields()).thenReturn(headerFields);
 
         // when
-        StatusResponse response = client.sendRequest(RequestType.NEW_SESSION, httpURLConnectionWrapper, null, null, "GET");
+        StatusResponse response = client.sendRequest(RequestType.NEW_SESSION, httpURLConnectionWrapper, null, null, false, "GET");
 
         // then verify header field keys are transformed to lower case
         assertThat(response, notNullValue());
@@ -295,7 +300,7 @@ public class HTTPClientTest {
         when(connection.getHeaderFields()).thenReturn(headerFields);
 
         // when
-        StatusResponse response = client.sendRequest(RequestType.NEW_SESSION, httpURLConnectionWrapper, null, null, "GET");
+        StatusResponse response = client.sendRequest(RequestType.NEW_SESSION, httpURLConnectionWrapper, null, null, false, "GET");
 
         // then verify header field keys are transformed to lower case
         assertThat(response, notNullValue());
@@ -318,7 +323,7 @@ public class HTTPClientTest {
         when(connection.getInputStream()).thenReturn(is);
 
         // when
-        StatusResponse response = client.sendRequest(RequestType.BEACON, httpURLConnectionWrapper, "127.0.0.1", null, "POST");
+        StatusResponse response = client.sendRequest(RequestType.BEACON, httpURLConnectionWrapper, "127.0.0.1", null, false, "POST");
 
         // then (verify that we properly send the request and parsed the response)
         assertThat(response.getResponseCode(), is(200));
@@ -338,7 +343,7 @@ public class HTTPClientTest {
         String data = "type=m";
 
         // when
-        StatusResponse response = client.sendRequest(RequestType.BEACON, httpURLConnectionWrapper, "127.0.0.1", data.getBytes(), "POST");
+        StatusResponse response = client.sendRequest(RequestType.BEACON, httpURLConnectionWrapper, "127.0.0.1", data.getBytes(), false, "POST");
 
         // then
         assertThat(response.getResponseCode(), is(200));
@@ -361,7 +366,7 @@ public class HTTPClientTest {
         when(connection.getOutputStream()).thenReturn(os);
 
         // when
-        StatusResponse response = client.sendRequest(RequestType.BEACON, httpURLConnectionWrapper, "127.0.0.1", uncompressedText, "POST");
+        StatusResponse response = client.sendRequest(RequestType.BEACON, httpURLConnectionWrapper, "127.0.0.1", uncompressedText, false, "POST");
 
         // then
         // first ensure text length and compressed text length are not equal
@@ -376,6 +381,136 @@ public class HTTPClientTest {
         assertThat(response.isErroneousResponse(), is(false));
     }
 
+    @Test
+    public void sendBeaconRequestDoesNotCompressDataBelowCompressionThreshold() throws IOException {
+        // given
+        byte[] uncompressedText = "Lorem ipsum dolor sit amet".getBytes("UTF-8");
+        CompressionConfiguration compressionConfiguration = mock(CompressionConfiguration.class);
+        when(compressionConfiguration.getCompressionLevel()).thenReturn(Deflater.DEFAULT_COMPRESSION);
+        when(compressionConfiguration.getCompressionStrategy()).thenReturn(Deflater.DEFAULT_STRATEGY);
+        when(compressionConfiguration.getCompressionThreshold()).thenReturn(uncompressedText.length + 1);
+        HTTPClient client = new HTTPClient(logger, configuration, new GzipCompressor(compressionConfiguration));
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        when(httpURLConnectionWrapper.getHttpURLConnection()).thenReturn(connection);
+        when(connection.getResponseCode()).thenReturn(200);
+        InputStream is = new ByteArrayInputStream("type=m".getBytes(CHARSET));
+        when(connection.getInputStream()).thenReturn(is);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        when(connection.getOutputStream()).thenReturn(os);
+
+        // when
+        StatusResponse response = client.sendRequest(RequestType.BEACON, httpURLConnectionWrapper, "127.0.0.1", uncompressedText, false, "POST");
+
+        // then
+        verify(connection, times(0)).setRequestProperty(eq("Content-Encoding"), anyString());
+        verify(connection, times(1)).setRequestProperty("Content-Length", Integer.toString(uncompressedText.length));
+        assertThat(os.toByteArray(), is(equalTo(uncompressedText)));
+        assertThat(response.isErroneousResponse(), is(false));
+    }
+
+    @Test
+    public void sendRequestSendsAlreadyCompressedDataAsIs() throws IOException {
+        // given
+        byte[] compressedData = new GzipCompressor(CompressionConfiguration.DEFAULT).compress("Lorem ipsum".getBytes("UTF-8"));
+        HTTPClient client = new HTTPClient(logger, configuration);
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        when(httpURLConnectionWrapper.getHttpURLConnection()).thenReturn(connection);
+        when(connection.getResponseCode()).thenReturn(200);
+        InputStream is = new ByteArrayInputStream("type=m".getBytes(CHARSET));
+        when(connection.getInputStream()).thenReturn(is);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        when(connection.getOutputStream()).thenReturn(os);
+
+        // when
+        StatusResponse response = client.sendRequest(RequestType.BEACON, httpURLConnectionWrapper, "127.0.0.1", compressedData, true, "POST");
+
+        // then
+        verify(connection, times(1)).setRequestProperty("Content-Encoding", "gzip");
+        verify(connection, times(1)).setRequestProperty("Content-Length", Integer.toString(compressedData.length));
+        assertThat(os.toByteArray(), is(equalTo(compressedData)));
+        assertThat(response.isErroneousResponse(), is(false));
+    }
+
+    @Test
+    public void errorResponseBodyIsConsumedAndClosed() throws IOException {
+        // given
+        HTTPClient client = new HTTPClient(logger, configuration);
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        when(httpURLConnectionWrapper.getHttpURLConnection()).thenReturn(connection);
+        when(connection.getResponseCode()).thenReturn(500);
+        InputStream is = spy(new ByteArrayInputStream(new byte[4096]));
+        when(connection.getErrorStream()).thenReturn(is);
+
+        // when
+        StatusResponse response = client.sendRequest(RequestType.STATUS, httpURLConnectionWrapper, null, null, false, "GET");
+
+        // then
+        assertThat(response.getResponseCode(), is(equalTo(500)));
+        assertThat(is.available(), is(equalTo(0)));
+        verify(is, times(1)).close();
+    }
+
+    @Test
+    public void missingErrorStreamIsHandled() throws IOException {
+        // given
+        HTTPClient client = new HTTPClient(logger, configuration);
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        when(httpURLConnectionWrapper.getHttpURLConnection()).thenReturn(connection);
+        when(connection.getResponseCode()).thenReturn(503);
+        when(connection.getErrorStream()).thenReturn(null);
+
+        // when
+        StatusResponse response = client.sendRequest(RequestType.STATUS, httpURLConnectionWrapper, null, null, false, "GET");
+
+        // then
+        assertThat(response.getResponseCode(), is(equalTo(503)));
+    }
+
+    @Test
+    public void successResponseBodyIsConsumedAndClosed() throws IOException {
+        // given
+        HTTPClient client = new HTTPClient(logger, configuration);
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        when(httpURLConnectionWrapper.getHttpURLConnection()).thenReturn(connection);
+        when(connection.getResponseCode()).thenReturn(200);
+        InputStream is = spy(new ByteArrayInputStream("{}   \n  ".getBytes(CHARSET)));
+        when(connection.getInputStream()).thenReturn(is);
+
+        // when
+        StatusResponse response = client.sendRequest(RequestType.STATUS, httpURLConnectionWrapper, null, null, false, "GET");
+
+        // then
+        assertThat(response.getResponseCode(), is(equalTo(200)));
+        assertThat(is.available(), is(equalTo(0)));
+        verify(is, times(1)).close();
+    }
+
+    @Test
+    public void multiByteCharactersSpanningReadBuffersAreDecodedCorrectly() throws IOException {
+        // given
+        StringBuilder responseBuilder = new StringBuilder("type=m&bl=17&xx=");
+        while (responseBuilder.length() < 1023) {
+            responseBuilder.append('a');
+        }
+        responseBuilder.append("\u20ac\u20ac"); // 3 bytes each in UTF-8, the first one spans the 1024 byte boundary
+        String responseText = responseBuilder.toString();
+
+        when(logger.isDebugEnabled()).thenReturn(true);
+        HTTPClient client = new HTTPClient(logger, configuration);
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        when(httpURLConnectionWrapper.getHttpURLConnection()).thenReturn(connection);
+        when(connection.getResponseCode()).thenReturn(200);
+        when(connection.getInputStream()).thenReturn(new ByteArrayInputStream(responseText.getBytes(CHARSET)));
+
+        // when
+        StatusResponse response = client.sendRequest(RequestType.STATUS, httpURLConnectionWrapper, null, null, false, "GET");
+
+        // then
+        assertThat(response.getResponseCode(), is(equalTo(200)));
+        assertThat(response.getResponseAttributes().getMaxBeaconSizeInBytes(), is(equalTo(17 * 1024)));
+        verify(logger, times(1)).debug(HTTPClient.class.getSimpleName() + " handleResponse() - HTTP Response: " + responseText);
+    }
+
     /**
      * Local helper function to decompress a GZIP compressed byte array
      */
@@ -423,7 +558,7 @@ public class HTTPClientTest {
         when(connection.getHeaderFields()).thenReturn(headerFields);
 
         // when
-        StatusResponse response = client.sendRequest(RequestType.BEACON, httpURLConnectionWrapper, "127.0.0.1", "type=m".getBytes(), "POST");
+        StatusResponse response = client.sendRequest(RequestType.BEACON, httpURLConnectionWrapper, "127.0.0.1", "type=m".getBytes(), false, "POST");
 
         // then verify header field keys are transformed to lower case
         assertThat(response, notNullValue());
@@ -454,7 +589,7 @@ public class HTTPClientTest {
         when(connection.getHeaderFields()).thenReturn(headerFields);
 
         // when
-        StatusResponse response = client.sendRequest(RequestType.BEACON, httpURLConnectionWrapper, "127.0.0.1", "type=m".getBytes(), "POST");
+        StatusResponse response = client.sendRequest(RequestType.BEACON, httpURLConnectionWrapper, "127.0.0.1", "type=m".getBytes(), false, "POST");
 
         // then verify header field keys are transformed to lower case
         assertThat(response, notNullValue());
@@ -487,7 +622,7 @@ public class HTTPClientTest {
         String data = "type=m";
 
         // when
-        StatusResponse response = client.sendRequest(RequestType.BEACON, httpURLConnectionWrapper, "127.0.0.1", data.getBytes(), "POST");
+        StatusResponse response = client.sendRequest(RequestType.BEACON, httpURLConnectionWrapper, "127.0.0.1", data.getBytes(), false, "POST");
 
         // then
         verify(httpURLConnectionWrapper, times(3)).getHttpURLConnection();
@@ -512,7 +647,7 @@ public class HTTPClientTest {
         String data = "type=m";
 
         // when
-        StatusResponse response = client.sendRequest(RequestType.BEACON, httpURLConnectionWrapper, "127.0.0.1", data.getBytes(), "POST");
+        StatusResponse response = client.sendRequest(RequestType.BEACON, httpURLConnectionWrapper, "127.0.0.1", data.getBytes(), false, "POST");
 
         // then
         assertThat(response, is(notNullValue()));
@@ -537,7 +672,7 @@ public class HTTPClientTest {
                 .thenThrow(new IOException("Third failure"));
 
         // when
-        StatusResponse response = client.sendRequest(RequestType.BEACON, httpURLConnectionWrapper, "127.0.0.1", null, "POST");
+        StatusResponse response = client.sendRequest(RequestType.BEACON, httpURLConnectionWrapper, "127.0.0.1", null, false, "POST");
 
         // then
         verify(httpURLConnectionWrapper, times(3)).getHttpURLConnection();
@@ -556,7 +691,7 @@ public class HTTPClientTest {
         when(connection.getInputStream()).thenReturn(is);
 
         // when
-        StatusResponse response = client.sendRequest(RequestType.STATUS, httpURLConnectionWrapper, null, null, "GET");
+        StatusResponse response = client.sendRequest(RequestType.STATUS, httpURLConnectionWrapper, null, null, false, "GET");
 
         // then (verify unknown error response)
         assertThat(response, is(notNullValue()));
@@ -576,7 +711,7 @@ public class HTTPClientTest {
         String data = "type=m";
 
         // when
-        StatusResponse response = client.sendRequest(RequestType.BEACON, httpURLConnectionWrapper, "127.0.0.1", data.getBytes(), "POST");
+        StatusResponse response = client.sendRequest(RequestType.BEACON, httpURLConnectionWrapper, "127.0.0.1", data.getBytes(), false, "POST");
 
         // then
         assertThat(response, is(notNullValue()));
@@ -587,7 +722,7 @@ public class HTTPClientTest {
     public void sendStatusRequestDoesNotReturnNull() {
         // given
         HTTPClient target = spy(new HTTPClient(logger, configuration));
-        doReturn(null).when(target).sendRequest(Mockito.any(RequestType.class), anyString(), anyString(), Mockito.any(byte[].class), anyString());
+        doReturn(null).when(target).sendRequest(Mockito.any(RequestType.class), anyString(), anyString(), Mockito.any(byte[].class), anyBoolean(), anyString());
 
         // when
         StatusResponse obtained = target.sendStatusRequest(mockAdditionalParameters);
@@ -601,7 +736,7 @@ public class HTTPClientTest {
     public void sendNewSessionRequestDoesNotReturnNull() {
         // given
         HTTPClient target = spy(new HTTPClient(logger, configuration));
-        doReturn(null).when(target).sendRequest(Mockito.any(RequestType.class), anyString(), anyString(), Mockito.any(byte[].class), anyString());
+        doReturn(null).when(target).sendRequest(Mockito.any(RequestType.class), anyString(), anyString(), Mockito.any(byte[].class), anyBoolean(), anyString());
 
         // when
         StatusResponse obtained = target.sendNewSessionRequest(mockAdditionalParameters);
@@ -615,7 +750,7 @@ public class HTTPClientTest {
     public void sendBeaconRequestDoesNotReturnNull() throws UnsupportedEncodingException {
         // given
         HTTPClient target = spy(new HTTPClient(logger, configuration));
-        doReturn(null).when(target).sendRequest(Mockito.any(RequestType.class), anyString(), anyString(), Mockito.any(byte[].class), anyString());
+        doReturn(null).when(target).sendRequest(Mockito.any(RequestType.class), anyString(), anyString(), Mockito.any(byte[].class), anyBoolean(), anyString());
 
         // when
         StatusResponse obtained = target.sendBeaconRequest("127.0.0.1", "".getBytes(CHARSET), mockAdditionalParameters);
@@ -625,19 +760,225 @@ public class HTTPClientTest {
         assertThat(obtained.getResponseCode(), is(equalTo(Integer.MAX_VALUE)));
     }
 
+    @Test
+    public void sendBeaconRequestSendsUncompressedData() throws UnsupportedEncodingException {
+        // given
+        HTTPClient target = spy(new HTTPClient(logger, configuration));
+        doReturn(null).when(target).sendRequest(any(RequestType.class), anyString(), anyString(), any(byte[].class), anyBoolean(), anyString());
+        byte[] data = "type=m".getBytes(CHARSET);
+
+        // when
+        target.sendBeaconRequest("127.0.0.1", data, mockAdditionalParameters);
+
+        // then
+        verify(target, times(1)).sendRequest(eq(RequestType.BEACON), anyString(), eq("127.0.0.1"), eq(data), eq(false), eq("POST"));
+    }
+
+    @Test
+    public void sendCompressedBeaconRequestSendsCompressedData() throws UnsupportedEncodingException {
+        // given
+        HTTPClient target = spy(new HTTPClient(logger, configuration));
+        doReturn(null).when(target).sendRequest(any(RequestType.class), anyString(), anyString(), any(byte[].class), anyBoolean(), anyString());
+        byte[] data = "compressed".getBytes(CHARSET);
+
+        // when
+        target.sendCompressedBeaconRequest("127.0.0.1", data, mockAdditionalParameters);
+
+        // then
+        verify(target, times(1)).sendRequest(eq(RequestType.BEACON), anyString(), eq("127.0.0.1"), eq(data), eq(true), eq("POST"));
+    }
+
+    @Test
+    public void sendStatusRequestIsShortCircuitedIfCircuitBreakerIsOpen() {
+        // given
+        CircuitBreaker circuitBreaker = mock(CircuitBreaker.class);
+        when(circuitBreaker.isRequestAllowed()).thenReturn(false);
+        HTTPClient target = spy(new HTTPClient(logger, configuration, new GzipCompressor(CompressionConfiguration.DEFAULT), circuitBreaker));
+
+        // when
+        StatusResponse obtained = target.sendStatusRequest(mockAdditionalParameters);
+
+        // then
+        assertThat(obtained, is(notNullValue()));
+        assertThat(obtained.getResponseCode(), is(equalTo(Integer.MAX_VALUE)));
+        verify(target, times(0)).sendRequest(any(RequestType.class), anyString(), anyString(), any(byte[].class), anyBoolean(), anyString());
+        verify(circuitBreaker, times(0)).recordFailure();
+        verify(circuitBreaker, times(0)).recordSuccess();
+    }
+
+    @Test
+    public void sendBeaconRequestIsShortCircuitedIfCircuitBreakerIsOpen() throws UnsupportedEncodingException {
+        // given
+        CircuitBreaker circuitBreaker = mock(CircuitBreaker.class);
+        when(circuitBreaker.isRequestAllowed()).thenReturn(false);
+        HTTPClient target = spy(new HTTPClient(logger, configuration, new GzipCompressor(CompressionConfiguration.DEFAULT), circuitBreaker));
+
+        // when
+        StatusResponse obtained = target.sendBeaconRequest("127.0.0.1", "foo".getBytes(CHARSET), mockAdditionalParameters);
+
+        // then
+        assertThat(obtained.getResponseCode(), is(equalTo(Integer.MAX_VALUE)));
+        verify(target, times(0)).sendRequest(any(RequestType.class), anyString(), anyString(), any(byte[].class), anyBoolean(), anyString());
+    }
+
+    @Test
+    public void serverErrorResponseIsRecordedAsCircuitBreakerFailure() {
+        // given
+        CircuitBreaker circuitBreaker = mock(CircuitBreaker.class);
+        when(circuitBreaker.isRequestAllowed()).thenReturn(true);
+        HTTPClient target = spy(new HTTPClient(logger, configuration, new GzipCompressor(CompressionConfiguration.DEFAULT), circuitBreaker));
+        doReturn(StatusResponse.createErrorResponse(logger, 503))
+                .when(target).sendRequest(any(RequestType.class), anyString(), anyString(), any(byte[].class), anyBoolean(), anyString());
+
+        // when
+        target.sendNewSessionRequest(mockAdditionalParameters);
+
+        // then
+        verify(circuitBreaker, times(1)).recordFailure();
+        verify(circuitBreaker, times(0)).recordSuccess();
+    }
+
+    @Test
+    public void missingResponseIsRecordedAsCircuitBreakerFailure() {
+        // given
+        CircuitBreaker circuitBreaker = mock(CircuitBreaker.class);
+        when(circuitBreaker.isRequestAllowed()).thenReturn(true);
+        HTTPClient target = spy(new HTTPClient(logger, configuration, new GzipCompressor(CompressionConfiguration.DEFAULT), circuitBreaker));
+        doReturn(null).when(target).sendRequest(any(RequestType.class), anyString(), anyString(), any(byte[].class), anyBoolean(), anyString());
+
+        // when
+        target.sendStatusRequest(mockAdditionalParameters);
+
+        // then
+        verify(circuitBreaker, times(1)).recordFailure();
+    }
+
+    @Test
+    public void clientErrorResponseIsRecordedAsCircuitBreakerSuccess() {
+        // given
+        CircuitBreaker circuitBreaker = mock(CircuitBreaker.class);
+        when(circuitBreaker.isRequestAllowed()).thenReturn(true);
+        HTTPClient target = spy(new HTTPClient(logger, configuration, new GzipCompressor(CompressionConfiguration.DEFAULT), circuitBreaker));
+        doReturn(StatusResponse.createErrorResponse(logger, StatusResponse.HTTP_TOO_MANY_REQUESTS))
+                .when(target).sendRequest(any(RequestType.class), anyString(), anyString(), any(byte[].class), anyBoolean(), anyString());
+
+        // when
+        target.sendStatusRequest(mockAdditionalParameters);
+
+        // then
+        verify(circuitBreaker, times(0)).recordFailure();
+        verify(circuitBreaker, times(1)).recordSuccess();
+    }
+
+    @Test
+    public void requestIsSentToSelectedEndpointIfMultipleEndpointsAreGiven() {
+        // given
+        EndpointSelector selector = createEndpointSelector("http://first", "http://second");
+        HTTPClient target = spy(new HTTPClient(logger, configuration, new GzipCompressor(CompressionConfiguration.DEFAULT), selector));
+        doReturn(StatusResponse.createErrorResponse(logger, 200))
+                .when(target).sendRequest(any(RequestType.class), anyString(), anyString(), any(byte[].class), anyBoolean(), anyString());
+        String expectedURL = selector.select(0, null).getURL();
+
+        // when
+        StatusResponse obtained = target.sendStatusRequest(null);
+
+        // then
+        assertThat(obtained.getResponseCode(), is(equalTo(200)));
+        ArgumentCaptor<String> urlCaptor = ArgumentCaptor.forClass(String.class);
+        verify(target, times(1)).sendRequest(eq(RequestType.STATUS), urlCaptor.capture(), anyString(), any(byte[].class), anyBoolean(), eq("GET"));
+        assertThat(urlCaptor.getValue().startsWith(expectedURL + "?type=m&srvid=" + SERVER_ID + "&app=" + APP_ID), is(true));
+    }
+
+    @Test
+    public void requestFailsOverToNextEndpointOnServerError() {
+        // given
+        EndpointSelector selector = createEndpointSelector("http://first", "http://second");
+        HTTPClient target = spy(new HTTPClient(logger, configuration, new GzipCompressor(CompressionConfiguration.DEFAULT), selector));
+        doReturn(StatusResponse.createErrorResponse(logger, 503))
+                .doReturn(StatusResponse.createErrorResponse(logger, 200))
+                .when(target).sendRequest(any(RequestType.class), anyString(), anyString(), any(byte[].class), anyBoolean(), anyString());
+
+        // when
+        StatusResponse obtained = target.sendNewSessionRequest(null);
+
+        // then
+        assertThat(obtained.getResponseCode(), is(equalTo(200)));
+        ArgumentCaptor<String> urlCaptor = ArgumentCaptor.forClass(String.class);
+        verify(target, times(2)).sendRequest(eq(RequestType.NEW_SESSION), urlCaptor.capture(), anyString(), any(byte[].class), anyBoolean(), eq("GET"));
+        String firstHost = urlCaptor.getAllValues().get(0).substring(0, urlCaptor.getAllValues().get(0).indexOf('?'));
+        String secondHost = urlCaptor.getAllValues().get(1).substring(0, urlCaptor.getAllValues().get(1).indexOf('?'));
+        assertThat(firstHost, is(not(equalTo(secondHost))));
+        assertThat(urlCaptor.getAllValues().get(1).endsWith("&ns=1"), is(true));
+    }
+
+    @Test
+    public void requestFailsOverToNextEndpointOnTooManyRequests() throws UnsupportedEncodingException {
+        // given
+        EndpointSelector selector = createEndpointSelector("http://first", "http://second");
+        HTTPClient target = spy(new HTTPClient(logger, configuration, new GzipCompressor(CompressionConfiguration.DEFAULT), selector));
+        doReturn(StatusResponse.createErrorResponse(logger, StatusResponse.HTTP_TOO_MANY_REQUESTS))
+                .doReturn(StatusResponse.createErrorResponse(logger, 200))
+                .when(target).sendRequest(any(RequestType.class), anyString(), anyString(), any(byte[].class), anyBoolean(), anyString());
+        EndpointSelector.Endpoint firstEndpoint = selector.select(0, null);
+
+        // when
+        StatusResponse obtained = target.sendBeaconRequest("127.0.0.1", "foo".getBytes(CHARSET), null);
+
+        // then
+        assertThat(obtained.getResponseCode(), is(equalTo(200)));
+        assertThat(firstEndpoint.getHealth().isHealthy(), is(false));
+        assertThat(selector.select(0, null), is(not(firstEndpoint)));
+    }
+
+    @Test
+    public void failoverIsBoundedPerRequest() {
+        // given
+        EndpointSelector selector = createEndpointSelector("http://first", "http://second", "http://third");
+        HTTPClient target = spy(new HTTPClient(logger, configuration, new GzipCompressor(CompressionConfiguration.DEFAULT), selector));
+        doReturn(StatusResponse.createErrorResponse(logger, 503))
+                .when(target).sendRequest(any(RequestType.class), anyString(), anyString(), any(byte[].class), anyBoolean(), anyString());
+
+        // when
+        StatusResponse obtained = target.sendStatusRequest(null);
+
+        // then
+        assertThat(obtained.getResponseCode(), is(equalTo(503)));
+        verify(target, times(2)).sendRequest(any(RequestType.class), anyString(), anyString(), any(byte[].class), anyBoolean(), anyString());
+    }
+
+    @Test
+    public void requestsWithSameRoutingKeyAreSentToSameEndpoint() {
+        // given
+        when(configuration.getRoutingKey()).thenReturn(4711);
+        EndpointSelector selector = createEndpointSelector("http://first", "http://second", "http://third");
+        HTTPClient target = spy(new HTTPClient(logger, configuration, new GzipCompressor(CompressionConfiguration.DEFAULT), selector));
+        doReturn(StatusResponse.createErrorResponse(logger, 200))
+                .when(target).sendRequest(any(RequestType.class), anyString(), anyString(), any(byte[].class), anyBoolean(), anyString());
+
+        // when
+        target.sendStatusRequest(null);
+        target.sendStatusRequest(null);
+
+        // then
+        ArgumentCaptor<String> urlCaptor = ArgumentCaptor.forClass(String.class);
+        verify(target, times(2)).sendRequest(any(RequestType.class), urlCaptor.capture(), anyString(), any(byte[].class), anyBoolean(), anyString());
+        assertThat(urlCaptor.getAllValues().get(0), is(equalTo(urlCaptor.getAllValues().get(1))));
+        assertThat(urlCaptor.getAllValues().get(0).startsWith(selector.select(4711, null).getURL()), is(true));
+    }
+
     @Test
     public void sendStatusRequestDoesNotAppendIfAdditionalQueryParametersAreNull() {
         // given
         ArgumentCaptor<String> urlCaptor = ArgumentCaptor.forClass(String.class);
 
         HTTPClient target = spy(new HTTPClient(logger, configuration));
-        doReturn(null).when(target).sendRequest(any(RequestType.class), anyString(), anyString(), any(byte[].class), anyString());
+        doReturn(null).when(target).sendRequest(any(RequestType.class), anyString(), anyString(), any(byte[].class), anyBoolean(), anyString());
 
         // when
         target.sendStatusRequest(null);
 
         // then
-        verify(target, times(1)).sendRequest(any(RequestType.class), urlCaptor.capture(), anyString(), any(byte[].class), anyString());
+        verify(target, times(1)).sendRequest(any(RequestType.class), urlCaptor.capture(), anyString(), any(byte[].class), anyBoolean(), anyString());
 
         StringBuilder expectedUrl = initializeBaseUrl();
         assertThat(urlCaptor.getValue(), is(expectedUrl.toString()));
@@ -653,13 +994,13 @@ public class HTTPClientTest {
         ArgumentCaptor<String> urlCaptor = ArgumentCaptor.forClass(String.class);
 
         HTTPClient target = spy(new HTTPClient(logger, configuration));
-        doReturn(null).when(target).sendRequest(any(RequestType.class), anyString(), anyString(), any(byte[].class), anyString());
+        doReturn(null).when(target).sendRequest(any(RequestType.class), anyString(), anyString(), any(byte[].class), anyBoolean(), anyString());
 
         // when
         target.sendStatusRequest(additionalQueryParameters);
 
         // then
-        verify(target, times(1)).sendRequest(any(RequestType.class), urlCaptor.capture(), anyString(), any(byte[].class), anyString());
+        verify(target, times(1)).sendRequest(any(RequestType.class), urlCaptor.capture(), anyString(), any(byte[].class), anyBoolean(), anyString());
 
         StringBuilder expectedUrl = initializeBaseUrl();
         appendUrlParameter(expectedUrl, "cts", String.valueOf(timestamp));
@@ -672,13 +1013,13 @@ public class HTTPClientTest {
         ArgumentCaptor<String> urlCaptor = ArgumentCaptor.forClass(String.class);
 
         HTTPClient target = spy(new HTTPClient(logger, configuration));
-        doReturn(null).when(target).sendRequest(any(RequestType.class), anyString(), anyString(), any(byte[].class), anyString());
+        doReturn(null).when(target).sendRequest(any(RequestType.class), anyString(), anyString(), any(byte[].class), anyBoolean(), anyString());
 
         // when
         target.sendNewSessionRequest(null);
 
         // then
-        verify(target, times(1)).sendRequest(any(RequestType.class), urlCaptor.capture(), anyString(), any(byte[].class), anyString());
+        verify(target, times(1)).sendRequest(any(RequestType.class), urlCaptor.capture(), anyString(), any(byte[].class), anyBoolean(), anyString());
 
         StringBuilder expectedUrl = initializeBaseUrl();
         appendUrlParameter(expectedUrl, "ns", "1");
@@ -695,13 +1036,13 @@ public class HTTPClientTest {
         ArgumentCaptor<String> urlCaptor = ArgumentCaptor.forClass(String.class);
 
         HTTPClient target = spy(new HTTPClient(logger, configuration));
-        doReturn(null).when(target).sendRequest(any(RequestType.class), anyString(), anyString(), any(byte[].class), anyString());
+        doReturn(null).when(target).sendRequest(any(RequestType.class), anyString(), anyString(), any(byte[].class), anyBoolean(), anyString());
 
         // when
         target.sendNewSessionRequest(additionalQueryParameters);
 
         // then
-        verify(target, times(1)).sendRequest(any(RequestType.class), urlCaptor.capture(), anyString(), any(byte[].class), anyString());
+        verify(target, times(1)).sendRequest(any(RequestType.class), urlCaptor.capture(), anyString(), any(byte[].class), anyBoolean(), anyString());
 
         StringBuilder expectedUrl = initializeBaseUrl();
         appendUrlParameter(expectedUrl, "ns", "1");
@@ -715,13 +1056,13 @@ public class HTTPClientTest {
         ArgumentCaptor<String> urlCaptor = ArgumentCaptor.forClass(String.class);
 
         HTTPClient target = spy(new HTTPClient(logger, configuration));
-        doReturn(null).when(target).sendRequest(any(RequestType.class), anyString(), anyString(), any(byte[].class), anyString());
+        doReturn(null).when(target).sendRequest(any(RequestType.class), anyString(), anyString(), any(byte[].class), anyBoolean(), anyString());
 
         // when
         target.sendBeaconRequest(null, null, null);
 
         // then
-        verify(target, times(1)).sendRequest(any(RequestType.class), urlCaptor.capture(), anyString(), any(byte[].class), anyString());
+        verify(target, times(1)).sendRequest(any(RequestType.class), urlCaptor.capture(), anyString(), any(byte[].class), anyBoolean(), anyString());
 
         StringBuilder expectedUrl = initializeBaseUrl();
         assertThat(urlCaptor.getValue(), is(expectedUrl.toString()));
@@ -737,13 +1078,13 @@ public class HTTPClientTest {
         ArgumentCaptor<String> urlCaptor = ArgumentCaptor.forClass(String.class);
 
         HTTPClient target = spy(new HTTPClient(logger, configuration));
-        doReturn(null).when(target).sendRequest(any(RequestType.class), anyString(), anyString(), any(byte[].class), anyString());
+        doReturn(null).when(target).sendRequest(any(RequestType.class), anyString(), anyString(), any(byte[].class), anyBoolean(), anyString());
 
         // when
         target.sendBeaconRequest(null, null, additionalQueryParameters);
 
         // then
-        verify(target, times(1)).sendRequest(any(RequestType.class), urlCaptor.capture(), anyString(), any(byte[].class), anyString());
+        verify(target, times(1)).sendRequest(any(RequestType.class), urlCaptor.capture(), anyString(), any(byte[].class), anyBoolean(), anyString());
 
         StringBuilder expectedUrl = initializeBaseUrl();
         appendUrlParameter(expectedUrl, "cts", String.valueOf(timestamp));
@@ -767,4 +1108,9 @@ public class HTTPClientTest {
     private void appendUrlParameter(StringBuilder builder, String key, String value) {
         builder.append("&").append(key).append("=").append(value);
     }
+
+    private static EndpointSelector createEndpointSelector(String... endpointURLs) {
+        TimingProvider timingProvider = mock(TimingProvider.class);
+        return new EndpointSelector(Arrays.asList(endpointURLs), timingProvider);
+    }
 }
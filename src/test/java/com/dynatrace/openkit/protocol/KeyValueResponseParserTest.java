@@ -20,6 +20,8 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.Matchers.is;
@@ -555,4 +557,44 @@ public class KeyValueResponseParserTest {
     private void appendParameter(String key, String value) {
         inputBuilder.append("&").append(key).append("=").append(value);
     }
+
+    @Test
+    public void parsingFromReaderGivesSameResultAsParsingFromString() throws IOException {
+        // given
+        inputBuilder.append("&").append(KeyValueResponseParser.RESPONSE_KEY_MAX_BEACON_SIZE_IN_KB).append("=37");
+        inputBuilder.append("&&").append(KeyValueResponseParser.RESPONSE_KEY_SERVER_ID).append("=4");
+        inputBuilder.append("&xx=a=b");
+
+        // when
+        ResponseAttributes fromString = KeyValueResponseParser.parse(inputBuilder.toString());
+        ResponseAttributes fromReader = KeyValueResponseParser.parse(new StringReader(inputBuilder.toString()));
+
+        // then
+        assertThat(fromReader.getMaxBeaconSizeInBytes(), is(fromString.getMaxBeaconSizeInBytes()));
+        assertThat(fromReader.getMaxBeaconSizeInBytes(), is(37 * 1024));
+        assertThat(fromReader.getServerId(), is(4));
+    }
+
+    @Test
+    public void parsingFromEmptyReaderReturnsResponseWithDefaultValues() throws IOException {
+        // given
+        ResponseAttributesDefaults defaults = ResponseAttributesDefaults.KEY_VALUE_RESPONSE;
+
+        // when
+        ResponseAttributes obtained = KeyValueResponseParser.parse(new StringReader(""));
+
+        // then
+        assertThat(obtained.getMaxBeaconSizeInBytes(), is(defaults.getMaxBeaconSizeInBytes()));
+        assertThat(obtained.getServerId(), is(defaults.getServerId()));
+    }
+
+    @Test
+    public void parsingKeyWithoutValueDelimiterFromReaderThrowsAnException() throws IOException {
+        // given
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("Invalid response; even number of tokens expected.");
+
+        // when, then
+        KeyValueResponseParser.parse(new StringReader("cp=100&cr"));
+    }
 }
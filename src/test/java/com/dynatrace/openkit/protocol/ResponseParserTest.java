@@ -20,6 +20,9 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.io.Reader;
+import java.io.StringReader;
+
 
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
@@ -131,4 +134,79 @@ public class ResponseParserTest {
         assertThat(obtained.isCapture(), is(false));
         assertThat(obtained.getTimestampInMilliseconds(), is(19L));
     }
+
+    @Test
+    public void parsingEmptyReaderThrowsException() throws ParserException {
+        // given
+        expectedException.expect(ParserException.class);
+
+        // when
+        ResponseParser.parseResponse(new StringReader(""));
+    }
+
+    @Test
+    public void parseKeyValueResponseFromReaderWorks() throws ParserException {
+        // given
+        Reader input = new StringReader("type=m&bl=17&id=18&cp=0");
+
+        // when
+        ResponseAttributes obtained = ResponseParser.parseResponse(input);
+
+        // then
+        assertThat(obtained, notNullValue());
+        assertThat(obtained.getMaxBeaconSizeInBytes(), is(17 * 1024));
+        assertThat(obtained.getServerId(), is(18));
+        assertThat(obtained.isCapture(), is(false));
+    }
+
+    @Test
+    public void parseWithOnlyKeyValuePrefixFromReaderReturnsDefaultResponse() throws ParserException {
+        // given
+        ResponseAttributesDefaults defaults = ResponseAttributesDefaults.KEY_VALUE_RESPONSE;
+
+        // when
+        ResponseAttributes obtained = ResponseParser.parseResponse(new StringReader("type=m"));
+
+        // then
+        assertThat(obtained.getMaxBeaconSizeInBytes(), is(defaults.getMaxBeaconSizeInBytes()));
+        assertThat(obtained.getServerId(), is(defaults.getServerId()));
+    }
+
+    @Test
+    public void parseWithPartiallyMatchingKeyValuePrefixFromReaderThrowsException() throws ParserException {
+        // given
+        expectedException.expect(ParserException.class);
+
+        // when
+        ResponseParser.parseResponse(new StringReader("type=mobile&bl=17"));
+    }
+
+    @Test
+    public void parseJsonResponseFromReaderWorks() throws ParserException {
+        // given
+        String input = "{\"" + JsonResponseParser.RESPONSE_KEY_AGENT_CONFIG + "\": {"
+                + "\"" + JsonResponseParser.RESPONSE_KEY_MAX_BEACON_SIZE_IN_KB + "\": 17},"
+                + "\"" + JsonResponseParser.RESPONSE_KEY_DYNAMIC_CONFIG + "\": {"
+                + "\"" + JsonResponseParser.RESPONSE_KEY_SERVER_ID + "\": 18}}";
+
+        // when
+        ResponseAttributes obtained = ResponseParser.parseResponse(new StringReader(input));
+
+        // then
+        assertThat(obtained, notNullValue());
+        assertThat(obtained.getMaxBeaconSizeInBytes(), is(17 * 1024));
+        assertThat(obtained.getServerId(), is(18));
+    }
+
+    @Test
+    public void parseJsonResponseFromReaderWithShortInputWorks() throws ParserException {
+        // given
+        Reader input = new StringReader("{}");
+
+        // when
+        ResponseAttributes obtained = ResponseParser.parseResponse(input);
+
+        // then
+        assertThat(obtained, notNullValue());
+    }
 }
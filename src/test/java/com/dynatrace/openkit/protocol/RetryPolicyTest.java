@@ -0,0 +1,123 @@
+/**
+ * Copyright 2018-2019 Dynatrace LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dynatrace.openkit.protocol;
+
+import com.dynatrace.openkit.providers.RandomNumberGenerator;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RetryPolicyTest {
+
+    private RandomNumberGenerator mockRandomNumberGenerator;
+
+    @Before
+    public void setUp() {
+        mockRandomNumberGenerator = mock(RandomNumberGenerator.class);
+        when(mockRandomNumberGenerator.nextPositiveLong()).thenReturn(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void maxDelayIsDoubledForEachRetry() {
+        // given
+        RetryPolicy target = new RetryPolicy(5, 100L, 10000L, mockRandomNumberGenerator);
+
+        // when, then
+        assertThat(target.getMaxDelayInMilliseconds(0), is(100L));
+        assertThat(target.getMaxDelayInMilliseconds(1), is(200L));
+        assertThat(target.getMaxDelayInMilliseconds(2), is(400L));
+        assertThat(target.getMaxDelayInMilliseconds(3), is(800L));
+    }
+
+    @Test
+    public void maxDelayIsCappedAtMaximumDelay() {
+        // given
+        RetryPolicy target = new RetryPolicy(5, 100L, 500L, mockRandomNumberGenerator);
+
+        // when, then
+        assertThat(target.getMaxDelayInMilliseconds(2), is(400L));
+        assertThat(target.getMaxDelayInMilliseconds(3), is(500L));
+        assertThat(target.getMaxDelayInMilliseconds(Integer.MAX_VALUE), is(500L));
+    }
+
+    @Test
+    public void maximumDelayIsAtLeastInitialDelay() {
+        // given
+        RetryPolicy target = new RetryPolicy(5, 100L, 10L, mockRandomNumberGenerator);
+
+        // when, then
+        assertThat(target.getMaxDelayInMilliseconds(0), is(100L));
+        assertThat(target.getMaxDelayInMilliseconds(1), is(100L));
+    }
+
+    @Test
+    public void delayUsesUpperBoundForLargestRandomNumber() {
+        // given
+        RetryPolicy target = new RetryPolicy(5, 100L, 10000L, mockRandomNumberGenerator);
+
+        // when, then
+        assertThat(target.getDelayInMilliseconds(0), is(100L));
+        assertThat(target.getDelayInMilliseconds(4), is(1600L));
+    }
+
+    @Test
+    public void delayIsZeroForSmallestRandomNumber() {
+        // given
+        when(mockRandomNumberGenerator.nextPositiveLong()).thenReturn(0L);
+        RetryPolicy target = new RetryPolicy(5, 100L, 10000L, mockRandomNumberGenerator);
+
+        // when, then
+        assertThat(target.getDelayInMilliseconds(0), is(0L));
+        assertThat(target.getDelayInMilliseconds(4), is(0L));
+    }
+
+    @Test
+    public void delayIsScaledByRandomNumber() {
+        // given
+        when(mockRandomNumberGenerator.nextPositiveLong()).thenReturn(Long.MAX_VALUE / 4);
+        RetryPolicy target = new RetryPolicy(5, 100L, 10000L, mockRandomNumberGenerator);
+
+        // when, then
+        assertThat(target.getDelayInMilliseconds(2), is(100L));
+    }
+
+    @Test
+    public void retryIsAllowedUntilMaxRetriesIsReached() {
+        // given
+        RetryPolicy target = new RetryPolicy(2, 100L, 10000L, mockRandomNumberGenerator);
+
+        // when, then
+        assertThat(target.getMaxRetries(), is(2));
+        assertThat(target.isRetryAllowed(0), is(true));
+        assertThat(target.isRetryAllowed(1), is(true));
+        assertThat(target.isRetryAllowed(2), is(false));
+    }
+
+    @Test
+    public void negativeMaxRetriesAreTreatedAsZero() {
+        // given
+        RetryPolicy target = new RetryPolicy(-1, 100L, 10000L, mockRandomNumberGenerator);
+
+        // when, then
+        assertThat(target.getMaxRetries(), is(0));
+        assertThat(target.isRetryAllowed(0), is(false));
+    }
+}
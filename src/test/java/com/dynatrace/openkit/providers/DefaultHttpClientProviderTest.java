@@ -17,13 +17,18 @@
 package com.dynatrace.openkit.providers;
 
 import com.dynatrace.openkit.api.Logger;
+import com.dynatrace.openkit.core.configuration.CompressionConfiguration;
 import com.dynatrace.openkit.core.configuration.HTTPClientConfiguration;
 import com.dynatrace.openkit.protocol.HTTPClient;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -44,7 +49,56 @@ public class DefaultHttpClientProviderTest {
         when(configuration.getBaseURL()).thenReturn("https://localhost:9999/1");
         when(configuration.getApplicationID()).thenReturn("some cryptic appID");
 
-        DefaultHTTPClientProvider target = new DefaultHTTPClientProvider(mockLogger);
+        DefaultHTTPClientProvider target = new DefaultHTTPClientProvider(mockLogger, CompressionConfiguration.DEFAULT,
+                mock(TimingProvider.class), null);
+
+        // when
+        HTTPClient obtained = target.createClient(configuration);
+
+        // then
+        assertThat(obtained, is(notNullValue()));
+    }
+
+    @Test
+    public void endpointSelectorIsNotCreatedWithoutEndpointURLs() {
+        // given
+        DefaultHTTPClientProvider target = new DefaultHTTPClientProvider(mockLogger, CompressionConfiguration.DEFAULT,
+                mock(TimingProvider.class), null);
+
+        // when, then
+        assertThat(target.getEndpointSelector(), is(nullValue()));
+    }
+
+    @Test
+    public void endpointSelectorIsCreatedForMultipleEndpointURLs() {
+        // given
+        DefaultHTTPClientProvider target = new DefaultHTTPClientProvider(mockLogger, CompressionConfiguration.DEFAULT,
+                mock(TimingProvider.class), Arrays.asList("https://localhost:9999/1", "https://localhost:9999/2"));
+
+        // when, then
+        assertThat(target.getEndpointSelector(), is(notNullValue()));
+        assertThat(target.getEndpointSelector().getEndpoints().size(), is(2));
+    }
+
+    @Test
+    public void endpointSelectorIsNotCreatedForSingleEndpointURL() {
+        // given
+        DefaultHTTPClientProvider target = new DefaultHTTPClientProvider(mockLogger, CompressionConfiguration.DEFAULT,
+                mock(TimingProvider.class), Collections.singletonList("https://localhost:9999/1"));
+
+        // when, then
+        assertThat(target.getEndpointSelector(), is(nullValue()));
+    }
+
+    @Test
+    public void createClientWithMultipleEndpointURLsReturnsNewHttpClient() {
+        // given
+        HTTPClientConfiguration configuration = mock(HTTPClientConfiguration.class);
+        when(configuration.getBaseURL()).thenReturn("https://localhost:9999/1");
+        when(configuration.getApplicationID()).thenReturn("some cryptic appID");
+
+        DefaultHTTPClientProvider target = new DefaultHTTPClientProvider(mockLogger, CompressionConfiguration.DEFAULT,
+                mock(TimingProvider.class), Arrays.asList("https://localhost:9999/1", "https://localhost:9999/2"));
 
         // when
         HTTPClient obtained = target.createClient(configuration);
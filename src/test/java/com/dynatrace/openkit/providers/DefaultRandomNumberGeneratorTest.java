@@ -35,4 +35,29 @@ public class DefaultRandomNumberGeneratorTest {
             assertThat(obtained, greaterThanOrEqualTo(0L));
         }
     }
+
+    @Test
+    public void nextPositiveLongReturnsPositiveLongValueOnOtherThreads() throws InterruptedException {
+        // given
+        final DefaultRandomNumberGenerator target = new DefaultRandomNumberGenerator();
+        final long[] obtained = new long[100];
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < obtained.length; i++) {
+                    obtained[i] = target.nextPositiveLong();
+                }
+            }
+        });
+        target.nextPositiveLong();
+
+        // when
+        thread.start();
+        thread.join();
+
+        // then
+        for (long value : obtained) {
+            assertThat(value, greaterThanOrEqualTo(0L));
+        }
+    }
 }
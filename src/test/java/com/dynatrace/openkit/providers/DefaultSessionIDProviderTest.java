@@ -18,6 +18,10 @@ package com.dynatrace.openkit.providers;
 
 import org.junit.Test;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
@@ -74,4 +78,36 @@ public class DefaultSessionIDProviderTest {
         //then
         assertThat(actual, is(equalTo(1)));
     }
+
+    @Test
+    public void concurrentlyProvidedSessionIDsAreUnique() throws InterruptedException {
+        // given
+        final int numThreads = 4;
+        final int idsPerThread = 10000;
+        final DefaultSessionIDProvider provider = new DefaultSessionIDProvider(Integer.MAX_VALUE - idsPerThread);
+        final Set<Integer> sessionIDs = Collections.synchronizedSet(new HashSet<Integer>());
+        Thread[] threads = new Thread[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < idsPerThread; j++) {
+                        sessionIDs.add(provider.getNextSessionID());
+                    }
+                }
+            });
+        }
+
+        // when
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // then
+        assertThat(sessionIDs.size(), is(equalTo(numThreads * idsPerThread)));
+        assertThat(sessionIDs.contains(0), is(false));
+    }
 }